@@ -82,6 +82,7 @@ public static TestSuite getClientServerTestSuite() {
         suite.setName("ClientServerTestSuite");
         suite.addTest(new ClientServerTest());
         suite.addTest(new ConcurrencyManagerTest());
+        suite.addTest(new ConcurrencyManagerLockFreeReadTest());
         suite.addTest(new ClientServerConcurrentWriteTest());
         suite.addTest(new ClientServerSequenceDeadlockTest());
         suite.addTest(new ClientServerSequenceDeadlockTest2());
@@ -117,6 +118,7 @@ public static TestSuite getClientServerTestSuite() {
         suite.addTest(new UnitOfWorkDeleteOrderTest()); // bug 331064
 
         suite.addTest(new ConnectionPoolSizingTest()); // bug 388129
+        suite.addTest(new ConcurrentConnectionPoolTest());
 
         return suite;
     }
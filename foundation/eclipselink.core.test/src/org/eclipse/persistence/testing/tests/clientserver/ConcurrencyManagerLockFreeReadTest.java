@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.testing.tests.clientserver;
+
+import java.util.*;
+
+import org.eclipse.persistence.internal.helper.ConcurrencyManager;
+import org.eclipse.persistence.testing.framework.*;
+
+/**
+ * Tests that lock free read locks still exclude writers.
+ * Readers and writers run concurrently on a few managers, a writer increments a value twice
+ * while holding the lock, so a reader must never see an odd value.
+ * Some writers use the no wait acquires, which must return false rather than wait on a reader.
+ */
+public class ConcurrencyManagerLockFreeReadTest extends AutoVerifyTestCase {
+    public static final int READERS = 8;
+    public static final int WRITERS = 2;
+    public static final int ITERATIONS = 20000;
+
+    protected boolean originalShouldUseLockFreeReadLocks;
+    protected ConcurrencyManager[] managers;
+    protected int[] values;
+    protected List<Throwable> errors;
+
+    public ConcurrencyManagerLockFreeReadTest() {
+        setDescription("Tests that lock free read locks exclude writers.");
+    }
+
+    public void setup() {
+        originalShouldUseLockFreeReadLocks = ConcurrencyManager.shouldUseLockFreeReadLocks();
+        ConcurrencyManager.setShouldUseLockFreeReadLocks(true);
+        managers = new ConcurrencyManager[4];
+        values = new int[managers.length];
+        for (int index = 0; index < managers.length; index++) {
+            managers[index] = new ConcurrencyManager();
+        }
+        errors = Collections.synchronizedList(new ArrayList<Throwable>());
+    }
+
+    public void reset() {
+        ConcurrencyManager.setShouldUseLockFreeReadLocks(originalShouldUseLockFreeReadLocks);
+    }
+
+    public void test() throws Exception {
+        testNoWaitWithReader();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int index = 0; index < READERS + WRITERS; index++) {
+            final boolean isWriter = index < WRITERS;
+            final Random random = new Random(index);
+            threads.add(new Thread() {
+                public void run() {
+                    try {
+                        for (int count = 0; count < ITERATIONS; count++) {
+                            int managerIndex = random.nextInt(managers.length);
+                            ConcurrencyManager manager = managers[managerIndex];
+                            if (isWriter && ((count % 2) == 1)) {
+                                if (manager.acquireNoWait()) {
+                                    try {
+                                        if (manager.getNumberOfReaders() != 0) {
+                                            throw new TestErrorException("No wait lock acquired with active readers.");
+                                        }
+                                        values[managerIndex]++;
+                                        Thread.yield();
+                                        values[managerIndex]++;
+                                    } finally {
+                                        manager.release();
+                                    }
+                                }
+                            } else if (isWriter) {
+                                manager.acquire();
+                                try {
+                                    if (manager.getNumberOfReaders() != 0) {
+                                        throw new TestErrorException("Write lock acquired with active readers.");
+                                    }
+                                    values[managerIndex]++;
+                                    Thread.yield();
+                                    values[managerIndex]++;
+                                } finally {
+                                    manager.release();
+                                }
+                            } else {
+                                manager.acquireReadLock();
+                                try {
+                                    synchronized (values) {
+                                        if ((values[managerIndex] % 2) != 0) {
+                                            throw new TestErrorException("Read lock acquired while a writer was active.");
+                                        }
+                                    }
+                                } finally {
+                                    manager.releaseReadLock();
+                                }
+                            }
+                        }
+                    } catch (Throwable error) {
+                        errors.add(error);
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    /**
+     * A read lock held by another thread must make the no wait acquires fail without blocking.
+     */
+    protected void testNoWaitWithReader() throws Exception {
+        final ConcurrencyManager manager = new ConcurrencyManager();
+        Thread reader = new Thread() {
+            public void run() {
+                manager.acquireReadLock();
+            }
+        };
+        reader.start();
+        reader.join();
+        if (manager.acquireNoWait() || manager.acquireIfUnownedNoWait(false) || manager.acquireWithWait(false, 10)) {
+            throw new TestErrorException("No wait lock acquired with an active reader.");
+        }
+        if (manager.isAcquired()) {
+            throw new TestErrorException("Failed no wait acquire left the lock acquired.");
+        }
+        manager.releaseReadLock();
+        if (!manager.acquireNoWait()) {
+            throw new TestErrorException("No wait lock not acquired after the reader released.");
+        }
+        manager.release();
+    }
+
+    public void verify() {
+        if (!errors.isEmpty()) {
+            throw new TestErrorException("Error during concurrent locking.", errors.get(0));
+        }
+        for (int index = 0; index < managers.length; index++) {
+            if (managers[index].isAcquired() || (managers[index].getNumberOfReaders() != 0)) {
+                throw new TestErrorException("Lock was not released: " + managers[index]);
+            }
+        }
+    }
+}
@@ -0,0 +1,277 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.testing.tests.clientserver;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.persistence.exceptions.ConcurrencyException;
+import org.eclipse.persistence.internal.databaseaccess.Accessor;
+import org.eclipse.persistence.internal.databaseaccess.DatabaseAccessor;
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.sessions.DatabaseLogin;
+import org.eclipse.persistence.sessions.Login;
+import org.eclipse.persistence.sessions.Project;
+import org.eclipse.persistence.sessions.server.ConcurrentConnectionPool;
+import org.eclipse.persistence.sessions.server.ServerSession;
+import org.eclipse.persistence.testing.framework.TestCase;
+import org.eclipse.persistence.testing.framework.TestErrorException;
+
+/**
+ * Test the concurrent connection pool stays within its max size under contention,
+ * reuses released connections, and times out waiting threads.
+ * Also test idle connections above the min size are disconnected by the idle connection checker,
+ * and that its thread stops when the pool is shutdown.
+ * Also test the validation of idle connections on a platform without a ping SQL
+ * only removes the invalid connections.
+ * The pool's connections do not access a database.
+ */
+public class ConcurrentConnectionPoolTest extends TestCase {
+    protected static final int MAX_CONNECTIONS = 4;
+    protected static final int THREADS = 20;
+    protected static final int ITERATIONS = 500;
+
+    protected ServerSession session;
+    protected ConcurrentConnectionPool pool;
+    protected AtomicInteger connectionsBuilt;
+    protected AtomicInteger connectionsInUse;
+    protected volatile int maxConnectionsInUse;
+    protected List<Throwable> errors;
+    protected ConcurrencyException timeout;
+    protected int idleConnectionsLeft;
+    protected Thread idleConnectionChecker;
+    protected int validatedConnectionsLeft;
+    protected boolean invalidConnectionRemoved;
+
+    public ConcurrentConnectionPoolTest() {
+        setDescription("Test the concurrent connection pool under contention and wait timeout.");
+    }
+
+    @Override
+    public void setup() {
+        session = new ServerSession(new Project(new DatabaseLogin()));
+        connectionsBuilt = new AtomicInteger();
+        connectionsInUse = new AtomicInteger();
+        maxConnectionsInUse = 0;
+        errors = new ArrayList<Throwable>();
+        timeout = null;
+        idleConnectionsLeft = -1;
+        idleConnectionChecker = null;
+        validatedConnectionsLeft = -1;
+        invalidConnectionRemoved = false;
+        pool = new ConcurrentConnectionPool("concurrent", session.getDatasourceLogin(), 1, 1, MAX_CONNECTIONS, session) {
+            @Override
+            protected Accessor buildConnection() {
+                connectionsBuilt.incrementAndGet();
+                return new StubAccessor();
+            }
+        };
+        pool.setWaitTimeout(0);
+        pool.startUp();
+    }
+
+    @Override
+    public void test() throws Throwable {
+        Thread[] threads = new Thread[THREADS];
+        for (int index = 0; index < THREADS; index++) {
+            threads[index] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+                            Accessor connection = pool.acquireConnection();
+                            int inUse = connectionsInUse.incrementAndGet();
+                            if (inUse > maxConnectionsInUse) {
+                                maxConnectionsInUse = inUse;
+                            }
+                            Thread.yield();
+                            connectionsInUse.decrementAndGet();
+                            pool.releaseConnection(connection);
+                        }
+                    } catch (Throwable error) {
+                        synchronized (errors) {
+                            errors.add(error);
+                        }
+                    }
+                }
+            };
+            threads[index].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Hold every connection, so the next acquire must time out.
+        pool.setIdleTimeout(60000);
+        List<Accessor> connections = new ArrayList<Accessor>();
+        for (int index = 0; index < MAX_CONNECTIONS; index++) {
+            connections.add(pool.acquireConnection());
+        }
+        pool.setWaitTimeout(50);
+        try {
+            pool.acquireConnection();
+        } catch (ConcurrencyException exception) {
+            timeout = exception;
+        }
+        for (Accessor connection : connections) {
+            pool.releaseConnection(connection);
+        }
+
+        testIdleConnectionChecks();
+        testIdleConnectionValidation();
+    }
+
+    /**
+     * Connections above the min size are disconnected once idle for the idle timeout,
+     * the checker thread stops on shutdown.
+     */
+    protected void testIdleConnectionChecks() throws Throwable {
+        ConcurrentConnectionPool idlePool = new ConcurrentConnectionPool("idle", session.getDatasourceLogin(), 1, 1, MAX_CONNECTIONS, session) {
+            @Override
+            protected Accessor buildConnection() {
+                return new StubAccessor();
+            }
+        };
+        idlePool.setIdleTimeout(20);
+        idlePool.startUp();
+        try {
+            List<Accessor> connections = new ArrayList<Accessor>();
+            for (int index = 0; index < MAX_CONNECTIONS; index++) {
+                connections.add(idlePool.acquireConnection());
+            }
+            for (Accessor connection : connections) {
+                idlePool.releaseConnection(connection);
+            }
+            for (Thread thread : Thread.getAllStackTraces().keySet()) {
+                if (thread.getName().endsWith("(idle)")) {
+                    idleConnectionChecker = thread;
+                }
+            }
+            long deadline = System.currentTimeMillis() + 5000;
+            while ((idlePool.getTotalNumberOfConnections() > 1) && (System.currentTimeMillis() < deadline)) {
+                Thread.sleep(10);
+            }
+            idleConnectionsLeft = idlePool.getTotalNumberOfConnections();
+        } finally {
+            idlePool.shutDown();
+        }
+        if (idleConnectionChecker != null) {
+            idleConnectionChecker.join(5000);
+        }
+    }
+
+    /**
+     * Idle connections are validated with the JDBC isValid API when the platform has no ping SQL,
+     * only the connection that is no longer valid is removed.
+     */
+    protected void testIdleConnectionValidation() throws Throwable {
+        session.getPlatform().setPingSQL(null);
+        ConcurrentConnectionPool validatedPool = new ConcurrentConnectionPool("validated", session.getDatasourceLogin(), MAX_CONNECTIONS, MAX_CONNECTIONS, MAX_CONNECTIONS, session) {
+            @Override
+            protected Accessor buildConnection() {
+                return new ValidatedAccessor();
+            }
+        };
+        validatedPool.setValidationInterval(10);
+        validatedPool.startUp();
+        try {
+            List<Accessor> connections = new ArrayList<Accessor>();
+            for (int index = 0; index < MAX_CONNECTIONS; index++) {
+                connections.add(validatedPool.acquireConnection());
+            }
+            ValidatedAccessor invalid = (ValidatedAccessor)connections.get(0);
+            invalid.isValid = false;
+            for (Accessor connection : connections) {
+                validatedPool.releaseConnection(connection);
+            }
+            long deadline = System.currentTimeMillis() + 5000;
+            while (validatedPool.getConnectionsAvailable().contains(invalid) && (System.currentTimeMillis() < deadline)) {
+                Thread.sleep(10);
+            }
+            // Let the healthy connections be validated several more times.
+            Thread.sleep(100);
+            invalidConnectionRemoved = !validatedPool.getConnectionsAvailable().contains(invalid);
+            validatedConnectionsLeft = validatedPool.getTotalNumberOfConnections();
+        } finally {
+            validatedPool.shutDown();
+        }
+    }
+
+    @Override
+    public void verify() {
+        if (!errors.isEmpty()) {
+            throw new TestErrorException("Acquire or release failed: " + errors.get(0), errors.get(0));
+        }
+        assertTrue("More connections in use than the max: " + maxConnectionsInUse, maxConnectionsInUse <= MAX_CONNECTIONS);
+        assertTrue("More connections open than the max: " + pool.getTotalNumberOfConnections(), pool.getTotalNumberOfConnections() <= MAX_CONNECTIONS);
+        assertNotNull("Acquire did not time out on a full pool", timeout);
+        assertEquals("Wrong timeout error", ConcurrencyException.WAIT_TIMEOUT_ON_CONNECTION_POOL, timeout.getErrorCode());
+        assertEquals("Released connections not available", MAX_CONNECTIONS, pool.getConnectionsAvailable().size());
+        assertEquals("Idle connections above the min size not disconnected", 1, idleConnectionsLeft);
+        assertNotNull("Idle connection checker not started", idleConnectionChecker);
+        assertFalse("Idle connection checker not stopped on shutdown", idleConnectionChecker.isAlive());
+        assertTrue("Invalid idle connection not removed", invalidConnectionRemoved);
+        assertEquals("Valid idle connections removed", MAX_CONNECTIONS - 1, validatedConnectionsLeft);
+    }
+
+    @Override
+    public void reset() {
+        if (pool != null) {
+            pool.shutDown();
+            pool = null;
+        }
+    }
+
+    /**
+     * Accessor that does not connect to a database.
+     */
+    static class StubAccessor extends DatabaseAccessor {
+        @Override
+        public void connect(Login login, AbstractSession session) {
+            this.isConnected = true;
+        }
+
+        @Override
+        public void disconnect(AbstractSession session) {
+            this.isConnected = false;
+        }
+    }
+
+    /**
+     * Accessor with a JDBC connection that is valid until marked otherwise.
+     */
+    static class ValidatedAccessor extends StubAccessor {
+        protected volatile boolean isValid = true;
+
+        ValidatedAccessor() {
+            this.datasourceConnection = Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class[] {Connection.class}, new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] arguments) {
+                    if (method.getName().equals("isValid")) {
+                        return Boolean.valueOf(isValid);
+                    } else if (method.getReturnType() == boolean.class) {
+                        return Boolean.FALSE;
+                    } else if (method.getReturnType() == int.class) {
+                        return Integer.valueOf(0);
+                    }
+                    return null;
+                }
+            });
+        }
+    }
+}
@@ -246,6 +246,9 @@ public static TestSuite getMiscTestSuite() {
         suite.addTest(new HelperSystemPropertyTest());
         suite.addTest(new GermanUmlautsWriteTest());
         suite.addTest(new ReconnectFlushStatementCacheTest());
+        suite.addTest(new StatementCacheEvictionTest());
+        suite.addTest(new PrimitiveArrayRecordTest());
+        suite.addTest(new GroupedBatchWritingTest());
         suite.addTest(new TransactionIsolationTest());
         suite.addTest(new SessionIsConnectedFlagTest());
         suite.addTest(new ContainerIndirectionPolicySerializationTest());
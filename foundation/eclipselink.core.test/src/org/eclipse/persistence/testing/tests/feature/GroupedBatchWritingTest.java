@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.testing.tests.feature;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.descriptors.RelationalDescriptor;
+import org.eclipse.persistence.internal.databaseaccess.DatabaseAccessor;
+import org.eclipse.persistence.internal.databaseaccess.DatabaseCall;
+import org.eclipse.persistence.internal.databaseaccess.DatasourcePlatform;
+import org.eclipse.persistence.internal.databaseaccess.GroupedSQLBatchWritingMechanism;
+import org.eclipse.persistence.internal.sessions.AbstractRecord;
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.queries.Call;
+import org.eclipse.persistence.queries.InsertObjectQuery;
+import org.eclipse.persistence.queries.ModifyQuery;
+import org.eclipse.persistence.queries.SQLCall;
+import org.eclipse.persistence.queries.UpdateObjectQuery;
+import org.eclipse.persistence.sessions.DatabaseLogin;
+import org.eclipse.persistence.sessions.Login;
+import org.eclipse.persistence.sessions.Project;
+import org.eclipse.persistence.testing.framework.*;
+
+/**
+ * Test the grouped batch writing mechanism groups the statements of a class by SQL,
+ * and executes the groups in order when the commit moves to another class or a group is full.
+ */
+public class GroupedBatchWritingTest extends AutoVerifyTestCase {
+    protected AbstractSession session;
+    protected GroupedSQLBatchWritingMechanism mechanism;
+    protected DatabaseAccessor accessor;
+    protected List<String> executed;
+
+    public GroupedBatchWritingTest() {
+        setDescription("Test grouped batch writing batches the statements of a class by table, in commit order.");
+    }
+
+    /**
+     * Accessor that records the batches executed instead of executing them.
+     */
+    protected class RecordingAccessor extends DatabaseAccessor {
+        public RecordingAccessor(Login login) {
+            setLogin(login);
+            setDatasourcePlatform((DatasourcePlatform)login.getDatasourcePlatform());
+        }
+
+        @Override
+        public void incrementCallCount(AbstractSession session) {
+        }
+
+        @Override
+        public Statement prepareStatement(DatabaseCall call, AbstractSession session, boolean unwrapConnection) {
+            final String sql = call.getSQLString();
+            return (Statement)Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { PreparedStatement.class }, new InvocationHandler() {
+                int batched;
+                public Object invoke(Object proxy, Method method, Object[] args) {
+                    if (method.getName().equals("addBatch")) {
+                        batched++;
+                    } else if (method.getName().equals("executeBatch")) {
+                        executed.add(sql + " x" + batched);
+                        int[] counts = new int[batched];
+                        Arrays.fill(counts, 1);
+                        return counts;
+                    }
+                    return null;
+                }
+            });
+        }
+
+        @Override
+        public void closeStatement(Statement statement, AbstractSession session, DatabaseCall call) {
+        }
+
+        @Override
+        public void releaseStatement(Statement statement, String sqlString, DatabaseCall call, AbstractSession session) {
+        }
+
+        @Override
+        public Object basicExecuteCall(Call call, AbstractRecord translationRow, AbstractSession session, boolean batch) {
+            executed.add(((DatabaseCall)call).getSQLString() + " x1");
+            return Integer.valueOf(1);
+        }
+    }
+
+    protected DatabaseCall buildCall(String sql, ClassDescriptor descriptor, ModifyQuery query) {
+        SQLCall call = new SQLCall(sql);
+        List parameters = new ArrayList();
+        parameters.add(Integer.valueOf(1));
+        call.setParameters(parameters);
+        query.setDescriptor(descriptor);
+        call.setQuery(query);
+        return call;
+    }
+
+    public void setup() {
+        session = (AbstractSession)new Project(new DatabaseLogin()).createDatabaseSession();
+        executed = new ArrayList<String>();
+        accessor = new RecordingAccessor(session.getDatasourceLogin());
+        mechanism = new GroupedSQLBatchWritingMechanism();
+        mechanism.setMaxBatchSize(3);
+        mechanism.setAccessor(accessor, session);
+        accessor.setActiveBatchWritingMechanism(mechanism);
+    }
+
+    public void test() {
+        ClassDescriptor employee = new RelationalDescriptor();
+        ClassDescriptor address = new RelationalDescriptor();
+        // A multiple table class writes its tables per object.
+        mechanism.appendCall(session, buildCall("INSERT INTO EMP", employee, new InsertObjectQuery()));
+        mechanism.appendCall(session, buildCall("INSERT INTO SALARY", employee, new InsertObjectQuery()));
+        mechanism.appendCall(session, buildCall("INSERT INTO EMP", employee, new InsertObjectQuery()));
+        if (!executed.isEmpty() || (mechanism.getBatchedCount() != 3)) {
+            throw new TestErrorException("Statements of the same class were not grouped: " + executed);
+        }
+        // The next class in the commit order executes the groups, in the order their SQL first occurred.
+        mechanism.appendCall(session, buildCall("INSERT INTO ADDRESS", address, new InsertObjectQuery()));
+        if (!executed.equals(Arrays.asList("INSERT INTO EMP x2", "INSERT INTO SALARY x1"))) {
+            throw new TestErrorException("Groups not executed in order when the class changed: " + executed);
+        }
+        // A full group executes the batch.
+        mechanism.appendCall(session, buildCall("INSERT INTO ADDRESS", address, new InsertObjectQuery()));
+        mechanism.appendCall(session, buildCall("INSERT INTO ADDRESS", address, new InsertObjectQuery()));
+        if (!executed.equals(Arrays.asList("INSERT INTO EMP x2", "INSERT INTO SALARY x1", "INSERT INTO ADDRESS x3"))) {
+            throw new TestErrorException("Full group not executed: " + executed);
+        }
+        // Another operation for the same class also ends the groups.
+        mechanism.appendCall(session, buildCall("UPDATE ADDRESS", address, new UpdateObjectQuery()));
+        mechanism.appendCall(session, buildCall("INSERT INTO ADDRESS", address, new InsertObjectQuery()));
+        mechanism.executeBatchedStatements(session);
+        if (!executed.equals(Arrays.asList("INSERT INTO EMP x2", "INSERT INTO SALARY x1", "INSERT INTO ADDRESS x3", "UPDATE ADDRESS x1", "INSERT INTO ADDRESS x1"))) {
+            throw new TestErrorException("Groups not ended on a change of operation: " + executed);
+        }
+        if (mechanism.getBatchedCount() != 0) {
+            throw new TestErrorException("Batch not cleared after execution.");
+        }
+        // A call without parameters executes the groups and switches to dynamic SQL batching,
+        // the next call with parameters switches back to the grouped mechanism.
+        executed.clear();
+        mechanism.appendCall(session, buildCall("INSERT INTO ADDRESS", address, new InsertObjectQuery()));
+        DatabaseCall dynamicCall = buildCall("DELETE FROM ADDRESS WHERE ID = 1", address, new UpdateObjectQuery());
+        dynamicCall.setParameters(new ArrayList());
+        accessor.getActiveBatchWritingMechanism(session).appendCall(session, dynamicCall);
+        if ((accessor.getActiveBatchWritingMechanism(session) == mechanism) || !executed.equals(Arrays.asList("INSERT INTO ADDRESS x1"))) {
+            throw new TestErrorException("Call without parameters not batched as dynamic SQL: " + executed);
+        }
+        accessor.getActiveBatchWritingMechanism(session).appendCall(session, buildCall("INSERT INTO EMP", employee, new InsertObjectQuery()));
+        if ((accessor.getActiveBatchWritingMechanism(session) != mechanism) || (mechanism.getBatchedCount() != 1)
+                || !executed.equals(Arrays.asList("INSERT INTO ADDRESS x1", "DELETE FROM ADDRESS WHERE ID = 1 x1"))) {
+            throw new TestErrorException("Did not switch back to grouped batching: " + executed);
+        }
+        mechanism.executeBatchedStatements(session);
+    }
+}
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.testing.tests.feature;
+
+import java.util.Vector;
+
+import org.eclipse.persistence.internal.helper.DatabaseField;
+import org.eclipse.persistence.internal.sessions.PrimitiveArrayRecord;
+import org.eclipse.persistence.testing.framework.*;
+
+/**
+ * Test a PrimitiveArrayRecord boxes its primitive values on access, and drops them once replaced.
+ */
+public class PrimitiveArrayRecordTest extends AutoVerifyTestCase {
+    protected DatabaseField id;
+    protected DatabaseField salary;
+    protected DatabaseField name;
+    protected DatabaseField rate;
+    protected PrimitiveArrayRecord row;
+
+    public PrimitiveArrayRecordTest() {
+        setDescription("Test PrimitiveArrayRecord boxes primitive values on access and replaces them.");
+    }
+
+    public void setup() {
+        id = new DatabaseField("EMP.ID");
+        salary = new DatabaseField("EMP.SALARY");
+        name = new DatabaseField("EMP.NAME");
+        rate = new DatabaseField("EMP.RATE");
+        DatabaseField[] fieldsArray = new DatabaseField[] {id, salary, name, rate};
+        Vector fields = new Vector(4);
+        for (int index = 0; index < fieldsArray.length; index++) {
+            fieldsArray[index].setIndex(index);
+            fields.add(fieldsArray[index]);
+        }
+        long[] primitiveValues = new long[4];
+        byte[] primitiveTypes = new byte[4];
+        primitiveValues[0] = 123456789L;
+        primitiveTypes[0] = PrimitiveArrayRecord.LONG;
+        primitiveValues[3] = Double.doubleToRawLongBits(1.5d);
+        primitiveTypes[3] = PrimitiveArrayRecord.DOUBLE;
+        // SALARY was null, NAME is not primitive.
+        Object[] values = new Object[] {null, null, "Bob", null};
+        row = new PrimitiveArrayRecord(fields, fieldsArray, values, primitiveValues, primitiveTypes);
+    }
+
+    public void test() {
+        if ((row.indexOf(id) != 0) || (row.indexOf(rate) != 3) || (row.indexOf(new DatabaseField("EMP.RATE")) != 3)
+                || (row.indexOf(new DatabaseField("EMP.OTHER")) != -1)) {
+            throw new TestErrorException("Wrong field index.");
+        }
+        if ((row.getPrimitiveType(0) != PrimitiveArrayRecord.LONG) || (row.getLong(0) != 123456789L)
+                || (row.getPrimitiveType(3) != PrimitiveArrayRecord.DOUBLE) || (row.getDouble(3) != 1.5d)
+                || (row.getPrimitiveType(1) != PrimitiveArrayRecord.NONE)) {
+            throw new TestErrorException("Wrong primitive values: " + row);
+        }
+        if (!Long.valueOf(123456789L).equals(row.get(id)) || !Double.valueOf(1.5d).equals(row.get(rate))
+                || (row.get(salary) != null) || !"Bob".equals(row.get(name))) {
+            throw new TestErrorException("Primitive values not boxed: " + row);
+        }
+        if (!row.containsKey(salary) || !row.containsValue(Long.valueOf(123456789L))) {
+            throw new TestErrorException("Wrong contains: " + row);
+        }
+        row.put(id, Long.valueOf(5));
+        if ((row.getPrimitiveType(0) != PrimitiveArrayRecord.NONE) || !Long.valueOf(5).equals(row.get(id))) {
+            throw new TestErrorException("Replaced primitive value still used: " + row);
+        }
+        // Adding a field converts the row to a Vector based record, the primitive values must be kept.
+        row.put(new DatabaseField("EMP.OTHER"), "other");
+        if ((row.getPrimitiveType(3) != PrimitiveArrayRecord.NONE) || (row.indexOf(rate) != -1)
+                || !Double.valueOf(1.5d).equals(row.get(rate)) || !"other".equals(row.get("EMP.OTHER"))) {
+            throw new TestErrorException("Primitive values lost when the row was converted: " + row);
+        }
+    }
+}
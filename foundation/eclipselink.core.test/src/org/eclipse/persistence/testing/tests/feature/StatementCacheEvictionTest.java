@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.testing.tests.feature;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.List;
+
+import org.eclipse.persistence.internal.databaseaccess.StatementCache;
+import org.eclipse.persistence.testing.framework.*;
+
+/**
+ * Test the statement cache evicts the least recently used SQL, and allows the same SQL to be checked out concurrently.
+ */
+public class StatementCacheEvictionTest extends AutoVerifyTestCase {
+    protected StatementCache cache;
+
+    public StatementCacheEvictionTest() {
+        setDescription("Test the statement cache evicts the least recently used statements and caches multiple statements per SQL.");
+    }
+
+    protected Statement newStatement() {
+        return (Statement)Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { PreparedStatement.class }, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (method.getName().equals("equals")) {
+                    return proxy == args[0];
+                } else if (method.getName().equals("hashCode")) {
+                    return System.identityHashCode(proxy);
+                }
+                return null;
+            }
+        });
+    }
+
+    public void setup() {
+        cache = new StatementCache(3);
+    }
+
+    public void test() {
+        if (cache.checkout("A") != null) {
+            throw new TestErrorException("Empty cache returned a statement.");
+        }
+        // Check out the same SQL twice, both must be cached on release.
+        Statement a1 = newStatement();
+        Statement a2 = newStatement();
+        Statement b = newStatement();
+        Statement c = newStatement();
+        if (cache.release("A", a1) != null || cache.release("A", a2) != null || cache.release("B", b) != null) {
+            throw new TestErrorException("Statements evicted before the cache was full.");
+        }
+        if (cache.getStatementCount() != 3) {
+            throw new TestErrorException("Multiple statements for the same SQL were not cached: " + cache);
+        }
+        Statement first = cache.checkout("A");
+        Statement second = cache.checkout("A");
+        if ((first == second) || (first == null) || (second == null)) {
+            throw new TestErrorException("The same SQL could not be checked out twice.");
+        }
+        cache.release("A", first);
+        cache.release("A", second);
+        // A was used more recently than B, so B must be evicted.
+        List<Statement> evicted = cache.release("C", c);
+        if ((evicted == null) || (evicted.size() != 1) || (evicted.get(0) != b)) {
+            throw new TestErrorException("The least recently used statement was not evicted: " + evicted);
+        }
+        if (cache.containsKey("B") || !cache.containsKey("A") || !cache.containsKey("C")) {
+            throw new TestErrorException("Wrong statements cached after eviction.");
+        }
+        // Shrinking the cache evicts the least recently used statements on the next release.
+        cache.setMaxSize(1);
+        Statement d = newStatement();
+        evicted = cache.release("D", d);
+        if ((evicted == null) || (evicted.size() != 3) || evicted.contains(d) || (evicted.get(2) != c)) {
+            throw new TestErrorException("Wrong statements evicted when shrinking the cache: " + evicted);
+        }
+        if ((cache.getHits() != 2) || (cache.getMisses() != 1) || (cache.getEvictions() != 4)) {
+            throw new TestErrorException("Wrong statistics: " + cache);
+        }
+        if (cache.removeAll().size() != 1 || !cache.isEmpty()) {
+            throw new TestErrorException("Cache not cleared.");
+        }
+    }
+}
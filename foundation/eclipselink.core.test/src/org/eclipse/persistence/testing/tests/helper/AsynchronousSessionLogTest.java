@@ -0,0 +1,245 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.testing.tests.helper;
+
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.persistence.internal.databaseaccess.Accessor;
+import org.eclipse.persistence.internal.sessions.DatabaseSessionImpl;
+import org.eclipse.persistence.logging.AsynchronousSessionLog;
+import org.eclipse.persistence.logging.SessionLog;
+import org.eclipse.persistence.sessions.DatabaseLogin;
+import org.eclipse.persistence.sessions.Project;
+
+/**
+ * Test that AsynchronousSessionLog writes all its entries when closed, including on logout and
+ * while other threads log, stops its writer thread, and bounds its buffer size.
+ */
+public class AsynchronousSessionLogTest extends junit.framework.TestCase {
+    protected static final int THREADS = 4;
+    protected static final int ENTRIES = 500;
+
+    public AsynchronousSessionLogTest(String name) {
+        super(name);
+    }
+
+    protected static AsynchronousSessionLog buildLog(StringWriter writer) {
+        AsynchronousSessionLog log = new AsynchronousSessionLog(writer);
+        log.setLevel(SessionLog.INFO);
+        return log;
+    }
+
+    /**
+     * Log from several threads into a buffer smaller than the number of entries.
+     */
+    protected void logEntries(final SessionLog log, final String prefix) throws InterruptedException {
+        Thread[] threads = new Thread[THREADS];
+        for (int index = 0; index < THREADS; index++) {
+            final int thread = index;
+            threads[index] = new Thread() {
+                public void run() {
+                    for (int entry = 0; entry < ENTRIES; entry++) {
+                        log.log(SessionLog.INFO, prefix + thread + "-" + entry + ";", (Object[])null, false);
+                    }
+                }
+            };
+            threads[index].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    /**
+     * Return the running writer threads that were not running before.
+     */
+    protected static Set<Thread> startedWriterThreads(Set<Thread> before) {
+        Set<Thread> threads = new HashSet<Thread>();
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("EclipseLink log writer") && thread.isAlive() && !before.contains(thread)) {
+                threads.add(thread);
+            }
+        }
+        return threads;
+    }
+
+    protected static void assertStopped(Set<Thread> threads) {
+        for (Thread thread : threads) {
+            assertFalse("Writer thread still running", thread.isAlive());
+        }
+    }
+
+    protected static void assertAllWritten(String output, String prefix) {
+        for (int thread = 0; thread < THREADS; thread++) {
+            for (int entry = 0; entry < ENTRIES; entry++) {
+                assertTrue("Missing entry " + thread + "-" + entry, output.contains(prefix + thread + "-" + entry + ";"));
+            }
+        }
+    }
+
+    /**
+     * Test that close writes the buffered entries and stops the writer thread,
+     * and that logging again starts a new writer thread.
+     */
+    public void testClose() throws InterruptedException {
+        Set<Thread> before = startedWriterThreads(new HashSet<Thread>());
+        StringWriter writer = new StringWriter();
+        AsynchronousSessionLog log = buildLog(writer);
+        log.setBufferSize(16);
+        logEntries(log, "first");
+        Set<Thread> writerThreads = startedWriterThreads(before);
+        assertEquals(1, writerThreads.size());
+        log.close();
+        assertStopped(writerThreads);
+        assertAllWritten(writer.toString(), "first");
+
+        logEntries(log, "second");
+        Set<Thread> restartedThreads = startedWriterThreads(before);
+        assertEquals(1, restartedThreads.size());
+        log.close();
+        assertStopped(restartedThreads);
+        assertAllWritten(writer.toString(), "second");
+    }
+
+    /**
+     * Test that logout writes the buffered entries of the session log and stops its writer thread.
+     */
+    public void testLogoutClosesLog() throws InterruptedException {
+        Set<Thread> before = startedWriterThreads(new HashSet<Thread>());
+        StringWriter writer = new StringWriter();
+        AsynchronousSessionLog log = buildLog(writer);
+        DatabaseSessionImpl session = new DatabaseSessionImpl(new Project(new DatabaseLogin()));
+        session.setSessionLog(log);
+        session.setAccessor((Accessor)Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] {Accessor.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] arguments) {
+                if (method.getReturnType() == boolean.class) {
+                    return Boolean.FALSE;
+                } else if (method.getReturnType() == int.class) {
+                    return Integer.valueOf(0);
+                }
+                return null;
+            }
+        }));
+        logEntries(log, "entry");
+        Set<Thread> writerThreads = startedWriterThreads(before);
+        assertEquals(1, writerThreads.size());
+        session.logout();
+        assertStopped(writerThreads);
+        assertAllWritten(writer.toString(), "entry");
+    }
+
+    /**
+     * Test that entries logged while the log is closed are written once, in the order each thread logged them,
+     * and never while the writer thread writes the buffered entries.
+     */
+    public void testLogWhileClosing() throws InterruptedException {
+        Set<Thread> before = startedWriterThreads(new HashSet<Thread>());
+        for (int iteration = 0; iteration < 20; iteration++) {
+            ExclusiveWriter writer = new ExclusiveWriter();
+            final AsynchronousSessionLog log = new AsynchronousSessionLog(writer);
+            log.setLevel(SessionLog.INFO);
+            log.setBufferSize(16);
+            final SessionLog clone = (SessionLog)log.clone();
+            final CountDownLatch started = new CountDownLatch(THREADS);
+            Thread[] threads = new Thread[THREADS];
+            for (int index = 0; index < THREADS; index++) {
+                final int thread = index;
+                threads[index] = new Thread() {
+                    public void run() {
+                        for (int entry = 0; entry < ENTRIES; entry++) {
+                            if (entry == 50) {
+                                started.countDown();
+                            }
+                            ((thread % 2 == 0) ? log : clone).log(SessionLog.INFO, "closing" + thread + "-" + entry + ";", (Object[])null, false);
+                        }
+                    }
+                };
+                threads[index].start();
+            }
+            started.await();
+            log.close();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            log.close();
+            assertFalse("Entries written concurrently", writer.wasConcurrent);
+            String output = writer.toString();
+            for (int thread = 0; thread < THREADS; thread++) {
+                int previous = -1;
+                for (int entry = 0; entry < ENTRIES; entry++) {
+                    String message = "closing" + thread + "-" + entry + ";";
+                    int position = output.indexOf(message);
+                    assertTrue("Missing entry " + message, position >= 0);
+                    assertEquals("Entry written twice " + message, -1, output.indexOf(message, position + 1));
+                    assertTrue("Entry written out of order " + message, position > previous);
+                    previous = position;
+                }
+            }
+        }
+        assertStopped(startedWriterThreads(before));
+    }
+
+    /**
+     * Writer that records if it is written by two threads at once.
+     */
+    static class ExclusiveWriter extends Writer {
+        protected final StringBuffer buffer = new StringBuffer();
+        protected final AtomicInteger writers = new AtomicInteger();
+        protected volatile boolean wasConcurrent;
+
+        @Override
+        public void write(char[] characters, int offset, int length) {
+            if (writers.incrementAndGet() != 1) {
+                wasConcurrent = true;
+            }
+            buffer.append(characters, offset, length);
+            Thread.yield();
+            writers.decrementAndGet();
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public String toString() {
+            return buffer.toString();
+        }
+    }
+
+    /**
+     * Test that the buffer size is bounded to the largest power of two array length.
+     */
+    public void testBufferSizeBounded() {
+        AsynchronousSessionLog log = new AsynchronousSessionLog();
+        log.setBufferSize(Integer.MAX_VALUE);
+        assertEquals(AsynchronousSessionLog.MAXIMUM_BUFFER_SIZE, log.getBufferSize());
+        log.setBufferSize((1 << 30) + 1);
+        assertEquals(AsynchronousSessionLog.MAXIMUM_BUFFER_SIZE, log.getBufferSize());
+        log.setBufferSize(100);
+        assertEquals(100, log.getBufferSize());
+    }
+}
@@ -0,0 +1,239 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.testing.tests.helper;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.eclipse.persistence.descriptors.CacheIndex;
+import org.eclipse.persistence.descriptors.RelationalDescriptor;
+import org.eclipse.persistence.expressions.Expression;
+import org.eclipse.persistence.expressions.ExpressionBuilder;
+import org.eclipse.persistence.internal.identitymaps.CacheId;
+import org.eclipse.persistence.internal.identitymaps.CacheKey;
+import org.eclipse.persistence.internal.identitymaps.CacheKeyIndex;
+import org.eclipse.persistence.internal.identitymaps.IdentityMap;
+import org.eclipse.persistence.internal.sessions.DatabaseSessionImpl;
+import org.eclipse.persistence.queries.InMemoryQueryIndirectionPolicy;
+import org.eclipse.persistence.sessions.DatabaseLogin;
+import org.eclipse.persistence.sessions.Project;
+
+/**
+ * Test that in-memory queries using the non-unique and sorted cache indexes return the same
+ * objects as a scan of the cache, including for objects removed from the cache, or put into it
+ * without being indexed.
+ * Also test that the objects removed, evicted or reset from the cache are removed from the indexes.
+ */
+public class CacheKeyIndexQueryTest extends junit.framework.TestCase {
+    protected static final int SIZE = 100;
+    protected static final int CODES = 10;
+
+    protected DatabaseSessionImpl session;
+    protected RelationalDescriptor descriptor;
+    protected CacheIndex priceIndex;
+
+    public CacheKeyIndexQueryTest(String name) {
+        super(name);
+    }
+
+    @Override
+    public void setUp() {
+        buildSession(false);
+    }
+
+    /**
+     * Build the session and put the items in the cache, with a full identity map,
+     * or a cache identity map that only holds half the items.
+     */
+    protected void buildSession(boolean useCacheIdentityMap) {
+        descriptor = new RelationalDescriptor();
+        descriptor.setJavaClass(Item.class);
+        descriptor.setTableName("ITEM");
+        descriptor.setPrimaryKeyFieldName("ID");
+        descriptor.addDirectMapping("id", "ID");
+        descriptor.addDirectMapping("code", "CODE");
+        descriptor.addDirectMapping("price", "PRICE");
+        if (useCacheIdentityMap) {
+            descriptor.useCacheIdentityMap();
+            descriptor.setIdentityMapSize(SIZE / 2);
+        } else {
+            descriptor.useFullIdentityMap();
+        }
+        CacheIndex codeIndex = new CacheIndex("CODE");
+        codeIndex.setIsUnique(false);
+        descriptor.getCachePolicy().addCacheIndex(codeIndex);
+        priceIndex = new CacheIndex("PRICE");
+        priceIndex.setIsSorted(true);
+        priceIndex.setIsInsertable(false);
+        priceIndex.setIsUpdateable(false);
+        descriptor.getCachePolicy().addCacheIndex(priceIndex);
+        Project project = new Project(new DatabaseLogin());
+        project.addDescriptor(descriptor);
+        session = (DatabaseSessionImpl)project.createDatabaseSession();
+        session.initializeDescriptors();
+        for (int index = 0; index < SIZE; index++) {
+            session.getIdentityMapAccessor().putInIdentityMap(new Item(index, "Code" + (index % CODES), index));
+        }
+    }
+
+    protected Set<Long> query(Expression expression) {
+        Set<Long> ids = new TreeSet<Long>();
+        for (Object item : session.getIdentityMapAccessor().getAllFromIdentityMap(expression, Item.class, null, InMemoryQueryIndirectionPolicy.SHOULD_TRIGGER_INDIRECTION, false)) {
+            ids.add(((Item)item).id);
+        }
+        return ids;
+    }
+
+    protected static Set<Long> ids(long... values) {
+        Set<Long> ids = new TreeSet<Long>();
+        for (long value : values) {
+            ids.add(value);
+        }
+        return ids;
+    }
+
+    protected Expression codeEquals(String code) {
+        return new ExpressionBuilder().get("code").equal(code);
+    }
+
+    protected Expression priceBetween(long lower, long upper) {
+        return new ExpressionBuilder().get("price").between(lower, upper);
+    }
+
+    protected IdentityMap getIdentityMap() {
+        return session.getIdentityMapAccessorInstance().getIdentityMap(descriptor);
+    }
+
+    protected CacheKeyIndex getPriceIndex() {
+        return session.getIdentityMapAccessorInstance().getIdentityMapManager().getCacheKeyIndex(priceIndex);
+    }
+
+    /**
+     * Test that the objects put into the cache are indexed, and found by equality on the non-unique index.
+     */
+    public void testIndexedEquality() {
+        assertEquals(SIZE, session.getIdentityMapAccessorInstance().getIdentityMapManager().getCacheKeyIndex(priceIndex).size());
+        assertEquals(ids(3, 13, 23, 33, 43, 53, 63, 73, 83, 93), query(codeEquals("Code3")));
+        ExpressionBuilder builder = new ExpressionBuilder();
+        assertEquals(ids(33), query(builder.get("code").equal("Code3").and(builder.get("price").greaterThan(25L)).and(builder.get("price").lessThan(40L))));
+        assertTrue(query(codeEquals("None")).isEmpty());
+    }
+
+    /**
+     * Test the range comparisons on the sorted index.
+     */
+    public void testIndexedRange() {
+        assertEquals(ids(10, 11, 12), query(priceBetween(10, 12)));
+        assertEquals(ids(97, 98, 99), query(new ExpressionBuilder().get("price").greaterThan(96L)));
+        assertEquals(ids(0, 1, 2), query(new ExpressionBuilder().get("price").lessThanEqual(2L)));
+        assertTrue(query(priceBetween(12, 10)).isEmpty());
+    }
+
+    /**
+     * Test that the objects removed from the cache without being removed from the indexes are not returned.
+     */
+    public void testStaleKeys() {
+        IdentityMap map = getIdentityMap();
+        map.remove(map.getCacheKey(Long.valueOf(13), false));
+        session.getIdentityMapAccessor().removeFromIdentityMap(Long.valueOf(23), Item.class);
+        assertEquals(ids(3, 33, 43, 53, 63, 73, 83, 93), query(codeEquals("Code3")));
+        assertEquals(ids(11, 12), query(priceBetween(11, 13)));
+        assertEquals(SIZE - 2, getPriceIndex().size());
+        assertTrue(getPriceIndex().get(new CacheId(new Object[] {Long.valueOf(13)})).isEmpty());
+    }
+
+    /**
+     * Test that the objects evicted from a cache identity map are removed from the indexes,
+     * so the indexes cover the cache, and objects put into it without being indexed are still returned.
+     */
+    public void testEvictedKeys() {
+        buildSession(true);
+        IdentityMap map = getIdentityMap();
+        assertEquals(SIZE / 2, map.getSize());
+        assertEquals(map.getSize(), getPriceIndex().size());
+        assertEquals(ids(53, 63, 73, 83, 93), query(codeEquals("Code3")));
+        assertTrue(query(priceBetween(0, 49)).isEmpty());
+
+        // Evict an indexed object with one that is not indexed, the index no longer covers the cache.
+        map.put(Long.valueOf(500), new Item(500, "Code3", 500), null, 0);
+        assertEquals(SIZE / 2, map.getSize());
+        assertEquals(SIZE / 2 - 1, getPriceIndex().size());
+        assertEquals(ids(53, 63, 73, 83, 93, 500), query(codeEquals("Code3")));
+        assertEquals(ids(500), query(priceBetween(400, 600)));
+    }
+
+    /**
+     * Test that resetting the identity map of the class removes its indexes.
+     */
+    public void testInitializeIdentityMap() {
+        session.getIdentityMapAccessor().initializeIdentityMap(Item.class);
+        assertNull(getPriceIndex());
+        assertTrue(query(codeEquals("Code3")).isEmpty());
+        session.getIdentityMapAccessor().putInIdentityMap(new Item(3, "Code3", 3));
+        assertEquals(1, getPriceIndex().size());
+        assertEquals(ids(3), query(codeEquals("Code3")));
+    }
+
+    /**
+     * Test that an object replaced in the cache is re-indexed when put into the cache.
+     */
+    public void testReplacedKeys() {
+        session.getIdentityMapAccessor().removeFromIdentityMap(Long.valueOf(13), Item.class);
+        session.getIdentityMapAccessor().putInIdentityMap(new Item(13, "Code4", 1013));
+        assertEquals(ids(3, 23, 33, 43, 53, 63, 73, 83, 93), query(codeEquals("Code3")));
+        assertEquals(ids(13), query(priceBetween(1000, 1100)));
+    }
+
+    /**
+     * Test that the objects put into the cache without being indexed are still returned,
+     * whether new or replacing an indexed object.
+     */
+    public void testUnindexedKeys() {
+        IdentityMap map = getIdentityMap();
+        // Replace an indexed object with a different one, the index references the removed cache key.
+        map.remove(map.getCacheKey(Long.valueOf(13), false));
+        map.put(Long.valueOf(13), new Item(13, "Code3", 1013), null, 0);
+        assertEquals(ids(3, 13, 23, 33, 43, 53, 63, 73, 83, 93), query(codeEquals("Code3")));
+
+        // A new object that the index does not know about.
+        map.put(Long.valueOf(500), new Item(500, "Code3", 500), null, 0);
+        assertTrue(query(codeEquals("Code3")).contains(Long.valueOf(500)));
+        assertEquals(ids(500), query(priceBetween(400, 600)));
+    }
+
+    /**
+     * Test that the non-insertable and non-updateable sorted index is re-indexed when the object is refreshed.
+     */
+    public void testNonUpdateableIndex() {
+        CacheKey cacheKey = getIdentityMap().getCacheKey(Long.valueOf(42), false);
+        ((Item)cacheKey.getObject()).price = 4200;
+        descriptor.getCachePolicy().indexObjectInCache(cacheKey, cacheKey.getObject(), descriptor, session, true);
+        assertEquals(ids(42), query(priceBetween(4000, 5000)));
+        assertEquals(ids(41, 43), query(priceBetween(41, 43)));
+    }
+
+    public static class Item {
+        public long id;
+        public String code;
+        public long price;
+
+        public Item() {
+        }
+
+        public Item(long id, String code, long price) {
+            this.id = id;
+            this.code = code;
+            this.price = price;
+        }
+    }
+}
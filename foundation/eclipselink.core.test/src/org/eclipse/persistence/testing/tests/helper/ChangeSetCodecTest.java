@@ -0,0 +1,463 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.testing.tests.helper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.descriptors.RelationalDescriptor;
+import org.eclipse.persistence.internal.identitymaps.CacheId;
+import org.eclipse.persistence.internal.sessions.AggregateChangeRecord;
+import org.eclipse.persistence.internal.sessions.AggregateObjectChangeSet;
+import org.eclipse.persistence.internal.sessions.ChangeRecord;
+import org.eclipse.persistence.internal.sessions.ChangeSetCodec;
+import org.eclipse.persistence.internal.sessions.CollectionChangeRecord;
+import org.eclipse.persistence.internal.sessions.DatabaseSessionImpl;
+import org.eclipse.persistence.internal.sessions.DirectCollectionChangeRecord;
+import org.eclipse.persistence.internal.sessions.DirectToFieldChangeRecord;
+import org.eclipse.persistence.internal.sessions.ObjectChangeSet;
+import org.eclipse.persistence.internal.sessions.ObjectReferenceChangeRecord;
+import org.eclipse.persistence.internal.sessions.UnitOfWorkChangeSet;
+import org.eclipse.persistence.mappings.AggregateObjectMapping;
+import org.eclipse.persistence.mappings.OneToManyMapping;
+import org.eclipse.persistence.mappings.OneToOneMapping;
+import org.eclipse.persistence.sessions.DatabaseLogin;
+import org.eclipse.persistence.sessions.DatabaseRecord;
+import org.eclipse.persistence.sessions.Project;
+import org.eclipse.persistence.sessions.coordination.MergeChangeSetCommand;
+import org.eclipse.persistence.sessions.coordination.ServiceId;
+import org.eclipse.persistence.sessions.serializers.ChangeSetSerializer;
+import org.eclipse.persistence.sessions.serializers.JavaSerializer;
+
+/**
+ * Test that cache coordination merge commands written by ChangeSetCodec are read back
+ * with the same change sets, and that ChangeSetSerializer falls back to Java
+ * serialization for change sets the codec cannot write.
+ */
+public class ChangeSetCodecTest extends junit.framework.TestCase {
+
+    public enum Status { ACTIVE, RETIRED }
+
+    public static class Employee {
+        public long id;
+        public Object value;
+        public Employee manager;
+        public Address address;
+        public List<Employee> reports;
+    }
+
+    public static class Address {
+        public String city;
+    }
+
+    protected DatabaseSessionImpl session;
+    protected RelationalDescriptor employeeDescriptor;
+    protected RelationalDescriptor addressDescriptor;
+
+    public ChangeSetCodecTest(String name) {
+        super(name);
+    }
+
+    @Override
+    public void setUp() {
+        session = new DatabaseSessionImpl(buildProject(false));
+        employeeDescriptor = (RelationalDescriptor)session.getDescriptor(Employee.class);
+        addressDescriptor = (RelationalDescriptor)session.getDescriptor(Address.class);
+    }
+
+    protected static Project buildProject(boolean withExtraMapping) {
+        Project project = new Project(new DatabaseLogin());
+        RelationalDescriptor descriptor = new RelationalDescriptor();
+        descriptor.setJavaClass(Employee.class);
+        descriptor.setTableName("EMPLOYEE");
+        descriptor.addPrimaryKeyFieldName("EMPLOYEE.ID");
+        descriptor.addDirectMapping("id", "EMPLOYEE.ID");
+        descriptor.addDirectMapping("value", "EMPLOYEE.VALUE");
+        if (withExtraMapping) {
+            descriptor.addDirectMapping("extra", "EMPLOYEE.EXTRA");
+        }
+        OneToOneMapping managerMapping = new OneToOneMapping();
+        managerMapping.setAttributeName("manager");
+        managerMapping.setReferenceClass(Employee.class);
+        managerMapping.addForeignKeyFieldName("EMPLOYEE.MANAGER_ID", "EMPLOYEE.ID");
+        descriptor.addMapping(managerMapping);
+        AggregateObjectMapping addressMapping = new AggregateObjectMapping();
+        addressMapping.setAttributeName("address");
+        addressMapping.setReferenceClass(Address.class);
+        descriptor.addMapping(addressMapping);
+        OneToManyMapping reportsMapping = new OneToManyMapping();
+        reportsMapping.setAttributeName("reports");
+        reportsMapping.setReferenceClass(Employee.class);
+        reportsMapping.addTargetForeignKeyFieldName("EMPLOYEE.MANAGER_ID", "EMPLOYEE.ID");
+        descriptor.addMapping(reportsMapping);
+        project.addDescriptor(descriptor);
+
+        RelationalDescriptor address = new RelationalDescriptor();
+        address.setJavaClass(Address.class);
+        address.descriptorIsAggregate();
+        address.addDirectMapping("city", "CITY");
+        project.addDescriptor(address);
+        return project;
+    }
+
+    /**
+     * Values with each tag of the codec, the last one written with Java serialization.
+     */
+    protected static Object[] buildValues() {
+        java.sql.Timestamp timestamp = new java.sql.Timestamp(1234567890123L);
+        timestamp.setNanos(123456789);
+        return new Object[] {
+            null, "name", Integer.valueOf(-42), Long.valueOf(Long.MAX_VALUE), Short.valueOf((short)-7), Byte.valueOf((byte)0x7F),
+            Boolean.TRUE, Boolean.FALSE, Double.valueOf(-1.5), Float.valueOf(2.25f), Character.valueOf('\u00e9'),
+            new BigDecimal("-12345678901234567890.0123"), new BigInteger("98765432109876543210"),
+            new java.util.Date(1000L), new java.sql.Date(2000L), new java.sql.Time(3000L), timestamp,
+            new byte[] {1, 2, 3}, Status.RETIRED, new CacheId(new Object[] {Long.valueOf(1), "key"}),
+            new ArrayList<String>(Arrays.asList("serialized", "list"))};
+    }
+
+    protected ObjectChangeSet newChangeSet(Object id, UnitOfWorkChangeSet changeSet) {
+        ObjectChangeSet objectChangeSet = new ObjectChangeSet(id, employeeDescriptor, null, changeSet, false);
+        changeSet.getAllChangeSets().put(objectChangeSet, objectChangeSet);
+        return objectChangeSet;
+    }
+
+    protected static void addDirectChange(ObjectChangeSet objectChangeSet, String attribute, Object value) {
+        DirectToFieldChangeRecord record = new DirectToFieldChangeRecord(objectChangeSet);
+        record.setAttribute(attribute);
+        record.setNewValue(value);
+        objectChangeSet.addChange(record);
+    }
+
+    protected MergeChangeSetCommand buildCommand() {
+        UnitOfWorkChangeSet changeSet = new UnitOfWorkChangeSet();
+        changeSet.setHasChanges(true);
+
+        // Direct records with every value tag, also as ids and lock values.
+        Object[] values = buildValues();
+        List<ObjectChangeSet> objectChangeSets = new ArrayList<ObjectChangeSet>();
+        for (int index = 0; index < values.length; index++) {
+            ObjectChangeSet objectChangeSet = newChangeSet((index == 0) ? values[values.length - 2] : Long.valueOf(index), changeSet);
+            objectChangeSet.setInitialWriteLockValue(values[index]);
+            objectChangeSet.setWriteLockValue(values[(index + 1) % values.length]);
+            addDirectChange(objectChangeSet, "value", values[index]);
+            objectChangeSets.add(objectChangeSet);
+        }
+        ObjectChangeSet manager = objectChangeSets.get(1);
+        manager.setIsNew(true);
+        manager.setHasVersionChange(true);
+        manager.setShouldModifyVersionField(Boolean.FALSE);
+        manager.setOldKey(Long.valueOf(1));
+        manager.setNewKey("new key");
+        DatabaseRecord foreignKeys = new DatabaseRecord();
+        foreignKeys.put("EMPLOYEE.MANAGER_ID", Long.valueOf(7));
+        manager.setProtectedForeignKeys(foreignKeys);
+
+        // Reference records, to a change set and to null.
+        ObjectChangeSet employee = objectChangeSets.get(2);
+        ObjectReferenceChangeRecord referenceRecord = new ObjectReferenceChangeRecord(employee);
+        referenceRecord.setAttribute("manager");
+        referenceRecord.setNewValue(manager);
+        employee.addChange(referenceRecord);
+        ObjectChangeSet other = objectChangeSets.get(3);
+        referenceRecord = new ObjectReferenceChangeRecord(other);
+        referenceRecord.setAttribute("manager");
+        referenceRecord.setNewValue((ObjectChangeSet)null);
+        other.addChange(referenceRecord);
+
+        // Aggregate record, its change set is only referenced by the record.
+        AggregateObjectChangeSet address = new AggregateObjectChangeSet(null, addressDescriptor, null, changeSet, false);
+        address.setIsAggregate(true);
+        addDirectChange(address, "city", "Ottawa");
+        AggregateChangeRecord aggregateRecord = new AggregateChangeRecord(employee);
+        aggregateRecord.setAttribute("address");
+        aggregateRecord.setChangedObject(address);
+        employee.addChange(aggregateRecord);
+
+        // Collection record, adding a change set that is not in the change set itself.
+        ObjectChangeSet added = new ObjectChangeSet(Long.valueOf(100), employeeDescriptor, null, changeSet, true);
+        CollectionChangeRecord collectionRecord = new CollectionChangeRecord(manager);
+        collectionRecord.setAttribute("reports");
+        collectionRecord.getAddObjectList().put(employee, employee);
+        collectionRecord.getAddObjectList().put(added, added);
+        collectionRecord.getRemoveObjectList().put(other, other);
+        collectionRecord.setIsDeferred(true);
+        collectionRecord.setOrderHasBeenRepaired(true);
+        manager.addChange(collectionRecord);
+
+        // Deleted and identity only change sets, their changes are not sent.
+        ObjectChangeSet deleted = new ObjectChangeSet(Long.valueOf(200), employeeDescriptor, null, changeSet, false);
+        deleted.setShouldBeDeleted(true);
+        deleted.setWriteLockValue(Long.valueOf(3));
+        addDirectChange(deleted, "value", "not sent");
+        changeSet.getDeletedObjects().put(deleted, deleted);
+        ObjectChangeSet invalidated = newChangeSet(Long.valueOf(300), changeSet);
+        invalidated.setCacheSynchronizationType(ClassDescriptor.INVALIDATE_CHANGED_OBJECTS);
+        invalidated.setIsInvalid(true);
+        addDirectChange(invalidated, "value", "not sent");
+
+        MergeChangeSetCommand command = new MergeChangeSetCommand();
+        command.setChangeSet(changeSet);
+        command.setServiceId(new ServiceId("channel", "node1", "rmi://node1"));
+        return command;
+    }
+
+    protected byte[] write(ChangeSetCodec codec, MergeChangeSetCommand command) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        assertTrue("The command could not be encoded", codec.write(command, out));
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    protected MergeChangeSetCommand read(ChangeSetCodec codec, byte[] bytes) throws IOException, ClassNotFoundException {
+        return codec.read(new DataInputStream(new ByteArrayInputStream(bytes)), session);
+    }
+
+    /**
+     * Test a change set with every kind of record and value tag.
+     */
+    public void testRoundTrip() throws Exception {
+        MergeChangeSetCommand command = buildCommand();
+        ChangeSetCodec codec = new ChangeSetCodec(session);
+        MergeChangeSetCommand result = read(codec, write(codec, command));
+        assertCommandEquals(command, result);
+    }
+
+    /**
+     * Test that only the identity of deleted and invalidated change sets is sent.
+     */
+    public void testIdentityOnlyChangeSets() throws Exception {
+        MergeChangeSetCommand command = buildCommand();
+        ChangeSetCodec codec = new ChangeSetCodec(session);
+        MergeChangeSetCommand result = read(codec, write(codec, command));
+        ObjectChangeSet deleted = result.getChangeSet(null).getDeletedObjects().keySet().iterator().next();
+        assertTrue("Not deleted", deleted.shouldBeDeleted());
+        assertEquals(Long.valueOf(200), deleted.getId());
+        assertEquals(Long.valueOf(3), deleted.getWriteLockValue());
+        assertTrue("Changes of a deleted change set were sent", deleted.getChanges().isEmpty());
+        for (ObjectChangeSet objectChangeSet : result.getChangeSet(null).getAllChangeSets().keySet()) {
+            if (Long.valueOf(300).equals(objectChangeSet.getId())) {
+                assertTrue("Not invalid", objectChangeSet.isInvalid());
+                assertEquals(ClassDescriptor.INVALIDATE_CHANGED_OBJECTS, objectChangeSet.getCacheSynchronizationType());
+                assertTrue("Changes of an invalidated change set were sent", objectChangeSet.getChanges().isEmpty());
+                return;
+            }
+        }
+        fail("Invalidated change set not read");
+    }
+
+    /**
+     * Test that the serializer uses the codec when it can, and Java serialization
+     * for records or classes the codec does not support.
+     */
+    public void testJavaSerializationFallback() throws Exception {
+        ChangeSetSerializer serializer = new ChangeSetSerializer();
+        serializer.initialize(UnitOfWorkChangeSet.class, null, session);
+        MergeChangeSetCommand command = buildCommand();
+        byte[] bytes = (byte[])serializer.serialize(command, session);
+        assertEquals("Not written by the codec", 1, bytes[0]);
+        assertCommandEquals(command, (MergeChangeSetCommand)serializer.deserialize(bytes, session));
+
+        // A direct collection change record cannot be encoded.
+        command = buildCommand();
+        ObjectChangeSet objectChangeSet = command.getChangeSet(null).getAllChangeSets().keySet().iterator().next();
+        DirectCollectionChangeRecord record = new DirectCollectionChangeRecord(objectChangeSet);
+        record.setAttribute("reports");
+        objectChangeSet.addChange(record);
+        assertFalse("Unsupported record encoded", new ChangeSetCodec(session).write(command, new DataOutputStream(new ByteArrayOutputStream())));
+        bytes = (byte[])serializer.serialize(command, session);
+        assertEquals("Not written with Java serialization", 0, bytes[0]);
+        MergeChangeSetCommand result = (MergeChangeSetCommand)serializer.deserialize(bytes, session);
+        assertEquals(command.getChangeSet(null).getAllChangeSets().size(), result.getChangeSet(null).getAllChangeSets().size());
+        assertEquals(command.getServiceId().getId(), result.getServiceId().getId());
+
+        // A class that is not in the schema cannot be encoded.
+        command = buildCommand();
+        ObjectChangeSet unknown = newChangeSet(Long.valueOf(400), command.getChangeSet(null));
+        unknown.setClassName(ChangeSetCodecTest.class.getName());
+        bytes = (byte[])serializer.serialize(command, session);
+        assertEquals("Not written with Java serialization", 0, bytes[0]);
+    }
+
+    /**
+     * Test that the codec writes a smaller payload than Java serialization of the same command.
+     */
+    public void testPayloadSize() throws Exception {
+        ChangeSetSerializer serializer = new ChangeSetSerializer();
+        serializer.initialize(UnitOfWorkChangeSet.class, null, session);
+        byte[] bytes = (byte[])serializer.serialize(buildCommand(), session);
+        assertEquals("Not written by the codec", 1, bytes[0]);
+        byte[] javaBytes = (byte[])new JavaSerializer().serialize(buildCommand(), session);
+        assertTrue("Codec payload of " + bytes.length + " bytes not smaller than Java serialization of " + javaBytes.length + " bytes",
+                bytes.length < javaBytes.length);
+    }
+
+    /**
+     * Test that a command written for different descriptors is rejected.
+     */
+    public void testSchemaHashMismatch() throws Exception {
+        ChangeSetCodec codec = new ChangeSetCodec(session);
+        byte[] bytes = write(codec, buildCommand());
+        ChangeSetCodec otherCodec = new ChangeSetCodec(new DatabaseSessionImpl(buildProject(true)));
+        assertFalse("Schemas have the same hash", codec.getSchemaHash() == otherCodec.getSchemaHash());
+        try {
+            read(otherCodec, bytes);
+            fail("Command written for different descriptors was read");
+        } catch (StreamCorruptedException expected) {
+            // Expected.
+        }
+    }
+
+    protected static void assertCommandEquals(MergeChangeSetCommand expected, MergeChangeSetCommand actual) {
+        assertEquals(expected.getServiceId().getChannel(), actual.getServiceId().getChannel());
+        assertEquals(expected.getServiceId().getId(), actual.getServiceId().getId());
+        assertEquals(expected.getServiceId().getURL(), actual.getServiceId().getURL());
+        UnitOfWorkChangeSet expectedChangeSet = expected.getChangeSet(null);
+        UnitOfWorkChangeSet actualChangeSet = actual.getChangeSet(null);
+        assertEquals(expectedChangeSet.hasChanges(), actualChangeSet.hasChanges());
+        assertEquals(expectedChangeSet.hasForcedChanges(), actualChangeSet.hasForcedChanges());
+        assertEquals(expectedChangeSet.isChangeSetFromOutsideUOW(), actualChangeSet.isChangeSetFromOutsideUOW());
+        // The change sets are matched by id, as their order is not kept.
+        Map<ObjectChangeSet, ObjectChangeSet> matched = new IdentityHashMap<ObjectChangeSet, ObjectChangeSet>();
+        matchById(expectedChangeSet.getAllChangeSets(), actualChangeSet.getAllChangeSets(), matched);
+        matchById(expectedChangeSet.getDeletedObjects(), actualChangeSet.getDeletedObjects(), matched);
+        for (ObjectChangeSet objectChangeSet : new ArrayList<ObjectChangeSet>(matched.keySet())) {
+            assertObjectChangeSetEquals(objectChangeSet, matched.get(objectChangeSet), matched);
+        }
+    }
+
+    protected static void matchById(Map<ObjectChangeSet, ObjectChangeSet> expected, Map<ObjectChangeSet, ObjectChangeSet> actual, Map<ObjectChangeSet, ObjectChangeSet> matched) {
+        assertEquals(expected.size(), actual.size());
+        for (ObjectChangeSet expectedChangeSet : expected.keySet()) {
+            ObjectChangeSet match = null;
+            for (ObjectChangeSet actualChangeSet : actual.keySet()) {
+                if (expectedChangeSet.getId().equals(actualChangeSet.getId())) {
+                    match = actualChangeSet;
+                }
+            }
+            assertNotNull(match);
+            matched.put(expectedChangeSet, match);
+        }
+    }
+
+    /**
+     * Return the read change set for a written one, matching change sets only referenced by records.
+     */
+    protected static ObjectChangeSet match(ObjectChangeSet expected, ObjectChangeSet actual, Map<ObjectChangeSet, ObjectChangeSet> matched) {
+        if (expected == null) {
+            assertNull(actual);
+            return null;
+        }
+        ObjectChangeSet match = matched.get(expected);
+        if (match == null) {
+            matched.put(expected, actual);
+            assertObjectChangeSetEquals(expected, actual, matched);
+            return actual;
+        }
+        assertSame(match, actual);
+        return match;
+    }
+
+    protected static void assertObjectChangeSetEquals(ObjectChangeSet expected, ObjectChangeSet actual, Map<ObjectChangeSet, ObjectChangeSet> matched) {
+        assertEquals(expected.getClass(), actual.getClass());
+        assertEquals(expected.getClassName(), actual.getClassName());
+        assertValueEquals(expected.getId(), actual.getId());
+        assertValueEquals(expected.getWriteLockValue(), actual.getWriteLockValue());
+        assertValueEquals(expected.getInitialWriteLockValue(), actual.getInitialWriteLockValue());
+        assertEquals(expected.getCacheSynchronizationType(), actual.getCacheSynchronizationType());
+        assertEquals(expected.shouldBeDeleted(), actual.shouldBeDeleted());
+        assertEquals(expected.isNew(), actual.isNew());
+        assertEquals(expected.isInvalid(), actual.isInvalid());
+        assertEquals(expected.isAggregate(), actual.isAggregate());
+        assertEquals(expected.hasVersionChange(), actual.hasVersionChange());
+        assertEquals(expected.shouldModifyVersionField(), actual.shouldModifyVersionField());
+        boolean isComplete = !expected.shouldBeDeleted() && (expected.getCacheSynchronizationType() != ClassDescriptor.INVALIDATE_CHANGED_OBJECTS);
+        if (!isComplete) {
+            assertTrue("Changes of an identity only change set were read", actual.getChanges().isEmpty());
+            return;
+        }
+        assertValueEquals(expected.getOldKey(), actual.getOldKey());
+        assertValueEquals(expected.getNewKey(), actual.getNewKey());
+        if (expected.getProtectedForeignKeys() == null) {
+            assertNull(actual.getProtectedForeignKeys());
+        } else {
+            assertEquals(expected.getProtectedForeignKeys().getFields(), actual.getProtectedForeignKeys().getFields());
+            assertEquals(expected.getProtectedForeignKeys().getValues(), actual.getProtectedForeignKeys().getValues());
+        }
+        List expectedChanges = expected.getChanges();
+        List actualChanges = actual.getChanges();
+        assertEquals(expectedChanges.size(), actualChanges.size());
+        for (int index = 0; index < expectedChanges.size(); index++) {
+            ChangeRecord expectedRecord = (ChangeRecord)expectedChanges.get(index);
+            ChangeRecord actualRecord = (ChangeRecord)actualChanges.get(index);
+            assertEquals(expectedRecord.getClass(), actualRecord.getClass());
+            assertEquals(expectedRecord.getAttribute(), actualRecord.getAttribute());
+            assertSame(actual, actualRecord.getOwner());
+            if (expectedRecord instanceof DirectToFieldChangeRecord) {
+                assertValueEquals(((DirectToFieldChangeRecord)expectedRecord).getNewValue(), ((DirectToFieldChangeRecord)actualRecord).getNewValue());
+            } else if (expectedRecord instanceof ObjectReferenceChangeRecord) {
+                match((ObjectChangeSet)((ObjectReferenceChangeRecord)expectedRecord).getNewValue(),
+                        (ObjectChangeSet)((ObjectReferenceChangeRecord)actualRecord).getNewValue(), matched);
+            } else if (expectedRecord instanceof AggregateChangeRecord) {
+                match((ObjectChangeSet)((AggregateChangeRecord)expectedRecord).getChangedObject(),
+                        (ObjectChangeSet)((AggregateChangeRecord)actualRecord).getChangedObject(), matched);
+            } else if (expectedRecord instanceof CollectionChangeRecord) {
+                CollectionChangeRecord expectedCollection = (CollectionChangeRecord)expectedRecord;
+                CollectionChangeRecord actualCollection = (CollectionChangeRecord)actualRecord;
+                assertEquals(expectedCollection.isDeferred(), actualCollection.isDeferred());
+                assertEquals(expectedCollection.orderHasBeenRepaired(), actualCollection.orderHasBeenRepaired());
+                assertReferencesEqual(expectedCollection.getAddObjectList(), actualCollection.getAddObjectList(), matched);
+                assertReferencesEqual(expectedCollection.getRemoveObjectList(), actualCollection.getRemoveObjectList(), matched);
+            }
+        }
+    }
+
+    protected static void assertReferencesEqual(Map<ObjectChangeSet, ObjectChangeSet> expected, Map<ObjectChangeSet, ObjectChangeSet> actual, Map<ObjectChangeSet, ObjectChangeSet> matched) {
+        assertEquals(expected.size(), actual.size());
+        for (ObjectChangeSet expectedChangeSet : expected.keySet()) {
+            ObjectChangeSet actualChangeSet = matched.get(expectedChangeSet);
+            if (actualChangeSet == null) {
+                for (ObjectChangeSet candidate : actual.keySet()) {
+                    if (expectedChangeSet.getId().equals(candidate.getId())) {
+                        actualChangeSet = candidate;
+                    }
+                }
+            }
+            assertTrue("Reference not read: " + expectedChangeSet, actual.containsKey(actualChangeSet));
+            match(expectedChangeSet, actualChangeSet, matched);
+        }
+    }
+
+    protected static void assertValueEquals(Object expected, Object actual) {
+        if (expected instanceof byte[]) {
+            assertTrue("Bytes differ", Arrays.equals((byte[])expected, (byte[])actual));
+        } else {
+            assertEquals(expected, actual);
+            if (expected != null) {
+                assertEquals(expected.getClass(), actual.getClass());
+            }
+        }
+    }
+}
@@ -0,0 +1,233 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.testing.tests.helper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.persistence.config.ThreadPoolType;
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.internal.sessions.DatabaseSessionImpl;
+import org.eclipse.persistence.internal.sessions.coordination.CommandPropagator;
+import org.eclipse.persistence.internal.sessions.coordination.RemoteConnection;
+import org.eclipse.persistence.platform.server.ServerPlatformBase;
+import org.eclipse.persistence.sessions.DatabaseLogin;
+import org.eclipse.persistence.sessions.Project;
+import org.eclipse.persistence.sessions.coordination.Command;
+import org.eclipse.persistence.sessions.coordination.RemoteCommandManager;
+import org.eclipse.persistence.sessions.coordination.ServiceId;
+import org.eclipse.persistence.sessions.coordination.TransportManager;
+
+/**
+ * Test that cache coordination commands are delivered to every remote connection exactly once
+ * with each of the server platform's thread pool types, in the order they were sent when propagated
+ * synchronously or on a single thread, and that connections are closed outside the transport's lock.
+ */
+public class CommandPropagationTest extends junit.framework.TestCase {
+    protected static final int COMMANDS = 2000;
+    protected static final int CONNECTIONS = 4;
+
+    protected DatabaseSessionImpl session;
+    protected RemoteCommandManager rcm;
+    protected List<DeliveryConnection> connections;
+    protected CountDownLatch delivered;
+
+    public CommandPropagationTest(String name) {
+        super(name);
+    }
+
+    @Override
+    public void tearDown() {
+        if (session != null) {
+            session.getServerPlatform().shutdown();
+            session = null;
+        }
+    }
+
+    protected void setUp(String threadPoolType, int threadPoolSize) {
+        session = new DatabaseSessionImpl(new Project(new DatabaseLogin()));
+        ServerPlatformBase platform = (ServerPlatformBase)session.getServerPlatform();
+        platform.setThreadPoolType(threadPoolType);
+        platform.setThreadPoolSize(threadPoolSize);
+        rcm = new RemoteCommandManager(session);
+        rcm.setTransportManager(new StubTransportManager());
+        connections = new ArrayList<DeliveryConnection>();
+        for (int index = 0; index < CONNECTIONS; index++) {
+            DeliveryConnection connection = new DeliveryConnection();
+            connection.setServiceId(new ServiceId("channel", "node" + index, "url" + index));
+            rcm.getTransportManager().getConnectionsToExternalServices().put(connection.getServiceId().getId(), connection);
+            connections.add(connection);
+        }
+        delivered = new CountDownLatch(COMMANDS * CONNECTIONS);
+    }
+
+    /**
+     * Propagate the commands, and wait until every connection received all of them.
+     */
+    protected void propagate(boolean isAsynchronous) throws InterruptedException {
+        for (int index = 0; index < COMMANDS; index++) {
+            CommandPropagator propagator = new CommandPropagator(rcm, new SequenceCommand(index), null);
+            if (isAsynchronous) {
+                propagator.asynchronousPropagateCommand();
+            } else {
+                propagator.synchronousPropagateCommand();
+            }
+        }
+        assertTrue("Commands not delivered, " + delivered.getCount() + " remaining", delivered.await(60, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Assert that each connection received every command once, and in the order sent if required.
+     */
+    protected void assertDelivered(boolean isOrdered) {
+        for (DeliveryConnection connection : connections) {
+            List<Integer> received;
+            synchronized (connection.received) {
+                received = new ArrayList<Integer>(connection.received);
+            }
+            assertEquals(COMMANDS, received.size());
+            if (!isOrdered) {
+                Collections.sort(received);
+            }
+            for (int index = 0; index < COMMANDS; index++) {
+                assertEquals("Command delivered out of order, or not once, to " + connection.getServiceId(), Integer.valueOf(index), received.get(index));
+            }
+        }
+    }
+
+    /**
+     * Test that asynchronous propagation delivers every command to every connection exactly once, with each pool type.
+     */
+    public void testAsynchronousDelivery() throws InterruptedException {
+        for (String threadPoolType : new String[] {ThreadPoolType.Fixed, ThreadPoolType.WorkStealing, ThreadPoolType.Virtual}) {
+            setUp(threadPoolType, 8);
+            propagate(true);
+            assertDelivered(false);
+            tearDown();
+        }
+    }
+
+    /**
+     * Test that asynchronous propagation on a single thread delivers the commands in the order they were sent.
+     */
+    public void testSingleThreadDeliveryInOrder() throws InterruptedException {
+        setUp(ThreadPoolType.Fixed, 1);
+        propagate(true);
+        assertDelivered(true);
+    }
+
+    /**
+     * Test that synchronous propagation delivers the commands in the order they were sent, whatever the pool type.
+     */
+    public void testSynchronousDeliveryInOrder() throws InterruptedException {
+        for (String threadPoolType : new String[] {ThreadPoolType.Fixed, ThreadPoolType.WorkStealing, ThreadPoolType.Virtual}) {
+            setUp(threadPoolType, 8);
+            propagate(false);
+            assertDelivered(true);
+            tearDown();
+        }
+    }
+
+    /**
+     * Test that removed connections are closed once the transport's lock is released, and are no longer sent commands.
+     */
+    public void testConnectionsClosedOutsideLock() throws InterruptedException {
+        setUp(ThreadPoolType.Fixed, 8);
+        TransportManager transportManager = rcm.getTransportManager();
+        DeliveryConnection removed = connections.remove(0);
+        transportManager.removeConnectionToExternalService(removed);
+        assertTrue(removed.isClosed);
+        assertFalse("Connection closed holding the transport's lock", removed.wasClosedInLock);
+
+        delivered = new CountDownLatch(COMMANDS * connections.size());
+        propagate(true);
+        assertDelivered(false);
+        assertTrue(removed.received.isEmpty());
+
+        transportManager.removeAllConnectionsToExternalServices();
+        assertTrue(transportManager.getConnectionsToExternalServices().isEmpty());
+        for (DeliveryConnection connection : connections) {
+            assertTrue(connection.isClosed);
+            assertFalse("Connection closed holding the transport's lock", connection.wasClosedInLock);
+        }
+    }
+
+    /**
+     * Command carrying its position in the sequence of commands sent.
+     */
+    static class SequenceCommand extends Command {
+        int index;
+
+        SequenceCommand(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void executeWithSession(AbstractSession session) {
+        }
+    }
+
+    /**
+     * Connection recording the commands it is sent, and how it was closed.
+     */
+    class DeliveryConnection extends RemoteConnection {
+        final List<Integer> received = new ArrayList<Integer>();
+        volatile boolean isClosed;
+        volatile boolean wasClosedInLock;
+
+        @Override
+        public Object executeCommand(Command command) {
+            synchronized (this.received) {
+                this.received.add(Integer.valueOf(((SequenceCommand)command).index));
+            }
+            delivered.countDown();
+            return null;
+        }
+
+        @Override
+        public Object executeCommand(byte[] command) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            this.wasClosedInLock = Thread.holdsLock(rcm.getTransportManager());
+            this.isClosed = true;
+        }
+    }
+
+    /**
+     * Transport with no local connection or discovery, the remote connections are added directly.
+     */
+    static class StubTransportManager extends TransportManager {
+        StubTransportManager() {
+            initialize();
+        }
+
+        @Override
+        public RemoteConnection createConnection(ServiceId serviceId) {
+            return null;
+        }
+
+        @Override
+        public void createLocalConnection() {
+        }
+
+        @Override
+        public void removeLocalConnection() {
+        }
+    }
+}
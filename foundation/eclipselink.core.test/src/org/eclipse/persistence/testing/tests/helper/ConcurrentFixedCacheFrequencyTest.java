@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.testing.tests.helper;
+
+import org.eclipse.persistence.internal.helper.ConcurrentFixedCache;
+import org.eclipse.persistence.testing.framework.*;
+
+/**
+ * Test that a full ConcurrentFixedCache keeps frequently used entries when many one-off entries are put.
+ */
+public class ConcurrentFixedCacheFrequencyTest extends AutoVerifyTestCase {
+    protected static final int SIZE = 20;
+    protected ConcurrentFixedCache cache;
+    protected int hotHits;
+
+    public ConcurrentFixedCacheFrequencyTest() {
+        setDescription("Test ConcurrentFixedCache keeps frequently used entries and stays within its max size.");
+    }
+
+    public static void main(String[] args) {
+        ConcurrentFixedCacheFrequencyTest test = new ConcurrentFixedCacheFrequencyTest();
+        test.setup();
+        test.test();
+        test.verify();
+        test.reset();
+    }
+
+    public void setup() {
+        cache = new ConcurrentFixedCache(SIZE);
+        hotHits = 0;
+    }
+
+    public void test() {
+        // Get and put on miss, as the JPQL parse cache is used.
+        for (int iteration = 0; iteration < 100; iteration++) {
+            for (int hot = 0; hot < SIZE / 2; hot++) {
+                String key = "hot" + hot;
+                if (cache.get(key) == null) {
+                    cache.put(key, key);
+                } else if (iteration > 10) {
+                    hotHits++;
+                }
+            }
+            for (int cold = 0; cold < SIZE; cold++) {
+                String key = "cold" + iteration + "_" + cold;
+                if (cache.get(key) == null) {
+                    cache.put(key, key);
+                }
+            }
+        }
+    }
+
+    public void verify() {
+        if (cache.getCache().size() > SIZE) {
+            throw new TestErrorException("Cache exceeded its max size: " + cache);
+        }
+        // Every hot key is used in each of the last 89 iterations, allow for a few collisions in the frequency sketch.
+        int expected = 89 * (SIZE / 2);
+        if (hotHits < (expected * 9 / 10)) {
+            throw new TestErrorException("Frequently used entries were evicted, hits: " + hotHits + " of " + expected + " " + cache);
+        }
+        if ((cache.getHits() == 0) || (cache.getMisses() == 0) || (cache.getEvictions() == 0)) {
+            throw new TestErrorException("Statistics not recorded: " + cache);
+        }
+        if ((cache.getHitRate() <= 0) || (cache.getHitRate() >= 1)) {
+            throw new TestErrorException("Invalid hit rate: " + cache.getHitRate());
+        }
+    }
+
+    public void reset() {
+        cache = null;
+    }
+}
@@ -0,0 +1,305 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.testing.tests.helper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.queries.ReadAllQuery;
+import org.eclipse.persistence.sessions.DatabaseLogin;
+import org.eclipse.persistence.sessions.Project;
+import org.eclipse.persistence.sessions.SessionProfiler;
+import org.eclipse.persistence.tools.profiler.ConcurrentPerformanceMonitor;
+import org.eclipse.persistence.tools.profiler.OperationStatistics;
+import org.eclipse.persistence.tools.profiler.PerformanceMonitor;
+
+/**
+ * Test the counts, times, percentiles and values reported by ConcurrentPerformanceMonitor,
+ * and that the number of operations it registers is capped.
+ */
+public class ConcurrentPerformanceMonitorTest extends junit.framework.TestCase {
+    protected static final int THREADS = 8;
+    protected static final int OCCURRENCES = 10000;
+
+    public ConcurrentPerformanceMonitorTest(String name) {
+        super(name);
+    }
+
+    protected static ReadAllQuery buildQuery() {
+        ReadAllQuery query = new ReadAllQuery(ConcurrentPerformanceMonitorTest.class);
+        query.setName("findAll");
+        return query;
+    }
+
+    /**
+     * Run the task in each thread, all started at once.
+     */
+    protected static void runConcurrently(final Runnable task) throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int index = 0; index < THREADS; index++) {
+            threads.add(new Thread() {
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException exception) {
+                        return;
+                    }
+                    task.run();
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    /**
+     * Test that the session wide and query counters count every occurrence from concurrent threads,
+     * and nothing below the profile weight.
+     */
+    public void testCounters() throws InterruptedException {
+        final ConcurrentPerformanceMonitor monitor = new ConcurrentPerformanceMonitor();
+        final ReadAllQuery query = buildQuery();
+        runConcurrently(new Runnable() {
+            public void run() {
+                for (int index = 0; index < OCCURRENCES; index++) {
+                    monitor.occurred(SessionProfiler.CacheHits, (AbstractSession)null);
+                    if ((index % 10) == 0) {
+                        monitor.occurred(SessionProfiler.CacheMisses, query, null);
+                    }
+                }
+            }
+        });
+        assertEquals(THREADS * OCCURRENCES, monitor.getStatistics(SessionProfiler.CacheHits).getCount());
+        assertEquals(THREADS * OCCURRENCES / 10, monitor.getStatistics(SessionProfiler.CacheMisses).getCount());
+        OperationStatistics queryMisses = monitor.getStatistics("Counter:" + query.getMonitorName() + ":CacheMisses");
+        assertEquals(THREADS * OCCURRENCES / 10, queryMisses.getCount());
+        assertFalse(queryMisses.isTimer());
+        assertNull(monitor.getStatistics("Counter:" + query.getMonitorName() + ":CacheHits"));
+        // The operations that did not occur are not reported.
+        assertNull(monitor.getStatistics(SessionProfiler.Caching));
+        assertNull(monitor.getStatistics(ConcurrentPerformanceMonitor.REJECTED_OPERATIONS));
+
+        monitor.setProfileWeight(SessionProfiler.NONE);
+        monitor.occurred(SessionProfiler.CacheHits, (AbstractSession)null);
+        monitor.occurred(SessionProfiler.CacheMisses, query, null);
+        assertEquals(THREADS * OCCURRENCES, monitor.getStatistics(SessionProfiler.CacheHits).getCount());
+        assertEquals(THREADS * OCCURRENCES / 10, monitor.getStatistics(SessionProfiler.CacheMisses).getCount());
+    }
+
+    /**
+     * Test that the timings of a session wide and a query operation are counted with their total and maximum times,
+     * and that only the session wide timer has percentiles.
+     */
+    public void testTimers() throws InterruptedException {
+        ConcurrentPerformanceMonitor monitor = new ConcurrentPerformanceMonitor();
+        ReadAllQuery query = buildQuery();
+        long sleep = 2000000;
+        for (int index = 0; index < 10; index++) {
+            monitor.startOperationProfile(SessionProfiler.SqlPrepare, query, SessionProfiler.ALL);
+            Thread.sleep(sleep / 1000000);
+            monitor.endOperationProfile(SessionProfiler.SqlPrepare, query, SessionProfiler.ALL);
+        }
+        // An end without a start is not timed.
+        monitor.endOperationProfile(SessionProfiler.StatementExecute);
+        assertNull(monitor.getStatistics(SessionProfiler.StatementExecute));
+
+        OperationStatistics statistics = monitor.getStatistics(SessionProfiler.SqlPrepare);
+        assertTrue(statistics.isTimer());
+        assertEquals(10, statistics.getCount());
+        assertTrue(statistics.toString(), statistics.getTotalTime() >= 10 * sleep);
+        assertTrue(statistics.toString(), statistics.getMeanTime() >= sleep);
+        assertTrue(statistics.toString(), statistics.getP50() >= sleep);
+        assertTrue(statistics.toString(), statistics.getP50() <= statistics.getP99());
+        assertTrue(statistics.toString(), statistics.getP99() <= statistics.getP999());
+        assertTrue(statistics.toString(), statistics.getP999() <= statistics.getMaxTime());
+
+        OperationStatistics queryStatistics = monitor.getStatistics("Timer:" + query.getMonitorName() + ":SqlPrepare");
+        assertTrue(queryStatistics.isTimer());
+        assertEquals(10, queryStatistics.getCount());
+        assertTrue(queryStatistics.toString(), queryStatistics.getTotalTime() >= 10 * sleep);
+        assertTrue(queryStatistics.toString(), queryStatistics.getMaxTime() >= sleep);
+        assertEquals(-1, queryStatistics.getP50());
+
+        monitor.setProfileWeight(SessionProfiler.NORMAL);
+        monitor.startOperationProfile(SessionProfiler.SqlPrepare);
+        monitor.endOperationProfile(SessionProfiler.SqlPrepare);
+        assertEquals(10, monitor.getStatistics(SessionProfiler.SqlPrepare).getCount());
+    }
+
+    /**
+     * Test the percentiles of known times, exact under 16 nanoseconds, then within 1/16th, and never over the maximum.
+     */
+    public void testHistogram() throws InterruptedException {
+        long[] times = new long[100];
+        for (int index = 0; index < times.length; index++) {
+            times[index] = index + 1;
+        }
+        OperationStatistics statistics = new Monitor.TimedOperation().recordAll(times);
+        assertEquals(100, statistics.getCount());
+        assertEquals(5050, statistics.getTotalTime());
+        assertEquals(100, statistics.getMaxTime());
+        // 50 is counted with 51, 99 with 96 to 99, and 100 with 100 to 103.
+        assertEquals(51, statistics.getP50());
+        assertEquals(99, statistics.getP99());
+        assertEquals(100, statistics.getP999());
+
+        statistics = new Monitor.TimedOperation().recordAll(1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+        assertEquals(5, statistics.getP50());
+        assertEquals(10, statistics.getP99());
+
+        times = new long[1000];
+        for (int index = 0; index < times.length; index++) {
+            times[index] = (index < 998) ? 1000 : 1000000000;
+        }
+        statistics = new Monitor.TimedOperation().recordAll(times);
+        // 1000 is counted with 992 to 1023.
+        assertEquals(1023, statistics.getP50());
+        assertEquals(1023, statistics.getP99());
+        assertEquals(1000000000, statistics.getP999());
+        assertEquals(1000000000, statistics.getMaxTime());
+
+        // The times recorded concurrently are all counted.
+        final Monitor.TimedOperation operation = new Monitor.TimedOperation();
+        runConcurrently(new Runnable() {
+            public void run() {
+                for (int index = 0; index < OCCURRENCES; index++) {
+                    operation.recordAll(1000, 100000);
+                }
+            }
+        });
+        statistics = operation.recordAll();
+        assertEquals(2 * THREADS * OCCURRENCES, statistics.getCount());
+        assertEquals(101000L * THREADS * OCCURRENCES, statistics.getTotalTime());
+        assertEquals(1023, statistics.getP50());
+        assertEquals(100000, statistics.getP99());
+    }
+
+    /**
+     * Test that numeric values are kept as a long, other values as is, and that
+     * the session gives other profilers the same boxed values as before.
+     */
+    public void testUpdate() {
+        ConcurrentPerformanceMonitor monitor = new ConcurrentPerformanceMonitor();
+        monitor.update(SessionProfiler.BatchSize, 10L);
+        assertEquals(Long.valueOf(10), monitor.getStatistics(SessionProfiler.BatchSize).getValue());
+        monitor.update(SessionProfiler.BatchSize, Integer.valueOf(20));
+        assertEquals(Long.valueOf(20), monitor.getStatistics(SessionProfiler.BatchSize).getValue());
+        monitor.update(SessionProfiler.RcmStatus, "Started");
+        assertEquals("Started", monitor.getStatistics(SessionProfiler.RcmStatus).getValue());
+        monitor.update(SessionProfiler.RcmStatus, 1L);
+        assertEquals(Long.valueOf(1), monitor.getStatistics(SessionProfiler.RcmStatus).getValue());
+        monitor.update(SessionProfiler.RcmStatus, "Stopped");
+        assertEquals("Stopped", monitor.getStatistics(SessionProfiler.RcmStatus).getValue());
+        assertEquals(0, monitor.getStatistics(SessionProfiler.RcmStatus).getCount());
+
+        AbstractSession session = (AbstractSession)new Project(new DatabaseLogin()).createDatabaseSession();
+        session.setProfiler(monitor);
+        session.updateProfile(SessionProfiler.CacheSize, 5);
+        assertEquals(Long.valueOf(5), monitor.getStatistics(SessionProfiler.CacheSize).getValue());
+
+        PerformanceMonitor performanceMonitor = new PerformanceMonitor();
+        session.setProfiler(performanceMonitor);
+        session.updateProfile(SessionProfiler.CacheSize, 5);
+        assertEquals(Integer.valueOf(5), performanceMonitor.getOperationTimings().get(SessionProfiler.CacheSize));
+        session.updateProfile(SessionProfiler.CacheSize, Long.MAX_VALUE);
+        assertEquals(Long.valueOf(Long.MAX_VALUE), performanceMonitor.getOperationTimings().get(SessionProfiler.CacheSize));
+    }
+
+    /**
+     * Test that no more operations than the maximum are registered, that the operations already registered
+     * are still profiled, and that the calls of the others are counted as rejected.
+     */
+    public void testMaxOperations() throws InterruptedException {
+        Monitor monitor = new Monitor();
+        assertEquals(ConcurrentPerformanceMonitor.DEFAULT_MAX_OPERATIONS, monitor.getMaxOperations());
+        monitor.setMaxOperations(monitor.getRegisteredOperations() + 2);
+        monitor.occurred("Counter:A", (AbstractSession)null);
+        monitor.occurred("Counter:B", (AbstractSession)null);
+        for (int index = 0; index < 3; index++) {
+            monitor.occurred("Counter:C", (AbstractSession)null);
+        }
+        monitor.startOperationProfile("Timer:D");
+        monitor.endOperationProfile("Timer:D");
+        monitor.update("Info:E", 1);
+        // The query's timer and counter cannot be registered either.
+        monitor.occurred(SessionProfiler.CacheHits, buildQuery(), null);
+        monitor.occurred("Counter:A", (AbstractSession)null);
+
+        Map<String, OperationStatistics> statistics = monitor.getStatistics();
+        assertEquals(2, statistics.get("Counter:A").getCount());
+        assertEquals(1, statistics.get("Counter:B").getCount());
+        assertEquals(1, statistics.get(SessionProfiler.CacheHits).getCount());
+        assertFalse(statistics.containsKey("Counter:C"));
+        assertFalse(statistics.containsKey("Timer:D"));
+        assertFalse(statistics.containsKey("Info:E"));
+        assertEquals(7, statistics.get(ConcurrentPerformanceMonitor.REJECTED_OPERATIONS).getCount());
+        assertEquals(monitor.getMaxOperations(), monitor.getRegisteredOperations());
+
+        // Operations with distinct names registered concurrently stop at the maximum.
+        final Monitor concurrentMonitor = new Monitor();
+        final int registered = concurrentMonitor.getRegisteredOperations();
+        concurrentMonitor.setMaxOperations(registered + 100);
+        runConcurrently(new Runnable() {
+            public void run() {
+                String prefix = "Counter:" + Thread.currentThread().getName() + ":";
+                for (int index = 0; index < 1000; index++) {
+                    concurrentMonitor.occurred(prefix + index, (AbstractSession)null);
+                }
+            }
+        });
+        int occurred = 0;
+        for (OperationStatistics operationStatistics : concurrentMonitor.getStatistics().values()) {
+            if (operationStatistics.getName().startsWith("Counter:Thread-")) {
+                assertEquals(1, operationStatistics.getCount());
+                occurred++;
+            }
+        }
+        assertEquals(100, occurred);
+        assertEquals(registered + 100, concurrentMonitor.getRegisteredOperations());
+        assertEquals(THREADS * 1000 - 100, concurrentMonitor.getStatistics(ConcurrentPerformanceMonitor.REJECTED_OPERATIONS).getCount());
+    }
+
+    /**
+     * Gives access to the number of registered operations, and to a timer with percentiles.
+     */
+    static class Monitor extends ConcurrentPerformanceMonitor {
+        int getRegisteredOperations() {
+            return this.nextOperationId.get();
+        }
+
+        static class TimedOperation extends Operation {
+            TimedOperation() {
+                super(0, TIMER + "Test", true);
+            }
+
+            /**
+             * Record the times, and return the statistics of all the times recorded.
+             */
+            OperationStatistics recordAll(long... times) {
+                for (long time : times) {
+                    record(time);
+                }
+                return buildStatistics();
+            }
+        }
+    }
+}
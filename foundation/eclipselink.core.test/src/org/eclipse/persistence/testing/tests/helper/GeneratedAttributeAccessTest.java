@@ -0,0 +1,205 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.testing.tests.helper;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import org.eclipse.persistence.internal.descriptors.AttributeAccessGenerator;
+import org.eclipse.persistence.internal.descriptors.GeneratedAttributeAccess;
+import org.eclipse.persistence.internal.descriptors.InstanceVariableAttributeAccessor;
+import org.eclipse.persistence.internal.descriptors.MethodAttributeAccessor;
+import org.eclipse.persistence.testing.framework.*;
+
+/**
+ * Test get and set through the accesses generated for instance variable and method accessors,
+ * for private, public and primitive attributes, and that concurrent use generates a single access.
+ */
+public class GeneratedAttributeAccessTest extends AutoVerifyTestCase {
+    protected static final int THREADS = 8;
+
+    protected Map<GeneratedAttributeAccess, Object> concurrentAccesses;
+
+    public GeneratedAttributeAccessTest() {
+        setDescription("Test get and set through generated attribute accesses.");
+    }
+
+    public static void main(String[] args) {
+        GeneratedAttributeAccessTest test = new GeneratedAttributeAccessTest();
+        test.setup();
+        test.test();
+        test.verify();
+        test.reset();
+    }
+
+    public void setup() {
+        concurrentAccesses = Collections.synchronizedMap(new IdentityHashMap<GeneratedAttributeAccess, Object>());
+    }
+
+    public void test() {
+        Holder holder = new Holder();
+        try {
+            GeneratedAttributeAccess name = AttributeAccessGenerator.generate(Holder.class.getDeclaredField("name"));
+            GeneratedAttributeAccess count = AttributeAccessGenerator.generate(Holder.class.getDeclaredField("count"));
+            GeneratedAttributeAccess flag = AttributeAccessGenerator.generate(Holder.class.getDeclaredField("flag"));
+            GeneratedAttributeAccess total = AttributeAccessGenerator.generate(
+                    Holder.class.getDeclaredMethod("getTotal"), Holder.class.getDeclaredMethod("setTotal", long.class));
+            if ((name == null) || (count == null) || (flag == null) || (total == null)) {
+                throw new TestErrorException("Access not generated: " + name + " " + count + " " + flag + " " + total);
+            }
+
+            // Private object field.
+            name.setValue(holder, "first");
+            assertEquals("first", holder.name);
+            holder.name = "second";
+            assertEquals("second", name.getValue(holder));
+            assertTrue("null not settable on an object field", name.canSet(holder, null));
+            assertFalse("Integer settable on a String field", name.canSet(holder, Integer.valueOf(1)));
+
+            // Private primitive field.
+            assertTrue("Integer not settable on an int field", count.canSet(holder, Integer.valueOf(5)));
+            assertFalse("null settable on an int field", count.canSet(holder, null));
+            assertFalse("Long settable on an int field", count.canSet(holder, Long.valueOf(5)));
+            count.setValue(holder, Integer.valueOf(5));
+            assertEquals(5, holder.count);
+            holder.count = 7;
+            assertEquals(Integer.valueOf(7), count.getValue(holder));
+
+            // Public primitive field.
+            flag.setValue(holder, Boolean.TRUE);
+            assertTrue("flag not set", holder.flag);
+            assertEquals(Boolean.TRUE, flag.getValue(holder));
+
+            // Private primitive get and set methods.
+            total.setValue(holder, Long.valueOf(42L));
+            assertEquals(42L, holder.totalValue);
+            assertEquals(Long.valueOf(42L), total.getValue(holder));
+            assertFalse("Holder access usable on another class", total.canGet("x"));
+
+            // The classes of one domain class share their class loader.
+            if (name.getClass().getClassLoader() != total.getClass().getClassLoader()) {
+                throw new TestErrorException("Accesses of one class defined by different class loaders.");
+            }
+            GeneratedAttributeAccess other = AttributeAccessGenerator.generate(Other.class.getDeclaredField("value"));
+            if (other.getClass().getClassLoader() == name.getClass().getClassLoader()) {
+                throw new TestErrorException("Accesses of different classes defined by the same class loader.");
+            }
+        } catch (TestErrorException exception) {
+            throw exception;
+        } catch (Error error) {
+            throw error;
+        } catch (Throwable exception) {
+            throw new TestErrorException("Generated access failed: " + exception, exception);
+        }
+
+        // Use the accessors themselves past the threshold, from several threads.
+        final ExposedInstanceVariableAccessor fieldAccessor = new ExposedInstanceVariableAccessor();
+        fieldAccessor.setAttributeName("count");
+        fieldAccessor.initializeAttributes(Holder.class);
+        final ExposedMethodAccessor methodAccessor = new ExposedMethodAccessor();
+        methodAccessor.setAttributeName("total");
+        methodAccessor.setGetMethodName("getTotal");
+        methodAccessor.setSetMethodName("setTotal");
+        methodAccessor.initializeAttributes(Holder.class);
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final Throwable[] failure = new Throwable[1];
+        Thread[] threads = new Thread[THREADS];
+        for (int index = 0; index < THREADS; index++) {
+            final int value = index;
+            threads[index] = new Thread() {
+                public void run() {
+                    try {
+                        Holder object = new Holder();
+                        start.await();
+                        for (int use = 0; use < (AttributeAccessGenerator.getThreshold() + 100); use++) {
+                            fieldAccessor.setAttributeValueInObject(object, Integer.valueOf(value + use));
+                            if (((Integer) fieldAccessor.getAttributeValueFromObject(object)).intValue() != (value + use)) {
+                                throw new TestErrorException("Wrong field value.");
+                            }
+                            methodAccessor.setAttributeValueInObject(object, Long.valueOf(value + use));
+                            if (((Long) methodAccessor.getAttributeValueFromObject(object)).longValue() != (value + use)) {
+                                throw new TestErrorException("Wrong method value.");
+                            }
+                        }
+                        // Setting null to a primitive still goes through reflection, which converts it.
+                        fieldAccessor.setAttributeValueInObject(object, null);
+                        concurrentAccesses.put(fieldAccessor.getAccess(), fieldAccessor);
+                        concurrentAccesses.put(methodAccessor.getAccess(), methodAccessor);
+                    } catch (Throwable exception) {
+                        failure[0] = exception;
+                    }
+                }
+            };
+            threads[index].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException exception) {
+                throw new TestErrorException("Interrupted", exception);
+            }
+        }
+        if (failure[0] != null) {
+            throw new TestErrorException("Accessor failed: " + failure[0], failure[0]);
+        }
+    }
+
+    public void verify() {
+        if (AttributeAccessGenerator.getThreshold() < 0) {
+            return;
+        }
+        // One access for each of the two accessors, whichever thread passed the threshold first.
+        if (concurrentAccesses.size() != 2 || concurrentAccesses.containsKey(null)) {
+            throw new TestErrorException("Expected one generated access per accessor: " + concurrentAccesses.keySet());
+        }
+    }
+
+    public void reset() {
+        concurrentAccesses = null;
+    }
+
+    public static class Holder {
+        private String name;
+        private int count;
+        public boolean flag;
+        private long totalValue;
+
+        private long getTotal() {
+            return totalValue;
+        }
+
+        private void setTotal(long totalValue) {
+            this.totalValue = totalValue;
+        }
+    }
+
+    public static class Other {
+        private Object value;
+    }
+
+    static class ExposedInstanceVariableAccessor extends InstanceVariableAttributeAccessor {
+        GeneratedAttributeAccess getAccess() {
+            return this.generatedAccess;
+        }
+    }
+
+    static class ExposedMethodAccessor extends MethodAttributeAccessor {
+        GeneratedAttributeAccess getAccess() {
+            return this.generatedAccess;
+        }
+    }
+}
@@ -31,6 +31,18 @@ public static TestSuite getDataTypeComparisonTestSuite() {
         suite.setDescription("This suite tests common helper methods and methods which compare data types");
 
         suite.addTestSuite(org.eclipse.persistence.testing.tests.helper.JavaUtilTest.class);
+        suite.addTestSuite(ChangeSetCodecTest.class);
+        suite.addTestSuite(PartitionedCallExecutorTest.class);
+        suite.addTestSuite(AsynchronousSessionLogTest.class);
+        suite.addTestSuite(CacheKeyIndexQueryTest.class);
+        suite.addTestSuite(QueryResultsCacheTest.class);
+        suite.addTestSuite(LockFreeReadLocksTest.class);
+        suite.addTestSuite(ParallelChangeCalculationTest.class);
+        suite.addTestSuite(ParallelCacheMergeTest.class);
+        suite.addTestSuite(PreallocatedSequenceQueueTest.class);
+        suite.addTestSuite(ConcurrentPerformanceMonitorTest.class);
+        suite.addTestSuite(CommandPropagationTest.class);
+        suite.addTestSuite(XPathNodeDispatchTableTest.class);
 
         suite.addTest(new CompareArrayContentTest());
         suite.addTest(new CompareArrayLengthTest());
@@ -41,6 +53,8 @@ public static TestSuite getDataTypeComparisonTestSuite() {
         suite.addTest(new CheckCompareByteArraysWithDifferentElementsTest());
         suite.addTest(new CheckCompareBigDecimalsTest());
         suite.addTest(new CheckClassIsSubclassWithNullSuperclassTest());
+        suite.addTest(new ConcurrentFixedCacheFrequencyTest());
+        suite.addTest(new GeneratedAttributeAccessTest());
 
         suite.addTest(new BasicTest());
         suite.addTest(new TimeFromDateTest());
@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.testing.tests.helper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.persistence.descriptors.RelationalDescriptor;
+import org.eclipse.persistence.internal.helper.ConcurrencyManager;
+import org.eclipse.persistence.internal.identitymaps.CacheKey;
+import org.eclipse.persistence.internal.sessions.DatabaseSessionImpl;
+import org.eclipse.persistence.sessions.DatabaseLogin;
+import org.eclipse.persistence.sessions.Project;
+
+/**
+ * Test that the lock free read locks setting is defined by the project of each session,
+ * as for two persistence units with different settings, and that the locking mode of a
+ * cache key does not change once it is created.
+ */
+public class LockFreeReadLocksTest extends junit.framework.TestCase {
+    protected static final int READERS = 6;
+    protected static final int WRITERS = 2;
+    protected static final int ITERATIONS = 20000;
+
+    protected boolean originalShouldUseLockFreeReadLocks;
+
+    public LockFreeReadLocksTest(String name) {
+        super(name);
+    }
+
+    @Override
+    public void setUp() {
+        originalShouldUseLockFreeReadLocks = ConcurrencyManager.shouldUseLockFreeReadLocks();
+    }
+
+    @Override
+    public void tearDown() {
+        ConcurrencyManager.setShouldUseLockFreeReadLocks(originalShouldUseLockFreeReadLocks);
+    }
+
+    protected static DatabaseSessionImpl buildSession(boolean shouldUseLockFreeReadLocks) {
+        RelationalDescriptor descriptor = new RelationalDescriptor();
+        descriptor.setJavaClass(Item.class);
+        descriptor.setTableName("ITEM");
+        descriptor.setPrimaryKeyFieldName("ID");
+        descriptor.addDirectMapping("id", "ID");
+        descriptor.addDirectMapping("value", "VALUE");
+        Project project = new Project(new DatabaseLogin());
+        project.addDescriptor(descriptor);
+        project.setShouldUseLockFreeReadLocks(shouldUseLockFreeReadLocks);
+        DatabaseSessionImpl session = (DatabaseSessionImpl)project.createDatabaseSession();
+        session.initializeDescriptors();
+        return session;
+    }
+
+    protected static CacheKey getCacheKey(DatabaseSessionImpl session, long id) {
+        session.getIdentityMapAccessor().putInIdentityMap(new Item(id));
+        return session.getIdentityMapAccessorInstance().getCacheKeyForObjectForLock(Long.valueOf(id), Item.class, session.getDescriptor(Item.class));
+    }
+
+    /**
+     * Test that the cache keys of each session use the setting of its project, whatever the default.
+     */
+    public void testSettingPerProject() {
+        ConcurrencyManager.setShouldUseLockFreeReadLocks(false);
+        DatabaseSessionImpl lockFreeSession = buildSession(true);
+        ConcurrencyManager.setShouldUseLockFreeReadLocks(true);
+        DatabaseSessionImpl monitorSession = buildSession(false);
+        assertTrue(getCacheKey(lockFreeSession, 1).usesLockFreeReadLocks());
+        assertFalse(getCacheKey(monitorSession, 1).usesLockFreeReadLocks());
+
+        // Changing the default does not change existing cache keys, or the maps of existing sessions.
+        ConcurrencyManager.setShouldUseLockFreeReadLocks(false);
+        assertTrue(getCacheKey(lockFreeSession, 1).usesLockFreeReadLocks());
+        assertTrue(getCacheKey(lockFreeSession, 2).usesLockFreeReadLocks());
+        ConcurrencyManager.setShouldUseLockFreeReadLocks(true);
+        assertFalse(getCacheKey(monitorSession, 2).usesLockFreeReadLocks());
+        assertTrue(new Project().shouldUseLockFreeReadLocks());
+    }
+
+    /**
+     * Test that readers and writers of a session's cache keys still exclude each other while
+     * sessions with the other setting are created, and the default changed, concurrently.
+     */
+    public void testConcurrentSessionsWithDifferentSettings() throws InterruptedException {
+        final DatabaseSessionImpl lockFreeSession = buildSession(true);
+        final DatabaseSessionImpl monitorSession = buildSession(false);
+        final CacheKey[] cacheKeys = new CacheKey[] {getCacheKey(lockFreeSession, 1), getCacheKey(monitorSession, 1)};
+        final int[] values = new int[cacheKeys.length];
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        final AtomicBoolean done = new AtomicBoolean();
+        Thread deployer = new Thread() {
+            public void run() {
+                boolean setting = false;
+                while (!done.get()) {
+                    ConcurrencyManager.setShouldUseLockFreeReadLocks(setting);
+                    getCacheKey(buildSession(!setting), 1);
+                    setting = !setting;
+                }
+            }
+        };
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int index = 0; index < READERS + WRITERS; index++) {
+            final boolean isWriter = index < WRITERS;
+            threads.add(new Thread() {
+                public void run() {
+                    try {
+                        for (int count = 0; count < ITERATIONS; count++) {
+                            int keyIndex = count % cacheKeys.length;
+                            CacheKey cacheKey = cacheKeys[keyIndex];
+                            if (isWriter) {
+                                cacheKey.acquire();
+                                try {
+                                    assertEquals("Write lock acquired with active readers", 0, cacheKey.getNumberOfReaders());
+                                    values[keyIndex]++;
+                                    Thread.yield();
+                                    values[keyIndex]++;
+                                } finally {
+                                    cacheKey.release();
+                                }
+                            } else {
+                                cacheKey.acquireReadLock();
+                                try {
+                                    synchronized (values) {
+                                        assertEquals("Read lock acquired while a writer was active", 0, values[keyIndex] % 2);
+                                    }
+                                } finally {
+                                    cacheKey.releaseReadLock();
+                                }
+                            }
+                        }
+                    } catch (Throwable error) {
+                        errors.add(error);
+                    }
+                }
+            });
+        }
+        deployer.start();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        done.set(true);
+        deployer.join();
+        if (!errors.isEmpty()) {
+            throw new RuntimeException(errors.get(0));
+        }
+        assertTrue(cacheKeys[0].usesLockFreeReadLocks());
+        assertFalse(cacheKeys[1].usesLockFreeReadLocks());
+        for (CacheKey cacheKey : cacheKeys) {
+            assertFalse(cacheKey.isAcquired());
+            assertEquals(0, cacheKey.getNumberOfReaders());
+        }
+    }
+
+    public static class Item {
+        public long id;
+        public long value;
+
+        public Item() {
+        }
+
+        public Item(long id) {
+            this.id = id;
+        }
+    }
+}
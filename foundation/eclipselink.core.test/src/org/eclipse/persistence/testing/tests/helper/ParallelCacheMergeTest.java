@@ -0,0 +1,251 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.testing.tests.helper;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.eclipse.persistence.annotations.IdValidation;
+import org.eclipse.persistence.descriptors.CacheIndex;
+import org.eclipse.persistence.descriptors.RelationalDescriptor;
+import org.eclipse.persistence.expressions.ExpressionBuilder;
+import org.eclipse.persistence.internal.databaseaccess.Accessor;
+import org.eclipse.persistence.internal.identitymaps.CacheKey;
+import org.eclipse.persistence.internal.sessions.DatabaseSessionImpl;
+import org.eclipse.persistence.internal.sessions.ParallelCacheMerger;
+import org.eclipse.persistence.mappings.OneToOneMapping;
+import org.eclipse.persistence.queries.InMemoryQueryIndirectionPolicy;
+import org.eclipse.persistence.sessions.DatabaseLogin;
+import org.eclipse.persistence.sessions.Project;
+import org.eclipse.persistence.sessions.UnitOfWork;
+
+/**
+ * Test that the shared cache holds the same objects after a commit whether the independent
+ * objects are merged in parallel or not, for direct changes, changed references,
+ * new and deleted objects, and the cache index of a class that is merged sequentially.
+ */
+public class ParallelCacheMergeTest extends junit.framework.TestCase {
+    protected static final int SIZE = 3 * ParallelCacheMerger.MINIMUM_OBJECTS;
+    protected static final int CODES = 10;
+
+    public ParallelCacheMergeTest(String name) {
+        super(name);
+    }
+
+    protected DatabaseSessionImpl buildSession(boolean shouldMergeChangesInParallel) {
+        RelationalDescriptor nodeDescriptor = new RelationalDescriptor();
+        nodeDescriptor.setJavaClass(Node.class);
+        nodeDescriptor.setTableName("NODE");
+        nodeDescriptor.setPrimaryKeyFieldName("ID");
+        nodeDescriptor.setIdValidation(IdValidation.NULL);
+        nodeDescriptor.addDirectMapping("id", "ID");
+        nodeDescriptor.addDirectMapping("name", "NAME");
+        nodeDescriptor.addDirectMapping("value", "VALUE");
+        OneToOneMapping parentMapping = new OneToOneMapping();
+        parentMapping.setAttributeName("parent");
+        parentMapping.setReferenceClass(Node.class);
+        parentMapping.addForeignKeyFieldName("PARENT_ID", "ID");
+        parentMapping.dontUseIndirection();
+        nodeDescriptor.addMapping(parentMapping);
+        OneToOneMapping tagMapping = new OneToOneMapping();
+        tagMapping.setAttributeName("tag");
+        tagMapping.setReferenceClass(Tag.class);
+        tagMapping.addForeignKeyFieldName("TAG_ID", "ID");
+        tagMapping.dontUseIndirection();
+        nodeDescriptor.addMapping(tagMapping);
+
+        RelationalDescriptor tagDescriptor = new RelationalDescriptor();
+        tagDescriptor.setJavaClass(Tag.class);
+        tagDescriptor.setTableName("TAG");
+        tagDescriptor.setPrimaryKeyFieldName("ID");
+        tagDescriptor.setIdValidation(IdValidation.NULL);
+        tagDescriptor.addDirectMapping("id", "ID");
+        tagDescriptor.addDirectMapping("code", "CODE");
+        CacheIndex codeIndex = new CacheIndex("CODE");
+        codeIndex.setIsUnique(false);
+        tagDescriptor.getCachePolicy().addCacheIndex(codeIndex);
+
+        Project project = new Project(new DatabaseLogin());
+        project.addDescriptor(nodeDescriptor);
+        project.addDescriptor(tagDescriptor);
+        project.setShouldMergeChangesInParallel(shouldMergeChangesInParallel);
+        DatabaseSessionImpl session = (DatabaseSessionImpl)project.createDatabaseSession();
+        // Each write reports one row updated.
+        session.setAccessor((Accessor)Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] {Accessor.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] arguments) {
+                if (method.getName().equals("executeCall")) {
+                    return Integer.valueOf(1);
+                } else if (method.getReturnType() == boolean.class) {
+                    return Boolean.FALSE;
+                } else if (method.getReturnType() == int.class) {
+                    return Integer.valueOf(0);
+                }
+                return null;
+            }
+        }));
+        session.initializeDescriptors();
+
+        Tag[] tags = new Tag[SIZE / 10];
+        for (int index = 0; index < tags.length; index++) {
+            tags[index] = new Tag(index, "Code" + (index % CODES));
+            session.getIdentityMapAccessor().putInIdentityMap(tags[index]);
+        }
+        Node[] nodes = new Node[SIZE];
+        for (int index = 0; index < SIZE; index++) {
+            nodes[index] = new Node(index);
+            nodes[index].tag = tags[index % tags.length];
+        }
+        for (int index = 1; index < SIZE; index++) {
+            nodes[index].parent = nodes[index / 10];
+        }
+        for (Node node : nodes) {
+            session.getIdentityMapAccessor().putInIdentityMap(node);
+        }
+        return session;
+    }
+
+    /**
+     * Commit the same changes, and return a description of the objects in the cache.
+     */
+    protected List<String> commit(boolean shouldMergeChangesInParallel) {
+        DatabaseSessionImpl session = buildSession(shouldMergeChangesInParallel);
+        UnitOfWork unitOfWork = session.acquireUnitOfWork();
+        for (int index = 0; index < SIZE; index++) {
+            Node clone = (Node)unitOfWork.registerObject(session.getIdentityMapAccessor().getFromIdentityMap(Long.valueOf(index), Node.class));
+            if ((index % 3) != 0) {
+                // Direct changes only, merged in parallel.
+                clone.value = index * 2;
+                if ((index % 7) == 0) {
+                    clone.name = "Changed" + index;
+                }
+            } else if ((index % 9) == 0) {
+                // Related objects, merged sequentially.
+                clone.parent = (Node)unitOfWork.registerObject(session.getIdentityMapAccessor().getFromIdentityMap(Long.valueOf((index + 1) % SIZE), Node.class));
+                if (index < SIZE / 10) {
+                    clone.tag.code = "Changed" + clone.tag.id;
+                }
+            } else if ((index % 501) == 0) {
+                clone.parent = null;
+                Node newNode = new Node(SIZE + index);
+                newNode.parent = clone;
+                newNode.tag = new Tag(SIZE + index, "Code3");
+                unitOfWork.registerNewObject(newNode);
+            } else if ((index % 150) == 33) {
+                for (int child = index * 10; (child < SIZE) && (child < index * 10 + 10); child++) {
+                    ((Node)unitOfWork.registerObject(session.getIdentityMapAccessor().getFromIdentityMap(Long.valueOf(child), Node.class))).parent = null;
+                }
+                unitOfWork.deleteObject(clone);
+            }
+        }
+        assertTrue(ParallelCacheMerger.MINIMUM_OBJECTS < SIZE * 2 / 3);
+        unitOfWork.commit();
+        return describe(session);
+    }
+
+    protected static List<String> describe(DatabaseSessionImpl session) {
+        List<String> descriptions = new ArrayList<String>();
+        for (int index = 0; index < 2 * SIZE; index++) {
+            Node node = (Node)session.getIdentityMapAccessor().getFromIdentityMap(Long.valueOf(index), Node.class);
+            if (node != null) {
+                CacheKey cacheKey = session.getIdentityMapAccessorInstance().getCacheKeyForObject(node);
+                assertFalse("Cache key left locked for node " + index, cacheKey.isAcquired());
+                // References to the originals in the cache, not to the clones.
+                if (node.parent != null) {
+                    assertSame(node.parent, session.getIdentityMapAccessor().getFromIdentityMap(Long.valueOf(node.parent.id), Node.class));
+                }
+                if (node.tag != null) {
+                    assertSame(node.tag, session.getIdentityMapAccessor().getFromIdentityMap(Long.valueOf(node.tag.id), Tag.class));
+                }
+                descriptions.add(node.id + " " + node.name + " " + node.value + " " + ((node.parent == null) ? null : node.parent.id)
+                        + " " + ((node.tag == null) ? null : node.tag.id + " " + node.tag.code));
+            }
+        }
+        for (int code = 0; code < CODES; code++) {
+            descriptions.add("Code" + code + " " + tagIds(session, "Code" + code));
+        }
+        descriptions.add("Changed " + tagIds(session, "Changed9"));
+        return descriptions;
+    }
+
+    /**
+     * Return the ids of the tags of the code found in the cache, using the cache index.
+     */
+    protected static Set<Long> tagIds(DatabaseSessionImpl session, String code) {
+        Set<Long> ids = new TreeSet<Long>();
+        for (Object tag : session.getIdentityMapAccessor().getAllFromIdentityMap(new ExpressionBuilder().get("code").equal(code), Tag.class, null, InMemoryQueryIndirectionPolicy.SHOULD_TRIGGER_INDIRECTION, false)) {
+            ids.add(((Tag)tag).id);
+        }
+        return ids;
+    }
+
+    /**
+     * Test that the cache is the same after a parallel and a sequential merge.
+     */
+    public void testSameCache() {
+        List<String> sequentialCache = commit(false);
+        List<String> parallelCache = commit(true);
+        assertEquals(sequentialCache, parallelCache);
+
+        String cache = sequentialCache.toString();
+        assertTrue(cache, sequentialCache.contains("1 Node1 2 0 1 Code1"));
+        assertTrue(cache, sequentialCache.contains("7 Changed7 14 0 7 Code7"));
+        assertTrue(cache, sequentialCache.contains("9 Node9 9 10 9 Changed9"));
+        assertTrue(cache, sequentialCache.contains("501 Node501 501 null 201 Code1"));
+        assertTrue(cache, sequentialCache.contains((SIZE + 501) + " Node" + (SIZE + 501) + " " + (SIZE + 501) + " 501 " + (SIZE + 501) + " Code3"));
+        // Deleted objects are removed from the cache, and no longer referenced.
+        assertTrue(cache, sequentialCache.contains("330 Node330 330 null 30 Code0"));
+        for (String node : sequentialCache) {
+            assertFalse(node, node.startsWith("33 ") || node.startsWith("183 "));
+        }
+        // The cache index is maintained for the changed and new tags.
+        assertTrue(cache, sequentialCache.contains("Changed [9]"));
+        assertTrue(cache, sequentialCache.contains("Code3 [3, 13, 23, 33, 43, 53, 73, 83, 93, 103, 113, 123, 133, 143, 163, 173, 183, 193, 203, 213, 223, 233, 253, 263, 273, 283, 293, "
+                + (SIZE + 501) + ", " + (SIZE + 1002) + ", " + (SIZE + 2004) + ", " + (SIZE + 2505) + "]"));
+    }
+
+    public static class Node {
+        public long id;
+        public String name;
+        public long value;
+        public Node parent;
+        public Tag tag;
+
+        public Node() {
+        }
+
+        public Node(long id) {
+            this.id = id;
+            this.name = "Node" + id;
+            this.value = id;
+        }
+    }
+
+    public static class Tag {
+        public long id;
+        public String code;
+
+        public Tag() {
+        }
+
+        public Tag(long id, String code) {
+            this.id = id;
+            this.code = code;
+        }
+    }
+}
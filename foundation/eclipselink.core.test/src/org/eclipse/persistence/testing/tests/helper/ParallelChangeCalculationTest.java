@@ -0,0 +1,265 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.testing.tests.helper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.eclipse.persistence.annotations.IdValidation;
+import org.eclipse.persistence.descriptors.RelationalDescriptor;
+import org.eclipse.persistence.internal.sessions.CollectionChangeRecord;
+import org.eclipse.persistence.internal.sessions.DatabaseSessionImpl;
+import org.eclipse.persistence.internal.sessions.DirectToFieldChangeRecord;
+import org.eclipse.persistence.internal.sessions.ObjectChangeSet;
+import org.eclipse.persistence.internal.sessions.ObjectReferenceChangeRecord;
+import org.eclipse.persistence.internal.sessions.OrderedChangeObject;
+import org.eclipse.persistence.internal.sessions.ParallelChangeCalculator;
+import org.eclipse.persistence.internal.sessions.UnitOfWorkChangeSet;
+import org.eclipse.persistence.internal.sessions.UnitOfWorkImpl;
+import org.eclipse.persistence.mappings.OneToManyMapping;
+import org.eclipse.persistence.mappings.OneToOneMapping;
+import org.eclipse.persistence.sessions.DatabaseLogin;
+import org.eclipse.persistence.sessions.Project;
+import org.eclipse.persistence.sessions.changesets.ChangeRecord;
+
+/**
+ * Test that the unit of work calculates the same change set whether the unchanged objects
+ * are found in parallel or not, for changed, new and unregistered new objects, references,
+ * and additions, removals and moves in ordered collections.
+ */
+public class ParallelChangeCalculationTest extends junit.framework.TestCase {
+    protected static final int SIZE = 2 * ParallelChangeCalculator.MINIMUM_OBJECTS;
+
+    public ParallelChangeCalculationTest(String name) {
+        super(name);
+    }
+
+    protected static DatabaseSessionImpl buildSession(boolean shouldCalculateChangesInParallel) {
+        RelationalDescriptor descriptor = new RelationalDescriptor();
+        descriptor.setJavaClass(Node.class);
+        descriptor.setTableName("NODE");
+        descriptor.setPrimaryKeyFieldName("ID");
+        descriptor.addDirectMapping("id", "ID");
+        descriptor.setIdValidation(IdValidation.NULL);
+        descriptor.addDirectMapping("name", "NAME");
+        descriptor.addDirectMapping("value", "VALUE");
+        OneToOneMapping parentMapping = new OneToOneMapping();
+        parentMapping.setAttributeName("parent");
+        parentMapping.setReferenceClass(Node.class);
+        parentMapping.addForeignKeyFieldName("PARENT_ID", "ID");
+        parentMapping.dontUseIndirection();
+        descriptor.addMapping(parentMapping);
+        OneToManyMapping childrenMapping = new OneToManyMapping();
+        childrenMapping.setAttributeName("children");
+        childrenMapping.setReferenceClass(Node.class);
+        childrenMapping.addTargetForeignKeyFieldName("OWNER_ID", "ID");
+        childrenMapping.setListOrderFieldName("CHILD_ORDER");
+        childrenMapping.dontUseIndirection();
+        childrenMapping.useCollectionClass(ArrayList.class);
+        descriptor.addMapping(childrenMapping);
+        Project project = new Project(new DatabaseLogin());
+        project.addDescriptor(descriptor);
+        project.setShouldCalculateChangesInParallel(shouldCalculateChangesInParallel);
+        DatabaseSessionImpl session = (DatabaseSessionImpl)project.createDatabaseSession();
+        session.initializeDescriptors();
+        return session;
+    }
+
+    /**
+     * Put the same graph of nodes into the cache of the session, and register them all.
+     */
+    protected static UnitOfWorkImpl acquireUnitOfWork(DatabaseSessionImpl session) {
+        Node[] nodes = new Node[SIZE];
+        for (int index = 0; index < SIZE; index++) {
+            nodes[index] = new Node(index);
+        }
+        for (int index = 0; index < SIZE; index++) {
+            Node node = nodes[index];
+            if (index > 0) {
+                node.parent = nodes[index / 10];
+            }
+            if ((index % 50) == 0) {
+                for (int child = 1; child <= 4; child++) {
+                    node.children.add(nodes[(index * 7 + child) % SIZE]);
+                }
+            }
+            session.getIdentityMapAccessor().putInIdentityMap(node);
+        }
+        UnitOfWorkImpl unitOfWork = (UnitOfWorkImpl)session.acquireUnitOfWork();
+        for (int index = 0; index < SIZE; index++) {
+            unitOfWork.registerExistingObject(nodes[index]);
+        }
+        return unitOfWork;
+    }
+
+    /**
+     * Apply the same changes to the clones of the unit of work.
+     */
+    protected static void change(UnitOfWorkImpl unitOfWork) {
+        List<Node> clones = new ArrayList<Node>(SIZE);
+        for (int index = 0; index < SIZE; index++) {
+            clones.add((Node)unitOfWork.getIdentityMapAccessor().getFromIdentityMap(Long.valueOf(index), Node.class));
+        }
+        for (int index = 0; index < SIZE; index++) {
+            Node clone = clones.get(index);
+            if ((index % 97) == 0) {
+                clone.name = "Changed" + index;
+            }
+            if ((index % 89) == 0) {
+                clone.value = index * 2;
+            }
+            if ((index % 71) == 0) {
+                // Set to an equal value, not a change.
+                clone.name = new String(clone.name);
+            }
+            if ((index % 83) == 0) {
+                clone.parent = clones.get((index + 1) % SIZE);
+            }
+            if ((index % 150) == 0) {
+                // Move.
+                Collections.swap(clone.children, 0, 3);
+            }
+            if ((index % 250) == 0) {
+                // Removal and addition.
+                clone.children.remove(1);
+                clone.children.add(0, clones.get((index + 11) % SIZE));
+            }
+            if ((index % 211) == 0) {
+                // Unregistered new object, only reachable from the changed object.
+                Node newNode = new Node(SIZE + index);
+                newNode.parent = clone;
+                clone.children.add(newNode);
+            }
+            if ((index % 307) == 0) {
+                Node newNode = (Node)unitOfWork.registerNewObject(new Node(2 * SIZE + index));
+                newNode.parent = clone;
+            }
+        }
+    }
+
+    /**
+     * Return a description of the change set that does not depend on the iteration order of the objects.
+     */
+    protected static List<String> describe(UnitOfWorkChangeSet changeSet) {
+        List<String> descriptions = new ArrayList<String>();
+        for (ObjectChangeSet objectChanges : changeSet.getAllChangeSets().keySet()) {
+            List<String> records = new ArrayList<String>();
+            for (ChangeRecord record : objectChanges.getChanges()) {
+                StringBuilder description = new StringBuilder(record.getAttribute()).append('=');
+                if (record instanceof DirectToFieldChangeRecord) {
+                    description.append(((DirectToFieldChangeRecord)record).getNewValue());
+                } else if (record instanceof ObjectReferenceChangeRecord) {
+                    description.append(id(((ObjectReferenceChangeRecord)record).getNewValue()));
+                } else if (record instanceof CollectionChangeRecord) {
+                    CollectionChangeRecord collectionRecord = (CollectionChangeRecord)record;
+                    description.append(ids(collectionRecord.getAddObjectList().keySet()));
+                    description.append(ids(collectionRecord.getRemoveObjectList().keySet()));
+                    for (ObjectChangeSet changes : collectionRecord.getOrderedAddObjects()) {
+                        description.append(" +").append(changes.getId()).append('@').append(collectionRecord.getOrderedAddObjectIndex(changes));
+                    }
+                    for (Integer index : new TreeSet<Integer>(collectionRecord.getOrderedRemoveObjects().keySet())) {
+                        description.append(" -").append(id(collectionRecord.getOrderedRemoveObjects().get(index))).append('@').append(index);
+                    }
+                    for (OrderedChangeObject change : collectionRecord.getOrderedChangeObjectList()) {
+                        description.append(' ').append(change.getChangeType()).append('@').append(change.getIndex()).append(':').append(id(change.getChangeSet()));
+                    }
+                } else {
+                    description.append(record.getClass().getSimpleName());
+                }
+                records.add(description.toString());
+            }
+            Collections.sort(records);
+            descriptions.add(objectChanges.getId() + (objectChanges.isNew() ? " new " : " ") + records);
+        }
+        Collections.sort(descriptions);
+        return descriptions;
+    }
+
+    protected static Object id(Object objectChanges) {
+        return (objectChanges == null) ? null : ((ObjectChangeSet)objectChanges).getId();
+    }
+
+    protected static List<String> ids(Iterable<ObjectChangeSet> objectChanges) {
+        List<String> ids = new ArrayList<String>();
+        for (ObjectChangeSet changes : objectChanges) {
+            ids.add(String.valueOf(changes.getId()));
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
+    protected static List<String> calculateChanges(boolean shouldCalculateChangesInParallel) {
+        UnitOfWorkImpl unitOfWork = acquireUnitOfWork(buildSession(shouldCalculateChangesInParallel));
+        change(unitOfWork);
+        assertEquals(shouldCalculateChangesInParallel, ParallelChangeCalculator.canCalculateChangesInParallel(unitOfWork, unitOfWork.getCloneMapping().size()));
+        UnitOfWorkChangeSet changeSet = unitOfWork.calculateChanges(unitOfWork.getCloneMapping(), new UnitOfWorkChangeSet(unitOfWork), false, true);
+        return describe(changeSet);
+    }
+
+    /**
+     * Test that the parallel comparison finds the unchanged objects, and only those.
+     */
+    public void testUnchangedObjects() {
+        UnitOfWorkImpl unitOfWork = acquireUnitOfWork(buildSession(true));
+        change(unitOfWork);
+        List<Object> objects = new ArrayList<Object>(unitOfWork.getCloneMapping().keySet());
+        boolean[] unchangedObjects = new ParallelChangeCalculator(unitOfWork).findUnchangedObjects(objects);
+        int unchanged = 0;
+        for (int index = 0; index < objects.size(); index++) {
+            Node node = (Node)objects.get(index);
+            boolean isChanged = ((node.id % 97) == 0) || ((node.id % 89) == 0) || ((node.id % 83) == 0)
+                    || ((node.id % 150) == 0) || ((node.id % 250) == 0) || ((node.id % 211) == 0) || (node.id >= SIZE);
+            assertEquals("Wrong comparison of node " + node.id, !isChanged, unchangedObjects[index]);
+            if (unchangedObjects[index]) {
+                unchanged++;
+            }
+        }
+        assertTrue(unchanged > SIZE / 2);
+    }
+
+    /**
+     * Test that the change sets calculated in parallel and sequentially are the same.
+     */
+    public void testSameChanges() {
+        List<String> sequentialChanges = calculateChanges(false);
+        List<String> parallelChanges = calculateChanges(true);
+        assertFalse(sequentialChanges.isEmpty());
+        assertEquals(sequentialChanges, parallelChanges);
+        // The new objects, including the unregistered one, the additions, and the moves.
+        assertTrue(sequentialChanges.toString(), sequentialChanges.contains((SIZE + 211) + " new []"));
+        assertTrue(sequentialChanges.toString(), sequentialChanges.contains((2 * SIZE + 307) + " new []"));
+        assertTrue(sequentialChanges.toString(), sequentialChanges.contains("211 [children=[" + (SIZE + 211) + "][] +" + (SIZE + 211) + "@0]"));
+        assertTrue(sequentialChanges.toString(), sequentialChanges.contains("150 [children=[][] +1054@0 +1051@3 -1051@0 -1054@3]"));
+        assertTrue(sequentialChanges.toString(), sequentialChanges.contains("250 [children=[261][1752] +261@0 -1752@1]"));
+        // Set to an equal value.
+        assertFalse(sequentialChanges.toString(), sequentialChanges.toString().contains(" 71 ["));
+    }
+
+    public static class Node {
+        public long id;
+        public String name;
+        public long value;
+        public Node parent;
+        public List<Node> children = new ArrayList<Node>();
+
+        public Node() {
+        }
+
+        public Node(long id) {
+            this.id = id;
+            this.name = "Node" + id;
+        }
+    }
+}
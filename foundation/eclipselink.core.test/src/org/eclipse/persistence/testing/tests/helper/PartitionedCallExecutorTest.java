@@ -0,0 +1,285 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.testing.tests.helper;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Vector;
+
+import org.eclipse.persistence.expressions.Expression;
+import org.eclipse.persistence.expressions.ExpressionBuilder;
+import org.eclipse.persistence.internal.databaseaccess.Accessor;
+import org.eclipse.persistence.internal.databaseaccess.DatabaseCall;
+import org.eclipse.persistence.internal.helper.DatabaseField;
+import org.eclipse.persistence.internal.queries.ReportItem;
+import org.eclipse.persistence.internal.sessions.AbstractRecord;
+import org.eclipse.persistence.internal.sessions.DatabaseSessionImpl;
+import org.eclipse.persistence.internal.sessions.PartitionedCallExecutor;
+import org.eclipse.persistence.platform.server.NoServerPlatform;
+import org.eclipse.persistence.queries.ReadAllQuery;
+import org.eclipse.persistence.queries.ReadQuery;
+import org.eclipse.persistence.queries.ReportQuery;
+import org.eclipse.persistence.queries.SQLCall;
+import org.eclipse.persistence.sessions.DatabaseLogin;
+import org.eclipse.persistence.sessions.DatabaseRecord;
+import org.eclipse.persistence.sessions.Project;
+
+/**
+ * Test that PartitionedCallExecutor merges ordered rows, pages and combines the
+ * aggregates of the rows returned by several partitions.
+ */
+public class PartitionedCallExecutorTest extends junit.framework.TestCase {
+
+    protected static final DatabaseField ID = new DatabaseField("EMPLOYEE.ID");
+    protected static final DatabaseField NAME = new DatabaseField("EMPLOYEE.NAME");
+    protected static final DatabaseField SALARY = new DatabaseField("EMPLOYEE.SALARY");
+    protected static final DatabaseField DEPT = new DatabaseField("EMPLOYEE.DEPT");
+
+    public static class Employee {
+    }
+
+    protected DatabaseSessionImpl session;
+
+    /** The first result of the call executed by each partition. */
+    protected List<Integer> firstResults;
+
+    /** The max rows of the call executed by each partition. */
+    protected List<Integer> maxRows;
+
+    public PartitionedCallExecutorTest(String name) {
+        super(name);
+    }
+
+    @Override
+    public void setUp() {
+        session = new DatabaseSessionImpl(new Project(new DatabaseLogin()));
+        session.setServerPlatform(new NoServerPlatform(session));
+        firstResults = Collections.synchronizedList(new ArrayList<Integer>());
+        maxRows = Collections.synchronizedList(new ArrayList<Integer>());
+    }
+
+    @Override
+    public void tearDown() {
+        session.getServerPlatform().shutdown();
+    }
+
+    /**
+     * Return an accessor returning the rows, as a partition would, up to the call's max rows.
+     */
+    protected Accessor buildAccessor(final List<AbstractRecord> rows) {
+        return (Accessor)Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] {Accessor.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] arguments) {
+                if (method.getName().equals("executeCall")) {
+                    DatabaseCall call = (DatabaseCall)arguments[0];
+                    firstResults.add(call.getFirstResult());
+                    maxRows.add(call.getMaxRows());
+                    if ((call.getMaxRows() > 0) && (call.getMaxRows() < rows.size())) {
+                        return new Vector(rows.subList(0, call.getMaxRows()));
+                    }
+                    return new Vector(rows);
+                } else if (method.getName().equals("hashCode")) {
+                    return System.identityHashCode(proxy);
+                } else if (method.getName().equals("equals")) {
+                    return proxy == arguments[0];
+                } else if (method.getReturnType() == boolean.class) {
+                    return Boolean.FALSE;
+                } else if (method.getReturnType() == int.class) {
+                    return Integer.valueOf(0);
+                }
+                return null;
+            }
+        });
+    }
+
+    protected static AbstractRecord row(Object id, String name, Object salary) {
+        DatabaseRecord row = new DatabaseRecord();
+        row.put(ID, id);
+        row.put(NAME, name);
+        row.put(SALARY, salary);
+        return row;
+    }
+
+    protected static AbstractRecord reportRow(String dept, Object count, Object sum, Object min, Object max) {
+        DatabaseRecord row = new DatabaseRecord();
+        row.put(DEPT, dept);
+        row.put(new DatabaseField("COUNT"), count);
+        row.put(new DatabaseField("SUM"), sum);
+        row.put(new DatabaseField("MIN"), min);
+        row.put(new DatabaseField("MAX"), max);
+        return row;
+    }
+
+    protected List<AbstractRecord> execute(ReadQuery query, List<AbstractRecord>... partitions) {
+        List<Accessor> accessors = new ArrayList<Accessor>();
+        for (List<AbstractRecord> partition : partitions) {
+            accessors.add(buildAccessor(partition));
+        }
+        query.setAccessors(accessors);
+        // The query's max rows are set on its call when it is prepared.
+        SQLCall call = new SQLCall("SELECT");
+        call.setMaxRows(query.getMaxRows());
+        return (List<AbstractRecord>)new PartitionedCallExecutor(session, query).execute(call, new DatabaseRecord());
+    }
+
+    protected static List<Object> ids(List<AbstractRecord> rows) {
+        List<Object> ids = new ArrayList<Object>();
+        for (AbstractRecord row : rows) {
+            ids.add(row.get(ID));
+        }
+        return ids;
+    }
+
+    protected ReadAllQuery buildSalaryOrderedQuery() {
+        ReadAllQuery query = new ReadAllQuery(Employee.class);
+        query.addOrdering(query.getExpressionBuilder().getField(SALARY).descending());
+        query.addOrdering(query.getExpressionBuilder().getField(ID));
+        return query;
+    }
+
+    protected List<AbstractRecord>[] buildSalaryPartitions() {
+        return new List[] {
+            Arrays.asList(row(1, "a", null), row(2, "b", 90), row(3, "c", 50), row(4, "d", 10)),
+            Arrays.asList(row(5, "e", new BigDecimal("95.5")), row(6, "f", 50L), row(7, "g", 20)),
+            Arrays.asList(row(8, "h", null), row(9, "i", 50), row(10, "j", 5.0))};
+    }
+
+    /**
+     * Test that the ordered rows of the partitions are merged in the query's order,
+     * nulls first for a descending order, numbers of different types compared by value.
+     */
+    public void testOrderedMerge() {
+        List<AbstractRecord> rows = execute(buildSalaryOrderedQuery(), buildSalaryPartitions());
+        assertEquals(Arrays.<Object>asList(1, 8, 5, 2, 3, 6, 9, 7, 4, 10), ids(rows));
+    }
+
+    /**
+     * Test that the first result and max rows are applied to the merged rows, with each
+     * partition returning its rows from the first row.
+     */
+    public void testPaging() {
+        ReadAllQuery query = buildSalaryOrderedQuery();
+        query.setFirstResult(2);
+        query.setMaxRows(6);
+        List<AbstractRecord> rows = execute(query, buildSalaryPartitions());
+        assertEquals(Arrays.<Object>asList(5, 2, 3, 6), ids(rows));
+        assertEquals(Arrays.asList(0, 0, 0), firstResults);
+        assertEquals(Arrays.asList(6, 6, 6), maxRows);
+
+        query = buildSalaryOrderedQuery();
+        query.setFirstResult(20);
+        assertTrue(execute(query, buildSalaryPartitions()).isEmpty());
+
+        query = buildSalaryOrderedQuery();
+        query.setMaxRows(3);
+        assertEquals(Arrays.<Object>asList(1, 8, 5), ids(execute(query, buildSalaryPartitions())));
+    }
+
+    /**
+     * Test that rows ordered by character values are not merged in Java order, which
+     * may differ from the database's collation, but gathered in partition order.
+     */
+    public void testCharacterOrderNotMerged() {
+        ReadAllQuery query = new ReadAllQuery(Employee.class);
+        query.addOrdering(query.getExpressionBuilder().getField(NAME));
+        List<AbstractRecord> rows = execute(query,
+                Arrays.asList(row(1, "a", 1), row(2, "B", 1)),
+                Arrays.asList(row(3, "A", 1), row(4, "b", 1)));
+        assertEquals(Arrays.<Object>asList(1, 2, 3, 4), ids(rows));
+    }
+
+    protected ReportQuery buildReportQuery() {
+        ExpressionBuilder builder = new ExpressionBuilder();
+        ReportQuery query = new ReportQuery(Employee.class, builder);
+        Expression dept = builder.getField(DEPT);
+        query.addAttribute("dept", dept);
+        query.addCount("count", builder.getField(ID));
+        query.addSum("sum", builder.getField(SALARY));
+        query.addMinimum("min", builder.getField(SALARY));
+        query.addMaximum("max", builder.getField(SALARY));
+        query.addGrouping(dept);
+        int index = 0;
+        for (ReportItem item : query.getItems()) {
+            item.setResultIndex(index++);
+        }
+        return query;
+    }
+
+    /**
+     * Test that count, sum, min and max are combined for the rows of the same group.
+     */
+    public void testAggregates() {
+        List<AbstractRecord> rows = execute(buildReportQuery(),
+                Arrays.asList(reportRow("A", 2L, 30, 10, 20), reportRow("B", 1L, new BigDecimal("7.5"), new BigDecimal("7.5"), new BigDecimal("7.5"))),
+                Arrays.asList(reportRow("B", 3L, new BigDecimal("12.5"), new BigDecimal("2.5"), new BigDecimal("6")), reportRow("C", 1L, null, null, null)),
+                Arrays.asList(reportRow("A", 1L, 5L, 5, 5), reportRow("C", 2L, 8, 3, 5)));
+        assertEquals(3, rows.size());
+        assertReportRow(rows.get(0), "A", 3L, 35L, 5, 20);
+        assertReportRow(rows.get(1), "B", 4L, new BigDecimal("20.0"), new BigDecimal("2.5"), new BigDecimal("7.5"));
+        assertReportRow(rows.get(2), "C", 3L, 8, 3, 5);
+    }
+
+    /**
+     * Test that the grouped rows are ordered and paged after being combined.
+     */
+    public void testOrderedAggregatesPaging() {
+        ReportQuery query = buildReportQuery();
+        query.addOrdering(query.getExpressionBuilder().getField(new DatabaseField("MAX")).descending());
+        query.setMaxRows(2);
+        List<AbstractRecord> rows = execute(query,
+                Arrays.asList(reportRow("A", 1L, 1, 1, 1), reportRow("B", 1L, 2, 2, 2)),
+                Arrays.asList(reportRow("A", 1L, 9, 9, 9), reportRow("C", 1L, 3, 3, 3)));
+        assertEquals(2, rows.size());
+        assertReportRow(rows.get(0), "A", 2L, 10, 1, 9);
+        assertReportRow(rows.get(1), "C", 1L, 3, 3, 3);
+    }
+
+    /**
+     * Test that each partition returns all its groups when the query has max rows, as the groups
+     * cut off in one partition may be in the first rows of another, and that the max rows are applied
+     * to the combined groups.
+     */
+    public void testAggregatesMaxRows() {
+        ReportQuery query = buildReportQuery();
+        query.addOrdering(query.getExpressionBuilder().getField(new DatabaseField("COUNT")).descending());
+        query.setMaxRows(2);
+        List<AbstractRecord> rows = execute(query,
+                Arrays.asList(reportRow("A", 5L, 5, 1, 1), reportRow("B", 4L, 4, 1, 1), reportRow("C", 1L, 1, 1, 1)),
+                Arrays.asList(reportRow("C", 9L, 9, 1, 1), reportRow("B", 4L, 4, 1, 1), reportRow("A", 1L, 1, 1, 1)));
+        assertEquals(Arrays.asList(0, 0), maxRows);
+        assertEquals(2, rows.size());
+        assertReportRow(rows.get(0), "C", 10L, 10, 1, 1);
+        assertReportRow(rows.get(1), "B", 8L, 8, 1, 1);
+
+        // Rows that are not combined are still limited in each partition.
+        maxRows.clear();
+        ReadAllQuery readQuery = buildSalaryOrderedQuery();
+        readQuery.setMaxRows(2);
+        assertEquals(Arrays.<Object>asList(1, 8), ids(execute(readQuery, buildSalaryPartitions())));
+        assertEquals(Arrays.asList(2, 2, 2), maxRows);
+    }
+
+    protected static void assertReportRow(AbstractRecord row, String dept, Object count, Object sum, Object min, Object max) {
+        assertEquals(dept, row.get(DEPT));
+        assertEquals(count, row.getValues().get(1));
+        assertEquals(sum, row.getValues().get(2));
+        assertEquals(min, row.getValues().get(3));
+        assertEquals(max, row.getValues().get(4));
+    }
+}
@@ -0,0 +1,203 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.testing.tests.helper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.persistence.internal.sequencing.PreallocatedSequenceQueue;
+
+/**
+ * Test that the values of a preallocated sequence queue polled concurrently, while blocks are
+ * added by a refill, are each handed out exactly once, and in allocation order.
+ */
+public class PreallocatedSequenceQueueTest extends junit.framework.TestCase {
+    protected static final int POLLERS = 8;
+    protected static final int BLOCKS = 2000;
+    protected static final int BLOCK_SIZE = 50;
+
+    public PreallocatedSequenceQueueTest(String name) {
+        super(name);
+    }
+
+    protected static List<Object> allocate(long first, int size) {
+        List<Object> values = new ArrayList<Object>(size);
+        for (long value = first; value < first + size; value++) {
+            values.add(Long.valueOf(value));
+        }
+        return values;
+    }
+
+    /**
+     * Test that the values are polled in order across blocks, and that the size and iterator reflect the polls.
+     */
+    public void testPollAcrossBlocks() {
+        PreallocatedSequenceQueue queue = new PreallocatedSequenceQueue();
+        assertNull(queue.poll());
+        assertFalse(queue.addAll(new ArrayList<Object>()));
+        queue.addAll(allocate(1, 3));
+        queue.offer(Long.valueOf(4));
+        queue.addAll(allocate(5, 2));
+        assertEquals(6, queue.size());
+        assertEquals(Long.valueOf(1), queue.peek());
+        assertEquals(Long.valueOf(1), queue.poll());
+        assertEquals(allocate(2, 5), new ArrayList<Object>(queue));
+        for (long value = 2; value <= 6; value++) {
+            assertEquals(Long.valueOf(value), queue.poll());
+            assertEquals(6 - value, queue.size());
+        }
+        assertNull(queue.peek());
+        assertNull(queue.poll());
+        queue.addAll(allocate(7, 1));
+        assertEquals(Long.valueOf(7), queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    /**
+     * Test that the values polled by concurrent threads while the queue is refilled are
+     * all the allocated values, with none handed out twice or skipped, and that each thread
+     * gets increasing values.
+     */
+    public void testConcurrentPollDuringRefills() throws InterruptedException {
+        final PreallocatedSequenceQueue queue = new PreallocatedSequenceQueue();
+        final int total = BLOCKS * BLOCK_SIZE;
+        final AtomicBoolean refillsDone = new AtomicBoolean();
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<List<Long>> valuesPerPoller = new ArrayList<List<Long>>();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int index = 0; index < POLLERS; index++) {
+            final List<Long> values = new ArrayList<Long>();
+            valuesPerPoller.add(values);
+            threads.add(new Thread() {
+                public void run() {
+                    try {
+                        start.await();
+                        while (true) {
+                            Object value = queue.poll();
+                            if (value == null) {
+                                if (!refillsDone.get()) {
+                                    Thread.yield();
+                                    continue;
+                                }
+                                // All the blocks are added, the queue is only empty once all values are polled.
+                                value = queue.poll();
+                                if (value == null) {
+                                    return;
+                                }
+                            }
+                            values.add((Long)value);
+                        }
+                    } catch (Throwable error) {
+                        errors.add(error);
+                    }
+                }
+            });
+        }
+        Thread refiller = new Thread() {
+            public void run() {
+                try {
+                    start.await();
+                    long next = 1;
+                    for (int block = 0; block < BLOCKS; block++) {
+                        // Refill as the sequencing manager does, when the queue runs low.
+                        while (queue.size() > BLOCK_SIZE) {
+                            Thread.yield();
+                        }
+                        assertTrue(queue.startRefill());
+                        assertFalse(queue.startRefill());
+                        queue.addAll(allocate(next, BLOCK_SIZE));
+                        next = next + BLOCK_SIZE;
+                        queue.endRefill();
+                    }
+                } catch (Throwable error) {
+                    errors.add(error);
+                } finally {
+                    refillsDone.set(true);
+                }
+            }
+        };
+        refiller.start();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        start.countDown();
+        refiller.join();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (!errors.isEmpty()) {
+            throw new RuntimeException(errors.get(0));
+        }
+
+        boolean[] handedOut = new boolean[total + 1];
+        int count = 0;
+        for (List<Long> values : valuesPerPoller) {
+            long previous = 0;
+            for (Long value : values) {
+                assertTrue("Value out of order: " + value + " after " + previous, value > previous);
+                assertFalse("Value handed out twice: " + value, handedOut[value.intValue()]);
+                handedOut[value.intValue()] = true;
+                previous = value;
+                count++;
+            }
+        }
+        assertEquals(total, count);
+        for (int value = 1; value <= total; value++) {
+            assertTrue("Value skipped: " + value, handedOut[value]);
+        }
+        assertNull(queue.poll());
+        assertEquals(0, queue.size());
+        assertFalse(queue.isRefilling());
+    }
+
+    /**
+     * Test that only one of the threads starting a refill concurrently is allowed to refill.
+     */
+    public void testSingleRefill() throws InterruptedException {
+        final PreallocatedSequenceQueue queue = new PreallocatedSequenceQueue();
+        final AtomicInteger refills = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int index = 0; index < POLLERS; index++) {
+            threads.add(new Thread() {
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException exception) {
+                        return;
+                    }
+                    if (queue.startRefill()) {
+                        refills.incrementAndGet();
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(1, refills.get());
+        assertTrue(queue.isRefilling());
+        queue.endRefill();
+        assertFalse(queue.isRefilling());
+        assertTrue(queue.startRefill());
+    }
+}
@@ -0,0 +1,249 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.testing.tests.helper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.descriptors.RelationalDescriptor;
+import org.eclipse.persistence.expressions.Expression;
+import org.eclipse.persistence.expressions.ExpressionBuilder;
+import org.eclipse.persistence.internal.identitymaps.CacheId;
+import org.eclipse.persistence.internal.identitymaps.IdentityMapManager;
+import org.eclipse.persistence.internal.identitymaps.QueryResultsIdentityMap;
+import org.eclipse.persistence.internal.sessions.DatabaseSessionImpl;
+import org.eclipse.persistence.internal.sessions.DirectToFieldChangeRecord;
+import org.eclipse.persistence.internal.sessions.ObjectChangeSet;
+import org.eclipse.persistence.internal.sessions.UnitOfWorkChangeSet;
+import org.eclipse.persistence.mappings.OneToManyMapping;
+import org.eclipse.persistence.mappings.OneToOneMapping;
+import org.eclipse.persistence.queries.QueryResultsCachePolicy;
+import org.eclipse.persistence.queries.ReadAllQuery;
+import org.eclipse.persistence.queries.ReadQuery;
+import org.eclipse.persistence.queries.ReportQuery;
+import org.eclipse.persistence.sessions.DatabaseLogin;
+import org.eclipse.persistence.sessions.Project;
+
+/**
+ * Test the attributes the query results cache is selectively invalidated by, including through
+ * relationships to the query's own class, and the eviction of results bounded by their size.
+ */
+public class QueryResultsCacheTest extends junit.framework.TestCase {
+
+    protected DatabaseSessionImpl session;
+    protected ClassDescriptor employeeDescriptor;
+    protected ClassDescriptor departmentDescriptor;
+
+    public QueryResultsCacheTest(String name) {
+        super(name);
+    }
+
+    @Override
+    public void setUp() {
+        Project project = new Project(new DatabaseLogin());
+        RelationalDescriptor descriptor = new RelationalDescriptor();
+        descriptor.setJavaClass(Employee.class);
+        descriptor.setTableName("EMPLOYEE");
+        descriptor.addPrimaryKeyFieldName("EMPLOYEE.ID");
+        descriptor.addDirectMapping("id", "EMPLOYEE.ID");
+        descriptor.addDirectMapping("name", "EMPLOYEE.NAME");
+        descriptor.addDirectMapping("salary", "EMPLOYEE.SALARY");
+        OneToOneMapping managerMapping = new OneToOneMapping();
+        managerMapping.setAttributeName("manager");
+        managerMapping.dontUseIndirection();
+        managerMapping.setReferenceClass(Employee.class);
+        managerMapping.addForeignKeyFieldName("EMPLOYEE.MANAGER_ID", "EMPLOYEE.ID");
+        descriptor.addMapping(managerMapping);
+        OneToManyMapping reportsMapping = new OneToManyMapping();
+        reportsMapping.setAttributeName("reports");
+        reportsMapping.dontUseIndirection();
+        reportsMapping.setReferenceClass(Employee.class);
+        reportsMapping.addTargetForeignKeyFieldName("EMPLOYEE.MANAGER_ID", "EMPLOYEE.ID");
+        descriptor.addMapping(reportsMapping);
+        OneToOneMapping departmentMapping = new OneToOneMapping();
+        departmentMapping.setAttributeName("department");
+        departmentMapping.dontUseIndirection();
+        departmentMapping.setReferenceClass(Department.class);
+        departmentMapping.addForeignKeyFieldName("EMPLOYEE.DEPT_ID", "DEPARTMENT.ID");
+        descriptor.addMapping(departmentMapping);
+        project.addDescriptor(descriptor);
+
+        descriptor = new RelationalDescriptor();
+        descriptor.setJavaClass(Department.class);
+        descriptor.setTableName("DEPARTMENT");
+        descriptor.addPrimaryKeyFieldName("DEPARTMENT.ID");
+        descriptor.addDirectMapping("id", "DEPARTMENT.ID");
+        descriptor.addDirectMapping("name", "DEPARTMENT.NAME");
+        project.addDescriptor(descriptor);
+
+        session = (DatabaseSessionImpl)project.createDatabaseSession();
+        session.initializeDescriptors();
+        employeeDescriptor = session.getDescriptor(Employee.class);
+        departmentDescriptor = session.getDescriptor(Department.class);
+    }
+
+    protected <T extends ReadQuery> T cache(T query, String name) {
+        query.setName(name);
+        QueryResultsCachePolicy policy = new QueryResultsCachePolicy();
+        policy.setIsInvalidationSelective(true);
+        policy.getInvalidationClasses().add(Employee.class);
+        policy.getInvalidationClasses().add(Department.class);
+        query.setQueryResultsCachePolicy(policy);
+        query.setDescriptor(employeeDescriptor);
+        return query;
+    }
+
+    protected ReadAllQuery buildQuery(String name, Expression criteria) {
+        return cache(new ReadAllQuery(Employee.class, criteria), name);
+    }
+
+    protected UnitOfWorkChangeSet buildChangeSet(ClassDescriptor descriptor, boolean isNew, String attribute) {
+        UnitOfWorkChangeSet changeSet = new UnitOfWorkChangeSet();
+        ObjectChangeSet objectChangeSet = new ObjectChangeSet(Long.valueOf(1), descriptor, null, changeSet, isNew);
+        DirectToFieldChangeRecord record = new DirectToFieldChangeRecord(objectChangeSet);
+        record.setAttribute(attribute);
+        record.setNewValue("changed");
+        objectChangeSet.addChange(record);
+        changeSet.addObjectChangeSet(objectChangeSet, session, true);
+        return changeSet;
+    }
+
+    /**
+     * Return if the query's cached results are kept after the change to the attribute of the class.
+     */
+    protected boolean isKept(ReadQuery query, ClassDescriptor descriptor, boolean isNew, String attribute) {
+        IdentityMapManager manager = session.getIdentityMapAccessorInstance().getIdentityMapManager();
+        manager.putQueryResult(query, null, new ArrayList<Object>(Arrays.asList(new Employee())));
+        manager.invalidateQueryCache(descriptor.getJavaClass(), buildChangeSet(descriptor, isNew, attribute));
+        return manager.getQueryResult(query, null, false) != null;
+    }
+
+    /**
+     * Test the attributes used by queries, including through relationships to other classes and to the query's class.
+     */
+    public void testInvalidationAttributes() {
+        ExpressionBuilder builder = new ExpressionBuilder();
+        assertEquals(Collections.singleton("name"), buildQuery("name", builder.get("name").equal(builder.getParameter("n"))).getQueryResultsInvalidationAttributes());
+
+        builder = new ExpressionBuilder();
+        ReadAllQuery query = buildQuery("department", builder.get("department").get("name").equal("Sales"));
+        query.addOrdering(builder.get("salary"));
+        assertEquals(new HashSet<String>(Arrays.asList("department", "salary")), query.getQueryResultsInvalidationAttributes());
+
+        // Traversing a relationship to the query's own class uses the attributes of other objects of the class.
+        builder = new ExpressionBuilder();
+        assertNull(buildQuery("manager", builder.get("manager").get("name").equal(builder.getParameter("n"))).getQueryResultsInvalidationAttributes());
+        builder = new ExpressionBuilder();
+        assertNull(buildQuery("reports", builder.anyOf("reports").get("salary").greaterThan(100)).getQueryResultsInvalidationAttributes());
+        builder = new ExpressionBuilder();
+        assertNull(buildQuery("managerDepartment", builder.get("manager").get("department").get("name").equal("Sales")).getQueryResultsInvalidationAttributes());
+
+        // Comparing the relationship itself only uses the relationship attribute.
+        builder = new ExpressionBuilder();
+        assertEquals(Collections.singleton("manager"), buildQuery("managerObject", builder.get("manager").equal(builder.getParameter("m"))).getQueryResultsInvalidationAttributes());
+
+        ReportQuery report = cache(new ReportQuery(Employee.class, new ExpressionBuilder()), "reportManager");
+        report.addAttribute("managerName", report.getExpressionBuilder().get("manager").get("name"));
+        assertNull(report.getQueryResultsInvalidationAttributes());
+        report = cache(new ReportQuery(Employee.class, new ExpressionBuilder()), "reportDepartment");
+        report.addAttribute("departmentName", report.getExpressionBuilder().get("department").get("name"));
+        report.addAttribute("name");
+        Set<String> attributes = report.getQueryResultsInvalidationAttributes();
+        assertEquals(new HashSet<String>(Arrays.asList("department", "name")), attributes);
+    }
+
+    /**
+     * Test that only the changes to the attributes a query uses invalidate its results.
+     */
+    public void testSelectiveInvalidation() {
+        ExpressionBuilder builder = new ExpressionBuilder();
+        ReadAllQuery query = buildQuery("byName", builder.get("name").equal(builder.getParameter("n")));
+        assertTrue("Results invalidated by an unused attribute", isKept(query, employeeDescriptor, false, "salary"));
+        assertFalse("Results kept after a change to a used attribute", isKept(query, employeeDescriptor, false, "name"));
+        assertFalse("Results kept after a new object", isKept(query, employeeDescriptor, true, "salary"));
+
+        builder = new ExpressionBuilder();
+        query = buildQuery("byDepartment", builder.get("department").get("name").equal("Sales"));
+        assertTrue("Results invalidated by an unused attribute", isKept(query, employeeDescriptor, false, "salary"));
+        assertFalse("Results kept after a change to a joined class", isKept(query, departmentDescriptor, false, "name"));
+
+        // A change to any attribute of an employee may be a change to a manager's name.
+        builder = new ExpressionBuilder();
+        query = buildQuery("byManager", builder.get("manager").get("name").equal(builder.getParameter("n")));
+        assertFalse("Results kept after a change to a manager", isKept(query, employeeDescriptor, false, "name"));
+        assertFalse("Results kept after a change to a manager", isKept(query, employeeDescriptor, false, "salary"));
+    }
+
+    /**
+     * Test that the results bounded by size evict the results saving the least query time per byte,
+     * and that results larger than the bound are not cached.
+     */
+    public void testSizeBoundedResults() {
+        List<String> first = Collections.singletonList("a");
+        QueryResultsIdentityMap map = new QueryResultsIdentityMap(200, session, null);
+        map.put(key(1), first, 0, 1000);
+        map.put(key(2), Collections.singletonList("b"), 0, 1);
+        map.getCacheKey(key(1), false);
+        long size = map.getCachedSize();
+        assertTrue("Results not sized", size > 0);
+
+        map.put(key(3), Collections.singletonList("c"), 0, 10);
+        assertTrue(map.getCachedSize() <= 200);
+        assertNotNull("Expensive results evicted", map.getCacheKey(key(1), false));
+        assertNull("Cheap results not evicted", map.getCacheKey(key(2), false));
+        assertNotNull("Results just put evicted", map.getCacheKey(key(3), false));
+
+        // Results larger than the bound are not cached, and replace the previous results.
+        List<String> large = new ArrayList<String>();
+        for (int index = 0; index < 10; index++) {
+            large.add("value" + index);
+        }
+        assertNull(map.put(key(1), large, 0, 1000));
+        assertNull("Stale results kept", map.getCacheKey(key(1), false));
+        assertNotNull(map.getCacheKey(key(3), false));
+        assertEquals(size / 2, map.getCachedSize());
+
+        // Through the query results cache.
+        ExpressionBuilder builder = new ExpressionBuilder();
+        ReadAllQuery query = buildQuery("bounded", builder.get("name").equal(builder.getParameter("n")));
+        query.getQueryResultsCachePolicy().setMaximumCachedSize(200);
+        IdentityMapManager manager = session.getIdentityMapAccessorInstance().getIdentityMapManager();
+        manager.putQueryResult(query, Arrays.asList("a"), first);
+        manager.putQueryResult(query, Arrays.asList("b"), large);
+        assertEquals(first, manager.getQueryResult(query, Arrays.asList("a"), false));
+        assertNull(manager.getQueryResult(query, Arrays.asList("b"), false));
+    }
+
+    protected static CacheId key(int value) {
+        return new CacheId(new Object[] {Integer.valueOf(value)});
+    }
+
+    public static class Employee {
+        public long id;
+        public String name;
+        public long salary;
+        public Employee manager;
+        public List<Employee> reports;
+        public Department department;
+    }
+
+    public static class Department {
+        public long id;
+        public String name;
+    }
+}
@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.testing.tests.helper;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.eclipse.persistence.internal.oxm.XPathFragment;
+import org.eclipse.persistence.internal.oxm.XPathNode;
+import org.eclipse.persistence.internal.oxm.XPathNodeDispatchTable;
+import org.eclipse.persistence.internal.oxm.XPathPredicate;
+
+/**
+ * Test that an XPathNodeDispatchTable returns the same child as looking up the unmarshaller's
+ * plain fragment in the children map, which compares the fragments with XPathFragment.equals,
+ * for randomly generated children and names.
+ */
+public class XPathNodeDispatchTableTest extends junit.framework.TestCase {
+    protected static final int MAPS = 2000;
+    protected static final int LOOKUPS = 200;
+    /** Keeps the fragments of a local name, which have the same hash, in a list bucket of the map. */
+    protected static final int MAX_FRAGMENTS_PER_NAME = 8;
+
+    protected static final String[] LOCAL_NAMES = new String[] {"a", "b", "item", "name", "id", "Aa", "BB", "value", "x1", "x2", "x3", "x4"};
+    protected static final String[] NAMESPACE_URIS = new String[] {null, "urn:a", "urn:b", "urn:c"};
+
+    public XPathNodeDispatchTableTest(String name) {
+        super(name);
+    }
+
+    /**
+     * Return a child fragment as built from a mapping's XPath: possibly namespace unaware, indexed,
+     * with a predicate or the text node.
+     */
+    protected static XPathFragment randomFragment(Random random, boolean isAttribute) {
+        if (!isAttribute && random.nextInt(20) == 0) {
+            return new XPathFragment("text()");
+        }
+        XPathFragment fragment = new XPathFragment(LOCAL_NAMES[random.nextInt(LOCAL_NAMES.length)]);
+        fragment.setAttribute(isAttribute);
+        fragment.setNamespaceAware(random.nextInt(4) != 0);
+        fragment.setNamespaceURI(NAMESPACE_URIS[random.nextInt(NAMESPACE_URIS.length)]);
+        int positional = random.nextInt(10);
+        if (positional == 0) {
+            fragment.setIndexValue(1 + random.nextInt(3));
+        } else if (positional == 1) {
+            fragment.setPredicate(new XPathPredicate(new XPathFragment("@type"), "t" + random.nextInt(2)));
+        }
+        return fragment;
+    }
+
+    /**
+     * Return a children map filled as XPathNode.addChild does, a HashMap for attributes
+     * and a LinkedHashMap for elements.
+     */
+    protected static Map<XPathFragment, XPathNode> randomChildrenMap(Random random, boolean isAttribute) {
+        Map<XPathFragment, XPathNode> childrenMap = isAttribute ? new HashMap<XPathFragment, XPathNode>() : new LinkedHashMap<XPathFragment, XPathNode>();
+        Map<String, Integer> fragmentsPerName = new HashMap<String, Integer>();
+        for (int index = random.nextInt(24); index > 0; index--) {
+            XPathFragment fragment = randomFragment(random, isAttribute);
+            Integer count = fragmentsPerName.get(fragment.getLocalName());
+            count = (count == null) ? 1 : count + 1;
+            if (count > MAX_FRAGMENTS_PER_NAME || childrenMap.containsKey(fragment)) {
+                continue;
+            }
+            fragmentsPerName.put(fragment.getLocalName(), count);
+            childrenMap.put(fragment, new XPathNode());
+        }
+        return childrenMap;
+    }
+
+    /**
+     * Return the child of the first fragment equal to the unmarshaller's fragment, in the order of the map.
+     */
+    protected static XPathNode equalsLookup(Map<XPathFragment, XPathNode> childrenMap, XPathFragment lookupFragment) {
+        for (Map.Entry<XPathFragment, XPathNode> entry : childrenMap.entrySet()) {
+            if (lookupFragment.equals(entry.getKey())) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    protected void verifyLookups(long seed, boolean isAttribute) {
+        Random random = new Random(seed);
+        Map<XPathFragment, XPathNode> childrenMap = randomChildrenMap(random, isAttribute);
+        XPathNodeDispatchTable dispatchTable = new XPathNodeDispatchTable(childrenMap);
+
+        boolean hasPositionalChildren = false;
+        for (XPathFragment fragment : childrenMap.keySet()) {
+            hasPositionalChildren = hasPositionalChildren || fragment.getIndexValue() != -1 || fragment.getPredicate() != null;
+        }
+        assertEquals("Positional children for seed " + seed, hasPositionalChildren, dispatchTable.hasPositionalChildren());
+
+        // The unmarshaller looks up a plain fragment, with no index or predicate.
+        XPathFragment lookupFragment = new XPathFragment();
+        for (int lookup = 0; lookup < LOOKUPS; lookup++) {
+            String localName;
+            if (random.nextInt(10) == 0) {
+                localName = "missing" + random.nextInt(3);
+            } else {
+                // The parser's names are not always interned.
+                localName = new String(LOCAL_NAMES[random.nextInt(LOCAL_NAMES.length)]);
+            }
+            String namespaceURI = (random.nextInt(10) == 0) ? "urn:missing" : NAMESPACE_URIS[random.nextInt(NAMESPACE_URIS.length)];
+            boolean namespaceAware = random.nextInt(4) != 0;
+            lookupFragment.setLocalName(localName);
+            lookupFragment.setNamespaceURI(namespaceURI);
+            lookupFragment.setNamespaceAware(namespaceAware);
+
+            XPathNode expected = equalsLookup(childrenMap, lookupFragment);
+            assertSame("Children map differs from equals for seed " + seed, expected, childrenMap.get(lookupFragment));
+            XPathNode result = dispatchTable.get(lookupFragment.getNamespaceURI(), localName, namespaceAware);
+            assertSame("Wrong child for {" + namespaceURI + "}" + localName + " namespaceAware=" + namespaceAware + " for seed " + seed,
+                    expected, result);
+        }
+    }
+
+    /**
+     * Test the element children tables against equals lookups in random children maps.
+     */
+    public void testRandomElementChildren() {
+        for (long seed = 0; seed < MAPS; seed++) {
+            verifyLookups(seed, false);
+        }
+    }
+
+    /**
+     * Test the attribute children tables against equals lookups in random children maps.
+     */
+    public void testRandomAttributeChildren() {
+        for (long seed = 0; seed < MAPS; seed++) {
+            verifyLookups(seed, true);
+        }
+    }
+
+    /**
+     * Test that a namespace unaware child matches any namespace, and that the first matching
+     * child in the order of the map is returned.
+     */
+    public void testNamespaceMatching() {
+        Map<XPathFragment, XPathNode> childrenMap = new LinkedHashMap<XPathFragment, XPathNode>();
+        XPathFragment namespaced = new XPathFragment("item");
+        namespaced.setNamespaceURI("urn:a");
+        XPathNode namespacedNode = new XPathNode();
+        childrenMap.put(namespaced, namespacedNode);
+        XPathFragment unaware = new XPathFragment("name");
+        unaware.setNamespaceAware(false);
+        unaware.setNamespaceURI("urn:b");
+        XPathNode unawareNode = new XPathNode();
+        childrenMap.put(unaware, unawareNode);
+        XPathFragment indexed = new XPathFragment("name[2]");
+        childrenMap.put(indexed, new XPathNode());
+
+        XPathNodeDispatchTable dispatchTable = new XPathNodeDispatchTable(childrenMap);
+        assertTrue(dispatchTable.hasPositionalChildren());
+        assertSame(namespacedNode, dispatchTable.get("urn:a", "item", true));
+        assertNull(dispatchTable.get("urn:b", "item", true));
+        assertNull(dispatchTable.get(null, "item", true));
+        assertSame(namespacedNode, dispatchTable.get(null, "item", false));
+        assertSame(unawareNode, dispatchTable.get("urn:c", "name", true));
+        assertSame(unawareNode, dispatchTable.get(null, new String("name"), true));
+        assertNull(dispatchTable.get(null, "missing", true));
+        assertFalse(new XPathNodeDispatchTable(new HashMap<XPathFragment, XPathNode>()).hasPositionalChildren());
+    }
+}
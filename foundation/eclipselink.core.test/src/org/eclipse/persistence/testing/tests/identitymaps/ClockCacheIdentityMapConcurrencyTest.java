@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.testing.tests.identitymaps;
+
+import java.util.*;
+import org.eclipse.persistence.testing.framework.*;
+import org.eclipse.persistence.internal.identitymaps.*;
+
+/**
+ * Concurrently put, get and remove objects in a ClockCacheIdentityMap,
+ * and verify the map is reduced to its max size and still returns the cached objects.
+ */
+public class ClockCacheIdentityMapConcurrencyTest extends TestCase {
+    public static final int THREADS = 8;
+    public static final int MAX_SIZE = 100;
+    public static final int KEYS = 1000;
+    public static final int ITERATIONS = 10000;
+
+    protected ClockCacheIdentityMap identityMap;
+    protected List<Throwable> errors;
+
+    public ClockCacheIdentityMapConcurrencyTest() {
+        setDescription("Tests concurrent access to a ClockCacheIdentityMap.");
+    }
+
+    public void setup() {
+        identityMap = new ClockCacheIdentityMap(MAX_SIZE, null, null, false);
+        errors = Collections.synchronizedList(new ArrayList<Throwable>());
+    }
+
+    public void test() throws Exception {
+        Thread[] threads = new Thread[THREADS];
+        for (int index = 0; index < THREADS; index++) {
+            final int seed = index;
+            threads[index] = new Thread() {
+                public void run() {
+                    try {
+                        Random random = new Random(seed);
+                        for (int count = 0; count < ITERATIONS; count++) {
+                            Integer key = Integer.valueOf(random.nextInt(KEYS));
+                            int operation = random.nextInt(10);
+                            if (operation == 0) {
+                                identityMap.remove(key, null);
+                            } else if (operation < 4) {
+                                identityMap.put(key, "value" + key, null, 0);
+                            } else {
+                                Object value = identityMap.get(key);
+                                if ((value != null) && !value.equals("value" + key)) {
+                                    throw new TestErrorException("Wrong value: " + value + " for key: " + key);
+                                }
+                            }
+                        }
+                    } catch (Throwable error) {
+                        errors.add(error);
+                    }
+                }
+            };
+            threads[index].start();
+        }
+        for (int index = 0; index < THREADS; index++) {
+            threads[index].join();
+        }
+        // A final single threaded put always sweeps the map back to its max size.
+        identityMap.put(Integer.valueOf(KEYS), "value" + KEYS, null, 0);
+    }
+
+    public void verify() {
+        if (!errors.isEmpty()) {
+            throw new TestErrorException("Error during concurrent access.", errors.get(0));
+        }
+        if (identityMap.getSize() > MAX_SIZE) {
+            throw new TestErrorException("The ClockCacheIdentityMap was not reduced to its max size, size: " + identityMap.getSize());
+        }
+        if (identityMap.get(Integer.valueOf(KEYS)) == null) {
+            throw new TestErrorException("The last object put was evicted from the ClockCacheIdentityMap.");
+        }
+    }
+}
@@ -55,6 +55,7 @@ public void addTests() {
         addTest(getFullIdentityMapSuite());
         addTest(getNoIdentityMapSuite());
         addTest(getCacheIdentityMapSuite());
+        addTest(getClockCacheIdentityMapSuite());
         addTest(getSoftCacheWeakIdentityMapSuite());
         addTest(getHardCacheWeakIdentityMapSuite());
         addTest(getWeakIdentityMapSuite());
@@ -79,6 +80,18 @@ private TestSuite getCacheIdentityMapSuite() {
         return suite;
     }
 
+    private TestSuite getClockCacheIdentityMapSuite() {
+        TestSuite suite = new TestSuite();
+        suite.setName("Clock Cache IdentityMap Test Suite");
+        suite.setDescription("This suite tests the functionality of the ClockCacheIdentityMap");
+
+        suite.addTest(new RegisterInIdentityMapTest(ClockCacheIdentityMap.class));
+        suite.addTest(new DeleteFromIdentityMapTest(ClockCacheIdentityMap.class));
+        suite.addTest(new SetWriteLockInIdentityMapTest(ClockCacheIdentityMap.class));
+        suite.addTest(new ClockCacheIdentityMapConcurrencyTest());
+        return suite;
+    }
+
     private TestSuite getFullIdentityMapSuite() {
         TestSuite suite = new TestSuite();
 
@@ -67,7 +67,7 @@ protected Object getObjectFromIdentityMap(Object domainObject) {
     }
 
     protected boolean isCacheIdentityMap() {
-        return identityMapClass == CacheIdentityMap.class;
+        return (identityMapClass == CacheIdentityMap.class) || (identityMapClass == ClockCacheIdentityMap.class);
     }
 
     protected boolean isFullIdentityMap() {
@@ -73,6 +73,18 @@ public enum CacheType {
      */
     CACHE,
 
+    /**
+     * Similar to the CACHE identity map, a fixed number of objects specified
+     * by the application are maintained, but objects are removed using CLOCK
+     * (second chance) eviction, which approximates least-recently-used.
+     * Accessing an object does not lock the cache, so this cache type scales
+     * better than CACHE under concurrent reads.
+     * WARNING: Furnishes caching and identity, but does not guarantee
+     * identity.  This cache type should normally only be used for objects
+     * that have no relationships to them.
+     */
+    CLOCK,
+
     /**
      * WARNING: Does not preserve object identity and does not cache
      * objects.  This cache type is not recommend and should normally not be used.
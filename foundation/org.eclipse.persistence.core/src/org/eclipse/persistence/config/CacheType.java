@@ -76,6 +76,15 @@ public class CacheType {
      */
     public static final String  Full = "Full";
 
+    /**
+     * A Clock cache holds a fixed number of objects read by the application,
+     * removing the objects not accessed recently using CLOCK (second chance) eviction.
+     * Accessing an object does not lock the cache.
+     * This does not guarantee object identity, and provides a fixed size caching benefit.
+     * <p>WARNING: This cache type should normally only be used for objects that have no relationships to them.
+     */
+    public static final String  Clock = "Clock";
+
     /**
      * NONE does not cache any objects.
      * It allows any un-referenced objects to be free to garbage collection.
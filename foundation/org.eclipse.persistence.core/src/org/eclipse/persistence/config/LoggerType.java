@@ -26,6 +26,7 @@ public class LoggerType {
     public static final String DefaultLogger = "DefaultLogger";
     public static final String JavaLogger = "JavaLogger";
     public static final String ServerLogger = "ServerLogger";
+    public static final String AsynchronousLogger = "AsynchronousLogger";
 
     public static final String DEFAULT = DefaultLogger;
 }
@@ -68,6 +68,7 @@
 import org.eclipse.persistence.internal.databaseaccess.BatchWritingMechanism;
 import org.eclipse.persistence.internal.helper.Helper;
 import org.eclipse.persistence.internal.sessions.remote.RemoteConnection;
+import org.eclipse.persistence.logging.AsynchronousSessionLog;
 import org.eclipse.persistence.logging.DefaultSessionLog;
 import org.eclipse.persistence.logging.SessionLog;
 import org.eclipse.persistence.platform.database.DatabasePlatform;
@@ -87,6 +88,7 @@
 import org.eclipse.persistence.sessions.factories.SessionManager;
 import org.eclipse.persistence.sessions.remote.RemoteSession;
 import org.eclipse.persistence.sessions.serializers.Serializer;
+import org.eclipse.persistence.tools.profiler.ConcurrentPerformanceMonitor;
 import org.eclipse.persistence.tools.profiler.PerformanceMonitor;
 import org.eclipse.persistence.tools.profiler.PerformanceProfiler;
 import org.eclipse.persistence.tools.profiler.QueryMonitor;
@@ -286,6 +288,75 @@ public class PersistenceUnitProperties {
      */
     public static final String JPQL_VALIDATION = "eclipselink.jpql.validation";
 
+    /**
+     * The "<code>eclipselink.jpql.parse-cache.size</code>" property
+     * specifies the number of parsed JPQL queries held in the parse cache.
+     * Dynamic JPQL that is found in the parse cache is not parsed again.
+     * When the cache is full, the least frequently used queries are replaced.
+     * <p>
+     * Default: 200
+     * <p>
+     * <b>Allowed Values:</b>
+     * <ul>
+     * <li>a string containing a zero or greater integer value, 0 disables the cache.
+     * </ul>
+     *
+     * @see org.eclipse.persistence.sessions.Project#setJPQLParseCacheMaxSize(int)
+     */
+    public static final String JPQL_PARSE_CACHE_SIZE = "eclipselink.jpql.parse-cache.size";
+
+    /**
+     * The "<code>eclipselink.query.criteria-cache.size</code>" property
+     * specifies the number of prepared criteria queries held in the criteria query cache.
+     * A criteria query with the same structure as a cached one reuses its
+     * prepared query instead of being translated and prepared again.
+     * When the cache is full, the least frequently used queries are replaced.
+     * <p>
+     * Default: 200
+     * <p>
+     * <b>Allowed Values:</b>
+     * <ul>
+     * <li>a string containing a zero or greater integer value, 0 disables the cache.
+     * </ul>
+     *
+     * @see org.eclipse.persistence.sessions.Project#setCriteriaQueryCacheMaxSize(int)
+     */
+    public static final String CRITERIA_QUERY_CACHE_SIZE = "eclipselink.query.criteria-cache.size";
+
+    /**
+     * The "<code>eclipselink.query.expression-cache.size</code>" property
+     * specifies the number of dynamic expression queries cached for each entity
+     * to avoid regenerating their SQL.
+     * When the cache is full, the least frequently used queries are replaced.
+     * <p>
+     * Default: 20
+     * <p>
+     * <b>Allowed Values:</b>
+     * <ul>
+     * <li>a string containing a zero or greater integer value, 0 disables the cache.
+     * </ul>
+     *
+     * @see org.eclipse.persistence.descriptors.DescriptorQueryManager#setExpressionQueryCacheMaxSize(int)
+     */
+    public static final String EXPRESSION_QUERY_CACHE_SIZE = "eclipselink.query.expression-cache.size";
+
+    /**
+     * The "<code>eclipselink.query.update-call-cache.size</code>" property
+     * specifies the number of update calls cached for each entity.
+     * Every update of a different set of fields produces different SQL,
+     * this cache avoids regenerating the SQL for the most frequently updated sets of fields.
+     * <p>
+     * Default: 10
+     * <p>
+     * <b>Allowed Values:</b>
+     * <ul>
+     * <li>a string containing a zero or greater integer value, 0 disables the cache.
+     * </ul>
+     *
+     * @see org.eclipse.persistence.descriptors.DescriptorQueryManager#setUpdateCallCacheSize(int)
+     */
+    public static final String UPDATE_CALL_CACHE_SIZE = "eclipselink.query.update-call-cache.size";
+
     /**
      * The "<code>wait</code>" property.<br>
      * This can be append to any connection pool property,
@@ -449,6 +520,53 @@ public class PersistenceUnitProperties {
      */
     public static final String CONNECTION_POOL_FAILOVER = "failover";
 
+    /**
+     * The "<code>concurrent</code>" property.<br>
+     * This can be append to a connection pool property,
+     * i.e. "<code>eclipselink.connection-pool.default.concurrent</code>".<br>
+     * Configures the pool to acquire and release connections without locking,
+     * threads waiting for a connection are served in FIFO order.
+     * <p>
+     * This property is ignored in case external connection pools are used,
+     * or for a shared read connection pool.
+     * <p>
+     * <b>Allowed Values</b> (String)<b>:</b>
+     * <ul>
+     * <li>"<code>false</code>" (DEFAULT) - the pool synchronizes acquiring and releasing connections
+     * <li>"<code>true</code>" - the pool acquires and releases connections without locking
+     * </ul>
+     *
+     * @see #CONNECTION_POOL
+     * @see org.eclipse.persistence.sessions.server.ConcurrentConnectionPool
+     */
+    public static final String CONNECTION_POOL_CONCURRENT = "concurrent";
+
+    /**
+     * The "<code>idle-timeout</code>" property.<br>
+     * This can be append to a concurrent connection pool property,
+     * i.e. "<code>eclipselink.connection-pool.default.idle-timeout</code>".<br>
+     * Configures the time in milliseconds (ms) an idle connection above the minimum
+     * number of connections is kept before it is disconnected.
+     * <p>
+     * Default: 0, connections above the minimum are disconnected when released.
+     *
+     * @see #CONNECTION_POOL_CONCURRENT
+     */
+    public static final String CONNECTION_POOL_IDLE_TIMEOUT = "idle-timeout";
+
+    /**
+     * The "<code>validation-interval</code>" property.<br>
+     * This can be append to a concurrent connection pool property,
+     * i.e. "<code>eclipselink.connection-pool.default.validation-interval</code>".<br>
+     * Configures the time in milliseconds (ms) between validations of idle connections,
+     * connections that fail validation are removed from the pool.
+     * <p>
+     * Default: 0, idle connections are only validated after a communication failure.
+     *
+     * @see #CONNECTION_POOL_CONCURRENT
+     */
+    public static final String CONNECTION_POOL_VALIDATION_INTERVAL = "validation-interval";
+
     /**
      * Allow configuring a "<code>eclipselink.connection-pool.</code>" properties.
      * The name of the connection pool must be appended to configure the pool,
@@ -473,6 +591,9 @@ public class PersistenceUnitProperties {
      * <li> "<code>wait</code>" - amount of time to wait for a connection from the pool.
      * <li> "<code>url</code>" - JDBC URL for the connection.
      * <li> "<code>shared</code>" - only for the read connection pool, shares read connections across threads.
+     * <li> "<code>concurrent</code>" - acquire and release connections without locking.
+     * <li> "<code>idle-timeout</code>" - only for concurrent pools, time an idle connection above the minimum is kept.
+     * <li> "<code>validation-interval</code>" - only for concurrent pools, time between validations of idle connections.
      * <li> "<code>jtaDataSource</code>" - JTA DataSource name to use for the connection, if different than the default.
      * <li> "<code>nonJtaDataSource</code>" - non JTA DataSource name to use for the connection, if different than the default.
      * <li> "<code>user</code>" - user to use for the connection, if different than the default.
@@ -496,6 +617,9 @@ public class PersistenceUnitProperties {
      * @see #CONNECTION_POOL_JTA_DATA_SOURCE
      * @see #CONNECTION_POOL_NON_JTA_DATA_SOURCE
      * @see #CONNECTION_POOL_SHARED
+     * @see #CONNECTION_POOL_CONCURRENT
+     * @see #CONNECTION_POOL_IDLE_TIMEOUT
+     * @see #CONNECTION_POOL_VALIDATION_INTERVAL
      * @see org.eclipse.persistence.sessions.server.ConnectionPool
      */
     public static final String CONNECTION_POOL = "eclipselink.connection-pool.";
@@ -1005,6 +1129,28 @@ public class PersistenceUnitProperties {
      */
     public static final String PARTITIONING_CALLBACK = "eclipselink.partitioning.callback";
 
+    /**
+     * The "<code>eclipselink.partitioning.parallel</code>" property controls whether queries that
+     * a partitioning policy sends to multiple partitions are executed on each partition in parallel.
+     * <p>
+     * Setting this to "<code>true</code>" executes the query concurrently on each partition's connection,
+     * and gathers the results, merging them in the query's order, applying the first result and max results
+     * across all the partitions and combining count, sum, min and max aggregates.
+     * A query against several partitions then takes the time of the slowest partition instead of the sum
+     * of all of them. A failure on any partition is logged for that partition and fails the query.
+     * <p>
+     * <b>Allowed Values:</b>
+     * <ul>
+     * <li>"<code>false</code>" (DEFAULT)
+     * <li>"<code>true</code>"
+     * </ul>
+     *
+     * @see org.eclipse.persistence.sessions.Project#setShouldExecutePartitionsInParallel(boolean)
+     * @see org.eclipse.persistence.descriptors.partitioning.UnionPartitioningPolicy
+     * @see org.eclipse.persistence.descriptors.partitioning.ReplicationPartitioningPolicy
+     */
+    public static final String PARTITIONING_PARALLEL = "eclipselink.partitioning.parallel";
+
     /**
      * Property "<code>eclipselink.jdbc.bind-parameters</code>" configures whether parameter binding will be used in the
      * creation of JDBC prepared statements. Usage of parameter binding is
@@ -1597,6 +1743,39 @@ public class PersistenceUnitProperties {
      */
     public static final String LOGGING_FILE = "eclipselink.logging.file";
 
+    /**
+     * The "<code>eclipselink.logging.buffer-size</code>" property configures the number of
+     * log entries the ring buffer of an {@link AsynchronousSessionLog} can hold before logging
+     * threads wait for its writer thread, or drop entries.
+     * It is rounded up to a power of two.
+     * <p>
+     * <b>Allowed Values:</b>
+     * <ul>
+     * <li>a string containing a positive integer value (DEFAULT: 1024)
+     * </ul>
+     *
+     * @see LoggerType#AsynchronousLogger
+     * @see AsynchronousSessionLog#setBufferSize(int)
+     */
+    public static final String LOGGING_BUFFER_SIZE = "eclipselink.logging.buffer-size";
+
+    /**
+     * The "<code>eclipselink.logging.drop-when-full</code>" property configures whether an
+     * {@link AsynchronousSessionLog} drops log entries when its ring buffer is full,
+     * instead of making the logging threads wait for its writer thread.
+     * The number of dropped entries is logged once the buffer has room.
+     * <p>
+     * <b>Allowed Values:</b>
+     * <ul>
+     * <li>"<code>false</code>" (DEFAULT)
+     * <li>"<code>true</code>"
+     * </ul>
+     *
+     * @see LoggerType#AsynchronousLogger
+     * @see AsynchronousSessionLog#setShouldDropEntriesWhenFull(boolean)
+     */
+    public static final String LOGGING_DROP_WHEN_FULL = "eclipselink.logging.drop-when-full";
+
     // Multitenancy properties
 
     /**
@@ -2348,6 +2527,8 @@ public class PersistenceUnitProperties {
      * batch writing.
      * <li>"<code>Oracle-JDBC</code>" - use Oracle's native batch writing. This requires the
      * use of an Oracle JDBC driver.
+     * <li>"<code>Grouped</code>" - use JDBC batch writing, grouping the parameterized statements
+     * of each class in the commit order by table, so they are executed in larger batches.
      * <li>"<code>None</code>" (DEFAULT): do not use batch writing (turn it off).
      * <li>the fully qualified name for a class that extends {@link BatchWritingMechanism} abstract class
      * </ul>
@@ -2465,6 +2646,9 @@ public class PersistenceUnitProperties {
      * <b>Allowed Values:</b>
      * <ul>
      * <li>"<code>java-serialization</code>" - use {@link org.eclipse.persistence.jpa.metadata.FileBasedProjectCache FileBasedProjectCache}
+     * <li>"<code>snapshot</code>" - use {@link org.eclipse.persistence.jpa.metadata.SnapshotProjectCache SnapshotProjectCache},
+     * a file that is only used while the persistence unit classes, mapping files and properties are unchanged,
+     * otherwise the persistence unit is processed and the file replaced
      * <li>the fully qualified name for a class that implements {@link org.eclipse.persistence.jpa.metadata.ProjectCache} interface
      * </ul>
      *
@@ -2478,7 +2662,8 @@ public class PersistenceUnitProperties {
      * <p>Specifies the name of the metadata repository xml file to read from using classloader to find the resource</p>
      *
      * <p>This property should be used in conjunction with
-     * "<code>eclipselink.project-cache</code>" when a project is serialized to a file for caching.</p>
+     * "<code>eclipselink.project-cache</code>" when a project is serialized to a file for caching,
+     * with either the "<code>java-serialization</code>" or the "<code>snapshot</code>" cache.</p>
      *
      * @see #PROJECT_CACHE
      */
@@ -2612,6 +2797,88 @@ public class PersistenceUnitProperties {
      */
     public static final String DEPLOY_ON_STARTUP = "eclipselink.deploy-on-startup";
 
+    /**
+     * The "<code>eclipselink.deploy.parallel</code>" property controls whether
+     * independent deployment work is run in parallel on a fork-join pool.
+     * <p>
+     * Setting this to "<code>true</code>" reads the class files of the persistence unit
+     * classes in parallel when the metadata is processed, and initializes the descriptors
+     * in parallel on login. Descriptors related through inheritance are initialized
+     * together, and descriptors referencing each other through their mappings
+     * are never initialized at the same time.
+     * This may reduce the deployment time of persistence units with a large number of entities.
+     * <p>
+     * <b>Allowed Values:</b>
+     * <ul>
+     * <li>"<code>false</code>" (DEFAULT)
+     * <li>"<code>true</code>"
+     * </ul>
+     *
+     * @see org.eclipse.persistence.sessions.Project#setShouldInitializeDescriptorsInParallel(boolean)
+     */
+    public static final String PARALLEL_DEPLOYMENT = "eclipselink.deploy.parallel";
+
+    /**
+     * The "<code>eclipselink.persistence-context.parallel-change-calculation</code>" property
+     * controls whether the objects of a persistence context are compared to their backup
+     * copies in parallel on a fork-join pool when changes are calculated on commit or flush.
+     * <p>
+     * Setting this to "<code>true</code>" finds the objects that have not changed in parallel
+     * when the persistence context contains a large number of objects, the changes of the
+     * other objects are then calculated as usual, in the same order.
+     * This only applies to entities using deferred change detection (i.e. not weaved for change
+     * tracking), and is not used if any of the entities have event listeners or callbacks.
+     * This may reduce the commit time of batch jobs updating a large number of entities.
+     * <p>
+     * <b>Allowed Values:</b>
+     * <ul>
+     * <li>"<code>false</code>" (DEFAULT)
+     * <li>"<code>true</code>"
+     * </ul>
+     *
+     * @see org.eclipse.persistence.sessions.Project#setShouldCalculateChangesInParallel(boolean)
+     */
+    public static final String PARALLEL_CHANGE_CALCULATION = "eclipselink.persistence-context.parallel-change-calculation";
+
+    /**
+     * The "<code>eclipselink.cache.parallel-merge</code>" property controls whether
+     * the changes of a commit are merged into the shared cache in parallel on a fork-join pool.
+     * <p>
+     * Setting this to "<code>true</code>" merges the existing entities that only changed
+     * basic attributes concurrently, once the cache locks of the commit are acquired,
+     * when the commit changes a large number of entities. Other entities are merged as usual.
+     * This reduces the time that other threads reading the changed entities wait on their locks.
+     * <p>
+     * <b>Allowed Values:</b>
+     * <ul>
+     * <li>"<code>false</code>" (DEFAULT)
+     * <li>"<code>true</code>"
+     * </ul>
+     *
+     * @see org.eclipse.persistence.sessions.Project#setShouldMergeChangesInParallel(boolean)
+     */
+    public static final String PARALLEL_CACHE_MERGE = "eclipselink.cache.parallel-merge";
+
+    /**
+     * The "<code>eclipselink.cache.lock-free-read-locks</code>" property controls whether
+     * cache read locks are acquired and released without synchronizing on the cache key
+     * when no other thread holds its lock.
+     * <p>
+     * Setting this to "<code>true</code>" reduces contention for entities that are read concurrently
+     * by many threads, writers still wait for the readers and are notified when the last reader releases.
+     * The setting applies to the cache of the persistence unit, the default
+     * can also be set for all persistence units through the system property of the same name.
+     * <p>
+     * <b>Allowed Values:</b>
+     * <ul>
+     * <li>"<code>false</code>" (DEFAULT)
+     * <li>"<code>true</code>"
+     * </ul>
+     *
+     * @see org.eclipse.persistence.sessions.Project#setShouldUseLockFreeReadLocks(boolean)
+     */
+    public static final String CACHE_LOCK_FREE_READ_LOCKS = "eclipselink.cache.lock-free-read-locks";
+
     /**
      * The "<code>eclipselink.validation-only</code>" property validates deployment
      * which includes initializing descriptors but does not connect (no login to the database).
@@ -2978,6 +3245,7 @@ public class PersistenceUnitProperties {
      * <ul>
      * <li>"<code>NoProfiler</code>" (DEFAULT)
      * <li>"<code>PerformanceMonitor</code>" - use {@link PerformanceMonitor}
+     * <li>"<code>ConcurrentPerformanceMonitor</code>" - use {@link ConcurrentPerformanceMonitor}
      * <li>"<code>PerformanceProfiler</code>" - use {@link PerformanceProfiler}
      * <li>"<code>QueryMonitor</code>" - use {@link QueryMonitor}
      * <li>"<code>DMSProfiler</code>" - use {@link org.eclipse.persistence.tools.profiler.oracle.DMSPerformanceProfiler}
@@ -3493,6 +3761,25 @@ public class PersistenceUnitProperties {
      */
     public static final String COORDINATION_THREAD_POOL_SIZE = "eclipselink.cache.coordination.thread.pool.size";
 
+    /**
+     * The "<code>eclipselink.thread.pool.type</code>" property configures the type of thread pool
+     * used for asynchronous processing, such as asynchronous cache coordination and idle connection checks.
+     * <p>
+     * <b>Allowed Values</b> (case insensitive String)<b>:</b>
+     * <ul>
+     * <li>"<code>Fixed</code>" (DEFAULT) - a pool of the thread pool size
+     * <li>"<code>WorkStealing</code>" - a work stealing pool with a parallelism of the thread pool size
+     * <li>"<code>Virtual</code>" - a new virtual thread per task, or a work stealing pool if virtual threads are not supported by the JVM
+     * </ul>
+     * <p>
+     * The type is ignored if the thread pool size is 0.
+     *
+     * @see #COORDINATION_THREAD_POOL_SIZE
+     * @see ThreadPoolType
+     * @see org.eclipse.persistence.platform.server.ServerPlatformBase#setThreadPoolType(String)
+     */
+    public static final String THREAD_POOL_TYPE = "eclipselink.thread.pool.type";
+
     /**
      * The "<code>eclipselink.cache.coordination.serializer</code>" property
      * configures how cache coordination serializes message sent between nodes.
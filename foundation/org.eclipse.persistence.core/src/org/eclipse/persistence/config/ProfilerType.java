@@ -30,6 +30,8 @@ public class ProfilerType {
     public static final String PerformanceProfiler = "PerformanceProfiler";
     public static final String QueryMonitor = "QueryMonitor";
     public static final String PerformanceMonitor = "PerformanceMonitor";
+    //A low overhead monitor with latency percentiles, that can be left on in production
+    public static final String ConcurrentPerformanceMonitor = "ConcurrentPerformanceMonitor";
     public static final String DMSProfiler = "DMSProfiler";
     public static final String NoProfiler = "NoProfiler";
 
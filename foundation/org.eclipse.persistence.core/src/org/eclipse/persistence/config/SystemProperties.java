@@ -59,6 +59,29 @@ public class SystemProperties {
      */
     public static final String RECORD_STACK_ON_LOCK = "eclipselink.cache.record-stack-on-lock";
 
+    /**
+     * This property can be set to "true" to acquire and release cache read locks
+     * without synchronizing on the cache key when no other thread holds its lock.
+     * A writer waiting on readers is still notified when the last reader releases.
+     * This reduces contention for objects that are read concurrently by many threads.
+     * The default is "false".
+     *
+     * This is the default of all sessions, it can be set for a persistence unit through the
+     * persistence unit property of the same name, or in code through Project.setShouldUseLockFreeReadLocks(true)
+     */
+    public static final String LOCK_FREE_READ_LOCKS = "eclipselink.cache.lock-free-read-locks";
+
+    /**
+     * This property sets the number of times an attribute accessor of a class that is not
+     * woven reads or writes its field or methods through reflection before it generates a
+     * class that accesses them directly. A value of "0" generates the class on first use,
+     * a negative value disables the generation so reflection is always used.
+     * The default is "15".
+     *
+     * @see org.eclipse.persistence.internal.descriptors.AttributeAccessGenerator
+     */
+    public static final String ATTRIBUTE_ACCESSOR_GENERATION_THRESHOLD = "eclipselink.attribute-accessor.generation-threshold";
+
     /**
      * This property can be set to disable processing of X-Many relationship
      * attributes for Query By Example objects. In previous versions of
@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.config;
+
+/**
+ * Thread pool type property values.
+ * Defines the executor used by the server platform to run asynchronous work,
+ * such as asynchronous cache coordination.
+ *
+ * <p>JPA persistence property Usage:
+ *
+ * <p><code>properties.add(PersistenceUnitProperties.THREAD_POOL_TYPE, ThreadPoolType.Virtual);</code>
+ * <p>Property values are case-insensitive.
+ *
+ * @see PersistenceUnitProperties#THREAD_POOL_TYPE
+ * @see org.eclipse.persistence.platform.server.ServerPlatformBase#setThreadPoolType(String)
+ */
+public class ThreadPoolType {
+    /** A pool with a fixed number of threads, the thread pool size. */
+    public static final String Fixed = "Fixed";
+    /** A work stealing fork join pool with a parallelism of the thread pool size. */
+    public static final String WorkStealing = "WorkStealing";
+    /** A new virtual thread per task, if the JVM does not support virtual threads a work stealing pool is used. */
+    public static final String Virtual = "Virtual";
+
+    public static final String DEFAULT = Fixed;
+}
@@ -22,12 +22,23 @@
 /**
  * <p><b>Purpose</b>:
  * Define a secondary index on the cache.
+ * <p>
+ * By default the index values are unique, and the index allows queries on all of the index fields
+ * to be obtained from the cache instead of the database.
+ * A non-unique or sorted index instead maintains the cache keys of all of the objects with the same
+ * index values, and is used by in-memory queries (check cache only, or conforming) to avoid scanning the
+ * whole cache. A non-unique index is used for equality on all of its fields, a sorted index with a single
+ * field is also used for the &lt;, &lt;=, &gt;, &gt;= and between operators.
+ * Such an index indexes every object read, merged or put into the cache, whether or not it is
+ * insertable or updateable, and is only used if it indexes as many objects as the cache holds.
  *
  * @see CachePolicy
  */
 public class CacheIndex implements Cloneable, Serializable {
     protected boolean isUpdateable = true;
     protected boolean isInsertable = true;
+    protected boolean isUnique = true;
+    protected boolean isSorted = false;
 
     protected List<DatabaseField> fields;
     /** Allows the cache size to be set. */
@@ -93,6 +104,52 @@ public void setIsInsertable(boolean isInsertable) {
         this.isInsertable = isInsertable;
     }
 
+    /**
+     * PUBLIC:
+     * Return if the index values are unique.
+     */
+    public boolean isUnique() {
+        return isUnique;
+    }
+
+    /**
+     * PUBLIC:
+     * Set if the index values are unique.
+     * A non-unique index is only used by in-memory queries, and holds the objects until they are
+     * removed from the cache, so the cache type and size are not used.
+     * By default the index values are unique.
+     */
+    public void setIsUnique(boolean isUnique) {
+        this.isUnique = isUnique;
+    }
+
+    /**
+     * PUBLIC:
+     * Return if the index is sorted by the index values.
+     */
+    public boolean isSorted() {
+        return isSorted;
+    }
+
+    /**
+     * PUBLIC:
+     * Set if the index is sorted by the index values.
+     * A sorted index allows in-memory queries to use range comparisons on its field,
+     * the index values must be Comparable. A sorted index is not unique.
+     */
+    public void setIsSorted(boolean isSorted) {
+        this.isSorted = isSorted;
+    }
+
+    /**
+     * INTERNAL:
+     * Return if the index holds all of the cache keys of its values,
+     * instead of an identity map of the unique values.
+     */
+    public boolean isCacheKeyIndex() {
+        return !this.isUnique || this.isSorted;
+    }
+
     /**
      * ADVANCED:
      * Return the type of the cache used for the index.
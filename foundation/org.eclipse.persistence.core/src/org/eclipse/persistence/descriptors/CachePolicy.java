@@ -16,6 +16,7 @@
 
 import java.security.AccessController;
 import java.security.PrivilegedActionException;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -25,14 +26,22 @@
 
 import org.eclipse.persistence.exceptions.*;
 import org.eclipse.persistence.expressions.Expression;
+import org.eclipse.persistence.expressions.ExpressionOperator;
 import org.eclipse.persistence.annotations.CacheCoordinationType;
 import org.eclipse.persistence.annotations.CacheKeyType;
 import org.eclipse.persistence.annotations.DatabaseChangeNotificationType;
 import org.eclipse.persistence.config.CacheIsolationType;
 import org.eclipse.persistence.internal.helper.ClassConstants;
+import org.eclipse.persistence.internal.expressions.CompoundExpression;
+import org.eclipse.persistence.internal.expressions.ConstantExpression;
+import org.eclipse.persistence.internal.expressions.FunctionExpression;
+import org.eclipse.persistence.internal.expressions.ParameterExpression;
+import org.eclipse.persistence.internal.expressions.QueryKeyExpression;
 import org.eclipse.persistence.internal.helper.DatabaseField;
 import org.eclipse.persistence.internal.identitymaps.CacheId;
 import org.eclipse.persistence.internal.identitymaps.CacheKey;
+import org.eclipse.persistence.internal.identitymaps.CacheKeyIndex;
+import org.eclipse.persistence.internal.identitymaps.IdentityMapManager;
 import org.eclipse.persistence.internal.security.PrivilegedAccessHelper;
 import org.eclipse.persistence.internal.security.PrivilegedClassForName;
 import org.eclipse.persistence.internal.sessions.AbstractRecord;
@@ -42,6 +51,7 @@
 import org.eclipse.persistence.mappings.AggregateObjectMapping;
 import org.eclipse.persistence.mappings.DatabaseMapping;
 import org.eclipse.persistence.mappings.ForeignReferenceMapping;
+import org.eclipse.persistence.mappings.foundation.AbstractDirectMapping;
 import org.eclipse.persistence.sessions.DatabaseSession;
 
 /**
@@ -891,12 +901,19 @@ public void indexObjectInCache(CacheKey cacheKey, AbstractRecord databaseRow, Ob
             return;
         }
         for (CacheIndex index : this.cacheIndexes.values()) {
-            if (!refresh || index.isUpdateable()) {
+            if (!refresh || index.isUpdateable() || index.isCacheKeyIndex()) {
                 List<DatabaseField> fields = index.getFields();
                 int size = fields.size();
                 Object[] values = new Object[size];
-                for (int count = 0; count < size; count++) {
-                    values[count] = databaseRow.get(fields.get(count));
+                // The values of the cache key indexes must match the query values converted by the mappings.
+                if (index.isCacheKeyIndex() && (domainObject != null)) {
+                    for (int count = 0; count < size; count++) {
+                        values[count] = descriptor.getObjectBuilder().extractValueFromObjectForField(domainObject, fields.get(count), session);
+                    }
+                } else {
+                    for (int count = 0; count < size; count++) {
+                        values[count] = databaseRow.get(fields.get(count));
+                    }
                 }
                 CacheId indexValues = new CacheId(values);
                 session.getIdentityMapAccessorInstance().putCacheKeyByIndex(index, indexValues, cacheKey, descriptor);
@@ -913,7 +930,7 @@ public void indexObjectInCache(CacheKey cacheKey, Object object, ClassDescriptor
             return;
         }
         for (CacheIndex index : this.cacheIndexes.values()) {
-            if (!refresh || index.isUpdateable()) {
+            if (!refresh || index.isUpdateable() || index.isCacheKeyIndex()) {
                 List<DatabaseField> fields = index.getFields();
                 int size = fields.size();
                 Object[] values = new Object[size];
@@ -926,6 +943,28 @@ public void indexObjectInCache(CacheKey cacheKey, Object object, ClassDescriptor
         }
     }
 
+    /**
+     * INTERNAL:
+     * Index the object by the non-unique and sorted indexes using the object.
+     * These must index every object in the cache to be used by in-memory queries.
+     */
+    public void indexObjectInCacheKeyIndexes(CacheKey cacheKey, Object object, ClassDescriptor descriptor, AbstractSession session) {
+        if (!hasCacheIndexes()) {
+            return;
+        }
+        for (CacheIndex index : this.cacheIndexes.values()) {
+            if (index.isCacheKeyIndex()) {
+                List<DatabaseField> fields = index.getFields();
+                int size = fields.size();
+                Object[] values = new Object[size];
+                for (int count = 0; count < size; count++) {
+                    values[count] = descriptor.getObjectBuilder().extractValueFromObjectForField(object, fields.get(count), session);
+                }
+                session.getIdentityMapAccessorInstance().putCacheKeyByIndex(index, new CacheId(values), cacheKey, descriptor);
+            }
+        }
+    }
+
     /**
      * INTERNAL:
      * Index the object by index in the cache using its changeSet.
@@ -935,7 +974,7 @@ public void indexObjectInCache(ObjectChangeSet changeSet, Object object, ClassDe
             return;
         }
         for (CacheIndex index : this.cacheIndexes.values()) {
-            if ((changeSet == null) || (changeSet.isNew() && index.isInsertable()) || (!changeSet.isNew() && index.isUpdateable())) {
+            if ((changeSet == null) || (changeSet.isNew() && index.isInsertable()) || (!changeSet.isNew() && index.isUpdateable()) || index.isCacheKeyIndex()) {
                 List<DatabaseField> fields = index.getFields();
                 int size = fields.size();
                 Object[] values = new Object[size];
@@ -974,6 +1013,9 @@ public CacheKey checkCacheByIndex(Expression expression, AbstractRecord translat
             return null;
         }
         for (CacheIndex index : this.cacheIndexes.values()) {
+            if (index.isCacheKeyIndex()) {
+                continue;
+            }
             List<DatabaseField> fields = index.getFields();
             int size = fields.size();
             Object[] values = new Object[size];
@@ -1002,6 +1044,9 @@ public boolean isIndexableExpression(Expression expression, ClassDescriptor desc
             return false;
         }
         for (CacheIndex index : this.cacheIndexes.values()) {
+            if (index.isCacheKeyIndex()) {
+                continue;
+            }
             List<DatabaseField> searchFields = index.getFields();
             int size = searchFields.size();
             Set<DatabaseField> foundFields = new HashSet(size);
@@ -1013,6 +1058,212 @@ public boolean isIndexableExpression(Expression expression, ClassDescriptor desc
         return false;
     }
 
+    /**
+     * INTERNAL:
+     * Return the cache keys from the non-unique and sorted indexes that may conform to the expression,
+     * or null if the expression cannot use any index and the whole cache must be checked.
+     * Only the equal, range and between comparisons of direct attributes to constants or parameters
+     * that are anded together are used, the cache keys must still be conformed to the expression.
+     * An index is only used if it indexes at least as many objects as the cache holds,
+     * as an object that was not indexed would otherwise be missed.
+     */
+    public Collection<CacheKey> getCacheKeysByIndex(Expression expression, AbstractRecord translationRow, ClassDescriptor descriptor, IdentityMapManager identityMapManager, int cacheSize, AbstractSession session) {
+        if (!hasCacheIndexes()) {
+            return null;
+        }
+        Map<DatabaseField, Object> values = new HashMap<DatabaseField, Object>();
+        Map<DatabaseField, Object[]> ranges = new HashMap<DatabaseField, Object[]>();
+        extractIndexValues(expression, expression.getBuilder(), translationRow, descriptor, session, values, ranges);
+        if (values.isEmpty() && ranges.isEmpty()) {
+            return null;
+        }
+        Collection<CacheKey> cacheKeys = null;
+        for (CacheIndex index : this.cacheIndexes.values()) {
+            if (!index.isCacheKeyIndex()) {
+                continue;
+            }
+            CacheKeyIndex cacheKeyIndex = identityMapManager.getCacheKeyIndex(index);
+            if ((cacheKeyIndex == null) || (cacheKeyIndex.size() < cacheSize)) {
+                continue;
+            }
+            List<DatabaseField> fields = index.getFields();
+            int size = fields.size();
+            Object[] indexValues = new Object[size];
+            for (int count = 0; count < size; count++) {
+                Object value = values.get(fields.get(count));
+                if (value == null) {
+                    indexValues = null;
+                    break;
+                }
+                indexValues[count] = value;
+            }
+            Collection<CacheKey> indexedKeys = null;
+            if (indexValues != null) {
+                indexedKeys = cacheKeyIndex.get(new CacheId(indexValues));
+            } else if (cacheKeyIndex.isSorted() && (size == 1)) {
+                Object[] range = ranges.get(fields.get(0));
+                if (range != null) {
+                    CacheId lowerValues = (range[0] == null) ? null : new CacheId(new Object[] {range[0]});
+                    CacheId upperValues = (range[2] == null) ? null : new CacheId(new Object[] {range[2]});
+                    indexedKeys = cacheKeyIndex.get(lowerValues, (Boolean)range[1], upperValues, (Boolean)range[3]);
+                }
+            }
+            if ((indexedKeys != null) && ((cacheKeys == null) || (indexedKeys.size() < cacheKeys.size()))) {
+                cacheKeys = indexedKeys;
+            }
+        }
+        return cacheKeys;
+    }
+
+    /**
+     * INTERNAL:
+     * Extract the field values of the equal comparisons, and the bounds of the range comparisons
+     * (lower, is lower inclusive, upper, is upper inclusive) of the expression and its anded children.
+     */
+    protected void extractIndexValues(Expression expression, Expression builder, AbstractRecord translationRow, ClassDescriptor descriptor, AbstractSession session, Map<DatabaseField, Object> values, Map<DatabaseField, Object[]> ranges) {
+        if (!(expression.isCompoundExpression() || expression.isFunctionExpression()) || (expression.getOperator() == null)) {
+            return;
+        }
+        int selector = expression.getOperator().getSelector();
+        if (expression.isLogicalExpression()) {
+            if (selector == ExpressionOperator.And) {
+                extractIndexValues(((CompoundExpression)expression).getFirstChild(), builder, translationRow, descriptor, session, values, ranges);
+                extractIndexValues(((CompoundExpression)expression).getSecondChild(), builder, translationRow, descriptor, session, values, ranges);
+            }
+            return;
+        }
+        Expression attribute = null;
+        Expression argument = null;
+        Expression upperArgument = null;
+        if (expression.isRelationExpression()) {
+            if ((selector != ExpressionOperator.Equal) && (selector != ExpressionOperator.LessThan) && (selector != ExpressionOperator.LessThanEqual)
+                    && (selector != ExpressionOperator.GreaterThan) && (selector != ExpressionOperator.GreaterThanEqual)) {
+                return;
+            }
+            attribute = ((CompoundExpression)expression).getFirstChild();
+            argument = ((CompoundExpression)expression).getSecondChild();
+            if (attribute.isConstantExpression() || attribute.isParameterExpression()) {
+                // Reverse the comparison, i.e. 5 < e.age is e.age > 5.
+                attribute = argument;
+                argument = ((CompoundExpression)expression).getFirstChild();
+                if (selector == ExpressionOperator.LessThan) {
+                    selector = ExpressionOperator.GreaterThan;
+                } else if (selector == ExpressionOperator.LessThanEqual) {
+                    selector = ExpressionOperator.GreaterThanEqual;
+                } else if (selector == ExpressionOperator.GreaterThan) {
+                    selector = ExpressionOperator.LessThan;
+                } else if (selector == ExpressionOperator.GreaterThanEqual) {
+                    selector = ExpressionOperator.LessThanEqual;
+                }
+            }
+        } else if (expression.isFunctionExpression() && (selector == ExpressionOperator.Between)) {
+            List<Expression> children = ((FunctionExpression)expression).getChildren();
+            if (children.size() != 3) {
+                return;
+            }
+            attribute = children.get(0);
+            argument = children.get(1);
+            upperArgument = children.get(2);
+        } else {
+            return;
+        }
+        // Only direct attributes of the object being queried can be indexed.
+        if (!attribute.isQueryKeyExpression() || (((QueryKeyExpression)attribute).getBaseExpression() != builder)) {
+            return;
+        }
+        DatabaseMapping mapping = descriptor.getObjectBuilder().getMappingForAttributeName(((QueryKeyExpression)attribute).getName());
+        if ((mapping == null) || !mapping.isAbstractDirectMapping()) {
+            return;
+        }
+        DatabaseField field = ((AbstractDirectMapping)mapping).getField();
+        Object value = getIndexValue(argument, (AbstractDirectMapping)mapping, translationRow, session);
+        if (value == null) {
+            return;
+        }
+        if (selector == ExpressionOperator.Equal) {
+            values.put(field, value);
+            return;
+        }
+        if (!(value instanceof Comparable)) {
+            return;
+        }
+        Object[] range = ranges.get(field);
+        if (range == null) {
+            range = new Object[] {null, Boolean.TRUE, null, Boolean.TRUE};
+            ranges.put(field, range);
+        }
+        if (selector == ExpressionOperator.Between) {
+            Object upperValue = getIndexValue(upperArgument, (AbstractDirectMapping)mapping, translationRow, session);
+            addIndexBound(range, 0, value, true);
+            if (upperValue instanceof Comparable) {
+                addIndexBound(range, 2, upperValue, true);
+            }
+        } else if ((selector == ExpressionOperator.GreaterThan) || (selector == ExpressionOperator.GreaterThanEqual)) {
+            addIndexBound(range, 0, value, selector == ExpressionOperator.GreaterThanEqual);
+        } else {
+            addIndexBound(range, 2, value, selector == ExpressionOperator.LessThanEqual);
+        }
+    }
+
+    /**
+     * INTERNAL:
+     * Return the field value of the constant or parameter, or null if not a constant or parameter, or not convertible.
+     */
+    protected Object getIndexValue(Expression argument, AbstractDirectMapping mapping, AbstractRecord translationRow, AbstractSession session) {
+        Object value = null;
+        if (argument.isConstantExpression()) {
+            value = ((ConstantExpression)argument).getValue();
+        } else if (argument.isParameterExpression() && (translationRow != null)) {
+            value = ((ParameterExpression)argument).getValue(translationRow, session);
+        }
+        if (value == null) {
+            return null;
+        }
+        try {
+            return mapping.getFieldValue(value, session);
+        } catch (ConversionException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * INTERNAL:
+     * Set the lower (0) or upper (2) bound of the range, if it is narrower than the current bound.
+     */
+    protected void addIndexBound(Object[] range, int offset, Object value, boolean isInclusive) {
+        Object bound = range[offset];
+        if (bound != null) {
+            int comparison;
+            try {
+                comparison = ((Comparable)value).compareTo(bound);
+            } catch (ClassCastException exception) {
+                return;
+            }
+            if (offset == 2) {
+                comparison = -comparison;
+            }
+            if ((comparison < 0) || ((comparison == 0) && isInclusive)) {
+                return;
+            }
+        }
+        range[offset] = value;
+        range[offset + 1] = Boolean.valueOf(isInclusive);
+    }
+
+    /**
+     * PUBLIC:
+     * Set the class of identity map to be the clock cache identity map.
+     * This map caches a fixed number of instances, evicting approximately least recently used instances
+     * using CLOCK (second chance) eviction.
+     * Unlike the CacheIdentityMap, accessing an instance does not require a lock on the whole map,
+     * which makes it better suited for highly concurrent read access.
+     * Note: This map does not guarantee object identity.
+     * The default is the "SoftCacheWeakIdentityMap".
+     */
+    public void useClockCacheIdentityMap() {
+        setIdentityMapClass(ClassConstants.ClockCacheIdentityMap_Class);
+    }
+
     /**
      * PUBLIC:
      * Set the class of identity map to be the full identity map.
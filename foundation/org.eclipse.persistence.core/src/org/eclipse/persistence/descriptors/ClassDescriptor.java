@@ -5583,6 +5583,14 @@ public boolean shouldUseCacheIdentityMap() {
         return (getIdentityMapClass() == ClassConstants.CacheIdentityMap_Class);
     }
 
+    /**
+     * PUBLIC:
+     * Return true if this descriptor is using ClockCacheIdentityMap
+     */
+    public boolean shouldUseClockCacheIdentityMap() {
+        return (getIdentityMapClass() == ClassConstants.ClockCacheIdentityMap_Class);
+    }
+
     /**
      * PUBLIC:
      * Return true if this descriptor is using FullIdentityMap
@@ -5758,6 +5766,18 @@ public void useCacheIdentityMap() {
         setIdentityMapClass(ClassConstants.CacheIdentityMap_Class);
     }
 
+    /**
+     * PUBLIC:
+     * Set the class of identity map to be the clock cache identity map.
+     * This map caches a fixed number of instances read from the database,
+     * evicting approximately least recently used instances without locking the map on access.
+     * Note: This map does not guarantee object identity.
+     * The default is the "SoftCacheWeakIdentityMap".
+     */
+    public void useClockCacheIdentityMap() {
+        getCachePolicy().useClockCacheIdentityMap();
+    }
+
     /**
      * PUBLIC:
      * Set the locking policy a changed fields locking policy.
@@ -44,10 +44,7 @@
 import java.sql.Statement;
 import java.sql.Types;
 import java.util.Enumeration;
-import java.util.HashMap;
-import java.util.Hashtable;
 import java.util.List;
-import java.util.Map;
 import java.util.Vector;
 
 import org.eclipse.persistence.exceptions.DatabaseException;
@@ -63,6 +60,7 @@
 import org.eclipse.persistence.internal.sessions.AbstractRecord;
 import org.eclipse.persistence.internal.sessions.AbstractSession;
 import org.eclipse.persistence.internal.sessions.ArrayRecord;
+import org.eclipse.persistence.internal.sessions.PrimitiveArrayRecord;
 import org.eclipse.persistence.logging.SessionLog;
 import org.eclipse.persistence.mappings.structures.ObjectRelationalDataTypeDescriptor;
 // EclipseLink imports
@@ -101,7 +99,7 @@ public class DatabaseAccessor extends DatasourceAccessor {
     public static boolean shouldUseDynamicStatements = true;
 
     /** Stores statement handles for common used prepared statements. */
-    protected Map<String, Statement> statementCache;
+    protected StatementCache statementCache;
 
     /** Cache of the connection's java.sql.DatabaseMetaData */
     protected DatabaseMetaData metaData;
@@ -345,7 +343,7 @@ protected void checkTransactionIsolation(AbstractSession session) throws Databas
      */
     public void clearStatementCache(AbstractSession session) {
         if (hasStatementCache()) {
-            for (Statement statement : getStatementCache().values()) {
+            for (Statement statement : getStatementCache().removeAll()) {
                 try {
                     statement.close();
                 } catch (SQLException exception) {
@@ -1070,6 +1068,9 @@ protected AbstractRecord fetchRow(Vector fields, ResultSet resultSet, ResultSetM
     public AbstractRecord fetchRow(Vector fields, DatabaseField[] fieldsArray, ResultSet resultSet, ResultSetMetaData metaData, AbstractSession session) throws DatabaseException {
         int size = fieldsArray.length;
         Object[] values = new Object[size];
+        // PERF: Numeric values are fetched into primitive slots to avoid boxing.
+        long[] primitiveValues = null;
+        byte[] primitiveTypes = null;
         // PERF: Pass platform and optimize data flag.
         DatabasePlatform platform = getPlatform();
         boolean optimizeData = platform.shouldOptimizeDataConversion();
@@ -1077,6 +1078,17 @@ public AbstractRecord fetchRow(Vector fields, DatabaseField[] fieldsArray, Resul
             DatabaseField field = fieldsArray[index];
             // Field can be null for fetch groups.
             if (field != null) {
+                byte primitiveType = (optimizeData && !field.isPrimitiveFetchUnsupported) ? PrimitiveArrayRecord.getPrimitiveType(field.type) : PrimitiveArrayRecord.NONE;
+                // PERF: Only allocate the primitive slots once a numeric column is fetched.
+                if ((primitiveType != PrimitiveArrayRecord.NONE) && isNumericColumn(field, metaData, index + 1, session)) {
+                    if (primitiveValues == null) {
+                        primitiveValues = new long[size];
+                        primitiveTypes = new byte[size];
+                    }
+                    if (fetchPrimitive(resultSet, field, metaData, index + 1, primitiveType, primitiveValues, primitiveTypes, index, session)) {
+                        continue;
+                    }
+                }
                 values[index] = getObject(resultSet, field, metaData, index + 1, platform, optimizeData, session);
             } else {
                 values[index] = null;
@@ -1084,8 +1096,80 @@ public AbstractRecord fetchRow(Vector fields, DatabaseField[] fieldsArray, Resul
         }
 
         // Row creation is optimized through sharing the same fields for the entire result set.
+        if (primitiveValues != null) {
+            return new PrimitiveArrayRecord(fields, fieldsArray, values, primitiveValues, primitiveTypes);
+        }
         return new ArrayRecord(fields, fieldsArray, values);
     }
+
+    /**
+     * Return if the column can be fetched through the typed get method of the field's primitive type.
+     * Character columns are converted from their string value, so must be fetched as an object.
+     */
+    protected boolean isNumericColumn(DatabaseField field, ResultSetMetaData metaData, int columnNumber, AbstractSession session) throws DatabaseException {
+        // PERF: Cache the JDBC type in the field to avoid JDBC call.
+        int type = field.sqlType;
+        if (type == NULL_SQL_TYPE) {
+            try {
+                type = metaData.getColumnType(columnNumber);
+            } catch (SQLException exception) {
+                DatabaseException commException = processExceptionForCommError(session, exception, null);
+                if (commException != null) throw commException;
+                throw DatabaseException.sqlException(exception, this, session, false);
+            }
+            field.setSqlType(type);
+        }
+        return (type != Types.VARCHAR) && (type != Types.CHAR) && (type != Types.NVARCHAR) && (type != Types.NCHAR);
+    }
+
+    /**
+     * Fetch the numeric value through the typed get method into the primitive slot at the index.
+     * Return false if the value must be fetched as an object.
+     * A null value leaves the slot empty.
+     * If the typed get method fails, as in the optimized data conversion the failure is logged
+     * and false returned, and the field is no longer fetched through the primitive path.
+     * PERF: This avoids boxing the value until it is requested as an object.
+     */
+    protected boolean fetchPrimitive(ResultSet resultSet, DatabaseField field, ResultSetMetaData metaData, int columnNumber, byte primitiveType, long[] primitiveValues, byte[] primitiveTypes, int index, AbstractSession session) throws DatabaseException {
+        try {
+            long value;
+            switch (primitiveType) {
+                case PrimitiveArrayRecord.LONG:
+                    value = resultSet.getLong(columnNumber);
+                    break;
+                case PrimitiveArrayRecord.INT:
+                    value = resultSet.getInt(columnNumber);
+                    break;
+                case PrimitiveArrayRecord.SHORT:
+                    value = resultSet.getShort(columnNumber);
+                    break;
+                case PrimitiveArrayRecord.DOUBLE:
+                    value = Double.doubleToRawLongBits(resultSet.getDouble(columnNumber));
+                    break;
+                case PrimitiveArrayRecord.FLOAT:
+                    value = Double.doubleToRawLongBits(resultSet.getFloat(columnNumber));
+                    break;
+                default:
+                    return false;
+            }
+            // PERF: Only check for null for the default value.
+            if ((value == 0L) && resultSet.wasNull()) {
+                return true;
+            }
+            primitiveValues[index] = value;
+            primitiveTypes[index] = primitiveType;
+            return true;
+        } catch (SQLException exception) {
+            DatabaseException commException = processExceptionForCommError(session, exception, null);
+            if (commException != null) throw commException;
+            // Log the exception and fetch the value as an object, as for the optimized data conversion.
+            if (session.shouldLog(SessionLog.WARNING, SessionLog.SQL)) {
+                session.logThrowable(SessionLog.WARNING, SessionLog.SQL, exception);
+            }
+            field.isPrimitiveFetchUnsupported = true;
+            return false;
+        }
+    }
     public void populateRow(DatabaseField[] fieldsArray, Object[] values, ResultSet resultSet, ResultSetMetaData metaData, AbstractSession session, int startIndex, int endIndex) throws DatabaseException {
         // PERF: Pass platform and optimize data flag.
         DatabasePlatform platform = getPlatform();
@@ -1419,10 +1503,11 @@ protected boolean hasStatementCache() {
 
     /**
      * The statement cache stores a fixed sized number of prepared statements.
+     * The least recently used statements are closed when the platform's statement cache size is exceeded.
      */
-    protected synchronized Map<String, Statement> getStatementCache() {
+    protected synchronized StatementCache getStatementCache() {
         if (statementCache == null) {
-            statementCache = new HashMap<String, Statement>(50);
+            statementCache = new StatementCache(getPlatform().getStatementCacheSize());
         }
         return statementCache;
     }
@@ -1528,15 +1613,8 @@ public Statement prepareStatement(DatabaseCall call, AbstractSession session) th
     public Statement prepareStatement(DatabaseCall call, AbstractSession session, boolean unwrapConnection) throws SQLException {
         Statement statement = null;
         if (call.usesBinding(session) && call.shouldCacheStatement(session)) {
-            // Check the cache by sql string, must synchronize check and removal.
-            Map statementCache = getStatementCache();
-            synchronized (statementCache) {
-                statement = (PreparedStatement)statementCache.get(call.getSQLString());
-                if (statement != null) {
-                    // Need to remove to allow concurrent statement execution.
-                    statementCache.remove(call.getSQLString());
-                }
-            }
+            // Check the cache by sql string, the statement is checked out to allow concurrent statement execution.
+            statement = checkoutCachedStatement(call.getSQLString(), session);
         }
 
         if (statement == null) {
@@ -1582,14 +1660,7 @@ public PreparedStatement prepareStatement(String sql, AbstractSession session, b
         PreparedStatement statement = null;
         // Check the cache by sql string, must synchronize check and removal.
         if (getPlatform().shouldCacheAllStatements()) {
-            Map statementCache = getStatementCache();
-            synchronized (statementCache) {
-                statement = (PreparedStatement)statementCache.get(sql);
-                if (statement != null) {
-                    // Need to remove to allow concurrent statement execution.
-                    statementCache.remove(sql);
-                }
-            }
+            statement = (PreparedStatement)checkoutCachedStatement(sql, session);
         }
 
         if (statement == null) {
@@ -1608,6 +1679,20 @@ public PreparedStatement prepareStatement(String sql, AbstractSession session, b
         return statement;
     }
 
+    /**
+     * Check out a cached statement for the SQL, or return null if none is cached.
+     * The statement is removed from the cache until released to allow concurrent statement execution.
+     */
+    protected Statement checkoutCachedStatement(String sql, AbstractSession session) {
+        Statement statement = getStatementCache().checkout(sql);
+        if (statement == null) {
+            session.incrementProfile(SessionProfiler.StatementCacheMisses);
+        } else {
+            session.incrementProfile(SessionProfiler.StatementCacheHits);
+        }
+        return statement;
+    }
+
     /**
      * This method is used to process an SQL exception and determine if the exception
      * should be passed on for further processing.
@@ -1646,26 +1731,33 @@ protected void reconnect(AbstractSession session) {
     public void releaseStatement(Statement statement, String sqlString, DatabaseCall call, AbstractSession session) throws SQLException {
         if (((call == null) && getPlatform().shouldCacheAllStatements())
                 || ((call != null) && call.usesBinding(session) && call.shouldCacheStatement(session))) {
-            Map<String, Statement> statementCache = getStatementCache();
-            synchronized (statementCache) {
-                PreparedStatement preparedStatement = (PreparedStatement)statement;
-                if (!statementCache.containsKey(sqlString)) {// May already be there by other thread.
-                    preparedStatement.clearParameters();
-                    // Bug 5709179 - reset statement settings on cached statements (dminsky) - inclusion of reset
-                    if (call != null) {
-                        resetStatementFromCall(preparedStatement, call);
-                    }
-                    if (statementCache.size() > getPlatform().getStatementCacheSize()) {
-                        // Currently one is removed at random...
-                        PreparedStatement removedStatement = (PreparedStatement)statementCache.remove(statementCache.keySet().iterator().next());
-                        closeStatement(removedStatement, session, call);
-                    } else {
-                        decrementCallCount();
+            PreparedStatement preparedStatement = (PreparedStatement)statement;
+            preparedStatement.clearParameters();
+            // Bug 5709179 - reset statement settings on cached statements (dminsky) - inclusion of reset
+            if (call != null) {
+                resetStatementFromCall(preparedStatement, call);
+            }
+            // Other threads may have released statements for the same SQL, these are all cached.
+            // If the cache is full the least recently used statements are evicted and must be closed.
+            StatementCache statementCache = getStatementCache();
+            // The statement cache size may have been changed at runtime.
+            statementCache.setMaxSize(getPlatform().getStatementCacheSize());
+            List<Statement> evictedStatements = statementCache.release(sqlString, preparedStatement);
+            if (evictedStatements == null) {
+                decrementCallCount();
+            } else {
+                try {
+                    for (Statement evictedStatement : evictedStatements) {
+                        session.incrementProfile(SessionProfiler.StatementCacheEvictions);
+                        try {
+                            evictedStatement.close();
+                        } catch (SQLException exception) {
+                            // An exception can be raised if the statement was closed by the driver,
+                            // the statement is no longer cached either way.
+                        }
                     }
-                    statementCache.put(sqlString, preparedStatement);
-                } else {
-                    // CR... Must close the statement if not cached.
-                    closeStatement(statement, session, call);
+                } finally {
+                    decrementCallCount();
                 }
             }
         } else if (statement == this.dynamicStatement) {
@@ -1762,7 +1854,7 @@ public void setActiveBatchWritingMechanism(BatchWritingMechanism mechanism) {
     /**
      * The statement cache stores a fixed sized number of prepared statements.
      */
-    protected void setStatementCache(Hashtable statementCache) {
+    protected void setStatementCache(StatementCache statementCache) {
         this.statementCache = statementCache;
     }
 
@@ -2910,8 +2910,9 @@ public boolean wasFailureCommunicationBased(SQLException exception, Connection c
          } else if (this.pingSQL == null) {
              // By default use the JDBC isValid API unless a ping SQL has been set.
              // The ping SQL is set by most platforms, but user could set to null to used optimized JDBC check if desired.
+             // The failure was communication based if the connection is no longer valid.
              try {
-                 return connection.isValid(IS_VALID_TIMEOUT);
+                 return !connection.isValid(IS_VALID_TIMEOUT);
              } catch (Throwable failed) {
                  // Catch throwable as old JDBC drivers may not support isValid.
                  return false;
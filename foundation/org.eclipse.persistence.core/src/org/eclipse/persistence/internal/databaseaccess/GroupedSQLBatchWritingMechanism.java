@@ -0,0 +1,229 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.internal.databaseaccess;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.descriptors.DescriptorQueryManager;
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.queries.DatabaseQuery;
+import org.eclipse.persistence.queries.ModifyQuery;
+import org.eclipse.persistence.sessions.SessionProfiler;
+
+/**
+ * INTERNAL:
+ * GroupedSQLBatchWritingMechanism batches parameterized statements by their SQL, instead of ending the batch
+ * each time the SQL changes.<p>
+ * The commit order computed by the CommitOrderCalculator writes the objects of one class at a time,
+ * but the statements of one class still alternate, i.e. the rows of a multiple table descriptor
+ * are written per object, and updates of different fields generate different SQL.
+ * Within the statements of one class and operation, the calls are grouped by SQL (so by table),
+ * and the groups are executed in the order their SQL first occurred, so each table is still written
+ * before any table that followed it, and the order of the rows within a table is kept.
+ * When the commit moves on to another class or operation, or a statement that cannot be batched is executed,
+ * all the groups are executed, so statements are never reordered across the commit order.
+ * Calls without parameters are batched by the dynamic SQL mechanism, as with parameterized batch writing,
+ * which switches back to this mechanism on the next call with parameters.<p>
+ * The size of each executed batch, and the reason each batch was flushed, is reported to the session profiler.
+ * This mechanism is used for the "Grouped" batch writing option.
+ *
+ * @see org.eclipse.persistence.config.BatchWriting#Grouped
+ */
+public class GroupedSQLBatchWritingMechanism extends BatchWritingMechanism {
+
+    /** The batched calls grouped by SQL, in the order the SQL first occurred. */
+    protected Map<String, ParameterizedSQLBatchWritingMechanism> batches;
+
+    /** The descriptor of the calls currently batched, calls for another descriptor end the groups. */
+    protected ClassDescriptor batchDescriptor;
+
+    /** The query class of the calls currently batched, i.e. insert, update or delete. */
+    protected Class batchQueryClass;
+
+    /** The number of calls currently batched, across all groups. */
+    protected int batchedCount;
+
+    /** Batches the calls without parameters, switches back to this mechanism for calls with parameters. */
+    protected DynamicSQLBatchWritingMechanism dynamicSQLMechanism;
+
+    public GroupedSQLBatchWritingMechanism() {
+        super();
+    }
+
+    public GroupedSQLBatchWritingMechanism(DatabaseAccessor databaseAccessor) {
+        setAccessor(databaseAccessor, null);
+    }
+
+    /**
+     * INTERNAL:
+     * Set the accessor, the mechanism is cloned from the platform for each accessor.
+     */
+    @Override
+    public void setAccessor(DatabaseAccessor accessor, AbstractSession session) {
+        this.databaseAccessor = accessor;
+        this.batches = new LinkedHashMap<String, ParameterizedSQLBatchWritingMechanism>();
+        this.batchDescriptor = null;
+        this.batchQueryClass = null;
+        this.batchedCount = 0;
+        this.dynamicSQLMechanism = null;
+        if (this.maxBatchSize == 0) {
+            this.maxBatchSize = accessor.getLogin().getPlatform().getMaxBatchWritingSize();
+            if (this.maxBatchSize == 0) {
+                // the max size was not set on the platform - use default
+                this.maxBatchSize = DatabasePlatform.DEFAULT_PARAMETERIZED_MAX_BATCH_WRITING_SIZE;
+            }
+        }
+    }
+
+    /**
+     * INTERNAL:
+     * Add the call to the group for its SQL.
+     * The groups are executed if the call is for another descriptor or operation,
+     * if a group is full, or if the call has no parameters to bind,
+     * in which case the accessor switches to the dynamic SQL mechanism.
+     */
+    @Override
+    public void appendCall(AbstractSession session, DatabaseCall dbCall) {
+        if (!dbCall.hasParameters()) {
+            executeBatchedStatements(session, SessionProfiler.BatchFlushesOnExecute);
+            switchMechanisms(session, dbCall);
+            return;
+        }
+        DatabaseQuery query = dbCall.getQuery();
+        if ((this.batchedCount > 0) && ((query.getDescriptor() != this.batchDescriptor) || (query.getClass() != this.batchQueryClass))) {
+            executeBatchedStatements(session, SessionProfiler.BatchFlushesOnCommitOrder);
+        }
+        this.batchDescriptor = query.getDescriptor();
+        this.batchQueryClass = query.getClass();
+        String sql = dbCall.getSQLString();
+        ParameterizedSQLBatchWritingMechanism batch = this.batches.get(sql);
+        if (batch == null) {
+            batch = new ParameterizedSQLBatchWritingMechanism(this.databaseAccessor);
+            batch.setMaxBatchSize(this.maxBatchSize);
+            batch.setPreviousCall(dbCall);
+            this.batches.put(sql, batch);
+        }
+        batch.getParameters().add(dbCall.getParameters());
+        batch.cacheQueryTimeout(session, dbCall);
+        batch.setLastCallAppended(dbCall);
+        this.batchedCount++;
+        // feature for bug 4104613, allows users to force statements to flush on execution
+        if (((ModifyQuery)query).forceBatchStatementExecution()) {
+            executeBatchedStatements(session, SessionProfiler.BatchFlushesOnExecute);
+        } else if (batch.getParameters().size() >= this.maxBatchSize) {
+            // The earlier groups must be executed first, so all of the groups are executed.
+            executeBatchedStatements(session, SessionProfiler.BatchFlushesOnSize);
+        }
+    }
+
+    /**
+     * INTERNAL:
+     * Swap to the dynamic SQL mechanism for the call without parameters.
+     * Dynamic SQL cannot be grouped, so is batched in order as by the other batch writing modes.
+     */
+    protected void switchMechanisms(AbstractSession session, DatabaseCall dbCall) {
+        DynamicSQLBatchWritingMechanism mechanism = getDynamicSQLMechanism();
+        this.databaseAccessor.setActiveBatchWritingMechanism(mechanism);
+        mechanism.appendCall(session, dbCall);
+    }
+
+    /**
+     * INTERNAL:
+     * Return the dynamic SQL mechanism used for calls without parameters.
+     * Unlike the accessor's own dynamic SQL mechanism, it switches back to this mechanism, not the parameterized one.
+     */
+    protected DynamicSQLBatchWritingMechanism getDynamicSQLMechanism() {
+        if (this.dynamicSQLMechanism == null) {
+            this.dynamicSQLMechanism = new DynamicSQLBatchWritingMechanism(this.databaseAccessor) {
+                @Override
+                protected void switchMechanisms(AbstractSession session, DatabaseCall dbCall) {
+                    GroupedSQLBatchWritingMechanism grouped = GroupedSQLBatchWritingMechanism.this;
+                    this.databaseAccessor.setActiveBatchWritingMechanism(grouped);
+                    grouped.appendCall(session, dbCall);
+                }
+            };
+        }
+        return this.dynamicSQLMechanism;
+    }
+
+    /**
+     * INTERNAL:
+     * This method is used to clear the batched statements without the need to execute the statements first
+     * This is used in the case of rollback.
+     */
+    @Override
+    public void clear() {
+        //Bug#419326 : A clone may be holding a reference to the batches, so use a new map.
+        this.batches = new LinkedHashMap<String, ParameterizedSQLBatchWritingMechanism>();
+        this.batchDescriptor = null;
+        this.batchQueryClass = null;
+        this.batchedCount = 0;
+        this.queryTimeoutCache = DescriptorQueryManager.NoTimeout;
+    }
+
+    /**
+     * INTERNAL:
+     * This method is used by the DatabaseAccessor to execute the batched statements in the
+     * case that a non batchable statement is being executed, or the transaction is committed.
+     */
+    @Override
+    public void executeBatchedStatements(AbstractSession session) {
+        executeBatchedStatements(session, SessionProfiler.BatchFlushesOnExecute);
+    }
+
+    /**
+     * INTERNAL:
+     * Execute each group in the order its SQL first occurred, and record the reason for the flush.
+     * The groups are cleared first so they are not visible to recursive calls.
+     */
+    protected void executeBatchedStatements(AbstractSession session, String reason) {
+        if (this.batchedCount == 0) {
+            return;
+        }
+        List<ParameterizedSQLBatchWritingMechanism> groups = new ArrayList<ParameterizedSQLBatchWritingMechanism>(this.batches.values());
+        clear();
+        session.incrementProfile(reason);
+        Iterator<ParameterizedSQLBatchWritingMechanism> iterator = groups.iterator();
+        try {
+            while (iterator.hasNext()) {
+                ParameterizedSQLBatchWritingMechanism batch = iterator.next();
+                session.updateProfile(SessionProfiler.BatchSize, batch.getParameters().size());
+                batch.executeBatchedStatements(session);
+            }
+        } finally {
+            // If a batch failed, the remaining groups must not be executed.
+            while (iterator.hasNext()) {
+                iterator.next().clear();
+            }
+        }
+    }
+
+    /**
+     * Return the number of calls currently batched, across all groups.
+     */
+    public int getBatchedCount() {
+        return batchedCount;
+    }
+
+    /**
+     * Return the batched calls grouped by SQL.
+     */
+    public Map<String, ParameterizedSQLBatchWritingMechanism> getBatches() {
+        return batches;
+    }
+}
@@ -0,0 +1,253 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.internal.databaseaccess;
+
+import java.sql.Statement;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * INTERNAL:
+ * <p><b>Purpose</b>: Bounded least recently used cache of idle prepared statements for a single accessor.<p>
+ * Statements are keyed by their SQL string, several idle statements may be cached for the same SQL,
+ * so concurrent executions of the same SQL can each check out and return their own statement.
+ * A statement is removed from the cache while it is checked out.
+ * When more than the max size of statements are idle, the statements of the least recently used SQL are evicted,
+ * evicted statements are returned to the caller to be closed.
+ * The number of hits, misses and evictions is recorded.
+ * <p>
+ * The Map protocol is supported for compatibility, it exposes the most recently released statement for each SQL.
+ * @see DatabaseAccessor#prepareStatement(DatabaseCall, org.eclipse.persistence.internal.sessions.AbstractSession, boolean)
+ * @see DatabaseAccessor#releaseStatement(Statement, String, DatabaseCall, org.eclipse.persistence.internal.sessions.AbstractSession)
+ */
+public class StatementCache extends AbstractMap<String, Statement> {
+
+    /** Idle statements by SQL, in access order, the first entry is the least recently used. */
+    protected LinkedHashMap<String, LinkedList<Statement>> statements;
+
+    /** The maximum number of idle statements to cache. */
+    protected int maxSize;
+
+    /** The number of idle statements cached, across all SQL strings. */
+    protected int statementCount;
+
+    protected long hits;
+    protected long misses;
+    protected long evictions;
+
+    public StatementCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.statements = new LinkedHashMap<String, LinkedList<Statement>>(32, 0.75f, true);
+    }
+
+    /**
+     * Remove and return an idle statement for the SQL, or null if none is cached.
+     * The statement is owned by the caller until it is released back to the cache.
+     */
+    public synchronized Statement checkout(String sql) {
+        LinkedList<Statement> idle = this.statements.get(sql);
+        if (idle == null) {
+            this.misses++;
+            return null;
+        }
+        Statement statement = idle.removeLast();
+        if (idle.isEmpty()) {
+            this.statements.remove(sql);
+        }
+        this.statementCount--;
+        this.hits++;
+        return statement;
+    }
+
+    /**
+     * Return the statement to the cache.
+     * If the cache exceeds its max size the least recently used statements are evicted.
+     * Return the evicted statements, these must be closed by the caller, or null if none were evicted.
+     * The statement being released may itself be evicted if the max size is 0.
+     */
+    public synchronized List<Statement> release(String sql, Statement statement) {
+        LinkedList<Statement> idle = this.statements.get(sql);
+        if (idle == null) {
+            idle = new LinkedList<Statement>();
+            this.statements.put(sql, idle);
+        }
+        idle.addLast(statement);
+        this.statementCount++;
+        return evict();
+    }
+
+    /**
+     * Evict the least recently used statements until the cache is within its max size.
+     */
+    protected List<Statement> evict() {
+        if (this.statementCount <= this.maxSize) {
+            return null;
+        }
+        List<Statement> evicted = new ArrayList<Statement>(this.statementCount - this.maxSize);
+        Iterator<LinkedList<Statement>> iterator = this.statements.values().iterator();
+        while (this.statementCount > this.maxSize) {
+            LinkedList<Statement> idle = iterator.next();
+            while (!idle.isEmpty() && (this.statementCount > this.maxSize)) {
+                // The oldest statement for the SQL is evicted first.
+                evicted.add(idle.removeFirst());
+                this.statementCount--;
+                this.evictions++;
+            }
+            if (idle.isEmpty()) {
+                iterator.remove();
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Return and remove all of the idle statements, these must be closed by the caller.
+     */
+    public synchronized List<Statement> removeAll() {
+        List<Statement> all = new ArrayList<Statement>(this.statementCount);
+        for (LinkedList<Statement> idle : this.statements.values()) {
+            all.addAll(idle);
+        }
+        this.statements.clear();
+        this.statementCount = 0;
+        return all;
+    }
+
+    /**
+     * Set the maximum number of idle statements to cache.
+     * If the cache now exceeds the new size, statements are evicted on the next release.
+     */
+    public synchronized void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public synchronized int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Return the number of idle statements cached, across all SQL strings.
+     */
+    public synchronized int getStatementCount() {
+        return statementCount;
+    }
+
+    /**
+     * Return the number of checkouts that found a cached statement.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Return the number of checkouts that did not find a cached statement.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Return the number of statements evicted to keep the cache within its max size.
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Return the most recently released statement for the SQL, the statement remains in the cache.
+     */
+    @Override
+    public synchronized Statement get(Object sql) {
+        LinkedList<Statement> idle = this.statements.get(sql);
+        if (idle == null) {
+            return null;
+        }
+        return idle.getLast();
+    }
+
+    @Override
+    public synchronized boolean containsKey(Object sql) {
+        return this.statements.containsKey(sql);
+    }
+
+    /**
+     * Cache the statement for the SQL, replacing any idle statements for the SQL.
+     * The replaced statements are not closed, the most recently released one is returned.
+     */
+    @Override
+    public synchronized Statement put(String sql, Statement statement) {
+        Statement previous = remove(sql);
+        LinkedList<Statement> idle = new LinkedList<Statement>();
+        idle.add(statement);
+        this.statements.put(sql, idle);
+        this.statementCount++;
+        return previous;
+    }
+
+    /**
+     * Remove all of the idle statements for the SQL without closing them.
+     * Return the most recently released one.
+     */
+    @Override
+    public synchronized Statement remove(Object sql) {
+        LinkedList<Statement> idle = this.statements.remove(sql);
+        if (idle == null) {
+            return null;
+        }
+        this.statementCount = this.statementCount - idle.size();
+        return idle.getLast();
+    }
+
+    /**
+     * Return the number of SQL strings with idle statements.
+     */
+    @Override
+    public synchronized int size() {
+        return this.statements.size();
+    }
+
+    @Override
+    public synchronized boolean isEmpty() {
+        return this.statementCount == 0;
+    }
+
+    @Override
+    public synchronized void clear() {
+        this.statements.clear();
+        this.statementCount = 0;
+    }
+
+    /**
+     * Return a snapshot of the most recently released statement for each SQL.
+     */
+    @Override
+    public synchronized Set<Map.Entry<String, Statement>> entrySet() {
+        Set<Map.Entry<String, Statement>> entries = new LinkedHashSet<Map.Entry<String, Statement>>(this.statements.size());
+        for (Map.Entry<String, LinkedList<Statement>> entry : this.statements.entrySet()) {
+            entries.add(new SimpleImmutableEntry<String, Statement>(entry.getKey(), entry.getValue().getLast()));
+        }
+        return entries;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "StatementCache(" + this.statementCount + "/" + this.maxSize + " hits=" + this.hits + " misses=" + this.misses + " evictions=" + this.evictions + ")";
+    }
+}
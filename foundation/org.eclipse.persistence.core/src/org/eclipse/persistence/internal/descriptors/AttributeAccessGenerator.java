@@ -0,0 +1,329 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.internal.descriptors;
+
+import static org.eclipse.persistence.internal.libraries.asm.Opcodes.AALOAD;
+import static org.eclipse.persistence.internal.libraries.asm.Opcodes.ACC_FINAL;
+import static org.eclipse.persistence.internal.libraries.asm.Opcodes.ACC_PRIVATE;
+import static org.eclipse.persistence.internal.libraries.asm.Opcodes.ACC_PUBLIC;
+import static org.eclipse.persistence.internal.libraries.asm.Opcodes.ACC_STATIC;
+import static org.eclipse.persistence.internal.libraries.asm.Opcodes.ACC_SUPER;
+import static org.eclipse.persistence.internal.libraries.asm.Opcodes.ACC_SYNTHETIC;
+import static org.eclipse.persistence.internal.libraries.asm.Opcodes.ALOAD;
+import static org.eclipse.persistence.internal.libraries.asm.Opcodes.ARETURN;
+import static org.eclipse.persistence.internal.libraries.asm.Opcodes.CHECKCAST;
+import static org.eclipse.persistence.internal.libraries.asm.Opcodes.DUP;
+import static org.eclipse.persistence.internal.libraries.asm.Opcodes.GETSTATIC;
+import static org.eclipse.persistence.internal.libraries.asm.Opcodes.ICONST_0;
+import static org.eclipse.persistence.internal.libraries.asm.Opcodes.ICONST_1;
+import static org.eclipse.persistence.internal.libraries.asm.Opcodes.ILOAD;
+import static org.eclipse.persistence.internal.libraries.asm.Opcodes.INVOKESPECIAL;
+import static org.eclipse.persistence.internal.libraries.asm.Opcodes.INVOKEVIRTUAL;
+import static org.eclipse.persistence.internal.libraries.asm.Opcodes.PUTSTATIC;
+import static org.eclipse.persistence.internal.libraries.asm.Opcodes.RETURN;
+import static org.eclipse.persistence.internal.libraries.asm.Opcodes.V1_7;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.persistence.config.SystemProperties;
+import org.eclipse.persistence.internal.helper.Helper;
+import org.eclipse.persistence.internal.libraries.asm.ClassWriter;
+import org.eclipse.persistence.internal.libraries.asm.MethodVisitor;
+import org.eclipse.persistence.internal.libraries.asm.Type;
+import org.eclipse.persistence.internal.security.PrivilegedAccessHelper;
+import org.eclipse.persistence.internal.security.PrivilegedGetSystemProperty;
+
+/**
+ * INTERNAL:
+ * <p><b>Purpose</b>: Generate a {@link GeneratedAttributeAccess} for the field
+ * of an {@link InstanceVariableAttributeAccessor} or the methods of a
+ * {@link MethodAttributeAccessor}.</p>
+ * <p>Each generated class holds method handles for the attribute in static final
+ * fields, which the JIT compiler treats as constants, so the access is inlined
+ * like a direct field access or method call, also for private members.  The
+ * classes for the attributes of a domain class share one class loader, which is
+ * associated with the domain class through a {@link ClassValue}, so they are
+ * unloaded together with it.</p>
+ * <p>Accessors only generate their access after being used
+ * {@link #getThreshold()} times, the same way the JDK only generates reflective
+ * accessors for frequently used members, so attributes that are rarely used do
+ * not pay for a class.</p>
+ *
+ * @see SystemProperties#ATTRIBUTE_ACCESSOR_GENERATION_THRESHOLD
+ */
+public final class AttributeAccessGenerator {
+
+    private static final String SUPERCLASS = Type.getInternalName(GeneratedAttributeAccess.class);
+    private static final String LOADER = Type.getInternalName(AccessClassLoader.class);
+    private static final String METHOD_HANDLE = Type.getDescriptor(MethodHandle.class);
+    private static final String CLASS_NAME_PREFIX = "org.eclipse.persistence.internal.descriptors.GeneratedAttributeAccess$";
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    /** The default number of uses of an accessor before its access is generated. */
+    public static final int DEFAULT_THRESHOLD = 15;
+
+    private static final AtomicInteger classCount = new AtomicInteger();
+
+    /** The class loader defining the generated classes for the attributes of each domain class. */
+    private static final ClassValue<AccessClassLoader> loaders = new ClassValue<AccessClassLoader>() {
+        @Override
+        protected AccessClassLoader computeValue(Class type) {
+            return new AccessClassLoader();
+        }
+    };
+
+    private static final int threshold = initializeThreshold();
+
+    private AttributeAccessGenerator() {
+    }
+
+    private static int initializeThreshold() {
+        String value = PrivilegedAccessHelper.shouldUsePrivilegedAccess()
+                ? AccessController.doPrivileged(new PrivilegedGetSystemProperty(SystemProperties.ATTRIBUTE_ACCESSOR_GENERATION_THRESHOLD))
+                : System.getProperty(SystemProperties.ATTRIBUTE_ACCESSOR_GENERATION_THRESHOLD);
+        if (value != null) {
+            try {
+                return Integer.parseInt(value.trim());
+            } catch (NumberFormatException exception) {
+                // Use the default.
+            }
+        }
+        return DEFAULT_THRESHOLD;
+    }
+
+    /**
+     * Return the number of uses after which an accessor generates its access,
+     * a negative number if accessors always use reflection.
+     */
+    public static int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Return a generated access for the instance variable, or null if it can
+     * only be accessed through reflection.
+     */
+    public static GeneratedAttributeAccess generate(Field field) {
+        if (field == null || Modifier.isStatic(field.getModifiers()) || Modifier.isFinal(field.getModifiers())) {
+            return null;
+        }
+        try {
+            makeAccessible(field);
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle getter = lookup.unreflectGetter(field).asType(GETTER_TYPE);
+            MethodHandle setter = lookup.unreflectSetter(field).asType(SETTER_TYPE);
+            return generate(field.getDeclaringClass(), field.getType(), getter, setter);
+        } catch (Exception exception) {
+            return null;
+        }
+    }
+
+    /**
+     * Return a generated access calling the get and set methods, either of
+     * which can be null, or null if they can only be called through reflection.
+     */
+    public static GeneratedAttributeAccess generate(Method getMethod, Method setMethod) {
+        if ((getMethod == null && setMethod == null)
+                || (getMethod != null && (Modifier.isStatic(getMethod.getModifiers()) || getMethod.getParameterTypes().length != 0))
+                || (setMethod != null && (Modifier.isStatic(setMethod.getModifiers()) || setMethod.getParameterTypes().length != 1))) {
+            return null;
+        }
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle getter = null;
+            MethodHandle setter = null;
+            if (getMethod != null) {
+                makeAccessible(getMethod);
+                getter = lookup.unreflect(getMethod).asType(GETTER_TYPE);
+            }
+            if (setMethod != null) {
+                makeAccessible(setMethod);
+                setter = lookup.unreflect(setMethod).asType(SETTER_TYPE);
+            }
+            // The objects must be instances of both declaring classes.
+            Class objectClass = (setMethod != null) ? setMethod.getDeclaringClass() : getMethod.getDeclaringClass();
+            if ((getMethod != null) && !getMethod.getDeclaringClass().isAssignableFrom(objectClass)) {
+                if (!objectClass.isAssignableFrom(getMethod.getDeclaringClass())) {
+                    return null;
+                }
+                objectClass = getMethod.getDeclaringClass();
+            }
+            Class valueClass = (setMethod != null) ? setMethod.getParameterTypes()[0] : getMethod.getReturnType();
+            return generate(objectClass, valueClass, getter, setter);
+        } catch (Exception exception) {
+            return null;
+        }
+    }
+
+    /**
+     * Allow the handles to access a private or protected member, as reflection does.
+     */
+    private static void makeAccessible(final AccessibleObject member) {
+        if (member.isAccessible()) {
+            return;
+        }
+        if (PrivilegedAccessHelper.shouldUsePrivilegedAccess()) {
+            AccessController.doPrivileged(new PrivilegedAction<Void>() {
+                @Override
+                public Void run() {
+                    member.setAccessible(true);
+                    return null;
+                }
+            });
+        } else {
+            member.setAccessible(true);
+        }
+    }
+
+    private static GeneratedAttributeAccess generate(final Class objectClass, final Class valueClass, final MethodHandle getter, final MethodHandle setter) throws Exception {
+        final String className = CLASS_NAME_PREFIX + classCount.incrementAndGet();
+        final byte[] bytes = writeClass(className.replace('.', '/'));
+        if (PrivilegedAccessHelper.shouldUsePrivilegedAccess()) {
+            return AccessController.doPrivileged(new PrivilegedAction<GeneratedAttributeAccess>() {
+                @Override
+                public GeneratedAttributeAccess run() {
+                    return newInstance(className, bytes, objectClass, valueClass, getter, setter);
+                }
+            });
+        }
+        return newInstance(className, bytes, objectClass, valueClass, getter, setter);
+    }
+
+    private static GeneratedAttributeAccess newInstance(String className, byte[] bytes, Class objectClass, Class valueClass, MethodHandle getter, MethodHandle setter) {
+        AccessClassLoader loader = loaders.get(objectClass);
+        Class generatedClass = loader.define(className, bytes, getter, setter);
+        try {
+            return (GeneratedAttributeAccess) generatedClass
+                    .getConstructor(Class.class, Class.class, boolean.class)
+                    .newInstance(objectClass, Helper.getObjectClass(valueClass), valueClass.isPrimitive());
+        } catch (Exception exception) {
+            return null;
+        } catch (LinkageError error) {
+            return null;
+        }
+    }
+
+    /**
+     * Write a subclass of GeneratedAttributeAccess that invokes the handles
+     * registered with its class loader, stored in static final fields.
+     */
+    private static byte[] writeClass(String internalName) {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(V1_7, ACC_PUBLIC | ACC_FINAL | ACC_SUPER | ACC_SYNTHETIC, internalName, null, SUPERCLASS, null);
+        cw.visitField(ACC_PRIVATE | ACC_STATIC | ACC_FINAL, "GETTER", METHOD_HANDLE, null, null).visitEnd();
+        cw.visitField(ACC_PRIVATE | ACC_STATIC | ACC_FINAL, "SETTER", METHOD_HANDLE, null, null).visitEnd();
+
+        // static { MethodHandle[] handles = ((AccessClassLoader) <class>.getClassLoader()).takeHandles("<class>");
+        //          GETTER = handles[0]; SETTER = handles[1]; }
+        MethodVisitor mv = cw.visitMethod(ACC_STATIC, "<clinit>", "()V", null, null);
+        mv.visitCode();
+        mv.visitLdcInsn(Type.getObjectType(internalName));
+        mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/Class", "getClassLoader", "()Ljava/lang/ClassLoader;", false);
+        mv.visitTypeInsn(CHECKCAST, LOADER);
+        mv.visitLdcInsn(internalName.replace('/', '.'));
+        mv.visitMethodInsn(INVOKEVIRTUAL, LOADER, "takeHandles", "(Ljava/lang/String;)[" + METHOD_HANDLE, false);
+        mv.visitInsn(DUP);
+        mv.visitInsn(ICONST_0);
+        mv.visitInsn(AALOAD);
+        mv.visitFieldInsn(PUTSTATIC, internalName, "GETTER", METHOD_HANDLE);
+        mv.visitInsn(ICONST_1);
+        mv.visitInsn(AALOAD);
+        mv.visitFieldInsn(PUTSTATIC, internalName, "SETTER", METHOD_HANDLE);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        mv = cw.visitMethod(ACC_PUBLIC, "<init>", "(Ljava/lang/Class;Ljava/lang/Class;Z)V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitVarInsn(ALOAD, 2);
+        mv.visitVarInsn(ILOAD, 3);
+        mv.visitMethodInsn(INVOKESPECIAL, SUPERCLASS, "<init>", "(Ljava/lang/Class;Ljava/lang/Class;Z)V", false);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        // public Object getValue(Object object) { return (Object) GETTER.invokeExact(object); }
+        mv = cw.visitMethod(ACC_PUBLIC, "getValue", "(Ljava/lang/Object;)Ljava/lang/Object;", null, new String[] {"java/lang/Throwable"});
+        mv.visitCode();
+        mv.visitFieldInsn(GETSTATIC, internalName, "GETTER", METHOD_HANDLE);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/invoke/MethodHandle", "invokeExact", "(Ljava/lang/Object;)Ljava/lang/Object;", false);
+        mv.visitInsn(ARETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        // public void setValue(Object object, Object value) { SETTER.invokeExact(object, value); }
+        mv = cw.visitMethod(ACC_PUBLIC, "setValue", "(Ljava/lang/Object;Ljava/lang/Object;)V", null, new String[] {"java/lang/Throwable"});
+        mv.visitCode();
+        mv.visitFieldInsn(GETSTATIC, internalName, "SETTER", METHOD_HANDLE);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitVarInsn(ALOAD, 2);
+        mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/invoke/MethodHandle", "invokeExact", "(Ljava/lang/Object;Ljava/lang/Object;)V", false);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    /**
+     * INTERNAL:
+     * Defines the generated classes for the attributes of one domain class and
+     * hands each of them the method handles it invokes when it is initialized.
+     * Only EclipseLink classes need to be visible, the handles are typed to Object.
+     */
+    public static final class AccessClassLoader extends ClassLoader {
+
+        /** The handles of the classes defined but not yet initialized, by class name. */
+        private final Map<String, MethodHandle[]> handles = new HashMap<String, MethodHandle[]>();
+
+        AccessClassLoader() {
+            super(AttributeAccessGenerator.class.getClassLoader());
+        }
+
+        synchronized Class define(String className, byte[] bytes, MethodHandle getter, MethodHandle setter) {
+            this.handles.put(className, new MethodHandle[] {getter, setter});
+            try {
+                return defineClass(className, bytes, 0, bytes.length);
+            } catch (LinkageError error) {
+                this.handles.remove(className);
+                throw error;
+            }
+        }
+
+        /**
+         * INTERNAL:
+         * Return the get and set handles of the generated class, called once
+         * from its static initializer.
+         */
+        public synchronized MethodHandle[] takeHandles(String className) {
+            return this.handles.remove(className);
+        }
+    }
+}
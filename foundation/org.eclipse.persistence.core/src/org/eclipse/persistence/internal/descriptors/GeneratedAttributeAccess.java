@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.internal.descriptors;
+
+/**
+ * INTERNAL:
+ * <p><b>Purpose</b>: Reads and writes one attribute of a domain class without
+ * reflection. Subclasses are generated by {@link AttributeAccessGenerator} for
+ * a field or a pair of get and set methods.</p>
+ * <p>The generated code does not convert values and reports errors differently
+ * than reflection, so callers must check {@link #canGet(Object)} and
+ * {@link #canSet(Object, Object)} first and use reflection for anything else.</p>
+ */
+public abstract class GeneratedAttributeAccess {
+
+    /** The class declaring the attribute. */
+    protected final Class objectClass;
+
+    /** The type of the attribute, the wrapper class for a primitive type. */
+    protected final Class valueClass;
+
+    /** If the attribute type is primitive, in which case null cannot be set. */
+    protected final boolean isPrimitive;
+
+    protected GeneratedAttributeAccess(Class objectClass, Class valueClass, boolean isPrimitive) {
+        this.objectClass = objectClass;
+        this.valueClass = valueClass;
+        this.isPrimitive = isPrimitive;
+    }
+
+    /**
+     * Return if {@link #getValue(Object)} can be called for the object.
+     */
+    public boolean canGet(Object object) {
+        return this.objectClass.isInstance(object);
+    }
+
+    /**
+     * Return if {@link #setValue(Object, Object)} can be called with the object
+     * and the value without any conversion.
+     */
+    public boolean canSet(Object object, Object value) {
+        return this.objectClass.isInstance(object) && ((value == null) ? !this.isPrimitive : this.valueClass.isInstance(value));
+    }
+
+    /**
+     * Return the value of the attribute. Any exception thrown is thrown by
+     * the get method itself.
+     */
+    public abstract Object getValue(Object object) throws Throwable;
+
+    /**
+     * Set the value of the attribute. Any exception thrown is thrown by the
+     * set method itself.
+     */
+    public abstract void setValue(Object object, Object value) throws Throwable;
+}
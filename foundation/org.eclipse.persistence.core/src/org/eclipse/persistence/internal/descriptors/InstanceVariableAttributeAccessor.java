@@ -36,6 +36,12 @@ public class InstanceVariableAttributeAccessor extends AttributeAccessor {
     /** The attribute name of an object is converted to Field type to access it reflectively */
     protected transient Field attributeField;
 
+    /** PERF: Direct access to attributeField, generated once the accessor has been used often enough. */
+    protected transient GeneratedAttributeAccess generatedAccess;
+
+    /** The number of uses of the accessor until generatedAccess is generated, -1 if it cannot be generated. */
+    protected transient int useCount;
+
     /**
      * Returns the class type of the attribute.
      */
@@ -68,6 +74,17 @@ public Class getAttributeType() {
      */
     @Override
     public Object getAttributeValueFromObject(Object anObject) throws DescriptorException {
+        // PERF: Use the generated access, any error is reported through reflection.
+        GeneratedAttributeAccess access = getGeneratedAccess();
+        if ((access != null) && access.canGet(anObject)) {
+            try {
+                return access.getValue(anObject);
+            } catch (Error error) {
+                throw error;
+            } catch (Throwable exception) {
+                // Use reflection.
+            }
+        }
         try {
             // PERF: Direct variable access.
             if (PrivilegedAccessHelper.shouldUsePrivilegedAccess()){
@@ -94,6 +111,43 @@ public Object getAttributeValueFromObject(Object anObject) throws DescriptorExce
         }
     }
 
+    /**
+     * INTERNAL:
+     * Return the generated access to the attribute field, generating it once the
+     * accessor has been used often enough, or null if reflection must be used.
+     */
+    protected GeneratedAttributeAccess getGeneratedAccess() {
+        GeneratedAttributeAccess access = this.generatedAccess;
+        if ((access == null) && (this.useCount >= 0) && (this.attributeField != null)) {
+            int threshold = AttributeAccessGenerator.getThreshold();
+            if (threshold < 0) {
+                this.useCount = -1;
+            } else if (++this.useCount > threshold) {
+                access = generateAccess();
+            }
+        }
+        return access;
+    }
+
+    /**
+     * INTERNAL:
+     * Generate the access unless another thread has already generated it or
+     * failed to.  The use count is not synchronized, so several threads can pass
+     * the threshold at the same time, but only one of them generates a class.
+     */
+    protected synchronized GeneratedAttributeAccess generateAccess() {
+        GeneratedAttributeAccess access = this.generatedAccess;
+        if ((access == null) && (this.useCount >= 0) && (this.attributeField != null)) {
+            access = AttributeAccessGenerator.generate(this.attributeField);
+            if (access == null) {
+                this.useCount = -1;
+            } else {
+                this.generatedAccess = access;
+            }
+        }
+        return access;
+    }
+
     /**
      * instanceVariableName is converted to Field type.
      */
@@ -130,6 +184,8 @@ public boolean isInstanceVariableAttributeAccessor() {
      */
     protected void setAttributeField(Field field) {
         attributeField = field;
+        generatedAccess = null;
+        useCount = 0;
     }
 
     /**
@@ -137,6 +193,18 @@ protected void setAttributeField(Field field) {
      */
     @Override
     public void setAttributeValueInObject(Object anObject, Object value) throws DescriptorException {
+        // PERF: Use the generated access, any conversion or error is handled through reflection.
+        GeneratedAttributeAccess access = getGeneratedAccess();
+        if ((access != null) && access.canSet(anObject, value)) {
+            try {
+                access.setValue(anObject, value);
+                return;
+            } catch (Error error) {
+                throw error;
+            } catch (Throwable exception) {
+                // Use reflection.
+            }
+        }
          try {
             // PERF: Direct variable access.
             if (PrivilegedAccessHelper.shouldUsePrivilegedAccess()){
@@ -48,6 +48,12 @@ public class MethodAttributeAccessor extends AttributeAccessor {
     protected transient Method setMethod;
     protected transient Method getMethod;
 
+    /** PERF: Direct calls to the get and set methods, generated once the accessor has been used often enough. */
+    protected transient GeneratedAttributeAccess generatedAccess;
+
+    /** The number of uses of the accessor until generatedAccess is generated, -1 if it cannot be generated. */
+    protected transient int useCount;
+
     /**
      * Return the return type of the method accessor.
      */
@@ -65,6 +71,18 @@ public Class getAttributeClass() {
      */
     @Override
     public Object getAttributeValueFromObject(Object anObject) throws DescriptorException {
+        // PERF: Call the get method through the generated access.
+        if (this.getMethod != null) {
+            GeneratedAttributeAccess access = getGeneratedAccess();
+            if ((access != null) && access.canGet(anObject)) {
+                try {
+                    return access.getValue(anObject);
+                } catch (Throwable exception) {
+                    // Thrown by the get method, report it the same as reflection.
+                    throw DescriptorException.targetInvocationWhileGettingValueThruMethodAccessor(getGetMethodName(), anObject.getClass().getName(), new InvocationTargetException(exception));
+                }
+            }
+        }
         return getAttributeValueFromObject(anObject, (Object[]) null);
     }
 
@@ -100,6 +118,43 @@ protected Object getAttributeValueFromObject(Object anObject, Object[] parameter
         }
     }
 
+    /**
+     * INTERNAL:
+     * Return the generated access to the get and set methods, generating it once the
+     * accessor has been used often enough, or null if reflection must be used.
+     */
+    protected GeneratedAttributeAccess getGeneratedAccess() {
+        GeneratedAttributeAccess access = this.generatedAccess;
+        if ((access == null) && (this.useCount >= 0)) {
+            int threshold = AttributeAccessGenerator.getThreshold();
+            if (threshold < 0) {
+                this.useCount = -1;
+            } else if (++this.useCount > threshold) {
+                access = generateAccess();
+            }
+        }
+        return access;
+    }
+
+    /**
+     * INTERNAL:
+     * Generate the access unless another thread has already generated it or
+     * failed to.  The use count is not synchronized, so several threads can pass
+     * the threshold at the same time, but only one of them generates a class.
+     */
+    protected synchronized GeneratedAttributeAccess generateAccess() {
+        GeneratedAttributeAccess access = this.generatedAccess;
+        if ((access == null) && (this.useCount >= 0)) {
+            access = AttributeAccessGenerator.generate(this.getMethod, this.setMethod);
+            if (access == null) {
+                this.useCount = -1;
+            } else {
+                this.generatedAccess = access;
+            }
+        }
+        return access;
+    }
+
     /**
      * Return the accessor method for the attribute accessor.
      * 266912: For Metamodel API - change visibility from protected
@@ -234,6 +289,19 @@ public boolean isMethodAttributeAccessor() {
      */
     @Override
     public void setAttributeValueInObject(Object domainObject, Object attributeValue) throws DescriptorException {
+        // PERF: Call the set method through the generated access, any conversion is handled through reflection.
+        if (this.setMethod != null) {
+            GeneratedAttributeAccess access = getGeneratedAccess();
+            if ((access != null) && access.canSet(domainObject, attributeValue)) {
+                try {
+                    access.setValue(domainObject, attributeValue);
+                    return;
+                } catch (Throwable exception) {
+                    // Thrown by the set method, report it the same as reflection.
+                    throw DescriptorException.targetInvocationWhileSettingValueThruMethodAccessor(getSetMethodName(), attributeValue, new InvocationTargetException(exception));
+                }
+            }
+        }
         setAttributeValueInObject(domainObject, attributeValue, new Object[] {attributeValue});
     }
 
@@ -327,6 +395,8 @@ protected void setAttributeValueInObject(Object domainObject, Object attributeVa
      */
     protected void setGetMethod(Method getMethod) {
         this.getMethod = getMethod;
+        this.generatedAccess = null;
+        this.useCount = 0;
     }
 
     /**
@@ -341,6 +411,8 @@ public void setGetMethodName(String getMethodName) {
      */
     protected void setSetMethod(Method setMethod) {
         this.setMethod = setMethod;
+        this.generatedAccess = null;
+        this.useCount = 0;
     }
 
     /**
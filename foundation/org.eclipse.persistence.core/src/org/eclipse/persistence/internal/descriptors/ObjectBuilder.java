@@ -459,11 +459,16 @@ public void buildAttributesIntoObject(Object domainObject, CacheKey cacheKey, Ab
         // PERF: Cache if all mappings should be read.
         boolean readAllMappings = query.shouldReadAllMappings();
         boolean isTargetProtected = targetSession.isProtectedSession();
+        // PERF: Primitive values can be set without boxing.
+        PrimitiveArrayRecord primitiveRow = (databaseRow instanceof PrimitiveArrayRecord) ? (PrimitiveArrayRecord)databaseRow : null;
         int size = mappings.size();
         for (int index = 0; index < size; index++) {
             DatabaseMapping mapping = (DatabaseMapping)mappings.get(index);
             if (readAllMappings || query.shouldReadMapping(mapping, executionFetchGroup)) {
-                mapping.readFromRowIntoObject(databaseRow, joinManager, domainObject, cacheKey, query, targetSession, isTargetProtected);
+                if ((primitiveRow == null) || !mapping.isDirectToFieldMapping()
+                        || !((AbstractDirectMapping)mapping).readPrimitiveFromRowIntoObject(primitiveRow, domainObject)) {
+                    mapping.readFromRowIntoObject(databaseRow, joinManager, domainObject, cacheKey, query, targetSession, isTargetProtected);
+                }
             }
         }
 
@@ -1995,10 +2000,15 @@ public void buildAttributesIntoWorkingCopyClone(Object clone, CacheKey sharedCac
         List mappings = this.descriptor.getMappings();
         int size = mappings.size();
         FetchGroup executionFetchGroup = query.getExecutionFetchGroup(this.descriptor);
+        // PERF: Primitive values can be set without boxing.
+        PrimitiveArrayRecord primitiveRow = (databaseRow instanceof PrimitiveArrayRecord) ? (PrimitiveArrayRecord)databaseRow : null;
         for (int index = 0; index < size; index++) {
             DatabaseMapping mapping = (DatabaseMapping)mappings.get(index);
             if (readAllMappings || query.shouldReadMapping(mapping, executionFetchGroup)) {
-                mapping.buildCloneFromRow(databaseRow, joinManager, clone, sharedCacheKey, query, unitOfWork, unitOfWork);
+                if ((primitiveRow == null) || !mapping.isDirectToFieldMapping()
+                        || !((AbstractDirectMapping)mapping).readPrimitiveFromRowIntoObject(primitiveRow, clone)) {
+                    mapping.buildCloneFromRow(databaseRow, joinManager, clone, sharedCacheKey, query, unitOfWork, unitOfWork);
+                }
             }
         }
 
@@ -16,6 +16,7 @@
 import java.security.AccessController;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 import org.eclipse.persistence.config.SystemProperties;
 import org.eclipse.persistence.exceptions.*;
@@ -37,6 +38,15 @@
  * <li> Wait all other threads until the first thread is done.
  * <li> Maintain the depth of the active thread.
  * </ul>
+ * <p>
+ * Read locks can optionally be acquired and released without entering the monitor
+ * (see {@link org.eclipse.persistence.config.PersistenceUnitProperties#CACHE_LOCK_FREE_READ_LOCKS}).
+ * The mode is fixed for each manager before it is shared, as all threads using a lock must use the same protocol.
+ * A reader then increments the reader count atomically and re-checks the active thread,
+ * while a writer claims the active thread before checking the reader count,
+ * so at least one of them always observes the other and backs off.
+ * Threads waiting on the monitor are still notified when the lock is released,
+ * and a released read lock only notifies when a writer is waiting.
  */
 public class ConcurrencyManager implements Serializable {
 
@@ -44,14 +54,23 @@ public class ConcurrencyManager implements Serializable {
 
     protected static boolean shouldTrackStack = getPropertyRecordStackOnLock() != null;
 
-    protected int numberOfReaders;
+    /** The default of the lock free read locks mode of the managers created after it is set. */
+    protected static volatile boolean shouldUseLockFreeReadLocks = "true".equalsIgnoreCase(getPropertyLockFreeReadLocks());
+
+    /** Allows the reader count to be updated outside of the monitor. */
+    protected static final AtomicIntegerFieldUpdater<ConcurrencyManager> numberOfReadersUpdater = AtomicIntegerFieldUpdater.newUpdater(ConcurrencyManager.class, "numberOfReaders");
+
+    protected volatile int numberOfReaders;
     protected int depth;
-    protected int numberOfWritersWaiting;
+    protected volatile int numberOfWritersWaiting;
     protected volatile transient Thread activeThread;
 
     protected boolean lockedByMergeManager;
     protected Exception stack;
 
+    /** Allows read locks to be acquired and released without entering the monitor, set before the manager is shared. */
+    protected boolean usesLockFreeReadLocks = shouldUseLockFreeReadLocks;
+
     /**
      * Initialize the newly allocated instance of this class.
      * Set the depth to zero.
@@ -78,6 +97,10 @@ public void acquire() throws ConcurrencyException {
      * called with true from the merge process, if true then the refresh will not refresh the object
      */
     public synchronized void acquire(boolean forMerge) throws ConcurrencyException {
+        if (this.usesLockFreeReadLocks) {
+            acquireWithLockFreeReaders(forMerge);
+            return;
+        }
         while (((this.activeThread != null) || (this.numberOfReaders > 0)) && (this.activeThread != Thread.currentThread())) {
             // This must be in a while as multiple threads may be released, or another thread may rush the acquire after one is released.
             try {
@@ -98,6 +121,72 @@ public synchronized void acquire(boolean forMerge) throws ConcurrencyException {
         this.depth++;
     }
 
+    /**
+     * Wait for all threads except the active thread when read locks are lock free.
+     * A reader may register at any time outside of the monitor, so the active thread is claimed before
+     * checking the readers, and the writer registers as waiting before its final check.
+     * Callers of this method must synchronize on this manager.
+     */
+    protected void acquireWithLockFreeReaders(boolean forMerge) throws ConcurrencyException {
+        Thread currentThread = Thread.currentThread();
+        // This must be in a while as multiple threads may be released, or another thread may rush the acquire after one is released.
+        while (!claimActiveThread(currentThread)) {
+            try {
+                this.numberOfWritersWaiting++;
+                // Check again once the waiting writer is visible, a lock free reader may have just released.
+                if (((this.activeThread != null) && (this.activeThread != currentThread)) || (this.numberOfReaders > 0)) {
+                    wait();
+                }
+                this.numberOfWritersWaiting--;
+            } catch (InterruptedException exception) {
+                this.numberOfWritersWaiting--;
+                throw ConcurrencyException.waitWasInterrupted(exception.getMessage());
+            }
+        }
+        this.lockedByMergeManager = forMerge;
+        this.depth++;
+    }
+
+    /**
+     * Set the active thread if the lock is not held by another thread or any readers,
+     * return if the current thread is the active thread.
+     * The active thread is set before checking the readers, so a lock free reader either sees the
+     * active thread and backs off, or its read lock is seen here.
+     * Callers of this method must synchronize on this manager.
+     */
+    protected boolean claimActiveThread(Thread currentThread) {
+        if (this.activeThread == currentThread) {
+            return true;
+        }
+        if (this.activeThread != null) {
+            return false;
+        }
+        this.activeThread = currentThread;
+        if (this.numberOfReaders > 0) {
+            this.activeThread = null;
+            return false;
+        }
+        if (shouldTrackStack){
+            this.stack = new Exception();
+        }
+        return true;
+    }
+
+    /**
+     * Acquire the lock if the active thread can be claimed without waiting, return if it was acquired.
+     * Used by the no wait acquires when read locks are lock free, as a reader can register between
+     * checking the readers and acquiring, so the lock must be claimed in a single step.
+     * Callers of this method must synchronize on this manager.
+     */
+    protected boolean tryAcquireWithLockFreeReaders(boolean forMerge) {
+        if (!claimActiveThread(Thread.currentThread())) {
+            return false;
+        }
+        this.lockedByMergeManager = forMerge;
+        this.depth++;
+        return true;
+    }
+
     /**
      * If the lock is not acquired already acquire it and return true.
      * If it has been acquired already return false
@@ -114,6 +203,9 @@ public boolean acquireNoWait() throws ConcurrencyException {
      * called with true from the merge process, if true then the refresh will not refresh the object
      */
     public synchronized boolean acquireNoWait(boolean forMerge) throws ConcurrencyException {
+        if (this.usesLockFreeReadLocks) {
+            return tryAcquireWithLockFreeReaders(forMerge);
+        }
         if ((this.activeThread == null && this.numberOfReaders == 0) || (this.activeThread == Thread.currentThread())) {
             //if I own the lock increment depth
             acquire(forMerge);
@@ -130,6 +222,23 @@ public synchronized boolean acquireNoWait(boolean forMerge) throws ConcurrencyEx
      * called with true from the merge process, if true then the refresh will not refresh the object
      */
     public synchronized boolean acquireWithWait(boolean forMerge, int wait) throws ConcurrencyException {
+        if (this.usesLockFreeReadLocks) {
+            if (tryAcquireWithLockFreeReaders(forMerge)) {
+                return true;
+            }
+            try {
+                // Register as waiting before the final check, so the last lock free reader notifies.
+                this.numberOfWritersWaiting++;
+                if ((this.activeThread != null) || (this.numberOfReaders > 0)) {
+                    wait(wait);
+                }
+            } catch (InterruptedException e) {
+                return false;
+            } finally {
+                this.numberOfWritersWaiting--;
+            }
+            return tryAcquireWithLockFreeReaders(forMerge);
+        }
         if ((this.activeThread == null && this.numberOfReaders == 0) || (this.activeThread == Thread.currentThread())) {
             //if I own the lock increment depth
             acquire(forMerge);
@@ -156,6 +265,9 @@ public synchronized boolean acquireWithWait(boolean forMerge, int wait) throws C
      */
     public synchronized boolean acquireIfUnownedNoWait(boolean forMerge) throws ConcurrencyException {
         // Only acquire lock if active thread is null. Do not check current thread.
+        if (this.usesLockFreeReadLocks) {
+            return (this.activeThread == null) && tryAcquireWithLockFreeReaders(forMerge);
+        }
         if (this.activeThread == null && this.numberOfReaders == 0) {
              // if lock is unowned increment depth
             acquire(forMerge);
@@ -186,9 +298,13 @@ public void acquireDeferredLock() throws ConcurrencyException {
                 //the object is not being built.
                 try {
                     this.numberOfWritersWaiting++;
-                    wait();
+                    // Check again once the waiting writer is visible, a lock free reader may have just released.
+                    if (this.numberOfReaders != 0) {
+                        wait();
+                    }
                     this.numberOfWritersWaiting--;
                 } catch (InterruptedException exception) {
+                    this.numberOfWritersWaiting--;
                     throw ConcurrencyException.waitWasInterrupted(exception.getMessage());
                 }
             }
@@ -234,28 +350,59 @@ public void checkReadLock() throws ConcurrencyException {
      * Wait on any writer.
      * Allow concurrent reads.
      */
-    public synchronized void acquireReadLock() throws ConcurrencyException {
-        // Cannot check for starving writers as will lead to deadlocks.
-        while ((this.activeThread != null) && (this.activeThread != Thread.currentThread())) {
-            try {
-                wait();
-            } catch (InterruptedException exception) {
-                throw ConcurrencyException.waitWasInterrupted(exception.getMessage());
+    public void acquireReadLock() throws ConcurrencyException {
+        // PERF: Avoid the monitor if there is no writer.
+        if (this.usesLockFreeReadLocks && tryAcquireReadLockWithoutMonitor()) {
+            return;
+        }
+        synchronized (this) {
+            // Cannot check for starving writers as will lead to deadlocks.
+            while ((this.activeThread != null) && (this.activeThread != Thread.currentThread())) {
+                try {
+                    wait();
+                } catch (InterruptedException exception) {
+                    throw ConcurrencyException.waitWasInterrupted(exception.getMessage());
+                }
             }
+            numberOfReadersUpdater.incrementAndGet(this);
         }
-        this.numberOfReaders++;
     }
 
     /**
      * If this is acquired return false otherwise acquire readlock and return true
      */
-    public synchronized boolean acquireReadLockNoWait() {
-        if ((this.activeThread == null) || (this.activeThread == Thread.currentThread())) {
-            acquireReadLock();
+    public boolean acquireReadLockNoWait() {
+        if (this.usesLockFreeReadLocks && tryAcquireReadLockWithoutMonitor()) {
             return true;
-        } else {
+        }
+        synchronized (this) {
+            if ((this.activeThread == null) || (this.activeThread == Thread.currentThread())) {
+                acquireReadLock();
+                return true;
+            } else {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Acquire the read lock without entering the monitor if no other thread is the active thread.
+     * The reader is registered first and the active thread checked after,
+     * if a writer acquired the lock in between the read lock is released and false returned.
+     */
+    protected boolean tryAcquireReadLockWithoutMonitor() {
+        Thread currentThread = Thread.currentThread();
+        Thread activeThread = this.activeThread;
+        if ((activeThread != null) && (activeThread != currentThread)) {
             return false;
         }
+        numberOfReadersUpdater.incrementAndGet(this);
+        activeThread = this.activeThread;
+        if ((activeThread == null) || (activeThread == currentThread)) {
+            return true;
+        }
+        releaseReadLockWithoutMonitor();
+        return false;
     }
 
     /**
@@ -468,14 +615,42 @@ public void releaseDeferredLock() throws ConcurrencyException {
      * Decrement the number of readers.
      * Used to allow concurrent reads.
      */
-    public synchronized void releaseReadLock() throws ConcurrencyException {
-        if (this.numberOfReaders == 0) {
-            throw ConcurrencyException.signalAttemptedBeforeWait();
-        } else {
-            this.numberOfReaders--;
+    public void releaseReadLock() throws ConcurrencyException {
+        if (this.usesLockFreeReadLocks) {
+            releaseReadLockWithoutMonitor();
+            return;
         }
-        if (this.numberOfReaders == 0) {
-            notifyAll();
+        synchronized (this) {
+            int numberOfReaders;
+            do {
+                numberOfReaders = this.numberOfReaders;
+                if (numberOfReaders == 0) {
+                    throw ConcurrencyException.signalAttemptedBeforeWait();
+                }
+            } while (!numberOfReadersUpdater.compareAndSet(this, numberOfReaders, numberOfReaders - 1));
+            if (numberOfReaders == 1) {
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Decrement the number of readers without entering the monitor.
+     * The monitor is only entered to notify if this was the last reader and a writer is waiting.
+     */
+    protected void releaseReadLockWithoutMonitor() throws ConcurrencyException {
+        int numberOfReaders;
+        do {
+            numberOfReaders = this.numberOfReaders;
+            if (numberOfReaders == 0) {
+                throw ConcurrencyException.signalAttemptedBeforeWait();
+            }
+        } while (!numberOfReadersUpdater.compareAndSet(this, numberOfReaders, numberOfReaders - 1));
+        // Writers register as waiting before their final check of the readers, so cannot miss this notify.
+        if ((numberOfReaders == 1) && (this.numberOfWritersWaiting > 0)) {
+            synchronized (this) {
+                notifyAll();
+            }
         }
     }
 
@@ -513,7 +688,7 @@ public void setIsLockedByMergeManager(boolean state) {
      * Track the number of readers.
      */
     protected void setNumberOfReaders(int numberOfReaders) {
-        this.numberOfReaders = numberOfReaders;
+        numberOfReadersUpdater.set(this, numberOfReaders);
     }
 
     /**
@@ -569,6 +744,52 @@ public static void setShouldTrackStack(boolean shouldTrackStack) {
         ConcurrencyManager.shouldTrackStack = shouldTrackStack;
     }
 
+    /**
+     * INTERNAL:
+     * Return if the managers and projects created from now on default to lock free read locks.
+     */
+    public static boolean shouldUseLockFreeReadLocks() {
+        return shouldUseLockFreeReadLocks;
+    }
+
+    /**
+     * INTERNAL:
+     * Set if read locks should be acquired and released without entering the monitor when there is no writer.
+     * This reduces contention on objects that are read concurrently by many threads.
+     *
+     * This is only the default of the managers and projects created after it is set, existing managers keep their mode.
+     * The cache keys of a session use the setting of its project, see Project.setShouldUseLockFreeReadLocks(boolean).
+     * There is also a persistence unit and system level property for this setting. "eclipselink.cache.lock-free-read-locks"
+     * @param shouldUseLockFreeReadLocks
+     */
+    public static void setShouldUseLockFreeReadLocks(boolean shouldUseLockFreeReadLocks) {
+        ConcurrencyManager.shouldUseLockFreeReadLocks = shouldUseLockFreeReadLocks;
+    }
+
+    /**
+     * INTERNAL:
+     * Return if the read locks of this manager are acquired and released without entering the monitor.
+     */
+    public boolean usesLockFreeReadLocks() {
+        return usesLockFreeReadLocks;
+    }
+
+    /**
+     * INTERNAL:
+     * Set if the read locks of this manager are acquired and released without entering the monitor.
+     * This must only be set before the manager is used or made visible to other threads,
+     * as a writer and a reader using different protocols do not exclude each other.
+     */
+    public void setUsesLockFreeReadLocks(boolean usesLockFreeReadLocks) {
+        this.usesLockFreeReadLocks = usesLockFreeReadLocks;
+    }
+
+    private static String getPropertyLockFreeReadLocks() {
+        return (PrivilegedAccessHelper.shouldUsePrivilegedAccess()) ?
+                AccessController.doPrivileged(new PrivilegedGetSystemProperty(SystemProperties.LOCK_FREE_READ_LOCKS))
+                : System.getProperty(SystemProperties.LOCK_FREE_READ_LOCKS);
+    }
+
     private static String getPropertyRecordStackOnLock() {
         return (PrivilegedAccessHelper.shouldUsePrivilegedAccess()) ?
                 AccessController.doPrivileged(new PrivilegedGetSystemProperty(SystemProperties.RECORD_STACK_ON_LOCK))
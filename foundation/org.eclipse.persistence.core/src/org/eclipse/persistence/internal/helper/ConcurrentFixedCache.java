@@ -15,17 +15,53 @@
 import java.io.Serializable;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Provide a concurrent fixed size caching mechanism.
  * This is used for caching EJBQL parsed queries, Update calls,
  * and other places a fixed size cache is needed.
  * The default fixed size is 100.
+ * <p>
+ * When the cache is full, entries are replaced based on their access frequency.
+ * The frequency of every key requested through get is approximated in a small count-min sketch,
+ * including keys that are not cached. A new entry is only admitted if its key has been requested
+ * more frequently than the least frequently used entry in a sample of the cache, which is then evicted.
+ * This keeps frequently used entries cached even when many one-off keys are put in the cache.
+ * The frequencies are periodically halved, so entries that are no longer used age out.
+ * Gets do not lock. Every miss is recorded in the sketch, but only a random sample of hits is,
+ * each counting for the number of hits it stands for, so frequently hit entries do not write the shared sketch on every get.
+ * The sketch counters are not synchronized and so are only approximate.
+ * The number of hits, misses and evictions are recorded in striped counters.
  */
 public class ConcurrentFixedCache implements Serializable {
+    /** The number of frequency counters each key is hashed to. */
+    protected static final int SKETCH_DEPTH = 4;
+    /** The maximum count of a frequency counter. */
+    protected static final int MAX_FREQUENCY = 15;
+    /** One in this number of hits is recorded in the sketch, a power of two. */
+    protected static final int HIT_SAMPLE_RATE = 4;
+    /** The number of cached entries compared when selecting an entry to evict. */
+    protected static final int SAMPLE_SIZE = 8;
+    /** Seeds for the sketch hash functions. */
+    protected static final long[] SEEDS = new long[] {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
     protected int maxSize;
     protected Map cache;
 
+    /** Approximate access frequencies, indexed by the hashes of the keys. */
+    protected int[] frequencies;
+    /** The number of accesses recorded since the frequencies were last halved. */
+    protected AtomicInteger accesses = new AtomicInteger();
+
+    /** Used to sample entries for eviction, continues from the last sample so the whole cache is considered over time. */
+    protected transient Iterator sampleIterator;
+
+    protected LongAdder hits = new LongAdder();
+    protected LongAdder misses = new LongAdder();
+    protected LongAdder evictions = new LongAdder();
+
     /**
      * Create a new concurrent cache, with a fixed size of 100.
      */
@@ -40,6 +76,18 @@ public ConcurrentFixedCache(int maxSize) {
         // PERF: Use a concurrent map to allow concurrent gets.
         this.cache = new ConcurrentHashMap(maxSize);
         this.maxSize = maxSize;
+        this.frequencies = new int[sketchSize(maxSize)];
+    }
+
+    /**
+     * Return the number of frequency counters for the max size, a power of two.
+     */
+    protected static int sketchSize(int maxSize) {
+        int size = 16;
+        while ((size < (maxSize * SKETCH_DEPTH)) && (size < (1 << 24))) {
+            size = size << 1;
+        }
+        return size;
     }
 
     /**
@@ -55,6 +103,10 @@ public int getMaxSize() {
      * The default size is 100;
      */
     public void setMaxSize(int maxSize) {
+        if (sketchSize(maxSize) != this.frequencies.length) {
+            this.frequencies = new int[sketchSize(maxSize)];
+            this.accesses.set(0);
+        }
         this.maxSize = maxSize;
     }
 
@@ -63,7 +115,21 @@ public void setMaxSize(int maxSize) {
      * If the EJBQL has not been cached, null is returned.
      */
     public Object get(Object key) {
-        return this.cache.get(key);
+        Object value = this.cache.get(key);
+        if (this.maxSize == 0) {
+            return value;
+        }
+        if (value == null) {
+            recordAccess(key, 1);
+            this.misses.increment();
+        } else {
+            // PERF: Avoid writing the shared sketch on every hit.
+            if ((ThreadLocalRandom.current().nextInt() & (HIT_SAMPLE_RATE - 1)) == 0) {
+                recordAccess(key, HIT_SAMPLE_RATE);
+            }
+            this.hits.increment();
+        }
+        return value;
     }
 
     public void clear(){
@@ -72,31 +138,104 @@ public void clear(){
 
     /**
      * Add the value to the cache.
-     * Remove the
+     * If the cache is full, the value is only cached if its key is used more frequently
+     * than the least frequently used entry in a sample of the cache, which is removed.
      */
     public void put(Object key, Object value) {
         if (this.maxSize == 0) {
             return;
         }
         this.cache.put(key, value);
-        // Currently just removes the first one encountered, not LRU,
-        // this is not ideal, but the most concurrent and quickest way to ensure fixed size.
         if (this.cache.size() > this.maxSize) {
-            Iterator iterator = this.cache.keySet().iterator();
-            try {
-                while ((this.cache.size() > this.maxSize) && iterator.hasNext()) {
-                    Object next = iterator.next();
-                    // Do not remove what was just put in.
-                    if (next != key) {
-                        this.cache.remove(next);
+            evict(key);
+        }
+    }
+
+    /**
+     * Remove entries until the cache is within its max size.
+     * The key just put is a candidate for eviction, it is only kept if it is more frequent than the sampled entries.
+     */
+    protected synchronized void evict(Object candidate) {
+        while (this.cache.size() > this.maxSize) {
+            Object victim = candidate;
+            int victimFrequency = (candidate == null) ? Integer.MAX_VALUE : frequency(candidate);
+            int sampled = 0;
+            int size = this.cache.size();
+            // Sample at most the size of the cache, and restart the iterator once if it is exhausted.
+            while ((sampled < SAMPLE_SIZE) && (sampled < size)) {
+                if ((this.sampleIterator == null) || !this.sampleIterator.hasNext()) {
+                    this.sampleIterator = this.cache.keySet().iterator();
+                    if (!this.sampleIterator.hasNext()) {
+                        break;
+                    }
+                }
+                Object next = this.sampleIterator.next();
+                sampled++;
+                if (next != candidate) {
+                    int nextFrequency = frequency(next);
+                    if (nextFrequency < victimFrequency) {
+                        victim = next;
+                        victimFrequency = nextFrequency;
                     }
                 }
-            } catch (Exception alreadyGone) {
-                // Ignore.
+            }
+            if (victim == null) {
+                return;
+            }
+            if (this.cache.remove(victim) != null) {
+                this.evictions.increment();
+            }
+            if (victim == candidate) {
+                // The candidate was rejected, anything else over the max size is evicted without a candidate.
+                candidate = null;
             }
         }
     }
 
+    /**
+     * Increase the approximate frequency of the key by the number of accesses.
+     * The frequencies are halved once enough accesses have been recorded, so old usage ages out,
+     * only the thread that resets the access count halves them.
+     */
+    protected void recordAccess(Object key, int count) {
+        int[] frequencies = this.frequencies;
+        int hash = key.hashCode();
+        for (int depth = 0; depth < SKETCH_DEPTH; depth++) {
+            int index = indexOf(hash, depth, frequencies.length);
+            frequencies[index] = Math.min(frequencies[index] + count, MAX_FREQUENCY);
+        }
+        int threshold = this.maxSize * 10;
+        int accesses = this.accesses.addAndGet(count);
+        if ((accesses >= threshold) && this.accesses.compareAndSet(accesses, 0)) {
+            for (int index = 0; index < frequencies.length; index++) {
+                frequencies[index] = frequencies[index] >>> 1;
+            }
+        }
+    }
+
+    /**
+     * Return the approximate number of recent gets of the key.
+     */
+    public int frequency(Object key) {
+        int[] frequencies = this.frequencies;
+        int hash = key.hashCode();
+        int frequency = MAX_FREQUENCY;
+        for (int depth = 0; depth < SKETCH_DEPTH; depth++) {
+            frequency = Math.min(frequency, frequencies[indexOf(hash, depth, frequencies.length)]);
+        }
+        return frequency;
+    }
+
+    /**
+     * Return the counter index for the hash in the row of the sketch.
+     */
+    protected int indexOf(int hash, int depth, int length) {
+        long seed = SEEDS[depth];
+        long index = (hash + seed) * seed;
+        index = index + (index >>> 32);
+        return ((int)index) & (length - 1);
+    }
+
     /**
      * Remove from cache.
      */
@@ -110,4 +249,51 @@ public void remove(Object key) {
     public Map getCache() {
         return cache;
     }
+
+    /**
+     * Return the number of gets that found a cached value.
+     */
+    public long getHits() {
+        return this.hits.sum();
+    }
+
+    /**
+     * Return the number of gets that did not find a cached value.
+     */
+    public long getMisses() {
+        return this.misses.sum();
+    }
+
+    /**
+     * Return the number of entries removed, or not admitted, to keep the cache within its max size.
+     */
+    public long getEvictions() {
+        return this.evictions.sum();
+    }
+
+    /**
+     * Return the fraction of gets that found a cached value.
+     */
+    public double getHitRate() {
+        long hits = getHits();
+        long total = hits + getMisses();
+        if (total == 0) {
+            return 0;
+        }
+        return (double)hits / total;
+    }
+
+    /**
+     * Reset the hit, miss and eviction counts.
+     */
+    public void resetStatistics() {
+        this.hits.reset();
+        this.misses.reset();
+        this.evictions.reset();
+    }
+
+    public String toString() {
+        return getClass().getSimpleName() + "(" + this.cache.size() + "/" + this.maxSize + " hits=" + getHits()
+            + " misses=" + getMisses() + " evictions=" + getEvictions() + ")";
+    }
 }
@@ -115,6 +115,13 @@ public class DatabaseField implements Cloneable, Serializable, CoreField  {
      */
     public boolean keepInRow;
 
+    /**
+     * Set if fetching the field's value through the typed get method of its primitive type failed,
+     * its value is then fetched as an object.
+     * PERF: Allow direct variable access from fetchRow.
+     */
+    public transient boolean isPrimitiveFetchUnsupported;
+
     public DatabaseField() {
         this("", new DatabaseTable());
     }
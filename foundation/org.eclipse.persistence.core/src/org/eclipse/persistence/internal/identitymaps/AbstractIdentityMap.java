@@ -44,6 +44,9 @@ public abstract class AbstractIdentityMap implements IdentityMap, Serializable,
     /** Session that the map is on */
     protected AbstractSession session;
 
+    /** Are the read locks of the cache keys acquired without synchronizing, defined by the session's project. */
+    protected boolean usesLockFreeReadLocks = ConcurrencyManager.shouldUseLockFreeReadLocks();
+
     public AbstractIdentityMap(){
     }
 
@@ -57,6 +60,9 @@ public AbstractIdentityMap(int size, ClassDescriptor descriptor, AbstractSession
         this.descriptor = descriptor;
         this.isIsolated = isolated;
         this.session = session;
+        if ((session != null) && (session.getProject() != null)) {
+            this.usesLockFreeReadLocks = session.getProject().shouldUseLockFreeReadLocks();
+        }
     }
 
     /**
@@ -238,7 +244,15 @@ public boolean containsKey(Object primaryKey) {
      * Create the correct type of CacheKey for this map.
      */
     public CacheKey createCacheKey(Object primaryKey, Object object, Object writeLockValue, long readTime) {
-        return new CacheKey(primaryKey, object, writeLockValue, readTime, this.isIsolated);
+        return initializeCacheKey(new CacheKey(primaryKey, object, writeLockValue, readTime, this.isIsolated));
+    }
+
+    /**
+     * Set the locking mode of the new cache key, before it is shared with other threads.
+     */
+    protected CacheKey initializeCacheKey(CacheKey cacheKey) {
+        cacheKey.setUsesLockFreeReadLocks(this.usesLockFreeReadLocks);
+        return cacheKey;
     }
 
     /**
@@ -426,6 +440,19 @@ public Object remove(Object primaryKey, Object object) {
      */
     public abstract Object remove(CacheKey cacheKey);
 
+    /**
+     * Notify the session's non-unique and sorted cache indexes that the cache key was removed from the map,
+     * by removal, eviction or garbage collection, so they no longer reference it.
+     */
+    protected void removedCacheKey(CacheKey cacheKey) {
+        if ((this.session != null) && (this.session.getIdentityMapAccessorInstance() != null)) {
+            IdentityMapManager manager = this.session.getIdentityMapAccessorInstance().getIdentityMapManager();
+            if (manager != null) {
+                manager.removeFromCacheKeyIndexes(cacheKey);
+            }
+        }
+    }
+
     /**
      * Set the maximum size for the receiver.
      * @param size is the new maximum size.
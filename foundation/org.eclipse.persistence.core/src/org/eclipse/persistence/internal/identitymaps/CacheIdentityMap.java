@@ -44,7 +44,7 @@ public CacheIdentityMap(int size, ClassDescriptor descriptor, AbstractSession se
 
     @Override
     public CacheKey createCacheKey(Object primaryKey, Object object, Object writeLockValue, long readTime) {
-        return new LinkedCacheKey(primaryKey, object, writeLockValue, readTime, isIsolated);
+        return initializeCacheKey(new LinkedCacheKey(primaryKey, object, writeLockValue, readTime, isIsolated));
     }
 
     /**
@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.internal.identitymaps;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.eclipse.persistence.descriptors.CacheIndex;
+
+/**
+ * <p><b>Purpose</b>: Index the cache keys of a non-unique or sorted cache index.
+ * <p>
+ * The cache keys are stored by primary key under their index values, in a hash map,
+ * or in a skip list map for a sorted index so ranges of index values can be looked up.
+ * Lookups do not lock, updates are synchronized on the index, as an object's previous
+ * index values must be removed when it is re-indexed.
+ * The identity maps remove their cache keys from the index when they are removed, evicted
+ * or garbage collected, but a lookup may still return a cache key that is being removed,
+ * so the caller must check the cache keys against the identity map.
+ *
+ * @see CacheIndex#isCacheKeyIndex()
+ */
+public class CacheKeyIndex implements Serializable {
+
+    /** The cache keys by primary key, for each of the index values. */
+    protected ConcurrentMap<CacheId, Map<Object, CacheKey>> cacheKeys;
+
+    /** The index values of each primary key, used to re-index or remove an object. */
+    protected Map<Object, CacheId> indexValues;
+
+    public CacheKeyIndex(CacheIndex index) {
+        if (index.isSorted()) {
+            this.cacheKeys = new ConcurrentSkipListMap<CacheId, Map<Object, CacheKey>>();
+        } else {
+            this.cacheKeys = new ConcurrentHashMap<CacheId, Map<Object, CacheKey>>();
+        }
+        this.indexValues = new ConcurrentHashMap<Object, CacheId>();
+    }
+
+    /**
+     * Return if the index is sorted, and supports range lookups.
+     */
+    public boolean isSorted() {
+        return this.cacheKeys instanceof NavigableMap;
+    }
+
+    /**
+     * Index the cache key by the index values, removing it from its previous index values.
+     */
+    public synchronized void put(CacheId values, CacheKey cacheKey) {
+        Object primaryKey = cacheKey.getKey();
+        CacheId previousValues = this.indexValues.put(primaryKey, values);
+        if ((previousValues != null) && !previousValues.equals(values)) {
+            removeCacheKey(previousValues, primaryKey);
+        }
+        Map<Object, CacheKey> valueCacheKeys = this.cacheKeys.get(values);
+        if (valueCacheKeys == null) {
+            valueCacheKeys = new ConcurrentHashMap<Object, CacheKey>();
+            this.cacheKeys.put(values, valueCacheKeys);
+        }
+        valueCacheKeys.put(primaryKey, cacheKey);
+        // The cache key may have been removed from its identity map before it was indexed.
+        if (cacheKey.getOwningMap() == null) {
+            this.indexValues.remove(primaryKey);
+            removeCacheKey(values, primaryKey);
+        }
+    }
+
+    /**
+     * Remove the cache key from the index, if it is the cache key indexed for its primary key.
+     */
+    public void remove(CacheKey cacheKey) {
+        Object primaryKey = cacheKey.getKey();
+        // PERF: Avoid synchronizing for the cache keys of other classes, or not indexed.
+        if (!this.indexValues.containsKey(primaryKey)) {
+            return;
+        }
+        synchronized (this) {
+            CacheId values = this.indexValues.get(primaryKey);
+            if (values == null) {
+                return;
+            }
+            Map<Object, CacheKey> valueCacheKeys = this.cacheKeys.get(values);
+            if ((valueCacheKeys != null) && (valueCacheKeys.get(primaryKey) == cacheKey)) {
+                this.indexValues.remove(primaryKey);
+                removeCacheKey(values, primaryKey);
+            }
+        }
+    }
+
+    /**
+     * Remove the primary key from the cache keys of the index values, and the index values if empty.
+     */
+    protected void removeCacheKey(CacheId values, Object primaryKey) {
+        Map<Object, CacheKey> valueCacheKeys = this.cacheKeys.get(values);
+        if (valueCacheKeys != null) {
+            valueCacheKeys.remove(primaryKey);
+            if (valueCacheKeys.isEmpty()) {
+                this.cacheKeys.remove(values);
+            }
+        }
+    }
+
+    /**
+     * Return the cache keys indexed by the index values.
+     */
+    public Collection<CacheKey> get(CacheId values) {
+        Map<Object, CacheKey> valueCacheKeys = this.cacheKeys.get(values);
+        if (valueCacheKeys == null) {
+            return Collections.emptyList();
+        }
+        return valueCacheKeys.values();
+    }
+
+    /**
+     * Return the cache keys indexed by the values in the range, a null bound is unbounded.
+     * The index must be sorted.
+     */
+    public Collection<CacheKey> get(CacheId lowerValues, boolean isLowerInclusive, CacheId upperValues, boolean isUpperInclusive) {
+        NavigableMap<CacheId, Map<Object, CacheKey>> range = (NavigableMap<CacheId, Map<Object, CacheKey>>)this.cacheKeys;
+        if (lowerValues != null) {
+            if ((upperValues != null) && (lowerValues.compareTo(upperValues) > 0)) {
+                return Collections.emptyList();
+            }
+            range = range.tailMap(lowerValues, isLowerInclusive);
+        }
+        if (upperValues != null) {
+            range = range.headMap(upperValues, isUpperInclusive);
+        }
+        List<CacheKey> rangeCacheKeys = new ArrayList<CacheKey>();
+        for (Map<Object, CacheKey> valueCacheKeys : range.values()) {
+            rangeCacheKeys.addAll(valueCacheKeys.values());
+        }
+        return rangeCacheKeys;
+    }
+
+    /**
+     * Return the number of objects in the index.
+     */
+    public int size() {
+        return this.indexValues.size();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(" + size() + ")";
+    }
+}
@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.internal.identitymaps;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+
+/**
+ * <p><b>Purpose</b>: A fixed size cache using CLOCK (second chance) eviction.<p>
+ * Provides the same fixed size caching as the CacheIdentityMap, but without a global lock.
+ * Accessing a cache key only sets its reference bit, so reads never contend on the linked list
+ * that the LRU CacheIdentityMap must reorder under a lock on every get.
+ * New cache keys are appended to a concurrent queue (the clock), when the max size is exceeded the
+ * clock is swept, keys accessed since the last sweep are given a second chance and moved to the back,
+ * the first key not accessed is removed.
+ * Only one thread sweeps at a time, other threads inserting while a sweep is in progress do not wait for it.
+ * <p><b>Responsibilities</b>:<ul>
+ *    <li> Guarantees identity through primary key values only while the object remains in the map,
+ *    once its key is evicted a later read builds a new instance, as with the CacheIdentityMap.
+ *    <li> Never evicts a key that is locked, so locked objects keep their identity.
+ *    <li> Keeps the size close to the max size, evicting approximately least recently used keys,
+ *    the size may exceed the max size while a sweep is in progress or all keys are referenced or locked.
+ * </ul>
+ * @see CacheIdentityMap
+ */
+public class ClockCacheIdentityMap extends FullIdentityMap {
+
+    /** Cache keys in insertion order, removed keys are discarded lazily by the sweep. */
+    protected Queue<ClockCacheKey> clock;
+
+    /** Number of entries in the clock, including removed keys not yet discarded. */
+    protected AtomicInteger clockSize;
+
+    /** Ensures only a single thread sweeps the clock. */
+    protected AtomicBoolean isSweeping;
+
+    public ClockCacheIdentityMap(int size, ClassDescriptor descriptor, AbstractSession session, boolean isolated) {
+        super(size, descriptor, session, isolated);
+        this.clock = new ConcurrentLinkedQueue<ClockCacheKey>();
+        this.clockSize = new AtomicInteger();
+        this.isSweeping = new AtomicBoolean();
+    }
+
+    /**
+     * INTERNAL:
+     * Clones itself, the clock is rebuilt from the cloned cache keys.
+     */
+    @Override
+    public Object clone() {
+        ClockCacheIdentityMap clone = (ClockCacheIdentityMap)super.clone();
+        clone.clock = new ConcurrentLinkedQueue<ClockCacheKey>();
+        clone.clockSize = new AtomicInteger();
+        clone.isSweeping = new AtomicBoolean();
+        for (CacheKey key : clone.getCacheKeys().values()) {
+            clone.clock.offer((ClockCacheKey)key);
+            clone.clockSize.incrementAndGet();
+        }
+        return clone;
+    }
+
+    @Override
+    public CacheKey createCacheKey(Object primaryKey, Object object, Object writeLockValue, long readTime) {
+        return initializeCacheKey(new ClockCacheKey(primaryKey, object, writeLockValue, readTime, isIsolated));
+    }
+
+    /**
+     * Reduces the size of the receiver down to the maxSize by sweeping the clock.
+     * If another thread is already sweeping, return immediately.
+     */
+    protected void ensureFixedSize() {
+        // protect the case where someone attempts to break the cache by
+        // setting max size to 0.
+        int maxSize = getMaxSize();
+        if ((maxSize <= 0) || !requiresSweep(maxSize)) {
+            return;
+        }
+        if (!this.isSweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            // Each key can at most be passed twice, once to clear its bit and once to evict it.
+            int remaining = (this.clockSize.get() * 2) + 1;
+            while ((remaining-- > 0) && requiresSweep(maxSize)) {
+                ClockCacheKey key = this.clock.poll();
+                if (key == null) {
+                    break;
+                }
+                this.clockSize.decrementAndGet();
+                // Discard keys that were removed or replaced since they were added.
+                if (this.cacheKeys.get(key.getKey()) != key) {
+                    continue;
+                }
+                // Give a second chance to referenced keys, and never evict a key in use.
+                // If only compacting removed keys, live keys keep their bit.
+                if ((getSize() <= maxSize) || key.isReferenced() || key.isAcquired()) {
+                    if (getSize() > maxSize) {
+                        key.setIsReferenced(false);
+                    }
+                    this.clock.offer(key);
+                    this.clockSize.incrementAndGet();
+                    continue;
+                }
+                remove(key);
+            }
+        } finally {
+            this.isSweeping.set(false);
+        }
+    }
+
+    /**
+     * Return if the map exceeds its max size, or the clock holds too many removed keys.
+     */
+    protected boolean requiresSweep(int maxSize) {
+        return (getSize() > maxSize) || (this.clockSize.get() > (maxSize * 2));
+    }
+
+    /**
+     * Access the object within the table for the given primaryKey.
+     * Set the reference bit of the accessed key, no lock is acquired.
+     * @param primaryKeys is the primary key for the object to search for.
+     * @return the ClockCacheKey or null if none found for primaryKey
+     */
+    @Override
+    public CacheKey getCacheKey(Object primaryKeys, boolean forMerge) {
+        CacheKey cacheKey = super.getCacheKey(primaryKeys, forMerge);
+        if (cacheKey != null) {
+            cacheKey.updateAccess();
+        }
+        return cacheKey;
+    }
+
+    /**
+     * Also add the cache key to the clock if the cacheKey is put.
+     */
+    @Override
+    protected CacheKey putCacheKeyIfAbsent(CacheKey searchKey) {
+        CacheKey cacheKey = super.putCacheKeyIfAbsent(searchKey);
+        if (cacheKey == null) {
+            // New keys start referenced so they are not evicted by the sweep they trigger.
+            searchKey.updateAccess();
+            this.clock.offer((ClockCacheKey)searchKey);
+            this.clockSize.incrementAndGet();
+            ensureFixedSize();
+        }
+        return cacheKey;
+    }
+
+    /**
+     * INTERNAL:
+     * This method will be used to update the max cache size, any objects exceeding the max cache size will
+     * be remove from the cache.
+     */
+    @Override
+    public void updateMaxSize(int maxSize) {
+        setMaxSize(maxSize);
+        ensureFixedSize();
+    }
+}
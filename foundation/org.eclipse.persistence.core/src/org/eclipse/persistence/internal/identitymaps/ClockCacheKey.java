@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.internal.identitymaps;
+
+/**
+ * <p><b>Purpose</b>: CacheKey used by the ClockCacheIdentityMap.
+ * <p><b>Responsibilities</b>:<ul>
+ * <li> Provide same capabilities as superclass.
+ * <li> Record that the key was accessed since the last eviction sweep (the CLOCK reference bit).
+ * </ul>
+ * The reference bit is a plain volatile flag so accessing the key never requires a lock.
+ * @see ClockCacheIdentityMap
+ */
+public class ClockCacheKey extends CacheKey {
+
+    /** Set on access, cleared by the eviction sweep. */
+    protected volatile boolean isReferenced;
+
+    /**
+     * Initialize the newly allocated instance of this class.
+     * @param object is the domain object.
+     * @param writeLockValue is the write lock value number.
+     */
+    public ClockCacheKey(Object primaryKey, Object object, Object writeLockValue, long readTime, boolean isIsolated) {
+        super(primaryKey, object, writeLockValue, readTime, isIsolated);
+    }
+
+    /**
+     * Return if the key was accessed since the last time the eviction sweep passed it.
+     */
+    public boolean isReferenced() {
+        return isReferenced;
+    }
+
+    public void setIsReferenced(boolean isReferenced) {
+        this.isReferenced = isReferenced;
+    }
+
+    /**
+     * Notifies that cache key that it has been accessed.
+     * Only the reference bit is set, the key is not moved.
+     */
+    @Override
+    public void updateAccess() {
+        // Avoid the volatile write if already set, to keep the cache line shared between readers.
+        if (!this.isReferenced) {
+            this.isReferenced = true;
+        }
+    }
+}
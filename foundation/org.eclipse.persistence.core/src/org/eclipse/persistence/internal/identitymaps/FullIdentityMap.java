@@ -215,6 +215,7 @@ public Object remove(CacheKey cacheKey) {
             // Cache key needs to be released after removing from the map.
             cacheKey.setInvalidationState(CacheKey.CACHE_KEY_INVALID);
             cacheKey.release();
+            removedCacheKey(cacheKey);
             return cacheKey.getObject();
         } else {
             return null;
@@ -19,6 +19,8 @@
 import java.io.StringWriter;
 import java.lang.reflect.Constructor;
 import java.security.AccessController;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -53,13 +55,17 @@
 import org.eclipse.persistence.internal.security.PrivilegedInvokeConstructor;
 import org.eclipse.persistence.internal.sessions.AbstractRecord;
 import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.internal.sessions.ObjectChangeSet;
+import org.eclipse.persistence.internal.sessions.UnitOfWorkChangeSet;
 import org.eclipse.persistence.internal.sessions.UnitOfWorkImpl;
 import org.eclipse.persistence.logging.SessionLog;
 import org.eclipse.persistence.queries.InMemoryQueryIndirectionPolicy;
 import org.eclipse.persistence.queries.ObjectLevelReadQuery;
+import org.eclipse.persistence.queries.QueryResultsCachePolicy;
 import org.eclipse.persistence.queries.ReadQuery;
 import org.eclipse.persistence.sessions.Record;
 import org.eclipse.persistence.sessions.SessionProfiler;
+import org.eclipse.persistence.sessions.changesets.ChangeRecord;
 
 /**
  * <p><b>Purpose</b>: Maintain identity maps for domain classes mapped with EclipseLink.
@@ -83,9 +89,18 @@ public class IdentityMapManager implements Serializable, Cloneable {
     /** A map of class to list of queries that need to be invalidated when that class changes. */
     protected Map<Class, Set> queryResultsInvalidationsByClass;
 
+    /** A map of the queries whose results are only invalidated by changes to the attributes they use, by query key. */
+    protected Map<Object, ReadQuery> queryResultsSelectiveInvalidations;
+
+    /** A map of the query results cache statistics of named queries, kept when the results are cleared. */
+    protected Map<String, QueryResultsCacheStatistics> queryResultsStatistics;
+
     /** A map of indexes on the cache. */
     protected Map<CacheIndex, IdentityMap> cacheIndexes;
 
+    /** A map of the non-unique and sorted indexes on the cache. */
+    protected Map<CacheIndex, CacheKeyIndex> cacheKeyIndexes;
+
     /** A reference to the session owning this manager. */
     protected AbstractSession session;
 
@@ -114,12 +129,18 @@ public IdentityMapManager(AbstractSession session) {
             this.identityMaps = new HashMap();
             this.queryResults = new HashMap();
             this.queryResultsInvalidationsByClass = new HashMap();
+            this.queryResultsSelectiveInvalidations = new HashMap();
+            this.queryResultsStatistics = new HashMap();
             this.cacheIndexes = new HashMap();
+            this.cacheKeyIndexes = new HashMap();
         } else {
             this.identityMaps = new ConcurrentHashMap();
             this.queryResults = new ConcurrentHashMap();
             this.queryResultsInvalidationsByClass = new ConcurrentHashMap();
+            this.queryResultsSelectiveInvalidations = new ConcurrentHashMap();
+            this.queryResultsStatistics = new ConcurrentHashMap();
             this.cacheIndexes = new ConcurrentHashMap();
+            this.cacheKeyIndexes = new ConcurrentHashMap();
         }
         checkIsCacheAccessPreCheckRequired();
     }
@@ -383,6 +404,8 @@ protected IdentityMap buildNewIdentityMap(Class identityMapClass, int size, Clas
                 return new FullIdentityMap(size, descriptor, this.session, isIsolated);
             } else if (identityMapClass == ClassConstants.CacheIdentityMap_Class) {
                 return new CacheIdentityMap(size, descriptor, this.session, isIsolated);
+            } else if (identityMapClass == ClassConstants.ClockCacheIdentityMap_Class) {
+                return new ClockCacheIdentityMap(size, descriptor, this.session, isIsolated);
             }
         }
         try {
@@ -434,6 +457,8 @@ public Object clone() {
                 Map.Entry entry = (Map.Entry)iterator.next();
                 manager.identityMaps.put((Class)entry.getKey(), (IdentityMap)((IdentityMap)entry.getValue()).clone());
             }
+            // The non-unique and sorted indexes reference the original cache keys, so are not used by the clone.
+            manager.cacheKeyIndexes = null;
         } catch (CloneNotSupportedException exception) {
             throw new InternalError(exception.toString());
         }
@@ -446,6 +471,7 @@ public Object clone() {
     public void clearQueryCache() {
         this.queryResults = new ConcurrentHashMap();
         this.queryResultsInvalidationsByClass = new ConcurrentHashMap();
+        this.queryResultsSelectiveInvalidations = new ConcurrentHashMap();
     }
 
     /**
@@ -453,6 +479,7 @@ public void clearQueryCache() {
      */
     public void clearCacheIndexes() {
         this.cacheIndexes = new ConcurrentHashMap();
+        this.cacheKeyIndexes = new ConcurrentHashMap();
     }
 
     /**
@@ -468,6 +495,7 @@ public void clearQueryCache(ReadQuery query) {
                 queryKey = query;
             }
             this.queryResults.remove(queryKey);
+            this.queryResultsSelectiveInvalidations.remove(queryKey);
         }
     }
 
@@ -476,21 +504,129 @@ public void clearQueryCache(ReadQuery query) {
      * This is used to invalidate the query cache on any change.
      */
     public void invalidateQueryCache(Class classThatChanged) {
+        invalidateQueryCache(classThatChanged, classThatChanged, null);
+    }
+
+    /**
+     * Invalidate/remove any results for the class from the query cache that could be affected by the changes.
+     * The results of queries with selective invalidation are kept if none of the class's changes
+     * in the change set changed an attribute used by the query.
+     * This is used to invalidate the query cache on commit or merge.
+     */
+    public void invalidateQueryCache(Class classThatChanged, UnitOfWorkChangeSet changeSet) {
+        invalidateQueryCache(classThatChanged, classThatChanged, changeSet);
+    }
+
+    /**
+     * Invalidate/remove any results for the query class, or any of its superclasses, that could be affected by
+     * the changes to the class that changed.  A null change set invalidates all of the results.
+     */
+    protected void invalidateQueryCache(Class queryClass, Class classThatChanged, UnitOfWorkChangeSet changeSet) {
         if (this.queryResultsInvalidationsByClass == null) {
             return;
         }
-        Set invalidations = this.queryResultsInvalidationsByClass.get(classThatChanged);
+        Set invalidations = this.queryResultsInvalidationsByClass.get(queryClass);
         if (invalidations != null) {
             for (Object queryKey : invalidations) {
-                this.queryResults.remove(queryKey);
+                if ((changeSet != null) && !this.queryResultsSelectiveInvalidations.isEmpty()) {
+                    ReadQuery query = this.queryResultsSelectiveInvalidations.get(queryKey);
+                    if ((query != null) && !isQueryResultAffected(query, classThatChanged, changeSet)) {
+                        if (this.queryResults.containsKey(queryKey)) {
+                            QueryResultsCacheStatistics statistics = getQueryResultsCacheStatistics(queryKey, false);
+                            if (statistics != null) {
+                                statistics.recordRetention();
+                            }
+                        }
+                        continue;
+                    }
+                }
+                if (this.queryResults.remove(queryKey) != null) {
+                    QueryResultsCacheStatistics statistics = getQueryResultsCacheStatistics(queryKey, false);
+                    if (statistics != null) {
+                        statistics.recordInvalidation();
+                    }
+                }
             }
         }
-        Class superClass = classThatChanged.getSuperclass();
+        Class superClass = queryClass.getSuperclass();
         if ((superClass != null) && (superClass != ClassConstants.OBJECT)) {
-            invalidateQueryCache(superClass);
+            invalidateQueryCache(superClass, classThatChanged, changeSet);
         }
     }
 
+    /**
+     * Return if the changes to the class could affect the results of the query.
+     * Only changes to the query's reference class are checked against the attributes the query uses,
+     * changes to other classes the query joins, new and deleted objects, and changes whose changed
+     * attributes are not known, are assumed to affect the results.
+     */
+    protected boolean isQueryResultAffected(ReadQuery query, Class classThatChanged, UnitOfWorkChangeSet changeSet) {
+        Class referenceClass = query.getReferenceClass();
+        if ((referenceClass == null) || !referenceClass.isAssignableFrom(classThatChanged)) {
+            return true;
+        }
+        Set<String> attributes = query.getQueryResultsInvalidationAttributes();
+        if (attributes == null) {
+            return true;
+        }
+        Map<ObjectChangeSet, ObjectChangeSet> newObjects = changeSet.getNewObjectChangeSets().get(classThatChanged);
+        if ((newObjects != null) && !newObjects.isEmpty()) {
+            return true;
+        }
+        if (changeSet.hasDeletedObjects()) {
+            for (ObjectChangeSet deletedObject : changeSet.getDeletedObjects().keySet()) {
+                if (deletedObject.getClassType(this.session) == classThatChanged) {
+                    return true;
+                }
+            }
+        }
+        Map<ObjectChangeSet, ObjectChangeSet> changes = changeSet.getObjectChanges().get(classThatChanged);
+        if ((changes == null) || changes.isEmpty()) {
+            return true;
+        }
+        for (ObjectChangeSet objectChanges : changes.values()) {
+            if (objectChanges.isNew() || objectChanges.getChanges().isEmpty()) {
+                return true;
+            }
+            for (ChangeRecord change : objectChanges.getChanges()) {
+                if (attributes.contains(change.getAttribute())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Return the query results cache statistics of the named queries, by query name.
+     */
+    public Map<String, QueryResultsCacheStatistics> getQueryResultsCacheStatistics() {
+        if (this.queryResultsStatistics == null) {
+            return Collections.emptyMap();
+        }
+        return Collections.unmodifiableMap(this.queryResultsStatistics);
+    }
+
+    /**
+     * Return the query results cache statistics of the query key, or null if the query is not named.
+     */
+    protected QueryResultsCacheStatistics getQueryResultsCacheStatistics(Object queryKey, boolean shouldCreate) {
+        if (!(queryKey instanceof String) || (this.queryResultsStatistics == null)) {
+            return null;
+        }
+        QueryResultsCacheStatistics statistics = this.queryResultsStatistics.get(queryKey);
+        if ((statistics == null) && shouldCreate) {
+            synchronized (this.queryResultsStatistics) {
+                statistics = this.queryResultsStatistics.get(queryKey);
+                if (statistics == null) {
+                    statistics = new QueryResultsCacheStatistics((String)queryKey);
+                    this.queryResultsStatistics.put((String)queryKey, statistics);
+                }
+            }
+        }
+        return statistics;
+    }
+
     /**
      * Return true if an CacheKey with the primary key is in the map.
      * User API.
@@ -539,10 +675,35 @@ public Vector getAllFromIdentityMap(Expression selectionCriteria, Class theClass
             // bug 327900 - If don't read subclasses is set on the descriptor heed it.
             boolean readSubclassesOrNoInheritance = (!descriptor.hasInheritance() || descriptor.getInheritancePolicy().shouldReadSubclasses());
 
+            // Use the non-unique and sorted cache indexes to avoid scanning the whole cache if possible.
+            Collection<CacheKey> indexedKeys = null;
+            if ((selectionCriteria != null) && (this.cacheKeyIndexes != null) && !this.cacheKeyIndexes.isEmpty()) {
+                indexedKeys = descriptor.getCachePolicy().getCacheKeysByIndex(selectionCriteria, (AbstractRecord)translationRow, descriptor, this, map.getSize(), this.session);
+            }
+            Enumeration cacheEnum = null;
+            if (indexedKeys == null) {
+                cacheEnum = map.keys();
+            } else {
+                cacheEnum = Collections.enumeration(indexedKeys);
+            }
+
             // cache the current time to avoid calculating it every time through the loop
             long currentTimeInMillis = System.currentTimeMillis();
-            for (Enumeration cacheEnum = map.keys(); cacheEnum.hasMoreElements();) {
+            while (cacheEnum.hasMoreElements()) {
                 CacheKey key = (CacheKey)cacheEnum.nextElement();
+                if (indexedKeys != null) {
+                    CacheKey currentKey = map.getCacheKey(key.getKey(), false);
+                    if (currentKey != key) {
+                        // The index may still reference objects removed from the cache, but if the object
+                        // was replaced by one that was not indexed, the index cannot be trusted, so scan the cache.
+                        if (currentKey != null) {
+                            objects.clear();
+                            indexedKeys = null;
+                            cacheEnum = map.keys();
+                        }
+                        continue;
+                    }
+                }
                 if ((key.getObject() == null) || (!shouldReturnInvalidatedObjects && descriptor.getCacheInvalidationPolicy().isInvalidated(key, currentTimeInMillis))) {
                     continue;
                 }
@@ -1043,8 +1204,12 @@ public Object getQueryResult(ReadQuery query, List parameters, boolean shouldChe
         if ((queryKey == null) || ((String)queryKey).length() == 0) {
             queryKey = query;
         }
+        QueryResultsCacheStatistics statistics = getQueryResultsCacheStatistics(queryKey, true);
         IdentityMap map = this.queryResults.get(queryKey);
         if (map == null) {
+            if (statistics != null) {
+                statistics.recordMiss();
+            }
             return null;
         }
 
@@ -1057,8 +1222,14 @@ public Object getQueryResult(ReadQuery query, List parameters, boolean shouldChe
 
         CacheKey key = map.getCacheKey(lookupParameters, false);
         if ((key == null) || (shouldCheckExpiry && query.getQueryResultsCachePolicy().getCacheInvalidationPolicy().isInvalidated(key))) {
+            if (statistics != null) {
+                statistics.recordMiss();
+            }
             return null;
         }
+        if (statistics != null) {
+            statistics.recordHit();
+        }
         return key.getObject();
     }
 
@@ -1066,7 +1237,7 @@ public Object getQueryResult(ReadQuery query, List parameters, boolean shouldChe
      * Return the cache key for the cache index or null if not found.
      */
     public CacheKey getCacheKeyByIndex(CacheIndex index, CacheId indexValues, boolean shouldCheckExpiry, ClassDescriptor descriptor) {
-        if (this.cacheIndexes == null) {
+        if ((this.cacheIndexes == null) || index.isCacheKeyIndex()) {
             return null;
         }
         IdentityMap map = this.cacheIndexes.get(index);
@@ -1099,6 +1270,23 @@ public void putCacheKeyByIndex(CacheIndex index, CacheId indexValues, CacheKey c
         if (indexValues == null) {
             return;
         }
+        if (index.isCacheKeyIndex()) {
+            if (this.cacheKeyIndexes == null) {
+                return;
+            }
+            CacheKeyIndex cacheKeyIndex = this.cacheKeyIndexes.get(index);
+            if (cacheKeyIndex == null) {
+                synchronized (this.cacheKeyIndexes) {
+                    cacheKeyIndex = this.cacheKeyIndexes.get(index);
+                    if (cacheKeyIndex == null) {
+                        cacheKeyIndex = new CacheKeyIndex(index);
+                        this.cacheKeyIndexes.put(index, cacheKeyIndex);
+                    }
+                }
+            }
+            cacheKeyIndex.put(indexValues, cacheKey);
+            return;
+        }
         IdentityMap map = this.cacheIndexes.get(index);
         if (map == null) {
             synchronized (this.cacheIndexes) {
@@ -1112,6 +1300,52 @@ public void putCacheKeyByIndex(CacheIndex index, CacheId indexValues, CacheKey c
         map.put(indexValues, cacheKey, null, 0);
     }
 
+    /**
+     * Return the index of cache keys for the non-unique or sorted cache index, or null if nothing is indexed.
+     */
+    public CacheKeyIndex getCacheKeyIndex(CacheIndex index) {
+        if (this.cacheKeyIndexes == null) {
+            return null;
+        }
+        return this.cacheKeyIndexes.get(index);
+    }
+
+    /**
+     * Remove the cache key from the non-unique and sorted indexes that index it.
+     * This is called by the identity maps when a cache key is removed, evicted or garbage collected.
+     */
+    public void removeFromCacheKeyIndexes(CacheKey cacheKey) {
+        Map<CacheIndex, CacheKeyIndex> indexes = this.cacheKeyIndexes;
+        if ((indexes == null) || indexes.isEmpty()) {
+            return;
+        }
+        for (CacheKeyIndex cacheKeyIndex : indexes.values()) {
+            cacheKeyIndex.remove(cacheKey);
+        }
+    }
+
+    /**
+     * Remove the non-unique and sorted indexes of the descriptor and its subclasses,
+     * used when their identity map is replaced.
+     */
+    protected void removeCacheKeyIndexes(ClassDescriptor descriptor) {
+        if ((this.cacheKeyIndexes == null) || this.cacheKeyIndexes.isEmpty()) {
+            return;
+        }
+        if (descriptor.getCachePolicy().hasCacheIndexes()) {
+            for (CacheIndex index : descriptor.getCachePolicy().getCacheIndexes().values()) {
+                if (index.isCacheKeyIndex()) {
+                    this.cacheKeyIndexes.remove(index);
+                }
+            }
+        }
+        if (descriptor.hasInheritance()) {
+            for (ClassDescriptor child : descriptor.getInheritancePolicy().getChildDescriptors()) {
+                removeCacheKeyIndexes(child);
+            }
+        }
+    }
+
     protected AbstractSession getSession() {
         return session;
     }
@@ -1194,6 +1428,8 @@ public void initializeIdentityMap(Class theClass) throws EclipseLinkException {
         Class javaClass = descriptor.getJavaClass();
         IdentityMap identityMap = buildNewIdentityMap(descriptor);
         getIdentityMaps().put(javaClass, identityMap);
+        // The indexes reference the cache keys of the previous map.
+        removeCacheKeyIndexes(descriptor);
         clearLastAccessedIdentityMap();
         invalidateQueryCache(theClass);
     }
@@ -1403,6 +1639,10 @@ public CacheKey putInIdentityMap(Object domainObject, Object keys, Object writeL
         } else {
             cacheKey = map.put(keys, implementation, writeLockValue, readTime);
         }
+        // The non-unique and sorted indexes must index every object in the cache.
+        if ((cacheKey != null) && (this.cacheKeyIndexes != null) && (implementation != null)) {
+            descriptor.getCachePolicy().indexObjectInCacheKeyIndexes(cacheKey, implementation, descriptor, this.session);
+        }
         return cacheKey;
     }
 
@@ -1412,6 +1652,16 @@ public CacheKey putInIdentityMap(Object domainObject, Object keys, Object writeL
      * different parameter values access different caches.
      */
     public void putQueryResult(ReadQuery query, List parameters, Object results) {
+        putQueryResult(query, parameters, results, 0);
+    }
+
+    /**
+     * Set the results for a query, with the time in nanoseconds the query took to build them.
+     * Query results are cached based on the parameter values provided to the query
+     * different parameter values access different caches.
+     * The cost is used to choose the results to evict if the cache is bounded by size.
+     */
+    public void putQueryResult(ReadQuery query, List parameters, Object results, long cost) {
         if ((results == null) || (results == InvalidObject.instance())) {
             if (query.getQueryResultsCachePolicy().isNullIgnored()) {
                 return;
@@ -1427,16 +1677,26 @@ public void putQueryResult(ReadQuery query, List parameters, Object results) {
             synchronized (this.queryResults) {
                 map = this.queryResults.get(queryKey);
                 if (map == null) {
-                    int size = query.getQueryResultsCachePolicy().getMaximumCachedResults();
-                    // PERF: If no parameters, then there can only be one result.
-                    if ((parameters == null) || parameters.isEmpty()) {
-                        size = 1;
+                    QueryResultsCachePolicy policy = query.getQueryResultsCachePolicy();
+                    if (policy.getMaximumCachedSize() >= 0) {
+                        map = new QueryResultsIdentityMap(policy.getMaximumCachedSize(), this.session, getQueryResultsCacheStatistics(queryKey, true));
+                    } else {
+                        int size = policy.getMaximumCachedResults();
+                        // PERF: If no parameters, then there can only be one result.
+                        if ((parameters == null) || parameters.isEmpty()) {
+                            size = 1;
+                        }
+                        map = buildNewIdentityMap(policy.getCacheType(), size, null, false);
                     }
-                    map = buildNewIdentityMap(query.getQueryResultsCachePolicy().getCacheType(), size, null, false);
                     this.queryResults.put(queryKey, map);
+                    if (policy.isInvalidationSelective() && policy.getInvalidateOnChange()) {
+                        this.queryResultsSelectiveInvalidations.put(queryKey, query);
+                    } else {
+                        this.queryResultsSelectiveInvalidations.remove(queryKey);
+                    }
                     // Mark the query to be invalidated for the query classes.
-                    if (query.getQueryResultsCachePolicy().getInvalidateOnChange()) {
-                        for (Class queryClass : query.getQueryResultsCachePolicy().getInvalidationClasses()) {
+                    if (policy.getInvalidateOnChange()) {
+                        for (Class queryClass : policy.getInvalidationClasses()) {
                             Set invalidations = this.queryResultsInvalidationsByClass.get(queryClass);
                             if (invalidations == null) {
                                 invalidations = new HashSet();
@@ -1465,7 +1725,11 @@ public void putQueryResult(ReadQuery query, List parameters, Object results) {
         if (results == null) {
             results = InvalidObject.instance();
         }
-        map.put(lookupParameters, results, null, queryTime);
+        if (map instanceof QueryResultsIdentityMap) {
+            ((QueryResultsIdentityMap)map).put(lookupParameters, results, queryTime, cost);
+        } else {
+            map.put(lookupParameters, results, null, queryTime);
+        }
     }
 
     /**
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.internal.identitymaps;
+
+/**
+ * <p><b>Purpose</b>: CacheKey used by the QueryResultsIdentityMap.
+ * <p><b>Responsibilities</b>:<ul>
+ * <li> Provide same capabilities as superclass.
+ * <li> Record the estimated size of the results, the time the query took to build them, and their hits.
+ * <li> Maintain the eviction priority of the results from their hits, cost and size.
+ * </ul>
+ * The hit count is not incremented atomically, a hit lost under contention only makes the priority approximate.
+ * @see QueryResultsIdentityMap
+ */
+public class QueryResultsCacheKey extends CacheKey {
+
+    /** The estimated size of the results in bytes. */
+    protected long size;
+
+    /** The time in nanoseconds the query took to build the results, the time saved by each hit. */
+    protected long cost;
+
+    /** The number of times the results were accessed, including being put. */
+    protected volatile int hits;
+
+    /** The eviction priority, the results with the lowest priority are evicted first. */
+    protected volatile double priority;
+
+    /**
+     * Initialize the newly allocated instance of this class.
+     * @param object is the query results.
+     * @param writeLockValue is the write lock value number.
+     */
+    public QueryResultsCacheKey(Object primaryKey, Object object, Object writeLockValue, long readTime, boolean isIsolated) {
+        super(primaryKey, object, writeLockValue, readTime, isIsolated);
+        this.size = 0;
+        this.cost = 1;
+    }
+
+    /**
+     * Return the estimated size of the results in bytes.
+     */
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    /**
+     * Return the time in nanoseconds the query took to build the results.
+     */
+    public long getCost() {
+        return cost;
+    }
+
+    public void setCost(long cost) {
+        this.cost = cost;
+    }
+
+    /**
+     * Return the number of times the results were accessed, including being put.
+     */
+    public int getHits() {
+        return hits;
+    }
+
+    /**
+     * Return the eviction priority.
+     */
+    public double getPriority() {
+        return priority;
+    }
+
+    /**
+     * Record an access to the results, and raise their priority by the time they save per byte.
+     * The priority is offset by the map's inflation so results that were frequently hit in the past
+     * age relative to recently put results (Greedy-Dual-Size-Frequency).
+     */
+    public void recordHit(double inflation) {
+        int hits = this.hits + 1;
+        this.hits = hits;
+        this.priority = inflation + (((double)hits * this.cost) / Math.max(this.size, 1));
+    }
+}
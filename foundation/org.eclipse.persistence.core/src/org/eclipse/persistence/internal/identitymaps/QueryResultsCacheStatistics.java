@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.internal.identitymaps;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p><b>Purpose</b>: Record the query results cache statistics of a named query.
+ * <p>
+ * Hits and misses are recorded on each lookup of the query's cached results,
+ * invalidations when a change removes the query's results, and retentions when a change to one of the
+ * query's classes was known not to affect the results, so they were kept.
+ * Evictions are recorded when results are evicted to bound the size of the cache.
+ * The statistics are kept when the query's results are invalidated or cleared.
+ *
+ * @see IdentityMapManager#getQueryResultsCacheStatistics()
+ */
+public class QueryResultsCacheStatistics implements Serializable {
+    protected String queryName;
+    protected LongAdder hits;
+    protected LongAdder misses;
+    protected LongAdder invalidations;
+    protected LongAdder retentions;
+    protected LongAdder evictions;
+
+    public QueryResultsCacheStatistics(String queryName) {
+        this.queryName = queryName;
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.invalidations = new LongAdder();
+        this.retentions = new LongAdder();
+        this.evictions = new LongAdder();
+    }
+
+    /**
+     * Return the name of the query.
+     */
+    public String getQueryName() {
+        return queryName;
+    }
+
+    public void recordHit() {
+        this.hits.increment();
+    }
+
+    public void recordMiss() {
+        this.misses.increment();
+    }
+
+    public void recordInvalidation() {
+        this.invalidations.increment();
+    }
+
+    public void recordRetention() {
+        this.retentions.increment();
+    }
+
+    public void recordEviction() {
+        this.evictions.increment();
+    }
+
+    /**
+     * Return the number of lookups that found cached results.
+     */
+    public long getHits() {
+        return this.hits.sum();
+    }
+
+    /**
+     * Return the number of lookups that did not find cached results.
+     */
+    public long getMisses() {
+        return this.misses.sum();
+    }
+
+    /**
+     * Return the number of changes that invalidated the query's results.
+     */
+    public long getInvalidations() {
+        return this.invalidations.sum();
+    }
+
+    /**
+     * Return the number of changes to the query's classes that did not invalidate the query's results.
+     */
+    public long getRetentions() {
+        return this.retentions.sum();
+    }
+
+    /**
+     * Return the number of results evicted to bound the size of the cache.
+     */
+    public long getEvictions() {
+        return this.evictions.sum();
+    }
+
+    /**
+     * Return the fraction of lookups that found cached results, or 0 if none.
+     */
+    public double getHitRate() {
+        long hits = getHits();
+        long lookups = hits + getMisses();
+        if (lookups == 0) {
+            return 0;
+        }
+        return (double)hits / lookups;
+    }
+
+    /**
+     * Return the fraction of changes to the query's classes that invalidated the query's results, or 0 if none.
+     */
+    public double getInvalidationRate() {
+        long invalidations = getInvalidations();
+        long changes = invalidations + getRetentions();
+        if (changes == 0) {
+            return 0;
+        }
+        return (double)invalidations / changes;
+    }
+
+    public String toString() {
+        return this.queryName + "(hits=" + getHits() + ", misses=" + getMisses() + ", hitRate=" + getHitRate()
+                + ", invalidations=" + getInvalidations() + ", retentions=" + getRetentions()
+                + ", invalidationRate=" + getInvalidationRate() + ", evictions=" + getEvictions() + ")";
+    }
+}
@@ -0,0 +1,260 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.internal.identitymaps;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.internal.helper.InvalidObject;
+import org.eclipse.persistence.internal.sessions.AbstractRecord;
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.mappings.DatabaseMapping;
+import org.eclipse.persistence.queries.ReportQueryResult;
+
+/**
+ * <p><b>Purpose</b>: Cache the results of a query bounded by their estimated size in bytes.<p>
+ * Each result is stored with its estimated size and the time the query took to build it (its cost).
+ * When the maximum size is exceeded the results with the lowest priority are evicted, where the priority is
+ * the time saved by the result's hits per byte, offset by the priority of the last evicted result
+ * (Greedy-Dual-Size-Frequency), so large results that are rarely hit or cheap to rebuild are evicted first,
+ * and results hit frequently in the past eventually age out.
+ * Puts and evictions are synchronized on the map, gets do not lock and only update the key's priority.
+ * Eviction scans the results, so the map is intended for the modest number of parameter sets of a query.
+ * <p>
+ * Sizes are estimates, entities are counted by their direct attribute values and references,
+ * the objects they reference are not counted as they are held by the object cache.
+ * <p><b>Responsibilities</b>:<ul>
+ *    <li> Keeps the estimated size of the results within the maximum size.
+ *    <li> Evicts the results saving the least query time per byte.
+ * </ul>
+ * @see org.eclipse.persistence.queries.QueryResultsCachePolicy#setMaximumCachedSize(long)
+ */
+public class QueryResultsIdentityMap extends FullIdentityMap {
+    /** Estimated bytes of an object header, and of a reference. */
+    protected static final int OBJECT_SIZE = 16;
+    protected static final int REFERENCE_SIZE = 8;
+
+    /** The maximum estimated size of the results in bytes. */
+    protected long maximumCachedSize;
+
+    /** The estimated size of the cached results in bytes. */
+    protected long cachedSize;
+
+    /** The priority of the last evicted results, added to the priority of accessed results to age older results. */
+    protected volatile double inflation;
+
+    /** Optional statistics of the query to record evictions in. */
+    protected QueryResultsCacheStatistics statistics;
+
+    public QueryResultsIdentityMap(long maximumCachedSize, AbstractSession session, QueryResultsCacheStatistics statistics) {
+        super(32, null, session, false);
+        this.maximumCachedSize = maximumCachedSize;
+        this.statistics = statistics;
+    }
+
+    @Override
+    public CacheKey createCacheKey(Object primaryKey, Object object, Object writeLockValue, long readTime) {
+        return initializeCacheKey(new QueryResultsCacheKey(primaryKey, object, writeLockValue, readTime, isIsolated));
+    }
+
+    /**
+     * Return the maximum estimated size of the results in bytes.
+     */
+    public long getMaximumCachedSize() {
+        return maximumCachedSize;
+    }
+
+    /**
+     * Return the estimated size of the cached results in bytes.
+     */
+    public synchronized long getCachedSize() {
+        return cachedSize;
+    }
+
+    /**
+     * Access the results for the parameters, and record the hit in the key's priority.
+     */
+    @Override
+    public CacheKey getCacheKey(Object searchKey, boolean forMerge) {
+        QueryResultsCacheKey cacheKey = (QueryResultsCacheKey)this.cacheKeys.get(searchKey);
+        if (cacheKey != null) {
+            cacheKey.recordHit(this.inflation);
+        }
+        return cacheKey;
+    }
+
+    /**
+     * Store the results without a known cost.
+     */
+    @Override
+    public CacheKey put(Object primaryKey, Object object, Object writeLockValue, long readTime) {
+        return put(primaryKey, object, readTime, 0);
+    }
+
+    /**
+     * Store the results for the parameters, with the time in nanoseconds the query took to build them.
+     * The results replace any previous results for the parameters, and results are evicted until the map is
+     * within its maximum size.
+     * Results larger than the maximum size are not stored, and null is returned.
+     */
+    public CacheKey put(Object primaryKey, Object object, long readTime, long cost) {
+        long size = estimateSize(object);
+        if (size > this.maximumCachedSize) {
+            // Any previous results are stale, so must not remain cached.
+            remove(this.cacheKeys.get(primaryKey));
+            return null;
+        }
+        QueryResultsCacheKey cacheKey = (QueryResultsCacheKey)createCacheKey(primaryKey, object, null, readTime);
+        cacheKey.setSize(size);
+        cacheKey.setCost(Math.max(cost, 1));
+        cacheKey.setOwningMap(this);
+        synchronized (this) {
+            cacheKey.recordHit(this.inflation);
+            QueryResultsCacheKey previous = (QueryResultsCacheKey)this.cacheKeys.put(primaryKey, cacheKey);
+            if (previous != null) {
+                this.cachedSize -= previous.getSize();
+                previous.setOwningMap(null);
+                previous.setInvalidationState(CacheKey.CACHE_KEY_INVALID);
+            }
+            this.cachedSize += size;
+            ensureFixedSize(cacheKey);
+        }
+        return cacheKey;
+    }
+
+    /**
+     * Evict the results with the lowest priority until the map is within its maximum size.
+     * The results just put are never evicted, their size is within the maximum size.
+     */
+    protected synchronized void ensureFixedSize(CacheKey newKey) {
+        while (this.cachedSize > this.maximumCachedSize) {
+            QueryResultsCacheKey lowest = null;
+            for (CacheKey key : this.cacheKeys.values()) {
+                QueryResultsCacheKey candidate = (QueryResultsCacheKey)key;
+                if ((candidate != newKey) && ((lowest == null) || (candidate.getPriority() < lowest.getPriority()))) {
+                    lowest = candidate;
+                }
+            }
+            if (lowest == null) {
+                return;
+            }
+            this.inflation = lowest.getPriority();
+            remove(lowest);
+            if (this.statistics != null) {
+                this.statistics.recordEviction();
+            }
+        }
+    }
+
+    /**
+     * Remove the results, if they have not already been replaced.
+     * @return the results held within the CacheKey or null if no results cached for given cacheKey.
+     */
+    @Override
+    public Object remove(CacheKey cacheKey) {
+        if (cacheKey == null) {
+            return null;
+        }
+        synchronized (this) {
+            if (((ConcurrentMap)this.cacheKeys).remove(cacheKey.getKey(), cacheKey)) {
+                this.cachedSize -= ((QueryResultsCacheKey)cacheKey).getSize();
+            }
+        }
+        cacheKey.setOwningMap(null);
+        cacheKey.setInvalidationState(CacheKey.CACHE_KEY_INVALID);
+        return cacheKey.getObject();
+    }
+
+    /**
+     * The size of the map is defined in bytes, so cannot be updated by a number of results.
+     */
+    @Override
+    public void updateMaxSize(int maxSize) {
+        // Bounded by size in bytes.
+    }
+
+    /**
+     * Return the estimated size in bytes of the query results.
+     * Results may be a collection, an entity, a report query result, an array, a database record or a value.
+     */
+    protected long estimateSize(Object results) {
+        if (results instanceof Collection) {
+            Collection collection = (Collection)results;
+            long size = OBJECT_SIZE + (collection.size() * (long)REFERENCE_SIZE);
+            for (Object value : collection) {
+                size = size + estimateSize(value);
+            }
+            return size;
+        } else if (results instanceof ReportQueryResult) {
+            return OBJECT_SIZE * 3 + estimateSize(((ReportQueryResult)results).getResults());
+        } else if (results instanceof AbstractRecord) {
+            List values = ((AbstractRecord)results).getValues();
+            // The fields are shared by the rows, only count the values.
+            return OBJECT_SIZE * 3 + estimateSize(values);
+        } else if (results instanceof Object[]) {
+            Object[] values = (Object[])results;
+            long size = OBJECT_SIZE + (values.length * (long)REFERENCE_SIZE);
+            for (Object value : values) {
+                size = size + estimateSize(value);
+            }
+            return size;
+        } else if (results instanceof Map) {
+            Map map = (Map)results;
+            long size = OBJECT_SIZE * 3 + (map.size() * (long)(OBJECT_SIZE + REFERENCE_SIZE * 4));
+            for (Object entry : map.entrySet()) {
+                size = size + estimateSize(((Map.Entry)entry).getKey()) + estimateSize(((Map.Entry)entry).getValue());
+            }
+            return size;
+        }
+        return estimateValueSize(results);
+    }
+
+    /**
+     * Return the estimated size in bytes of a value or entity.
+     * An entity is counted by its direct attribute values and a reference for each of its other attributes.
+     */
+    protected long estimateValueSize(Object value) {
+        if ((value == null) || (value == InvalidObject.instance)) {
+            return 0;
+        } else if (value instanceof String) {
+            return OBJECT_SIZE * 3 + (((String)value).length() * 2L);
+        } else if ((value instanceof Number) || (value instanceof Boolean) || (value instanceof Character)) {
+            if ((value instanceof java.math.BigDecimal) || (value instanceof java.math.BigInteger)) {
+                return OBJECT_SIZE * 4;
+            }
+            return OBJECT_SIZE;
+        } else if (value instanceof Date) {
+            return OBJECT_SIZE * 2;
+        } else if (value instanceof byte[]) {
+            return OBJECT_SIZE + ((byte[])value).length;
+        } else if (value instanceof char[]) {
+            return OBJECT_SIZE + (((char[])value).length * 2L);
+        }
+        ClassDescriptor descriptor = this.session.getDescriptor(value.getClass());
+        if (descriptor == null) {
+            return OBJECT_SIZE;
+        }
+        long size = OBJECT_SIZE;
+        for (DatabaseMapping mapping : descriptor.getMappings()) {
+            size = size + REFERENCE_SIZE;
+            if (mapping.isAbstractDirectMapping()) {
+                size = size + estimateValueSize(mapping.getAttributeValueFromObject(value));
+            }
+        }
+        return size;
+    }
+}
@@ -40,7 +40,7 @@ public UnitOfWorkIdentityMap(int size, ClassDescriptor descriptor, AbstractSessi
 
     @Override
     public CacheKey createCacheKey(Object primaryKey, Object object, Object writeLockValue, long readTime) {
-        return new CacheKey(primaryKey, object, writeLockValue, readTime, true);
+        return initializeCacheKey(new CacheKey(primaryKey, object, writeLockValue, readTime, true));
     }
 
     /**
@@ -62,6 +62,8 @@ protected void cleanupDeadCacheKeys() {
                     try {
                         if (key.getObject() == null) {
                             iterator.remove();
+                            key.setOwningMap(null);
+                            removedCacheKey(key);
                         }
                     } finally {
                         key.release();
@@ -73,7 +75,7 @@ protected void cleanupDeadCacheKeys() {
 
     @Override
     public CacheKey createCacheKey(Object primaryKey, Object object, Object writeLockValue, long readTime) {
-        return new WeakCacheKey(primaryKey, object, writeLockValue, readTime, isIsolated);
+        return initializeCacheKey(new WeakCacheKey(primaryKey, object, writeLockValue, readTime, isIsolated));
     }
 
     /**
@@ -756,6 +756,9 @@ public class LoggingLocalizationResource extends ListResourceBundle {
         { "composite_member_begin_call", "Begin {0} on composite member Persistence Unit {1}; state {2}"},
         { "composite_member_end_call", "End {0} on composite member Persistence Unit {1}; state {2}"},
         { "loading_session_xml", "Loading persistence unit from sessions-xml file: {0}, session-name: {1}"},
+        { "project_cache_snapshot_loaded", "Loaded the project from the deployment snapshot {0}"},
+        { "project_cache_snapshot_outdated", "The deployment snapshot {0} does not match the persistence unit, the persistence unit will be processed and the snapshot replaced"},
+        { "project_cache_snapshot_stored", "Stored the project in the deployment snapshot {0}"},
 
         { "default_tables_created", "The table ({0}) is created."},
         { "identity_map_does_not_exist",  "Identity Map [{0}] does not exist" },
@@ -808,6 +811,8 @@ public class LoggingLocalizationResource extends ListResourceBundle {
         { "acquire_connection", "Connection acquired from connection pool [{0}]." },
         { "release_connection", "Connection released to connection pool [{0}]." },
         { "failover", "Connection pool [{0}] is dead, failing over to poll [{1}]." },
+        { "partition_call_failed", "The call failed on connection pool [{0}]: {1}" },
+        { "log_entries_dropped", "{0} log entries were dropped because the log buffer of {1} entries was full." },
         { "max_time_exceeded_for_acquirerequiredlocks_wait", "MAX TIME {0} seconds EXCEEDED FOR WRITELOCKMANAGER WAIT.  Waiting on Entity type: {1}with pk: {2} currently locked by thread: {3} with the following trace:\n"},
         { "dcn_registering", "Registering for database change event notification." },
         { "dcn_change_event", "Receieved database change event [{0}]." },
@@ -190,6 +190,11 @@ public UNMARSHALLER_LISTENER getUnmarshalListener() {
 
     public abstract boolean isWrapperAsCollectionName();
 
+    /**
+     * Return if JSON input is unmarshalled while it is tokenized, instead of from a JsonStructure.
+     */
+    public abstract boolean isStreamingJsonReader();
+
     public abstract void setIDResolver(ID_RESOLVER idResolver);
 
     public abstract boolean shouldWarnOnUnmappedElement();
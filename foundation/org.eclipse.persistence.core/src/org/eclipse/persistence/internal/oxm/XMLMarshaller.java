@@ -901,7 +901,10 @@ private void marshal(Object object, OutputStream outputStream, ABSTRACT_SESSION
             encoding = xroot.getEncoding() != null ? xroot.getEncoding() : encoding;
         }
 
-        if(!encoding.equals(Constants.DEFAULT_XML_ENCODING)) {
+        // JSON has no declaration, so any spelling of UTF-8 can take the byte path. The XML
+        // byte path always declares "UTF-8", so XML keeps the exact match to declare the given name.
+        boolean isDefaultEncoding = isApplicationJSON() ? Constants.DEFAULT_XML_ENCODING.equalsIgnoreCase(encoding) : Constants.DEFAULT_XML_ENCODING.equals(encoding);
+        if(!isDefaultEncoding) {
             try {
                 OutputStreamWriter writer = new OutputStreamWriter(outputStream, encoding);
                 marshal(object, writer, session, xmlDescriptor);
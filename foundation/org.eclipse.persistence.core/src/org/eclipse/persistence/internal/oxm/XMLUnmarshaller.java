@@ -154,6 +154,7 @@ public void fatalError(SAXParseException exception)
     private boolean caseInsensitive = false;
     private Object unmarshalAttributeGroup;
     private boolean wrapperAsCollectionName = false;
+    private boolean streamingJsonReader = false;
     private boolean warnOnUnmappedElement = true;
 
     /**
@@ -858,6 +859,31 @@ public void setWrapperAsCollectionName(boolean wrapperAsCollectionName) {
         this.wrapperAsCollectionName = wrapperAsCollectionName;
     }
 
+    /**
+     * Return if JSON input is unmarshalled while it is tokenized, instead of from a JsonStructure.
+     * @see #setStreamingJsonReader(boolean)
+     */
+    @Override
+    public boolean isStreamingJsonReader() {
+        return streamingJsonReader;
+    }
+
+    /**
+     * PERF: Set if JSON input should be unmarshalled while it is tokenized, instead of first
+     * reading the whole document into a JsonStructure, by default it is read into a JsonStructure.
+     * The attributes of an object are only read from its members before its first nested object,
+     * so a type indicator must come before the nested objects of its object.
+     */
+    public void setStreamingJsonReader(boolean streamingJsonReader) {
+        if (this.streamingJsonReader != streamingJsonReader) {
+            this.streamingJsonReader = streamingJsonReader;
+            if (platformUnmarshaller != null) {
+                // The reader is created for the media type and this setting.
+                platformUnmarshaller.mediaTypeChanged();
+            }
+        }
+    }
+
     @Override
     public XMLUnmarshaller clone() {
         return new XMLUnmarshaller(this);
@@ -56,6 +56,7 @@ public class XPathFragment <
     private byte[] prefixBytes;
     private String localName;
     private byte[] localNameBytes;
+    private byte[] quotedLocalNameBytes;
     private String namespaceURI;
     protected boolean nameIsText = false;
     protected boolean isSelfFragment = false;
@@ -225,6 +226,18 @@ public byte[] getLocalNameBytes() {
         return localNameBytes;
     }
 
+    /**
+     * INTERNAL:
+     * Return the local name enclosed in double quotes as UTF-8 bytes, for
+     * writing the fragment as a JSON key.
+     */
+    public byte[] getQuotedLocalNameBytes() {
+        if(null == quotedLocalNameBytes && null != localName) {
+            quotedLocalNameBytes = ('"' + localName + '"').getBytes(CHARSET);
+        }
+        return quotedLocalNameBytes;
+    }
+
     public void setLocalName(String localName) {
         this.localName = localName;
         resetShortName();
@@ -419,6 +432,7 @@ private void resetShortName(){
         shortName = null;
     prefixBytes = null;
     localNameBytes = null;
+    quotedLocalNameBytes = null;
     }
 
     /**
@@ -60,6 +60,8 @@ public class XPathNode {
     private Map<XPathFragment, XPathNode> nonAttributeChildrenMap;
     private Map<String, XPathNode> nonAttributeChildrenLookupTable;
     private boolean isNonAttributeChildrenLookupTableFilled = false;
+    private XPathNodeDispatchTable attributeChildrenDispatchTable;
+    private XPathNodeDispatchTable nonAttributeChildrenDispatchTable;
     private MappingNodeValue anyAttributeNodeValue;
     private XPathNode anyAttributeNode;
     private XPathNode textNode;
@@ -177,6 +179,49 @@ private Map<String, XPathNode> getNonAttributeChildrenLookupTable() {
         return nonAttributeChildrenLookupTable;
     }
 
+    /**
+     * INTERNAL:
+     * Return the table used to resolve child nodes by name during unmarshal,
+     * or null if there are no such children.  The table is built from the
+     * children map the first time it is needed.
+     */
+    public XPathNodeDispatchTable getChildrenDispatchTable(boolean isAttribute) {
+        XPathNodeDispatchTable dispatchTable;
+        if (isAttribute) {
+            dispatchTable = attributeChildrenDispatchTable;
+            if (null == dispatchTable && null != attributeChildrenMap) {
+                dispatchTable = new XPathNodeDispatchTable(attributeChildrenMap);
+                attributeChildrenDispatchTable = dispatchTable;
+            }
+        } else {
+            dispatchTable = nonAttributeChildrenDispatchTable;
+            if (null == dispatchTable && null != nonAttributeChildrenMap) {
+                dispatchTable = new XPathNodeDispatchTable(nonAttributeChildrenMap);
+                nonAttributeChildrenDispatchTable = dispatchTable;
+            }
+        }
+        return dispatchTable;
+    }
+
+    /**
+     * INTERNAL:
+     * Build the dispatch tables of this node and all of its descendants, so
+     * that this is done once when the descriptor is initialized rather than
+     * during the first unmarshal.
+     */
+    public void compileChildrenDispatchTables() {
+        getChildrenDispatchTable(true);
+        getChildrenDispatchTable(false);
+        if (null != nonAttributeChildren) {
+            for (int x = 0, size = nonAttributeChildren.size(); x < size; x++) {
+                XPathNode child = nonAttributeChildren.get(x);
+                if (child != this) {
+                    child.compileChildrenDispatchTables();
+                }
+            }
+        }
+    }
+
     public void setAnyAttributeNodeValue(MappingNodeValue nodeValue) {
         this.anyAttributeNodeValue = nodeValue;
     }
@@ -366,6 +411,8 @@ public XPathNode addChild(XPathFragment anXPathFragment, NodeValue aNodeValue, N
                     children.add(xPathNode);
                 }
                 childrenMap.put(anXPathFragment, xPathNode);
+                attributeChildrenDispatchTable = null;
+                nonAttributeChildrenDispatchTable = null;
             }
         }
 
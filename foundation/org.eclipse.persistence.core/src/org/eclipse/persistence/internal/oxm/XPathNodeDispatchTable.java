@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.internal.oxm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * INTERNAL:
+ * <p><b>Purpose</b>: A read-only, open addressing table built from the
+ * children map of an XPathNode.  It resolves the child XPathNode for an
+ * incoming element or attribute directly from its local name and namespace
+ * URI, so the unmarshaller does not have to hash and compare an XPathFragment
+ * for every event.</p>
+ * <p>A lookup returns the same node as a lookup of a plain XPathFragment
+ * (no index, no predicate) in the children map.  Children that are only
+ * reachable through an index or a predicate are not part of the table, the
+ * children map must still be used for them.</p>
+ */
+public final class XPathNodeDispatchTable {
+
+    private final String[] localNames;
+    private final XPathFragment[][] fragments;
+    private final XPathNode[][] nodes;
+    private final int mask;
+    private final boolean hasPositionalChildren;
+
+    public XPathNodeDispatchTable(Map<XPathFragment, XPathNode> childrenMap) {
+        // Group the candidates by local name, keeping the map's iteration
+        // order which is also the order the map would compare them in.
+        List<String> names = new ArrayList<String>(childrenMap.size());
+        List<List<Map.Entry<XPathFragment, XPathNode>>> candidates = new ArrayList<List<Map.Entry<XPathFragment, XPathNode>>>(childrenMap.size());
+        boolean positional = false;
+        for (Map.Entry<XPathFragment, XPathNode> entry : childrenMap.entrySet()) {
+            XPathFragment fragment = entry.getKey();
+            if (fragment.getIndexValue() != -1 || fragment.getPredicate() != null) {
+                positional = true;
+                continue;
+            }
+            if (fragment.nameIsText() || fragment.getLocalName() == null) {
+                continue;
+            }
+            String localName = fragment.getLocalName().intern();
+            int index = names.indexOf(localName);
+            if (index < 0) {
+                index = names.size();
+                names.add(localName);
+                candidates.add(new ArrayList<Map.Entry<XPathFragment, XPathNode>>(1));
+            }
+            candidates.get(index).add(entry);
+        }
+        this.hasPositionalChildren = positional;
+
+        int capacity = 4;
+        while (capacity < names.size() * 2) {
+            capacity <<= 1;
+        }
+        this.mask = capacity - 1;
+        this.localNames = new String[capacity];
+        this.fragments = new XPathFragment[capacity][];
+        this.nodes = new XPathNode[capacity][];
+        for (int x = 0, size = names.size(); x < size; x++) {
+            String localName = names.get(x);
+            int slot = hash(localName) & mask;
+            while (null != localNames[slot]) {
+                slot = (slot + 1) & mask;
+            }
+            List<Map.Entry<XPathFragment, XPathNode>> entries = candidates.get(x);
+            int entriesSize = entries.size();
+            localNames[slot] = localName;
+            fragments[slot] = new XPathFragment[entriesSize];
+            nodes[slot] = new XPathNode[entriesSize];
+            for (int y = 0; y < entriesSize; y++) {
+                fragments[slot][y] = entries.get(y).getKey();
+                nodes[slot][y] = entries.get(y).getValue();
+            }
+        }
+    }
+
+    private static int hash(String localName) {
+        int h = localName.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Return the child XPathNode for the given name, or null if there is
+     * none.
+     * @param namespaceURI The namespace URI of the element or attribute, null
+     * if it has none.
+     * @param localName The local name of the element or attribute.
+     * @param namespaceAware If false the namespace URI is ignored.
+     */
+    public XPathNode get(String namespaceURI, String localName, boolean namespaceAware) {
+        int slot = hash(localName) & mask;
+        String candidate;
+        while (null != (candidate = localNames[slot])) {
+            if (candidate == localName || candidate.equals(localName)) {
+                XPathFragment[] slotFragments = fragments[slot];
+                for (int x = 0; x < slotFragments.length; x++) {
+                    XPathFragment fragment = slotFragments[x];
+                    if (!namespaceAware || !fragment.isNamespaceAware()) {
+                        return nodes[slot][x];
+                    }
+                    String fragmentNamespaceURI = fragment.getNamespaceURI();
+                    if (fragmentNamespaceURI == namespaceURI || (null != fragmentNamespaceURI && fragmentNamespaceURI.equals(namespaceURI))) {
+                        return nodes[slot][x];
+                    }
+                }
+                return null;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Return true if some children can only be matched by position or by a
+     * predicate, and so must be looked up in the children map.
+     */
+    public boolean hasPositionalChildren() {
+        return hasPositionalChildren;
+    }
+
+}
@@ -537,6 +537,7 @@ void lazyInitialize() {
                 }
             }
 
+            rootXPathNode.compileChildrenDispatchTables();
             initialized = true;
         }
     }
@@ -50,6 +50,7 @@
 import org.eclipse.persistence.internal.oxm.mappings.Descriptor;
 import org.eclipse.persistence.internal.oxm.mappings.UnmarshalKeepAsElementPolicy;
 import org.eclipse.persistence.internal.oxm.record.json.JsonStructureReader;
+import org.eclipse.persistence.internal.oxm.record.json.JsonTokenReader;
 import org.eclipse.persistence.platform.xml.DefaultErrorHandler;
 import org.eclipse.persistence.platform.xml.SAXDocumentBuilder;
 import org.eclipse.persistence.platform.xml.XMLParser;
@@ -206,6 +207,9 @@ private XMLReader getNewXMLReader(MediaType mediaType) {
     private XMLReader getNewXMLReader(Class clazz, MediaType mediaType) {
 
         if (null != mediaType && mediaType.isApplicationJSON()) {
+            if (xmlUnmarshaller.isStreamingJsonReader()) {
+                return new JsonTokenReader(xmlUnmarshaller, clazz);
+            }
             return new JsonStructureReader(xmlUnmarshaller, clazz);
         }
         try {
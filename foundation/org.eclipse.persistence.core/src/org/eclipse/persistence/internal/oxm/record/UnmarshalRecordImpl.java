@@ -49,6 +49,7 @@
 import org.eclipse.persistence.internal.oxm.Unmarshaller;
 import org.eclipse.persistence.internal.oxm.XPathFragment;
 import org.eclipse.persistence.internal.oxm.XPathNode;
+import org.eclipse.persistence.internal.oxm.XPathNodeDispatchTable;
 import org.eclipse.persistence.internal.oxm.XPathPredicate;
 import org.eclipse.persistence.internal.oxm.XPathQName;
 import org.eclipse.persistence.internal.oxm.mappings.Descriptor;
@@ -1252,11 +1253,12 @@ public XPathNode getNonAttributeXPathNode(String namespaceURI, String localName,
 
         if (null != nonAttributeChildrenMap) {
             XPathNode resultNode;
+            XPathNodeDispatchTable dispatchTable = xPathNode.getChildrenDispatchTable(false);
 
             if (unmarshaller.isCaseInsensitive()){
                 resultNode = getNodeFromLookupTable(nonAttributeChildrenMap, false);
             } else {
-                resultNode = nonAttributeChildrenMap.get(xPathFragment);
+                resultNode = dispatchTable.get(xPathFragment.getNamespaceURI(), xPathFragment.getLocalName(), xPathFragment.isNamespaceAware());
             }
 
             XPathNode nonPredicateNode = null;
@@ -1279,15 +1281,17 @@ public XPathNode getNonAttributeXPathNode(String namespaceURI, String localName,
                     }
                 }
                 indexMap.put(xPathFragment, newIndex);
-                XPathFragment predicateFragment = new XPathFragment();
-                predicateFragment.setNamespaceAware(isNamespaceAware());
-                predicateFragment.setNamespaceURI(xPathFragment.getNamespaceURI());
-                predicateFragment.setLocalName(xPathFragment.getLocalName());
-                predicateFragment.setIndexValue(newIndex);
-                resultNode = nonAttributeChildrenMap.get(predicateFragment);
-                if (null == resultNode) {
-                    predicateFragment.setIndexValue(-1);
-                    if(attributes != null){
+                // Only build the positional and predicate fragments if some
+                // child can actually be matched by them.
+                if (dispatchTable.hasPositionalChildren()) {
+                    XPathFragment predicateFragment = new XPathFragment();
+                    predicateFragment.setNamespaceAware(isNamespaceAware());
+                    predicateFragment.setNamespaceURI(xPathFragment.getNamespaceURI());
+                    predicateFragment.setLocalName(xPathFragment.getLocalName());
+                    predicateFragment.setIndexValue(newIndex);
+                    resultNode = nonAttributeChildrenMap.get(predicateFragment);
+                    if (null == resultNode && attributes != null) {
+                        predicateFragment.setIndexValue(-1);
                         for(int x = 0, length = attributes.getLength(); x<length; x++) {
                             XPathFragment conditionFragment = new XPathFragment();
                             conditionFragment.setLocalName(attributes.getLocalName(x));
@@ -1301,6 +1305,8 @@ public XPathNode getNonAttributeXPathNode(String namespaceURI, String localName,
                             }
                         }
                     }
+                }
+                if (null == resultNode) {
                     //if json, check for text wrapper before handing off to the any
                     if(null == resultNode && xPathNode.getTextNode() != null){
                         XPathFragment textWrapperFragment = getTextWrapperFragment();
@@ -1365,7 +1371,7 @@ public NodeValue getAttributeChildNodeValue(String namespace, String localName)
             if (unmarshaller.isCaseInsensitive()){
                 resultNode = getNodeFromLookupTable(attributeChildrenMap, true);
             } else {
-                resultNode = attributeChildrenMap.get(xPathFragment);
+                resultNode = xPathNode.getChildrenDispatchTable(true).get(xPathFragment.getNamespaceURI(), localName, xPathFragment.isNamespaceAware());
             }
 
             if (resultNode != null) {
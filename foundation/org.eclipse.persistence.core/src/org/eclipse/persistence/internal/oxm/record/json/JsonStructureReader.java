@@ -16,7 +16,6 @@
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
@@ -65,21 +64,21 @@
 
 public class JsonStructureReader extends XMLReaderAdapter {
 
-    private static final String TRUE = "true";
-    private static final String FALSE = "false";
-    private String attributePrefix = null;
-    private NamespaceResolver namespaces = null;
-    private boolean includeRoot;
-    private String textWrapper;
-    private Class unmarshalClass;
-    private boolean isInCollection;
+    protected static final String TRUE = "true";
+    protected static final String FALSE = "false";
+    protected String attributePrefix = null;
+    protected NamespaceResolver namespaces = null;
+    protected boolean includeRoot;
+    protected String textWrapper;
+    protected Class unmarshalClass;
+    protected boolean isInCollection;
     private JsonStructure jsonStructure;
     private JsonAttributes attributes = new JsonAttributes();
 
     /**
      * If we should treat unqualified type property in JSON as MOXy type discriminator.
      */
-    private boolean jsonTypeCompatibility;
+    protected boolean jsonTypeCompatibility;
 
     public JsonStructureReader(Unmarshaller u) {
         this(u, null);
@@ -119,7 +118,7 @@ public void parse(InputSource input) throws IOException, SAXException, JsonExcep
             JsonReader jsonReader;
             if (null != input.getByteStream()) {
                 inputStream = input.getByteStream();
-                jsonReader = Json.createReader(new InputStreamReader(inputStream));
+                jsonReader = Json.createReader(inputStream);
             } else if (null != input.getCharacterStream()) {
                 jsonReader = Json.createReader(input.getCharacterStream());
             } else {
@@ -133,7 +132,7 @@ public void parse(InputSource input) throws IOException, SAXException, JsonExcep
                         throw malformedURLException;
                     }
                 }
-                jsonReader = Json.createReader(new InputStreamReader(inputStream));
+                jsonReader = Json.createReader(inputStream);
             }
             if (jsonReader != null) {
                 JsonStructure structure = jsonReader.read();
@@ -465,11 +464,11 @@ public boolean isNullRepresentedByXsiNil(AbstractNullPolicy nullPolicy) {
         return true;
     }
 
-    private void startCollection() {
+    protected void startCollection() {
         isInCollection = true;
     }
 
-    private void endCollection() {
+    protected void endCollection() {
         isInCollection = false;
     }
 
@@ -477,7 +476,7 @@ public boolean isInCollection() {
         return isInCollection;
     }
 
-    private boolean isTextValue(String localName) {
+    protected boolean isTextValue(String localName) {
         XPathNode currentNode = ((UnmarshalRecord) contentHandler).getXPathNode();
         if (currentNode == null) {
             return textWrapper != null && textWrapper.equals(localName);
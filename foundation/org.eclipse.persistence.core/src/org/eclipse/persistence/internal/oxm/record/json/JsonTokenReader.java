@@ -0,0 +1,614 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.internal.oxm.record.json;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.json.JsonException;
+
+import org.eclipse.persistence.exceptions.XMLMarshalException;
+import org.eclipse.persistence.internal.oxm.CollectionGroupingElementNodeValue;
+import org.eclipse.persistence.internal.oxm.Constants;
+import org.eclipse.persistence.internal.oxm.ContainerValue;
+import org.eclipse.persistence.internal.oxm.MappingNodeValue;
+import org.eclipse.persistence.internal.oxm.NamespaceResolver;
+import org.eclipse.persistence.internal.oxm.NodeValue;
+import org.eclipse.persistence.internal.oxm.Root;
+import org.eclipse.persistence.internal.oxm.Unmarshaller;
+import org.eclipse.persistence.internal.oxm.XPathFragment;
+import org.eclipse.persistence.internal.oxm.XPathNode;
+import org.eclipse.persistence.internal.oxm.record.SAXUnmarshallerHandler;
+import org.eclipse.persistence.internal.oxm.record.UnmarshalRecord;
+import org.eclipse.persistence.internal.oxm.record.deferred.DeferredContentHandler;
+import org.eclipse.persistence.oxm.record.XMLRootRecord;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * PERF: Reader for JSON input that reports the content to the content handler while the input is tokenized,
+ * instead of first reading the whole document into a JsonStructure.
+ * The events are the same as those of the JsonStructureReader.
+ * <p>
+ * The attributes of an object are read by looking ahead over its leading members before its element is started.
+ * The look ahead stops at the first member that cannot be an attribute, a member without the attribute prefix,
+ * or without an attribute prefix a member whose value is an object or contains one,
+ * so only the leading simple members of the object being started are held in memory, never nested content.
+ * Simple members after that are reported to their attribute node value when they are read.
+ * An attribute that only the start of the element reads, such as a type indicator,
+ * must therefore come before the first nested object of its object,
+ * so this reader is only used when enabled on the unmarshaller, see XMLUnmarshaller.setStreamingJsonReader(boolean).
+ * A JsonStructure set on the reader is still parsed as a structure.
+ * @see JsonTokenizer
+ */
+public class JsonTokenReader extends JsonStructureReader {
+
+    private JsonTokenizer tokenizer;
+    private TokenAttributes tokenAttributes = new TokenAttributes();
+
+    public JsonTokenReader(Unmarshaller u) {
+        this(u, null);
+    }
+
+    public JsonTokenReader(Unmarshaller u, Class clazz) {
+        super(u, clazz);
+    }
+
+    @Override
+    public void parse(InputSource input) throws IOException, SAXException, JsonException {
+        if (input == null) {
+            super.parse(input);
+            return;
+        }
+
+        InputStream inputStream = null;
+        try {
+            if (null != input.getByteStream()) {
+                inputStream = input.getByteStream();
+                tokenizer = new JsonTokenizer(inputStream);
+            } else if (null != input.getCharacterStream()) {
+                tokenizer = new JsonTokenizer(input.getCharacterStream());
+            } else {
+                try {
+                    URL url = new URL(input.getSystemId());
+                    inputStream = url.openStream();
+                } catch (MalformedURLException malformedURLException) {
+                    try {
+                        inputStream = new FileInputStream(input.getSystemId());
+                    } catch (FileNotFoundException fileNotFoundException) {
+                        throw malformedURLException;
+                    }
+                }
+                tokenizer = new JsonTokenizer(inputStream);
+            }
+            parseRoot(tokenizer.next());
+        } catch (JsonException je) {
+            throw XMLMarshalException.unmarshalException(je);
+        } finally {
+            tokenizer = null;
+            if (null != inputStream) {
+                inputStream.close();
+            }
+        }
+    }
+
+    private void parseRoot(int token) throws IOException, SAXException {
+        if (namespaces != null) {
+            Map<String, String> namespacePairs = namespaces.getPrefixesToNamespaces();
+            for (Entry<String, String> namespacePair : namespacePairs.entrySet()) {
+                contentHandler.startPrefixMapping(namespacePair.getKey(), namespacePair.getValue());
+            }
+        }
+
+        if (token == JsonTokenizer.START_OBJECT) {
+            contentHandler.startDocument();
+            if (tokenizer.isEndNext() && unmarshalClass == null) {
+                tokenizer.next();
+                return;
+            }
+
+            if (includeRoot) {
+                if (tokenizer.next() == JsonTokenizer.KEY) {
+                    String name = tokenizer.getString();
+                    parsePair(name, tokenizer.next(), true);
+                    tokenizer.skipToEnd();
+                }
+            } else {
+                contentHandler.startElement(Constants.EMPTY_STRING, Constants.EMPTY_STRING, null, tokenAttributes.setValue(token));
+                parseMembers();
+                contentHandler.endElement(Constants.EMPTY_STRING, Constants.EMPTY_STRING, null);
+            }
+            contentHandler.endDocument();
+        } else if (token == JsonTokenizer.START_ARRAY) {
+
+            SAXUnmarshallerHandler rootContentHandler = null;
+            if (getContentHandler() instanceof SAXUnmarshallerHandler) {
+                rootContentHandler = (SAXUnmarshallerHandler) getContentHandler();
+            }
+
+            List<Object> list = new ArrayList<>();
+            int item;
+            while ((item = tokenizer.next()) != JsonTokenizer.END_ARRAY) {
+                parseRoot(item);
+                if (getContentHandler() instanceof SAXUnmarshallerHandler) {
+                    SAXUnmarshallerHandler saxUnmarshallerHandler = (SAXUnmarshallerHandler) contentHandler;
+                    list.add(saxUnmarshallerHandler.getObject());
+                    saxUnmarshallerHandler.setObject(null);
+                } else if (getContentHandler() instanceof UnmarshalRecord) {
+                    UnmarshalRecord unmarshalRecord = (UnmarshalRecord) contentHandler;
+                    Object unmarshalledObject = unmarshalRecord.getCurrentObject();
+                    if (includeRoot && unmarshalClass != null) {
+                        if (!(unmarshalledObject instanceof Root)) {
+                            Root xmlRoot = unmarshalRecord.createRoot();
+                            xmlRoot.setNamespaceURI(unmarshalRecord.getRootElementNamespaceUri());
+                            xmlRoot.setLocalName(unmarshalRecord.getLocalName());
+                            xmlRoot.setObject(unmarshalledObject);
+                            unmarshalledObject = xmlRoot;
+                        }
+                    }
+                    list.add(unmarshalledObject);
+                    unmarshalRecord.setCurrentObject(null);
+                    unmarshalRecord.setRootElementName(null);
+                    unmarshalRecord.setLocalName(null);
+                }
+            }
+            if (getContentHandler() instanceof SAXUnmarshallerHandler) {
+                ((SAXUnmarshallerHandler) getContentHandler()).setObject(list);
+            } else if (getContentHandler() instanceof UnmarshalRecord) {
+                ((UnmarshalRecord) getContentHandler()).setCurrentObject(list);
+                ((UnmarshalRecord) getContentHandler()).setRootElementName(Constants.EMPTY_STRING);
+                ((UnmarshalRecord) getContentHandler()).setLocalName(Constants.EMPTY_STRING);
+                if (rootContentHandler != null) {
+                    rootContentHandler.setObject(list);
+                }
+            }
+
+        } else {
+            getContentHandler().startDocument();
+            parseValue(token);
+        }
+    }
+
+    /**
+     * Report the remaining members of the current object, up to and including its end.
+     * The members after those read by the look ahead of the object's attributes are not reported as its attributes yet.
+     */
+    private void parseMembers() throws IOException, SAXException {
+        int attributeMembers = tokenAttributes.takeMembers();
+        int index = 0;
+        while (tokenizer.next() == JsonTokenizer.KEY) {
+            String name = tokenizer.getString();
+            parsePair(name, tokenizer.next(), index++ < attributeMembers);
+        }
+    }
+
+    private void parseValue(int token) throws IOException, SAXException {
+        switch (token) {
+            case JsonTokenizer.STRING:
+            case JsonTokenizer.NUMBER: {
+                contentHandler.characters(tokenizer.getString());
+                break;
+            }
+            case JsonTokenizer.FALSE: {
+                contentHandler.characters(FALSE);
+                break;
+            }
+            case JsonTokenizer.TRUE: {
+                contentHandler.characters(TRUE);
+                break;
+            }
+            case JsonTokenizer.START_OBJECT: {
+                parseMembers();
+                break;
+            }
+            case JsonTokenizer.START_ARRAY: {
+                int item;
+                while ((item = tokenizer.next()) != JsonTokenizer.END_ARRAY) {
+                    parseValue(item);
+                }
+                break;
+            }
+            case JsonTokenizer.NULL: {
+                break; // noop
+            }
+            default:
+                throw new IllegalStateException("Unhandled token: " + token);
+        }
+    }
+
+    /**
+     * Report the member with the name, the token is the start of its value.
+     * The value is always read or skipped to its end.
+     * A member that was not read by the look ahead is reported to its attribute node value, if it has one.
+     */
+    private void parsePair(String name, int token, boolean isLookedAhead) throws IOException, SAXException {
+        if (token == JsonTokenizer.START_ARRAY) {
+            String parentLocalName = name;
+
+            if (attributePrefix != null && parentLocalName.startsWith(attributePrefix)) {
+                tokenizer.skipValue(token);
+                return;
+            }
+            String uri = Constants.EMPTY_STRING;
+            if (isNamespaceAware() && namespaces != null) {
+                if (parentLocalName.length() > 2) {
+                    int nsIndex = parentLocalName.indexOf(getNamespaceSeparator(), 1);
+                    if (nsIndex > -1) {
+                        String prefix = parentLocalName.substring(0, nsIndex);
+                        uri = namespaces.resolveNamespacePrefix(prefix);
+                    }
+                    if (uri == null) {
+                        uri = namespaces.getDefaultNamespaceURI();
+                    } else {
+                        parentLocalName = parentLocalName.substring(nsIndex + 1);
+                    }
+                } else {
+                    uri = namespaces.getDefaultNamespaceURI();
+                }
+            }
+
+            if (!isLookedAhead && attributePrefix == null && contentHandler instanceof UnmarshalRecord && ((UnmarshalRecord) contentHandler).getXPathNode() != null) {
+                UnmarshalRecord unmarshalRecord = (UnmarshalRecord) contentHandler;
+                NodeValue nv = unmarshalRecord.getAttributeChildNodeValue(uri, parentLocalName);
+                if (nv != null) {
+                    int item;
+                    while ((item = tokenizer.next()) != JsonTokenizer.END_ARRAY) {
+                        parseAttribute(unmarshalRecord, nv, uri, parentLocalName, item);
+                    }
+                    return;
+                }
+            }
+
+            boolean isTextValue;
+            if (tokenizer.isEndNext()) {
+                if (contentHandler instanceof UnmarshalRecord) {
+                    UnmarshalRecord ur = (UnmarshalRecord) contentHandler;
+                    XPathNode node = ur.getNonAttributeXPathNode(uri, parentLocalName, parentLocalName, null);
+                    if (node != null) {
+                        NodeValue nv = node.getNodeValue();
+                        if (nv == null && node.getTextNode() != null) {
+                            nv = node.getTextNode().getUnmarshalNodeValue();
+                        }
+                        if (nv != null && nv.isContainerValue()) {
+                            ur.getContainerInstance(((ContainerValue) nv));
+                        }
+                    }
+                }
+            }
+            startCollection();
+
+            XPathFragment groupingXPathFragment = null;
+            XPathFragment itemXPathFragment = null;
+            if (contentHandler instanceof UnmarshalRecord) {
+                isTextValue = isTextValue(parentLocalName);
+                UnmarshalRecord unmarshalRecord = (UnmarshalRecord) contentHandler;
+                if (unmarshalRecord.getUnmarshaller().isWrapperAsCollectionName()) {
+                    XPathNode unmarshalRecordXPathNode = unmarshalRecord.getXPathNode();
+                    if (null != unmarshalRecordXPathNode) {
+                        XPathFragment currentFragment = new XPathFragment();
+                        currentFragment.setLocalName(parentLocalName);
+                        currentFragment.setNamespaceURI(uri);
+                        currentFragment.setNamespaceAware(isNamespaceAware());
+                        XPathNode groupingXPathNode = unmarshalRecordXPathNode.getNonAttributeChildrenMap().get(currentFragment);
+                        if (groupingXPathNode != null) {
+                            if (groupingXPathNode.getUnmarshalNodeValue() instanceof CollectionGroupingElementNodeValue) {
+                                groupingXPathFragment = groupingXPathNode.getXPathFragment();
+                                contentHandler.startElement(uri, parentLocalName, parentLocalName, new AttributesImpl());
+                                XPathNode itemXPathNode = groupingXPathNode.getNonAttributeChildren().get(0);
+                                itemXPathFragment = itemXPathNode.getXPathFragment();
+                            } else if (groupingXPathNode.getUnmarshalNodeValue() == null) {
+                                XPathNode itemXPathNode = groupingXPathNode.getNonAttributeChildren().get(0);
+                                if (itemXPathNode != null) {
+                                    if ((itemXPathNode.getUnmarshalNodeValue()).isContainerValue()) {
+                                        groupingXPathFragment = groupingXPathNode.getXPathFragment();
+                                        contentHandler.startElement(uri, parentLocalName, parentLocalName, new AttributesImpl());
+                                        itemXPathFragment = itemXPathNode.getXPathFragment();
+                                    }
+                                }
+                            }
+                        }
+                    }
+                }
+
+                int item;
+                while ((item = tokenizer.next()) != JsonTokenizer.END_ARRAY) {
+                    if (item == JsonTokenizer.NULL) {
+                        contentHandler.setNil(true);
+                    }
+
+                    if (!isTextValue) {
+                        if (null != itemXPathFragment) {
+                            contentHandler.startElement(itemXPathFragment.getNamespaceURI(), itemXPathFragment.getLocalName(), itemXPathFragment.getLocalName(), tokenAttributes.setValue(item));
+                        } else {
+                            contentHandler.startElement(uri, parentLocalName, parentLocalName, tokenAttributes.setValue(item));
+                        }
+
+                    }
+                    parseValue(item);
+                    if (!isTextValue) {
+                        if (null != itemXPathFragment) {
+                            contentHandler.endElement(itemXPathFragment.getNamespaceURI(), itemXPathFragment.getLocalName(), itemXPathFragment.getLocalName());
+                        } else {
+                            contentHandler.endElement(uri, parentLocalName, parentLocalName);
+                        }
+                    }
+                }
+            } else {
+                tokenizer.skipValue(token);
+            }
+            if (null != groupingXPathFragment) {
+                contentHandler.endElement(uri, groupingXPathFragment.getLocalName(), groupingXPathFragment.getLocalName());
+            }
+            endCollection();
+        } else {
+            if (attributePrefix != null && name.startsWith(attributePrefix)) {
+                tokenizer.skipValue(token);
+                return;
+            }
+            String localName = name;
+            String uri = Constants.EMPTY_STRING;
+            if (isNamespaceAware() && namespaces != null) {
+                if (localName.length() > 2) {
+                    int nsIndex = localName.indexOf(getNamespaceSeparator(), 1);
+                    String prefix = Constants.EMPTY_STRING;
+                    if (nsIndex > -1) {
+                        prefix = localName.substring(0, nsIndex);
+                    }
+                    uri = namespaces.resolveNamespacePrefix(prefix);
+                    if (uri == null) {
+                        uri = namespaces.getDefaultNamespaceURI();
+                    } else {
+                        localName = localName.substring(nsIndex + 1);
+                    }
+
+                    if (localName.equals(Constants.SCHEMA_TYPE_ATTRIBUTE) && uri != null && uri.equals(javax.xml.XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI)) {
+                        tokenizer.skipValue(token);
+                        return;
+                    }
+                } else {
+                    uri = namespaces.getDefaultNamespaceURI();
+                }
+            }
+            if (contentHandler instanceof XMLRootRecord || contentHandler instanceof DeferredContentHandler) {
+                if (jsonTypeCompatibility) {
+                    // if its not namespaceAware don't report the "type" child as it
+                    // is will be read by the xsi:type lookup
+                    if (!isNamespaceAware() && localName.equals(Constants.SCHEMA_TYPE_ATTRIBUTE)) {
+                        tokenizer.skipValue(token);
+                        return;
+                    }
+                }
+                if (textWrapper != null && textWrapper.equals(localName)) {
+                    parseValue(token);
+                    return;
+                }
+            } else if (contentHandler instanceof UnmarshalRecord && ((UnmarshalRecord) contentHandler).getXPathNode() != null) {
+                if (jsonTypeCompatibility) {
+                    if (!isNamespaceAware() && localName.equals(Constants.SCHEMA_TYPE_ATTRIBUTE) && !((UnmarshalRecord) contentHandler).getXPathNode().hasTypeChild()) {
+                        tokenizer.skipValue(token);
+                        return;
+                    }
+                }
+                boolean isTextValue = isTextValue(localName);
+                if (isTextValue) {
+                    parseValue(token);
+                    return;
+                }
+                NodeValue nv = ((UnmarshalRecord) contentHandler).getAttributeChildNodeValue(uri, localName);
+                if (attributePrefix == null && nv != null) {
+                    if (isLookedAhead) {
+                        tokenizer.skipValue(token);
+                    } else {
+                        parseAttribute((UnmarshalRecord) contentHandler, nv, uri, localName, token);
+                    }
+                    return;
+                }
+            }
+            if (token == JsonTokenizer.NULL) {
+                contentHandler.setNil(true);
+            }
+
+            contentHandler.startElement(uri, localName, localName, tokenAttributes.setValue(token));
+            parseValue(token);
+            contentHandler.endElement(uri, localName, localName);
+
+        }
+
+    }
+
+    /**
+     * Report a simple value read after the start of its element to the attribute node value,
+     * as the start of the element reports the attributes read by the look ahead.
+     */
+    private void parseAttribute(UnmarshalRecord unmarshalRecord, NodeValue nv, String uri, String localName, int token) throws IOException {
+        String value = simpleValue(token);
+        tokenizer.skipValue(token);
+        if (value == null) {
+            return;
+        }
+        if (nv.isMappingNodeValue()) {
+            String attributeName = ((MappingNodeValue) nv).getMapping().getAttributeName();
+            if (!unmarshalRecord.getUnmarshalAttributeGroup().containsAttributeInternal(attributeName)) {
+                return;
+            }
+        }
+        nv.attribute(unmarshalRecord, uri, localName, value);
+    }
+
+    /**
+     * The text of a string, number or boolean token, null for any other token.
+     */
+    private String simpleValue(int token) {
+        switch (token) {
+            case JsonTokenizer.STRING:
+            case JsonTokenizer.NUMBER:
+                return tokenizer.getString();
+            case JsonTokenizer.FALSE:
+                return FALSE;
+            case JsonTokenizer.TRUE:
+                return TRUE;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Attributes of the value that starts with the token.
+     * The attributes of an object are read as soon as its value is set, while the tokenizer is at the start of the object,
+     * from the leading members that a JsonStructureReader would report as attributes.
+     */
+    private class TokenAttributes extends IndexedAttributeList {
+
+        /** Number of leading members read by the look ahead of the last object, all members if unknown. */
+        private int members = Integer.MAX_VALUE;
+
+        public TokenAttributes setValue(int token) throws IOException {
+            reset();
+            members = Integer.MAX_VALUE;
+            if (token == JsonTokenizer.START_OBJECT) {
+                attributes = readAttributes();
+            } else {
+                attributes = NO_ATTRIBUTES;
+            }
+            return this;
+        }
+
+        /**
+         * Return the number of members read by the look ahead of the object whose members are about to be parsed.
+         */
+        int takeMembers() {
+            int taken = members;
+            members = Integer.MAX_VALUE;
+            return taken;
+        }
+
+        private Attribute[] readAttributes() throws IOException {
+            if (tokenizer.isEndNext()) {
+                return NO_ATTRIBUTES;
+            }
+            List<Attribute> attributesList = null;
+            int count = 0;
+            tokenizer.mark();
+            try {
+                members:
+                while (tokenizer.next() == JsonTokenizer.KEY) {
+                    String attributeLocalName = tokenizer.getString();
+
+                    if (attributePrefix != null) {
+                        if (attributeLocalName.startsWith(attributePrefix)) {
+                            attributeLocalName = attributeLocalName.substring(attributePrefix.length());
+                        } else {
+                            break;
+                        }
+                    }
+
+                    String uri = Constants.EMPTY_STRING;
+
+                    if (isNamespaceAware() && namespaces != null) {
+                        if (attributeLocalName.length() > 2) {
+                            String prefix = Constants.EMPTY_STRING;
+                            int nsIndex = attributeLocalName.indexOf(getNamespaceSeparator(), 1);
+                            if (nsIndex > -1) {
+                                prefix = attributeLocalName.substring(0, nsIndex);
+                            }
+                            uri = namespaces.resolveNamespacePrefix(prefix);
+                            if (uri == null) {
+                                uri = namespaces.getDefaultNamespaceURI();
+                            } else {
+                                attributeLocalName = attributeLocalName.substring(nsIndex + 1);
+                            }
+                        } else {
+                            uri = namespaces.getDefaultNamespaceURI();
+                        }
+                    }
+
+                    int value = tokenizer.next();
+                    if (attributePrefix == null && value == JsonTokenizer.START_OBJECT) {
+                        break;
+                    }
+                    if (attributesList == null) {
+                        attributesList = new ArrayList<>();
+                    }
+                    if (value == JsonTokenizer.START_ARRAY) {
+                        int size = attributesList.size();
+                        if (tokenizer.isEndNext()) {
+                            attributesList.add(new Attribute(uri, attributeLocalName, attributeLocalName, ""));
+                        }
+                        int item;
+                        while ((item = tokenizer.next()) != JsonTokenizer.END_ARRAY) {
+                            if (attributePrefix == null && (item == JsonTokenizer.START_OBJECT || item == JsonTokenizer.START_ARRAY)) {
+                                attributesList.subList(size, attributesList.size()).clear();
+                                break members;
+                            }
+                            addSimpleAttribute(attributesList, uri, attributeLocalName, item);
+                            tokenizer.skipValue(item);
+                        }
+                    } else {
+                        addSimpleAttribute(attributesList, uri, attributeLocalName, value);
+                        tokenizer.skipValue(value);
+                    }
+                    count++;
+                }
+            } finally {
+                tokenizer.reset();
+            }
+            members = count;
+            if (attributesList == null) {
+                return NO_ATTRIBUTES;
+            }
+            return attributesList.toArray(new Attribute[attributesList.size()]);
+        }
+
+        private void addSimpleAttribute(List<Attribute> attributes, String uri, String attributeLocalName, int token) {
+            String value = simpleValue(token);
+            if (value != null) {
+                attributes.add(new Attribute(uri, attributeLocalName, attributeLocalName, value));
+            }
+        }
+
+        @Override
+        public int getIndex(String uri, String localName) {
+            if (null == localName) {
+                return -1;
+            }
+            int index = 0;
+            for (Attribute attribute : attributes()) {
+                if (isNamespaceAware()) {
+                    if (localName.equals(attribute.getLocalName()) && uri.equals(attribute.getUri())) {
+                        return index;
+                    }
+                } else {
+                    if (attribute.getName().equals(localName)) {
+                        return index;
+                    }
+                }
+                index++;
+            }
+            return -1;
+        }
+
+        @Override
+        protected Attribute[] attributes() {
+            return attributes;
+        }
+    }
+}
@@ -0,0 +1,733 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.internal.oxm.record.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+
+import javax.json.stream.JsonParsingException;
+
+/**
+ * PERF: Pull tokenizer for JSON that works directly on the bytes of the input.
+ * UTF-8 is decoded only for keys and string values, and numbers and literals are read as bytes,
+ * so no InputStreamReader is required.
+ * Character input is encoded to UTF-8 as it is read into the buffer, so there is a single byte-level code path.
+ * <p>
+ * The input is read through a fixed size buffer that only grows while a position is marked,
+ * this allows a bounded look ahead over the members of an object without building the object.
+ * The buffer returns to its fixed size on the first fill after the mark is reset.
+ * Short ASCII keys are cached, so repeated keys in a document are only allocated once.
+ * Malformed input raises a JsonParsingException, as the JSR-353 reader does.
+ * @see JsonTokenReader
+ */
+final class JsonTokenizer {
+
+    // Tokens
+    static final int END_OF_INPUT = 0;
+    static final int START_OBJECT = 1;
+    static final int END_OBJECT = 2;
+    static final int START_ARRAY = 3;
+    static final int END_ARRAY = 4;
+    static final int KEY = 5;
+    static final int STRING = 6;
+    static final int NUMBER = 7;
+    static final int TRUE = 8;
+    static final int FALSE = 9;
+    static final int NULL = 10;
+
+    // Container states
+    private static final int OBJECT_START = 0;
+    private static final int OBJECT_AFTER_KEY = 1;
+    private static final int OBJECT_AFTER_VALUE = 2;
+    private static final int OBJECT_AFTER_COMMA = 3;
+    private static final int ARRAY_START = 4;
+    private static final int ARRAY_AFTER_VALUE = 5;
+    private static final int ARRAY_AFTER_COMMA = 6;
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int KEY_CACHE_SIZE = 512;
+    private static final int MAX_CACHED_KEY_LENGTH = 32;
+
+    private final InputStream inputStream;
+    private final Reader reader;
+    private char[] readerChars;
+    private char pendingHighSurrogate;
+
+    private byte[] buffer;
+    private int position;
+    private int limit;
+    private boolean isEndOfInput;
+    /** Number of bytes discarded from the front of the buffer, for error positions. */
+    private long discarded;
+
+    /** Decoded value of the current key, string or number. */
+    private char[] chars;
+    private int length;
+    private String string;
+
+    /** State of each open container, the root value is at depth 0. */
+    private int[] states;
+    private int depth;
+    private boolean hasRootValue;
+
+    // Marked position, -1 if not marked.
+    private int markPosition;
+    private int markDepth;
+    private int[] markStates;
+    private boolean markHasRootValue;
+
+    private final String[] keyCache;
+
+    JsonTokenizer(InputStream inputStream) {
+        this(inputStream, null);
+    }
+
+    JsonTokenizer(Reader reader) {
+        this(null, reader);
+        this.readerChars = new char[BUFFER_SIZE / 4];
+    }
+
+    private JsonTokenizer(InputStream inputStream, Reader reader) {
+        this.inputStream = inputStream;
+        this.reader = reader;
+        this.buffer = new byte[BUFFER_SIZE];
+        this.chars = new char[128];
+        this.states = new int[32];
+        this.markStates = new int[32];
+        this.markPosition = -1;
+        this.keyCache = new String[KEY_CACHE_SIZE];
+    }
+
+    /**
+     * Read and return the next token, END_OF_INPUT once the root value has been read.
+     */
+    int next() throws IOException {
+        int b = skipWhitespace();
+        if (this.depth == 0) {
+            if (this.hasRootValue) {
+                if (b != -1) {
+                    throw error("Unexpected character after the end of the document");
+                }
+                return END_OF_INPUT;
+            }
+            if (b == -1) {
+                throw error("Unexpected end of input, expected a value");
+            }
+            this.hasRootValue = true;
+            return readValue(b);
+        }
+        int state = this.states[this.depth];
+        switch (state) {
+            case OBJECT_START:
+                if (b == '}') {
+                    this.position++;
+                    return endContainer(END_OBJECT);
+                }
+                return readKey(b);
+            case OBJECT_AFTER_COMMA:
+                return readKey(b);
+            case OBJECT_AFTER_KEY:
+                this.states[this.depth] = OBJECT_AFTER_VALUE;
+                return readValue(b);
+            case OBJECT_AFTER_VALUE:
+                if (b == ',') {
+                    this.position++;
+                    this.states[this.depth] = OBJECT_AFTER_COMMA;
+                    return readKey(skipWhitespace());
+                } else if (b == '}') {
+                    this.position++;
+                    return endContainer(END_OBJECT);
+                }
+                throw error("Expected ',' or '}'");
+            case ARRAY_START:
+                if (b == ']') {
+                    this.position++;
+                    return endContainer(END_ARRAY);
+                }
+                this.states[this.depth] = ARRAY_AFTER_VALUE;
+                return readValue(b);
+            case ARRAY_AFTER_VALUE:
+                if (b == ',') {
+                    this.position++;
+                    return readValue(skipWhitespace());
+                } else if (b == ']') {
+                    this.position++;
+                    return endContainer(END_ARRAY);
+                }
+                throw error("Expected ',' or ']'");
+            default:
+                throw new IllegalStateException("Unhandled state: " + state);
+        }
+    }
+
+    /**
+     * Return the current key, string or number.
+     * Numbers are returned in the same form as the toString of a JsonNumber.
+     */
+    String getString() {
+        if (this.string == null) {
+            this.string = new String(this.chars, 0, this.length);
+        }
+        return this.string;
+    }
+
+    /**
+     * Return if the next token closes the current object or array, without reading it.
+     */
+    boolean isEndNext() throws IOException {
+        int b = skipWhitespace();
+        int state = this.states[this.depth];
+        return (b == '}' && state == OBJECT_START) || (b == ']' && state == ARRAY_START);
+    }
+
+    /**
+     * Skip the rest of the value that starts with the token that was just read.
+     * Nested objects and arrays are skipped without decoding their strings.
+     */
+    void skipValue(int token) throws IOException {
+        if (token != START_OBJECT && token != START_ARRAY) {
+            return;
+        }
+        int nesting = 1;
+        while (nesting > 0) {
+            int b = read();
+            if (b == -1) {
+                throw error("Unexpected end of input");
+            }
+            if (b == '"') {
+                skipString();
+            } else if (b == '{' || b == '[') {
+                nesting++;
+            } else if (b == '}' || b == ']') {
+                nesting--;
+            }
+        }
+        endContainer(token == START_OBJECT ? END_OBJECT : END_ARRAY);
+    }
+
+    /**
+     * Skip the remaining members of the current object or items of the current array, including its end.
+     */
+    void skipToEnd() throws IOException {
+        skipValue(this.states[this.depth] < ARRAY_START ? START_OBJECT : START_ARRAY);
+    }
+
+    /**
+     * Mark the current position, the input from this position is kept until reset.
+     */
+    void mark() {
+        this.markPosition = this.position;
+        this.markDepth = this.depth;
+        this.markHasRootValue = this.hasRootValue;
+        if (this.markStates.length < this.states.length) {
+            this.markStates = new int[this.states.length];
+        }
+        System.arraycopy(this.states, 0, this.markStates, 0, this.depth + 1);
+    }
+
+    /**
+     * Return to the marked position.
+     */
+    void reset() {
+        this.position = this.markPosition;
+        this.depth = this.markDepth;
+        this.hasRootValue = this.markHasRootValue;
+        System.arraycopy(this.markStates, 0, this.states, 0, this.depth + 1);
+        this.markPosition = -1;
+    }
+
+    private int endContainer(int token) {
+        this.depth--;
+        return token;
+    }
+
+    private void startContainer(int state) {
+        this.depth++;
+        if (this.depth == this.states.length) {
+            int[] newStates = new int[this.states.length * 2];
+            System.arraycopy(this.states, 0, newStates, 0, this.states.length);
+            this.states = newStates;
+        }
+        this.states[this.depth] = state;
+    }
+
+    private int readKey(int b) throws IOException {
+        if (b != '"') {
+            throw error("Expected a key");
+        }
+        this.position++;
+        readString(true);
+        int colon = skipWhitespace();
+        if (colon != ':') {
+            throw error("Expected ':'");
+        }
+        this.position++;
+        this.states[this.depth] = OBJECT_AFTER_KEY;
+        return KEY;
+    }
+
+    private int readValue(int b) throws IOException {
+        switch (b) {
+            case '{':
+                this.position++;
+                startContainer(OBJECT_START);
+                return START_OBJECT;
+            case '[':
+                this.position++;
+                startContainer(ARRAY_START);
+                return START_ARRAY;
+            case '"':
+                this.position++;
+                readString(false);
+                return STRING;
+            case 't':
+                readLiteral("true");
+                return TRUE;
+            case 'f':
+                readLiteral("false");
+                return FALSE;
+            case 'n':
+                readLiteral("null");
+                return NULL;
+            case -1:
+                throw error("Unexpected end of input, expected a value");
+            default:
+                if (b == '-' || (b >= '0' && b <= '9')) {
+                    readNumber();
+                    return NUMBER;
+                }
+                throw error("Unexpected character '" + (char) b + "'");
+        }
+    }
+
+    private void readLiteral(String literal) throws IOException {
+        for (int index = 0; index < literal.length(); index++) {
+            if (read() != literal.charAt(index)) {
+                throw error("Expected '" + literal + "'");
+            }
+        }
+        checkDelimiter();
+    }
+
+    private void readNumber() throws IOException {
+        this.length = 0;
+        this.string = null;
+        boolean isDecimal = false;
+        int b = peek();
+        if (b == '-') {
+            append(read());
+            b = peek();
+        }
+        if (b == '0') {
+            append(read());
+            b = peek();
+        } else if (b >= '1' && b <= '9') {
+            b = readDigits();
+        } else {
+            throw error("Invalid number");
+        }
+        if (b == '.') {
+            isDecimal = true;
+            append(read());
+            if (!isDigit(peek())) {
+                throw error("Invalid number");
+            }
+            b = readDigits();
+        }
+        if (b == 'e' || b == 'E') {
+            isDecimal = true;
+            append(read());
+            b = peek();
+            if (b == '+' || b == '-') {
+                append(read());
+            }
+            if (!isDigit(peek())) {
+                throw error("Invalid number");
+            }
+            readDigits();
+        }
+        checkDelimiter();
+        if (isDecimal) {
+            // JsonNumber prints decimals as BigDecimal does, which only differs from the input
+            // for exponents and small fractions.
+            if (hasExponentOrSmallFraction()) {
+                this.string = new BigDecimal(this.chars, 0, this.length).toString();
+            }
+        } else if (this.length == 2 && this.chars[0] == '-' && this.chars[1] == '0') {
+            this.string = "0";
+        }
+    }
+
+    private boolean hasExponentOrSmallFraction() {
+        int index = 0;
+        if (this.chars[0] == '-') {
+            index++;
+        }
+        if (this.chars[index] == '0' && index + 7 < this.length) {
+            boolean isSmall = true;
+            for (int zero = index + 2; zero < index + 8; zero++) {
+                if (this.chars[zero] != '0') {
+                    isSmall = false;
+                    break;
+                }
+            }
+            if (isSmall) {
+                return true;
+            }
+        }
+        for (; index < this.length; index++) {
+            char c = this.chars[index];
+            if (c == 'e' || c == 'E') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int readDigits() throws IOException {
+        int b = peek();
+        while (isDigit(b)) {
+            append(read());
+            b = peek();
+        }
+        return b;
+    }
+
+    private static boolean isDigit(int b) {
+        return b >= '0' && b <= '9';
+    }
+
+    /**
+     * Numbers and literals must be followed by whitespace, a separator or the end of input.
+     */
+    private void checkDelimiter() throws IOException {
+        int b = peek();
+        if (b != -1 && b != ',' && b != '}' && b != ']' && b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+            throw error("Unexpected character '" + (char) b + "'");
+        }
+    }
+
+    /**
+     * Read a string after its opening quote.
+     * Short ASCII keys without escapes are looked up in the key cache first.
+     */
+    private void readString(boolean isKey) throws IOException {
+        this.string = null;
+        this.length = 0;
+        if (isKey) {
+            int end = this.position;
+            int hash = 0;
+            int maxEnd = Math.min(this.limit, this.position + MAX_CACHED_KEY_LENGTH + 1);
+            while (end < maxEnd) {
+                int b = this.buffer[end];
+                if (b == '"') {
+                    String key = cachedKey(this.position, end, hash);
+                    this.position = end + 1;
+                    this.string = key;
+                    return;
+                } else if (b == '\\' || b < 0x20) {
+                    break;
+                }
+                hash = 31 * hash + b;
+                end++;
+            }
+        }
+        while (true) {
+            int b = read();
+            if (b == '"') {
+                return;
+            } else if (b == '\\') {
+                readEscape();
+            } else if (b == -1) {
+                throw error("Unexpected end of input in a string");
+            } else if (b < 0x20) {
+                throw error("Unescaped control character in a string");
+            } else if (b < 0x80) {
+                append(b);
+            } else {
+                readMultiByte(b);
+            }
+        }
+    }
+
+    private String cachedKey(int start, int end, int hash) {
+        int index = (hash ^ (hash >>> 16)) & (KEY_CACHE_SIZE - 1);
+        String key = this.keyCache[index];
+        int keyLength = end - start;
+        if (key != null && key.length() == keyLength) {
+            boolean matches = true;
+            for (int offset = 0; offset < keyLength; offset++) {
+                if (key.charAt(offset) != this.buffer[start + offset]) {
+                    matches = false;
+                    break;
+                }
+            }
+            if (matches) {
+                return key;
+            }
+        }
+        for (int offset = 0; offset < keyLength; offset++) {
+            append(this.buffer[start + offset]);
+        }
+        key = new String(this.chars, 0, keyLength);
+        this.keyCache[index] = key;
+        return key;
+    }
+
+    private void readEscape() throws IOException {
+        int b = read();
+        switch (b) {
+            case '"':
+            case '\\':
+            case '/':
+                append(b);
+                break;
+            case 'b':
+                append('\b');
+                break;
+            case 'f':
+                append('\f');
+                break;
+            case 'n':
+                append('\n');
+                break;
+            case 'r':
+                append('\r');
+                break;
+            case 't':
+                append('\t');
+                break;
+            case 'u':
+                int c = 0;
+                for (int index = 0; index < 4; index++) {
+                    int digit = Character.digit(read(), 16);
+                    if (digit < 0) {
+                        throw error("Invalid unicode escape");
+                    }
+                    c = (c << 4) | digit;
+                }
+                append(c);
+                break;
+            default:
+                throw error("Invalid escape");
+        }
+    }
+
+    /**
+     * Decode a multi-byte UTF-8 sequence, malformed sequences are replaced as by a decoder.
+     */
+    private void readMultiByte(int b) throws IOException {
+        int count;
+        int codePoint;
+        if ((b & 0xE0) == 0xC0) {
+            count = 1;
+            codePoint = b & 0x1F;
+        } else if ((b & 0xF0) == 0xE0) {
+            count = 2;
+            codePoint = b & 0x0F;
+        } else if ((b & 0xF8) == 0xF0) {
+            count = 3;
+            codePoint = b & 0x07;
+        } else {
+            append(0xFFFD);
+            return;
+        }
+        for (int index = 0; index < count; index++) {
+            int next = peek();
+            if ((next & 0xC0) != 0x80) {
+                append(0xFFFD);
+                return;
+            }
+            this.position++;
+            codePoint = (codePoint << 6) | (next & 0x3F);
+        }
+        if (codePoint >= 0x10000) {
+            append(Character.highSurrogate(codePoint));
+            append(Character.lowSurrogate(codePoint));
+        } else {
+            append(codePoint);
+        }
+    }
+
+    private void skipString() throws IOException {
+        while (true) {
+            int b = read();
+            if (b == '"') {
+                return;
+            } else if (b == '\\') {
+                read();
+            } else if (b == -1) {
+                throw error("Unexpected end of input in a string");
+            }
+        }
+    }
+
+    private void append(int c) {
+        if (this.length == this.chars.length) {
+            char[] newChars = new char[this.chars.length * 2];
+            System.arraycopy(this.chars, 0, newChars, 0, this.length);
+            this.chars = newChars;
+        }
+        this.chars[this.length++] = (char) c;
+    }
+
+    private int skipWhitespace() throws IOException {
+        while (true) {
+            int b = peek();
+            if (b == ' ' || b == '\n' || b == '\r' || b == '\t') {
+                this.position++;
+            } else {
+                return b;
+            }
+        }
+    }
+
+    private int peek() throws IOException {
+        if (this.position == this.limit && !fill()) {
+            return -1;
+        }
+        return this.buffer[this.position] & 0xFF;
+    }
+
+    private int read() throws IOException {
+        if (this.position == this.limit && !fill()) {
+            return -1;
+        }
+        return this.buffer[this.position++] & 0xFF;
+    }
+
+    /**
+     * Read more input into the buffer, return false at the end of the input.
+     * Input before the current position is discarded unless a position is marked.
+     */
+    private boolean fill() throws IOException {
+        if (this.isEndOfInput) {
+            return false;
+        }
+        int keep = this.markPosition == -1 ? this.position : this.markPosition;
+        if (keep > 0) {
+            System.arraycopy(this.buffer, keep, this.buffer, 0, this.limit - keep);
+            this.limit = this.limit - keep;
+            this.position = this.position - keep;
+            if (this.markPosition != -1) {
+                this.markPosition = this.markPosition - keep;
+            }
+            this.discarded = this.discarded + keep;
+        }
+        if (this.markPosition == -1 && this.buffer.length > BUFFER_SIZE && this.limit <= BUFFER_SIZE / 2) {
+            // Release the input kept for a look ahead once it has been read.
+            byte[] newBuffer = new byte[BUFFER_SIZE];
+            System.arraycopy(this.buffer, 0, newBuffer, 0, this.limit);
+            this.buffer = newBuffer;
+        }
+        // Grow while marked, leaving room to encode a few characters from a reader.
+        if (this.buffer.length - this.limit < 16) {
+            byte[] newBuffer = new byte[this.buffer.length * 2];
+            System.arraycopy(this.buffer, 0, newBuffer, 0, this.limit);
+            this.buffer = newBuffer;
+        }
+        int count;
+        if (this.inputStream != null) {
+            count = this.inputStream.read(this.buffer, this.limit, this.buffer.length - this.limit);
+            if (count > 0 && this.discarded == 0 && this.limit == 0) {
+                skipByteOrderMark(count);
+            }
+        } else {
+            count = fillFromReader();
+        }
+        if (count <= 0) {
+            this.isEndOfInput = true;
+            return this.position < this.limit;
+        }
+        this.limit = this.limit + count;
+        return true;
+    }
+
+    private void skipByteOrderMark(int count) {
+        if (count >= 3 && (this.buffer[0] & 0xFF) == 0xEF && (this.buffer[1] & 0xFF) == 0xBB && (this.buffer[2] & 0xFF) == 0xBF) {
+            this.position = 3;
+        }
+    }
+
+    /**
+     * Read characters and encode them as UTF-8 into the free space of the buffer, return the number of bytes.
+     */
+    private int fillFromReader() throws IOException {
+        // Each character encodes to at most 3 bytes, a surrogate pair to 4.
+        int maxChars = Math.min(this.readerChars.length, (this.buffer.length - this.limit) / 3 - 1);
+        int count = this.reader.read(this.readerChars, 0, maxChars);
+        if (count <= 0) {
+            if (this.pendingHighSurrogate != 0) {
+                this.pendingHighSurrogate = 0;
+                return encode(0xFFFD, this.limit);
+            }
+            return count;
+        }
+        int end = this.limit;
+        for (int index = 0; index < count; index++) {
+            char c = this.readerChars[index];
+            if (c < 0x80 && this.pendingHighSurrogate == 0) {
+                this.buffer[end++] = (byte) c;
+            } else if (this.pendingHighSurrogate != 0) {
+                char high = this.pendingHighSurrogate;
+                this.pendingHighSurrogate = 0;
+                if (Character.isLowSurrogate(c)) {
+                    end = end + encode(Character.toCodePoint(high, c), end);
+                } else {
+                    end = end + encode(0xFFFD, end);
+                    index--;
+                }
+            } else if (Character.isHighSurrogate(c)) {
+                this.pendingHighSurrogate = c;
+            } else if (Character.isLowSurrogate(c)) {
+                end = end + encode(0xFFFD, end);
+            } else {
+                end = end + encode(c, end);
+            }
+        }
+        int written = end - this.limit;
+        if (written == 0) {
+            // Only a high surrogate was read, read on to its low surrogate.
+            return fillFromReader();
+        }
+        return written;
+    }
+
+    private int encode(int codePoint, int offset) {
+        byte[] bytes = this.buffer;
+        if (codePoint < 0x80) {
+            bytes[offset] = (byte) codePoint;
+            return 1;
+        } else if (codePoint < 0x800) {
+            bytes[offset] = (byte) (0xC0 | (codePoint >> 6));
+            bytes[offset + 1] = (byte) (0x80 | (codePoint & 0x3F));
+            return 2;
+        } else if (codePoint < 0x10000) {
+            bytes[offset] = (byte) (0xE0 | (codePoint >> 12));
+            bytes[offset + 1] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            bytes[offset + 2] = (byte) (0x80 | (codePoint & 0x3F));
+            return 3;
+        }
+        bytes[offset] = (byte) (0xF0 | (codePoint >> 18));
+        bytes[offset + 1] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+        bytes[offset + 2] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+        bytes[offset + 3] = (byte) (0x80 | (codePoint & 0x3F));
+        return 4;
+    }
+
+    private JsonParsingException error(String message) {
+        return new JsonParsingException(message + " at offset " + (this.discarded + this.position), null);
+    }
+}
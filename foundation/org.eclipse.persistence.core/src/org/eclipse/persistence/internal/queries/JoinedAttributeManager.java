@@ -205,6 +205,33 @@ public JoinedAttributeManager clone(){
         return joinManager;
     }
 
+    /**
+     * INTERNAL:
+     * Replace the join expressions with copies from the map of copied expressions,
+     * so that a copy of the query does not share any expression with the original query.
+     */
+    public void copyExpressions(Map alreadyDone) {
+        if (this.baseExpressionBuilder != null) {
+            this.baseExpressionBuilder = (ExpressionBuilder)this.baseExpressionBuilder.copiedVersionFrom(alreadyDone);
+        }
+        this.joinedAttributeExpressions = copyExpressions(this.joinedAttributeExpressions, alreadyDone);
+        this.joinedMappingExpressions = copyExpressions(this.joinedMappingExpressions, alreadyDone);
+        this.joinedAttributes = copyExpressions(this.joinedAttributes, alreadyDone);
+        this.orderByExpressions = copyExpressions(this.orderByExpressions, alreadyDone);
+        this.additionalFieldExpressions = copyExpressions(this.additionalFieldExpressions, alreadyDone);
+    }
+
+    private static List<Expression> copyExpressions(List<Expression> expressions, Map alreadyDone) {
+        if (expressions == null) {
+            return null;
+        }
+        List<Expression> copies = new ArrayList<Expression>(expressions.size());
+        for (Expression expression : expressions) {
+            copies.add(expression.copiedVersionFrom(alreadyDone));
+        }
+        return copies;
+    }
+
     /**
      * Copies settings from another manager. Should copy all the attributes that clone method clones.
      */
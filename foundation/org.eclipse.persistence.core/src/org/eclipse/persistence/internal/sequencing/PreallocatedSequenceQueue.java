@@ -0,0 +1,217 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.internal.sequencing;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * PERF: Queue of the preallocated values of a sequence.
+ * Each allocation from the database is stored as a block, an array of values with an atomic index,
+ * so polling a value is a single compare-and-swap on the index of the current block,
+ * instead of removing a node from a linked queue.
+ * Only when the current block is exhausted, is a lock taken to move on to the next block.
+ * The queue also records whether a background refill is in progress for the sequence,
+ * so only one refill is launched at a time.
+ * @see PreallocationHandler
+ */
+public class PreallocatedSequenceQueue extends AbstractQueue<Object> {
+
+    /**
+     * A block of allocated values, the values are handed out in order by incrementing the index.
+     */
+    static class Block {
+        protected final Object[] values;
+        protected final AtomicInteger index;
+
+        Block(Object[] values) {
+            this.values = values;
+            this.index = new AtomicInteger();
+        }
+
+        /**
+         * Return the next value, or null if the block is exhausted.
+         */
+        Object next() {
+            // Avoid incrementing an exhausted block, so the index cannot overflow.
+            if (this.index.get() >= this.values.length) {
+                return null;
+            }
+            int next = this.index.getAndIncrement();
+            if (next < this.values.length) {
+                return this.values[next];
+            }
+            return null;
+        }
+
+        /**
+         * Return the number of values remaining in the block.
+         */
+        int remaining() {
+            return Math.max(this.values.length - this.index.get(), 0);
+        }
+    }
+
+    /** The block values are currently polled from. */
+    protected volatile Block current;
+
+    /** The allocated blocks that follow the current block, in allocation order. */
+    protected final ConcurrentLinkedQueue<Block> blocks;
+
+    /** Indicates a background refill of the queue is in progress. */
+    protected final AtomicBoolean isRefilling;
+
+    public PreallocatedSequenceQueue() {
+        this.blocks = new ConcurrentLinkedQueue<Block>();
+        this.isRefilling = new AtomicBoolean();
+    }
+
+    /**
+     * Remove and return the next value, or null if the queue is empty.
+     * This is thread-safe and only locks to move to the next block.
+     */
+    @Override
+    public Object poll() {
+        Block block = this.current;
+        if (block != null) {
+            Object value = block.next();
+            if (value != null) {
+                return value;
+            }
+        }
+        synchronized (this) {
+            while (true) {
+                block = this.current;
+                if (block != null) {
+                    Object value = block.next();
+                    if (value != null) {
+                        return value;
+                    }
+                }
+                block = this.blocks.poll();
+                if (block == null) {
+                    return null;
+                }
+                this.current = block;
+            }
+        }
+    }
+
+    /**
+     * Return the next value without removing it, or null if the queue is empty.
+     */
+    @Override
+    public Object peek() {
+        Block block = this.current;
+        if (block != null) {
+            int index = block.index.get();
+            if (index < block.values.length) {
+                return block.values[index];
+            }
+        }
+        for (Block next : this.blocks) {
+            if (next.values.length > 0) {
+                return next.values[0];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Add the value as a block of its own, values should normally be added through addAll.
+     */
+    @Override
+    public boolean offer(Object value) {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        this.blocks.add(new Block(new Object[] { value }));
+        return true;
+    }
+
+    /**
+     * Add the allocated values as a single block.
+     */
+    @Override
+    public boolean addAll(Collection values) {
+        if (values.isEmpty()) {
+            return false;
+        }
+        this.blocks.add(new Block(values.toArray()));
+        return true;
+    }
+
+    /**
+     * Return the number of values remaining, this is only an estimate while the queue is being polled.
+     */
+    @Override
+    public int size() {
+        int size = 0;
+        Block block = this.current;
+        if (block != null) {
+            size = block.remaining();
+        }
+        for (Block next : this.blocks) {
+            size = size + next.remaining();
+        }
+        return size;
+    }
+
+    /**
+     * Return an iterator over a snapshot of the remaining values.
+     */
+    @Override
+    public Iterator<Object> iterator() {
+        List<Object> values = new ArrayList<Object>();
+        Block block = this.current;
+        if (block != null) {
+            for (int index = block.index.get(); index < block.values.length; index++) {
+                values.add(block.values[index]);
+            }
+        }
+        for (Block next : this.blocks) {
+            for (int index = next.index.get(); index < next.values.length; index++) {
+                values.add(next.values[index]);
+            }
+        }
+        return values.iterator();
+    }
+
+    /**
+     * Return true if this thread should refill the queue,
+     * false if a refill is already in progress.
+     */
+    public boolean startRefill() {
+        return this.isRefilling.compareAndSet(false, true);
+    }
+
+    /**
+     * Record that the refill has completed.
+     */
+    public void endRefill() {
+        this.isRefilling.set(false);
+    }
+
+    /**
+     * Return if a background refill is in progress.
+     */
+    public boolean isRefilling() {
+        return this.isRefilling.get();
+    }
+}
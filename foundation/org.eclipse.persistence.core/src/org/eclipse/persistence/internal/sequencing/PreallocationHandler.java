@@ -31,6 +31,7 @@ public PreallocationHandler() {
      * Returns the Queue of sequences from the global sequences for the seqName.
      * If there is not one, a new empty Queue is registered.
      * This queue is thread-safe, and threads can concurrent poll the queue to remove the first element.
+     * PERF: The values of each allocation are held as a block with an atomic index, see PreallocatedSequenceQueue.
      */
     public Queue getPreallocated(String sequenceName) {
         Queue sequences = preallocatedSequences.get(sequenceName);
@@ -38,7 +39,7 @@ public Queue getPreallocated(String sequenceName) {
             synchronized (preallocatedSequences) {
                 sequences = preallocatedSequences.get(sequenceName);
                 if (sequences == null) {
-                    sequences = new ConcurrentLinkedQueue();
+                    sequences = new PreallocatedSequenceQueue();
                     preallocatedSequences.put(sequenceName, sequences);
                 }
             }
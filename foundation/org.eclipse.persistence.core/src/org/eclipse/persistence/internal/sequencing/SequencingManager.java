@@ -114,6 +114,7 @@ class SequencingManager implements SequencingHome, SequencingServer, SequencingC
     private static final int PREALLOCATION_TRANSACTION_NOACCESSOR = 2;
     private static final int PREALLOCATION_TRANSACTION_ACCESSOR = 3;
     private static final int NUMBER_OF_STATES = 4;
+    private static final String DEFAULT_CONTEXT = "default";
     private State[] states;
     private Map<String, ConcurrencyManager> locks;
     private SequencingCallbackFactory callbackFactory;
@@ -573,11 +574,13 @@ class Preallocation_Transaction_Accessor_State extends State {
         public Object getNextValue(Sequence sequence, AbstractSession writeSession) {
             String seqName = sequence.getName();
             if(sequence.getPreallocationSize() > 1) {
-                PreallocationHandler handler = getPreallocationHandler(getContext(writeSession));
+                String context = getContext(writeSession);
+                PreallocationHandler handler = getPreallocationHandler(context);
                 Queue sequencesForName = handler.getPreallocated(seqName);
                 // First try to get the next sequence value without locking.
                 Object sequenceValue = sequencesForName.poll();
                 if (sequenceValue != null) {
+                    checkLowWaterMark(sequence, context, handler, sequencesForName);
                     return sequenceValue;
                 }
                 // Sequences are empty, so must lock and allocate next batch of sequences.
@@ -587,32 +590,12 @@ public Object getNextValue(Sequence sequence, AbstractSession writeSession) {
                     if (sequenceValue != null) {
                         return sequenceValue;
                     }
-                    // note that accessor.getLogin().shouldUseExternalTransactionController()
-                    // should be set to false
-                    Accessor accessor = getConnectionHandler().acquireAccessor();
-                    try {
-                        accessor.beginTransaction(writeSession);
-                        try {
-                            Vector sequences = sequence.getGeneratedVector(accessor, writeSession);
-                            accessor.commitTransaction(writeSession);
-                            // Remove the first value before adding to the global cache to ensure this thread gets one.
-                            sequenceValue = sequences.remove(0);
-                            // copy remaining values to global cache.
-                            handler.setPreallocated(seqName, sequences);
-                            logDebugPreallocation(seqName, sequenceValue, sequences);
-                        } catch (RuntimeException ex) {
-                            try {
-                                // make sure to rollback the transaction we've begun
-                                accessor.rollbackTransaction(writeSession);
-                            } catch (Exception rollbackException) {
-                                // ignore rollback exception
-                            }
-                            // don't eat the original exception
-                            throw ex;
-                        }
-                    } finally {
-                        getConnectionHandler().releaseAccessor(accessor);
-                    }
+                    Vector sequences = allocate(sequence, writeSession);
+                    // Remove the first value before adding to the global cache to ensure this thread gets one.
+                    sequenceValue = sequences.remove(0);
+                    // copy remaining values to global cache.
+                    handler.setPreallocated(seqName, sequences);
+                    logDebugPreallocation(seqName, sequenceValue, sequences);
                 } finally {
                     lock.release();
                 }
@@ -643,6 +626,85 @@ public Object getNextValue(Sequence sequence, AbstractSession writeSession) {
                 }
             }
         }
+        /**
+         * Allocate the next values from the database in a transaction on a sequencing connection.
+         */
+        protected Vector allocate(Sequence sequence, AbstractSession session) {
+            // note that accessor.getLogin().shouldUseExternalTransactionController()
+            // should be set to false
+            Accessor accessor = getConnectionHandler().acquireAccessor();
+            try {
+                accessor.beginTransaction(session);
+                try {
+                    Vector sequences = sequence.getGeneratedVector(accessor, session);
+                    accessor.commitTransaction(session);
+                    return sequences;
+                } catch (RuntimeException ex) {
+                    try {
+                        // make sure to rollback the transaction we've begun
+                        accessor.rollbackTransaction(session);
+                    } catch (Exception rollbackException) {
+                        // ignore rollback exception
+                    }
+                    // don't eat the original exception
+                    throw ex;
+                }
+            } finally {
+                getConnectionHandler().releaseAccessor(accessor);
+            }
+        }
+
+        /**
+         * PERF: If the sequence defines a low-water mark and the remaining preallocated values have reached it,
+         * allocate the next values in the background, so the database access happens before the values run out.
+         * Only one background allocation is run at a time for a sequence.
+         * If the background allocation cannot be launched, the values are allocated in the calling thread.
+         * Tenant specific contexts allocate through the tenant's session, so always allocate on demand.
+         */
+        protected void checkLowWaterMark(final Sequence sequence, String context, final PreallocationHandler handler, Queue sequencesForName) {
+            final int lowWaterMark = sequence.getPreallocationLowWaterMark();
+            if ((lowWaterMark <= 0) || !DEFAULT_CONTEXT.equals(context) || !(sequencesForName instanceof PreallocatedSequenceQueue)) {
+                return;
+            }
+            final PreallocatedSequenceQueue queue = (PreallocatedSequenceQueue)sequencesForName;
+            if (queue.isRefilling() || (queue.size() > lowWaterMark) || !queue.startRefill()) {
+                return;
+            }
+            Runnable refill = new Runnable() {
+                public void run() {
+                    try {
+                        String seqName = sequence.getName();
+                        ConcurrencyManager lock = acquireLock(seqName);
+                        try {
+                            // Another thread may have allocated while waiting for the lock.
+                            if (queue.size() > lowWaterMark) {
+                                return;
+                            }
+                            Vector sequences = allocate(sequence, getOwnerSession());
+                            handler.setPreallocated(seqName, sequences);
+                            if (getOwnerSession().shouldLog(SessionLog.FINEST, SessionLog.SEQUENCING)) {
+                                Object[] args = { seqName, Integer.valueOf(sequences.size()), sequences.firstElement(), sequences.lastElement() };
+                                getOwnerSession().log(SessionLog.FINEST, SessionLog.SEQUENCING, "sequencing_preallocation", args);
+                            }
+                        } finally {
+                            lock.release();
+                        }
+                    } catch (RuntimeException exception) {
+                        // The values will be allocated on demand when they run out, and any error will be raised then.
+                        getOwnerSession().logThrowable(SessionLog.WARNING, SessionLog.SEQUENCING, exception);
+                    } finally {
+                        queue.endRefill();
+                    }
+                }
+            };
+            try {
+                getOwnerSession().getServerPlatform().launchContainerRunnable(refill);
+            } catch (RuntimeException exception) {
+                // The caller already polled its value, so must not fail, refill in this thread instead.
+                getOwnerSession().logThrowable(SessionLog.WARNING, SessionLog.SEQUENCING, exception);
+                refill.run();
+            }
+        }
     }
 
     /**
@@ -881,10 +943,10 @@ public void onDisconnect() {
     protected PreallocationHandler getPreallocationHandler(String context) {
         if (preallocationHandler != null) {
             if (context == null) {
-                return preallocationHandler.get("default");
+                return preallocationHandler.get(DEFAULT_CONTEXT);
             } else {
                 PreallocationHandler handler = preallocationHandler.get(context);
-                if (handler == null && !"default".equals(context)) {
+                if (handler == null && !DEFAULT_CONTEXT.equals(context)) {
                     handler = new PreallocationHandler();
                     preallocationHandler.put(context, handler);
                     handler.onConnect();
@@ -1159,7 +1221,7 @@ public void setConnectionPool(ConnectionPool connectionPool) {
     }
 
     private String getContext(AbstractSession writeSession) {
-        String context = "default";
+        String context = DEFAULT_CONTEXT;
         if (writeSession != null) {
             MultitenantPolicy policy = writeSession.getProject().getMultitenantPolicy();
             if (policy != null && policy.isSchemaPerMultitenantPolicy()) {
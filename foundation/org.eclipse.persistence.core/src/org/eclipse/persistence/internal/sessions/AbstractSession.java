@@ -130,6 +130,7 @@
 import org.eclipse.persistence.sessions.coordination.CommandProcessor;
 import org.eclipse.persistence.sessions.coordination.MetadataRefreshListener;
 import org.eclipse.persistence.sessions.serializers.Serializer;
+import org.eclipse.persistence.tools.profiler.ConcurrentPerformanceMonitor;
 
 /**
  * Implementation of org.eclipse.persistence.sessions.Session
@@ -1435,6 +1436,25 @@ public void updateProfile(String operationName, Object value) {
         }
     }
 
+    /**
+     * INTERNAL:
+     * Updates the value of SessionProfiler state, such as a size.
+     * The value is not boxed for a ConcurrentPerformanceMonitor, other profilers are given
+     * an Integer, or a Long if it does not fit in an int.
+     */
+    public void updateProfile(String operationName, long value) {
+        if (this.isInProfile) {
+            SessionProfiler profiler = getProfiler();
+            if (profiler instanceof ConcurrentPerformanceMonitor) {
+                ((ConcurrentPerformanceMonitor)profiler).update(operationName, value);
+            } else if (value == (int)value) {
+                profiler.update(operationName, Integer.valueOf((int)value));
+            } else {
+                profiler.update(operationName, Long.valueOf(value));
+            }
+        }
+    }
+
     /**
      * INTERNAL:
      * Set the table per tenant. This should be called per client session after
@@ -2091,6 +2111,8 @@ public Object basicExecuteCall(Call call, AbstractRecord translationRow, Databas
         Object result = null;
         if (query.getAccessors().size() == 1) {
             result = query.getAccessor().executeCall(call, translationRow, this);
+        } else if (PartitionedCallExecutor.canExecuteInParallel(this, call, query)) {
+            result = new PartitionedCallExecutor(this, query).execute(call, translationRow);
         } else {
             RuntimeException exception = null;
             // Replication or partitioning may require execution on multiple connections.
@@ -36,6 +36,23 @@ public ArrayRecord(Vector fields, DatabaseField[] fieldsArray, Object[] valuesAr
         this.valuesArray = valuesArray;
     }
 
+    /**
+     * INTERNAL:
+     * Return the value at the index of the values array.
+     * Allows subclasses to store values other than in the values array.
+     */
+    protected Object getValueAt(int index) {
+        return this.valuesArray[index];
+    }
+
+    /**
+     * INTERNAL:
+     * Set the value at the index of the values array.
+     */
+    protected void setValueAt(int index, Object value) {
+        this.valuesArray[index] = value;
+    }
+
     /**
      * Reset the fields and values from the arrays.
      * This removes the optimization if a non-optimized method is called.
@@ -43,8 +60,8 @@ public ArrayRecord(Vector fields, DatabaseField[] fieldsArray, Object[] valuesAr
     protected void checkValues() {
         if (this.values == null) {
             this.values = new NonSynchronizedVector(this.valuesArray.length);
-            for (Object value : this.valuesArray) {
-                this.values.add(value);
+            for (int index = 0; index < this.valuesArray.length; index++) {
+                this.values.add(getValueAt(index));
             }
         }
     }
@@ -111,7 +128,8 @@ public boolean containsKey(DatabaseField key) {
      */
     public boolean containsValue(Object value) {
         if (this.valuesArray != null) {
-            for (Object rowValue : this.valuesArray) {
+            for (int index = 0; index < this.valuesArray.length; index++) {
+                Object rowValue = getValueAt(index);
                 if ((value == rowValue) || rowValue.equals(value)) {
                     return true;
                 }
@@ -133,7 +151,7 @@ public Object get(DatabaseField key) {
             if ((index >= 0) && (index < this.size)) {
                 DatabaseField field = this.fieldsArray[index];
                 if ((field == key) || field.equals(key)) {
-                    return this.valuesArray[index];
+                    return getValueAt(index);
                 }
             }
             for (int fieldIndex = 0; fieldIndex < this.size; fieldIndex++) {
@@ -143,7 +161,7 @@ public Object get(DatabaseField key) {
                     if (index == -1) {
                         key.setIndex(fieldIndex);
                     }
-                    return this.valuesArray[fieldIndex];
+                    return getValueAt(fieldIndex);
                 }
             }
             return null;
@@ -163,7 +181,7 @@ public Object getIndicatingNoEntry(DatabaseField key) {
             if ((index >= 0) && (index < this.size)) {
                 DatabaseField field = this.fieldsArray[index];
                 if ((field == key) || field.equals(key)) {
-                    return this.valuesArray[index];
+                    return getValueAt(index);
                 }
             }
             for (int fieldIndex = 0; fieldIndex < this.size; fieldIndex++) {
@@ -173,7 +191,7 @@ public Object getIndicatingNoEntry(DatabaseField key) {
                     if (index == -1) {
                         key.setIndex(fieldIndex);
                     }
-                    return this.valuesArray[fieldIndex];
+                    return getValueAt(fieldIndex);
                 }
             }
             return AbstractRecord.noEntry;
@@ -252,7 +270,7 @@ public Object remove(DatabaseField key) {
      */
     public void replaceAt(Object value, int index) {
         if (this.valuesArray != null) {
-            this.valuesArray[index] = value;
+            setValueAt(index, value);
         } else {
             super.replaceAt(value, index);
         }
@@ -269,7 +287,7 @@ public void replaceAt(Object value, DatabaseField key) {
             if ((index >= 0) && (index < this.size)) {
                 DatabaseField field = this.fieldsArray[index];
                 if ((field == key) || field.equals(key)) {
-                    this.valuesArray[index] = value;
+                    setValueAt(index, value);
                     return;
                 }
             }
@@ -280,7 +298,7 @@ public void replaceAt(Object value, DatabaseField key) {
                     if (index == -1) {
                         key.setIndex(fieldIndex);
                     }
-                    this.valuesArray[fieldIndex] = value;
+                    setValueAt(fieldIndex, value);
                     return;
                 }
             }
@@ -327,7 +345,7 @@ public String toString() {
                 writer.write("\t");
                 writer.write(String.valueOf(this.fieldsArray[index]));
                 writer.write(" => ");
-                writer.write(String.valueOf(this.valuesArray[index]));
+                writer.write(String.valueOf(getValueAt(index)));
             }
             if (this.sopObject != null) {
                 writer.write(Helper.cr());
@@ -0,0 +1,797 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.internal.sessions;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.internal.helper.CustomObjectInputStream;
+import org.eclipse.persistence.internal.identitymaps.CacheId;
+import org.eclipse.persistence.mappings.DatabaseMapping;
+import org.eclipse.persistence.sessions.coordination.MergeChangeSetCommand;
+import org.eclipse.persistence.sessions.coordination.ServiceId;
+
+/**
+ * INTERNAL:
+ * <p><b>Purpose</b>: Encode the change set of a {@link MergeChangeSetCommand} in a
+ * compact binary form for cache coordination.</p>
+ * <p>Classes and attributes are written as indexes into a schema built from the
+ * session's descriptors, sorted by class and attribute name, so all the nodes of a
+ * cluster sharing the same project use the same indexes. The schema's hash is written
+ * with each command and checked when it is read. Integral values are written as
+ * variable length integers, and only the identity and change records of each object
+ * change set are written, the same as with Java serialization.</p>
+ * <p>Direct, object reference, aggregate and unordered collection change records are
+ * supported. {@link #write(MergeChangeSetCommand, DataOutputStream)} returns false
+ * without writing anything for a change set with any other change record, or any class
+ * that is not in the schema, in which case Java serialization should be used.</p>
+ *
+ * @see org.eclipse.persistence.sessions.serializers.ChangeSetSerializer
+ */
+public class ChangeSetCodec {
+
+    protected static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** Value tags. */
+    protected static final int NULL = 0;
+    protected static final int STRING = 1;
+    protected static final int INTEGER = 2;
+    protected static final int LONG = 3;
+    protected static final int SHORT = 4;
+    protected static final int BYTE = 5;
+    protected static final int TRUE = 6;
+    protected static final int FALSE = 7;
+    protected static final int DOUBLE = 8;
+    protected static final int FLOAT = 9;
+    protected static final int CHARACTER = 10;
+    protected static final int BIG_DECIMAL = 11;
+    protected static final int BIG_INTEGER = 12;
+    protected static final int DATE = 13;
+    protected static final int SQL_DATE = 14;
+    protected static final int TIME = 15;
+    protected static final int TIMESTAMP = 16;
+    protected static final int BYTES = 17;
+    protected static final int ENUM = 18;
+    protected static final int CACHE_ID = 19;
+    protected static final int SERIALIZED = 20;
+
+    /** Change record tags, stored in the low bits of the attribute index. */
+    protected static final int DIRECT_RECORD = 0;
+    protected static final int OBJECT_REFERENCE_RECORD = 1;
+    protected static final int AGGREGATE_RECORD = 2;
+    protected static final int COLLECTION_RECORD = 3;
+    protected static final int RECORD_TAG_BITS = 2;
+
+    /** Object change set flags. */
+    protected static final int SHOULD_BE_DELETED = 1;
+    protected static final int IS_INVALID = 1 << 1;
+    protected static final int IS_NEW = 1 << 2;
+    protected static final int IS_AGGREGATE = 1 << 3;
+    protected static final int HAS_VERSION_CHANGE = 1 << 4;
+    protected static final int HAS_SHOULD_MODIFY_VERSION_FIELD = 1 << 5;
+    protected static final int SHOULD_MODIFY_VERSION_FIELD = 1 << 6;
+    protected static final int IS_COMPLETE = 1 << 7;
+
+    /** Unit of work change set flags. */
+    protected static final int HAS_CHANGES = 1;
+    protected static final int HAS_FORCED_CHANGES = 1 << 1;
+    protected static final int IS_FROM_OUTSIDE_UOW = 1 << 2;
+    protected static final int HAS_ALL_CHANGE_SETS = 1 << 3;
+    protected static final int HAS_DELETED_OBJECTS = 1 << 4;
+
+    /** Collection change record flags. */
+    protected static final int IS_DEFERRED = 1;
+    protected static final int ORDER_HAS_BEEN_REPAIRED = 1 << 1;
+
+    /** The class names of the descriptors, in index order. */
+    protected final String[] classNames;
+    protected final Map<String, Integer> classIndexes;
+
+    /** The attribute names of the mappings of each descriptor, in index order. */
+    protected final String[][] attributeNames;
+    protected final List<Map<String, Integer>> attributeIndexes;
+
+    protected final int schemaHash;
+
+    public ChangeSetCodec(AbstractSession session) {
+        TreeSet<String> sortedClassNames = new TreeSet<String>();
+        Map<String, ClassDescriptor> descriptors = new HashMap<String, ClassDescriptor>();
+        for (ClassDescriptor descriptor : session.getDescriptors().values()) {
+            String className = descriptor.getJavaClassName();
+            if ((className != null) && sortedClassNames.add(className)) {
+                descriptors.put(className, descriptor);
+            }
+        }
+        int size = sortedClassNames.size();
+        this.classNames = sortedClassNames.toArray(new String[size]);
+        this.classIndexes = new HashMap<String, Integer>(size * 2);
+        this.attributeNames = new String[size][];
+        this.attributeIndexes = new ArrayList<Map<String, Integer>>(size);
+        int hash = 1;
+        for (int index = 0; index < size; index++) {
+            String className = this.classNames[index];
+            this.classIndexes.put(className, index);
+            hash = (31 * hash) + className.hashCode();
+            TreeSet<String> sortedAttributeNames = new TreeSet<String>();
+            for (DatabaseMapping mapping : descriptors.get(className).getMappings()) {
+                if (mapping.getAttributeName() != null) {
+                    sortedAttributeNames.add(mapping.getAttributeName());
+                }
+            }
+            String[] names = sortedAttributeNames.toArray(new String[sortedAttributeNames.size()]);
+            Map<String, Integer> indexes = new HashMap<String, Integer>(names.length * 2);
+            for (int attributeIndex = 0; attributeIndex < names.length; attributeIndex++) {
+                indexes.put(names[attributeIndex], attributeIndex);
+                hash = (31 * hash) + names[attributeIndex].hashCode();
+            }
+            this.attributeNames[index] = names;
+            this.attributeIndexes.add(indexes);
+        }
+        this.schemaHash = hash;
+    }
+
+    /**
+     * Return the hash of the class and attribute names the indexes refer to.
+     */
+    public int getSchemaHash() {
+        return this.schemaHash;
+    }
+
+    /**
+     * Write the command. Return false without writing anything if its change set
+     * cannot be encoded.
+     */
+    public boolean write(MergeChangeSetCommand command, DataOutputStream out) throws IOException {
+        UnitOfWorkChangeSet changeSet = command.getChangeSet(null);
+        if ((changeSet == null) || !isEmpty(changeSet.objectChanges) || !isEmpty(changeSet.newObjectChangeSets)
+                || !isEmpty(changeSet.aggregateChangeSets) || !isEmpty(changeSet.cloneToObjectChangeSet)
+                || !isEmpty(changeSet.objectChangeSetToUOWClone)) {
+            return false;
+        }
+        // Collect all the referenced change sets first, so each is written once and referenced by index.
+        List<ObjectChangeSet> objectChangeSets = new ArrayList<ObjectChangeSet>();
+        Map<ObjectChangeSet, Integer> objectChangeSetIndexes = new IdentityHashMap<ObjectChangeSet, Integer>();
+        if (changeSet.allChangeSets != null) {
+            for (ObjectChangeSet objectChangeSet : changeSet.allChangeSets.keySet()) {
+                collect(objectChangeSet, objectChangeSets, objectChangeSetIndexes);
+            }
+        }
+        if (changeSet.deletedObjects != null) {
+            for (ObjectChangeSet objectChangeSet : changeSet.deletedObjects.keySet()) {
+                collect(objectChangeSet, objectChangeSets, objectChangeSetIndexes);
+            }
+        }
+        for (int index = 0; index < objectChangeSets.size(); index++) {
+            ObjectChangeSet objectChangeSet = objectChangeSets.get(index);
+            Class changeSetClass = objectChangeSet.getClass();
+            if (((changeSetClass != ObjectChangeSet.class) && (changeSetClass != AggregateObjectChangeSet.class))
+                    || !this.classIndexes.containsKey(objectChangeSet.className)) {
+                return false;
+            }
+            if (isComplete(objectChangeSet)) {
+                objectChangeSet.ensureChanges();
+                if (!collectReferences(objectChangeSet, objectChangeSets, objectChangeSetIndexes)) {
+                    return false;
+                }
+            }
+        }
+
+        out.writeInt(this.schemaHash);
+        ServiceId serviceId = command.getServiceId();
+        if (serviceId == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            writeString(serviceId.getChannel(), out);
+            writeString(serviceId.getId(), out);
+            writeString(serviceId.getURL(), out);
+        }
+        Map<String, Integer> names = new HashMap<String, Integer>();
+        // The classes of all the change sets come first, as change sets may reference the ones that follow.
+        // The low bit tells if the change set is an aggregate object change set.
+        writeVarInt(objectChangeSets.size(), out);
+        for (ObjectChangeSet objectChangeSet : objectChangeSets) {
+            int classIndex = this.classIndexes.get(objectChangeSet.className);
+            writeVarInt((classIndex << 1) | ((objectChangeSet.getClass() == AggregateObjectChangeSet.class) ? 1 : 0), out);
+        }
+        for (ObjectChangeSet objectChangeSet : objectChangeSets) {
+            writeObjectChangeSet(objectChangeSet, objectChangeSetIndexes, names, out);
+        }
+        int flags = 0;
+        if (changeSet.hasChanges) {
+            flags |= HAS_CHANGES;
+        }
+        if (changeSet.hasForcedChanges) {
+            flags |= HAS_FORCED_CHANGES;
+        }
+        if (changeSet.isChangeSetFromOutsideUOW) {
+            flags |= IS_FROM_OUTSIDE_UOW;
+        }
+        if (changeSet.allChangeSets != null) {
+            flags |= HAS_ALL_CHANGE_SETS;
+        }
+        if (changeSet.deletedObjects != null) {
+            flags |= HAS_DELETED_OBJECTS;
+        }
+        out.writeByte(flags);
+        if (changeSet.allChangeSets != null) {
+            writeReferences(changeSet.allChangeSets.keySet(), objectChangeSetIndexes, out);
+        }
+        if (changeSet.deletedObjects != null) {
+            writeReferences(changeSet.deletedObjects.keySet(), objectChangeSetIndexes, out);
+        }
+        return true;
+    }
+
+    /**
+     * Read a command written by {@link #write(MergeChangeSetCommand, DataOutputStream)}.
+     */
+    public MergeChangeSetCommand read(DataInputStream in, AbstractSession session) throws IOException, ClassNotFoundException {
+        if (in.readInt() != this.schemaHash) {
+            throw new StreamCorruptedException("The change set was written for different descriptors.");
+        }
+        MergeChangeSetCommand command = new MergeChangeSetCommand();
+        if (in.readBoolean()) {
+            String channel = readString(in);
+            String id = readString(in);
+            String url = readString(in);
+            command.setServiceId(new ServiceId(channel, id, url));
+        }
+        int size = readVarInt(in);
+        ObjectChangeSet[] objectChangeSets = new ObjectChangeSet[size];
+        for (int index = 0; index < size; index++) {
+            int classIndex = readVarInt(in);
+            ObjectChangeSet objectChangeSet = ((classIndex & 1) == 0) ? new ObjectChangeSet() : new AggregateObjectChangeSet();
+            objectChangeSet.className = this.classNames[classIndex >>> 1];
+            objectChangeSets[index] = objectChangeSet;
+        }
+        List<String> names = new ArrayList<String>();
+        for (int index = 0; index < size; index++) {
+            readObjectChangeSet(objectChangeSets[index], objectChangeSets, names, in, session);
+        }
+        UnitOfWorkChangeSet changeSet = new UnitOfWorkChangeSet();
+        int flags = in.readUnsignedByte();
+        changeSet.hasChanges = (flags & HAS_CHANGES) != 0;
+        changeSet.hasForcedChanges = (flags & HAS_FORCED_CHANGES) != 0;
+        changeSet.isChangeSetFromOutsideUOW = (flags & IS_FROM_OUTSIDE_UOW) != 0;
+        if ((flags & HAS_ALL_CHANGE_SETS) != 0) {
+            changeSet.allChangeSets = readReferences(objectChangeSets, in);
+        }
+        if ((flags & HAS_DELETED_OBJECTS) != 0) {
+            changeSet.deletedObjects = readReferences(objectChangeSets, in);
+        }
+        command.setChangeSet(changeSet);
+        return command;
+    }
+
+    protected static boolean isEmpty(Map map) {
+        return (map == null) || map.isEmpty();
+    }
+
+    /**
+     * Return if the change records of the change set are sent, otherwise only its identity,
+     * the same as ObjectChangeSet.writeObject.
+     */
+    protected static boolean isComplete(ObjectChangeSet objectChangeSet) {
+        return !(objectChangeSet.shouldBeDeleted || (objectChangeSet.cacheSynchronizationType == ClassDescriptor.DO_NOT_SEND_CHANGES)
+                || (objectChangeSet.cacheSynchronizationType == ClassDescriptor.INVALIDATE_CHANGED_OBJECTS));
+    }
+
+    protected static void collect(ObjectChangeSet objectChangeSet, List<ObjectChangeSet> objectChangeSets, Map<ObjectChangeSet, Integer> indexes) {
+        if ((objectChangeSet != null) && !indexes.containsKey(objectChangeSet)) {
+            indexes.put(objectChangeSet, objectChangeSets.size());
+            objectChangeSets.add(objectChangeSet);
+        }
+    }
+
+    /**
+     * Collect the change sets referenced by the change records. Return false if any
+     * change record or attribute cannot be encoded.
+     */
+    protected boolean collectReferences(ObjectChangeSet objectChangeSet, List<ObjectChangeSet> objectChangeSets, Map<ObjectChangeSet, Integer> indexes) {
+        if (objectChangeSet.changes == null) {
+            return true;
+        }
+        Map<String, Integer> attributes = this.attributeIndexes.get(this.classIndexes.get(objectChangeSet.className));
+        for (Object change : objectChangeSet.changes) {
+            ChangeRecord record = (ChangeRecord)change;
+            if (!attributes.containsKey(record.getAttribute())) {
+                return false;
+            }
+            Class recordClass = record.getClass();
+            if (recordClass == DirectToFieldChangeRecord.class) {
+                continue;
+            } else if (recordClass == ObjectReferenceChangeRecord.class) {
+                collect(((ObjectReferenceChangeRecord)record).newValue, objectChangeSets, indexes);
+            } else if (recordClass == AggregateChangeRecord.class) {
+                collect((ObjectChangeSet)((AggregateChangeRecord)record).changedObject, objectChangeSets, indexes);
+            } else if (recordClass == CollectionChangeRecord.class) {
+                CollectionChangeRecord collectionRecord = (CollectionChangeRecord)record;
+                if ((collectionRecord.orderedAddObjects != null && !collectionRecord.orderedAddObjects.isEmpty())
+                        || !isEmpty(collectionRecord.orderedAddObjectIndices)
+                        || (collectionRecord.orderedChangeObjectList != null && !collectionRecord.orderedChangeObjectList.isEmpty())
+                        || !isEmpty(collectionRecord.orderedRemoveObjects)) {
+                    return false;
+                }
+                if (collectionRecord.addObjectList != null) {
+                    for (ObjectChangeSet added : collectionRecord.addObjectList.keySet()) {
+                        collect(added, objectChangeSets, indexes);
+                    }
+                }
+                if (collectionRecord.removeObjectList != null) {
+                    for (ObjectChangeSet removed : collectionRecord.removeObjectList.keySet()) {
+                        collect(removed, objectChangeSets, indexes);
+                    }
+                }
+            } else {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    protected void writeObjectChangeSet(ObjectChangeSet objectChangeSet, Map<ObjectChangeSet, Integer> indexes, Map<String, Integer> names, DataOutputStream out) throws IOException {
+        int classIndex = this.classIndexes.get(objectChangeSet.className);
+        boolean isComplete = isComplete(objectChangeSet);
+        int flags = 0;
+        if (objectChangeSet.shouldBeDeleted) {
+            flags |= SHOULD_BE_DELETED;
+        }
+        if (objectChangeSet.isInvalid) {
+            flags |= IS_INVALID;
+        }
+        if (objectChangeSet.isNew) {
+            flags |= IS_NEW;
+        }
+        if (objectChangeSet.isAggregate) {
+            flags |= IS_AGGREGATE;
+        }
+        if (objectChangeSet.hasVersionChange) {
+            flags |= HAS_VERSION_CHANGE;
+        }
+        if (objectChangeSet.shouldModifyVersionField != null) {
+            flags |= HAS_SHOULD_MODIFY_VERSION_FIELD;
+            if (objectChangeSet.shouldModifyVersionField.booleanValue()) {
+                flags |= SHOULD_MODIFY_VERSION_FIELD;
+            }
+        }
+        if (isComplete) {
+            flags |= IS_COMPLETE;
+        }
+        out.writeByte(flags);
+        out.writeByte(objectChangeSet.cacheSynchronizationType);
+        writeValue(objectChangeSet.id, names, out);
+        writeValue(objectChangeSet.writeLockValue, names, out);
+        writeValue(objectChangeSet.initialWriteLockValue, names, out);
+        if (!isComplete) {
+            return;
+        }
+        Map<String, Integer> attributes = this.attributeIndexes.get(classIndex);
+        List changes = objectChangeSet.changes;
+        if (changes == null) {
+            writeVarInt(0, out);
+        } else {
+            writeVarInt(changes.size() + 1, out);
+            for (Object change : changes) {
+                ChangeRecord record = (ChangeRecord)change;
+                int attributeIndex = attributes.get(record.getAttribute()) << RECORD_TAG_BITS;
+                Class recordClass = record.getClass();
+                if (recordClass == DirectToFieldChangeRecord.class) {
+                    writeVarInt(attributeIndex | DIRECT_RECORD, out);
+                    writeValue(((DirectToFieldChangeRecord)record).newValue, names, out);
+                } else if (recordClass == ObjectReferenceChangeRecord.class) {
+                    writeVarInt(attributeIndex | OBJECT_REFERENCE_RECORD, out);
+                    writeReference(((ObjectReferenceChangeRecord)record).newValue, indexes, out);
+                } else if (recordClass == AggregateChangeRecord.class) {
+                    writeVarInt(attributeIndex | AGGREGATE_RECORD, out);
+                    writeReference((ObjectChangeSet)((AggregateChangeRecord)record).changedObject, indexes, out);
+                } else {
+                    CollectionChangeRecord collectionRecord = (CollectionChangeRecord)record;
+                    writeVarInt(attributeIndex | COLLECTION_RECORD, out);
+                    int recordFlags = 0;
+                    if (collectionRecord.isDeferred) {
+                        recordFlags |= IS_DEFERRED;
+                    }
+                    if (collectionRecord.orderHasBeenRepaired) {
+                        recordFlags |= ORDER_HAS_BEEN_REPAIRED;
+                    }
+                    out.writeByte(recordFlags);
+                    writeOptionalReferences(collectionRecord.addObjectList, indexes, out);
+                    writeOptionalReferences(collectionRecord.removeObjectList, indexes, out);
+                }
+            }
+        }
+        writeValue(objectChangeSet.oldKey, names, out);
+        writeValue(objectChangeSet.newKey, names, out);
+        writeValue(objectChangeSet.protectedForeignKeys, names, out);
+    }
+
+    protected void readObjectChangeSet(ObjectChangeSet objectChangeSet, ObjectChangeSet[] objectChangeSets, List<String> names, DataInputStream in, AbstractSession session) throws IOException, ClassNotFoundException {
+        int flags = in.readUnsignedByte();
+        objectChangeSet.shouldBeDeleted = (flags & SHOULD_BE_DELETED) != 0;
+        objectChangeSet.isInvalid = (flags & IS_INVALID) != 0;
+        objectChangeSet.isNew = (flags & IS_NEW) != 0;
+        objectChangeSet.isAggregate = (flags & IS_AGGREGATE) != 0;
+        objectChangeSet.hasVersionChange = (flags & HAS_VERSION_CHANGE) != 0;
+        if ((flags & HAS_SHOULD_MODIFY_VERSION_FIELD) != 0) {
+            objectChangeSet.shouldModifyVersionField = Boolean.valueOf((flags & SHOULD_MODIFY_VERSION_FIELD) != 0);
+        }
+        objectChangeSet.cacheSynchronizationType = in.readUnsignedByte();
+        objectChangeSet.id = readValue(names, in, session);
+        objectChangeSet.writeLockValue = readValue(names, in, session);
+        objectChangeSet.initialWriteLockValue = readValue(names, in, session);
+        if ((flags & IS_COMPLETE) == 0) {
+            return;
+        }
+        String[] attributes = this.attributeNames[this.classIndexes.get(objectChangeSet.className)];
+        int size = readVarInt(in) - 1;
+        if (size >= 0) {
+            List changes = new ArrayList(size);
+            for (int index = 0; index < size; index++) {
+                int attributeIndex = readVarInt(in);
+                String attribute = attributes[attributeIndex >>> RECORD_TAG_BITS];
+                ChangeRecord record;
+                switch (attributeIndex & ((1 << RECORD_TAG_BITS) - 1)) {
+                    case DIRECT_RECORD:
+                        DirectToFieldChangeRecord directRecord = new DirectToFieldChangeRecord();
+                        directRecord.newValue = readValue(names, in, session);
+                        record = directRecord;
+                        break;
+                    case OBJECT_REFERENCE_RECORD:
+                        ObjectReferenceChangeRecord referenceRecord = new ObjectReferenceChangeRecord();
+                        referenceRecord.newValue = readReference(objectChangeSets, in);
+                        record = referenceRecord;
+                        break;
+                    case AGGREGATE_RECORD:
+                        AggregateChangeRecord aggregateRecord = new AggregateChangeRecord();
+                        aggregateRecord.changedObject = readReference(objectChangeSets, in);
+                        record = aggregateRecord;
+                        break;
+                    default:
+                        CollectionChangeRecord collectionRecord = new CollectionChangeRecord();
+                        int recordFlags = in.readUnsignedByte();
+                        collectionRecord.isDeferred = (recordFlags & IS_DEFERRED) != 0;
+                        collectionRecord.orderHasBeenRepaired = (recordFlags & ORDER_HAS_BEEN_REPAIRED) != 0;
+                        collectionRecord.addObjectList = readOptionalReferences(objectChangeSets, in);
+                        collectionRecord.removeObjectList = readOptionalReferences(objectChangeSets, in);
+                        record = collectionRecord;
+                }
+                record.attribute = attribute;
+                record.owner = objectChangeSet;
+                changes.add(record);
+            }
+            objectChangeSet.changes = changes;
+        }
+        objectChangeSet.oldKey = readValue(names, in, session);
+        objectChangeSet.newKey = readValue(names, in, session);
+        objectChangeSet.protectedForeignKeys = (AbstractRecord)readValue(names, in, session);
+    }
+
+    protected static void writeReference(ObjectChangeSet objectChangeSet, Map<ObjectChangeSet, Integer> indexes, DataOutputStream out) throws IOException {
+        writeVarInt((objectChangeSet == null) ? 0 : (indexes.get(objectChangeSet) + 1), out);
+    }
+
+    protected static ObjectChangeSet readReference(ObjectChangeSet[] objectChangeSets, DataInputStream in) throws IOException {
+        int index = readVarInt(in);
+        return (index == 0) ? null : objectChangeSets[index - 1];
+    }
+
+    protected static void writeReferences(Collection<ObjectChangeSet> references, Map<ObjectChangeSet, Integer> indexes, DataOutputStream out) throws IOException {
+        writeVarInt(references.size(), out);
+        for (ObjectChangeSet reference : references) {
+            writeReference(reference, indexes, out);
+        }
+    }
+
+    protected static Map<ObjectChangeSet, ObjectChangeSet> readReferences(ObjectChangeSet[] objectChangeSets, DataInputStream in) throws IOException {
+        int size = readVarInt(in);
+        Map<ObjectChangeSet, ObjectChangeSet> references = new IdentityHashMap<ObjectChangeSet, ObjectChangeSet>(size);
+        for (int index = 0; index < size; index++) {
+            ObjectChangeSet reference = readReference(objectChangeSets, in);
+            references.put(reference, reference);
+        }
+        return references;
+    }
+
+    /**
+     * Write a map of change sets that may be null, its size is written plus one.
+     */
+    protected static void writeOptionalReferences(Map<ObjectChangeSet, ObjectChangeSet> references, Map<ObjectChangeSet, Integer> indexes, DataOutputStream out) throws IOException {
+        if (references == null) {
+            writeVarInt(0, out);
+            return;
+        }
+        writeVarInt(references.size() + 1, out);
+        for (ObjectChangeSet reference : references.keySet()) {
+            writeReference(reference, indexes, out);
+        }
+    }
+
+    protected static Map<ObjectChangeSet, ObjectChangeSet> readOptionalReferences(ObjectChangeSet[] objectChangeSets, DataInputStream in) throws IOException {
+        int size = readVarInt(in) - 1;
+        if (size < 0) {
+            return null;
+        }
+        Map<ObjectChangeSet, ObjectChangeSet> references = new IdentityHashMap<ObjectChangeSet, ObjectChangeSet>(Math.max(size, 10));
+        for (int index = 0; index < size; index++) {
+            ObjectChangeSet reference = readReference(objectChangeSets, in);
+            references.put(reference, reference);
+        }
+        return references;
+    }
+
+    /**
+     * Write an attribute, key or lock value. Values of other types than the common
+     * basic types are written with Java serialization.
+     */
+    protected static void writeValue(Object value, Map<String, Integer> names, DataOutputStream out) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+            return;
+        }
+        Class valueClass = value.getClass();
+        if (valueClass == String.class) {
+            out.writeByte(STRING);
+            writeString((String)value, out);
+        } else if (valueClass == Integer.class) {
+            out.writeByte(INTEGER);
+            writeVarLong(((Integer)value).intValue(), out);
+        } else if (valueClass == Long.class) {
+            out.writeByte(LONG);
+            writeVarLong(((Long)value).longValue(), out);
+        } else if (valueClass == Short.class) {
+            out.writeByte(SHORT);
+            writeVarLong(((Short)value).shortValue(), out);
+        } else if (valueClass == Byte.class) {
+            out.writeByte(BYTE);
+            out.writeByte(((Byte)value).byteValue());
+        } else if (valueClass == Boolean.class) {
+            out.writeByte(((Boolean)value).booleanValue() ? TRUE : FALSE);
+        } else if (valueClass == Double.class) {
+            out.writeByte(DOUBLE);
+            out.writeDouble(((Double)value).doubleValue());
+        } else if (valueClass == Float.class) {
+            out.writeByte(FLOAT);
+            out.writeFloat(((Float)value).floatValue());
+        } else if (valueClass == Character.class) {
+            out.writeByte(CHARACTER);
+            out.writeChar(((Character)value).charValue());
+        } else if (valueClass == BigDecimal.class) {
+            out.writeByte(BIG_DECIMAL);
+            writeVarLong(((BigDecimal)value).scale(), out);
+            writeBytes(((BigDecimal)value).unscaledValue().toByteArray(), out);
+        } else if (valueClass == BigInteger.class) {
+            out.writeByte(BIG_INTEGER);
+            writeBytes(((BigInteger)value).toByteArray(), out);
+        } else if (valueClass == java.util.Date.class) {
+            out.writeByte(DATE);
+            writeVarLong(((java.util.Date)value).getTime(), out);
+        } else if (valueClass == java.sql.Date.class) {
+            out.writeByte(SQL_DATE);
+            writeVarLong(((java.sql.Date)value).getTime(), out);
+        } else if (valueClass == java.sql.Time.class) {
+            out.writeByte(TIME);
+            writeVarLong(((java.sql.Time)value).getTime(), out);
+        } else if (valueClass == java.sql.Timestamp.class) {
+            out.writeByte(TIMESTAMP);
+            writeVarLong(((java.sql.Timestamp)value).getTime(), out);
+            writeVarInt(((java.sql.Timestamp)value).getNanos(), out);
+        } else if (valueClass == byte[].class) {
+            out.writeByte(BYTES);
+            writeBytes((byte[])value, out);
+        } else if (value instanceof Enum) {
+            out.writeByte(ENUM);
+            writeName(((Enum)value).getDeclaringClass().getName(), names, out);
+            writeString(((Enum)value).name(), out);
+        } else if (valueClass == CacheId.class) {
+            out.writeByte(CACHE_ID);
+            Object[] primaryKey = ((CacheId)value).getPrimaryKey();
+            writeVarInt(primaryKey.length, out);
+            for (Object keyValue : primaryKey) {
+                writeValue(keyValue, names, out);
+            }
+        } else {
+            out.writeByte(SERIALIZED);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ObjectOutputStream objectOut = new ObjectOutputStream(bytes);
+            objectOut.writeObject(value);
+            objectOut.flush();
+            writeBytes(bytes.toByteArray(), out);
+        }
+    }
+
+    protected static Object readValue(List<String> names, DataInputStream in, AbstractSession session) throws IOException, ClassNotFoundException {
+        int tag = in.readUnsignedByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString(in);
+            case INTEGER:
+                return Integer.valueOf((int)readVarLong(in));
+            case LONG:
+                return Long.valueOf(readVarLong(in));
+            case SHORT:
+                return Short.valueOf((short)readVarLong(in));
+            case BYTE:
+                return Byte.valueOf(in.readByte());
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case DOUBLE:
+                return Double.valueOf(in.readDouble());
+            case FLOAT:
+                return Float.valueOf(in.readFloat());
+            case CHARACTER:
+                return Character.valueOf(in.readChar());
+            case BIG_DECIMAL:
+                int scale = (int)readVarLong(in);
+                return new BigDecimal(new BigInteger(readBytes(in)), scale);
+            case BIG_INTEGER:
+                return new BigInteger(readBytes(in));
+            case DATE:
+                return new java.util.Date(readVarLong(in));
+            case SQL_DATE:
+                return new java.sql.Date(readVarLong(in));
+            case TIME:
+                return new java.sql.Time(readVarLong(in));
+            case TIMESTAMP:
+                java.sql.Timestamp timestamp = new java.sql.Timestamp(readVarLong(in));
+                timestamp.setNanos(readVarInt(in));
+                return timestamp;
+            case BYTES:
+                return readBytes(in);
+            case ENUM:
+                Class enumClass = session.getDatasourcePlatform().getConversionManager().convertClassNameToClass(readName(names, in));
+                return Enum.valueOf(enumClass, readString(in));
+            case CACHE_ID:
+                Object[] primaryKey = new Object[readVarInt(in)];
+                for (int index = 0; index < primaryKey.length; index++) {
+                    primaryKey[index] = readValue(names, in, session);
+                }
+                return new CacheId(primaryKey);
+            case SERIALIZED:
+                ByteArrayInputStream bytes = new ByteArrayInputStream(readBytes(in));
+                ObjectInputStream objectIn = (session == null) ? new ObjectInputStream(bytes) : new CustomObjectInputStream(bytes, session);
+                try {
+                    return objectIn.readObject();
+                } finally {
+                    objectIn.close();
+                }
+            default:
+                throw new StreamCorruptedException("Unknown value tag " + tag);
+        }
+    }
+
+    /**
+     * Write a class name once per command, later occurrences are written as the index
+     * of the first one.
+     */
+    protected static void writeName(String name, Map<String, Integer> names, DataOutputStream out) throws IOException {
+        Integer index = names.get(name);
+        if (index != null) {
+            writeVarInt(index + 1, out);
+        } else {
+            names.put(name, names.size());
+            writeVarInt(0, out);
+            writeString(name, out);
+        }
+    }
+
+    protected static String readName(List<String> names, DataInputStream in) throws IOException {
+        int index = readVarInt(in);
+        if (index > 0) {
+            return names.get(index - 1);
+        }
+        String name = readString(in);
+        names.add(name);
+        return name;
+    }
+
+    protected static void writeString(String value, DataOutputStream out) throws IOException {
+        if (value == null) {
+            writeVarInt(0, out);
+            return;
+        }
+        byte[] bytes = value.getBytes(UTF8);
+        writeVarInt(bytes.length + 1, out);
+        out.write(bytes);
+    }
+
+    protected static String readString(DataInputStream in) throws IOException {
+        int length = readVarInt(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    protected static void writeBytes(byte[] bytes, DataOutputStream out) throws IOException {
+        writeVarInt(bytes.length, out);
+        out.write(bytes);
+    }
+
+    protected static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * Write a non negative int in 7 bit groups, the high bit of each byte is set
+     * if more bytes follow.
+     */
+    protected static void writeVarInt(int value, DataOutputStream out) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    protected static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new StreamCorruptedException("Invalid variable length int");
+    }
+
+    /**
+     * Write a signed long zig-zag encoded, so small negative values are also short.
+     */
+    protected static void writeVarLong(long value, DataOutputStream out) throws IOException {
+        long zigZag = (value << 1) ^ (value >> 63);
+        while ((zigZag & ~0x7FL) != 0) {
+            out.writeByte((int)((zigZag & 0x7F) | 0x80));
+            zigZag >>>= 7;
+        }
+        out.writeByte((int)zigZag);
+    }
+
+    protected static long readVarLong(DataInputStream in) throws IOException {
+        long zigZag = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            zigZag |= (long)(b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (zigZag >>> 1) ^ -(zigZag & 1);
+            }
+        }
+        throw new StreamCorruptedException("Invalid variable length long");
+    }
+}
@@ -33,6 +33,9 @@
 public class CommitOrderCalculator {
     protected int currentTime;
     protected Vector nodes;
+    /** PERF: Index the nodes by class and by descriptor, as nodeFor is called for every mapping. */
+    protected Map<Class, CommitOrderDependencyNode> nodesByClass;
+    protected Map<ClassDescriptor, CommitOrderDependencyNode> nodesByDescriptor;
     protected Vector orderedDescriptors;
     protected AbstractSession session;
 
@@ -40,11 +43,21 @@ public CommitOrderCalculator(AbstractSession session) {
         super();
         this.currentTime = 0;
         this.nodes = new Vector(1);
+        this.nodesByClass = new HashMap<Class, CommitOrderDependencyNode>();
+        this.nodesByDescriptor = new IdentityHashMap<ClassDescriptor, CommitOrderDependencyNode>();
         this.session = session;
     }
 
     protected void addNode(ClassDescriptor d) {
-        nodes.addElement(new CommitOrderDependencyNode(this, d, session));
+        CommitOrderDependencyNode node = new CommitOrderDependencyNode(this, d, session);
+        nodes.addElement(node);
+        // Keep the first node for a class or descriptor, as a search of the nodes would.
+        if (!nodesByClass.containsKey(d.getJavaClass())) {
+            nodesByClass.put(d.getJavaClass(), node);
+        }
+        if (!nodesByDescriptor.containsKey(d)) {
+            nodesByDescriptor.put(d, node);
+        }
     }
 
     public void addNodes(Vector descriptors) {
@@ -158,23 +171,11 @@ public Vector getOrderedDescriptors() {
     }
 
     public CommitOrderDependencyNode nodeFor(Class c) {
-        for (Enumeration e = nodes.elements(); e.hasMoreElements();) {
-            CommitOrderDependencyNode n = (CommitOrderDependencyNode)e.nextElement();
-            if (n.getDescriptor().getJavaClass() == c) {
-                return n;
-            }
-        }
-        return null;
+        return nodesByClass.get(c);
     }
 
     public CommitOrderDependencyNode nodeFor(ClassDescriptor d) {
-        for (Enumeration e = nodes.elements(); e.hasMoreElements();) {
-            CommitOrderDependencyNode n = (CommitOrderDependencyNode)e.nextElement();
-            if (n.getDescriptor() == d) {
-                return n;
-            }
-        }
-        return null;
+        return nodesByDescriptor.get(d);
     }
 
     /**
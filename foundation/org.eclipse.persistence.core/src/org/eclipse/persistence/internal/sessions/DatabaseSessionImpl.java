@@ -54,6 +54,7 @@
 import org.eclipse.persistence.internal.sequencing.Sequencing;
 import org.eclipse.persistence.internal.sequencing.SequencingFactory;
 import org.eclipse.persistence.internal.sequencing.SequencingHome;
+import org.eclipse.persistence.logging.AsynchronousSessionLog;
 import org.eclipse.persistence.logging.SessionLog;
 import org.eclipse.persistence.platform.database.DatabasePlatform;
 import org.eclipse.persistence.platform.database.OraclePlatform;
@@ -700,55 +701,22 @@ public void initializeDescriptors(Collection descriptors, boolean shouldInitiali
         }
 
         try {
-            // First initialize basic properties (things that do not depend on anything else)
-            Iterator iterator = descriptors.iterator();
-            while (iterator.hasNext()) {
-                ClassDescriptor descriptor = (ClassDescriptor)iterator.next();
-                try {
-                    AbstractSession session = getSessionForClass(descriptor.getJavaClass());
-                    if (descriptor.requiresInitialization(session)) {
-                        descriptor.preInitialize(session);
-                    } else if (descriptor.hasTablePerMultitenantPolicy()) {
-                        // If the descriptor doesn't require initialization and
-                        // has a table per tenant policy then add to the list
-                        // to be cloned and initialized per client session.
-                        addTablePerTenantDescriptor(descriptor);
-                    }
-
-                    //check if inheritance is involved in aggregate relationship, and let the parent know the child descriptor
-                    if (descriptor.isDescriptorTypeAggregate() && descriptor.isChildDescriptor()) {
-                        descriptor.initializeAggregateInheritancePolicy(session);
-                    }
-                } catch (RuntimeException exception) {
-                    getIntegrityChecker().handleError(exception);
+            if (getProject().shouldInitializeDescriptorsInParallel() && (descriptors.size() > 1)) {
+                new ParallelDescriptorInitializer(this, descriptors).initializeDescriptors();
+            } else {
+                // First initialize basic properties (things that do not depend on anything else)
+                for (Iterator iterator = descriptors.iterator(); iterator.hasNext();) {
+                    preInitializeDescriptor((ClassDescriptor)iterator.next());
                 }
-            }
 
-            // Second initialize basic mappings
-            iterator = descriptors.iterator();
-            while (iterator.hasNext()) {
-                ClassDescriptor descriptor = (ClassDescriptor)iterator.next();
-                try {
-                    AbstractSession session = getSessionForClass(descriptor.getJavaClass());
-                    if (descriptor.requiresInitialization(session)) {
-                        descriptor.initialize(session);
-                    }
-                } catch (RuntimeException exception) {
-                    getIntegrityChecker().handleError(exception);
+                // Second initialize basic mappings
+                for (Iterator iterator = descriptors.iterator(); iterator.hasNext();) {
+                    initializeDescriptor((ClassDescriptor)iterator.next());
                 }
-            }
 
-            // Third initialize child dependencies
-            iterator = descriptors.iterator();
-            while (iterator.hasNext()) {
-                ClassDescriptor descriptor = (ClassDescriptor)iterator.next();
-                try {
-                    AbstractSession session = getSessionForClass(descriptor.getJavaClass());
-                    if (descriptor.requiresInitialization(session)) {
-                        descriptor.postInitialize(session);
-                    }
-                } catch (RuntimeException exception) {
-                    getIntegrityChecker().handleError(exception);
+                // Third initialize child dependencies
+                for (Iterator iterator = descriptors.iterator(); iterator.hasNext();) {
+                    postInitializeDescriptor((ClassDescriptor)iterator.next());
                 }
             }
 
@@ -763,6 +731,64 @@ public void initializeDescriptors(Collection descriptors, boolean shouldInitiali
         getCommitManager().initializeCommitOrder();
     }
 
+    /**
+     * INTERNAL:
+     * Pre-initialize the descriptor, the first of the three initialization phases.
+     * Errors are handled by the integrity checker.
+     */
+    protected void preInitializeDescriptor(ClassDescriptor descriptor) {
+        try {
+            AbstractSession session = getSessionForClass(descriptor.getJavaClass());
+            if (descriptor.requiresInitialization(session)) {
+                descriptor.preInitialize(session);
+            } else if (descriptor.hasTablePerMultitenantPolicy()) {
+                // If the descriptor doesn't require initialization and
+                // has a table per tenant policy then add to the list
+                // to be cloned and initialized per client session.
+                addTablePerTenantDescriptor(descriptor);
+            }
+
+            //check if inheritance is involved in aggregate relationship, and let the parent know the child descriptor
+            if (descriptor.isDescriptorTypeAggregate() && descriptor.isChildDescriptor()) {
+                descriptor.initializeAggregateInheritancePolicy(session);
+            }
+        } catch (RuntimeException exception) {
+            getIntegrityChecker().handleError(exception);
+        }
+    }
+
+    /**
+     * INTERNAL:
+     * Initialize the descriptor's mappings, the second of the three initialization phases.
+     * Errors are handled by the integrity checker.
+     */
+    protected void initializeDescriptor(ClassDescriptor descriptor) {
+        try {
+            AbstractSession session = getSessionForClass(descriptor.getJavaClass());
+            if (descriptor.requiresInitialization(session)) {
+                descriptor.initialize(session);
+            }
+        } catch (RuntimeException exception) {
+            getIntegrityChecker().handleError(exception);
+        }
+    }
+
+    /**
+     * INTERNAL:
+     * Post-initialize the descriptor, the last of the three initialization phases.
+     * Errors are handled by the integrity checker.
+     */
+    protected void postInitializeDescriptor(ClassDescriptor descriptor) {
+        try {
+            AbstractSession session = getSessionForClass(descriptor.getJavaClass());
+            if (descriptor.requiresInitialization(session)) {
+                descriptor.postInitialize(session);
+            }
+        } catch (RuntimeException exception) {
+            getIntegrityChecker().handleError(exception);
+        }
+    }
+
     /**
      * INTERNAL:
      * Return if this session is a database session.
@@ -1002,7 +1028,10 @@ public void logout() throws DatabaseException {
             this.eventManager.postLogout(this);
         }
         log(SessionLog.INFO, SessionLog.CONNECTION, "logout_successful", this.getName());
-
+        // Write the buffered entries and stop the writer thread, it is started again on the next login.
+        if (this.sessionLog instanceof AsynchronousSessionLog) {
+            ((AsynchronousSessionLog)this.sessionLog).close();
+        }
     }
 
     /**
@@ -898,6 +898,15 @@ public void invalidateQueryCache(Class classThatChanged) {
         getIdentityMapManager().invalidateQueryCache(classThatChanged);
     }
 
+    /**
+     * INTERNAL:
+     * Invalidate/remove any results for the class from the query cache that could be affected by the changes.
+     * This is used to invalidate the query cache on commit or merge.
+     */
+    public void invalidateQueryCache(Class classThatChanged, UnitOfWorkChangeSet changeSet) {
+        getIdentityMapManager().invalidateQueryCache(classThatChanged, changeSet);
+    }
+
     /**
      * ADVANCED:
      * Set all of the objects from all identity maps to be invalid in the cache.
@@ -1072,7 +1081,17 @@ public Object putInIdentityMap(Object object, Object key, Object writeLockValue,
      * different parameter values access different caches.
      */
     public void putQueryResult(ReadQuery query, List parameters, Object results) {
-        getIdentityMapManager().putQueryResult(query, parameters, results);
+        putQueryResult(query, parameters, results, 0);
+    }
+
+    /**
+     * INTERNAL:
+     * Set the results for a query, with the time in nanoseconds the query took to build them.
+     * Query results are cached based on the parameter values provided to the query
+     * different parameter values access different caches.
+     */
+    public void putQueryResult(ReadQuery query, List parameters, Object results, long cost) {
+        getIdentityMapManager().putQueryResult(query, parameters, results, cost);
     }
 
     /**
@@ -536,6 +536,20 @@ public void invalidateQueryCache(Class classThatChanged) {
         }
     }
 
+    /**
+     * INTERNAL:
+     * Invalidate/remove any results for the class from the query cache that could be affected by the changes.
+     * This is used to invalidate the query cache on commit or merge.
+     */
+    @Override
+    public void invalidateQueryCache(Class classThatChanged, UnitOfWorkChangeSet changeSet) {
+        if (!session.getDescriptor(classThatChanged).getCachePolicy().isSharedIsolation()) {
+            getIdentityMapManager().invalidateQueryCache(classThatChanged, changeSet);
+        } else {
+            ((IsolatedClientSession)session).getParent().getIdentityMapAccessorInstance().invalidateQueryCache(classThatChanged, changeSet);
+        }
+    }
+
     /**
      * PUBLIC:
      * Reset the entire local object cache.
@@ -558,11 +572,11 @@ public void initializeIdentityMaps() {
      * different parameter values access different caches.
      */
     @Override
-    public void putQueryResult(ReadQuery query, List parameters, Object results) {
+    public void putQueryResult(ReadQuery query, List parameters, Object results, long cost) {
         if (((IsolatedClientSession)session).isIsolatedQuery(query)) {
-            getIdentityMapManager().putQueryResult(query, parameters, results);
+            getIdentityMapManager().putQueryResult(query, parameters, results, cost);
         } else {
-            ((IsolatedClientSession)session).getParent().getIdentityMapAccessorInstance().putQueryResult(query, parameters, results);
+            ((IsolatedClientSession)session).getParent().getIdentityMapAccessorInstance().putQueryResult(query, parameters, results, cost);
         }
     }
 
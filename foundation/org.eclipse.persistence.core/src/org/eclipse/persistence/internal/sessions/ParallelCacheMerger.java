@@ -0,0 +1,186 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.internal.sessions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.eclipse.persistence.descriptors.CachePolicy;
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.internal.descriptors.ObjectBuilder;
+import org.eclipse.persistence.internal.identitymaps.CacheKey;
+import org.eclipse.persistence.internal.security.PrivilegedAccessHelper;
+import org.eclipse.persistence.mappings.DatabaseMapping;
+import org.eclipse.persistence.sessions.changesets.ChangeRecord;
+
+/**
+ * INTERNAL:
+ * <p><b>Purpose</b>: Merge the changes of a unit of work into the shared cache
+ * in parallel on a fork-join pool, for the objects whose merge is independent of
+ * any other object.</p>
+ * <p>An existing object that only changed direct attributes is merged by setting
+ * the new values in its original and updating its cache key, the cache key having
+ * been locked for the commit. Such merges never lock, read or merge any other object,
+ * so they are run concurrently once the locks are acquired. The worker threads do not
+ * acquire or release any lock, the locks stay owned by the committing thread, also
+ * after a transition to deferred locks, and are released by it once all the merges
+ * have completed.</p>
+ * <p>The objects merged in parallel are recorded as merged first, any other object is
+ * then merged by the merge manager on the committing thread as usual. Objects of
+ * descriptors with event listeners, cache indexes, fetch groups or a cache isolation
+ * other than shared, and objects that are invalidated on merge, are always merged
+ * on the committing thread.</p>
+ *
+ * @see org.eclipse.persistence.sessions.Project#setShouldMergeChangesInParallel(boolean)
+ */
+public class ParallelCacheMerger {
+
+    /** The minimum number of objects to merge in parallel. */
+    public static final int MINIMUM_OBJECTS = 1000;
+
+    /** The number of objects merged by each task. */
+    protected static final int OBJECTS_PER_TASK = 128;
+
+    protected MergeManager mergeManager;
+    protected UnitOfWorkImpl unitOfWork;
+
+    protected List<ObjectChangeSet> changeSets;
+    protected List<ClassDescriptor> descriptors;
+    protected List<AbstractSession> targetSessions;
+
+    public ParallelCacheMerger(MergeManager mergeManager, UnitOfWorkImpl unitOfWork) {
+        this.mergeManager = mergeManager;
+        this.unitOfWork = unitOfWork;
+    }
+
+    /**
+     * Return if the changes of the unit of work can be merged in parallel.
+     */
+    public static boolean canMergeInParallel(UnitOfWorkImpl unitOfWork, MergeManager mergeManager, UnitOfWorkChangeSet changeSet) {
+        return unitOfWork.getProject().shouldMergeChangesInParallel() && !unitOfWork.isNestedUnitOfWork()
+                && mergeManager.shouldMergeWorkingCopyIntoOriginal() && (changeSet.getAllChangeSets().size() >= MINIMUM_OBJECTS)
+                && !PrivilegedAccessHelper.shouldUsePrivilegedAccess();
+    }
+
+    /**
+     * Merge the independent objects of the change set in parallel, and add their
+     * classes to the changed classes. Nothing is merged if there are too few.
+     */
+    public void mergeChanges(UnitOfWorkChangeSet changeSet, Set<Class> classesChanged) {
+        this.changeSets = new ArrayList<ObjectChangeSet>();
+        this.descriptors = new ArrayList<ClassDescriptor>();
+        this.targetSessions = new ArrayList<AbstractSession>();
+        for (Map<ObjectChangeSet, ObjectChangeSet> objectChangesList : changeSet.getObjectChanges().values()) {
+            for (ObjectChangeSet objectChangeSet : objectChangesList.values()) {
+                Object clone = objectChangeSet.getUnitOfWorkClone();
+                if (clone == null) {
+                    continue;
+                }
+                ClassDescriptor descriptor = this.unitOfWork.getDescriptor(clone.getClass());
+                AbstractSession targetSession = this.unitOfWork.getParentIdentityMapSession(descriptor, false, false);
+                if (canMerge(objectChangeSet, clone, descriptor, targetSession)) {
+                    this.changeSets.add(objectChangeSet);
+                    this.descriptors.add(descriptor);
+                    this.targetSessions.add(targetSession);
+                }
+            }
+        }
+        int size = this.changeSets.size();
+        if (size < MINIMUM_OBJECTS) {
+            return;
+        }
+        for (int index = 0; index < size; index++) {
+            Object clone = this.changeSets.get(index).getUnitOfWorkClone();
+            this.mergeManager.recordMerge(clone, clone, this.targetSessions.get(index));
+            classesChanged.add(clone.getClass());
+        }
+        // The system time is lazily initialized, so set it before the merges.
+        this.mergeManager.getSystemTime();
+        ForkJoinPool.commonPool().invoke(new MergeTask(0, size));
+    }
+
+    /**
+     * Return if the object can be merged independently of any other object.
+     */
+    protected boolean canMerge(ObjectChangeSet changeSet, Object clone, ClassDescriptor descriptor, AbstractSession targetSession) {
+        if (!changeSet.hasChanges() || changeSet.isNew() || (changeSet.getDescriptor() != descriptor)) {
+            return false;
+        }
+        CachePolicy cachePolicy = descriptor.getCachePolicy();
+        if (cachePolicy.shouldIsolateObjectsInUnitOfWork() || !cachePolicy.isSharedIsolation() || cachePolicy.hasCacheIndexes()
+                || descriptor.getFullyMergeEntity() || descriptor.hasFetchGroupManager() || descriptor.getEventManager().hasAnyEventListeners()) {
+            return false;
+        }
+        if (this.unitOfWork.isClassReadOnly(clone.getClass(), descriptor) || this.unitOfWork.isObjectDeleted(clone)
+                || this.mergeManager.isAlreadyMerged(clone, targetSession)) {
+            return false;
+        }
+        // The cache key must have been locked for the commit.
+        CacheKey cacheKey = changeSet.getActiveCacheKey();
+        if ((cacheKey == null) || !cacheKey.isAcquired() || (cacheKey.getObject() == null)
+                || changeSet.shouldInvalidateObject(cacheKey.getObject(), targetSession)) {
+            return false;
+        }
+        ObjectBuilder builder = descriptor.getObjectBuilder();
+        for (ChangeRecord record : changeSet.getChanges()) {
+            DatabaseMapping mapping = builder.getMappingForAttributeName(record.getAttribute());
+            if ((mapping == null) || !mapping.isAbstractDirectMapping()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Merge the object at the index into its original, as the merge manager does
+     * for an existing object with a locked cache key.
+     */
+    protected void merge(int index) {
+        ObjectChangeSet changeSet = this.changeSets.get(index);
+        ClassDescriptor descriptor = this.descriptors.get(index);
+        Object clone = changeSet.getUnitOfWorkClone();
+        CacheKey cacheKey = changeSet.getActiveCacheKey();
+        Object original = cacheKey.getObject();
+        descriptor.getObjectBuilder().mergeChangesIntoObject(original, changeSet, clone, this.mergeManager, this.targetSessions.get(index), false, false);
+        this.mergeManager.updateCacheKeyProperties(this.unitOfWork, cacheKey, original, clone, changeSet, descriptor);
+    }
+
+    /**
+     * Merges a range of the objects, splitting it while it is large.
+     */
+    protected class MergeTask extends RecursiveAction {
+        protected int start;
+        protected int end;
+
+        protected MergeTask(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if ((this.end - this.start) <= OBJECTS_PER_TASK) {
+                for (int index = this.start; index < this.end; index++) {
+                    merge(index);
+                }
+            } else {
+                int middle = (this.start + this.end) >>> 1;
+                invokeAll(new MergeTask(this.start, middle), new MergeTask(middle, this.end));
+            }
+        }
+    }
+}
@@ -0,0 +1,260 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.internal.sessions;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.descriptors.FetchGroupManager;
+import org.eclipse.persistence.descriptors.changetracking.DeferredChangeDetectionPolicy;
+import org.eclipse.persistence.internal.indirection.IndirectionPolicy;
+import org.eclipse.persistence.internal.security.PrivilegedAccessHelper;
+import org.eclipse.persistence.mappings.DatabaseMapping;
+import org.eclipse.persistence.mappings.ForeignReferenceMapping;
+import org.eclipse.persistence.queries.FetchGroup;
+
+/**
+ * INTERNAL:
+ * <p><b>Purpose</b>: Find the registered objects of a unit of work that have not
+ * changed, by comparing their clones to their backup clones in parallel on a
+ * fork-join pool.</p>
+ * <p>Computing an object's change set registers it in the unit of work change set
+ * and may create the change sets of the objects it references, so change sets are
+ * still computed sequentially, in the order of the registered objects. The parallel
+ * comparison only reads the clones and backup clones, and an object found unchanged
+ * is skipped in the sequential pass the same as an object that is not changed
+ * according to its change tracking policy. Any object that cannot be proven
+ * unchanged is left to the sequential pass.</p>
+ * <p>Only existing objects of descriptors using {@link DeferredChangeDetectionPolicy}
+ * are compared. Objects whose descriptors have derived ids or cascaded optimistic
+ * locking, or force updates, are left to the sequential pass as their change sets
+ * may be required even without changes. Nothing is compared in parallel if any of
+ * the descriptors has event listeners, as a listener may change other objects, or
+ * if the unit of work has optimistic read lock objects.</p>
+ *
+ * @see org.eclipse.persistence.sessions.Project#setShouldCalculateChangesInParallel(boolean)
+ */
+public class ParallelChangeCalculator {
+
+    /** The minimum number of registered objects for the comparison to be run in parallel. */
+    public static final int MINIMUM_OBJECTS = 1000;
+
+    /** The number of objects compared by each task. */
+    protected static final int OBJECTS_PER_TASK = 256;
+
+    protected UnitOfWorkImpl unitOfWork;
+    protected Object[] objects;
+    protected ClassDescriptor[] descriptors;
+
+    /** Set for the index of each object that has not changed. */
+    protected boolean[] unchangedObjects;
+
+    public ParallelChangeCalculator(UnitOfWorkImpl unitOfWork) {
+        this.unitOfWork = unitOfWork;
+    }
+
+    /**
+     * Return if the objects of the unit of work can be compared in parallel.
+     */
+    public static boolean canCalculateChangesInParallel(UnitOfWorkImpl unitOfWork, int size) {
+        return (size >= MINIMUM_OBJECTS) && unitOfWork.getProject().shouldCalculateChangesInParallel()
+                && !unitOfWork.isNestedUnitOfWork() && !unitOfWork.hasOptimisticReadLockObjects()
+                && !PrivilegedAccessHelper.shouldUsePrivilegedAccess();
+    }
+
+    /**
+     * Compare the objects in parallel. Return an array holding true at the index
+     * of each object that has not changed, in the iteration order of the objects,
+     * or null if the objects cannot be compared in parallel.
+     */
+    public boolean[] findUnchangedObjects(Collection objects) {
+        int size = objects.size();
+        this.objects = new Object[size];
+        this.descriptors = new ClassDescriptor[size];
+        Iterator iterator = objects.iterator();
+        for (int index = 0; index < size; index++) {
+            Object object = iterator.next();
+            ClassDescriptor descriptor = this.unitOfWork.getDescriptor(object);
+            if (descriptor.getEventManager().hasAnyEventListeners()) {
+                return null;
+            }
+            this.objects[index] = object;
+            this.descriptors[index] = descriptor;
+        }
+        this.unchangedObjects = new boolean[size];
+        ForkJoinPool.commonPool().invoke(new CompareTask(0, size));
+        return this.unchangedObjects;
+    }
+
+    /**
+     * Return if the object at the index can be compared in parallel.
+     */
+    protected boolean canCompare(int index) {
+        ClassDescriptor descriptor = this.descriptors[index];
+        return (descriptor.getObjectChangePolicy().getClass() == DeferredChangeDetectionPolicy.class)
+                && !descriptor.hasDerivedId()
+                && !(descriptor.usesOptimisticLocking() && descriptor.getOptimisticLockingPolicy().isCascaded())
+                && !((descriptor.getCMPPolicy() != null) && descriptor.getCMPPolicy().getForceUpdate())
+                && !this.unitOfWork.isCloneNewObject(this.objects[index]);
+    }
+
+    /**
+     * Compare the object at the index to its backup clone.
+     */
+    protected void compare(int index) {
+        if (!canCompare(index)) {
+            return;
+        }
+        Object clone = this.objects[index];
+        Object backup = this.unitOfWork.getCloneMapping().get(clone);
+        if ((backup == null) || (backup == clone)) {
+            return;
+        }
+        try {
+            // An invalid id is reported by the sequential pass.
+            ClassDescriptor descriptor = this.descriptors[index];
+            if (descriptor.getObjectBuilder().extractPrimaryKeyFromObject(clone, this.unitOfWork, true) == null) {
+                return;
+            }
+            this.unchangedObjects[index] = isUnchanged(clone, backup, descriptor);
+        } catch (RuntimeException exception) {
+            // Left to the sequential pass, which reports any error.
+        }
+    }
+
+    /**
+     * Return if none of the mapped attributes of the clone differ from the backup.
+     */
+    protected boolean isUnchanged(Object clone, Object backup, ClassDescriptor descriptor) {
+        FetchGroup fetchGroup = null;
+        FetchGroupManager fetchGroupManager = descriptor.getFetchGroupManager();
+        if (fetchGroupManager != null) {
+            fetchGroup = fetchGroupManager.getObjectFetchGroup(clone);
+        }
+        List<DatabaseMapping> mappings = descriptor.getMappings();
+        int size = mappings.size();
+        for (int index = 0; index < size; index++) {
+            DatabaseMapping mapping = mappings.get(index);
+            if (((fetchGroup == null) || fetchGroup.containsAttributeInternal(mapping.getAttributeName()))
+                    && !isUnchanged(mapping, clone, backup)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return if the attribute of the mapping has not changed. This must only
+     * return true if compareForChange would not record a change, and must not
+     * instantiate any indirection.
+     */
+    protected boolean isUnchanged(DatabaseMapping mapping, Object clone, Object backup) {
+        if (mapping.isAbstractDirectMapping()) {
+            return mapping.compareObjects(backup, clone, this.unitOfWork);
+        } else if (mapping.isOneToOneMapping()) {
+            IndirectionPolicy indirectionPolicy = ((ForeignReferenceMapping)mapping).getIndirectionPolicy();
+            Object cloneAttribute = mapping.getAttributeValueFromObject(clone);
+            Object backupAttribute = mapping.getAttributeValueFromObject(backup);
+            if ((cloneAttribute == null) && (backupAttribute == null)) {
+                return true;
+            }
+            if ((cloneAttribute != null) && !indirectionPolicy.objectIsInstantiated(cloneAttribute)) {
+                return true;
+            }
+            if ((backupAttribute != null) && !indirectionPolicy.objectIsInstantiated(backupAttribute)) {
+                return false;
+            }
+            Object cloneValue = (cloneAttribute == null) ? null : indirectionPolicy.getRealAttributeValueFromObject(clone, cloneAttribute);
+            Object backupValue = (backupAttribute == null) ? null : indirectionPolicy.getRealAttributeValueFromObject(backup, backupAttribute);
+            return cloneValue == backupValue;
+        } else if (mapping.isOneToManyMapping() || mapping.isManyToManyMapping()) {
+            IndirectionPolicy indirectionPolicy = ((ForeignReferenceMapping)mapping).getIndirectionPolicy();
+            Object cloneAttribute = mapping.getAttributeValueFromObject(clone);
+            if ((cloneAttribute != null) && !indirectionPolicy.objectIsInstantiated(cloneAttribute)) {
+                return true;
+            }
+            Object backupAttribute = mapping.getAttributeValueFromObject(backup);
+            if ((cloneAttribute == null) && (backupAttribute == null)) {
+                return true;
+            }
+            if ((cloneAttribute == null) || (backupAttribute == null) || !indirectionPolicy.objectIsInstantiated(backupAttribute)) {
+                return false;
+            }
+            Object cloneCollection = indirectionPolicy.getRealAttributeValueFromObject(clone, cloneAttribute);
+            Object backupCollection = indirectionPolicy.getRealAttributeValueFromObject(backup, backupAttribute);
+            // Maps may change their keys, only compare plain collections.
+            if ((cloneCollection == backupCollection) || !(cloneCollection instanceof Collection) || !(backupCollection instanceof Collection)) {
+                return false;
+            }
+            if (((Collection)cloneCollection).size() != ((Collection)backupCollection).size()) {
+                return false;
+            }
+            // The same objects in the same order, a set iterating in a different order is left to the sequential pass.
+            Iterator cloneObjects = ((Collection)cloneCollection).iterator();
+            Iterator backupObjects = ((Collection)backupCollection).iterator();
+            while (cloneObjects.hasNext()) {
+                if (!backupObjects.hasNext() || (cloneObjects.next() != backupObjects.next())) {
+                    return false;
+                }
+            }
+            return !backupObjects.hasNext();
+        } else if (mapping.isAggregateObjectMapping()) {
+            Object cloneAggregate = mapping.getAttributeValueFromObject(clone);
+            Object backupAggregate = mapping.getAttributeValueFromObject(backup);
+            if ((cloneAggregate == null) && (backupAggregate == null)) {
+                return true;
+            }
+            if ((cloneAggregate == null) || (backupAggregate == null) || (cloneAggregate == backupAggregate)) {
+                return false;
+            }
+            ClassDescriptor aggregateDescriptor = mapping.getReferenceDescriptor();
+            if ((cloneAggregate.getClass() != aggregateDescriptor.getJavaClass()) || (backupAggregate.getClass() != cloneAggregate.getClass())) {
+                return false;
+            }
+            return isUnchanged(cloneAggregate, backupAggregate, aggregateDescriptor);
+        } else if (mapping.isMultitenantPrimaryKeyMapping()) {
+            // Write only.
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Compares a range of the objects, splitting it while it is large.
+     */
+    protected class CompareTask extends RecursiveAction {
+        protected int start;
+        protected int end;
+
+        protected CompareTask(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if ((this.end - this.start) <= OBJECTS_PER_TASK) {
+                for (int index = this.start; index < this.end; index++) {
+                    compare(index);
+                }
+            } else {
+                int middle = (this.start + this.end) >>> 1;
+                invokeAll(new CompareTask(this.start, middle), new CompareTask(middle, this.end));
+            }
+        }
+    }
+}
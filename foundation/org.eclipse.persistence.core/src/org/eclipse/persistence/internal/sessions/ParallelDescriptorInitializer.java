@@ -0,0 +1,397 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.internal.sessions;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.internal.queries.ContainerPolicy;
+import org.eclipse.persistence.internal.queries.MappedKeyMapContainerPolicy;
+import org.eclipse.persistence.mappings.AggregateMapping;
+import org.eclipse.persistence.mappings.CollectionMapping;
+import org.eclipse.persistence.mappings.DatabaseMapping;
+import org.eclipse.persistence.mappings.ForeignReferenceMapping;
+
+/**
+ * INTERNAL:
+ * <p><b>Purpose</b>: Initialize a set of descriptors in parallel on a fork-join pool.</p>
+ * <p>Descriptors related through inheritance or an interface policy are put in
+ * the same group, a group is always processed by one task in the order of the
+ * descriptors collection, so parents are initialized as in the sequential case.
+ * A descriptor's initialization also reads and updates the descriptors its
+ * mappings reference (directly or through aggregates), so each task locks its
+ * own group and the groups it references. Locks are always acquired in group
+ * order, so tasks cannot deadlock.</p>
+ * <p>As for the sequential initialization, each of the pre-initialize,
+ * initialize and post-initialize phases completes for all the descriptors
+ * before the next one starts. Cache isolation is propagated to referencing
+ * descriptors in post-initialize, so that phase is sequential if any of the
+ * descriptors is not using a shared cache. Initialization is sequential if the
+ * integrity checker checks the database, or for table per tenant descriptors and
+ * session brokers which update the session during initialization.</p>
+ *
+ * @see org.eclipse.persistence.sessions.Project#setShouldInitializeDescriptorsInParallel(boolean)
+ */
+public class ParallelDescriptorInitializer {
+    protected DatabaseSessionImpl session;
+    protected Collection<ClassDescriptor> descriptors;
+
+    /** The group of each descriptor, includes referenced descriptors not being initialized. */
+    protected Map<ClassDescriptor, Group> groups;
+    /** The groups with descriptors being initialized, in the order of the descriptors collection. */
+    protected List<Group> initializedGroups;
+
+    public ParallelDescriptorInitializer(DatabaseSessionImpl session, Collection<ClassDescriptor> descriptors) {
+        this.session = session;
+        this.descriptors = descriptors;
+    }
+
+    /**
+     * Run the three initialization phases on the descriptors.
+     * Errors are handled by the session's integrity checker.
+     */
+    public void initializeDescriptors() {
+        if (!canInitializeInParallel()) {
+            for (ClassDescriptor descriptor : this.descriptors) {
+                this.session.preInitializeDescriptor(descriptor);
+            }
+            for (ClassDescriptor descriptor : this.descriptors) {
+                this.session.initializeDescriptor(descriptor);
+            }
+            for (ClassDescriptor descriptor : this.descriptors) {
+                this.session.postInitializeDescriptor(descriptor);
+            }
+            return;
+        }
+        buildGroups();
+        // The errors of all the tasks are collected in the same list, it must exist before the tasks start.
+        this.session.getIntegrityChecker().getCaughtExceptions();
+
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors(),
+                new WorkerThreadFactory(Thread.currentThread().getContextClassLoader()), null, false);
+        try {
+            runPhase(pool, Phase.PRE_INITIALIZE);
+            runPhase(pool, Phase.INITIALIZE);
+            if (usesSharedCacheIsolation()) {
+                runPhase(pool, Phase.POST_INITIALIZE);
+            } else {
+                for (ClassDescriptor descriptor : this.descriptors) {
+                    this.session.postInitializeDescriptor(descriptor);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Return if the descriptors can be initialized in parallel.
+     */
+    protected boolean canInitializeInParallel() {
+        if (this.session.isBroker() || this.session.hasBroker() || this.session.getIntegrityChecker().shouldCheckDatabase()) {
+            return false;
+        }
+        for (ClassDescriptor descriptor : this.descriptors) {
+            if (descriptor.hasTablePerMultitenantPolicy()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return if all the descriptors use a shared cache after they are initialized.
+     */
+    protected boolean usesSharedCacheIsolation() {
+        for (ClassDescriptor descriptor : this.descriptors) {
+            if (!descriptor.getCachePolicy().isSharedIsolation()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Group the descriptors by inheritance and interface policies,
+     * then collect the groups each group must lock.
+     */
+    protected void buildGroups() {
+        this.groups = new IdentityHashMap<ClassDescriptor, Group>();
+        Map<ClassDescriptor, List<ClassDescriptor>> references = new IdentityHashMap<ClassDescriptor, List<ClassDescriptor>>();
+        for (ClassDescriptor descriptor : this.descriptors) {
+            addToGroup(descriptor);
+        }
+        // Referenced descriptors that are not being initialized are still updated, so they are locked too.
+        for (ClassDescriptor descriptor : this.descriptors) {
+            List<ClassDescriptor> referencedDescriptors = new ArrayList<ClassDescriptor>();
+            addReferencedDescriptors(descriptor, referencedDescriptors, new IdentityHashMap<ClassDescriptor, ClassDescriptor>());
+            for (ClassDescriptor referencedDescriptor : referencedDescriptors) {
+                addToGroup(referencedDescriptor);
+            }
+            references.put(descriptor, referencedDescriptors);
+        }
+        List<Group> allGroups = new ArrayList<Group>();
+        for (Map.Entry<ClassDescriptor, Group> entry : this.groups.entrySet()) {
+            Group group = entry.getValue().getRoot();
+            entry.setValue(group);
+            if (group.index < 0) {
+                group.index = allGroups.size();
+                allGroups.add(group);
+            }
+        }
+        this.initializedGroups = new ArrayList<Group>();
+        for (ClassDescriptor descriptor : this.descriptors) {
+            Group group = this.groups.get(descriptor);
+            if (group.descriptors.isEmpty()) {
+                this.initializedGroups.add(group);
+            }
+            group.descriptors.add(descriptor);
+        }
+        for (Group group : this.initializedGroups) {
+            boolean[] locked = new boolean[allGroups.size()];
+            int size = 1;
+            locked[group.index] = true;
+            for (ClassDescriptor descriptor : group.descriptors) {
+                for (ClassDescriptor referencedDescriptor : references.get(descriptor)) {
+                    int index = this.groups.get(referencedDescriptor).index;
+                    if (!locked[index]) {
+                        locked[index] = true;
+                        size++;
+                    }
+                }
+            }
+            group.locks = new ReentrantLock[size];
+            for (int index = 0, lockIndex = 0; index < locked.length; index++) {
+                if (locked[index]) {
+                    group.locks[lockIndex++] = allGroups.get(index).lock;
+                }
+            }
+        }
+    }
+
+    /**
+     * Add the descriptor to its group, merging it with the groups of its
+     * inheritance parent and the descriptors of its interface policy.
+     */
+    protected Group addToGroup(ClassDescriptor descriptor) {
+        Group group = this.groups.get(descriptor);
+        if (group != null) {
+            return group.getRoot();
+        }
+        group = new Group();
+        this.groups.put(descriptor, group);
+        if (descriptor.hasInheritance() && (descriptor.getInheritancePolicy().getParentClass() != null)) {
+            ClassDescriptor parent = getDescriptor(descriptor.getInheritancePolicy().getParentClass());
+            if (parent != null) {
+                group = group.merge(addToGroup(parent));
+            }
+        }
+        if (descriptor.hasInterfacePolicy()) {
+            for (Class parentInterface : descriptor.getInterfacePolicy().getParentInterfaces()) {
+                ClassDescriptor parent = getDescriptor(parentInterface);
+                if (parent != null) {
+                    group = group.merge(addToGroup(parent));
+                }
+            }
+            for (ClassDescriptor child : descriptor.getInterfacePolicy().getChildDescriptors()) {
+                group = group.merge(addToGroup(child));
+            }
+        }
+        return group;
+    }
+
+    /**
+     * Add the descriptors referenced by the descriptor's mappings, following
+     * aggregates as their copies are initialized with the descriptor.
+     */
+    protected void addReferencedDescriptors(ClassDescriptor descriptor, List<ClassDescriptor> referencedDescriptors, Map<ClassDescriptor, ClassDescriptor> visited) {
+        if (visited.put(descriptor, descriptor) != null) {
+            return;
+        }
+        for (DatabaseMapping mapping : descriptor.getMappings()) {
+            addReferencedDescriptor(mapping, referencedDescriptors, visited);
+            if (mapping.isCollectionMapping()) {
+                ContainerPolicy containerPolicy = ((CollectionMapping)mapping).getContainerPolicy();
+                if ((containerPolicy != null) && containerPolicy.isMappedKeyMapPolicy()) {
+                    Object keyMapping = ((MappedKeyMapContainerPolicy)containerPolicy).getKeyMapping();
+                    if (keyMapping instanceof DatabaseMapping) {
+                        addReferencedDescriptor((DatabaseMapping)keyMapping, referencedDescriptors, visited);
+                    }
+                }
+            }
+        }
+    }
+
+    protected void addReferencedDescriptor(DatabaseMapping mapping, List<ClassDescriptor> referencedDescriptors, Map<ClassDescriptor, ClassDescriptor> visited) {
+        Class referenceClass = null;
+        if (mapping.isForeignReferenceMapping()) {
+            referenceClass = ((ForeignReferenceMapping)mapping).getReferenceClass();
+        } else if (mapping.isAggregateMapping()) {
+            referenceClass = ((AggregateMapping)mapping).getReferenceClass();
+        }
+        if (referenceClass == null) {
+            return;
+        }
+        ClassDescriptor referenceDescriptor = getDescriptor(referenceClass);
+        if (referenceDescriptor != null) {
+            referencedDescriptors.add(referenceDescriptor);
+            if (referenceDescriptor.isDescriptorTypeAggregate()) {
+                addReferencedDescriptors(referenceDescriptor, referencedDescriptors, visited);
+            }
+        }
+    }
+
+    /**
+     * Return the descriptor for the class from the session, this is only called before the tasks start.
+     */
+    protected ClassDescriptor getDescriptor(Class javaClass) {
+        return this.session.getDescriptor(javaClass);
+    }
+
+    /**
+     * Run one initialization phase over all the groups and wait for it to complete.
+     * The first error thrown by a task is rethrown.
+     */
+    protected void runPhase(ForkJoinPool pool, final Phase phase) {
+        List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(this.initializedGroups.size());
+        for (final Group group : this.initializedGroups) {
+            tasks.add(new Callable<Object>() {
+                @Override
+                public Object call() {
+                    group.lock();
+                    try {
+                        for (ClassDescriptor descriptor : group.descriptors) {
+                            phase.run(session, descriptor);
+                        }
+                    } finally {
+                        group.unlock();
+                    }
+                    return null;
+                }
+            });
+        }
+        List<Future<Object>> results = pool.invokeAll(tasks);
+        for (Future<Object> result : results) {
+            try {
+                result.get();
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(exception);
+            } catch (ExecutionException exception) {
+                Throwable cause = exception.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException)cause;
+                } else if (cause instanceof Error) {
+                    throw (Error)cause;
+                }
+                throw new RuntimeException(cause);
+            }
+        }
+    }
+
+    /**
+     * The initialization phases.
+     */
+    protected enum Phase {
+        PRE_INITIALIZE {
+            @Override
+            void run(DatabaseSessionImpl session, ClassDescriptor descriptor) {
+                session.preInitializeDescriptor(descriptor);
+            }
+        },
+        INITIALIZE {
+            @Override
+            void run(DatabaseSessionImpl session, ClassDescriptor descriptor) {
+                session.initializeDescriptor(descriptor);
+            }
+        },
+        POST_INITIALIZE {
+            @Override
+            void run(DatabaseSessionImpl session, ClassDescriptor descriptor) {
+                session.postInitializeDescriptor(descriptor);
+            }
+        };
+
+        abstract void run(DatabaseSessionImpl session, ClassDescriptor descriptor);
+    }
+
+    /**
+     * Descriptors that must be initialized by the same task,
+     * merged as a union-find structure while the groups are built.
+     */
+    protected static class Group {
+        protected Group parent;
+        protected int index = -1;
+        protected final List<ClassDescriptor> descriptors = new ArrayList<ClassDescriptor>();
+        protected final ReentrantLock lock = new ReentrantLock();
+        /** The locks of this group and the groups it references, in group order. */
+        protected ReentrantLock[] locks;
+
+        protected Group getRoot() {
+            Group root = this;
+            while (root.parent != null) {
+                root = root.parent;
+            }
+            return root;
+        }
+
+        protected Group merge(Group other) {
+            Group root = getRoot();
+            Group otherRoot = other.getRoot();
+            if (root != otherRoot) {
+                otherRoot.parent = root;
+            }
+            return root;
+        }
+
+        protected void lock() {
+            for (ReentrantLock groupLock : this.locks) {
+                groupLock.lock();
+            }
+        }
+
+        protected void unlock() {
+            for (int index = this.locks.length - 1; index >= 0; index--) {
+                this.locks[index].unlock();
+            }
+        }
+    }
+
+    /**
+     * Creates the pool's threads with the context class loader of the thread doing the login.
+     */
+    protected static class WorkerThreadFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+        protected final ClassLoader contextClassLoader;
+
+        protected WorkerThreadFactory(ClassLoader contextClassLoader) {
+            this.contextClassLoader = contextClassLoader;
+        }
+
+        @Override
+        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            ForkJoinWorkerThread thread = new ForkJoinWorkerThread(pool) {};
+            thread.setContextClassLoader(this.contextClassLoader);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,583 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.internal.sessions;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.eclipse.persistence.exceptions.ConcurrencyException;
+import org.eclipse.persistence.expressions.Expression;
+import org.eclipse.persistence.expressions.ExpressionOperator;
+import org.eclipse.persistence.internal.databaseaccess.Accessor;
+import org.eclipse.persistence.internal.databaseaccess.DatabaseCall;
+import org.eclipse.persistence.internal.databaseaccess.DatabasePlatform;
+import org.eclipse.persistence.internal.expressions.FieldExpression;
+import org.eclipse.persistence.internal.expressions.FunctionExpression;
+import org.eclipse.persistence.internal.expressions.QueryKeyExpression;
+import org.eclipse.persistence.internal.helper.DatabaseField;
+import org.eclipse.persistence.internal.helper.NonSynchronizedVector;
+import org.eclipse.persistence.internal.queries.DatabaseQueryMechanism;
+import org.eclipse.persistence.internal.queries.DatasourceCallQueryMechanism;
+import org.eclipse.persistence.internal.queries.ReportItem;
+import org.eclipse.persistence.logging.SessionLog;
+import org.eclipse.persistence.mappings.DatabaseMapping;
+import org.eclipse.persistence.queries.Call;
+import org.eclipse.persistence.queries.DatabaseQuery;
+import org.eclipse.persistence.queries.ObjectLevelReadQuery;
+import org.eclipse.persistence.queries.ReadQuery;
+import org.eclipse.persistence.queries.ReportQuery;
+import org.eclipse.persistence.sessions.DatabaseRecord;
+
+/**
+ * INTERNAL:
+ * <p><b>Purpose</b>: Execute a call that a partitioning policy sends to multiple
+ * partitions on all of their accessors in parallel, and gather the rows returned
+ * by each partition as the result of the query.</p>
+ * <p>The call is executed on the first accessor by the calling thread, and on the other
+ * accessors by the server platform's threads. Any partition that has not been started
+ * by the time the calling thread is done with its own is executed by the calling thread,
+ * so the execution does not depend on the size of the thread pool.</p>
+ * <p>The rows of each partition are merged in the query's order if its order by fields
+ * are selected and hold no character values, the query's first result and max rows are
+ * applied across all the partitions, and the count, sum, min and max items of a report
+ * query are combined for the rows of the same group, before its max rows are applied. Character values are ordered by the
+ * database's collation, which Java cannot reproduce, so rows ordered by them are gathered
+ * in partition order, and their min and max are combined in Java order, which only
+ * matches a binary collation. A failure on any partition is logged with the partition's
+ * connection pool, and the first failure is thrown with the others suppressed once all
+ * the partitions have completed.</p>
+ *
+ * @see org.eclipse.persistence.sessions.Project#setShouldExecutePartitionsInParallel(boolean)
+ */
+public class PartitionedCallExecutor {
+
+    protected AbstractSession session;
+    protected DatabaseQuery query;
+
+    /** If the partitions return their rows from the first row, so the first result and max rows can be applied to all the rows. */
+    protected boolean shouldPageAllRows;
+
+    public PartitionedCallExecutor(AbstractSession session, DatabaseQuery query) {
+        this.session = session;
+        this.query = query;
+    }
+
+    /**
+     * Return if the call can be executed on its partitions in parallel.
+     * Only calls selecting many rows are, calls returning cursors, output parameters, multiple result sets
+     * or the rows of to-many joins, and modify calls, are executed on each partition in turn.
+     */
+    public static boolean canExecuteInParallel(AbstractSession session, Call call, DatabaseQuery query) {
+        if (!session.getProject().shouldExecutePartitionsInParallel() || (session.getServerPlatform() == null)
+                || !(call instanceof DatabaseCall)) {
+            return false;
+        }
+        DatabaseCall databaseCall = (DatabaseCall)call;
+        if (!databaseCall.areManyRowsReturned() || !databaseCall.getReturnsResultSet()
+                || databaseCall.shouldBuildOutputRow() || databaseCall.hasMultipleResultSets()) {
+            return false;
+        }
+        if (query.isObjectLevelReadQuery()) {
+            ObjectLevelReadQuery readQuery = (ObjectLevelReadQuery)query;
+            if (readQuery.hasJoining() && readQuery.getJoinedAttributeManager().isToManyJoin()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Execute the call on all the accessors of the query and return all the rows.
+     */
+    public Object execute(Call call, AbstractRecord translationRow) {
+        List<Accessor> accessors = new ArrayList<Accessor>(this.query.getAccessors());
+        int size = accessors.size();
+        DatabaseCall partitionCall = buildPartitionCall((DatabaseCall)call, translationRow);
+        List<FutureTask<Object>> tasks = new ArrayList<FutureTask<Object>>(size - 1);
+        for (int index = 1; index < size; index++) {
+            FutureTask<Object> task = new FutureTask<Object>(new PartitionExecution(accessors.get(index), (DatabaseCall)partitionCall.clone(), translationRow));
+            tasks.add(task);
+            this.session.getServerPlatform().launchContainerRunnable(task);
+        }
+        Object[] results = new Object[size];
+        RuntimeException[] failures = new RuntimeException[size];
+        try {
+            results[0] = accessors.get(0).executeCall(partitionCall, translationRow, this.session);
+        } catch (RuntimeException failure) {
+            failures[0] = failure;
+        }
+        for (int index = 1; index < size; index++) {
+            FutureTask<Object> task = tasks.get(index - 1);
+            // Execute the partition if no thread has started it yet.
+            task.run();
+            try {
+                results[index] = task.get();
+            } catch (ExecutionException exception) {
+                Throwable cause = exception.getCause();
+                if (cause instanceof Error) {
+                    throw (Error)cause;
+                }
+                failures[index] = (RuntimeException)cause;
+            } catch (InterruptedException exception) {
+                failures[index] = ConcurrencyException.waitWasInterrupted(exception.getMessage());
+            }
+        }
+        RuntimeException exception = null;
+        for (int index = 0; index < size; index++) {
+            RuntimeException failure = failures[index];
+            if (failure != null) {
+                Accessor accessor = accessors.get(index);
+                Object partition = (accessor.getPool() == null) ? accessor : accessor.getPool().getName();
+                this.session.log(SessionLog.WARNING, SessionLog.QUERY, "partition_call_failed", new Object[] {partition, failure.getMessage()}, accessor);
+                if (exception == null) {
+                    exception = failure;
+                } else {
+                    exception.addSuppressed(failure);
+                }
+            }
+        }
+        if (exception != null) {
+            throw exception;
+        }
+        return gather(results);
+    }
+
+    /**
+     * Return the call to execute on each partition.
+     * If the query starts from a first result each partition must return its rows from the first row,
+     * the first result is then applied to the gathered rows.
+     * If the query's aggregates are combined across the partitions each partition must return all its
+     * groups, as a group cut off by the max rows in one partition may not be in another, the max rows
+     * are then applied to the combined groups.
+     */
+    protected DatabaseCall buildPartitionCall(DatabaseCall call, AbstractRecord translationRow) {
+        this.shouldPageAllRows = true;
+        if (!this.query.isReadQuery()) {
+            return call;
+        }
+        ReadQuery readQuery = (ReadQuery)this.query;
+        boolean shouldReadAllRows = (readQuery.getMaxRows() > 0) && (buildAggregates() != null);
+        if ((readQuery.getFirstResult() <= 0) && !shouldReadAllRows) {
+            return call;
+        }
+        if (call.shouldIgnoreFirstRowSetting() || call.shouldIgnoreMaxResultsSetting()) {
+            // The rows are limited in the SQL, so translate the query's call again without the first result.
+            DatabaseQueryMechanism queryMechanism = readQuery.getQueryMechanism();
+            if (!(queryMechanism instanceof DatasourceCallQueryMechanism)) {
+                this.shouldPageAllRows = false;
+                return call;
+            }
+            DatasourceCallQueryMechanism mechanism = (DatasourceCallQueryMechanism)queryMechanism;
+            if (mechanism.hasMultipleCalls() || !(mechanism.getCall() instanceof DatabaseCall)) {
+                this.shouldPageAllRows = false;
+                return call;
+            }
+            AbstractRecord row = (AbstractRecord)translationRow.clone();
+            if (call.shouldIgnoreFirstRowSetting()) {
+                row.put(DatabaseCall.FIRSTRESULT_FIELD, Integer.valueOf(0));
+            }
+            if (call.shouldIgnoreMaxResultsSetting()) {
+                DatabasePlatform platform = (DatabasePlatform)this.session.getPlatform(readQuery.getReferenceClass());
+                int maxRows = shouldReadAllRows ? Integer.MAX_VALUE : readQuery.getMaxRows();
+                row.put(DatabaseCall.MAXROW_FIELD, Integer.valueOf(platform.computeMaxRowsForSQL(0, maxRows)));
+            }
+            DatabaseCall translatedCall = (DatabaseCall)mechanism.getCall().clone();
+            translatedCall.setQuery(readQuery);
+            translatedCall.translate(row, mechanism.getModifyRow(), this.session);
+            call = translatedCall;
+        } else {
+            call = (DatabaseCall)call.clone();
+        }
+        if (!call.shouldIgnoreFirstRowSetting()) {
+            call.setFirstResult(0);
+        }
+        if (shouldReadAllRows && !call.shouldIgnoreMaxResultsSetting()) {
+            call.setMaxRows(0);
+        }
+        return call;
+    }
+
+    /**
+     * Gather the rows of all the partitions.
+     */
+    protected Object gather(Object[] results) {
+        List<List<AbstractRecord>> partitions = new ArrayList<List<AbstractRecord>>(results.length);
+        int size = 0;
+        for (Object result : results) {
+            if (result instanceof List) {
+                List<AbstractRecord> rows = (List<AbstractRecord>)result;
+                partitions.add(rows);
+                size = size + rows.size();
+            }
+        }
+        Comparator<AbstractRecord> comparator = buildOrderComparator(partitions);
+        List<AbstractRecord> rows;
+        Map<Integer, Integer> aggregates = buildAggregates();
+        if (aggregates != null) {
+            rows = combineAggregates(partitions, aggregates);
+            if (comparator != null) {
+                Collections.sort(rows, comparator);
+            }
+        } else if (comparator != null) {
+            rows = merge(partitions, comparator, size);
+        } else {
+            rows = NonSynchronizedVector.newInstance(size);
+            for (List<AbstractRecord> partition : partitions) {
+                rows.addAll(partition);
+            }
+        }
+        return page(rows);
+    }
+
+    /**
+     * Return the rows from the query's first result up to its max rows.
+     */
+    protected Vector page(List<AbstractRecord> rows) {
+        if (!this.shouldPageAllRows || !this.query.isReadQuery()) {
+            return (Vector)rows;
+        }
+        ReadQuery readQuery = (ReadQuery)this.query;
+        int firstResult = Math.max(readQuery.getFirstResult(), 0);
+        int maxRows = readQuery.getMaxRows();
+        int end = rows.size();
+        if ((maxRows > 0) && (maxRows < end)) {
+            end = maxRows;
+        }
+        if ((firstResult == 0) && (end == rows.size())) {
+            return (Vector)rows;
+        }
+        if (firstResult >= end) {
+            return NonSynchronizedVector.newInstance(0);
+        }
+        return NonSynchronizedVector.newInstance(rows.subList(firstResult, end));
+    }
+
+    /**
+     * Merge the ordered rows of the partitions.
+     */
+    protected List<AbstractRecord> merge(List<List<AbstractRecord>> partitions, final Comparator<AbstractRecord> comparator, int size) {
+        PriorityQueue<PartitionRows> queue = new PriorityQueue<PartitionRows>(partitions.size(), new Comparator<PartitionRows>() {
+            @Override
+            public int compare(PartitionRows rows, PartitionRows otherRows) {
+                int compare = comparator.compare(rows.current(), otherRows.current());
+                if (compare == 0) {
+                    compare = rows.partition - otherRows.partition;
+                }
+                return compare;
+            }
+        });
+        for (int index = 0; index < partitions.size(); index++) {
+            List<AbstractRecord> partition = partitions.get(index);
+            if (!partition.isEmpty()) {
+                queue.add(new PartitionRows(index, partition));
+            }
+        }
+        List<AbstractRecord> rows = NonSynchronizedVector.newInstance(size);
+        while (!queue.isEmpty()) {
+            PartitionRows partitionRows = queue.poll();
+            rows.add(partitionRows.current());
+            partitionRows.index++;
+            if (partitionRows.index < partitionRows.rows.size()) {
+                queue.add(partitionRows);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Return a comparator for the query's order by fields, or null if the query is not ordered,
+     * orders by an expression other than a selected field or direct attribute, or any of its
+     * fields holds character values, as the database's collation may order them differently.
+     * Null values are ordered as greater than any value unless the order specifies otherwise.
+     */
+    protected Comparator<AbstractRecord> buildOrderComparator(List<List<AbstractRecord>> partitions) {
+        if (!this.query.isObjectLevelReadQuery() || !((ObjectLevelReadQuery)this.query).hasOrderByExpressions()) {
+            return null;
+        }
+        AbstractRecord firstRow = null;
+        for (List<AbstractRecord> partition : partitions) {
+            if (!partition.isEmpty()) {
+                firstRow = partition.get(0);
+                break;
+            }
+        }
+        if (firstRow == null) {
+            return null;
+        }
+        List<Expression> orderBy = ((ObjectLevelReadQuery)this.query).getOrderByExpressions();
+        final int size = orderBy.size();
+        final DatabaseField[] fields = new DatabaseField[size];
+        final boolean[] descending = new boolean[size];
+        final boolean[] nullsFirst = new boolean[size];
+        for (int index = 0; index < size; index++) {
+            Expression expression = orderBy.get(index);
+            Boolean nulls = null;
+            while (expression.isFunctionExpression()) {
+                int selector = expression.getOperator().getSelector();
+                if (selector == ExpressionOperator.Descending) {
+                    descending[index] = true;
+                } else if (selector == ExpressionOperator.NullsFirst) {
+                    nulls = Boolean.TRUE;
+                } else if (selector == ExpressionOperator.NullsLast) {
+                    nulls = Boolean.FALSE;
+                } else if (selector != ExpressionOperator.Ascending) {
+                    return null;
+                }
+                expression = ((FunctionExpression)expression).getBaseExpression();
+            }
+            DatabaseField field = getOrderField(expression);
+            if ((field == null) || (firstRow.getIndicatingNoEntry(field) == AbstractRecord.noEntry)) {
+                return null;
+            }
+            fields[index] = field;
+            nullsFirst[index] = (nulls == null) ? descending[index] : nulls.booleanValue();
+        }
+        for (List<AbstractRecord> partition : partitions) {
+            for (AbstractRecord row : partition) {
+                for (int index = 0; index < size; index++) {
+                    Object value = row.get(fields[index]);
+                    if ((value instanceof String) || (value instanceof Character)) {
+                        return null;
+                    }
+                }
+            }
+        }
+        return new Comparator<AbstractRecord>() {
+            @Override
+            public int compare(AbstractRecord row, AbstractRecord otherRow) {
+                for (int index = 0; index < size; index++) {
+                    Object value = row.get(fields[index]);
+                    Object otherValue = otherRow.get(fields[index]);
+                    int compare;
+                    if (value == null) {
+                        compare = (otherValue == null) ? 0 : (nullsFirst[index] ? -1 : 1);
+                    } else if (otherValue == null) {
+                        compare = nullsFirst[index] ? 1 : -1;
+                    } else {
+                        compare = compareValues(value, otherValue);
+                        if (descending[index]) {
+                            compare = -compare;
+                        }
+                    }
+                    if (compare != 0) {
+                        return compare;
+                    }
+                }
+                return 0;
+            }
+        };
+    }
+
+    /**
+     * Return the field of an order by expression, if it is a field or a direct attribute of the query's objects.
+     */
+    protected DatabaseField getOrderField(Expression expression) {
+        if (expression.isFieldExpression()) {
+            return ((FieldExpression)expression).getField();
+        } else if (expression.isQueryKeyExpression()
+                && (((QueryKeyExpression)expression).getBaseExpression() == ((ObjectLevelReadQuery)this.query).getExpressionBuilder())) {
+            DatabaseMapping mapping = this.query.getDescriptor().getObjectBuilder().getMappingForAttributeName(expression.getName());
+            if ((mapping != null) && mapping.isDirectToFieldMapping()) {
+                return mapping.getField();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Return the aggregate operator of the report query's items by their index in the rows,
+     * or null if the query has no aggregates that can be combined across the partitions.
+     * Only count, sum, min and max can be, and only if the rows are grouped by the other items.
+     */
+    protected Map<Integer, Integer> buildAggregates() {
+        if (!this.query.isReportQuery()) {
+            return null;
+        }
+        ReportQuery reportQuery = (ReportQuery)this.query;
+        if (reportQuery.getHavingExpression() != null) {
+            return null;
+        }
+        Map<Integer, Integer> aggregates = new HashMap<Integer, Integer>();
+        List<Expression> keys = new ArrayList<Expression>();
+        for (ReportItem item : reportQuery.getItems()) {
+            Expression expression = item.getAttributeExpression();
+            if ((expression != null) && expression.isFunctionExpression() && expression.getOperator().isAggregateOperator()) {
+                int selector = expression.getOperator().getSelector();
+                if ((selector != ExpressionOperator.Count) && (selector != ExpressionOperator.Sum)
+                        && (selector != ExpressionOperator.Minimum) && (selector != ExpressionOperator.Maximum)) {
+                    return null;
+                }
+                Expression base = ((FunctionExpression)expression).getBaseExpression();
+                if ((base != null) && base.isFunctionExpression() && (base.getOperator().getSelector() == ExpressionOperator.Distinct)) {
+                    return null;
+                }
+                aggregates.put(Integer.valueOf(item.getResultIndex()), Integer.valueOf(selector));
+            } else if ((expression == null) || expression.isDataExpression() || expression.isConstantExpression()) {
+                keys.add(expression);
+            } else {
+                // The item may contain an aggregate.
+                return null;
+            }
+        }
+        if (aggregates.isEmpty()) {
+            return null;
+        }
+        if (reportQuery.hasGroupByExpressions()) {
+            for (Expression groupBy : reportQuery.getGroupByExpressions()) {
+                if (!keys.contains(groupBy)) {
+                    return null;
+                }
+            }
+        }
+        return aggregates;
+    }
+
+    /**
+     * Combine the aggregates of the rows with the same values for the other items.
+     */
+    protected List<AbstractRecord> combineAggregates(List<List<AbstractRecord>> partitions, Map<Integer, Integer> aggregates) {
+        Map<List<Object>, AbstractRecord> groups = new HashMap<List<Object>, AbstractRecord>();
+        List<AbstractRecord> rows = NonSynchronizedVector.newInstance();
+        for (List<AbstractRecord> partition : partitions) {
+            for (AbstractRecord row : partition) {
+                Vector values = row.getValues();
+                int size = values.size();
+                List<Object> key = new ArrayList<Object>(size);
+                for (int index = 0; index < size; index++) {
+                    if (!aggregates.containsKey(Integer.valueOf(index))) {
+                        key.add(values.get(index));
+                    }
+                }
+                AbstractRecord group = groups.get(key);
+                if (group == null) {
+                    group = new DatabaseRecord(row.getFields(), new NonSynchronizedVector(values));
+                    groups.put(key, group);
+                    rows.add(group);
+                } else {
+                    Vector groupValues = group.getValues();
+                    for (Map.Entry<Integer, Integer> aggregate : aggregates.entrySet()) {
+                        int index = aggregate.getKey().intValue();
+                        groupValues.set(index, combine(aggregate.getValue().intValue(), groupValues.get(index), values.get(index)));
+                    }
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Combine the aggregate values of two partitions.
+     */
+    protected Object combine(int selector, Object value, Object otherValue) {
+        if (value == null) {
+            return otherValue;
+        } else if (otherValue == null) {
+            return value;
+        }
+        if (selector == ExpressionOperator.Minimum) {
+            return (compareValues(otherValue, value) < 0) ? otherValue : value;
+        } else if (selector == ExpressionOperator.Maximum) {
+            return (compareValues(otherValue, value) > 0) ? otherValue : value;
+        }
+        if (!(value instanceof Number) || !(otherValue instanceof Number)) {
+            return value;
+        }
+        Number number = (Number)value;
+        Number otherNumber = (Number)otherValue;
+        if ((number instanceof BigDecimal) || (otherNumber instanceof BigDecimal)) {
+            return toBigDecimal(number).add(toBigDecimal(otherNumber));
+        } else if ((number instanceof Double) || (number instanceof Float) || (otherNumber instanceof Double) || (otherNumber instanceof Float)) {
+            return Double.valueOf(number.doubleValue() + otherNumber.doubleValue());
+        } else if ((number instanceof BigInteger) || (otherNumber instanceof BigInteger)) {
+            return toBigDecimal(number).add(toBigDecimal(otherNumber)).toBigInteger();
+        }
+        long sum = number.longValue() + otherNumber.longValue();
+        if ((number instanceof Integer) && (otherNumber instanceof Integer) && (sum >= Integer.MIN_VALUE) && (sum <= Integer.MAX_VALUE)) {
+            return Integer.valueOf((int)sum);
+        }
+        return Long.valueOf(sum);
+    }
+
+    /**
+     * Compare two non null values of a column, numbers of different types by value.
+     * Strings are compared in Java order, which only matches a binary collation.
+     */
+    protected int compareValues(Object value, Object otherValue) {
+        if ((value instanceof Comparable) && (value.getClass() == otherValue.getClass())) {
+            return ((Comparable)value).compareTo(otherValue);
+        } else if ((value instanceof Number) && (otherValue instanceof Number)) {
+            return toBigDecimal((Number)value).compareTo(toBigDecimal((Number)otherValue));
+        }
+        return 0;
+    }
+
+    protected BigDecimal toBigDecimal(Number number) {
+        if (number instanceof BigDecimal) {
+            return (BigDecimal)number;
+        } else if (number instanceof BigInteger) {
+            return new BigDecimal((BigInteger)number);
+        } else if ((number instanceof Double) || (number instanceof Float)) {
+            return BigDecimal.valueOf(number.doubleValue());
+        }
+        return BigDecimal.valueOf(number.longValue());
+    }
+
+    /**
+     * Executes the call on the accessor of a partition.
+     */
+    protected class PartitionExecution implements Callable<Object> {
+        protected Accessor accessor;
+        protected DatabaseCall call;
+        protected AbstractRecord translationRow;
+
+        protected PartitionExecution(Accessor accessor, DatabaseCall call, AbstractRecord translationRow) {
+            this.accessor = accessor;
+            this.call = call;
+            this.translationRow = translationRow;
+        }
+
+        @Override
+        public Object call() {
+            return this.accessor.executeCall(this.call, this.translationRow, session);
+        }
+    }
+
+    /**
+     * The position in the rows of a partition while merging.
+     */
+    protected static class PartitionRows {
+        protected int partition;
+        protected List<AbstractRecord> rows;
+        protected int index;
+
+        protected PartitionRows(int partition, List<AbstractRecord> rows) {
+            this.partition = partition;
+            this.rows = rows;
+        }
+
+        protected AbstractRecord current() {
+            return this.rows.get(this.index);
+        }
+    }
+}
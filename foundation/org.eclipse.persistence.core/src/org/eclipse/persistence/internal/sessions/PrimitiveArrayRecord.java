@@ -0,0 +1,164 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.internal.sessions;
+
+import java.util.Vector;
+
+import org.eclipse.persistence.internal.helper.ClassConstants;
+import org.eclipse.persistence.internal.helper.DatabaseField;
+
+/**
+ * INTERNAL:
+ * PERF: Array record that stores numeric column values in primitive slots.
+ * The values are fetched through the typed ResultSet get methods, and are only boxed
+ * if requested through the Map protocol, so mappings to primitive attributes can set them
+ * without boxing.
+ * Integral values are stored as long, floating point values as the bits of a double.
+ * @see org.eclipse.persistence.internal.databaseaccess.DatabaseAccessor#fetchRow(Vector, DatabaseField[], java.sql.ResultSet, java.sql.ResultSetMetaData, AbstractSession)
+ * @see org.eclipse.persistence.mappings.foundation.AbstractDirectMapping#readPrimitiveFromRowIntoObject(PrimitiveArrayRecord, Object)
+ */
+public class PrimitiveArrayRecord extends ArrayRecord {
+    /** The value is not primitive, or is null, it is stored in the values array. */
+    public static final byte NONE = 0;
+    public static final byte LONG = 1;
+    public static final byte INT = 2;
+    public static final byte SHORT = 3;
+    public static final byte DOUBLE = 4;
+    public static final byte FLOAT = 5;
+
+    /** The primitive value of each column, doubles and floats are stored as the bits of a double. */
+    protected long[] primitiveValues;
+
+    /** The primitive type of each column, or NONE. */
+    protected byte[] primitiveTypes;
+
+    public PrimitiveArrayRecord(Vector fields, DatabaseField[] fieldsArray, Object[] valuesArray, long[] primitiveValues, byte[] primitiveTypes) {
+        super(fields, fieldsArray, valuesArray);
+        this.primitiveValues = primitiveValues;
+        this.primitiveTypes = primitiveTypes;
+    }
+
+    /**
+     * Return the primitive type that values of the class can be fetched as, or NONE.
+     */
+    public static byte getPrimitiveType(Class type) {
+        if ((type == ClassConstants.PLONG) || (type == ClassConstants.LONG)) {
+            return LONG;
+        } else if ((type == ClassConstants.PINT) || (type == ClassConstants.INTEGER)) {
+            return INT;
+        } else if ((type == ClassConstants.PDOUBLE) || (type == ClassConstants.DOUBLE)) {
+            return DOUBLE;
+        } else if ((type == ClassConstants.PFLOAT) || (type == ClassConstants.FLOAT)) {
+            return FLOAT;
+        } else if ((type == ClassConstants.PSHORT) || (type == ClassConstants.SHORT)) {
+            return SHORT;
+        }
+        return NONE;
+    }
+
+    /**
+     * Return the index of the field in the row, or -1 if the row does not contain the field,
+     * or is no longer array based.
+     */
+    public int indexOf(DatabaseField key) {
+        if (this.fieldsArray == null) {
+            return -1;
+        }
+        int index = key.index;
+        if ((index >= 0) && (index < this.size)) {
+            DatabaseField field = this.fieldsArray[index];
+            if ((field == key) || field.equals(key)) {
+                return index;
+            }
+        }
+        for (int fieldIndex = 0; fieldIndex < this.size; fieldIndex++) {
+            DatabaseField field = this.fieldsArray[fieldIndex];
+            if ((field == key) || field.equals(key)) {
+                return fieldIndex;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Return the primitive type of the value at the index, or NONE if the value is not primitive or is null.
+     */
+    public byte getPrimitiveType(int index) {
+        if (this.valuesArray == null) {
+            return NONE;
+        }
+        return this.primitiveTypes[index];
+    }
+
+    public long getLong(int index) {
+        return this.primitiveValues[index];
+    }
+
+    public int getInt(int index) {
+        return (int)this.primitiveValues[index];
+    }
+
+    public short getShort(int index) {
+        return (short)this.primitiveValues[index];
+    }
+
+    public double getDouble(int index) {
+        return Double.longBitsToDouble(this.primitiveValues[index]);
+    }
+
+    public float getFloat(int index) {
+        return (float)Double.longBitsToDouble(this.primitiveValues[index]);
+    }
+
+    /**
+     * INTERNAL:
+     * Box the primitive value on first access, the boxed value is kept in the values array.
+     */
+    @Override
+    protected Object getValueAt(int index) {
+        Object value = this.valuesArray[index];
+        if (value == null) {
+            switch (this.primitiveTypes[index]) {
+                case LONG:
+                    value = Long.valueOf(getLong(index));
+                    break;
+                case INT:
+                    value = Integer.valueOf(getInt(index));
+                    break;
+                case SHORT:
+                    value = Short.valueOf(getShort(index));
+                    break;
+                case DOUBLE:
+                    value = Double.valueOf(getDouble(index));
+                    break;
+                case FLOAT:
+                    value = Float.valueOf(getFloat(index));
+                    break;
+                default:
+                    return null;
+            }
+            this.valuesArray[index] = value;
+        }
+        return value;
+    }
+
+    /**
+     * INTERNAL:
+     * The primitive value is no longer valid once the value is replaced.
+     */
+    @Override
+    protected void setValueAt(int index, Object value) {
+        this.primitiveTypes[index] = NONE;
+        this.valuesArray[index] = value;
+    }
+}
@@ -484,7 +484,8 @@ protected static class LoggerTypeProp extends Prop {
             String pcg = "org.eclipse.persistence.logging.";
             valueArray = new Object[][] {
                 {LoggerType.DefaultLogger, pcg + "DefaultSessionLog"},
-                {LoggerType.JavaLogger, pcg + "JavaLog"}
+                {LoggerType.JavaLogger, pcg + "JavaLog"},
+                {LoggerType.AsynchronousLogger, pcg + "AsynchronousSessionLog"}
             };
         }
     }
@@ -626,6 +627,7 @@ protected static class CacheTypeProp extends Prop {
                 {CacheType.SoftWeak, pcg + "SoftCacheWeakIdentityMap"},
                 {CacheType.HardWeak, pcg + "HardCacheWeakIdentityMap"},
                 {CacheType.Full, pcg + "FullIdentityMap"},
+                {CacheType.Clock, pcg + "ClockCacheIdentityMap"},
                 {CacheType.NONE, pcg + "NoIdentityMap"}
             };
         }
@@ -655,7 +657,8 @@ protected static class BatchWritingProp extends Prop {
                 BatchWriting.None,
                 BatchWriting.JDBC,
                 BatchWriting.Buffered,
-                BatchWriting.OracleJDBC
+                BatchWriting.OracleJDBC,
+                BatchWriting.Grouped
             };
         }
     }
@@ -55,6 +55,16 @@ public void invalidateQueryCache(Class classThatChanged) {
         ((UnitOfWorkImpl)this.session).getParent().getIdentityMapAccessor().invalidateQueryCache(classThatChanged);
     }
 
+    /**
+     * INTERNAL:
+     * Invalidate/remove any results for the class from the query cache that could be affected by the changes.
+     * This is used to invalidate the query cache on commit or merge.
+     */
+    @Override
+    public void invalidateQueryCache(Class classThatChanged, UnitOfWorkChangeSet changeSet) {
+        ((UnitOfWorkImpl)this.session).getParent().getIdentityMapAccessorInstance().invalidateQueryCache(classThatChanged, changeSet);
+    }
+
     /**
      * ADVANCED:
      * Clear the query class associated with the passed-in read query
@@ -231,8 +241,8 @@ public Object getQueryResult(ReadQuery query, List parameters, boolean checkExpi
      *  Results are only cached in the parent session for UnitOfWorks
      */
     @Override
-    public void putQueryResult(ReadQuery query, List parameters, Object results) {
-        ((UnitOfWorkImpl)this.session).getParent().getIdentityMapAccessorInstance().putQueryResult(query, parameters, results);
+    public void putQueryResult(ReadQuery query, List parameters, Object results, long cost) {
+        ((UnitOfWorkImpl)this.session).getParent().getIdentityMapAccessorInstance().putQueryResult(query, parameters, results, cost);
     }
 
     /**
@@ -685,12 +685,24 @@ public UnitOfWorkChangeSet calculateChanges(Map registeredObjects, UnitOfWorkCha
             assignSequenceNumbers(this.newObjectsCloneToOriginal);
         }
 
+        // PERF: Find the objects that have not changed in parallel first.
+        boolean[] unchangedObjects = null;
+        if (ParallelChangeCalculator.canCalculateChangesInParallel(this, allObjects.size())) {
+            unchangedObjects = new ParallelChangeCalculator(this).findUnchangedObjects(allObjects.keySet());
+        }
+
         // Second calculate changes for all registered objects.
         Iterator objects = allObjects.keySet().iterator();
         Map changedObjects = new IdentityHashMap();
         Map visitedNodes = new IdentityHashMap();
+        int index = 0;
         while (objects.hasNext()) {
             Object object = objects.next();
+            if ((unchangedObjects != null) && unchangedObjects[index++]) {
+                // Mark as visited so do not need to traverse.
+                visitedNodes.put(object, object);
+                continue;
+            }
 
             // Block of code removed because it will never be touched see bug # 2903565
 
@@ -3356,6 +3368,10 @@ protected void mergeChangesIntoParent() {
             }
             Set<Class> classesChanged = new HashSet<Class>();
             if (! shouldStoreBypassCache()) {
+                // PERF: Merge the objects that are independent of any other object in parallel first.
+                if (ParallelCacheMerger.canMergeInParallel(this, manager, uowChangeSet)) {
+                    new ParallelCacheMerger(manager, this).mergeChanges(uowChangeSet, classesChanged);
+                }
                 for (Map<ObjectChangeSet, ObjectChangeSet> objectChangesList : ((UnitOfWorkChangeSet)getUnitOfWorkChangeSet()).getObjectChanges().values()) {
                     // May be no changes for that class type.
                     for (ObjectChangeSet changeSetToWrite : objectChangesList.values()) {
@@ -3402,7 +3418,7 @@ protected void mergeChangesIntoParent() {
                 postMergeChanges(classesChanged);
 
                 for (Class changedClass : classesChanged) {
-                    this.parent.getIdentityMapAccessorInstance().invalidateQueryCache(changedClass);
+                    this.parent.getIdentityMapAccessorInstance().invalidateQueryCache(changedClass, uowChangeSet);
                 }
                 // If change propagation enabled through RemoteCommandManager then go for it
                 if (this.parent.shouldPropagateChanges() && (this.parent.getCommandManager() != null)) {
@@ -5768,7 +5784,9 @@ public void addToChangeTrackedHardList(Object obj){
      * INTERNAL:
      */
     public void addPessimisticLockedClone(Object clone) {
-        log(SessionLog.FINEST, SessionLog.TRANSACTION, "tracking_pl_object", clone, Integer.valueOf(this.hashCode()));
+        if (shouldLog(SessionLog.FINEST, SessionLog.TRANSACTION)) {
+            log(SessionLog.FINEST, SessionLog.TRANSACTION, "tracking_pl_object", clone, Integer.valueOf(this.hashCode()));
+        }
         getPessimisticLockedObjects().put(clone, clone);
     }
 
@@ -791,7 +791,7 @@ protected String getSupplementDetailString(SessionLogEntry entry) {
             writer.write("--");
         }
         if (shouldPrintConnection() && (entry.getConnection() != null)) {
-            writer.write(this.getConnectionString(entry.getConnection()));
+            writer.write(this.getConnectionString(entry));
             writer.write("--");
         }
         if (shouldPrintThread()) {
@@ -823,6 +823,13 @@ protected String getSessionString(Session session) {
         }
     }
 
+    /**
+     * Return the connection information of the log entry.
+     */
+    protected String getConnectionString(SessionLogEntry entry) {
+        return this.getConnectionString(entry.getConnection());
+    }
+
     /**
      * Return the specified connection information.
      */
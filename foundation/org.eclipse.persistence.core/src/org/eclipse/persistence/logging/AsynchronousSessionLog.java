@@ -0,0 +1,484 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.logging;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.eclipse.persistence.exceptions.ValidationException;
+import org.eclipse.persistence.internal.databaseaccess.Accessor;
+
+/**
+ * <b>Purpose</b>: Session log that writes the log entries from a single background thread.
+ * <p>
+ * Logging threads copy each entry into a reused entry of a bounded ring buffer, without locking,
+ * and the writer thread formats the entries and writes them in batches, flushing the writer
+ * once per batch instead of once per entry. Entries are formatted and written in the order
+ * they were logged, with the settings of the log (or session log clone) that logged them.
+ * <p>
+ * When the buffer is full, logging threads wait for the writer thread by default,
+ * or drop the entry if {@link #setShouldDropEntriesWhenFull(boolean)} is set,
+ * the number of dropped entries is then logged once the buffer has room.
+ * <p>
+ * As messages are formatted by the writer thread, message parameters must not be changed
+ * after they are logged. The writer thread is a daemon thread, {@link #flush()} can be used
+ * to wait until all logged entries have been written, and {@link #close()} to stop it.
+ * Entries are written holding the lock of the writer, shared by the clones of the log, both by the
+ * writer thread and when written directly, so entries written by both are never interleaved.
+ *
+ * @see org.eclipse.persistence.config.LoggerType#AsynchronousLogger
+ * @see org.eclipse.persistence.config.PersistenceUnitProperties#LOGGING_BUFFER_SIZE
+ */
+public class AsynchronousSessionLog extends DefaultSessionLog {
+
+    /** The default number of entries of the ring buffer. */
+    public static final int DEFAULT_BUFFER_SIZE = 1024;
+
+    /** The maximum number of entries of the ring buffer, the largest power of two array length. */
+    public static final int MAXIMUM_BUFFER_SIZE = 1 << 30;
+
+    /** The number of entries of the ring buffer, rounded up to a power of two. */
+    protected int bufferSize;
+
+    /** If entries are dropped instead of waiting when the buffer is full. */
+    protected boolean shouldDropEntriesWhenFull;
+
+    /** The ring buffer and writer thread, shared by the clones of this log, started on the first entry. */
+    protected transient volatile LogBuffer buffer;
+
+    public AsynchronousSessionLog() {
+        super();
+        this.bufferSize = DEFAULT_BUFFER_SIZE;
+    }
+
+    public AsynchronousSessionLog(Writer writer) {
+        this();
+        this.initialize(writer);
+    }
+
+    /**
+     * PUBLIC:
+     * Return the number of entries of the ring buffer.
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * PUBLIC:
+     * Set the number of entries of the ring buffer, it is rounded up to a power of two,
+     * and at most {@link #MAXIMUM_BUFFER_SIZE}.
+     * This must be set before the first entry is logged.
+     */
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = Math.min(bufferSize, MAXIMUM_BUFFER_SIZE);
+    }
+
+    /**
+     * PUBLIC:
+     * Return if entries are dropped instead of waiting when the buffer is full.
+     */
+    public boolean shouldDropEntriesWhenFull() {
+        return shouldDropEntriesWhenFull;
+    }
+
+    /**
+     * PUBLIC:
+     * Set if entries are dropped instead of waiting for the writer thread when the buffer is full.
+     * By default logging threads wait, so no entry is lost.
+     */
+    public void setShouldDropEntriesWhenFull(boolean shouldDropEntriesWhenFull) {
+        this.shouldDropEntriesWhenFull = shouldDropEntriesWhenFull;
+    }
+
+    /**
+     * PUBLIC:
+     * Return the number of entries dropped because the buffer was full.
+     */
+    public long getDroppedEntries() {
+        LogBuffer buffer = this.buffer;
+        if (buffer == null) {
+            return 0;
+        }
+        return buffer.dropped.sum();
+    }
+
+    /**
+     * INTERNAL:
+     * Return the ring buffer, starting its writer thread if not yet started.
+     */
+    protected LogBuffer getBuffer() {
+        LogBuffer buffer = this.buffer;
+        if (buffer == null) {
+            synchronized (this) {
+                buffer = this.buffer;
+                if (buffer == null) {
+                    buffer = new LogBuffer(this, this.bufferSize);
+                    this.buffer = buffer;
+                }
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * Log the entry. This copies the entry into the ring buffer to be written by the writer thread.
+     * Entries logged from the writer thread, or after the log was closed, are written directly.
+     * Entries logged after the log was closed are only written once the writer thread has written
+     * the buffered entries, so they are not written to the writer concurrently, or before them.
+     */
+    @Override
+    public void log(SessionLogEntry entry) {
+        if (!shouldLog(entry.getLevel(), entry.getNameSpace())) {
+            return;
+        }
+        LogBuffer buffer = getBuffer();
+        if (Thread.currentThread() == buffer.writerThread) {
+            logDirectly(entry);
+        } else if (buffer.isClosed || !buffer.add(entry, this)) {
+            buffer.awaitStopped();
+            logDirectly(entry);
+        }
+    }
+
+    /**
+     * INTERNAL:
+     * Write and flush the entry from the logging thread, holding the lock of the writer.
+     */
+    protected void logDirectly(SessionLogEntry entry) {
+        Writer writer = getWriter();
+        synchronized (writer) {
+            try {
+                writeEntry(entry);
+                writer.flush();
+            } catch (IOException exception) {
+                throw ValidationException.logIOError(exception);
+            }
+        }
+    }
+
+    /**
+     * PUBLIC:
+     * Wait until all the entries logged before this call have been written and the writer flushed.
+     */
+    public void flush() {
+        LogBuffer buffer = this.buffer;
+        if ((buffer != null) && (Thread.currentThread() != buffer.writerThread)) {
+            buffer.awaitFlushed(buffer.claimed.get());
+        }
+    }
+
+    /**
+     * PUBLIC:
+     * Write all the logged entries and stop the writer thread.
+     * Clones of the log then write entries directly from the logging thread,
+     * the log itself starts a new writer thread if it logs again, such as on a new login.
+     */
+    public void close() {
+        LogBuffer buffer = this.buffer;
+        if (buffer != null) {
+            // Entries logged while closing wait for the buffered entries to be written,
+            // so the buffer is only released once they are.
+            buffer.close();
+            synchronized (this) {
+                if (this.buffer == buffer) {
+                    this.buffer = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the connection information of the log entry.
+     * The connection of a buffered entry is the one it had when logged,
+     * as it may have been released or reconnected since.
+     */
+    @Override
+    protected String getConnectionString(SessionLogEntry entry) {
+        if (entry instanceof BufferedEntry) {
+            return CONNECTION_STRING + "(" + String.valueOf(((BufferedEntry)entry).connectionId) + ")";
+        }
+        return super.getConnectionString(entry);
+    }
+
+    /**
+     * INTERNAL:
+     * Each session owns its own session log, clones share the ring buffer and writer thread.
+     */
+    @Override
+    public Object clone() {
+        getBuffer();
+        return super.clone();
+    }
+
+    /**
+     * INTERNAL:
+     * A reused entry of the ring buffer.
+     */
+    protected static class BufferedEntry extends SessionLogEntry {
+        /** The sequence of the entry, once it is published. */
+        protected volatile long sequence;
+        /** The log that logged the entry. */
+        protected AsynchronousSessionLog log;
+        /** The identity of the entry's connection when logged. */
+        protected int connectionId;
+
+        protected BufferedEntry(long sequence) {
+            super(null);
+            this.sequence = sequence;
+            this.thread = null;
+        }
+
+        /**
+         * Copy the logged entry.
+         */
+        protected void copy(SessionLogEntry entry, AsynchronousSessionLog log) {
+            this.log = log;
+            if (entry.date != null) {
+                this.date.setTime(entry.date.getTime());
+            } else {
+                this.date.setTime(System.currentTimeMillis());
+            }
+            this.session = entry.session;
+            this.thread = entry.thread;
+            Accessor connection = entry.connection;
+            this.connection = connection;
+            if (connection != null) {
+                Object datasourceConnection = connection.getDatasourceConnection();
+                this.connectionId = System.identityHashCode((datasourceConnection == null) ? connection : datasourceConnection);
+            }
+            this.message = entry.message;
+            this.throwable = entry.throwable;
+            this.level = entry.level;
+            this.nameSpace = entry.nameSpace;
+            this.parameters = entry.parameters;
+            this.shouldTranslate = entry.shouldTranslate;
+            this.sourceClassName = entry.sourceClassName;
+            this.sourceMethodName = entry.sourceMethodName;
+        }
+
+        /**
+         * Release the references of the written entry.
+         */
+        protected void clear() {
+            this.log = null;
+            this.session = null;
+            this.thread = null;
+            this.connection = null;
+            this.message = null;
+            this.throwable = null;
+            this.parameters = null;
+        }
+    }
+
+    /**
+     * INTERNAL:
+     * A bounded ring buffer of reused entries with multiple logging threads and a single writer thread.
+     * A logging thread claims the next sequence, copies its entry into the entry at that sequence, and
+     * publishes it by setting the entry's sequence. The writer thread writes the published entries in
+     * sequence order, and a sequence can only be claimed once the entry it reuses has been written.
+     */
+    protected static class LogBuffer implements Runnable {
+        /** The time the writer thread or a waiting logging thread parks before checking again. */
+        protected static final long PARK_NANOS = 100000L;
+
+        protected final AsynchronousSessionLog owner;
+        protected final BufferedEntry[] entries;
+        protected final int mask;
+        /** The next sequence to claim. */
+        protected final AtomicLong claimed;
+        /** The next sequence to write, all sequences before it have been written. */
+        protected volatile long written;
+        /** All sequences before it have been written and flushed. */
+        protected volatile long flushed;
+        protected final LongAdder dropped;
+        /** The number of dropped entries already logged, only used by the writer thread. */
+        protected long reportedDropped;
+        protected final Thread writerThread;
+        protected volatile boolean isWriterWaiting;
+        protected volatile boolean isClosed;
+
+        protected LogBuffer(AsynchronousSessionLog owner, int size) {
+            int capacity = Integer.highestOneBit(Math.min(Math.max(size, 2), MAXIMUM_BUFFER_SIZE) - 1) << 1;
+            this.owner = owner;
+            this.entries = new BufferedEntry[capacity];
+            for (int index = 0; index < capacity; index++) {
+                // Not yet published, the entry at sequence n is published with sequence n.
+                this.entries[index] = new BufferedEntry(index - capacity);
+            }
+            this.mask = capacity - 1;
+            this.claimed = new AtomicLong();
+            this.dropped = new LongAdder();
+            this.writerThread = new Thread(this, "EclipseLink log writer");
+            this.writerThread.setDaemon(true);
+            this.writerThread.start();
+        }
+
+        /**
+         * Copy the entry into the buffer, return false if the buffer was closed while waiting for room.
+         */
+        protected boolean add(SessionLogEntry entry, AsynchronousSessionLog log) {
+            long sequence;
+            while (true) {
+                sequence = this.claimed.get();
+                if ((sequence - this.written) >= this.entries.length) {
+                    // Also the case once the writer thread has stopped.
+                    if (this.isClosed) {
+                        return false;
+                    }
+                    if (log.shouldDropEntriesWhenFull) {
+                        this.dropped.increment();
+                        return true;
+                    }
+                    LockSupport.unpark(this.writerThread);
+                    LockSupport.parkNanos(this, PARK_NANOS);
+                } else if (this.claimed.compareAndSet(sequence, sequence + 1)) {
+                    break;
+                }
+            }
+            BufferedEntry bufferedEntry = this.entries[(int)sequence & this.mask];
+            bufferedEntry.copy(entry, log);
+            bufferedEntry.sequence = sequence;
+            if (this.isWriterWaiting) {
+                LockSupport.unpark(this.writerThread);
+            }
+            return true;
+        }
+
+        /**
+         * Wait until the entries before the sequence have been written and flushed.
+         */
+        protected void awaitFlushed(long sequence) {
+            while ((this.flushed < sequence) && this.writerThread.isAlive()) {
+                LockSupport.unpark(this.writerThread);
+                LockSupport.parkNanos(this, PARK_NANOS);
+            }
+        }
+
+        /**
+         * Write the remaining entries and stop the writer thread.
+         */
+        protected void close() {
+            this.isClosed = true;
+            LockSupport.unpark(this.writerThread);
+            awaitStopped();
+        }
+
+        /**
+         * Wait until the writer thread has written the remaining entries and stopped, unless called by it.
+         */
+        protected void awaitStopped() {
+            if (Thread.currentThread() == this.writerThread) {
+                return;
+            }
+            boolean isInterrupted = false;
+            while (this.writerThread.isAlive()) {
+                try {
+                    this.writerThread.join();
+                } catch (InterruptedException exception) {
+                    isInterrupted = true;
+                }
+            }
+            if (isInterrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Write the published entries in order, flushing the writer when no entry is left to write,
+         * when the writer changes, or once per buffer length.
+         */
+        public void run() {
+            long next = this.written;
+            Writer lastWriter = null;
+            int batchSize = 0;
+            while (true) {
+                BufferedEntry entry = this.entries[(int)next & this.mask];
+                if ((entry.sequence == next) && (batchSize < this.entries.length)) {
+                    AsynchronousSessionLog log = entry.log;
+                    Writer writer = log.getWriter();
+                    if (writer != lastWriter) {
+                        flush(lastWriter);
+                        lastWriter = writer;
+                    }
+                    try {
+                        synchronized (writer) {
+                            log.writeEntry(entry);
+                        }
+                    } catch (IOException | RuntimeException exception) {
+                        // ignore, as there is no caller to report it to
+                    }
+                    entry.clear();
+                    next++;
+                    batchSize++;
+                    this.written = next;
+                    continue;
+                }
+                // End of the batch.
+                flush(lastWriter);
+                lastWriter = null;
+                batchSize = 0;
+                writeDropped();
+                this.flushed = next;
+                if (entry.sequence == next) {
+                    continue;
+                }
+                // Once closed, stop when no entry is left, and make the buffer appear full
+                // so no entry can be claimed once stopped.
+                if (this.isClosed && this.claimed.compareAndSet(next, next + this.entries.length)) {
+                    return;
+                }
+                this.isWriterWaiting = true;
+                if (entry.sequence != next) {
+                    LockSupport.parkNanos(this, this.isClosed ? PARK_NANOS : (PARK_NANOS * 100));
+                }
+                this.isWriterWaiting = false;
+            }
+        }
+
+        /**
+         * Log the number of entries dropped since last logged.
+         */
+        protected void writeDropped() {
+            long dropped = this.dropped.sum();
+            if (dropped == this.reportedDropped) {
+                return;
+            }
+            SessionLogEntry entry = new SessionLogEntry(SessionLog.WARNING, null, null, "log_entries_dropped",
+                    new Object[] { Long.valueOf(dropped - this.reportedDropped), Integer.valueOf(this.entries.length) }, null, true);
+            this.reportedDropped = dropped;
+            try {
+                Writer writer = this.owner.getWriter();
+                synchronized (writer) {
+                    this.owner.writeEntry(entry);
+                    writer.flush();
+                }
+            } catch (IOException | RuntimeException exception) {
+                // ignore, as there is no caller to report it to
+            }
+        }
+
+        protected void flush(Writer writer) {
+            if (writer != null) {
+                try {
+                    writer.flush();
+                } catch (IOException exception) {
+                    // ignore, as there is no caller to report it to
+                }
+            }
+        }
+    }
+}
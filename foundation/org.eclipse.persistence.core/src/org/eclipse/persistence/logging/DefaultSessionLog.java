@@ -135,30 +135,36 @@ public void log(SessionLogEntry entry) {
 
         synchronized (this) {
             try {
-                printPrefixString(entry.getLevel(), entry.getNameSpace());
-                this.getWriter().write(getSupplementDetailString(entry));
-
-                if (entry.hasMessage()) {
-                    writeMessage(formatMessage(entry));
-                    getWriter().write(Helper.cr());
-                    getWriter().flush();
-                }
-
-                if (entry.hasException()) {
-                    if (shouldLogExceptionStackTrace()) {
-                        entry.getException().printStackTrace(new PrintWriter(getWriter()));
-                    } else {
-                        writeMessage(entry.getException().toString());
-                    }
-                    getWriter().write(Helper.cr());
-                    getWriter().flush();
-                }
+                writeEntry(entry);
+                getWriter().flush();
             } catch (IOException exception) {
                 throw ValidationException.logIOError(exception);
             }
         }
     }
 
+    /**
+     * Write the entry's prefix, details, message and exception to the writer, without flushing it.
+     */
+    protected void writeEntry(SessionLogEntry entry) throws IOException {
+        printPrefixString(entry.getLevel(), entry.getNameSpace());
+        this.getWriter().write(getSupplementDetailString(entry));
+
+        if (entry.hasMessage()) {
+            writeMessage(formatMessage(entry));
+            getWriter().write(Helper.cr());
+        }
+
+        if (entry.hasException()) {
+            if (shouldLogExceptionStackTrace()) {
+                entry.getException().printStackTrace(new PrintWriter(getWriter()));
+            } else {
+                writeMessage(entry.getException().toString());
+            }
+            getWriter().write(Helper.cr());
+        }
+    }
+
     /**
      * Set the writer that will receive the formatted log entries for a
      * file name.
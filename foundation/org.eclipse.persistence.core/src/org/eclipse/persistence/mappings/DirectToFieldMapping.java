@@ -14,9 +14,11 @@
  ******************************************************************************/
 package org.eclipse.persistence.mappings;
 
+import org.eclipse.persistence.exceptions.DescriptorException;
 import org.eclipse.persistence.internal.helper.DatabaseField;
 import org.eclipse.persistence.mappings.foundation.AbstractDirectMapping;
 import org.eclipse.persistence.internal.sessions.AbstractRecord;
+import org.eclipse.persistence.internal.sessions.AbstractSession;
 
 /**
  * <b>Purpose</b>: Maps an attribute to the corresponding database field type.
@@ -41,6 +43,16 @@ public DirectToFieldMapping() {
         super();
     }
 
+    /**
+     * INTERNAL:
+     * The mapping is initialized with the given session.
+     */
+    @Override
+    public void initialize(AbstractSession session) throws DescriptorException {
+        super.initialize(session);
+        initializePrimitiveAttributeField();
+    }
+
     /**
      * INTERNAL:
      */
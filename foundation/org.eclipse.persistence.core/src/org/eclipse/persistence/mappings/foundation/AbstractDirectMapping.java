@@ -17,6 +17,7 @@
  *****************************************************************************/
 package org.eclipse.persistence.mappings.foundation;
 
+import java.lang.reflect.Field;
 import java.security.AccessController;
 import java.security.PrivilegedActionException;
 import java.util.*;
@@ -72,6 +73,12 @@ public abstract class AbstractDirectMapping extends AbstractColumnMapping implem
     /** PERF: Also store object class of attribute in case of primitive. */
     protected transient Class attributeObjectClassification;
 
+    /** PERF: Field of a numeric primitive attribute that can be set from a primitive row value without boxing. */
+    protected transient Field primitiveAttributeField;
+
+    /** PERF: The primitive type of the primitive attribute field. */
+    protected transient byte primitiveAttributeType;
+
     /** Support specification of the value to use for null. */
     protected transient Object nullValue;
 
@@ -979,6 +986,70 @@ public void initialize(AbstractSession session) throws DescriptorException {
         }
     }
 
+    /**
+     * INTERNAL:
+     * Initialize the field used to set a numeric primitive attribute without boxing.
+     * This is only used if the attribute is accessed directly through its instance variable,
+     * and no converter or null value is used, otherwise the value must be converted as an object.
+     * @see #readPrimitiveFromRowIntoObject(PrimitiveArrayRecord, Object)
+     */
+    protected void initializePrimitiveAttributeField() {
+        this.primitiveAttributeField = null;
+        this.primitiveAttributeType = PrimitiveArrayRecord.NONE;
+        if ((this.converter != null) || (this.nullValue != null) || (this.attributeClassification == null)
+                || !this.attributeClassification.isPrimitive() || !getAttributeAccessor().isInstanceVariableAttributeAccessor()
+                || PrivilegedAccessHelper.shouldUsePrivilegedAccess()) {
+            return;
+        }
+        byte primitiveType = PrimitiveArrayRecord.getPrimitiveType(this.attributeClassification);
+        Field attributeField = ((InstanceVariableAttributeAccessor)getAttributeAccessor()).getAttributeField();
+        if ((primitiveType != PrimitiveArrayRecord.NONE) && (attributeField != null) && (attributeField.getType() == this.attributeClassification)) {
+            this.primitiveAttributeField = attributeField;
+            this.primitiveAttributeType = primitiveType;
+        }
+    }
+
+    /**
+     * INTERNAL:
+     * Set the primitive attribute directly from the row's primitive value without boxing.
+     * Return false if the value must be read as an object, in which case nothing is set.
+     * PERF: Used for optimized object building from rows fetched with primitive values.
+     */
+    public boolean readPrimitiveFromRowIntoObject(PrimitiveArrayRecord row, Object targetObject) {
+        Field attributeField = this.primitiveAttributeField;
+        if ((attributeField == null) || row.hasSopObject() || this.descriptor.getCachePolicy().isProtectedIsolation()) {
+            return false;
+        }
+        int index = row.indexOf(this.field);
+        if ((index < 0) || (row.getPrimitiveType(index) != this.primitiveAttributeType)) {
+            return false;
+        }
+        try {
+            switch (this.primitiveAttributeType) {
+                case PrimitiveArrayRecord.LONG:
+                    attributeField.setLong(targetObject, row.getLong(index));
+                    return true;
+                case PrimitiveArrayRecord.INT:
+                    attributeField.setInt(targetObject, row.getInt(index));
+                    return true;
+                case PrimitiveArrayRecord.SHORT:
+                    attributeField.setShort(targetObject, row.getShort(index));
+                    return true;
+                case PrimitiveArrayRecord.DOUBLE:
+                    attributeField.setDouble(targetObject, row.getDouble(index));
+                    return true;
+                case PrimitiveArrayRecord.FLOAT:
+                    attributeField.setFloat(targetObject, row.getFloat(index));
+                    return true;
+                default:
+                    return false;
+            }
+        } catch (IllegalAccessException exception) {
+            // Fall back to setting the value through the attribute accessor.
+            return false;
+        }
+    }
+
     /**
      * INTERNAL:
      * Build a change record.
@@ -611,28 +611,33 @@ public XPathFragment getTextWrapperFragment() {
 
     protected void writeKey(XPathFragment xPathFragment) throws IOException {
         super.openStartElement(xPathFragment, namespaceResolver);
-        writer.write('"');
-        if(xPathFragment.isAttribute() && attributePrefix != null){
-            writer.writeAttributePrefix();
-        }
-
+        String prefix = null;
         if(isNamespaceAware()){
             if(xPathFragment.getNamespaceURI() != null){
-                String prefix = null;
                 if(getNamespaceResolver() !=null){
                     prefix = getNamespaceResolver().resolveNamespaceURI(xPathFragment.getNamespaceURI());
                 } else if(namespaceResolver != null){
                     prefix = namespaceResolver.resolveNamespaceURI(xPathFragment.getNamespaceURI());
                 }
-                if(prefix != null && !prefix.equals(Constants.EMPTY_STRING)){
-                    writer.write(prefix);
-                    writer.writeNamespaceSeparator();
-                }
             }
         }
+        boolean writeAttributePrefix = xPathFragment.isAttribute() && attributePrefix != null;
+        boolean writePrefix = prefix != null && !prefix.equals(Constants.EMPTY_STRING);
 
-        writer.writeLocalName(xPathFragment);
-        writer.write('"');
+        if(!writeAttributePrefix && !writePrefix){
+            writer.writeQuotedLocalName(xPathFragment);
+        }else{
+            writer.write('"');
+            if(writeAttributePrefix){
+                writer.writeAttributePrefix();
+            }
+            if(writePrefix){
+                writer.write(prefix);
+                writer.writeNamespaceSeparator();
+            }
+            writer.writeLocalName(xPathFragment);
+            writer.write('"');
+        }
 
         writeSeparator();
     }
@@ -647,52 +652,7 @@ protected void writeValue(String value, boolean isAttribute) {
                    return;
                }
 
-              char[] chars = value.toCharArray();
-              for (int x = 0, charsSize = chars.length; x < charsSize; x++) {
-                  char character = chars[x];
-                  switch (character){
-                      case '"' : {
-                          writer.write("\\\"");
-                          break;
-                      }
-                      case '\b': {
-                          writer.write("\\b");
-                          break;
-                      }
-                      case '\f': {
-                          writer.write("\\f");
-                          break;
-                      }
-                      case '\n': {
-                          writer.write("\\n");
-                          break;
-                      }
-                      case '\r': {
-                          writer.write("\\r");
-                          break;
-                      }
-                      case '\t': {
-                          writer.write("\\t");
-                          break;
-                      }
-                      case '\\': {
-                          writer.write("\\\\");
-                          break;
-                      }
-                      default: {
-                          if(Character.isISOControl(character) || !encoder.canEncode(character)){
-                              writer.write("\\u");
-                              String hex = Integer.toHexString(character).toUpperCase();
-                              for(int i=hex.length(); i<4; i++){
-                                  writer.write("0");
-                              }
-                              writer.write(hex);
-                          }else{
-                              writer.write(character);
-                          }
-                      }
-                  }
-              }
+              writer.writeEscapedValue(value, encoder);
         } catch (IOException e) {
             throw XMLMarshalException.marshalException(e);
         }
@@ -948,16 +908,57 @@ protected static interface Output {
 
         public void writeNamespaceSeparator() throws IOException;
 
+        public void writeQuotedLocalName(XPathFragment xPathFragment) throws IOException;
+
+        public void writeEscapedValue(String value, CharsetEncoder encoder) throws IOException;
+
         public void writeResultFromCharEscapeHandler(String value, boolean isAttribute);
 
     }
 
+    /**
+     * Writes UTF-8 bytes directly to an OutputStream.  The output buffer is
+     * borrowed from a per-thread pool on the first write and handed back when
+     * the output is flushed, so marshalling many small documents on the same
+     * thread does not allocate a new buffer for each of them.
+     */
     protected static class OutputStreamOutput implements Output {
 
-        private static final int BUFFER_SIZE = 512;
+        private static final int BUFFER_SIZE = 8192;
+        private static final byte[] NO_BUFFER = new byte[0];
+        private static final ThreadLocal<byte[]> BUFFER_POOL = new ThreadLocal<byte[]>();
+        private static final byte[] HEX_DIGITS = "0123456789ABCDEF".getBytes(Constants.DEFAULT_CHARSET);
+
+        /**
+         * The escaped form of each ASCII character, or null if the character
+         * is written as is.
+         */
+        private static final byte[][] ESCAPES = new byte[128][];
+
+        static {
+            for(char character = 0; character < 0x20; character++) {
+                ESCAPES[character] = unicodeEscape(character);
+            }
+            ESCAPES[0x7F] = unicodeEscape((char) 0x7F);
+            ESCAPES['"'] = "\\\"".getBytes(Constants.DEFAULT_CHARSET);
+            ESCAPES['\\'] = "\\\\".getBytes(Constants.DEFAULT_CHARSET);
+            ESCAPES['\b'] = "\\b".getBytes(Constants.DEFAULT_CHARSET);
+            ESCAPES['\f'] = "\\f".getBytes(Constants.DEFAULT_CHARSET);
+            ESCAPES['\n'] = "\\n".getBytes(Constants.DEFAULT_CHARSET);
+            ESCAPES['\r'] = "\\r".getBytes(Constants.DEFAULT_CHARSET);
+            ESCAPES['\t'] = "\\t".getBytes(Constants.DEFAULT_CHARSET);
+        }
+
+        private static byte[] unicodeEscape(char character) {
+            return new byte[] {'\\', 'u',
+                HEX_DIGITS[(character >> 12) & 0xF],
+                HEX_DIGITS[(character >> 8) & 0xF],
+                HEX_DIGITS[(character >> 4) & 0xF],
+                HEX_DIGITS[character & 0xF]};
+        }
 
         private byte[] attributePrefix;
-        private byte[] buffer = new byte[BUFFER_SIZE];
+        private byte[] buffer = NO_BUFFER;
         private int bufferIndex = 0;
         private CharacterEscapeHandler characterEscapeHandler;
         private byte[] cr = Constants.cr().getBytes(Constants.DEFAULT_CHARSET);
@@ -973,6 +974,10 @@ protected OutputStreamOutput(OutputStream writer) {
         public void flush() throws IOException {
             outputStream.write(buffer, 0, bufferIndex);
             bufferIndex = 0;
+            if(buffer != NO_BUFFER) {
+                BUFFER_POOL.set(buffer);
+                buffer = NO_BUFFER;
+            }
             outputStream.flush();
         }
 
@@ -1002,21 +1007,42 @@ public void setMarshaller(XMLMarshaller marshaller) {
             this.namespaceSeparator = marshaller.getNamespaceSeparator();
         }
 
+        /**
+         * Make room in the buffer by writing its content to the OutputStream,
+         * borrowing a buffer from the pool if none is held yet.
+         */
+        private void spill() {
+            if(buffer == NO_BUFFER) {
+                buffer = BUFFER_POOL.get();
+                if(null == buffer) {
+                    buffer = new byte[BUFFER_SIZE];
+                } else {
+                    BUFFER_POOL.set(null);
+                }
+                return;
+            }
+            try {
+                outputStream.write(buffer, 0, bufferIndex);
+                bufferIndex = 0;
+            } catch(IOException e) {
+                throw XMLMarshalException.marshalException(e);
+            }
+        }
+
         private void write(byte[] bytes) {
             int bytesLength = bytes.length;
-            if(bufferIndex + bytesLength >= BUFFER_SIZE) {
-                try {
-                    outputStream.write(buffer, 0, bufferIndex);
-                    bufferIndex = 0;
-                    if(bytesLength > BUFFER_SIZE) {
+            if(bufferIndex + bytesLength > buffer.length) {
+                spill();
+                if(bytesLength > buffer.length) {
+                    try {
                         outputStream.write(bytes);
-                        return;
+                    } catch(IOException e) {
+                        throw XMLMarshalException.marshalException(e);
                     }
-                } catch(IOException e) {
-                    throw XMLMarshalException.marshalException(e);
+                    return;
                 }
             }
-            System.arraycopy(bytes, 0, buffer, bufferIndex, bytes.length);
+            System.arraycopy(bytes, 0, buffer, bufferIndex, bytesLength);
             bufferIndex += bytesLength;
         }
 
@@ -1052,20 +1078,34 @@ public void write(char character) throws IOException {
         }
 
         private void write(byte b) {
-            if(bufferIndex == BUFFER_SIZE) {
-                try {
-                    outputStream.write(buffer, 0, BUFFER_SIZE);
-                    bufferIndex = 0;
-                } catch(IOException e) {
-                    throw XMLMarshalException.marshalException(e);
-                }
+            if(bufferIndex == buffer.length) {
+                spill();
             }
             buffer[bufferIndex++] = b;
         }
 
         @Override
         public void write(String text) throws IOException {
-            write(text.getBytes(Constants.DEFAULT_CHARSET));
+            int length = text.length();
+            if(bufferIndex + length > buffer.length) {
+                spill();
+                if(length > buffer.length) {
+                    write(text.getBytes(Constants.DEFAULT_CHARSET));
+                    return;
+                }
+            }
+            // Copy ASCII text straight into the buffer and only fall back to
+            // the charset for text that contains other characters.
+            int start = bufferIndex;
+            for(int x = 0; x < length; x++) {
+                char character = text.charAt(x);
+                if(character > 0x7F) {
+                    bufferIndex = start;
+                    write(text.getBytes(Constants.DEFAULT_CHARSET));
+                    return;
+                }
+                buffer[bufferIndex++] = (byte) character;
+            }
         }
 
         @Override
@@ -1088,12 +1128,39 @@ public void writeNamespaceSeparator() throws IOException {
             write(namespaceSeparator);
         }
 
+        @Override
+        public void writeQuotedLocalName(XPathFragment xPathFragment) throws IOException {
+            write(xPathFragment.getQuotedLocalNameBytes());
+        }
+
+        @Override
+        public void writeEscapedValue(String value, CharsetEncoder encoder) throws IOException {
+            for (int x = 0, length = value.length(); x < length; x++) {
+                char character = value.charAt(x);
+                if(character <= 0x7F) {
+                    byte[] escape = ESCAPES[character];
+                    if(null == escape) {
+                        if(bufferIndex == buffer.length) {
+                            spill();
+                        }
+                        buffer[bufferIndex++] = (byte) character;
+                    } else {
+                        write(escape);
+                    }
+                } else if(Character.isISOControl(character) || !encoder.canEncode(character)) {
+                    write(unicodeEscape(character));
+                } else {
+                    write(character);
+                }
+            }
+        }
+
         @Override
         public void writeResultFromCharEscapeHandler(String value, boolean isAttribute) {
             try {
                 CharArrayWriter out = new CharArrayWriter();
                 characterEscapeHandler.escape(value.toCharArray(), 0, value.length(), isAttribute, out);
-                byte[] bytes = out.toString().getBytes();
+                byte[] bytes = out.toString().getBytes(Constants.DEFAULT_CHARSET);
                 write(bytes);
                 out.close();
             } catch (IOException e) {
@@ -1172,6 +1239,63 @@ public void writeNamespaceSeparator() throws IOException {
             writer.write(namespaceSeparator);
         }
 
+        @Override
+        public void writeQuotedLocalName(XPathFragment xPathFragment) throws IOException {
+            writer.write('"');
+            writer.write(xPathFragment.getLocalName());
+            writer.write('"');
+        }
+
+        @Override
+        public void writeEscapedValue(String value, CharsetEncoder encoder) throws IOException {
+            char[] chars = value.toCharArray();
+            for (int x = 0, charsSize = chars.length; x < charsSize; x++) {
+                char character = chars[x];
+                switch (character){
+                    case '"' : {
+                        writer.write("\\\"");
+                        break;
+                    }
+                    case '\b': {
+                        writer.write("\\b");
+                        break;
+                    }
+                    case '\f': {
+                        writer.write("\\f");
+                        break;
+                    }
+                    case '\n': {
+                        writer.write("\\n");
+                        break;
+                    }
+                    case '\r': {
+                        writer.write("\\r");
+                        break;
+                    }
+                    case '\t': {
+                        writer.write("\\t");
+                        break;
+                    }
+                    case '\\': {
+                        writer.write("\\\\");
+                        break;
+                    }
+                    default: {
+                        if(Character.isISOControl(character) || !encoder.canEncode(character)){
+                            writer.write("\\u");
+                            String hex = Integer.toHexString(character).toUpperCase();
+                            for(int i=hex.length(); i<4; i++){
+                                writer.write("0");
+                            }
+                            writer.write(hex);
+                        }else{
+                            writer.write(character);
+                        }
+                    }
+                }
+            }
+        }
+
         @Override
         public void writeResultFromCharEscapeHandler(String value, boolean isAttribute) {
             try {
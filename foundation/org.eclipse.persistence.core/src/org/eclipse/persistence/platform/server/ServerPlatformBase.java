@@ -21,6 +21,7 @@
  ******************************************************************************/
 package org.eclipse.persistence.platform.server;
 
+import java.lang.reflect.Method;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.security.PrivilegedActionException;
@@ -30,6 +31,7 @@
 
 import javax.persistence.spi.PersistenceUnitInfo;
 
+import org.eclipse.persistence.config.ThreadPoolType;
 import org.eclipse.persistence.exceptions.ValidationException;
 import org.eclipse.persistence.internal.sessions.AbstractSession;
 import org.eclipse.persistence.internal.sessions.DatabaseSessionImpl;
@@ -135,6 +137,12 @@ public abstract class ServerPlatformBase implements ServerPlatform {
      */
     protected int threadPoolSize = 32;
 
+    /**
+     * Allow the type of thread pool to be configured.
+     * @see ThreadPoolType
+     */
+    protected String threadPoolType = ThreadPoolType.DEFAULT;
+
     /**
      * Allow pooling of threads for asynchronous processing in RCM and other areas.
      */
@@ -503,6 +511,23 @@ public void setThreadPoolSize(int threadPoolSize) {
         this.threadPoolSize = threadPoolSize;
     }
 
+    /**
+     * Return the type of thread pool used for asynchronous processing.
+     * @see ThreadPoolType
+     */
+    public String getThreadPoolType() {
+        return threadPoolType;
+    }
+
+    /**
+     * Set the type of thread pool used for asynchronous processing.
+     * This must be set before the thread pool is first used.
+     * @see ThreadPoolType
+     */
+    public void setThreadPoolType(String threadPoolType) {
+        this.threadPoolType = threadPoolType;
+    }
+
     /**
      * INTERNAL: Return the thread pool, initializing if required.
      */
@@ -510,13 +535,33 @@ public ExecutorService getThreadPool() {
         if ((threadPool == null) && (this.threadPoolSize > 0)) {
             synchronized (this) {
                 if (threadPool == null) {
-                    threadPool = Executors.newFixedThreadPool(getThreadPoolSize());
+                    threadPool = buildThreadPool();
                 }
             }
         }
         return threadPool;
     }
 
+    /**
+     * INTERNAL: Build the thread pool for the thread pool type.
+     * A virtual thread per task executor is used if the JVM supports it,
+     * otherwise a work stealing pool is used.
+     */
+    protected ExecutorService buildThreadPool() {
+        if (ThreadPoolType.Virtual.equalsIgnoreCase(this.threadPoolType)) {
+            try {
+                Method method = PrivilegedAccessHelper.getMethod(Executors.class, "newVirtualThreadPerTaskExecutor", new Class[0], false);
+                return (ExecutorService)PrivilegedAccessHelper.invokeMethod(method, null);
+            } catch (Exception unsupported) {
+                // Virtual threads require JDK 21, fall back to a work stealing pool.
+                return Executors.newWorkStealingPool(getThreadPoolSize());
+            }
+        } else if (ThreadPoolType.WorkStealing.equalsIgnoreCase(this.threadPoolType)) {
+            return Executors.newWorkStealingPool(getThreadPoolSize());
+        }
+        return Executors.newFixedThreadPool(getThreadPoolSize());
+    }
+
     /**
      * INTERNAL: Set the thread pool to use.
      */
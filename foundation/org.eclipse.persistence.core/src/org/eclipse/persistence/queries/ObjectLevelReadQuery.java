@@ -48,11 +48,14 @@
 import org.eclipse.persistence.history.AsOfClause;
 import org.eclipse.persistence.internal.databaseaccess.DatabaseCall;
 import org.eclipse.persistence.internal.descriptors.OptimisticLockingPolicy;
+import org.eclipse.persistence.internal.expressions.CollectionExpression;
+import org.eclipse.persistence.internal.expressions.ExpressionIterator;
 import org.eclipse.persistence.internal.expressions.FieldExpression;
 import org.eclipse.persistence.internal.expressions.ForUpdateClause;
 import org.eclipse.persistence.internal.expressions.ForUpdateOfClause;
 import org.eclipse.persistence.internal.expressions.ObjectExpression;
 import org.eclipse.persistence.internal.expressions.QueryKeyExpression;
+import org.eclipse.persistence.internal.expressions.TreatAsExpression;
 import org.eclipse.persistence.internal.helper.DatabaseField;
 import org.eclipse.persistence.internal.helper.DeferredLockManager;
 import org.eclipse.persistence.internal.helper.InvalidObject;
@@ -560,6 +563,53 @@ public Object deepClone() {
         return clone;
     }
 
+    /**
+     * INTERNAL:
+     * Replace the expressions of the query with copies from the map of copied expressions,
+     * so that a clone of the query does not share any expression with the original query.
+     * Expressions reached more than once are copied once, so the copy keeps the same aliasing.
+     * This must be called on an unprepared clone of the query.
+     */
+    public void copyExpressions(Map alreadyDone) {
+        if (getSelectionCriteria() != null) {
+            setSelectionCriteria(getSelectionCriteria().copiedVersionFrom(alreadyDone));
+        }
+        if (this.defaultBuilder != null) {
+            this.defaultBuilder = (ExpressionBuilder)this.defaultBuilder.copiedVersionFrom(alreadyDone);
+        }
+        if (this.joinedAttributeManager != null) {
+            this.joinedAttributeManager.copyExpressions(alreadyDone);
+        }
+        this.nonFetchJoinAttributeExpressions = copyExpressions(this.nonFetchJoinAttributeExpressions, alreadyDone);
+        this.partialAttributeExpressions = copyExpressions(this.partialAttributeExpressions, alreadyDone);
+        this.orderByExpressions = copyExpressions(this.orderByExpressions, alreadyDone);
+        if (this.additionalFields != null) {
+            List<Object> fields = new ArrayList<>(this.additionalFields.size());
+            for (Object field : this.additionalFields) {
+                if (field instanceof Expression) {
+                    field = ((Expression)field).copiedVersionFrom(alreadyDone);
+                }
+                fields.add(field);
+            }
+            this.additionalFields = fields;
+        }
+    }
+
+    /**
+     * INTERNAL:
+     * Return copies of the expressions from the map of copied expressions.
+     */
+    protected static List<Expression> copyExpressions(List<Expression> expressions, Map alreadyDone) {
+        if (expressions == null) {
+            return null;
+        }
+        List<Expression> copies = new ArrayList<>(expressions.size());
+        for (Expression expression : expressions) {
+            copies.add(expression.copiedVersionFrom(alreadyDone));
+        }
+        return copies;
+    }
+
     /**
      * PUBLIC:
      * Set the query to lock, this will also turn refreshCache on.
@@ -1485,6 +1535,150 @@ public boolean hasOrderByExpressions() {
         return (orderByExpressions != null) && (!orderByExpressions.isEmpty());
     }
 
+    /**
+     * INTERNAL:
+     * Return the names of the attributes of the reference class the query results depend on,
+     * used in the selection criteria, ordering, joins or the descriptor's additional criteria,
+     * or null if not known, such as for custom SQL, unions, sub-selects or SQL literals and operators.
+     * Attributes of related objects are not included, changes to other classes the query joins
+     * always invalidate the results. The attributes are also not known if the query traverses a
+     * relationship to its own reference class, such as a manager or a self-referencing collection,
+     * as changes to the related objects are then changes to the reference class.
+     * @see QueryResultsCachePolicy#setIsInvalidationSelective(boolean)
+     */
+    @Override
+    public Set<String> getQueryResultsInvalidationAttributes() {
+        if (!isExpressionQuery() || hasUnionExpressions() || (this.descriptor == null)) {
+            return null;
+        }
+        Set<String> attributes = new HashSet<String>();
+        if (!addQueryResultsInvalidationAttributes(getSelectionCriteria(), attributes)
+                || !addQueryResultsInvalidationAttributes(this.descriptor.getQueryManager().getAdditionalJoinExpression(), attributes)) {
+            return null;
+        }
+        if (hasOrderByExpressions()) {
+            for (Expression orderBy : this.orderByExpressions) {
+                if (!addQueryResultsInvalidationAttributes(orderBy, attributes)) {
+                    return null;
+                }
+            }
+        }
+        if (hasJoining()) {
+            for (Expression join : this.joinedAttributeManager.getJoinedAttributeExpressions()) {
+                if (!addQueryResultsInvalidationAttributes(join, attributes)) {
+                    return null;
+                }
+            }
+            for (Expression join : this.joinedAttributeManager.getJoinedMappingExpressions()) {
+                if (!addQueryResultsInvalidationAttributes(join, attributes)) {
+                    return null;
+                }
+            }
+        }
+        return attributes;
+    }
+
+    /**
+     * INTERNAL:
+     * Add the names of the attributes the expression uses on an expression builder, including the first
+     * attribute of any relationship traversed, and the attributes mapping any field the expression uses.
+     * Return false if the expression can use attributes that are not known, including the attributes
+     * of related objects of the reference class.
+     */
+    protected boolean addQueryResultsInvalidationAttributes(Expression expression, final Set<String> attributes) {
+        if (expression == null) {
+            return true;
+        }
+        final ClassDescriptor descriptor = this.descriptor;
+        ExpressionIterator iterator = new ExpressionIterator() {
+            @Override
+            public void iterate(Expression each) {
+                if (each.isTreatExpression()) {
+                    return;
+                } else if (each.isQueryKeyExpression()) {
+                    if (isBuilder(((QueryKeyExpression)each).getBaseExpression())) {
+                        attributes.add(each.getName());
+                    } else if (traversesReferenceClass((QueryKeyExpression)each)) {
+                        setResult(Boolean.FALSE);
+                    }
+                } else if (each.isFieldExpression()) {
+                    // Fields of the query class are known from their mappings, unmapped fields do not change.
+                    if (isBuilder(((FieldExpression)each).getBaseExpression())) {
+                        DatabaseField field = ((FieldExpression)each).getField();
+                        DatabaseMapping mapping = descriptor.getObjectBuilder().getMappingForField(field);
+                        if (mapping != null) {
+                            attributes.add(mapping.getAttributeName());
+                        }
+                        List<DatabaseMapping> readOnlyMappings = descriptor.getObjectBuilder().getReadOnlyMappingsForField(field);
+                        if (readOnlyMappings != null) {
+                            for (DatabaseMapping readOnlyMapping : readOnlyMappings) {
+                                attributes.add(readOnlyMapping.getAttributeName());
+                            }
+                        }
+                    }
+                } else if (each.isFunctionExpression() || each.isCompoundExpression()) {
+                    // User defined operators may print SQL using any column.
+                    if (each.getOperator().getSelector() == 0) {
+                        setResult(Boolean.FALSE);
+                    }
+                } else if (!(each.isExpressionBuilder() || each.isConstantExpression() || each.isParameterExpression()
+                        || each.isClassTypeExpression() || (each instanceof CollectionExpression))) {
+                    setResult(Boolean.FALSE);
+                }
+            }
+
+            protected boolean isBuilder(Expression base) {
+                while ((base != null) && base.isTreatExpression()) {
+                    base = ((TreatAsExpression)base).getBaseExpression();
+                }
+                return (base != null) && base.isExpressionBuilder();
+            }
+
+            /**
+             * Return if the relationships traversed to the query key's base can reference objects
+             * of the reference class, or cannot be resolved.
+             */
+            protected boolean traversesReferenceClass(QueryKeyExpression queryKey) {
+                List<String> path = new ArrayList<String>();
+                Expression base = queryKey.getBaseExpression();
+                while ((base != null) && !base.isExpressionBuilder()) {
+                    if (base.isQueryKeyExpression()) {
+                        path.add(0, base.getName());
+                        base = ((QueryKeyExpression)base).getBaseExpression();
+                    } else if (base.isTreatExpression()) {
+                        base = ((TreatAsExpression)base).getBaseExpression();
+                    } else {
+                        return true;
+                    }
+                }
+                Class referenceClass = descriptor.getJavaClass();
+                // A parallel builder of another class queries objects whose mappings are not known here.
+                if ((base == null) || ((((ExpressionBuilder)base).getQueryClass() != null) && (((ExpressionBuilder)base).getQueryClass() != referenceClass))) {
+                    return true;
+                }
+                ClassDescriptor currentDescriptor = descriptor;
+                for (String attributeName : path) {
+                    DatabaseMapping mapping = currentDescriptor.getObjectBuilder().getMappingForAttributeName(attributeName);
+                    if (mapping == null) {
+                        return true;
+                    }
+                    currentDescriptor = mapping.getReferenceDescriptor();
+                    if (currentDescriptor == null) {
+                        return true;
+                    }
+                    Class relatedClass = currentDescriptor.getJavaClass();
+                    if (referenceClass.isAssignableFrom(relatedClass) || relatedClass.isAssignableFrom(referenceClass)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+        };
+        iterator.setResult(Boolean.TRUE);
+        iterator.iterateOn(expression);
+        return iterator.getResult() == Boolean.TRUE;
+    }
+
     /**
      * INTERNAL:
      * The unions are lazy initialized to conserve space.
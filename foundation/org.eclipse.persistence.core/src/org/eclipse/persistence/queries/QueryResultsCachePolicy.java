@@ -28,6 +28,10 @@
  * Query results are cached based on the parameter values of a query, and the maximum number
  * of results refers to the maximum number of parameter sets results will be cached for.\
  * By default query result caching is not used.
+ * <p>
+ * A maximum cached size can be set instead to bound the cache by the estimated bytes of the results,
+ * results are then evicted by the time saved by their hits relative to their size.
+ * The query results can be set to only be invalidated by changes to the attributes the query uses.
  *
  * @see org.eclipse.persistence.queries.ReadQuery#setQueryResultsCachePolicy(QueryResultsCachePolicy)
  */
@@ -44,6 +48,10 @@ public class QueryResultsCachePolicy implements Serializable, Cloneable {
     protected boolean invalidateOnChange;
     /** Stores the set of classes that should trigger the query cached results to be invalidated. */
     protected Set<Class> invalidationClasses;
+    /** Specifies the maximum estimated size in bytes of the cached results, -1 if bounded by the number of results. */
+    protected long maximumCachedSize;
+    /** Allows the query cache to only be invalidated by changes to the attributes used by the query. */
+    protected boolean isInvalidationSelective;
 
     /**
      * PUBLIC:
@@ -69,6 +77,8 @@ public QueryResultsCachePolicy(CacheInvalidationPolicy policy, int maximumResult
         this.isNullIgnored = false;
         this.invalidateOnChange = true;
         this.invalidationClasses = new HashSet<Class>();
+        this.maximumCachedSize = -1;
+        this.isInvalidationSelective = false;
     }
 
     public QueryResultsCachePolicy clone() {
@@ -250,4 +260,51 @@ public int getMaximumCachedResults() {
     public void setMaximumCachedResults(int maximumResultSets) {
         this.maximumResultSets = maximumResultSets;
     }
+
+    /**
+     * PUBLIC:
+     * Return the maximum estimated size in bytes of the cached results.
+     * By default this is -1 and the cache is bounded by the maximum number of cached results.
+     */
+    public long getMaximumCachedSize() {
+        return maximumCachedSize;
+    }
+
+    /**
+     * PUBLIC:
+     * Set the maximum estimated size in bytes of the cached results.
+     * This bounds the cache by the size of the results instead of their number, the cache type and maximum cached
+     * results are then ignored.  Each result's size is estimated from the objects and values it holds.
+     * When the size is exceeded the results saving the least query time per byte are discarded,
+     * the time saved is the time the query took to execute multiplied by the number of times the result was hit.
+     * Results larger than the maximum size are not cached.
+     */
+    public void setMaximumCachedSize(long maximumCachedSize) {
+        this.maximumCachedSize = maximumCachedSize;
+    }
+
+    /**
+     * PUBLIC:
+     * Return if the query results are only invalidated by changes to the attributes used by the query.
+     * By default any change to an object of the query classes invalidates the query results.
+     */
+    public boolean isInvalidationSelective() {
+        return isInvalidationSelective;
+    }
+
+    /**
+     * PUBLIC:
+     * Set if the query results are only invalidated by changes to the attributes used by the query.
+     * By default any change to an object of the query classes invalidates the query results.
+     * If set, a change to an existing object of a query class only invalidates the results if it changes an
+     * attribute used in the query's selection criteria, ordering, joins or report items.
+     * New and deleted objects always invalidate the results, as does any change if the query uses custom SQL,
+     * sub-selects or SQL literals, or traverses a relationship to its own class such as a manager,
+     * as the attributes used by the query are then not known.
+     * This requires the changes to be known, so a change invalidating an object without its changes,
+     * such as a cache coordination invalidation, always invalidates the results.
+     */
+    public void setIsInvalidationSelective(boolean isInvalidationSelective) {
+        this.isInvalidationSelective = isInvalidationSelective;
+    }
 }
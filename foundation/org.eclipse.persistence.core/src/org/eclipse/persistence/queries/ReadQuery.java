@@ -13,6 +13,7 @@
 package org.eclipse.persistence.queries;
 
 import java.util.List;
+import java.util.Set;
 import java.util.Vector;
 
 import org.eclipse.persistence.internal.databaseaccess.DatabasePlatform;
@@ -59,6 +60,9 @@ public abstract class ReadQuery extends DatabaseQuery {
     /** Optimization: temporarily stores cached query results while they are being built in a cloned query */
     protected transient Object temporaryCachedQueryResults = null;
 
+    /** Records the time the execution clone started executing, to compute the cost of the cached query results. */
+    protected transient long queryResultsExecutionStartTime = 0;
+
     /** Stores the JPA maxResult settings for a NamedQuery */
     protected int maxResults = -1;
 
@@ -117,7 +121,9 @@ protected void clonedQueryExecutionComplete(DatabaseQuery query, AbstractSession
             // If the temporary results were never set, then don't cache null.
             if (result != null) {
                 // Cached query results must exist on the original query rather than the cloned one.
-                setQueryResults(result, query.getTranslationRow(), query.getSession());
+                long startTime = ((ReadQuery)query).queryResultsExecutionStartTime;
+                long cost = (startTime == 0) ? 0 : (System.nanoTime() - startTime);
+                setQueryResults(result, query.getTranslationRow(), query.getSession(), cost);
             }
         }
     }
@@ -252,6 +258,17 @@ public Object getTemporaryCachedQueryResults(){
         return temporaryCachedQueryResults;
     }
 
+    /**
+     * INTERNAL:
+     * Return the names of the attributes of the reference class the query results depend on,
+     * or null if not known, in which case any change to the reference class invalidates the results.
+     * This is used by selective query results cache invalidation.
+     * @see QueryResultsCachePolicy#setIsInvalidationSelective(boolean)
+     */
+    public Set<String> getQueryResultsInvalidationAttributes() {
+        return null;
+    }
+
     /**
      * INTERNAL:
      * Return true if the query uses default properties.
@@ -317,6 +334,9 @@ protected void prepare() throws QueryException {
      */
     public void prepareForExecution() throws QueryException {
         super.prepareForExecution();
+        if (shouldCacheQueryResults()) {
+            this.queryResultsExecutionStartTime = System.nanoTime();
+        }
         DatabaseCall databaseCall = this.getCall();
         if ( databaseCall !=null && (databaseCall.shouldIgnoreFirstRowSetting() || databaseCall.shouldIgnoreMaxResultsSetting())){
             AbstractRecord parameters = this.getTranslationRow();
@@ -350,9 +370,10 @@ public Object remoteExecute(AbstractSession session) throws DatabaseException {
             if (queryResults != null) {
                 return queryResults;
             }
+            long startTime = System.nanoTime();
             queryResults = super.remoteExecute(session);
             if (queryResults != null){
-                setQueryResults(queryResults, arguments, session);
+                setQueryResults(queryResults, arguments, session, System.nanoTime() - startTime);
             }
             return queryResults;
         }
@@ -445,13 +466,22 @@ public void setFetchSize(int fetchSize) {
      * This will only be set if the query caches results.
      */
     protected void setQueryResults(Object resultFromQuery, AbstractRecord row, AbstractSession session) {
+        setQueryResults(resultFromQuery, row, session, 0);
+    }
+
+    /**
+     * INTERNAL:
+     * Set the cached results of the query, with the time in nanoseconds the query took to build them.
+     * This will only be set if the query caches results.
+     */
+    protected void setQueryResults(Object resultFromQuery, AbstractRecord row, AbstractSession session, long cost) {
         Vector arguments = null;
         if (row == null) {
             arguments =  new NonSynchronizedVector(1);
         } else {
             arguments =  row.getValues();
         }
-        session.getIdentityMapAccessorInstance().putQueryResult(this, arguments, resultFromQuery);
+        session.getIdentityMapAccessorInstance().putQueryResult(this, arguments, resultFromQuery, cost);
     }
 
     /**
@@ -709,6 +709,47 @@ public Object clone() {
         return cloneQuery;
     }
 
+    /**
+     * INTERNAL:
+     * Replace the expressions of the query, including its report items, with copies from the map of copied expressions,
+     * so that a clone of the query does not share any expression with the original query.
+     */
+    @Override
+    public void copyExpressions(Map alreadyDone) {
+        super.copyExpressions(alreadyDone);
+        for (ReportItem item : this.items) {
+            copyExpressions(item, alreadyDone);
+        }
+        this.groupByExpressions = copyExpressions(this.groupByExpressions, alreadyDone);
+        if (this.havingExpression != null) {
+            this.havingExpression = this.havingExpression.copiedVersionFrom(alreadyDone);
+        }
+    }
+
+    private void copyExpressions(ReportItem item, Map alreadyDone) {
+        if (item.getAttributeExpression() != null) {
+            item.setAttributeExpression(item.getAttributeExpression().copiedVersionFrom(alreadyDone));
+        }
+        if (item.getJoinedAttributeManagerInternal() != null) {
+            item.getJoinedAttributeManagerInternal().copyExpressions(alreadyDone);
+        }
+        if (item.isConstructorItem()) {
+            ConstructorReportItem constructorItem = (ConstructorReportItem)item;
+            List<ReportItem> items = new ArrayList<ReportItem>(constructorItem.getReportItems().size());
+            for (ReportItem nestedItem : (List<ReportItem>)constructorItem.getReportItems()) {
+                ReportItem nestedCopy = (ReportItem)nestedItem.clone();
+                if (nestedItem.getJoinedAttributeManagerInternal() != null) {
+                    JoinedAttributeManager manager = nestedItem.getJoinedAttributeManagerInternal().clone();
+                    manager.setBaseQuery(this);
+                    nestedCopy.setJoinedAttributeManager(manager);
+                }
+                copyExpressions(nestedCopy, alreadyDone);
+                items.add(nestedCopy);
+            }
+            constructorItem.setReportItems(items);
+        }
+    }
+
     /**
      * INTERNAL: Required for a very special case of bug 2612185:
      * ReportItems from parallelExpressions, on a ReportQuery which is a subQuery,
@@ -881,6 +922,53 @@ public boolean hasGroupByExpressions() {
         return (this.groupByExpressions != null) && (!this.groupByExpressions.isEmpty());
     }
 
+    /**
+     * INTERNAL:
+     * Return the names of the attributes of the reference class the report results depend on,
+     * also including the attributes used by the report items, group bys and having,
+     * or null if not known.
+     * @see QueryResultsCachePolicy#setIsInvalidationSelective(boolean)
+     */
+    @Override
+    public Set<String> getQueryResultsInvalidationAttributes() {
+        Set<String> attributes = super.getQueryResultsInvalidationAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        if (!addQueryResultsInvalidationAttributes(this.items, attributes)
+                || !addQueryResultsInvalidationAttributes(this.havingExpression, attributes)) {
+            return null;
+        }
+        if (hasGroupByExpressions()) {
+            for (Expression groupBy : this.groupByExpressions) {
+                if (!addQueryResultsInvalidationAttributes(groupBy, attributes)) {
+                    return null;
+                }
+            }
+        }
+        return attributes;
+    }
+
+    /**
+     * INTERNAL:
+     * Add the names of the attributes the report items use, including the items of constructor items.
+     * Return false if the items can use attributes that are not known.
+     */
+    protected boolean addQueryResultsInvalidationAttributes(List<ReportItem> items, Set<String> attributes) {
+        if (items == null) {
+            return true;
+        }
+        for (ReportItem item : items) {
+            if (!addQueryResultsInvalidationAttributes(item.getAttributeExpression(), attributes)) {
+                return false;
+            }
+            if (item.isConstructorItem() && !addQueryResultsInvalidationAttributes(((ConstructorReportItem)item).getReportItems(), attributes)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * INTERNAL:
      * Set the group bys.
@@ -57,6 +57,9 @@ public abstract class Sequence implements Serializable, Cloneable {
     // note that even if set to false sequence always overrides if shouldAcquireValueAfterInsert returns true.
     protected boolean shouldAlwaysOverrideExistingValue;
 
+    // number of preallocated values remaining at which the next values are allocated in the background, 0 disables.
+    protected int preallocationLowWaterMark;
+
     public Sequence() {
         super();
         setName("SEQUENCE");
@@ -394,6 +397,28 @@ public boolean shouldAlwaysOverrideExistingValue(String seqName) {
         return this.shouldAlwaysOverrideExistingValue || shouldAcquireValueAfterInsert();
     }
 
+    /**
+     * PUBLIC:
+     * Return the number of remaining preallocated values at which the next values are allocated
+     * in the background. By default this is 0, and values are only allocated once the preallocated values run out.
+     */
+    public int getPreallocationLowWaterMark() {
+        return preallocationLowWaterMark;
+    }
+
+    /**
+     * PUBLIC:
+     * Set the number of remaining preallocated values at which the next values are allocated in the background,
+     * so the database access happens before the preallocated values run out, and threads do not wait for it.
+     * This is only used in a server session, when the sequence uses a transaction on a separate sequencing connection,
+     * i.e. a TableSequence, UnaryTableSequence or QuerySequence with the sequencing connection pool.
+     * Values are otherwise allocated when the preallocated values run out.
+     * The value should be less than the preallocation size, 0 (the default) disables background allocation.
+     */
+    public void setPreallocationLowWaterMark(int preallocationLowWaterMark) {
+        this.preallocationLowWaterMark = preallocationLowWaterMark;
+    }
+
     public String toString() {
         return getClass().getSimpleName() + "(" + getName() + ")";
     }
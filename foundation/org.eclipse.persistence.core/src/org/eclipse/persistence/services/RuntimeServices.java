@@ -15,6 +15,7 @@
 package org.eclipse.persistence.services;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
@@ -35,6 +36,7 @@
 import javax.management.openmbean.TabularDataSupport;
 import javax.management.openmbean.TabularType;
 
+import org.eclipse.persistence.config.ProfilerType;
 import org.eclipse.persistence.descriptors.ClassDescriptor;
 import org.eclipse.persistence.internal.databaseaccess.DatabaseAccessor;
 import org.eclipse.persistence.internal.databaseaccess.DatabasePlatform;
@@ -43,6 +45,8 @@
 import org.eclipse.persistence.internal.helper.Helper;
 import org.eclipse.persistence.internal.identitymaps.CacheIdentityMap;
 import org.eclipse.persistence.internal.identitymaps.CacheKey;
+import org.eclipse.persistence.internal.identitymaps.ClockCacheIdentityMap;
+import org.eclipse.persistence.internal.identitymaps.QueryResultsCacheStatistics;
 import org.eclipse.persistence.internal.identitymaps.FullIdentityMap;
 import org.eclipse.persistence.internal.identitymaps.HardCacheWeakIdentityMap;
 import org.eclipse.persistence.internal.identitymaps.IdentityMap;
@@ -62,6 +66,8 @@
 import org.eclipse.persistence.sessions.Session;
 import org.eclipse.persistence.sessions.server.ConnectionPool;
 import org.eclipse.persistence.sessions.server.ServerSession;
+import org.eclipse.persistence.tools.profiler.ConcurrentPerformanceMonitor;
+import org.eclipse.persistence.tools.profiler.OperationStatistics;
 import org.eclipse.persistence.tools.profiler.PerformanceProfiler;
 
 
@@ -536,11 +542,13 @@ public void printProfileSummaryByQuery() {
 
        /**
         *        This method is used to get the type of profiling.
-        *   Possible values are: "EclipseLink" or "None".
+        *   Possible values are: "EclipseLink", "ConcurrentPerformanceMonitor" or "None".
         */
         public synchronized String getProfilingType() {
             if (getUsesEclipseLinkProfiling().booleanValue()) {
                 return EclipseLink_Product_Name;
+            } else if (getUsesConcurrentPerformanceMonitor().booleanValue()) {
+                return ProfilerType.ConcurrentPerformanceMonitor;
             } else {
                 return "None";
             }
@@ -548,7 +556,7 @@ public synchronized String getProfilingType() {
 
         /**
         *        This method is used to select the type of profiling.
-        *   Valid values are: "EclipseLink" or "None". These values are not case sensitive.
+        *   Valid values are: "EclipseLink", "ConcurrentPerformanceMonitor" or "None". These values are not case sensitive.
         *   null is considered  to be "None".
         */
         public synchronized void setProfilingType(String profileType) {
@@ -556,6 +564,8 @@ public synchronized void setProfilingType(String profileType) {
                 this.setUseNoProfiling();
             } else if (profileType.compareToIgnoreCase(EclipseLink_Product_Name) == 0) {
                 this.setUseEclipseLinkProfiling();
+            } else if (profileType.compareToIgnoreCase(ProfilerType.ConcurrentPerformanceMonitor) == 0) {
+                this.setUseConcurrentPerformanceMonitor();
             }
         }
 
@@ -584,6 +594,89 @@ public Boolean getUsesEclipseLinkProfiling() {
             return Boolean.valueOf(getSession().getProfiler() instanceof PerformanceProfiler);
         }
 
+        /**
+        *        This method is used to turn on the low overhead ConcurrentPerformanceMonitor,
+        *        which can be left on in production.
+        */
+        public void setUseConcurrentPerformanceMonitor() {
+            if (getUsesConcurrentPerformanceMonitor().booleanValue()) {
+                return;
+            }
+            getSession().setProfiler(new ConcurrentPerformanceMonitor());
+        }
+
+        /**
+        *        This method answers true if the ConcurrentPerformanceMonitor is on.
+        */
+        public Boolean getUsesConcurrentPerformanceMonitor() {
+            return Boolean.valueOf(getSession().getProfiler() instanceof ConcurrentPerformanceMonitor);
+        }
+
+        /**
+        *        This method answers the statistics of each operation monitored by the ConcurrentPerformanceMonitor,
+        *        one row per operation with columns "Operation", "Count", "Total Time", "Mean Time", "Max Time",
+        *        "P50", "P99", "P999" and "Value". Times are in nanoseconds, percentiles are -1 if not computed.
+        *        Answer an empty array if the ConcurrentPerformanceMonitor is not on.
+        */
+        public Object[][] getOperationStatistics() {
+            if (!getUsesConcurrentPerformanceMonitor().booleanValue()) {
+                return new Object[0][];
+            }
+            Collection<OperationStatistics> statistics = ((ConcurrentPerformanceMonitor)getSession().getProfiler()).getStatistics().values();
+            Object[][] rows = new Object[statistics.size()][];
+            int index = 0;
+            for (OperationStatistics operation : statistics) {
+                rows[index++] = new Object[] {
+                    operation.getName(), operation.getCount(), operation.getTotalTime(), operation.getMeanTime(), operation.getMaxTime(),
+                    operation.getP50(), operation.getP99(), operation.getP999(), (operation.getValue() == null) ? null : operation.getValue().toString() };
+            }
+            return rows;
+        }
+
+        /**
+        *        This method assumes the ConcurrentPerformanceMonitor is on.
+        *        This will log at the INFO level the statistics of each monitored operation.
+        */
+        public void printOperationStatistics() {
+            if (!getUsesConcurrentPerformanceMonitor().booleanValue()) {
+                return;
+            }
+            ConcurrentPerformanceMonitor monitor = (ConcurrentPerformanceMonitor)getSession().getProfiler();
+            getSession().getSessionLog().info(monitor.buildStatisticsSummary());
+        }
+
+        /**
+        *        This method answers the query results cache statistics of each named query that caches its results,
+        *        one row per query with columns "Query", "Hits", "Misses", "Hit Rate", "Invalidations", "Retentions",
+        *        "Invalidation Rate" and "Evictions". Retentions are changes to the query classes that did not invalidate
+        *        the results, and evictions are results evicted to bound the size of the cache.
+        */
+        public Object[][] getQueryResultsCacheStatistics() {
+            // Copy the statistics as queries may be added concurrently.
+            List<QueryResultsCacheStatistics> statistics = new ArrayList<QueryResultsCacheStatistics>(
+                    getSession().getIdentityMapAccessorInstance().getIdentityMapManager().getQueryResultsCacheStatistics().values());
+            Object[][] rows = new Object[statistics.size()][];
+            int index = 0;
+            for (QueryResultsCacheStatistics query : statistics) {
+                rows[index++] = new Object[] {
+                    query.getQueryName(), query.getHits(), query.getMisses(), query.getHitRate(),
+                    query.getInvalidations(), query.getRetentions(), query.getInvalidationRate(), query.getEvictions() };
+            }
+            return rows;
+        }
+
+        /**
+        *        This method will log at the INFO level the query results cache statistics of each named query.
+        */
+        public void printQueryResultsCacheStatistics() {
+            StringBuilder summary = new StringBuilder("Query results cache statistics:");
+            for (QueryResultsCacheStatistics query : getSession().getIdentityMapAccessorInstance().getIdentityMapManager().getQueryResultsCacheStatistics().values()) {
+                summary.append(Helper.cr());
+                summary.append(query);
+            }
+            getSession().getSessionLog().info(summary.toString());
+        }
+
         /**
          * PUBLIC: Answer the EclipseLink log level at deployment time. This is read-only.
          */
@@ -848,6 +941,8 @@ public Vector getMappedClassNamesUsingFilter(String filter) {
      protected String getCacheTypeFor(Class identityMapClass) {
          if (identityMapClass == CacheIdentityMap.class) {
              return "Cache";
+         } else if (identityMapClass == ClockCacheIdentityMap.class) {
+             return "Clock";
          } else if (identityMapClass == FullIdentityMap.class) {
              return "Full";
          } else if (identityMapClass == HardCacheWeakIdentityMap.class) {
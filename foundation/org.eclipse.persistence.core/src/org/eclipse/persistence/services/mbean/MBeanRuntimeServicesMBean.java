@@ -280,13 +280,13 @@ public interface MBeanRuntimeServicesMBean {
 
     /**
     *        This method is used to get the type of profiling.
-    *   Possible values are: "EclipseLink" or "None".
+    *   Possible values are: "EclipseLink", "ConcurrentPerformanceMonitor" or "None".
     */
     public  String getProfilingType();
 
     /**
     *        This method is used to select the type of profiling.
-    *   Valid values are: "EclipseLink" or "None". These values are not case sensitive.
+    *   Valid values are: "EclipseLink", "ConcurrentPerformanceMonitor" or "None". These values are not case sensitive.
     *   null is considered  to be "None".
     */
     public  void setProfilingType(String profileType);
@@ -301,6 +301,44 @@ public interface MBeanRuntimeServicesMBean {
     */
     public Boolean getUsesEclipseLinkProfiling();
 
+    /**
+    *        This method is used to turn on the low overhead ConcurrentPerformanceMonitor,
+    *        which can be left on in production.
+    */
+    public void setUseConcurrentPerformanceMonitor();
+
+    /**
+    *        This method answers true if the ConcurrentPerformanceMonitor is on.
+    */
+    public Boolean getUsesConcurrentPerformanceMonitor();
+
+    /**
+    *        This method answers the statistics of each operation monitored by the ConcurrentPerformanceMonitor,
+    *        one row per operation with columns "Operation", "Count", "Total Time", "Mean Time", "Max Time",
+    *        "P50", "P99", "P999" and "Value". Times are in nanoseconds, percentiles are -1 if not computed.
+    *        Answer an empty array if the ConcurrentPerformanceMonitor is not on.
+    */
+    public Object[][] getOperationStatistics();
+
+    /**
+    *        This method assumes the ConcurrentPerformanceMonitor is on.
+    *        This will log at the INFO level the statistics of each monitored operation.
+    */
+    public void printOperationStatistics();
+
+    /**
+    *        This method answers the query results cache statistics of each named query that caches its results,
+    *        one row per query with columns "Query", "Hits", "Misses", "Hit Rate", "Invalidations", "Retentions",
+    *        "Invalidation Rate" and "Evictions". Retentions are changes to the query classes that did not invalidate
+    *        the results, and evictions are results evicted to bound the size of the cache.
+    */
+    public Object[][] getQueryResultsCacheStatistics();
+
+    /**
+    *        This method will log at the INFO level the query results cache statistics of each named query.
+    */
+    public void printQueryResultsCacheStatistics();
+
     /**
     *        This method is used to turn off all Performance Profiling, DMS or EclipseLink.
     */
@@ -51,6 +51,7 @@
 import org.eclipse.persistence.descriptors.ClassDescriptor;
 import org.eclipse.persistence.descriptors.MultitenantPolicy;
 import org.eclipse.persistence.descriptors.partitioning.PartitioningPolicy;
+import org.eclipse.persistence.internal.helper.ConcurrencyManager;
 import org.eclipse.persistence.internal.helper.ConcurrentFixedCache;
 import org.eclipse.persistence.internal.helper.Helper;
 import org.eclipse.persistence.internal.helper.NonSynchronizedVector;
@@ -107,9 +108,27 @@ public class Project extends CoreProject<ClassDescriptor, Login, DatabaseSession
     /** PERF: Provide an JPQL parse cache to optimize dynamic JPQL. */
     protected transient ConcurrentFixedCache jpqlParseCache;
 
+    /** PERF: Provide a cache of prepared criteria queries to optimize dynamic criteria queries. */
+    protected transient ConcurrentFixedCache criteriaQueryCache;
+
     /** Define the default setting for configuring if dates and calendars are mutable. */
     protected boolean defaultTemporalMutable = false;
 
+    /** PERF: Allow independent descriptors to be initialized in parallel on login. */
+    protected boolean shouldInitializeDescriptorsInParallel = false;
+
+    /** PERF: Allow the registered objects of a unit of work to be compared in parallel on commit. */
+    protected boolean shouldCalculateChangesInParallel = false;
+
+    /** PERF: Allow the changes of a unit of work to be merged into the shared cache in parallel. */
+    protected boolean shouldMergeChangesInParallel = false;
+
+    /** PERF: Allow calls sent to multiple partitions to be executed on each partition in parallel. */
+    protected boolean shouldExecutePartitionsInParallel = false;
+
+    /** PERF: Allow the cache keys of the sessions of the project to acquire read locks without synchronizing. */
+    protected boolean shouldUseLockFreeReadLocks = ConcurrencyManager.shouldUseLockFreeReadLocks();
+
     /** Indicates whether there is at least one descriptor that has at least on mapping that
      *  require a call on deleted objects to update change sets.
      */
@@ -322,6 +341,47 @@ protected void setJPQLParseCache(ConcurrentFixedCache jpqlParseCache) {
         this.jpqlParseCache = jpqlParseCache;
     }
 
+    /**
+     * INTERNAL:
+     * Return the criteria query cache.
+     * This caches the prepared queries of criteria queries by their structure,
+     * to optimize dynamic criteria queries.
+     * The cache's hit, miss and eviction counts show how effective it is.
+     */
+    public ConcurrentFixedCache getCriteriaQueryCache() {
+        if (criteriaQueryCache == null) {
+            criteriaQueryCache = new ConcurrentFixedCache(200);
+        }
+        return criteriaQueryCache;
+    }
+
+    /**
+     * ADVANCED:
+     * Set the criteria query cache max size.
+     * This is used to optimize dynamic criteria queries, 0 disables the cache.
+     */
+    public void setCriteriaQueryCacheMaxSize(int maxSize) {
+        setCriteriaQueryCache(new ConcurrentFixedCache(maxSize));
+    }
+
+    /**
+     * ADVANCED:
+     * Return the criteria query cache max size.
+     * This is used to optimize dynamic criteria queries.
+     */
+    public int getCriteriaQueryCacheMaxSize() {
+        return getCriteriaQueryCache().getMaxSize();
+    }
+
+    /**
+     * INTERNAL:
+     * Set the criteria query cache.
+     * This is used to optimize dynamic criteria queries.
+     */
+    protected void setCriteriaQueryCache(ConcurrentFixedCache criteriaQueryCache) {
+        this.criteriaQueryCache = criteriaQueryCache;
+    }
+
     /**
      * INTERNAL:
      * List of queries that upon initialization are copied over to the session
@@ -1057,6 +1117,114 @@ public boolean hasVPDIdentifier(AbstractSession session) {
     public void setHasProxyIndirection(boolean hasProxyIndirection) {
         this.hasProxyIndirection = hasProxyIndirection;
     }
+
+    /**
+     * ADVANCED:
+     * Return if the descriptors are initialized in parallel on login.
+     * @see #setShouldInitializeDescriptorsInParallel(boolean)
+     */
+    public boolean shouldInitializeDescriptorsInParallel() {
+        return this.shouldInitializeDescriptorsInParallel;
+    }
+
+    /**
+     * ADVANCED:
+     * Set if the descriptors should be initialized in parallel on login.
+     * Descriptors are grouped by inheritance, and groups that do not reference
+     * each other through their mappings are initialized concurrently on a fork-join pool.
+     * Each initialization phase still completes for all descriptors before the next one starts.
+     * This is intended to reduce the login time of projects with a large number of descriptors,
+     * by default descriptors are initialized sequentially.
+     */
+    public void setShouldInitializeDescriptorsInParallel(boolean shouldInitializeDescriptorsInParallel) {
+        this.shouldInitializeDescriptorsInParallel = shouldInitializeDescriptorsInParallel;
+    }
+
+    /**
+     * ADVANCED:
+     * Return if the registered objects of a unit of work are compared in parallel on commit.
+     * @see #setShouldCalculateChangesInParallel(boolean)
+     */
+    public boolean shouldCalculateChangesInParallel() {
+        return this.shouldCalculateChangesInParallel;
+    }
+
+    /**
+     * ADVANCED:
+     * Set if the registered objects of a unit of work should be compared to their
+     * backup clones in parallel on commit, to find the objects that have not changed.
+     * Change sets are still computed sequentially in the same order, so events and
+     * the resulting change set are the same as without this setting.
+     * This is intended to reduce the commit time of units of work with a large number of
+     * objects using deferred change detection, by default objects are compared sequentially.
+     */
+    public void setShouldCalculateChangesInParallel(boolean shouldCalculateChangesInParallel) {
+        this.shouldCalculateChangesInParallel = shouldCalculateChangesInParallel;
+    }
+
+    /**
+     * ADVANCED:
+     * Return if the changes of a unit of work are merged into the shared cache in parallel.
+     * @see #setShouldMergeChangesInParallel(boolean)
+     */
+    public boolean shouldMergeChangesInParallel() {
+        return this.shouldMergeChangesInParallel;
+    }
+
+    /**
+     * ADVANCED:
+     * Set if the changes of a unit of work should be merged into the shared cache in parallel on commit.
+     * Existing objects that only changed direct attributes are merged concurrently once the cache locks
+     * of the commit are acquired, other objects are merged sequentially as usual.
+     * This is intended to reduce the time readers wait on the locked objects of commits changing
+     * a large number of objects, by default changes are merged sequentially.
+     */
+    public void setShouldMergeChangesInParallel(boolean shouldMergeChangesInParallel) {
+        this.shouldMergeChangesInParallel = shouldMergeChangesInParallel;
+    }
+
+    /**
+     * ADVANCED:
+     * Return if the cache keys of the sessions of this project acquire read locks without synchronizing.
+     * @see #setShouldUseLockFreeReadLocks(boolean)
+     */
+    public boolean shouldUseLockFreeReadLocks() {
+        return this.shouldUseLockFreeReadLocks;
+    }
+
+    /**
+     * ADVANCED:
+     * Set if the cache keys of the sessions of this project should acquire and release read locks
+     * without synchronizing on the cache key when no other thread holds its lock.
+     * The setting applies to the cache keys created after it is set, so should be set before login,
+     * each cache key keeps the mode it was created with.
+     * This reduces contention for objects that are read concurrently by many threads,
+     * by default this is the value of the "eclipselink.cache.lock-free-read-locks" system property.
+     */
+    public void setShouldUseLockFreeReadLocks(boolean shouldUseLockFreeReadLocks) {
+        this.shouldUseLockFreeReadLocks = shouldUseLockFreeReadLocks;
+    }
+
+    /**
+     * ADVANCED:
+     * Return if queries sent to multiple partitions are executed on each partition in parallel.
+     * @see #setShouldExecutePartitionsInParallel(boolean)
+     */
+    public boolean shouldExecutePartitionsInParallel() {
+        return this.shouldExecutePartitionsInParallel;
+    }
+
+    /**
+     * ADVANCED:
+     * Set if queries that a partitioning policy, such as a union or replication policy, sends to multiple
+     * partitions should be executed on each partition in parallel using the server platform's threads.
+     * The results are gathered as a single result, ordered, limited to the query's first result and max rows,
+     * and with the count, sum, min and max aggregates of report queries combined across the partitions.
+     * By default the query is executed on each partition in turn and the results appended.
+     */
+    public void setShouldExecutePartitionsInParallel(boolean shouldExecutePartitionsInParallel) {
+        this.shouldExecutePartitionsInParallel = shouldExecutePartitionsInParallel;
+    }
     /**
      * PUBLIC:
      * Set the login to be used to connect to the database for this project.
@@ -33,6 +33,7 @@ public interface SessionProfiler {
     public static final String LoginTime = "Info:LoginTime";
     public static final String RcmStatus = "Info:CacheCoordinationStatus";
     public static final String CacheSize = "Info:CacheSize";//TODO
+    public static final String BatchSize = "Info:BatchSize";
 
     public static final String ClientSessionCreated = "Counter:ClientSessionCreates";
     public static final String ClientSessionReleased = "Counter:ClientSessionReleases";
@@ -48,6 +49,14 @@ public interface SessionProfiler {
     public static final String Disconnects = "Counter:DisconnectCalls";
     public static final String CacheHits = "Counter:CacheHits";
     public static final String CacheMisses = "Counter:CacheMisses";
+    public static final String StatementCacheHits = "Counter:StatementCacheHits";
+    public static final String StatementCacheMisses = "Counter:StatementCacheMisses";
+    public static final String StatementCacheEvictions = "Counter:StatementCacheEvictions";
+    public static final String CriteriaQueryCacheHits = "Counter:CriteriaQueryCacheHits";
+    public static final String CriteriaQueryCacheMisses = "Counter:CriteriaQueryCacheMisses";
+    public static final String BatchFlushesOnSize = "Counter:BatchFlushesOnSize";
+    public static final String BatchFlushesOnCommitOrder = "Counter:BatchFlushesOnCommitOrder";
+    public static final String BatchFlushesOnExecute = "Counter:BatchFlushesOnExecute";
     public static final String ChangeSetsProcessed = "Counter:ChangesProcessed";
     public static final String ChangeSetsNotProcessed = "Counter:ChangesNotProcessed";
 
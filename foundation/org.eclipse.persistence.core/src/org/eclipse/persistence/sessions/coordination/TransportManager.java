@@ -323,8 +323,9 @@ public void addConnectionToExternalService(RemoteConnection connection) {
     public void removeConnectionToExternalService(RemoteConnection connection) {
         synchronized (this) {
             connectionsToExternalServices.remove(connection.getServiceId().getId());
-            connection.close();
         }
+        // Close outside the lock, closing may block on the network.
+        connection.close();
     }
 
     /**
@@ -332,13 +333,14 @@ public void removeConnectionToExternalService(RemoteConnection connection) {
      * Remove all remote connections from the list.
      */
     public void removeAllConnectionsToExternalServices() {
+        Enumeration connections = null;
         synchronized (this) {
-            Enumeration connections = connectionsToExternalServices.elements();
+            connections = connectionsToExternalServices.elements();
             connectionsToExternalServices = new Hashtable(3);
-
-            while (connections.hasMoreElements()) {
-                ((RemoteConnection)connections.nextElement()).close();
-            }
+        }
+        // Close outside the lock, closing may block on the network.
+        while (connections.hasMoreElements()) {
+            ((RemoteConnection)connections.nextElement()).close();
         }
     }
 
@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.sessions.serializers;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.eclipse.persistence.internal.helper.CustomObjectInputStream;
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.internal.sessions.ChangeSetCodec;
+import org.eclipse.persistence.sessions.Session;
+import org.eclipse.persistence.sessions.coordination.MergeChangeSetCommand;
+
+/**
+ * Serializes cache coordination commands in a compact binary form.
+ * <p>
+ * The change set of a {@link MergeChangeSetCommand} is written using indexes of the
+ * session's descriptors and mappings instead of class descriptions, with variable length
+ * integers, so all nodes must use the same project. Any other command, or any change set
+ * with change records other than direct, object reference, aggregate or unordered
+ * collection changes, is written with Java serialization.
+ * <p>
+ * Payloads of at least the compression threshold are also compressed, by default
+ * payloads are not compressed.
+ *
+ * @see org.eclipse.persistence.config.PersistenceUnitProperties#COORDINATION_SERIALIZER
+ * @see org.eclipse.persistence.sessions.coordination.RemoteCommandManager#setSerializer(Serializer)
+ */
+public class ChangeSetSerializer extends AbstractSerializer {
+
+    /** The format of the payload, in its first byte. */
+    protected static final int JAVA = 0;
+    protected static final int COMPACT = 1;
+    protected static final int DEFLATED = 0x80;
+
+    /** The minimum size of a payload to compress, or -1 to never compress. */
+    protected int compressionThreshold = -1;
+
+    /** The descriptor and mapping indexes, built from the session. */
+    protected transient volatile ChangeSetCodec codec;
+
+    public ChangeSetSerializer() {
+    }
+
+    public ChangeSetSerializer(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    /**
+     * Return the minimum size in bytes of a payload to compress, or -1 if payloads are never compressed.
+     */
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    /**
+     * Set the minimum size in bytes of a payload to compress, or -1 to never compress payloads.
+     */
+    public void setCompressionThreshold(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    @Override
+    public void initialize(Class serializeClass, String serializePackage, Session session) {
+        if (session != null) {
+            this.codec = new ChangeSetCodec((AbstractSession)session);
+        }
+    }
+
+    protected ChangeSetCodec getCodec(Session session) {
+        ChangeSetCodec codec = this.codec;
+        if (codec == null) {
+            codec = new ChangeSetCodec((AbstractSession)session);
+            this.codec = codec;
+        }
+        return codec;
+    }
+
+    @Override
+    public Object serialize(Object object, Session session) {
+        ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
+        try {
+            byteOut.write(COMPACT);
+            boolean isCompact = false;
+            if ((session != null) && (object != null) && (object.getClass() == MergeChangeSetCommand.class)) {
+                DataOutputStream dataOut = new DataOutputStream(byteOut);
+                isCompact = getCodec(session).write((MergeChangeSetCommand)object, dataOut);
+                dataOut.flush();
+            }
+            if (!isCompact) {
+                byteOut.reset();
+                byteOut.write(JAVA);
+                ObjectOutputStream objectOut = new ObjectOutputStream(byteOut);
+                objectOut.writeObject(object);
+                objectOut.flush();
+            }
+        } catch (IOException exception) {
+            throw new RuntimeException(exception);
+        }
+        byte[] bytes = byteOut.toByteArray();
+        if ((this.compressionThreshold >= 0) && (bytes.length >= this.compressionThreshold)) {
+            bytes = compress(bytes);
+        }
+        return bytes;
+    }
+
+    /**
+     * Compress the payload after the format byte.
+     */
+    protected byte[] compress(byte[] bytes) {
+        ByteArrayOutputStream byteOut = new ByteArrayOutputStream(bytes.length / 2);
+        byteOut.write(bytes[0] | DEFLATED);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            DeflaterOutputStream deflaterOut = new DeflaterOutputStream(byteOut, deflater);
+            deflaterOut.write(bytes, 1, bytes.length - 1);
+            deflaterOut.finish();
+        } catch (IOException exception) {
+            throw new RuntimeException(exception);
+        } finally {
+            deflater.end();
+        }
+        return byteOut.toByteArray();
+    }
+
+    @Override
+    public Object deserialize(Object bytes, Session session) {
+        byte[] data = (byte[])bytes;
+        int format = data[0] & 0xFF;
+        InputStream in = new ByteArrayInputStream(data, 1, data.length - 1);
+        if ((format & DEFLATED) != 0) {
+            in = new BufferedInputStream(new InflaterInputStream(in), 8192);
+        }
+        try {
+            if ((format & ~DEFLATED) == COMPACT) {
+                try (DataInputStream dataIn = new DataInputStream(in)) {
+                    return getCodec(session).read(dataIn, (AbstractSession)session);
+                }
+            }
+            try (ObjectInputStream objectIn = session == null
+                    ? new ObjectInputStream(in)
+                    : new CustomObjectInputStream(in, session)) {
+                return objectIn.readObject();
+            }
+        } catch (IOException | ClassNotFoundException exception) {
+            throw new RuntimeException(exception);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,695 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.sessions.server;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import org.eclipse.persistence.exceptions.ConcurrencyException;
+import org.eclipse.persistence.exceptions.DatabaseException;
+import org.eclipse.persistence.internal.databaseaccess.Accessor;
+import org.eclipse.persistence.logging.SessionLog;
+import org.eclipse.persistence.sessions.Login;
+
+/**
+ * <p>
+ * <b>Purpose</b>: A connection pool that does not lock to acquire or release a connection.
+ * <p>
+ * Provides the same exclusive connection pooling as the ConnectionPool, but without a single monitor
+ * that all acquires and releases contend on.
+ * Each connection has an atomic state, a connection is acquired by switching an idle connection to in use.
+ * A thread first tries the last connection it used, as it is likely to still be idle, then the other connections.
+ * <p>
+ * When all connections are in use and the pool is at its max size, threads wait in FIFO order,
+ * a released connection is handed directly to the longest waiting thread.
+ * If the wait timeout is exceeded a ConcurrencyException is thrown.
+ * <p>
+ * If an idle timeout is set, connections above the min size are kept for reuse until idle for the timeout,
+ * otherwise they are disconnected when released, as in the ConnectionPool.
+ * If a validation interval is set, idle connections are periodically checked and invalid ones removed.
+ * Both are done by a dedicated daemon thread, that is stopped when the pool is shutdown.
+ * <p>
+ * Failover pools are supported as in the ConnectionPool.
+ * For a shared read pool, the ReadConnectionPool should still be used.
+ *
+ * @see ConnectionPool
+ * @see ServerSession
+ */
+public class ConcurrentConnectionPool extends ConnectionPool {
+    /** Connection states. */
+    protected static final int IDLE = 0;
+    protected static final int IN_USE = 1;
+    protected static final int RESERVED = 2;
+    protected static final int REMOVED = 3;
+
+    /** Marks a waiter that stopped waiting, so no connection can be handed to it. */
+    protected static final Object CANCELLED = new Object();
+
+    /**
+     * INTERNAL:
+     * The pooled state of a connection.
+     */
+    protected static class PooledConnection {
+        protected final Accessor accessor;
+        protected final AtomicInteger state;
+        protected volatile long lastReleased;
+        protected volatile long lastValidated;
+        /** Referenced by the threads that last used the connection, so they do not keep it reachable once removed. */
+        protected final WeakReference<PooledConnection> reference;
+
+        protected PooledConnection(Accessor accessor, int state) {
+            this.accessor = accessor;
+            this.state = new AtomicInteger(state);
+            this.reference = new WeakReference<PooledConnection>(this);
+            this.lastReleased = System.currentTimeMillis();
+            this.lastValidated = this.lastReleased;
+        }
+    }
+
+    /**
+     * INTERNAL:
+     * A thread waiting for a connection, released connections are handed to it directly.
+     */
+    protected static class Waiter {
+        protected final Thread thread;
+        protected final AtomicReference<Object> connection;
+
+        protected Waiter() {
+            this.thread = Thread.currentThread();
+            this.connection = new AtomicReference<Object>();
+        }
+    }
+
+    /** All of the pool's connections, idle or in use. */
+    protected List<PooledConnection> connections;
+    /** Used to find the pooled state of a connection on release. */
+    protected Map<Accessor, PooledConnection> pooledConnections;
+    /** The number of connections, including connections being built, used to enforce the max. */
+    protected AtomicInteger numberOfConnections;
+    /** Threads waiting for a connection, in FIFO order. */
+    protected ConcurrentLinkedQueue<Waiter> waiters;
+    /** The last connection used by each thread, tried first on acquire. */
+    protected ThreadLocal<WeakReference<PooledConnection>> lastConnection;
+    /** Checks the idle connections if an idle timeout or validation interval is set. */
+    protected Thread idleConnectionChecker;
+
+    /** Time in milliseconds before an idle connection above the min size is disconnected, 0 disconnects on release. */
+    protected int idleTimeout;
+    /** Time in milliseconds between validations of idle connections, 0 means no background validation. */
+    protected int validationInterval;
+
+    /**
+     * PUBLIC:
+     * A concurrent connection pool is used to specify how connection should be pooled in a server session.
+     */
+    public ConcurrentConnectionPool() {
+        super();
+    }
+
+    /**
+     * PUBLIC:
+     * A concurrent connection pool is used to specify how connection should be pooled in a server session.
+     */
+    public ConcurrentConnectionPool(String name, Login login, ServerSession owner) {
+        super(name, login, owner);
+    }
+
+    /**
+     * PUBLIC:
+     * A concurrent connection pool is used to specify how connection should be pooled in a server session.
+     */
+    public ConcurrentConnectionPool(String name, Login login, int minNumberOfConnections, int maxNumberOfConnections, ServerSession owner) {
+        super(name, login, minNumberOfConnections, maxNumberOfConnections, owner);
+    }
+
+    /**
+     * PUBLIC:
+     * A concurrent connection pool is used to specify how connection should be pooled in a server session.
+     */
+    public ConcurrentConnectionPool(String name, Login login, int initialNumberOfConnections, int minNumberOfConnections, int maxNumberOfConnections, ServerSession owner) {
+        super(name, login, initialNumberOfConnections, minNumberOfConnections, maxNumberOfConnections, owner);
+    }
+
+    /**
+     * INTERNAL:
+     * Build a concurrent pool with the same configuration as the pool.
+     */
+    public ConcurrentConnectionPool(ConnectionPool pool) {
+        this(pool.getName(), pool.getLogin(), pool.getInitialNumberOfConnections(), pool.getMinNumberOfConnections(), pool.getMaxNumberOfConnections(), pool.getOwner());
+        setWaitTimeout(pool.getWaitTimeout());
+        setFailoverConnectionPools(new ArrayList<String>(pool.getFailoverConnectionPools()));
+    }
+
+    /**
+     * INTERNAL:
+     * Acquire an idle connection, build a new connection if below the max size,
+     * or wait until a connection is released.
+     */
+    @Override
+    public Accessor acquireConnection() throws ConcurrencyException {
+        // Check for dead database and fail-over.
+        if (this.isDead) {
+            return failover();
+        }
+        PooledConnection pooled = null;
+        // Do not take an idle connection ahead of waiting threads.
+        if (this.waiters.isEmpty()) {
+            pooled = claimIdleConnection();
+        }
+        while ((pooled == null) || (this.checkConnections && !validateConnection(pooled))) {
+            pooled = null;
+            if (this.isDead) {
+                return failover();
+            }
+            if (reserveConnection()) {
+                Accessor connection = null;
+                try {
+                    connection = buildConnection();
+                } catch (RuntimeException failed) {
+                    this.numberOfConnections.decrementAndGet();
+                    signalWaiter();
+                    if (!this.failoverConnectionPools.isEmpty()) {
+                        this.isDead = true;
+                        this.timeOfDeath = System.currentTimeMillis();
+                        this.owner.logThrowable(SessionLog.WARNING, SessionLog.SQL, failed);
+                        return acquireConnection();
+                    } else {
+                        throw failed;
+                    }
+                }
+                pooled = addConnection(connection, IN_USE);
+                break;
+            }
+            pooled = waitForConnection();
+        }
+        this.lastConnection.set(pooled.reference);
+        Accessor connection = pooled.accessor;
+        if (this.owner.isInProfile()) {
+            this.owner.updateProfile(MONITOR_HEADER + this.name, getConnectionsUsed().size());
+        }
+        if (this.owner.shouldLog(SessionLog.FINEST, SessionLog.CONNECTION)) {
+            Object[] args = new Object[1];
+            args[0] = this.name;
+            this.owner.log(SessionLog.FINEST, SessionLog.CONNECTION, "acquire_connection", args, connection);
+        }
+        return connection;
+    }
+
+    /**
+     * INTERNAL:
+     * Switch an idle connection to in use, first trying the last connection used by the thread.
+     * Return null if no connection is idle.
+     */
+    protected PooledConnection claimIdleConnection() {
+        WeakReference<PooledConnection> reference = this.lastConnection.get();
+        if (reference != null) {
+            PooledConnection last = reference.get();
+            if ((last != null) && last.state.compareAndSet(IDLE, IN_USE)) {
+                return last;
+            }
+        }
+        for (PooledConnection pooled : this.connections) {
+            if ((pooled.state.get() == IDLE) && pooled.state.compareAndSet(IDLE, IN_USE)) {
+                return pooled;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * INTERNAL:
+     * Reserve a place for a new connection if the pool is below its max size.
+     */
+    protected boolean reserveConnection() {
+        while (true) {
+            int size = this.numberOfConnections.get();
+            if (size >= this.maxNumberOfConnections) {
+                return false;
+            }
+            if (this.numberOfConnections.compareAndSet(size, size + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * INTERNAL:
+     * Add the new connection to the pool, its place must already be reserved.
+     */
+    protected PooledConnection addConnection(Accessor connection, int state) {
+        PooledConnection pooled = new PooledConnection(connection, state);
+        this.pooledConnections.put(connection, pooled);
+        this.connections.add(pooled);
+        return pooled;
+    }
+
+    /**
+     * INTERNAL:
+     * Remove the connection from the pool, it must be in use or reserved by the caller.
+     * The connection is not disconnected.
+     */
+    protected void removeConnection(PooledConnection pooled) {
+        if (pooled.state.getAndSet(REMOVED) != REMOVED) {
+            this.connections.remove(pooled);
+            this.pooledConnections.remove(pooled.accessor);
+            this.numberOfConnections.decrementAndGet();
+        }
+        if (this.lastConnection.get() == pooled.reference) {
+            this.lastConnection.remove();
+        }
+        // Other threads only reference the removed connection weakly.
+        pooled.reference.clear();
+    }
+
+    /**
+     * INTERNAL:
+     * EclipseLink has encountered a problem with a connection where the database no longer responded.
+     * Check the acquired connection, if it failed remove it from the pool and return false,
+     * if it is good stop checking connections.
+     */
+    protected boolean validateConnection(PooledConnection pooled) {
+        Accessor connection = pooled.accessor;
+        if (this.owner.getLogin().isConnectionHealthValidatedOnError() && this.owner.getServerPlatform().wasFailureCommunicationBased(null, connection, this.owner)) {
+            removeConnection(pooled);
+            try {
+                //connection failed connect test
+                connection.closeConnection();
+            } catch (Exception ex){
+                //ignore
+            } finally {
+                connection.releaseCustomizer();
+            }
+            signalWaiter();
+            return false;
+        }
+        this.checkConnections = false;
+        return true;
+    }
+
+    /**
+     * INTERNAL:
+     * Wait until a connection is handed to this thread, or the wait timeout is exceeded.
+     * Return null if the thread was woken without a connection, to retry building a new connection.
+     */
+    protected PooledConnection waitForConnection() throws ConcurrencyException {
+        Waiter waiter = new Waiter();
+        this.waiters.add(waiter);
+        try {
+            long deadline = 0;
+            if (this.waitTimeout > 0) {
+                deadline = System.nanoTime() + (this.waitTimeout * 1000000L);
+            }
+            while (true) {
+                Object handed = waiter.connection.get();
+                if (handed != null) {
+                    return (PooledConnection)handed;
+                }
+                // A connection may have been released or removed before this thread was queued,
+                // only the first waiter checks to keep the FIFO order.
+                if (this.waiters.peek() == waiter) {
+                    PooledConnection pooled = claimIdleConnection();
+                    if ((pooled != null) || (this.numberOfConnections.get() < this.maxNumberOfConnections) || this.isDead) {
+                        if (!waiter.connection.compareAndSet(null, CANCELLED)) {
+                            // A connection was also handed to this thread, return the extra one.
+                            if (pooled == null) {
+                                return (PooledConnection)waiter.connection.get();
+                            }
+                            releasePooledConnection((PooledConnection)waiter.connection.get());
+                        }
+                        return pooled;
+                    }
+                }
+                if (deadline == 0) {
+                    LockSupport.park(this);
+                } else {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        if (waiter.connection.compareAndSet(null, CANCELLED)) {
+                            throw ConcurrencyException.waitTimeoutOnConnectionPool(this.name, this.waitTimeout);
+                        }
+                        return (PooledConnection)waiter.connection.get();
+                    }
+                    LockSupport.parkNanos(this, remaining);
+                }
+                if (Thread.interrupted()) {
+                    if (waiter.connection.compareAndSet(null, CANCELLED)) {
+                        throw ConcurrencyException.waitFailureOnClientSession(new InterruptedException());
+                    }
+                    // Keep the interrupt for the caller, but use the connection that was handed over.
+                    Thread.currentThread().interrupt();
+                    return (PooledConnection)waiter.connection.get();
+                }
+            }
+        } finally {
+            this.waiters.remove(waiter);
+            // Let the next waiter check for idle connections in case this waiter was the first.
+            signalWaiter();
+        }
+    }
+
+    /**
+     * INTERNAL:
+     * Wake the first waiting thread to check for an idle connection or build a new connection.
+     */
+    protected void signalWaiter() {
+        Waiter waiter = this.waiters.peek();
+        if (waiter != null) {
+            LockSupport.unpark(waiter.thread);
+        }
+    }
+
+    /**
+     * INTERNAL:
+     * Hand the in use connection to the longest waiting thread, or make it idle if no threads are waiting.
+     */
+    protected void releasePooledConnection(PooledConnection pooled) {
+        Waiter waiter = this.waiters.poll();
+        while (waiter != null) {
+            if (waiter.connection.compareAndSet(null, pooled)) {
+                LockSupport.unpark(waiter.thread);
+                return;
+            }
+            waiter = this.waiters.poll();
+        }
+        pooled.lastReleased = System.currentTimeMillis();
+        pooled.state.set(IDLE);
+        // A thread may have started waiting after the waiters were checked.
+        signalWaiter();
+    }
+
+    /**
+     * INTERNAL:
+     * Return the connection to the pool, or disconnect it if it is invalid,
+     * or if the pool is above its min size and no idle timeout is set.
+     */
+    @Override
+    public void releaseConnection(Accessor connection) throws DatabaseException {
+        if (this.owner.shouldLog(SessionLog.FINEST, SessionLog.CONNECTION)) {
+            Object[] args = new Object[1];
+            args[0] = this.name;
+            this.owner.log(SessionLog.FINEST, SessionLog.CONNECTION, "release_connection", args, connection);
+        }
+        connection.reset();
+
+        PooledConnection pooled = this.pooledConnections.get(connection);
+        if (pooled == null) {
+            // The pool was shutdown or reset while the connection was in use.
+            try {
+                connection.disconnect(this.owner);
+            } catch (DatabaseException ex) {
+                // Ignore.
+            }
+        } else if (!connection.isValid()) {
+            this.checkConnections = true;
+            removeConnection(pooled);
+            try {
+                connection.disconnect(this.owner);
+            } catch (DatabaseException ex) {
+                //this is an invalid connection so expect an exception.
+            }
+            signalWaiter();
+        } else if ((this.idleTimeout == 0) && (this.numberOfConnections.get() > this.minNumberOfConnections) && this.waiters.isEmpty()) {
+            removeConnection(pooled);
+            connection.disconnect(this.owner);
+            signalWaiter();
+        } else {
+            releasePooledConnection(pooled);
+        }
+        if (this.owner.isInProfile()) {
+            this.owner.updateProfile(MONITOR_HEADER + this.name, getConnectionsUsed().size());
+        }
+    }
+
+    /**
+     * INTERNAL:
+     * Disconnect idle connections above the min size that have been idle for the idle timeout,
+     * and validate idle connections that have not been validated within the validation interval.
+     * This is called periodically by the background thread.
+     */
+    public void checkIdleConnections() {
+        long now = System.currentTimeMillis();
+        for (PooledConnection pooled : this.connections) {
+            if ((pooled.state.get() != IDLE) || !pooled.state.compareAndSet(IDLE, RESERVED)) {
+                continue;
+            }
+            Accessor connection = pooled.accessor;
+            if ((this.idleTimeout > 0) && ((now - pooled.lastReleased) >= this.idleTimeout)
+                    && (this.numberOfConnections.get() > this.minNumberOfConnections)) {
+                removeConnection(pooled);
+                try {
+                    connection.disconnect(this.owner);
+                } catch (DatabaseException ex) {
+                    // Ignore.
+                }
+                continue;
+            }
+            if ((this.validationInterval > 0) && ((now - pooled.lastValidated) >= this.validationInterval)) {
+                pooled.lastValidated = now;
+                if (this.owner.getServerPlatform().wasFailureCommunicationBased(null, connection, this.owner)) {
+                    removeConnection(pooled);
+                    try {
+                        connection.closeConnection();
+                    } catch (Exception ex) {
+                        // Ignore.
+                    } finally {
+                        connection.releaseCustomizer();
+                    }
+                    signalWaiter();
+                    continue;
+                }
+            }
+            pooled.state.set(IDLE);
+            signalWaiter();
+        }
+    }
+
+    /**
+     * INTERNAL:
+     * Start the thread that checks idle connections, if an idle timeout or validation interval is set.
+     * A dedicated daemon thread is used rather than the server platform's thread pool,
+     * as it runs for the life of the pool. The thread is interrupted when the pool is shutdown.
+     */
+    protected void startIdleConnectionChecks() {
+        final long interval = getIdleCheckInterval();
+        if (interval <= 0) {
+            return;
+        }
+        final List<PooledConnection> poolConnections = this.connections;
+        this.idleConnectionChecker = new Thread(new Runnable() {
+            public void run() {
+                // Stop if the pool is shutdown, or shutdown and started again.
+                while (isConnected() && (poolConnections == connections)) {
+                    try {
+                        Thread.sleep(interval);
+                    } catch (InterruptedException exception) {
+                        return;
+                    }
+                    if (isConnected() && (poolConnections == connections)) {
+                        try {
+                            checkIdleConnections();
+                        } catch (RuntimeException exception) {
+                            owner.logThrowable(SessionLog.WARNING, SessionLog.CONNECTION, exception);
+                        }
+                    }
+                }
+            }
+        }, "EclipseLink idle connection checker (" + this.name + ")");
+        this.idleConnectionChecker.setDaemon(true);
+        this.idleConnectionChecker.start();
+    }
+
+    /**
+     * INTERNAL:
+     * Stop the thread that checks idle connections, if started.
+     */
+    protected void stopIdleConnectionChecks() {
+        Thread checker = this.idleConnectionChecker;
+        if (checker != null) {
+            this.idleConnectionChecker = null;
+            checker.interrupt();
+        }
+    }
+
+    /**
+     * INTERNAL:
+     * Return the time in milliseconds between checks of the idle connections, 0 if not required.
+     */
+    protected long getIdleCheckInterval() {
+        if (this.idleTimeout <= 0) {
+            return Math.max(0, this.validationInterval);
+        } else if (this.validationInterval <= 0) {
+            return this.idleTimeout;
+        }
+        return Math.min(this.idleTimeout, this.validationInterval);
+    }
+
+    /**
+     * INTERNAL:
+     * Return a snapshot of the connections currently available for use in the pool.
+     */
+    @Override
+    public List<Accessor> getConnectionsAvailable() {
+        return getConnections(IDLE);
+    }
+
+    /**
+     * Return a snapshot of the connections that are being used.
+     */
+    @Override
+    protected List<Accessor> getConnectionsUsed() {
+        return getConnections(IN_USE);
+    }
+
+    /**
+     * Return a snapshot of the connections in the state.
+     */
+    protected List<Accessor> getConnections(int state) {
+        List<Accessor> connections = new ArrayList<Accessor>(this.connections.size());
+        for (PooledConnection pooled : this.connections) {
+            if (pooled.state.get() == state) {
+                connections.add(pooled.accessor);
+            }
+        }
+        return connections;
+    }
+
+    /**
+     * INTERNAL:
+     * Return the total number of connections currently in use.
+     */
+    @Override
+    public int getTotalNumberOfConnections() {
+        return this.numberOfConnections.get();
+    }
+
+    /**
+     * INTERNAL:
+     * Return if a connection is idle.
+     */
+    @Override
+    public boolean hasConnectionAvailable() {
+        for (PooledConnection pooled : this.connections) {
+            if (pooled.state.get() == IDLE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * INTERNAL:
+     * Reset the connections on shutDown and when the pool is started.
+     */
+    @Override
+    public void resetConnections() {
+        super.resetConnections();
+        this.connections = new CopyOnWriteArrayList<PooledConnection>();
+        this.pooledConnections = new ConcurrentHashMap<Accessor, PooledConnection>();
+        this.numberOfConnections = new AtomicInteger();
+        this.waiters = new ConcurrentLinkedQueue<Waiter>();
+        this.lastConnection = new ThreadLocal<WeakReference<PooledConnection>>();
+    }
+
+    /**
+     * INTERNAL:
+     * Disconnect all connections.
+     */
+    @Override
+    public synchronized void shutDown() {
+        setIsConnected(false);
+        stopIdleConnectionChecks();
+        this.lastConnection.remove();
+        for (PooledConnection pooled : this.connections) {
+            pooled.state.set(REMOVED);
+            pooled.reference.clear();
+            try {
+                pooled.accessor.disconnect(getOwner());
+            } catch (DatabaseException exception) {
+                // Ignore.
+            }
+        }
+        resetConnections();
+    }
+
+    /**
+     * INTERNAL:
+     * Allocate the initial connections.
+     */
+    @Override
+    public synchronized void startUp() {
+        if (isConnected()) {
+            return;
+        }
+        for (int index = getInitialNumberOfConnections(); index > 0; index--) {
+            if (reserveConnection()) {
+                try {
+                    addConnection(buildConnection(), IDLE);
+                } catch (RuntimeException failed) {
+                    this.numberOfConnections.decrementAndGet();
+                    throw failed;
+                }
+            }
+        }
+        setIsConnected(true);
+        startIdleConnectionChecks();
+    }
+
+    /**
+     * PUBLIC:
+     * Return the time in milliseconds before an idle connection above the min size is disconnected.
+     * The default is 0, connections above the min size are disconnected when released.
+     */
+    public int getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * PUBLIC:
+     * Set the time in milliseconds before an idle connection above the min size is disconnected.
+     * This allows connections above the min size to be reused under a sustained load,
+     * instead of reconnecting for each use.
+     * The default is 0, connections above the min size are disconnected when released.
+     * Must be set before the pool is started.
+     */
+    public void setIdleTimeout(int idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * PUBLIC:
+     * Return the time in milliseconds between validations of idle connections.
+     * The default is 0, idle connections are only checked after a communication failure.
+     */
+    public int getValidationInterval() {
+        return validationInterval;
+    }
+
+    /**
+     * PUBLIC:
+     * Set the time in milliseconds between validations of idle connections.
+     * Idle connections that fail the server platform's communication check are removed from the pool.
+     * The default is 0, idle connections are only checked after a communication failure.
+     * Must be set before the pool is started.
+     */
+    public void setValidationInterval(int validationInterval) {
+        this.validationInterval = validationInterval;
+    }
+}
@@ -146,7 +146,7 @@ public synchronized Accessor acquireConnection() throws ConcurrencyException {
                 }
                 this.connectionsUsed.add(connection);
                 if (this.owner.isInProfile()) {
-                    this.owner.updateProfile(MONITOR_HEADER + this.name, Integer.valueOf(this.connectionsUsed.size()));
+                    this.owner.updateProfile(MONITOR_HEADER + this.name, this.connectionsUsed.size());
                 }
                 if (this.owner.shouldLog(SessionLog.FINEST, SessionLog.CONNECTION)) {
                     Object[] args = new Object[1];
@@ -197,7 +197,7 @@ public synchronized Accessor acquireConnection() throws ConcurrencyException {
         }
         this.connectionsUsed.add(connection);
         if (this.owner.isInProfile()) {
-            this.owner.updateProfile(MONITOR_HEADER + this.name, Integer.valueOf(this.connectionsUsed.size()));
+            this.owner.updateProfile(MONITOR_HEADER + this.name, this.connectionsUsed.size());
         }
         if (this.owner.shouldLog(SessionLog.FINEST, SessionLog.CONNECTION)) {
             Object[] args = new Object[1];
@@ -346,7 +346,7 @@ public synchronized void releaseConnection(Accessor connection) throws DatabaseE
             }
         }
         if (this.owner.isInProfile()) {
-            this.owner.updateProfile(MONITOR_HEADER + this.name, Integer.valueOf(this.connectionsUsed.size()));
+            this.owner.updateProfile(MONITOR_HEADER + this.name, this.connectionsUsed.size());
         }
         notify();
     }
@@ -0,0 +1,746 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.tools.profiler;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.io.StringWriter;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.text.NumberFormat;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongBinaryOperator;
+
+import org.eclipse.persistence.internal.sessions.AbstractRecord;
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.queries.DatabaseQuery;
+import org.eclipse.persistence.sessions.Record;
+import org.eclipse.persistence.sessions.SessionProfiler;
+
+/**
+ * <p><b>Purpose</b>: A low overhead tool used to provide performance monitoring information in a server environment.
+ * <p>
+ * This monitors the same operations as {@link PerformanceMonitor}, but can be left on in production.
+ * Operations are registered once and looked up by their constant names, counts and times are kept in
+ * striped counters, and the start times of each thread are kept in an array indexed by operation id,
+ * so no lock is acquired and no object is allocated when profiling an operation that was already seen.
+ * The times of the session wide timers and of the execution of each query are also recorded in a
+ * log-linear histogram to give their median, 99th and 99.9th percentiles.
+ * <p>
+ * The number of registered operations is capped by {@link #setMaxOperations(int)}, so queries built
+ * dynamically, or operations with generated names, cannot grow the profiler without bound. Once the cap
+ * is reached, operations not yet seen are not profiled, and are counted as {@link #REJECTED_OPERATIONS}.
+ * <p>
+ * The results are not logged periodically, they are pulled using {@link #getStatistics()},
+ * or the operation statistics of the session's runtime services MBean.
+ *
+ * @see OperationStatistics
+ * @see org.eclipse.persistence.config.ProfilerType#ConcurrentPerformanceMonitor
+ */
+public class ConcurrentPerformanceMonitor implements Serializable, SessionProfiler {
+    protected static final String COUNTER = "Counter:";
+    protected static final String TIMER = "Timer:";
+    protected static final String INFO = "Info:";
+    /** The count of the profiling calls ignored because their operation could not be registered. */
+    public static final String REJECTED_OPERATIONS = "Counter:RejectedOperations";
+    /** The default maximum number of registered operations. */
+    public static final int DEFAULT_MAX_OPERATIONS = 2048;
+    /** The value of an operation whose last value was a number, kept as a long. */
+    protected static final Object NUMBER_VALUE = new Object();
+
+    protected static final LongBinaryOperator MAX = new LongBinaryOperator() {
+        public long applyAsLong(long left, long right) {
+            return Math.max(left, right);
+        }
+    };
+
+    transient protected AbstractSession session;
+    protected int profileWeight;
+    /** The maximum number of registered operations, including the execution timer and counter of each query. */
+    protected int maxOperations;
+
+    /** The session wide operations by name, the operations defined in SessionProfiler are registered on creation. */
+    transient protected ConcurrentMap<String, Operation> operations;
+    /** The execution operations of each query, by the query's monitor name. */
+    transient protected ConcurrentMap<String, QueryOperations> queryOperations;
+    /** The execution operations of each query class. */
+    transient protected ConcurrentMap<Class, QueryOperations> queryClassOperations;
+    /** The id of the next registered operation. */
+    transient protected AtomicInteger nextOperationId;
+    /** The start times of the current thread, indexed by operation id, 0 if not started. */
+    transient protected ThreadLocal<long[]> operationStartTimes;
+    /** Counts the profiling calls of operations that could not be registered. */
+    transient protected Operation rejectedOperations;
+
+    /**
+     * PUBLIC:
+     * Create a new profiler.
+     * The profiler can be registered with a session to monitor the performance of its operations.
+     */
+    public ConcurrentPerformanceMonitor() {
+        this.profileWeight = SessionProfiler.ALL;
+        this.maxOperations = DEFAULT_MAX_OPERATIONS;
+        initializeOperations();
+    }
+
+    /**
+     * INTERNAL:
+     * Initialize the operation maps, and register the operations defined in SessionProfiler.
+     */
+    protected void initializeOperations() {
+        this.operations = new ConcurrentHashMap<String, Operation>();
+        this.queryOperations = new ConcurrentHashMap<String, QueryOperations>();
+        this.queryClassOperations = new ConcurrentHashMap<Class, QueryOperations>();
+        this.nextOperationId = new AtomicInteger();
+        this.rejectedOperations = new Operation(this.nextOperationId.getAndIncrement(), REJECTED_OPERATIONS, false);
+        this.operations.put(REJECTED_OPERATIONS, this.rejectedOperations);
+        for (Field field : SessionProfiler.class.getFields()) {
+            if ((field.getType() == String.class) && Modifier.isStatic(field.getModifiers())) {
+                try {
+                    String name = (String)field.get(null);
+                    if (name.startsWith(TIMER) || name.startsWith(COUNTER) || name.startsWith(INFO)) {
+                        getOperation(name);
+                    }
+                } catch (IllegalAccessException ignore) {
+                    // Public constants are always accessible.
+                }
+            }
+        }
+        final int size = this.nextOperationId.get() + 32;
+        this.operationStartTimes = new ThreadLocal<long[]>() {
+            protected long[] initialValue() {
+                return new long[size];
+            }
+        };
+    }
+
+    private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+        stream.defaultReadObject();
+        initializeOperations();
+    }
+
+    /**
+     * INTERNAL:
+     * Allocate the ids of new operations, and return the first one,
+     * or -1 if registering them would exceed the maximum number of operations.
+     * The ids allocated by a thread that loses a race to register the same operation are not reused.
+     */
+    protected int allocateOperationIds(int count) {
+        while (true) {
+            int id = this.nextOperationId.get();
+            if (id + count > this.maxOperations) {
+                this.rejectedOperations.count.increment();
+                return -1;
+            }
+            if (this.nextOperationId.compareAndSet(id, id + count)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * INTERNAL:
+     * Return the session wide operation, registering it if not yet seen,
+     * or null if the maximum number of operations is reached.
+     */
+    protected Operation getOperation(String operationName) {
+        Operation operation = this.operations.get(operationName);
+        if (operation == null) {
+            operation = registerOperation(this.operations, operationName, operationName, true);
+        }
+        return operation;
+    }
+
+    /**
+     * INTERNAL:
+     * Register the operation under the key, unless another thread already did.
+     * Return null if the maximum number of operations is reached.
+     */
+    protected <K> Operation registerOperation(ConcurrentMap<K, Operation> operations, K key, String name, boolean hasPercentiles) {
+        int id = allocateOperationIds(1);
+        if (id < 0) {
+            return null;
+        }
+        Operation operation = new Operation(id, name, hasPercentiles && name.startsWith(TIMER));
+        Operation existing = operations.putIfAbsent(key, operation);
+        if (existing != null) {
+            return existing;
+        }
+        return operation;
+    }
+
+    /**
+     * INTERNAL:
+     * Return the operations of the query, by its monitor name,
+     * or null if the maximum number of operations is reached.
+     */
+    protected QueryOperations getQueryOperations(DatabaseQuery query) {
+        String monitorName = query.getMonitorName();
+        QueryOperations operations = this.queryOperations.get(monitorName);
+        if (operations == null) {
+            int id = allocateOperationIds(2);
+            if (id < 0) {
+                return null;
+            }
+            operations = new QueryOperations(id, monitorName);
+            QueryOperations existing = this.queryOperations.putIfAbsent(monitorName, operations);
+            if (existing != null) {
+                operations = existing;
+            }
+        }
+        return operations;
+    }
+
+    /**
+     * INTERNAL:
+     * Return the query's operation for the session wide operation,
+     * or null if the maximum number of operations is reached.
+     */
+    protected Operation getQueryOperation(DatabaseQuery query, String operationName, String prefix) {
+        QueryOperations operations = getQueryOperations(query);
+        if (operations == null) {
+            return null;
+        }
+        return operations.getOperation(operationName, prefix);
+    }
+
+    /**
+     * INTERNAL:
+     * Return the operations of the query's class,
+     * or null if the maximum number of operations is reached.
+     */
+    protected QueryOperations getQueryClassOperations(Class queryClass) {
+        QueryOperations operations = this.queryClassOperations.get(queryClass);
+        if (operations == null) {
+            int id = allocateOperationIds(2);
+            if (id < 0) {
+                return null;
+            }
+            operations = new QueryOperations(id, queryClass.getSimpleName());
+            QueryOperations existing = this.queryClassOperations.putIfAbsent(queryClass, operations);
+            if (existing != null) {
+                operations = existing;
+            }
+        }
+        return operations;
+    }
+
+    /**
+     * INTERNAL:
+     * Record the start time of the operation for the current thread.
+     */
+    protected void start(Operation operation) {
+        if (operation == null) {
+            return;
+        }
+        long[] startTimes = this.operationStartTimes.get();
+        int id = operation.id;
+        if (id >= startTimes.length) {
+            long[] newStartTimes = new long[Math.max(id + 1, startTimes.length * 2)];
+            System.arraycopy(startTimes, 0, newStartTimes, 0, startTimes.length);
+            startTimes = newStartTimes;
+            this.operationStartTimes.set(startTimes);
+        }
+        startTimes[id] = System.nanoTime();
+    }
+
+    /**
+     * INTERNAL:
+     * Record the time since the operation was started in the current thread.
+     * As with PerformanceMonitor, the start time is kept, and nested timings of the same operation
+     * overwrite it.
+     */
+    protected void end(Operation operation, long endTime) {
+        if (operation == null) {
+            return;
+        }
+        long[] startTimes = this.operationStartTimes.get();
+        int id = operation.id;
+        if ((id >= startTimes.length) || (startTimes[id] == 0)) {
+            return;
+        }
+        operation.record(endTime - startTimes[id]);
+    }
+
+    /**
+     * INTERNAL:
+     * End the operation timing.
+     */
+    public void endOperationProfile(String operationName) {
+        if (this.profileWeight < SessionProfiler.HEAVY) {
+            return;
+        }
+        end(getOperation(operationName), System.nanoTime());
+    }
+
+    /**
+     * INTERNAL:
+     * End the operation timing.
+     */
+    public void endOperationProfile(String operationName, DatabaseQuery query, int weight) {
+        if ((this.profileWeight < weight) || (this.profileWeight < SessionProfiler.HEAVY)) {
+            return;
+        }
+        long endTime = System.nanoTime();
+        end(getOperation(operationName), endTime);
+        if (query != null) {
+            end(getQueryOperation(query, operationName, TIMER), endTime);
+        }
+    }
+
+    /**
+     * INTERNAL:
+     * Start the operation timing.
+     */
+    public void startOperationProfile(String operationName) {
+        if (this.profileWeight < SessionProfiler.HEAVY) {
+            return;
+        }
+        start(getOperation(operationName));
+    }
+
+    /**
+     * INTERNAL:
+     * Start the operation timing.
+     */
+    public void startOperationProfile(String operationName, DatabaseQuery query, int weight) {
+        if ((this.profileWeight < weight) || (this.profileWeight < SessionProfiler.HEAVY)) {
+            return;
+        }
+        start(getOperation(operationName));
+        if (query != null) {
+            start(getQueryOperation(query, operationName, TIMER));
+        }
+    }
+
+    /**
+     * INTERNAL:
+     * Time and count the execution of the query, by query and by query class.
+     * The start time is kept on the stack, so nested executions of the same query are all timed.
+     */
+    public Object profileExecutionOfQuery(DatabaseQuery query, Record row, AbstractSession session) {
+        if (this.profileWeight < SessionProfiler.HEAVY) {
+            return session.internalExecuteQuery(query, (AbstractRecord)row);
+        }
+        QueryOperations operations = getQueryOperations(query);
+        QueryOperations classOperations = getQueryClassOperations(query.getClass());
+        if (operations != null) {
+            operations.counter.count.increment();
+        }
+        if (classOperations != null) {
+            classOperations.counter.count.increment();
+        }
+        long startTime = System.nanoTime();
+        try {
+            return session.internalExecuteQuery(query, (AbstractRecord)row);
+        } finally {
+            long time = System.nanoTime() - startTime;
+            if (operations != null) {
+                operations.timer.record(time);
+            }
+            if (classOperations != null) {
+                classOperations.timer.record(time);
+            }
+        }
+    }
+
+    /**
+     * INTERNAL:
+     * Set the value of the operation.
+     * Integer and Long values are kept as a long, as by {@link #update(String, long)}.
+     */
+    public void update(String operationName, Object value) {
+        if ((value instanceof Integer) || (value instanceof Long)) {
+            update(operationName, ((Number)value).longValue());
+            return;
+        }
+        Operation operation = getOperation(operationName);
+        if (operation != null) {
+            operation.value = value;
+        }
+    }
+
+    /**
+     * INTERNAL:
+     * Set the value of the operation, such as a size, without boxing it.
+     * It is returned as a Long by the operation's statistics.
+     */
+    public void update(String operationName, long value) {
+        Operation operation = getOperation(operationName);
+        if (operation != null) {
+            operation.longValue = value;
+            operation.value = NUMBER_VALUE;
+        }
+    }
+
+    public void occurred(String operationName, AbstractSession session) {
+        if (this.profileWeight < SessionProfiler.NORMAL) {
+            return;
+        }
+        Operation operation = getOperation(operationName);
+        if (operation != null) {
+            operation.count.increment();
+        }
+    }
+
+    public void occurred(String operationName, DatabaseQuery query, AbstractSession session) {
+        if (this.profileWeight < SessionProfiler.NORMAL) {
+            return;
+        }
+        Operation operation = getOperation(operationName);
+        if (operation != null) {
+            operation.count.increment();
+        }
+        operation = getQueryOperation(query, operationName, COUNTER);
+        if (operation != null) {
+            operation.count.increment();
+        }
+    }
+
+    /**
+     * PUBLIC:
+     * Return a snapshot of the statistics of every operation that occurred, sorted by name.
+     * Operation names have the same format as in {@link PerformanceMonitor}.
+     * The statistics are cumulative since the profiler was created.
+     */
+    public Map<String, OperationStatistics> getStatistics() {
+        Map<String, OperationStatistics> statistics = new TreeMap<String, OperationStatistics>();
+        addStatistics(this.operations.values(), statistics);
+        for (QueryOperations operations : this.queryClassOperations.values()) {
+            operations.addStatistics(statistics);
+        }
+        for (QueryOperations operations : this.queryOperations.values()) {
+            operations.addStatistics(statistics);
+        }
+        return statistics;
+    }
+
+    protected static void addStatistics(Iterable<Operation> operations, Map<String, OperationStatistics> statistics) {
+        for (Operation operation : operations) {
+            OperationStatistics operationStatistics = operation.buildStatistics();
+            if (operationStatistics != null) {
+                statistics.put(operationStatistics.getName(), operationStatistics);
+            }
+        }
+    }
+
+    /**
+     * PUBLIC:
+     * Return the statistics of the operation, or null if it has not occurred.
+     */
+    public OperationStatistics getStatistics(String operationName) {
+        return getStatistics().get(operationName);
+    }
+
+    /**
+     * PUBLIC:
+     * Return a summary of the statistics of every operation that occurred, with times in nanoseconds.
+     */
+    public String buildStatisticsSummary() {
+        StringWriter writer = new StringWriter();
+        writer.write("\nPerformance Monitor:");
+        writer.write(String.valueOf(System.currentTimeMillis()));
+        writer.write("\nOperation\tCount\tTotal (ns)\tMean (ns)\tMax (ns)\tP50 (ns)\tP99 (ns)\tP999 (ns)\n");
+        NumberFormat formater = NumberFormat.getInstance();
+        for (OperationStatistics statistics : getStatistics().values()) {
+            writer.write(statistics.getName());
+            writer.write("\t");
+            if (statistics.getValue() != null) {
+                writer.write(statistics.getValue().toString());
+            } else {
+                writer.write(formater.format(statistics.getCount()));
+                if (statistics.isTimer()) {
+                    writer.write("\t");
+                    writer.write(formater.format(statistics.getTotalTime()));
+                    writer.write("\t");
+                    writer.write(formater.format(statistics.getMeanTime()));
+                    writer.write("\t");
+                    writer.write(formater.format(statistics.getMaxTime()));
+                    if (statistics.getP50() >= 0) {
+                        writer.write("\t");
+                        writer.write(formater.format(statistics.getP50()));
+                        writer.write("\t");
+                        writer.write(formater.format(statistics.getP99()));
+                        writer.write("\t");
+                        writer.write(formater.format(statistics.getP999()));
+                    }
+                }
+            }
+            writer.write("\n");
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Log the results to the session's log (System.out).
+     */
+    public void dumpResults() {
+        try {
+            this.session.getLog().write(buildStatisticsSummary());
+            this.session.getLog().flush();
+        } catch (IOException error) {
+            // ignore
+        }
+    }
+
+    public AbstractSession getSession() {
+        return session;
+    }
+
+    public void setSession(org.eclipse.persistence.sessions.Session session) {
+        this.session = (AbstractSession)session;
+    }
+
+    /**
+     * Set the level of profiling.
+     * One of ALL, HEAVY, NORMAL, NONE.
+     * The higher the level, the more operations are profiled.
+     * @see SessionProfiler
+     */
+    public void setProfileWeight(int profileWeight) {
+        this.profileWeight = profileWeight;
+    }
+
+    /**
+     * Return the level of profiling.
+     * One of ALL, HEAVY, NORMAL, NONE.
+     * @see SessionProfiler
+     */
+    public int getProfileWeight() {
+        return profileWeight;
+    }
+
+    /**
+     * PUBLIC:
+     * Set the maximum number of registered operations, by default 2048.
+     * This includes the operations defined in SessionProfiler, two operations for each query and query class
+     * executed, and one for each operation done for a query. Operations not yet seen once it is reached
+     * are not profiled, and are counted as {@link #REJECTED_OPERATIONS}.
+     */
+    public void setMaxOperations(int maxOperations) {
+        this.maxOperations = maxOperations;
+    }
+
+    /**
+     * PUBLIC:
+     * Return the maximum number of registered operations.
+     */
+    public int getMaxOperations() {
+        return maxOperations;
+    }
+
+    public void initialize() {
+    }
+
+    /**
+     * INTERNAL:
+     * The counters of a monitored operation.
+     * The count is the number of timings of a timer, or occurrences of a counter.
+     */
+    protected static class Operation {
+        protected final int id;
+        protected final String name;
+        protected final LongAdder count;
+        protected final LongAdder totalTime;
+        protected final LongAccumulator maxTime;
+        /** The histogram of the times, null if percentiles are not computed for the operation. */
+        protected final LatencyHistogram histogram;
+        /** The last value of an info operation, NUMBER_VALUE if it is the long value. */
+        protected volatile Object value;
+        /** The last value of an info operation updated with a long, set before the value. */
+        protected volatile long longValue;
+
+        protected Operation(int id, String name, boolean hasPercentiles) {
+            this.id = id;
+            this.name = name;
+            this.count = new LongAdder();
+            this.totalTime = new LongAdder();
+            this.maxTime = new LongAccumulator(MAX, 0);
+            this.histogram = hasPercentiles ? new LatencyHistogram() : null;
+        }
+
+        protected void record(long time) {
+            this.count.increment();
+            this.totalTime.add(time);
+            this.maxTime.accumulate(time);
+            if (this.histogram != null) {
+                this.histogram.record(time);
+            }
+        }
+
+        /**
+         * Return the statistics of the operation, or null if it has not occurred.
+         */
+        protected OperationStatistics buildStatistics() {
+            Object value = this.value;
+            if (value == NUMBER_VALUE) {
+                value = Long.valueOf(this.longValue);
+            }
+            long count = this.count.sum();
+            if ((count == 0) && (value == null)) {
+                return null;
+            }
+            long p50 = -1;
+            long p99 = -1;
+            long p999 = -1;
+            long maxTime = this.maxTime.get();
+            if (this.histogram != null) {
+                long[] counts = this.histogram.getCounts();
+                p50 = Math.min(LatencyHistogram.getPercentile(counts, 0.5), maxTime);
+                p99 = Math.min(LatencyHistogram.getPercentile(counts, 0.99), maxTime);
+                p999 = Math.min(LatencyHistogram.getPercentile(counts, 0.999), maxTime);
+            }
+            return new OperationStatistics(this.name, count, this.totalTime.sum(), maxTime, p50, p99, p999, value);
+        }
+    }
+
+    /**
+     * INTERNAL:
+     * The execution timer and counter of a query or query class,
+     * and the operations done for a query, by session wide operation name.
+     */
+    protected class QueryOperations {
+        protected final String monitorName;
+        protected final Operation timer;
+        protected final Operation counter;
+        protected final ConcurrentMap<String, Operation> operations;
+
+        /**
+         * Create the operations of the query, the timer and counter take the two ids from the first one.
+         */
+        protected QueryOperations(int firstId, String monitorName) {
+            this.monitorName = monitorName;
+            this.timer = new Operation(firstId, TIMER + monitorName, true);
+            this.counter = new Operation(firstId + 1, COUNTER + monitorName, false);
+            this.operations = new ConcurrentHashMap<String, Operation>();
+        }
+
+        /**
+         * Return the query's operation for the session wide operation, registering it if not yet seen,
+         * or null if the maximum number of operations is reached.
+         * Its name is the prefix, the monitor name and the operation name without its prefix.
+         */
+        protected Operation getOperation(String operationName, String prefix) {
+            Operation operation = this.operations.get(operationName);
+            if (operation == null) {
+                if (nextOperationId.get() >= maxOperations) {
+                    // Do not build the name of an operation that cannot be registered.
+                    rejectedOperations.count.increment();
+                    return null;
+                }
+                String name = operationName.startsWith(prefix) ? operationName.substring(prefix.length()) : operationName;
+                operation = registerOperation(this.operations, operationName, prefix + this.monitorName + ":" + name, false);
+            }
+            return operation;
+        }
+
+        protected void addStatistics(Map<String, OperationStatistics> statistics) {
+            ConcurrentPerformanceMonitor.addStatistics(this.operations.values(), statistics);
+            OperationStatistics timerStatistics = this.timer.buildStatistics();
+            if (timerStatistics != null) {
+                statistics.put(timerStatistics.getName(), timerStatistics);
+            }
+            OperationStatistics counterStatistics = this.counter.buildStatistics();
+            if (counterStatistics != null) {
+                statistics.put(counterStatistics.getName(), counterStatistics);
+            }
+        }
+    }
+
+    /**
+     * INTERNAL:
+     * A concurrent log-linear histogram of times in nanoseconds.
+     * Each power of two is split in 16 buckets, so a recorded time is accurate to within 1/16th,
+     * times of 2^40 nanoseconds (about 18 minutes) or more are counted in the last bucket.
+     */
+    protected static class LatencyHistogram {
+        protected static final int SUB_BUCKET_BITS = 4;
+        protected static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        protected static final int MAX_EXPONENT = 40;
+        protected static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+        protected final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+        protected void record(long time) {
+            this.counts.incrementAndGet(getIndex(time));
+        }
+
+        /**
+         * Return a copy of the bucket counts.
+         */
+        protected long[] getCounts() {
+            long[] counts = new long[BUCKETS];
+            for (int index = 0; index < BUCKETS; index++) {
+                counts[index] = this.counts.get(index);
+            }
+            return counts;
+        }
+
+        /**
+         * Return the bucket of the time, the first 16 buckets are exact,
+         * then the exponent of the time selects a group of 16 buckets and its next 4 bits the bucket.
+         */
+        protected static int getIndex(long time) {
+            if (time < SUB_BUCKETS) {
+                return (time < 0) ? 0 : (int)time;
+            }
+            if (time >= (1L << MAX_EXPONENT)) {
+                return BUCKETS - 1;
+            }
+            int shift = 63 - Long.numberOfLeadingZeros(time) - SUB_BUCKET_BITS;
+            return ((shift + 1) << SUB_BUCKET_BITS) + (int)((time >>> shift) & (SUB_BUCKETS - 1));
+        }
+
+        /**
+         * Return the highest time counted in the bucket.
+         */
+        protected static long getHighestTime(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+            int shift = (index >>> SUB_BUCKET_BITS) - 1;
+            long lowest = ((long)(SUB_BUCKETS + (index & (SUB_BUCKETS - 1)))) << shift;
+            return lowest + (1L << shift) - 1;
+        }
+
+        /**
+         * Return the time under which the percentile of the counted times are, or 0 if none were counted.
+         */
+        protected static long getPercentile(long[] counts, double percentile) {
+            long total = 0;
+            for (long count : counts) {
+                total += count;
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long)Math.ceil(percentile * total));
+            long cumulative = 0;
+            for (int index = 0; index < counts.length; index++) {
+                cumulative += counts[index];
+                if (cumulative >= rank) {
+                    return getHighestTime(index);
+                }
+            }
+            return getHighestTime(counts.length - 1);
+        }
+    }
+}
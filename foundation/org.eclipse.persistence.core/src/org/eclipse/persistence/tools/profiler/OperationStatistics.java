@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.tools.profiler;
+
+import java.io.Serializable;
+
+/**
+ * <p><b>Purpose</b>: An immutable snapshot of the statistics of one operation of a
+ * {@link ConcurrentPerformanceMonitor}.
+ * <p>
+ * Timers give the number of timings, the total, maximum and percentile times in nanoseconds.
+ * Percentiles are accurate to within about 6%, and are only computed for the session wide
+ * timers and the total time of each query, other timers have no percentiles (-1).
+ * Counters only give their count, and info operations only give their last value.
+ *
+ * @see ConcurrentPerformanceMonitor#getStatistics()
+ */
+public class OperationStatistics implements Serializable {
+    protected String name;
+    protected long count;
+    protected long totalTime;
+    protected long maxTime;
+    protected long p50;
+    protected long p99;
+    protected long p999;
+    protected Object value;
+
+    public OperationStatistics(String name, long count, long totalTime, long maxTime, long p50, long p99, long p999, Object value) {
+        this.name = name;
+        this.count = count;
+        this.totalTime = totalTime;
+        this.maxTime = maxTime;
+        this.p50 = p50;
+        this.p99 = p99;
+        this.p999 = p999;
+        this.value = value;
+    }
+
+    /**
+     * Return the name of the operation, in the same format as {@link PerformanceMonitor}.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Return the number of times the operation was timed or occurred.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Return the total time of the operation in nanoseconds.
+     */
+    public long getTotalTime() {
+        return totalTime;
+    }
+
+    /**
+     * Return the average time of the operation in nanoseconds.
+     */
+    public long getMeanTime() {
+        if (this.count == 0) {
+            return 0;
+        }
+        return this.totalTime / this.count;
+    }
+
+    /**
+     * Return the longest time of the operation in nanoseconds.
+     */
+    public long getMaxTime() {
+        return maxTime;
+    }
+
+    /**
+     * Return the median time of the operation in nanoseconds, or -1 if not computed.
+     */
+    public long getP50() {
+        return p50;
+    }
+
+    /**
+     * Return the 99th percentile time of the operation in nanoseconds, or -1 if not computed.
+     */
+    public long getP99() {
+        return p99;
+    }
+
+    /**
+     * Return the 99.9th percentile time of the operation in nanoseconds, or -1 if not computed.
+     */
+    public long getP999() {
+        return p999;
+    }
+
+    /**
+     * Return the last value set for an info operation, or null.
+     */
+    public Object getValue() {
+        return value;
+    }
+
+    /**
+     * Return if the operation is a timer.
+     */
+    public boolean isTimer() {
+        return this.name.startsWith(ConcurrentPerformanceMonitor.TIMER);
+    }
+
+    public String toString() {
+        if (this.value != null) {
+            return this.name + "=" + this.value;
+        }
+        if (isTimer()) {
+            return this.name + "(count=" + this.count + ", total=" + this.totalTime + ", mean=" + getMeanTime()
+                    + ", max=" + this.maxTime + ", p50=" + this.p50 + ", p99=" + this.p99 + ", p999=" + this.p999 + ")";
+        }
+        return this.name + "=" + this.count;
+    }
+}
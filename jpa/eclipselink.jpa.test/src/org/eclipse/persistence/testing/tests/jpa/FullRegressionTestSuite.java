@@ -41,6 +41,7 @@
 import org.eclipse.persistence.testing.tests.jpa.advanced.NamedQueryJUnitTest;
 import org.eclipse.persistence.testing.tests.jpa.advanced.OptimisticConcurrencyJUnitTestSuite;
 import org.eclipse.persistence.testing.tests.jpa.advanced.OptimisticLockForceIncrementTestSuite;
+import org.eclipse.persistence.testing.tests.jpa.advanced.ParallelDeploymentTestSuite;
 import org.eclipse.persistence.testing.tests.jpa.advanced.PersistenceUnitProcessorTest;
 import org.eclipse.persistence.testing.tests.jpa.advanced.PessimisticLockEntityRefreshTestSuite;
 import org.eclipse.persistence.testing.tests.jpa.advanced.PessimisticLockingExtendedScopeTestSuite;
@@ -154,6 +155,7 @@ public static Test suite() {
         suite.addTest(UpdateAllQueryAdvancedJunitTest.suite());
         suite.addTest(ComplexAggregateTestSuite.suite());
         suite.addTest(MetadataCachingTestSuite.suite());
+        suite.addTest(ParallelDeploymentTestSuite.suite());
         suite.addTest(OptimisticLockForceIncrementTestSuite.suite());
         suite.addTest(ConfigPUTestSuite.suite());
         suite.addTest(NamedQueryJUnitTest.suite());
@@ -21,10 +21,12 @@
 import java.util.Map;
 
 import javax.persistence.EntityManager;
+import javax.persistence.spi.PersistenceUnitInfo;
 
 import org.eclipse.persistence.config.PersistenceUnitProperties;
 import org.eclipse.persistence.jpa.JpaHelper;
 import org.eclipse.persistence.jpa.metadata.FileBasedProjectCache;
+import org.eclipse.persistence.jpa.metadata.SnapshotProjectCache;
 import org.eclipse.persistence.logging.SessionLog;
 import org.eclipse.persistence.sessions.Project;
 import org.eclipse.persistence.sessions.Session;
@@ -54,6 +56,8 @@ public static Test suite() {
         TestSuite suite = new TestSuite();
         suite.setName("MetadataCachingTestSuite");
         suite.addTest(new MetadataCachingTestSuite("testProjectCacheALLWithDefaultPU"));
+        suite.addTest(new MetadataCachingTestSuite("testSnapshotProjectCacheWithDefaultPU"));
+        suite.addTest(new MetadataCachingTestSuite("testSnapshotProjectCacheStoreAndRetrieve"));
         return suite;
     }
 
@@ -136,4 +140,94 @@ public void testProjectCacheWithDefaultPU(){
         testFileBasedProjectCacheLoading("default");
     }
 
+    /*
+     * Test that the snapshot project cache writes a snapshot on deployment, only returns it
+     * for the key it was stored with, and that the EM can be refreshed using it.
+     */
+    public void testSnapshotProjectCacheWithDefaultPU() {
+        testSetup();
+        Map properties = getProperties();
+        properties.put(PersistenceUnitProperties.PROJECT_CACHE, "snapshot");
+
+        EntityManager em = createEntityManager("default");
+        beginTransaction(em);
+        try {
+            JpaHelper.getEntityManagerFactory(em).refreshMetadata(properties);
+        } finally {
+            commitTransaction(em);
+            closeEntityManager(em);
+        }
+        if (!new File(fileName).exists()) {
+            fail("the project cache file was not created on deployment using PROJECT_CACHE 'snapshot'");
+        }
+
+        Session session = this.getServerSession("default");
+        Project project = new SnapshotProjectCache().retrieveProject("outdated", properties, session.getDatasourcePlatform().getConversionManager().getLoader(), session.getSessionLog());
+        if (project != null) {
+            fail("Project returned from SnapshotProjectCache.retrieveProject() for a key it was not stored with");
+        }
+
+        em = createEntityManager("default");
+        beginTransaction(em);
+        try {
+            JpaHelper.getEntityManagerFactory(em).refreshMetadata(properties);
+        } finally {
+            commitTransaction(em);
+            closeEntityManager(em);
+        }
+    }
+
+    /*
+     * Test that a project stored by the snapshot project cache is retrieved for the same persistence unit
+     * and properties, also when only runtime properties change, and not once a property of the project changes.
+     */
+    public void testSnapshotProjectCacheStoreAndRetrieve() {
+        testSetup();
+        Map properties = getProperties();
+        properties.put(PersistenceUnitProperties.PROJECT_CACHE, "snapshot");
+        properties.put(PersistenceUnitProperties.CACHE_SIZE_DEFAULT, Integer.valueOf(10));
+
+        PersistenceUnitInfo info;
+        EntityManager em = createEntityManager("default");
+        try {
+            info = JpaHelper.getEntityManagerFactory(em).unwrap().getSetupImpl().getPersistenceUnitInfo();
+        } finally {
+            closeEntityManager(em);
+        }
+        Session session = getServerSession("default");
+        ClassLoader loader = session.getDatasourcePlatform().getConversionManager().getLoader();
+        SessionLog log = session.getSessionLog();
+
+        SnapshotProjectCache cache = new SnapshotProjectCache(info);
+        if (cache.retrieveProject(properties, loader, log) != null) {
+            fail("Project returned from SnapshotProjectCache.retrieveProject() before a project was stored");
+        }
+        cache.storeProject(session.getProject(), properties, log);
+        if (!new File(fileName).exists()) {
+            fail("the project cache file was not created by SnapshotProjectCache.storeProject()");
+        }
+
+        Project project = new SnapshotProjectCache(info).retrieveProject(properties, loader, log);
+        if (project == null) {
+            fail("Project not returned from SnapshotProjectCache.retrieveProject() for the properties it was stored with");
+        }
+        assertEquals("Retrieved project has a different number of descriptors", session.getProject().getDescriptors().size(), project.getDescriptors().size());
+
+        Map runtimeProperties = new HashMap(properties);
+        runtimeProperties.put(PersistenceUnitProperties.LOGGING_LEVEL, SessionLog.FINEST_LABEL);
+        if (new SnapshotProjectCache(info).retrieveProject(runtimeProperties, loader, log) == null) {
+            fail("Project not returned from SnapshotProjectCache.retrieveProject() after a logging property changed");
+        }
+
+        Map changedProperties = new HashMap(properties);
+        changedProperties.put(PersistenceUnitProperties.CACHE_SIZE_DEFAULT, Integer.valueOf(20));
+        if (new SnapshotProjectCache(info).retrieveProject(changedProperties, loader, log) != null) {
+            fail("Project returned from SnapshotProjectCache.retrieveProject() after a property value changed");
+        }
+
+        if (new SnapshotProjectCache().retrieveProject(properties, loader, log) != null) {
+            fail("Project returned from a SnapshotProjectCache without a persistence unit");
+        }
+    }
+
 }
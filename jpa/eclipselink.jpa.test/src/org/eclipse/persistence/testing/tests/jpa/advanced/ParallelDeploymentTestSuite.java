@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.testing.tests.jpa.advanced;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.persistence.config.PersistenceUnitProperties;
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.jpa.JpaHelper;
+import org.eclipse.persistence.mappings.DatabaseMapping;
+import org.eclipse.persistence.queries.DatabaseQuery;
+import org.eclipse.persistence.testing.framework.junit.JUnitTestCase;
+
+/**
+ * Test that deploying a persistence unit with eclipselink.deploy.parallel builds
+ * the same descriptors, mappings and commit order as a sequential deployment.
+ */
+public class ParallelDeploymentTestSuite extends JUnitTestCase {
+
+    public ParallelDeploymentTestSuite() {
+        super();
+    }
+
+    public ParallelDeploymentTestSuite(String name) {
+        super(name);
+    }
+
+    public static Test suite() {
+        TestSuite suite = new TestSuite();
+        suite.setName("ParallelDeploymentTestSuite");
+        suite.addTest(new ParallelDeploymentTestSuite("testParallelDeploymentWithDefaultPU"));
+        return suite;
+    }
+
+    public Map getProperties(boolean isParallel) {
+        Map properties = new HashMap();
+        properties.put(PersistenceUnitProperties.DDL_GENERATION, PersistenceUnitProperties.NONE);
+        //this causes deployment to occur on refreshMetadata rather than wait until an em is obtained
+        properties.put(PersistenceUnitProperties.DEPLOY_ON_STARTUP, "true");
+        //property we are testing:
+        properties.put(PersistenceUnitProperties.PARALLEL_DEPLOYMENT, String.valueOf(isParallel));
+        return properties;
+    }
+
+    /**
+     * Redeploy the persistence unit and return a description of its descriptors.
+     */
+    public List<String> deploy(String persistenceUnitName, boolean isParallel) {
+        EntityManager em = createEntityManager(persistenceUnitName);
+        // JEE requires a transaction to keep the em open.
+        beginTransaction(em);
+        try {
+            JpaHelper.getEntityManagerFactory(em).refreshMetadata(getProperties(isParallel));
+        } finally {
+            commitTransaction(em);
+            closeEntityManager(em);
+        }
+        AbstractSession session = (AbstractSession)getServerSession(persistenceUnitName);
+        assertEquals(isParallel, session.getProject().shouldInitializeDescriptorsInParallel());
+        return describe(session);
+    }
+
+    /**
+     * Return a description of the descriptors of the session that does not depend on their order.
+     */
+    public List<String> describe(AbstractSession session) {
+        List<String> descriptions = new ArrayList<String>();
+        for (ClassDescriptor descriptor : session.getDescriptors().values()) {
+            StringBuilder description = new StringBuilder(descriptor.getJavaClassName());
+            description.append(" alias=").append(descriptor.getAlias());
+            description.append(" tables=").append(descriptor.getTableNames());
+            description.append(" id=").append(descriptor.getPrimaryKeyFieldNames());
+            description.append(" initialized=").append(descriptor.isFullyInitialized());
+            if (descriptor.hasInheritance()) {
+                description.append(" parent=").append(descriptor.getInheritancePolicy().getParentClassName());
+                description.append(" children=").append(descriptor.getInheritancePolicy().getChildDescriptors().size());
+            }
+            if (descriptor.usesOptimisticLocking()) {
+                description.append(" locking=").append(descriptor.getOptimisticLockingPolicy().getClass().getSimpleName());
+            }
+            List<String> mappings = new ArrayList<String>();
+            for (DatabaseMapping mapping : descriptor.getMappings()) {
+                mappings.add(mapping.getAttributeName() + " " + mapping.getClass().getSimpleName() + " " + mapping.getFields()
+                        + ((mapping.getReferenceDescriptor() == null) ? "" : " " + mapping.getReferenceDescriptor().getJavaClassName()));
+            }
+            Collections.sort(mappings);
+            description.append(" mappings=").append(mappings);
+            List<String> queries = new ArrayList<String>();
+            for (Object query : descriptor.getQueryManager().getAllQueries()) {
+                queries.add(((DatabaseQuery)query).getName());
+            }
+            Collections.sort(queries);
+            description.append(" queries=").append(queries);
+            descriptions.add(description.toString());
+        }
+        Collections.sort(descriptions);
+        List<String> commitOrder = new ArrayList<String>();
+        for (Class commitClass : session.getCommitManager().getCommitOrder()) {
+            commitOrder.add(commitClass.getName());
+        }
+        descriptions.add("commit order=" + commitOrder);
+        return descriptions;
+    }
+
+    /*
+     * Test that a parallel deployment of the default persistence unit builds the same project as a sequential one.
+     */
+    public void testParallelDeploymentWithDefaultPU() {
+        List<String> sequential = deploy("default", false);
+        try {
+            List<String> parallel = deploy("default", true);
+            assertFalse(sequential.isEmpty());
+            assertEquals(sequential.size(), parallel.size());
+            for (int index = 0; index < sequential.size(); index++) {
+                assertEquals(sequential.get(index), parallel.get(index));
+            }
+        } finally {
+            deploy("default", false);
+        }
+    }
+}
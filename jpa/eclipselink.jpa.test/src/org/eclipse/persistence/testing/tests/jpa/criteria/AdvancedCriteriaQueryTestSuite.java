@@ -175,6 +175,7 @@ public static Test suite() {
         // Bug 464833
         suite.addTest(new AdvancedCriteriaQueryTestSuite("testGetRestrictionReturningCorrectPredicate"));
         suite.addTest(new AdvancedCriteriaQueryTestSuite("testJoinDuplication"));
+        suite.addTest(new AdvancedCriteriaQueryTestSuite("testCriteriaQueryCacheReuseAndMutation"));
 
         return suite;
     }
@@ -1901,5 +1902,45 @@ public void testJoinDuplication() throws NoSuchFieldException, IllegalAccessExce
         }
     }
 
+    /**
+     * Test that a criteria query that is changed and reused after its query was cached
+     * does not change the cached query shared with other criteria queries of the same structure.
+     */
+    public void testCriteriaQueryCacheReuseAndMutation() {
+        EntityManager em = createEntityManager();
+        beginTransaction(em);
+        try {
+            CriteriaBuilder qb = em.getCriteriaBuilder();
+            CriteriaQuery<Employee> cq = qb.createQuery(Employee.class);
+            Root<Employee> root = cq.from(Employee.class);
+            Predicate firstName = qb.equal(root.get("firstName"), qb.parameter(String.class, "first"));
+            cq.where(firstName);
+            TypedQuery<Employee> query1 = em.createQuery(cq).setParameter("first", "Bob");
+            int count1 = query1.getResultList().size();
+            long expected1 = (Long)em.createQuery("select count(e) from Employee e where e.firstName = 'Bob'").getSingleResult();
+            assertEquals("Incorrect number of results returned", expected1, count1);
+            String sql1 = ((JpaQuery)query1).getDatabaseQuery().getSQLString();
+
+            // Change the cached criteria query, a join on the same root and another restriction.
+            Join<Employee, Employee> manager = root.join("manager");
+            cq.where(firstName, qb.equal(manager.get("firstName"), qb.parameter(String.class, "manager")));
+            TypedQuery<Employee> query2 = em.createQuery(cq).setParameter("first", "Bob").setParameter("manager", "Jim");
+            int count2 = query2.getResultList().size();
+            long expected2 = (Long)em.createQuery("select count(e) from Employee e join e.manager m where e.firstName = 'Bob' and m.firstName = 'Jim'").getSingleResult();
+            assertEquals("Incorrect number of results returned for the changed criteria query", expected2, count2);
+
+            // A new criteria query with the original structure uses the cached query, which must be unchanged.
+            CriteriaQuery<Employee> cq3 = qb.createQuery(Employee.class);
+            Root<Employee> root3 = cq3.from(Employee.class);
+            cq3.where(qb.equal(root3.get("firstName"), qb.parameter(String.class, "first")));
+            TypedQuery<Employee> query3 = em.createQuery(cq3).setParameter("first", "Bob");
+            assertEquals("Incorrect number of results returned for the reused structure", count1, query3.getResultList().size());
+            assertEquals("Cached query was changed by its criteria query", sql1, ((JpaQuery)query3).getDatabaseQuery().getSQLString());
+        } finally {
+            rollbackTransaction(em);
+            closeEntityManager(em);
+        }
+    }
+
 
 }
@@ -19,6 +19,7 @@
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import javax.persistence.FlushModeType;
 import javax.persistence.LockModeType;
@@ -46,11 +47,13 @@
 import org.eclipse.persistence.descriptors.invalidation.TimeToLiveCacheInvalidationPolicy;
 import org.eclipse.persistence.exceptions.QueryException;
 import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.internal.sessions.UnitOfWorkImpl;
 import org.eclipse.persistence.jpa.JpaQuery;
 import org.eclipse.persistence.queries.Cursor;
 import org.eclipse.persistence.queries.ReadQuery;
 import org.eclipse.persistence.queries.ScrollableCursor;
 import org.eclipse.persistence.sessions.DatabaseSession;
+import org.eclipse.persistence.sessions.UnitOfWork;
 import org.eclipse.persistence.sessions.server.ServerSession;
 import org.eclipse.persistence.testing.framework.junit.JUnitTestCase;
 import org.eclipse.persistence.testing.framework.QuerySQLTracker;
@@ -125,6 +128,7 @@ public static Test suite() {
         suite.addTest(new AdvancedQueryTestSuite("testObjectResultType"));
         suite.addTest(new AdvancedQueryTestSuite("testNativeResultType"));
         suite.addTest(new AdvancedQueryTestSuite("testCursors"));
+        suite.addTest(new AdvancedQueryTestSuite("testResultStream"));
         suite.addTest(new AdvancedQueryTestSuite("testFetchGroups"));
         suite.addTest(new AdvancedQueryTestSuite("testMultipleNamedJoinFetchs"));
         suite.addTest(new AdvancedQueryTestSuite("testNativeQueryTransactions"));
@@ -426,6 +430,72 @@ public void testCursors() {
         }
     }
 
+    /**
+     * Test streamed query results are built lazily, detached as they are consumed, and support join fetching.
+     * The join fetched objects are detached with their result, so the persistence context size stays bounded.
+     */
+    public void testResultStream() {
+        EntityManager em = createEntityManager();
+        beginTransaction(em);
+        try {
+            int size = em.createQuery("Select employee from Employee employee").getResultList().size();
+            em.clear();
+            Employee managed = em.createQuery("Select employee from Employee employee", Employee.class).setMaxResults(1).getSingleResult();
+
+            JpaQuery<Employee> jpaQuery = (JpaQuery<Employee>)((EntityManager)em.getDelegate()).createQuery("Select employee from Employee employee join fetch employee.address", Employee.class);
+            jpaQuery.setHint(QueryHints.JDBC_FETCH_SIZE, 2);
+            final List<Employee> streamed = new ArrayList<Employee>();
+            Address managedAddress = managed.getAddress();
+            UnitOfWorkImpl unitOfWork = (UnitOfWorkImpl)em.unwrap(UnitOfWork.class);
+            // The current employee, its address and its join fetched department, and the objects they eagerly reference.
+            int maxSize = unitOfWork.getCloneMapping().size() + 10;
+            Stream<Employee> stream = jpaQuery.getResultStream();
+            try {
+                Iterator<Employee> iterator = stream.iterator();
+                while (iterator.hasNext()) {
+                    Employee employee = iterator.next();
+                    if (employee.getAddress() == null) {
+                        fail("Joined address not built: " + employee);
+                    }
+                    if (!streamed.isEmpty() && (streamed.get(streamed.size() - 1) != managed) && em.contains(streamed.get(streamed.size() - 1))) {
+                        fail("Consumed result was not detached: " + streamed.get(streamed.size() - 1));
+                    }
+                    if (!streamed.isEmpty() && (streamed.get(streamed.size() - 1) != managed)) {
+                        Address previousAddress = streamed.get(streamed.size() - 1).getAddress();
+                        if ((previousAddress != managedAddress) && (previousAddress != employee.getAddress()) && em.contains(previousAddress)) {
+                            fail("Join fetched address of a consumed result was not detached: " + previousAddress);
+                        }
+                    }
+                    if (unitOfWork.getCloneMapping().size() > maxSize) {
+                        fail("Persistence context grew with the stream: " + unitOfWork.getCloneMapping().size() + " expected at most: " + maxSize);
+                    }
+                    streamed.add(employee);
+                }
+            } finally {
+                stream.close();
+            }
+            if (streamed.size() > size) {
+                fail("Stream returned too many results: " + streamed.size() + " expected: " + size);
+            }
+            if (!em.contains(managed)) {
+                fail("Object managed before the stream was opened was detached.");
+            }
+            // The query can still be executed normally once streamed.
+            if (jpaQuery.getResultList().size() != streamed.size()) {
+                fail("Stream did not return the same results as the list.");
+            }
+
+            // Report query results are streamed without detaching.
+            long count = em.createQuery("Select employee.id from Employee employee").unwrap(JpaQuery.class).getResultStream().count();
+            if (count != size) {
+                fail("Report query stream returned: " + count + " expected: " + size);
+            }
+        } finally {
+            rollbackTransaction(em);
+            closeEntityManager(em);
+        }
+    }
+
     /**
      * Test the result type of various queries.
      */
@@ -26,8 +26,11 @@
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import javax.persistence.FlushModeType;
 import javax.persistence.LockModeType;
@@ -41,14 +44,19 @@
 import org.eclipse.persistence.expressions.Expression;
 import org.eclipse.persistence.internal.databaseaccess.DatasourcePlatform;
 import org.eclipse.persistence.internal.helper.ClassConstants;
+import org.eclipse.persistence.internal.helper.ConcurrentFixedCache;
 import org.eclipse.persistence.internal.helper.Helper;
+import org.eclipse.persistence.internal.jpa.querydef.CriteriaQueryFingerprint;
+import org.eclipse.persistence.internal.jpa.querydef.CriteriaQueryImpl;
 import org.eclipse.persistence.internal.jpa.querydef.ParameterExpressionImpl;
 import org.eclipse.persistence.internal.localization.ExceptionLocalization;
 import org.eclipse.persistence.internal.queries.ContainerPolicy;
 import org.eclipse.persistence.internal.queries.JPQLCallQueryMechanism;
 import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.internal.sessions.UnitOfWorkImpl;
 import org.eclipse.persistence.jpa.JpaQuery;
 import org.eclipse.persistence.queries.Cursor;
+import org.eclipse.persistence.queries.CursorPolicy;
 import org.eclipse.persistence.queries.DataReadQuery;
 import org.eclipse.persistence.queries.DatabaseQuery;
 import org.eclipse.persistence.queries.JPAQueryBuilder;
@@ -58,7 +66,9 @@
 import org.eclipse.persistence.queries.ReadObjectQuery;
 import org.eclipse.persistence.queries.ReadQuery;
 import org.eclipse.persistence.queries.ResultSetMappingQuery;
+import org.eclipse.persistence.queries.ScrollableCursorPolicy;
 import org.eclipse.persistence.sessions.DatabaseRecord;
+import org.eclipse.persistence.sessions.SessionProfiler;
 
 /**
  * Concrete JPA query class. The JPA query wraps a DatabaseQuery which is
@@ -197,6 +207,48 @@ public static DatabaseQuery buildEJBQLDatabaseQuery(String queryName, String jpq
         return databaseQuery;
     }
 
+    /**
+     * Build a DatabaseQuery from a criteria query.
+     * PERF: Criteria queries with the same structure share a prepared query
+     * from the project's criteria query cache, instead of being translated and
+     * prepared on every call.
+     * The cached query is a copy with its own expressions, so the criteria
+     * query can still be changed or reused by the caller.
+     *
+     * @param criteriaQuery
+     *            the criteria query.
+     * @param session
+     *            the session to get the descriptors for this query for.
+     * @return a DatabaseQuery representing the given criteria query.
+     */
+    public static DatabaseQuery buildCriteriaDatabaseQuery(CriteriaQueryImpl<?> criteriaQuery, AbstractSession session) {
+        ConcurrentFixedCache cache = session.getProject().getCriteriaQueryCache();
+        CriteriaQueryFingerprint fingerprint = null;
+        if (cache.getMaxSize() > 0) {
+            fingerprint = CriteriaQueryFingerprint.buildFingerprint(criteriaQuery);
+        }
+        if (fingerprint == null) {
+            return criteriaQuery.translate();
+        }
+        DatabaseQuery databaseQuery = (DatabaseQuery) cache.get(fingerprint);
+        if ((databaseQuery != null) && databaseQuery.isPrepared()) {
+            session.incrementProfile(SessionProfiler.CriteriaQueryCacheHits);
+            return databaseQuery;
+        }
+        session.incrementProfile(SessionProfiler.CriteriaQueryCacheMisses);
+        ObjectLevelReadQuery sharedQuery = (ObjectLevelReadQuery) criteriaQuery.translate().clone();
+        sharedQuery.copyExpressions(new IdentityHashMap());
+        databaseQuery = sharedQuery;
+        try {
+            databaseQuery.checkPrepare(session, new DatabaseRecord());
+        } catch (RuntimeException exception) {
+            // Leave invalid queries to be reported on execution, as they were before caching.
+            return criteriaQuery.translate();
+        }
+        cache.put(fingerprint, databaseQuery);
+        return databaseQuery;
+    }
+
     /**
      * Build a ReadAllQuery from a class and sql string.
      */
@@ -388,6 +440,74 @@ public Cursor getResultCursor() {
         }
     }
 
+    /**
+     * Non-standard method to return the results of a ReadQuery as a stream.
+     * The query is executed with a forward only read only ScrollableCursor,
+     * the cursor's page size is used as the JDBC fetch size if the query does not define one.
+     * Objects are built as the stream is consumed, and entities registered in the
+     * unit of work by the stream are detached once the stream advances past them.
+     * The cursor is closed when the stream is exhausted or closed.
+     * Queries that do not return a collection are streamed from their result list.
+     *
+     * @return Stream on results
+     */
+    @Override
+    public Stream<X> getResultStream() {
+        // bug51411440: need to throw IllegalStateException if query executed on closed em
+        this.entityManager.verifyOpenWithSetRollbackOnly();
+        setAsSQLReadQuery();
+        propagateResultProperties();
+        DatabaseQuery query = getDatabaseQueryInternal();
+        if (!query.isReadAllQuery() && !query.isDataReadQuery()) {
+            return getResultList().stream();
+        }
+        // Execute a clone using a forward only cursor, the query is restored for any further executions.
+        boolean wasShared = this.isShared;
+        ReadQuery streamQuery = (ReadQuery)query.clone();
+        ContainerPolicy containerPolicy = query.isReadAllQuery() ? ((ReadAllQuery)query).getContainerPolicy() : ((DataReadQuery)query).getContainerPolicy();
+        int pageSize = containerPolicy.isCursorPolicy() ? ((CursorPolicy)containerPolicy).getPageSize() : 10;
+        ScrollableCursorPolicy policy = new ScrollableCursorPolicy(streamQuery, pageSize);
+        policy.setResultSetType(ScrollableCursorPolicy.TYPE_FORWARD_ONLY);
+        policy.setResultSetConcurrency(ScrollableCursorPolicy.CONCUR_READ_ONLY);
+        if (streamQuery.isReadAllQuery()) {
+            ((ReadAllQuery)streamQuery).useScrollableCursor(policy);
+        } else {
+            ((DataReadQuery)streamQuery).useScrollableCursor(policy);
+            streamQuery.setIsPrepared(false);
+        }
+        setDatabaseQuery(streamQuery);
+        this.isShared = false;
+        Cursor cursor = null;
+        try {
+            cursor = (Cursor)executeReadQuery();
+        } catch (LockTimeoutException exception) {
+            throw exception;
+        } catch (PersistenceException exception) {
+            setRollbackOnly();
+            throw exception;
+        } catch (IllegalStateException exception) {
+            setRollbackOnly();
+            throw exception;
+        } catch (RuntimeException exception) {
+            setRollbackOnly();
+            throw new PersistenceException(exception);
+        } finally {
+            setDatabaseQuery(query);
+            this.isShared = wasShared;
+        }
+        UnitOfWorkImpl unitOfWork = null;
+        if (cursor.getSession().isUnitOfWork() && streamQuery.isObjectLevelReadQuery() && !streamQuery.isReportQuery()) {
+            unitOfWork = (UnitOfWorkImpl)cursor.getSession();
+        }
+        final ResultStreamSpliterator<X> spliterator = new ResultStreamSpliterator<X>(cursor, unitOfWork);
+        return StreamSupport.stream(spliterator, false).onClose(new Runnable() {
+            @Override
+            public void run() {
+                spliterator.close();
+            }
+        });
+    }
+
     /**
      * Execute a query that returns a single result.
      *
@@ -1669,7 +1669,7 @@ public javax.persistence.Query createQuery(DatabaseQuery databaseQuery) {
     public <T> TypedQuery<T> createQuery(CriteriaQuery<T> criteriaQuery) {
         try{
             verifyOpen();
-            return new EJBQueryImpl<T>(((CriteriaQueryImpl<T>)criteriaQuery).translate(), this);
+            return new EJBQueryImpl<T>(EJBQueryImpl.buildCriteriaDatabaseQuery((CriteriaQueryImpl<T>)criteriaQuery, getActiveSessionIfExists()), this);
         }catch (RuntimeException e){
             setRollbackOnly();
             throw e;
@@ -168,6 +168,7 @@
 import org.eclipse.persistence.config.PropertiesUtils;
 import org.eclipse.persistence.config.RemoteProtocol;
 import org.eclipse.persistence.config.SessionCustomizer;
+import org.eclipse.persistence.config.ThreadPoolType;
 import org.eclipse.persistence.descriptors.ClassDescriptor;
 import org.eclipse.persistence.descriptors.MultitenantPolicy;
 import org.eclipse.persistence.descriptors.SchemaPerMultitenantPolicy;
@@ -187,6 +188,7 @@
 import org.eclipse.persistence.exceptions.PersistenceUnitLoadingException;
 import org.eclipse.persistence.exceptions.ValidationException;
 import org.eclipse.persistence.internal.databaseaccess.BatchWritingMechanism;
+import org.eclipse.persistence.internal.databaseaccess.GroupedSQLBatchWritingMechanism;
 import org.eclipse.persistence.internal.databaseaccess.DatabaseAccessor;
 import org.eclipse.persistence.internal.databaseaccess.DatasourcePlatform;
 import org.eclipse.persistence.internal.databaseaccess.Platform;
@@ -235,8 +237,10 @@
 import org.eclipse.persistence.jpa.metadata.FileBasedProjectCache;
 import org.eclipse.persistence.jpa.metadata.MetadataSource;
 import org.eclipse.persistence.jpa.metadata.ProjectCache;
+import org.eclipse.persistence.jpa.metadata.SnapshotProjectCache;
 import org.eclipse.persistence.jpa.metadata.XMLMetadataSource;
 import org.eclipse.persistence.logging.AbstractSessionLog;
+import org.eclipse.persistence.logging.AsynchronousSessionLog;
 import org.eclipse.persistence.logging.DefaultSessionLog;
 import org.eclipse.persistence.logging.SessionLog;
 import org.eclipse.persistence.platform.database.converters.StructConverter;
@@ -273,11 +277,13 @@
 import org.eclipse.persistence.sessions.remote.rmi.RMIServerSessionManagerDispatcher;
 import org.eclipse.persistence.sessions.serializers.JavaSerializer;
 import org.eclipse.persistence.sessions.serializers.Serializer;
+import org.eclipse.persistence.sessions.server.ConcurrentConnectionPool;
 import org.eclipse.persistence.sessions.server.ConnectionPolicy;
 import org.eclipse.persistence.sessions.server.ConnectionPool;
 import org.eclipse.persistence.sessions.server.ExternalConnectionPool;
 import org.eclipse.persistence.sessions.server.ReadConnectionPool;
 import org.eclipse.persistence.sessions.server.ServerSession;
+import org.eclipse.persistence.tools.profiler.ConcurrentPerformanceMonitor;
 import org.eclipse.persistence.tools.profiler.PerformanceMonitor;
 import org.eclipse.persistence.tools.profiler.PerformanceProfiler;
 import org.eclipse.persistence.tools.profiler.QueryMonitor;
@@ -1077,6 +1083,17 @@ protected void updatePartitioning(Map m, ClassLoader loader) {
             }
             this.session.getLogin().setPartitioningCallback(callback);
         }
+
+        String parallel = getConfigPropertyAsStringLogDebug(PersistenceUnitProperties.PARTITIONING_PARALLEL, m, this.session);
+        if (parallel != null) {
+            if (parallel.equalsIgnoreCase("true")) {
+                this.session.getProject().setShouldExecutePartitionsInParallel(true);
+            } else if (parallel.equalsIgnoreCase("false")) {
+                this.session.getProject().setShouldExecutePartitionsInParallel(false);
+            } else {
+                this.session.handleException(ValidationException.invalidBooleanValueForProperty(parallel, PersistenceUnitProperties.PARTITIONING_PARALLEL));
+            }
+        }
     }
 
     /**
@@ -1211,10 +1228,15 @@ protected void updateLoggers(Map persistenceProperties, boolean serverPlatformCh
 
         // Don't change default loggers if the new loggers have not been created.
         if (singletonLog != null && sessionLog != null) {
+            closeAsynchronousLogging(AbstractSessionLog.getLog());
+            closeAsynchronousLogging(session.getSessionLog());
             AbstractSessionLog.setLog(singletonLog);
             session.setSessionLog(sessionLog);
         }
 
+        // Size the buffers of asynchronous loggers before the settings below are logged.
+        updateAsynchronousLogging(persistenceProperties, AbstractSessionLog.getLog());
+        updateAsynchronousLogging(persistenceProperties, session.getSessionLog());
         // Bug5389828.  Update the logging settings for the singleton logger.
         initOrUpdateLogging(persistenceProperties, AbstractSessionLog.getLog());
         initOrUpdateLogging(persistenceProperties, session.getSessionLog());
@@ -1273,6 +1295,10 @@ protected void updateProfiler(Map persistenceProperties,ClassLoader loader) {
                 session.setProfiler(new PerformanceMonitor());
                 return;
             }
+            if (newProfilerClassName.equals(ProfilerType.ConcurrentPerformanceMonitor)) {
+                session.setProfiler(new ConcurrentPerformanceMonitor());
+                return;
+            }
 
             if (newProfilerClassName.equals(ProfilerType.DMSProfiler)) {
                 newProfilerClassName = ProfilerType.DMSProfilerClassName;
@@ -1533,7 +1559,16 @@ protected void updateConnectionSettings(ServerSession serverSession, Map propert
         if (connectionsMap.isEmpty()) {
             return;
         }
+        // Concurrent pools replace the configured pool, so must be created before the other pool attributes are set.
+        List<Map.Entry<String, Object>> entries = new ArrayList<Map.Entry<String, Object>>(connectionsMap.size());
         for (Map.Entry<String, Object> entry : connectionsMap.entrySet()) {
+            if (entry.getKey().endsWith(PersistenceUnitProperties.CONNECTION_POOL_CONCURRENT)) {
+                entries.add(0, entry);
+            } else {
+                entries.add(entry);
+            }
+        }
+        for (Map.Entry<String, Object> entry : entries) {
             String poolName = "default";
             String attribute = null;
             try {
@@ -1612,6 +1647,28 @@ protected void updateConnectionSettings(ServerSession serverSession, Map propert
                     } else {
                         pool.addFailoverConnectionPool((String)entry.getValue());
                     }
+                } else if (attribute.equals(PersistenceUnitProperties.CONNECTION_POOL_CONCURRENT)) {
+                    boolean concurrent = Boolean.parseBoolean((String)entry.getValue());
+                    if (concurrent && (pool.getClass() == ConnectionPool.class)) {
+                        ConcurrentConnectionPool concurrentPool = new ConcurrentConnectionPool(pool);
+                        if (serverSession.getReadConnectionPool() == pool) {
+                            serverSession.setReadConnectionPool(concurrentPool);
+                        }
+                        if (getDatabaseSession().getSequencingControl().getConnectionPool() == pool) {
+                            getDatabaseSession().getSequencingControl().setConnectionPool(concurrentPool);
+                        }
+                        if (serverSession.getConnectionPool(pool.getName()) == pool) {
+                            serverSession.addConnectionPool(concurrentPool);
+                        }
+                    }
+                } else if (attribute.equals(PersistenceUnitProperties.CONNECTION_POOL_IDLE_TIMEOUT)) {
+                    if (pool instanceof ConcurrentConnectionPool) {
+                        ((ConcurrentConnectionPool)pool).setIdleTimeout(Integer.parseInt((String)entry.getValue()));
+                    }
+                } else if (attribute.equals(PersistenceUnitProperties.CONNECTION_POOL_VALIDATION_INTERVAL)) {
+                    if (pool instanceof ConcurrentConnectionPool) {
+                        ((ConcurrentConnectionPool)pool).setValidationInterval(Integer.parseInt((String)entry.getValue()));
+                    }
                 } else if (poolName.equals("read") && attribute.equals(PersistenceUnitProperties.CONNECTION_POOL_SHARED)) {
                     boolean shared = Boolean.parseBoolean((String)entry.getValue());
                     if (shared) {
@@ -2728,7 +2785,9 @@ protected void updateSession(Map m, ClassLoader loader) {
 
         // In deploy ServerPlatform could've changed which will affect the loggers.
         boolean serverPlatformChanged = updateServerPlatform(m, loader);
+        updateThreadPoolType(m);
         updateJPQLParser(m);
+        updateQueryCacheSizes(m);
 
         if (!session.hasBroker()) {
             updateLoggers(m, serverPlatformChanged, loader);
@@ -2802,6 +2861,10 @@ protected void updateSession(Map m, ClassLoader loader) {
             updateUppercaseSetting(m);
             updateCacheStatementSettings(m);
             updateTemporalMutableSetting(m);
+            updateParallelDeploymentSetting(m);
+            updateParallelChangeCalculationSetting(m);
+            updateParallelCacheMergeSetting(m);
+            updateLockFreeReadLocksSetting(m);
             updateTableCreationSettings(m);
             updateIndexForeignKeys(m);
             if (!session.hasBroker()) {
@@ -2913,6 +2976,44 @@ protected void initOrUpdateLogging(Map m, SessionLog log) {
         }
     }
 
+    /**
+     * Set the buffer size and drop policy of an asynchronous logger.
+     * This must be done before anything is logged, as the buffer is created by the first entry,
+     * so the properties are read without logging them.
+     */
+    protected void updateAsynchronousLogging(Map m, SessionLog log) {
+        if (!(log instanceof AsynchronousSessionLog)) {
+            return;
+        }
+        String bufferSize = EntityManagerFactoryProvider.getConfigPropertyAsString(PersistenceUnitProperties.LOGGING_BUFFER_SIZE, m);
+        if (bufferSize != null) {
+            try {
+                ((AsynchronousSessionLog)log).setBufferSize(Integer.parseInt(bufferSize.trim()));
+            } catch (NumberFormatException exception) {
+                session.handleException(ValidationException.invalidValueForProperty(bufferSize, PersistenceUnitProperties.LOGGING_BUFFER_SIZE, exception));
+            }
+        }
+        String dropWhenFull = EntityManagerFactoryProvider.getConfigPropertyAsString(PersistenceUnitProperties.LOGGING_DROP_WHEN_FULL, m);
+        if (dropWhenFull != null) {
+            if (dropWhenFull.equalsIgnoreCase("true")) {
+                ((AsynchronousSessionLog)log).setShouldDropEntriesWhenFull(true);
+            } else if (dropWhenFull.equalsIgnoreCase("false")) {
+                ((AsynchronousSessionLog)log).setShouldDropEntriesWhenFull(false);
+            } else {
+                session.handleException(ValidationException.invalidBooleanValueForProperty(dropWhenFull, PersistenceUnitProperties.LOGGING_DROP_WHEN_FULL));
+            }
+        }
+    }
+
+    /**
+     * Write the buffered entries of an asynchronous logger and stop its writer thread.
+     */
+    protected static void closeAsynchronousLogging(SessionLog log) {
+        if (log instanceof AsynchronousSessionLog) {
+            ((AsynchronousSessionLog)log).close();
+        }
+    }
+
     protected void processDescriptorCustomizers(Map m, ClassLoader loader) {
         Map customizerMap = PropertiesHandler.getPrefixValuesLogDebug(PersistenceUnitProperties.DESCRIPTOR_CUSTOMIZER_, m, session);
         if (customizerMap.isEmpty()) {
@@ -3051,6 +3152,9 @@ public synchronized void undeploy() {
         } finally {
             session.log(SessionLog.FINEST, SessionLog.JPA, "undeploy_end", new Object[]{getPersistenceUnitInfo().getPersistenceUnitName(), session.getName(), state, factoryCount});
             if(state == STATE_UNDEPLOYED) {
+                // Do not leave the writer threads of asynchronous loggers running, nor lose their buffered entries.
+                closeAsynchronousLogging(session.getSessionLog());
+                closeAsynchronousLogging(AbstractSessionLog.getLog());
                 session = null;
             }
         }
@@ -3134,6 +3238,10 @@ protected void updateBatchWritingSetting(Map persistenceProperties, ClassLoader
              } else if (batchWritingSettingString == BatchWriting.OracleJDBC) {
                  this.session.getPlatform().setUsesNativeBatchWriting(true);
                  this.session.getPlatform().setUsesJDBCBatchWriting(true);
+             } else if (batchWritingSettingString == BatchWriting.Grouped) {
+                 this.session.getPlatform().setUsesNativeBatchWriting(false);
+                 this.session.getPlatform().setUsesJDBCBatchWriting(true);
+                 this.session.getPlatform().setBatchWritingMechanism(new GroupedSQLBatchWritingMechanism());
              } else if (batchWritingSettingString == BatchWriting.None) {
                  // Nothing required.
              } else {
@@ -3299,6 +3407,8 @@ protected void updateProjectCache(Map m, ClassLoader loader){
                 String accessorType = (String)accessor;
                 if (accessorType.equalsIgnoreCase("java-serialization")) {
                     projectCacheAccessor = new FileBasedProjectCache();
+                } else if (accessorType.equalsIgnoreCase("snapshot")) {
+                    projectCacheAccessor = new SnapshotProjectCache(persistenceUnitInfo);
                 } else {
                     Class transportClass = findClassForProperty(accessorType, PersistenceUnitProperties.PROJECT_CACHE, loader);
                     try {
@@ -3333,6 +3443,74 @@ protected void updateJPQLParser(Map m) {
         }
     }
 
+    /**
+     * Set the server platform's thread pool type if specified.
+     */
+    protected void updateThreadPoolType(Map m) {
+        String value = EntityManagerFactoryProvider.getConfigPropertyAsStringLogDebug(PersistenceUnitProperties.THREAD_POOL_TYPE, m, this.session);
+        if ((value == null) || !(this.session.getServerPlatform() instanceof ServerPlatformBase)) {
+            return;
+        }
+        if (value.equalsIgnoreCase(ThreadPoolType.Fixed) || value.equalsIgnoreCase(ThreadPoolType.WorkStealing) || value.equalsIgnoreCase(ThreadPoolType.Virtual)) {
+            ((ServerPlatformBase)this.session.getServerPlatform()).setThreadPoolType(value);
+        } else {
+            this.session.handleException(ValidationException.invalidValueForProperty(value, PersistenceUnitProperties.THREAD_POOL_TYPE, null));
+        }
+    }
+
+    /**
+     * Set the sizes of the JPQL parse cache, the criteria query cache and the descriptor query caches if specified.
+     */
+    protected void updateQueryCacheSizes(Map m) {
+        String value = EntityManagerFactoryProvider.getConfigPropertyAsStringLogDebug(PersistenceUnitProperties.JPQL_PARSE_CACHE_SIZE, m, this.session);
+        int size = parseQueryCacheSize(value, PersistenceUnitProperties.JPQL_PARSE_CACHE_SIZE);
+        if (size >= 0) {
+            this.session.getProject().setJPQLParseCacheMaxSize(size);
+        }
+        value = EntityManagerFactoryProvider.getConfigPropertyAsStringLogDebug(PersistenceUnitProperties.CRITERIA_QUERY_CACHE_SIZE, m, this.session);
+        size = parseQueryCacheSize(value, PersistenceUnitProperties.CRITERIA_QUERY_CACHE_SIZE);
+        if (size >= 0) {
+            this.session.getProject().setCriteriaQueryCacheMaxSize(size);
+        }
+        String expressionValue = EntityManagerFactoryProvider.getConfigPropertyAsStringLogDebug(PersistenceUnitProperties.EXPRESSION_QUERY_CACHE_SIZE, m, this.session);
+        String updateValue = EntityManagerFactoryProvider.getConfigPropertyAsStringLogDebug(PersistenceUnitProperties.UPDATE_CALL_CACHE_SIZE, m, this.session);
+        if ((expressionValue == null) && (updateValue == null)) {
+            return;
+        }
+        int expressionSize = parseQueryCacheSize(expressionValue, PersistenceUnitProperties.EXPRESSION_QUERY_CACHE_SIZE);
+        int updateSize = parseQueryCacheSize(updateValue, PersistenceUnitProperties.UPDATE_CALL_CACHE_SIZE);
+        for (ClassDescriptor descriptor : this.session.getProject().getOrderedDescriptors()) {
+            if (expressionSize >= 0) {
+                descriptor.getQueryManager().setExpressionQueryCacheMaxSize(expressionSize);
+            }
+            if (updateSize >= 0) {
+                descriptor.getQueryManager().setUpdateCallCacheSize(updateSize);
+            }
+        }
+    }
+
+    /**
+     * Return the query cache size of the property value, or -1 if it is not set.
+     * A value that is not a number, or is negative, is reported as invalid and -1 returned.
+     */
+    protected int parseQueryCacheSize(String value, String property) {
+        if (value == null) {
+            return -1;
+        }
+        int size;
+        try {
+            size = Integer.parseInt(value.trim());
+        } catch (NumberFormatException exception) {
+            this.session.handleException(ValidationException.invalidValueForProperty(value, property, exception));
+            return -1;
+        }
+        if (size < 0) {
+            this.session.handleException(ValidationException.invalidValueForProperty(value, property, null));
+            return -1;
+        }
+        return size;
+    }
+
     /**
      * Enable or disable the capability of Native SQL function.
      * The method needs to be called in deploy stage.
@@ -3542,6 +3720,71 @@ protected void updateTemporalMutableSetting(Map m) {
         }
     }
 
+    /**
+     * Enable or disable initializing the descriptors in parallel on login.
+     */
+    protected void updateParallelDeploymentSetting(Map m) {
+        String parallelDeployment = EntityManagerFactoryProvider.getConfigPropertyAsStringLogDebug(PersistenceUnitProperties.PARALLEL_DEPLOYMENT, m, session);
+        if (parallelDeployment != null) {
+            if (parallelDeployment.equalsIgnoreCase("true")) {
+                session.getProject().setShouldInitializeDescriptorsInParallel(true);
+            } else if (parallelDeployment.equalsIgnoreCase("false")) {
+                session.getProject().setShouldInitializeDescriptorsInParallel(false);
+            } else {
+                session.handleException(ValidationException.invalidBooleanValueForProperty(parallelDeployment, PersistenceUnitProperties.PARALLEL_DEPLOYMENT));
+            }
+        }
+    }
+
+    /**
+     * Enable or disable comparing the objects of a unit of work in parallel on commit.
+     */
+    protected void updateParallelChangeCalculationSetting(Map m) {
+        String parallelChangeCalculation = EntityManagerFactoryProvider.getConfigPropertyAsStringLogDebug(PersistenceUnitProperties.PARALLEL_CHANGE_CALCULATION, m, session);
+        if (parallelChangeCalculation != null) {
+            if (parallelChangeCalculation.equalsIgnoreCase("true")) {
+                session.getProject().setShouldCalculateChangesInParallel(true);
+            } else if (parallelChangeCalculation.equalsIgnoreCase("false")) {
+                session.getProject().setShouldCalculateChangesInParallel(false);
+            } else {
+                session.handleException(ValidationException.invalidBooleanValueForProperty(parallelChangeCalculation, PersistenceUnitProperties.PARALLEL_CHANGE_CALCULATION));
+            }
+        }
+    }
+
+    /**
+     * Enable or disable merging the changes of a unit of work into the shared cache in parallel.
+     */
+    protected void updateParallelCacheMergeSetting(Map m) {
+        String parallelCacheMerge = EntityManagerFactoryProvider.getConfigPropertyAsStringLogDebug(PersistenceUnitProperties.PARALLEL_CACHE_MERGE, m, session);
+        if (parallelCacheMerge != null) {
+            if (parallelCacheMerge.equalsIgnoreCase("true")) {
+                session.getProject().setShouldMergeChangesInParallel(true);
+            } else if (parallelCacheMerge.equalsIgnoreCase("false")) {
+                session.getProject().setShouldMergeChangesInParallel(false);
+            } else {
+                session.handleException(ValidationException.invalidBooleanValueForProperty(parallelCacheMerge, PersistenceUnitProperties.PARALLEL_CACHE_MERGE));
+            }
+        }
+    }
+
+    /**
+     * Enable or disable acquiring cache read locks without synchronizing on the cache key
+     * for the cache of this persistence unit.
+     */
+    protected void updateLockFreeReadLocksSetting(Map m) {
+        String lockFreeReadLocks = EntityManagerFactoryProvider.getConfigPropertyAsStringLogDebug(PersistenceUnitProperties.CACHE_LOCK_FREE_READ_LOCKS, m, session);
+        if (lockFreeReadLocks != null) {
+            if (lockFreeReadLocks.equalsIgnoreCase("true")) {
+                session.getProject().setShouldUseLockFreeReadLocks(true);
+            } else if (lockFreeReadLocks.equalsIgnoreCase("false")) {
+                session.getProject().setShouldUseLockFreeReadLocks(false);
+            } else {
+                session.handleException(ValidationException.invalidBooleanValueForProperty(lockFreeReadLocks, PersistenceUnitProperties.CACHE_LOCK_FREE_READ_LOCKS));
+            }
+        }
+    }
+
     /**
      * Copy named queries defined in EclipseLink descriptor into the session if it was indicated to do so.
      */
@@ -0,0 +1,189 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.internal.jpa;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+import org.eclipse.persistence.expressions.Expression;
+import org.eclipse.persistence.internal.expressions.ObjectExpression;
+import org.eclipse.persistence.internal.queries.ContainerPolicy;
+import org.eclipse.persistence.internal.queries.JoinedAttributeManager;
+import org.eclipse.persistence.internal.sessions.UnitOfWorkImpl;
+import org.eclipse.persistence.mappings.DatabaseMapping;
+import org.eclipse.persistence.queries.Cursor;
+import org.eclipse.persistence.queries.ObjectLevelReadQuery;
+
+/**
+ * INTERNAL:
+ * Spliterator over the results of a forward only cursor, used for {@link EJBQueryImpl#getResultStream()}.
+ * Each object is built from its row when the stream requests it, so only the current row is held in memory.
+ * If the cursor was executed in a unit of work, each entity the stream registered is detached
+ * once the stream advances past it, so the persistence context does not grow with the result.
+ * The objects join fetched with it are detached with it.
+ * Entities that were already managed before the stream was opened remain managed.
+ * The cursor is closed when the results are exhausted, or when the stream is closed.
+ */
+public class ResultStreamSpliterator<X> extends Spliterators.AbstractSpliterator<X> {
+    /** The cursor, closed when the results are exhausted. */
+    protected Cursor cursor;
+
+    /** The unit of work the objects are registered in, or null if objects should not be detached. */
+    protected UnitOfWorkImpl unitOfWork;
+
+    /** The objects managed by the unit of work before the stream was opened, these are not detached. */
+    protected Set<Object> managedObjects;
+
+    /** The object last returned, detached when the stream advances. */
+    protected Object previous;
+
+    /** The join manager of the query, used to detach the joined objects, or null if the query does not join. */
+    protected JoinedAttributeManager joinManager;
+
+    /**
+     * Create a spliterator over the cursor.
+     * If the unit of work is not null, the entities read are detached from it as the stream advances.
+     */
+    public ResultStreamSpliterator(Cursor cursor, UnitOfWorkImpl unitOfWork) {
+        super(Long.MAX_VALUE, Spliterator.ORDERED);
+        this.cursor = cursor;
+        this.unitOfWork = unitOfWork;
+        if ((unitOfWork != null) && !unitOfWork.getCloneMapping().isEmpty()) {
+            this.managedObjects = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>(unitOfWork.getCloneMapping().size()));
+            this.managedObjects.addAll(unitOfWork.getCloneMapping().keySet());
+        } else {
+            this.managedObjects = Collections.emptySet();
+        }
+        if ((unitOfWork != null) && cursor.getQuery().isObjectLevelReadQuery() && ((ObjectLevelReadQuery)cursor.getQuery()).hasJoining()
+                && ((ObjectLevelReadQuery)cursor.getQuery()).getJoinedAttributeManager().hasJoinedExpressions()) {
+            this.joinManager = ((ObjectLevelReadQuery)cursor.getQuery()).getJoinedAttributeManager();
+        }
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super X> action) {
+        releasePrevious();
+        if (this.cursor.isClosed() || !this.cursor.hasNext()) {
+            close();
+            return false;
+        }
+        Object next = this.cursor.next();
+        this.previous = next;
+        action.accept((X)next);
+        return true;
+    }
+
+    /**
+     * Detach the object last returned and the objects joined with it, if they were registered by the stream.
+     */
+    protected void releasePrevious() {
+        Object object = this.previous;
+        this.previous = null;
+        if ((object != null) && (this.unitOfWork != null)) {
+            if (this.joinManager != null) {
+                releaseJoined(object, this.joinManager, Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>()));
+            }
+            release(object);
+        }
+    }
+
+    /**
+     * Detach the object, if it was registered by the stream.
+     */
+    protected void release(Object object) {
+        if (!this.managedObjects.contains(object) && this.unitOfWork.isObjectRegistered(object)) {
+            this.unitOfWork.unregisterObject(object, 0, true);
+        }
+    }
+
+    /**
+     * Detach the objects joined to the object by the join manager's expressions,
+     * and the objects joined to those by the nested join queries.
+     * The released set avoids visiting an object twice.
+     */
+    protected void releaseJoined(Object object, JoinedAttributeManager joinManager, Set<Object> released) {
+        List<Expression> expressions = new ArrayList<Expression>(joinManager.getJoinedAttributeExpressions());
+        expressions.addAll(joinManager.getJoinedMappingExpressions());
+        for (Expression joinedExpression : expressions) {
+            ObjectExpression expression = (ObjectExpression)joinedExpression;
+            DatabaseMapping mapping = expression.getMapping();
+            if ((mapping == null) || !mapping.isForeignReferenceMapping() || mapping.isDirectCollectionMapping()) {
+                continue;
+            }
+            // The nested query joins the reference's own join fetched mappings.
+            ObjectLevelReadQuery nestedQuery = null;
+            if (expression.getBaseExpression().isExpressionBuilder() && (joinManager.getJoinedMappingQueries_() != null)) {
+                nestedQuery = joinManager.getJoinedMappingQueries_().get(mapping);
+                if ((nestedQuery != null) && !(nestedQuery.hasJoining() && nestedQuery.getJoinedAttributeManager().hasJoinedExpressions())) {
+                    nestedQuery = null;
+                }
+            }
+            for (Object value : getJoinedValues(object, expression)) {
+                if ((value != null) && released.add(value)) {
+                    if (nestedQuery != null) {
+                        releaseJoined(value, nestedQuery.getJoinedAttributeManager(), released);
+                    }
+                    release(value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the objects referenced from the object by the joined expression.
+     * Only the values already instantiated are followed, so no indirection is triggered.
+     */
+    protected List<Object> getJoinedValues(Object object, ObjectExpression expression) {
+        if (expression.isExpressionBuilder()) {
+            return Collections.singletonList(object);
+        }
+        List<Object> values = new ArrayList<Object>();
+        DatabaseMapping mapping = expression.getMapping();
+        if (mapping == null) {
+            return values;
+        }
+        for (Object base : getJoinedValues(object, (ObjectExpression)expression.getBaseExpression())) {
+            if ((base == null) || !mapping.getDescriptor().getJavaClass().isInstance(base) || !mapping.isAttributeValueFromObjectInstantiated(base)) {
+                continue;
+            }
+            Object value = mapping.getRealAttributeValueFromObject(base, this.unitOfWork);
+            if (value == null) {
+                continue;
+            }
+            if (mapping.isCollectionMapping()) {
+                ContainerPolicy policy = mapping.getContainerPolicy();
+                for (Object iterator = policy.iteratorFor(value); policy.hasNext(iterator);) {
+                    values.add(policy.next(iterator, this.unitOfWork));
+                }
+            } else {
+                values.add(value);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Release the last object and close the cursor.
+     * Called when the results are exhausted, and when the stream is closed.
+     */
+    public void close() {
+        releasePrevious();
+        this.cursor.close();
+    }
+}
@@ -56,6 +56,7 @@
 import org.eclipse.persistence.config.PersistenceUnitProperties;
 import org.eclipse.persistence.exceptions.PersistenceUnitLoadingException;
 import org.eclipse.persistence.exceptions.ValidationException;
+import org.eclipse.persistence.internal.jpa.EntityManagerFactoryProvider;
 import org.eclipse.persistence.internal.jpa.EntityManagerSetupImpl;
 import org.eclipse.persistence.internal.jpa.deployment.PersistenceUnitProcessor;
 import org.eclipse.persistence.internal.jpa.deployment.PersistenceUnitProcessor.Mode;
@@ -343,6 +344,12 @@ protected void initPersistenceUnitClasses() {
             unlistedClasses = PersistenceUnitProcessor.getClassNamesFromURL(persistenceUnitInfo.getPersistenceUnitRootUrl(), m_loader, m_predeployProperties);
         }
 
+        // Read the class files up front when deploying in parallel, the
+        // accessors below are still built in the order of the class names.
+        if ((m_factory instanceof MetadataAsmFactory) && "true".equalsIgnoreCase(EntityManagerFactoryProvider.getConfigPropertyAsString(PersistenceUnitProperties.PARALLEL_DEPLOYMENT, m_predeployProperties, "false"))) {
+            ((MetadataAsmFactory) m_factory).loadMetadataClasses(classNames, unlistedClasses);
+        }
+
         // 5 - Go through all the class names we found and add those classes
         // that have not yet been added. Be sure to check that the accessor
         // does not already exist since adding an accessor will merge its
@@ -29,7 +29,14 @@
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import org.eclipse.persistence.internal.helper.Helper;
 import org.eclipse.persistence.internal.jpa.metadata.MetadataDescriptor;
@@ -132,6 +139,110 @@ public InputStream run() {
         }
     }
 
+    /**
+     * INTERNAL:
+     * Build the class metadata of the classes in parallel on a fork-join pool.
+     * The class files are read and parsed concurrently, then the metadata is
+     * added in the order of the class names, lazy classes are only added if
+     * they are not also in the class names. Classes that already have metadata,
+     * or that could not be read, are left to getMetadataClass.
+     */
+    public void loadMetadataClasses(Collection<String> classNames, Collection<String> lazyClassNames) {
+        final Map<String, Boolean> candidates = new LinkedHashMap<String, Boolean>();
+        for (String className : classNames) {
+            if ((className != null) && !m_metadataClasses.containsKey(className)) {
+                candidates.put(className, Boolean.FALSE);
+            }
+        }
+        for (String className : lazyClassNames) {
+            if ((className != null) && !m_metadataClasses.containsKey(className) && !candidates.containsKey(className)) {
+                candidates.put(className, Boolean.TRUE);
+            }
+        }
+        if (candidates.size() < 2) {
+            return;
+        }
+
+        List<Callable<MetadataClass>> tasks = new ArrayList<Callable<MetadataClass>>(candidates.size());
+        for (final Map.Entry<String, Boolean> candidate : candidates.entrySet()) {
+            tasks.add(new Callable<MetadataClass>() {
+                @Override
+                public MetadataClass call() {
+                    return readClassMetadata(candidate.getKey(), candidate.getValue());
+                }
+            });
+        }
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            List<Future<MetadataClass>> results = pool.invokeAll(tasks);
+            for (Future<MetadataClass> result : results) {
+                MetadataClass metadataClass;
+                try {
+                    metadataClass = result.get();
+                } catch (ExecutionException exception) {
+                    // The read failures are returned as null, so this is an error.
+                    Throwable cause = exception.getCause();
+                    if (cause instanceof Error) {
+                        throw (Error)cause;
+                    }
+                    // Continue with the other classes, this class is read on demand.
+                    continue;
+                }
+                if ((metadataClass != null) && !m_metadataClasses.containsKey(metadataClass.getName())) {
+                    addMetadataClass(metadataClass);
+                }
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Read the class metadata for the class name without adding it to the
+     * factory, return null if the class file cannot be read.
+     * This is thread safe.
+     */
+    protected MetadataClass readClassMetadata(final String className, boolean isLazy) {
+        final String resourceString = className.replace('.', '/') + ".class";
+        InputStream stream = null;
+        try {
+            if (PrivilegedAccessHelper.shouldUsePrivilegedAccess()) {
+                stream = AccessController.doPrivileged(new PrivilegedAction<InputStream>() {
+                    @Override
+                    public InputStream run() {
+                        return m_loader.getResourceAsStream(resourceString);
+                    }
+                });
+            } else {
+                stream = m_loader.getResourceAsStream(resourceString);
+            }
+            if (stream == null) {
+                return null;
+            }
+            ClassReader reader = new ClassReader(stream);
+            // The visitor adds a new class to the factory if the names differ.
+            if (!reader.getClassName().equals(className.replace('.', '/'))) {
+                return null;
+            }
+            MetadataClass metadataClass = new MetadataClass(this, className, isLazy);
+            ClassMetadataVisitor visitor = new ClassMetadataVisitor(metadataClass, isLazy);
+            reader.accept(visitor, new Attribute[0], ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+            return metadataClass;
+        } catch (Exception exception) {
+            return null;
+        } finally {
+            try {
+                if (stream != null) {
+                    stream.close();
+                }
+            } catch (IOException ignore) {
+                // Ignore.
+            }
+        }
+    }
+
     /**
      * Return the class metadata for the class name.
      */
@@ -0,0 +1,368 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.internal.jpa.querydef;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Fetch;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.ParameterExpression;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+
+import org.eclipse.persistence.expressions.ExpressionBuilder;
+import org.eclipse.persistence.internal.expressions.ArgumentListFunctionExpression;
+import org.eclipse.persistence.internal.expressions.BaseExpression;
+import org.eclipse.persistence.internal.expressions.ClassTypeExpression;
+import org.eclipse.persistence.internal.expressions.CollectionExpression;
+import org.eclipse.persistence.internal.expressions.CompoundExpression;
+import org.eclipse.persistence.internal.expressions.ConstantExpression;
+import org.eclipse.persistence.internal.expressions.FunctionExpression;
+import org.eclipse.persistence.internal.expressions.LiteralExpression;
+import org.eclipse.persistence.internal.expressions.LogicalExpression;
+import org.eclipse.persistence.internal.expressions.ManualQueryKeyExpression;
+import org.eclipse.persistence.internal.expressions.MapEntryExpression;
+import org.eclipse.persistence.internal.expressions.ObjectExpression;
+import org.eclipse.persistence.internal.expressions.QueryKeyExpression;
+import org.eclipse.persistence.internal.expressions.RelationExpression;
+import org.eclipse.persistence.internal.helper.DatabaseField;
+
+/**
+ * INTERNAL:
+ * <p><b>Purpose</b>: A structural key for a criteria query.</p>
+ * <p>Two criteria queries with equal fingerprints translate to equivalent
+ * EclipseLink queries, so the prepared translation of one can be used for the
+ * other.  The fingerprint records the query definition (result type, selection,
+ * roots with their joins and fetches, restriction, grouping, ordering and
+ * parameters) and the expression trees underneath it.  Expression nodes that
+ * are reached more than once, such as a root or a joined path, are recorded by
+ * reference to their first occurrence, so the aliasing of the query is part of
+ * the key.</p>
+ * <p>Queries that cannot be safely shared have no fingerprint: queries with
+ * unnamed parameters, tuple queries (the result refers to the selection
+ * objects), and queries using sub-queries, treat, or any expression this class
+ * does not know.  Literal values are part of the key, so only literals with a
+ * small set of values (null, booleans, enums and classes) are accepted.  Other
+ * literals, such as strings and numbers, usually differ between calls and
+ * would fill the cache with queries that are never reused, they should be
+ * parameters.</p>
+ *
+ * @see org.eclipse.persistence.sessions.Project#getCriteriaQueryCache()
+ */
+public final class CriteriaQueryFingerprint {
+
+    /** Marks a reference to an already visited expression node. */
+    private static final Object REFERENCE = new Object() {
+        @Override
+        public String toString() {
+            return "REFERENCE";
+        }
+    };
+
+    /** Marks an absent optional part of the query. */
+    private static final Object NONE = new Object() {
+        @Override
+        public String toString() {
+            return "NONE";
+        }
+    };
+
+    private final Object[] tokens;
+    private final int hashCode;
+
+    private CriteriaQueryFingerprint(Object[] tokens) {
+        this.tokens = tokens;
+        this.hashCode = Arrays.hashCode(tokens);
+    }
+
+    /**
+     * INTERNAL:
+     * Return the fingerprint of the criteria query, or null if the query cannot
+     * be shared.
+     */
+    public static CriteriaQueryFingerprint buildFingerprint(CriteriaQueryImpl<?> query) {
+        Builder builder = new Builder();
+        if (!builder.appendQuery(query)) {
+            return null;
+        }
+        return new CriteriaQueryFingerprint(builder.tokens.toArray());
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
+        if (!(object instanceof CriteriaQueryFingerprint)) {
+            return false;
+        }
+        CriteriaQueryFingerprint fingerprint = (CriteriaQueryFingerprint) object;
+        return (this.hashCode == fingerprint.hashCode) && Arrays.equals(this.tokens, fingerprint.tokens);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return "CriteriaQueryFingerprint(" + Arrays.toString(this.tokens) + ")";
+    }
+
+    /**
+     * Walks a criteria query and collects its tokens.
+     * Each append method returns false if the part cannot be fingerprinted.
+     */
+    private static final class Builder {
+        private final List<Object> tokens = new ArrayList<Object>();
+        private final Map<Object, Integer> visited = new IdentityHashMap<Object, Integer>();
+
+        boolean appendQuery(CriteriaQueryImpl<?> query) {
+            if (query.queryResult == AbstractQueryImpl.ResultType.TUPLE) {
+                return false;
+            }
+            tokens.add(query.queryResult);
+            tokens.add(query.queryType);
+            tokens.add(query.distinct);
+            for (ParameterExpression<?> parameter : query.getParameters()) {
+                ParameterExpressionImpl<?> parameterImpl = (ParameterExpressionImpl<?>) parameter;
+                if ((parameterImpl.getName() == null) && (parameterImpl.getPosition() == null)) {
+                    return false;
+                }
+                tokens.add(parameterImpl.getName());
+                tokens.add(parameterImpl.getPosition());
+                tokens.add(parameterImpl.getJavaType());
+            }
+            tokens.add(NONE);
+            for (Root<?> root : query.roots) {
+                if (!appendFrom((FromImpl) root)) {
+                    return false;
+                }
+            }
+            tokens.add(NONE);
+            if (!appendSelection(query.selection)) {
+                return false;
+            }
+            if ((query.where != null) && ((InternalExpression) query.where).isJunction()) {
+                tokens.add(((PredicateImpl) query.where).getJunctionValue());
+            } else if (!appendSelection(query.where)) {
+                return false;
+            }
+            if (query.groupBy != null) {
+                for (Expression<?> grouping : query.groupBy) {
+                    if (!appendSelection(grouping)) {
+                        return false;
+                    }
+                }
+            }
+            tokens.add(NONE);
+            if (!appendSelection(query.havingClause)) {
+                return false;
+            }
+            if (query.orderBy != null) {
+                for (Order order : query.orderBy) {
+                    tokens.add(order.isAscending());
+                    if (!appendSelection(((OrderImpl) order).getExpression())) {
+                        return false;
+                    }
+                }
+            }
+            tokens.add(NONE);
+            return true;
+        }
+
+        boolean appendFrom(FromImpl<?, ?> from) {
+            if (from.correlatedParent != null) {
+                return false;
+            }
+            tokens.add(from.getClass());
+            tokens.add(from.getJavaType());
+            tokens.add(from.isJoin);
+            tokens.add(from.isFetch);
+            if (from instanceof JoinImpl) {
+                tokens.add(((JoinImpl<?, ?>) from).getJoinType());
+            }
+            if (!appendExpression(from.getCurrentNode())) {
+                return false;
+            }
+            for (Join<?, ?> join : from.getJoins()) {
+                if (!appendFrom((FromImpl<?, ?>) join)) {
+                    return false;
+                }
+            }
+            tokens.add(NONE);
+            for (Fetch<?, ?> fetch : from.getFetches()) {
+                if (!appendFrom((FromImpl<?, ?>) fetch)) {
+                    return false;
+                }
+            }
+            tokens.add(NONE);
+            return true;
+        }
+
+        boolean appendSelection(Selection<?> selection) {
+            if (selection == null) {
+                tokens.add(NONE);
+                return true;
+            }
+            if (selection instanceof SubQueryImpl) {
+                return false;
+            }
+            Integer reference = visited.get(selection);
+            if (reference != null) {
+                tokens.add(REFERENCE);
+                tokens.add(reference);
+                return true;
+            }
+            visited.put(selection, visited.size());
+            SelectionImpl<?> selectionImpl = (SelectionImpl<?>) selection;
+            tokens.add(selection.getClass());
+            tokens.add(selection.getAlias());
+            tokens.add(selection.getJavaType());
+            if (selectionImpl.isCompoundSelection()) {
+                if (selectionImpl.isConstructor()) {
+                    tokens.add(((ConstructorSelectionImpl) selection).constructor);
+                }
+                for (Selection<?> item : selection.getCompoundSelectionItems()) {
+                    if (!appendSelection(item)) {
+                        return false;
+                    }
+                }
+                tokens.add(NONE);
+                return true;
+            }
+            if (selectionImpl.isFrom()) {
+                // The joins and fetches were recorded with the roots.
+                return appendExpression(selectionImpl.getCurrentNode());
+            }
+            if (selection instanceof FunctionExpressionImpl) {
+                FunctionExpressionImpl<?> function = (FunctionExpressionImpl<?>) selection;
+                tokens.add(function.getOperation());
+                if (CriteriaBuilderImpl.SIZE.equals(function.getOperation())) {
+                    PathImpl<?> collection = (PathImpl<?>) function.getChildExpressions().get(0);
+                    if (!appendExpression(collection.getCurrentNode())
+                            || !appendExpression(((ExpressionImpl<?>) collection.getParentPath()).getCurrentNode())) {
+                        return false;
+                    }
+                }
+            }
+            return appendExpression(selectionImpl.getCurrentNode());
+        }
+
+        boolean appendExpression(org.eclipse.persistence.expressions.Expression expression) {
+            if (expression == null) {
+                tokens.add(NONE);
+                return true;
+            }
+            Integer reference = visited.get(expression);
+            if (reference != null) {
+                tokens.add(REFERENCE);
+                tokens.add(reference);
+                return true;
+            }
+            visited.put(expression, visited.size());
+            Class<?> type = expression.getClass();
+            tokens.add(type);
+            if (type == ExpressionBuilder.class) {
+                tokens.add(((ExpressionBuilder) expression).getQueryClass());
+                return appendObjectExpression((ObjectExpression) expression);
+            } else if ((type == QueryKeyExpression.class) || (type == ManualQueryKeyExpression.class)
+                    || (type == MapEntryExpression.class) || (type == ClassTypeExpression.class)) {
+                if (type == MapEntryExpression.class) {
+                    tokens.add(((MapEntryExpression) expression).shouldReturnMapEntry());
+                }
+                if (type != ClassTypeExpression.class) {
+                    QueryKeyExpression queryKey = (QueryKeyExpression) expression;
+                    tokens.add(queryKey.getName());
+                    tokens.add(queryKey.shouldQueryToManyRelationship());
+                }
+                if (expression.getAsOfClause() != null) {
+                    return false;
+                }
+                return appendExpression(((BaseExpression) expression).getBaseExpression())
+                        && ((type == ClassTypeExpression.class) || appendObjectExpression((ObjectExpression) expression));
+            } else if ((type == RelationExpression.class) || (type == LogicalExpression.class)) {
+                CompoundExpression compound = (CompoundExpression) expression;
+                tokens.add(compound.getOperator());
+                return appendExpression(compound.getFirstChild()) && appendExpression(compound.getSecondChild());
+            } else if ((type == FunctionExpression.class) || (type == ArgumentListFunctionExpression.class)) {
+                FunctionExpression function = (FunctionExpression) expression;
+                tokens.add(function.getOperator());
+                tokens.add(function.getResultType());
+                for (Object child : function.getChildren()) {
+                    if (!appendExpression((org.eclipse.persistence.expressions.Expression) child)) {
+                        return false;
+                    }
+                }
+                tokens.add(NONE);
+                return true;
+            } else if (type == ConstantExpression.class) {
+                return appendValue(((ConstantExpression) expression).getValue())
+                        && appendExpression(((ConstantExpression) expression).getLocalBase());
+            } else if (type == CollectionExpression.class) {
+                Object value = ((CollectionExpression) expression).getValue();
+                if (!(value instanceof Collection)) {
+                    return false;
+                }
+                for (Object element : (Collection<?>) value) {
+                    if (element instanceof org.eclipse.persistence.expressions.Expression) {
+                        if (!appendExpression((org.eclipse.persistence.expressions.Expression) element)) {
+                            return false;
+                        }
+                    } else if (!appendValue(element)) {
+                        return false;
+                    }
+                }
+                tokens.add(NONE);
+                return appendExpression(((CollectionExpression) expression).getLocalBase());
+            } else if (type == org.eclipse.persistence.internal.expressions.ParameterExpression.class) {
+                org.eclipse.persistence.internal.expressions.ParameterExpression parameter = (org.eclipse.persistence.internal.expressions.ParameterExpression) expression;
+                DatabaseField field = parameter.getField();
+                tokens.add(field == null ? null : field.getName());
+                tokens.add(field == null ? null : field.getType());
+                tokens.add(parameter.isProperty());
+                return appendExpression(parameter.getLocalBase());
+            } else if (type == LiteralExpression.class) {
+                tokens.add(((LiteralExpression) expression).getValue());
+                return true;
+            }
+            // Sub-selects, treat, index and any other expression are not shared.
+            return false;
+        }
+
+        boolean appendObjectExpression(ObjectExpression expression) {
+            tokens.add(expression.shouldUseOuterJoin());
+            tokens.add(expression.shouldUseOuterJoinForMultitableInheritance());
+            tokens.add(expression.getCastClass());
+            return appendExpression(expression.getJoinSource()) && appendExpression(expression.getOnClause());
+        }
+
+        boolean appendValue(Object value) {
+            // Only immutable values with a small set of values are held by the key.
+            if ((value == null) || (value instanceof Boolean) || (value instanceof Enum) || (value instanceof Class)) {
+                tokens.add(value == null ? NONE : value.getClass());
+                tokens.add(value);
+                return true;
+            }
+            return false;
+        }
+    }
+}
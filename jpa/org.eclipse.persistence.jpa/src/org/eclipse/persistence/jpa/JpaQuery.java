@@ -13,6 +13,7 @@
 package org.eclipse.persistence.jpa;
 
 import java.util.Collection;
+import java.util.stream.Stream;
 
 import org.eclipse.persistence.queries.Cursor;
 import org.eclipse.persistence.queries.DatabaseQuery;
@@ -54,6 +55,23 @@
      */
     public Cursor getResultCursor();
 
+    /**
+     * PUBLIC:
+     * Non-standard method to return the results of a ReadQuery as a stream.
+     * The query is executed with a forward only cursor, using the query's JDBC fetch size,
+     * and each object is built when the stream requests it.
+     * Entities read within a unit of work are detached once the stream advances past them,
+     * so the persistence context does not grow with the result; changes to them must be merged.
+     * The stream must be closed to release the cursor if it is not fully consumed.
+     * <p>
+     * The default implementation streams the result list, as the JPA 2.2 TypedQuery default does,
+     * so other implementations of this interface are not required to implement it.
+     * @return Stream on results
+     */
+    public default Stream<X> getResultStream() {
+        return getResultList().stream();
+    }
+
     /**
      * PUBLIC:
      * Replace the cached query with the given query.
@@ -0,0 +1,355 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.jpa.metadata;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.persistence.spi.PersistenceUnitInfo;
+
+import org.eclipse.persistence.Version;
+import org.eclipse.persistence.config.PersistenceUnitProperties;
+import org.eclipse.persistence.internal.jpa.deployment.PersistenceUnitProcessor;
+import org.eclipse.persistence.jpa.Archive;
+import org.eclipse.persistence.logging.SessionLog;
+import org.eclipse.persistence.sessions.Project;
+
+/**
+ * <p><b>Purpose</b>: Support storing the project representing application metadata
+ * in a snapshot file that is only used while the persistence unit it was built from
+ * is unchanged.
+ * <p>
+ * The snapshot is keyed by a digest of the persistence unit: its class and mapping
+ * file contents, its persistence.xml settings, the predeploy properties (other than
+ * logging and connection settings) and the EclipseLink version. When the key stored in the snapshot does not match, the
+ * snapshot is ignored, the persistence unit is processed as usual and the snapshot
+ * is replaced.
+ * <p>
+ * After the key, the project is stored with Java serialization, as by
+ * {@link FileBasedProjectCache}. The snapshot only adds the check that the
+ * stored project still matches the persistence unit.
+ * <p>
+ * The key is computed from the persistence unit the cache was created for when the
+ * project is retrieved, and the project is stored under that key.
+ * An instance is therefore used for a single persistence unit, a cache created
+ * without a persistence unit does not retrieve or store any project.
+ *
+ * @see PersistenceUnitProperties#PROJECT_CACHE
+ * @see PersistenceUnitProperties#PROJECT_CACHE_FILE
+ */
+public class SnapshotProjectCache extends FileBasedProjectCache {
+
+    /** Identifies a snapshot file, "ELPS". */
+    private static final int MAGIC = 0x454C5053;
+    private static final int FORMAT_VERSION = 1;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * Prefixes of the properties that are applied to the session on every deploy
+     * and so do not change the project, such as logging and connection settings.
+     */
+    private static final String[] RUNTIME_PROPERTY_PREFIXES = new String[] {
+        "eclipselink.logging.", PersistenceUnitProperties.PROJECT_CACHE,
+        "javax.persistence.jdbc.", "eclipselink.jdbc.", "eclipselink.connection-pool.",
+        PersistenceUnitProperties.JTA_DATASOURCE, PersistenceUnitProperties.NON_JTA_DATASOURCE
+    };
+
+    /** The persistence unit the snapshot is stored for. */
+    protected PersistenceUnitInfo persistenceUnitInfo;
+
+    /** The key computed when the project was last retrieved, and used to store it. */
+    protected String key;
+
+    /**
+     * PUBLIC: Create a cache that does not retrieve or store any project,
+     * as it has no persistence unit to compute the key from.
+     * The key-based methods can still be used.
+     */
+    public SnapshotProjectCache() {
+        super();
+    }
+
+    /**
+     * PUBLIC: Create a cache for the snapshot of the persistence unit.
+     */
+    public SnapshotProjectCache(PersistenceUnitInfo persistenceUnitInfo) {
+        this();
+        this.persistenceUnitInfo = persistenceUnitInfo;
+    }
+
+    /**
+     * INTERNAL:
+     * Compute the key of the persistence unit. The key covers the contents of the
+     * persistence unit archives, the listed classes and mapping files, and the given
+     * properties. Return null if the persistence unit contents could not be read, in
+     * which case no snapshot is used.
+     */
+    public String computeKey(PersistenceUnitInfo info, Map properties, SessionLog log) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            update(digest, Version.getVersionString());
+            update(digest, info.getPersistenceUnitName());
+            update(digest, String.valueOf(info.getTransactionType()));
+            update(digest, String.valueOf(info.getSharedCacheMode()));
+            update(digest, String.valueOf(info.getValidationMode()));
+            update(digest, String.valueOf(info.excludeUnlistedClasses()));
+
+            // Properties in a stable order, values that are objects rather than simple values are skipped.
+            if (properties != null) {
+                Map<String, String> sortedProperties = new TreeMap<String, String>();
+                for (Object entry : properties.entrySet()) {
+                    Object key = ((Map.Entry) entry).getKey();
+                    Object value = ((Map.Entry) entry).getValue();
+                    if (key instanceof String && !isRuntimeProperty((String) key) && isSimpleValue(value)) {
+                        sortedProperties.put((String) key, (value instanceof Class) ? ((Class) value).getName() : String.valueOf(value));
+                    }
+                }
+                for (Map.Entry<String, String> entry : sortedProperties.entrySet()) {
+                    update(digest, entry.getKey());
+                    update(digest, entry.getValue());
+                }
+            }
+
+            ClassLoader loader = info.getClassLoader();
+            List<URL> archiveUrls = new ArrayList<URL>();
+            if (info.getPersistenceUnitRootUrl() != null) {
+                archiveUrls.add(info.getPersistenceUnitRootUrl());
+            }
+            if (info.getJarFileUrls() != null) {
+                archiveUrls.addAll(info.getJarFileUrls());
+            }
+            for (URL archiveUrl : archiveUrls) {
+                update(digest, archiveUrl.toExternalForm());
+                Archive archive = PersistenceUnitProcessor.getArchiveFactory(loader).createArchive(archiveUrl, null);
+                if (archive != null) {
+                    try {
+                        for (Iterator<String> entries = archive.getEntries(); entries.hasNext();) {
+                            String entry = entries.next();
+                            update(digest, entry);
+                            if (entry.endsWith(".class") || entry.endsWith(".xml")) {
+                                update(digest, archive.getEntry(entry));
+                            }
+                        }
+                    } finally {
+                        archive.close();
+                    }
+                }
+            }
+
+            // Listed classes and mapping files may come from outside the archives.
+            for (String className : info.getManagedClassNames()) {
+                update(digest, className);
+                update(digest, loader.getResourceAsStream(className.replace('.', '/') + ".class"));
+            }
+            for (String mappingFile : info.getMappingFileNames()) {
+                update(digest, mappingFile);
+                update(digest, loader.getResourceAsStream(mappingFile));
+            }
+
+            StringBuilder key = new StringBuilder(64);
+            for (byte b : digest.digest()) {
+                key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return key.toString();
+        } catch (Exception e) {
+            log.logThrowable(SessionLog.WARNING, SessionLog.JPA, e);
+            return null;
+        }
+    }
+
+    private static boolean isRuntimeProperty(String name) {
+        for (String prefix : RUNTIME_PROPERTY_PREFIXES) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Return if the property value has a stable text form that can be part of the key.
+     * Other objects, such as data sources, class loaders or customizer instances,
+     * have no stable text form and are not part of the key.
+     */
+    private static boolean isSimpleValue(Object value) {
+        return (value == null) || (value instanceof String) || (value instanceof Number) || (value instanceof Boolean)
+                || (value instanceof Character) || (value instanceof Enum) || (value instanceof Class);
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        if (value == null) {
+            digest.update((byte) 0);
+        } else {
+            digest.update((byte) 1);
+            digest.update(value.getBytes(UTF8));
+            digest.update((byte) 0);
+        }
+    }
+
+    private static void update(MessageDigest digest, InputStream in) throws IOException {
+        if (in == null) {
+            digest.update((byte) 0);
+            return;
+        }
+        try {
+            byte[] buffer = new byte[8192];
+            int read;
+            long length = 0;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+                length += read;
+            }
+            // Separate the contents of consecutive entries.
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                digest.update((byte) (length >>> shift));
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * PUBLIC: Return the project stored in the snapshot file if it was stored for the
+     * persistence unit of this cache with the given properties, otherwise null.
+     * The key is kept to store the project that is built when none is returned.
+     */
+    @Override
+    public Project retrieveProject(Map properties, ClassLoader loader, SessionLog log) {
+        if (this.persistenceUnitInfo == null) {
+            return null;
+        }
+        this.key = computeKey(this.persistenceUnitInfo, properties, log);
+        return retrieveProject(this.key, properties, loader, log);
+    }
+
+    /**
+     * PUBLIC: Return the project stored in the snapshot file if it was stored with
+     * the given key, otherwise null.
+     */
+    public Project retrieveProject(String key, Map properties, ClassLoader loader, SessionLog log) {
+        String fileName = (String)getConfigPropertyLogDebug(PersistenceUnitProperties.PROJECT_CACHE_FILE, properties, log);
+        if (key == null || fileName == null || fileName.length() == 0) {
+            return null;
+        }
+        File file = new File(fileName);
+        if (!file.isFile()) {
+            return null;
+        }
+        InputStream in = null;
+        try {
+            in = new BufferedInputStream(new FileInputStream(file), 65536);
+            DataInputStream header = new DataInputStream(in);
+            if (header.readInt() != MAGIC || header.readInt() != FORMAT_VERSION || !key.equals(header.readUTF())) {
+                log.log(SessionLog.FINER, SessionLog.JPA, "project_cache_snapshot_outdated", fileName);
+                return null;
+            }
+            Project project = (Project) new ObjectInputStream(in).readObject();
+            log.log(SessionLog.FINER, SessionLog.JPA, "project_cache_snapshot_loaded", fileName);
+            return project;
+        } catch (Exception e) {
+            // An unreadable snapshot is processed the same as an outdated one.
+            log.logThrowable(SessionLog.WARNING, SessionLog.JPA, e);
+            return null;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ignore) {
+                    //ignore exceptions from close
+                }
+            }
+        }
+    }
+
+    /**
+     * PUBLIC: Store the project in the snapshot file under the key computed when the project
+     * was retrieved, or computed from the given properties if no project was retrieved.
+     */
+    @Override
+    public void storeProject(Project project, Map properties, SessionLog log) {
+        if (this.persistenceUnitInfo == null) {
+            return;
+        }
+        if (this.key == null) {
+            this.key = computeKey(this.persistenceUnitInfo, properties, log);
+        }
+        storeProject(this.key, project, properties, log);
+    }
+
+    /**
+     * PUBLIC: Store the project in the snapshot file under the given key, replacing
+     * any previous snapshot. The file is written next to the snapshot and renamed,
+     * so other processes never read a partially written snapshot.
+     */
+    public void storeProject(String key, Project project, Map properties, SessionLog log) {
+        String fileName = (String)getConfigPropertyLogDebug(PersistenceUnitProperties.PROJECT_CACHE_FILE, properties, log);
+        if (key == null || fileName == null || fileName.length() == 0) {
+            return;
+        }
+        File file = new File(fileName).getAbsoluteFile();
+        File tempFile = null;
+        ObjectOutputStream out = null;
+        try {
+            if (file.getParentFile() != null) {
+                file.getParentFile().mkdirs();
+            }
+            tempFile = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+            DataOutputStream header = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), 65536));
+            header.writeInt(MAGIC);
+            header.writeInt(FORMAT_VERSION);
+            header.writeUTF(key);
+            out = new ObjectOutputStream(header);
+            out.writeObject(project);
+            out.close();
+            out = null;
+            if (!tempFile.renameTo(file)) {
+                // Some platforms do not rename over an existing file.
+                file.delete();
+                if (!tempFile.renameTo(file)) {
+                    throw new IOException(file.getPath());
+                }
+            }
+            tempFile = null;
+            log.log(SessionLog.FINER, SessionLog.JPA, "project_cache_snapshot_stored", fileName);
+        } catch (Exception e) {
+            //the session is still usable, just not cachable so log a warning
+            log.logThrowable(SessionLog.WARNING, SessionLog.JPA, e);
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException ignore) {}
+            }
+            if (tempFile != null) {
+                tempFile.delete();
+            }
+        }
+    }
+}
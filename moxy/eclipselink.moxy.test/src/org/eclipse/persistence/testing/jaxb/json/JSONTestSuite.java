@@ -17,6 +17,7 @@
 
 import org.eclipse.persistence.testing.jaxb.json.adapter.JsonMapAdapterTestCases;
 import org.eclipse.persistence.testing.jaxb.json.any.AnyTestCases;
+import org.eclipse.persistence.testing.jaxb.json.attribute.JSONAttributeLookAheadTestCases;
 import org.eclipse.persistence.testing.jaxb.json.attribute.JSONAttributeNoXmlRootElementIncludeRootFalseTestCases;
 import org.eclipse.persistence.testing.jaxb.json.attribute.JSONAttributeNoXmlRootElementInheritanceTestCases;
 import org.eclipse.persistence.testing.jaxb.json.attribute.JSONAttributeNoXmlRootElementJAXBElementTestCases;
@@ -26,6 +27,7 @@
 import org.eclipse.persistence.testing.jaxb.json.attribute.JSONAttributePrefixOnMarshallerTestCases;
 import org.eclipse.persistence.testing.jaxb.json.attribute.SimpleBeanAttrNullTestCases;
 import org.eclipse.persistence.testing.jaxb.json.characters.EscapeCharactersTestCases;
+import org.eclipse.persistence.testing.jaxb.json.characters.OutputStreamTestCases;
 import org.eclipse.persistence.testing.jaxb.json.characters.UTF8TestCases;
 import org.eclipse.persistence.testing.jaxb.json.characters.UsAsciiTestCases;
 import org.eclipse.persistence.testing.jaxb.json.emptyroot.EmptyNullMarshalUnmarshalTestCases;
@@ -44,6 +46,7 @@
 import org.eclipse.persistence.testing.jaxb.json.norootelement.NoRootElementTestCases;
 import org.eclipse.persistence.testing.jaxb.json.padding.JSONWithPaddingTestCases;
 import org.eclipse.persistence.testing.jaxb.json.rootlevellist.RootLevelListTestCases;
+import org.eclipse.persistence.testing.jaxb.json.type.TypeAfterNestedObjectTestCases;
 import org.eclipse.persistence.testing.jaxb.json.type.TypeNameValueTestCases;
 import org.eclipse.persistence.testing.jaxb.json.type.TypePrefixTestCases;
 import org.eclipse.persistence.testing.jaxb.json.type.TypePropertyInheritanceTestCases;
@@ -66,6 +69,7 @@ public static Test suite() {
           suite.addTestSuite(JSONAttributeNoXmlRootElementInheritanceTestCases.class);
           suite.addTestSuite(JSONAttributeNoXmlRootElementJAXBElementTestCases.class);
           suite.addTestSuite(SimpleBeanAttrNullTestCases.class);
+          suite.addTestSuite(JSONAttributeLookAheadTestCases.class);
           suite.addTestSuite(DifferentNamespacesTestCases.class);
           suite.addTestSuite(NamespacesOnContextTestCases.class);
           suite.addTestSuite(NamespacesOnUnmarshalOnlyTestCases.class);
@@ -83,6 +87,7 @@ public static Test suite() {
           suite.addTestSuite(EscapeCharactersTestCases.class);
           suite.addTestSuite(UsAsciiTestCases.class);
           suite.addTestSuite(UTF8TestCases.class);
+          suite.addTestSuite(OutputStreamTestCases.class);
           suite.addTest(RootLevelListTestCases.suite());
           suite.addTestSuite(EmptyNullMarshalUnmarshalTestCases.class);
           suite.addTestSuite(InheritanceNoRootTestCases.class);
@@ -93,6 +98,7 @@ public static Test suite() {
           suite.addTestSuite(TypeNameValueTestCases.class);
           suite.addTestSuite(TypePrefixTestCases.class);
           suite.addTestSuite(TypePropertyInheritanceTestCases.class);
+          suite.addTestSuite(TypeAfterNestedObjectTestCases.class);
           suite.addTestSuite(TypePropertyTestCases.class);
           suite.addTestSuite(JsonUnmappedTestCases.class);
 
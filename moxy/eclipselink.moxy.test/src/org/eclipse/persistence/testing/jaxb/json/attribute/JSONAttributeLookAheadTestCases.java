@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.testing.jaxb.json.attribute;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.transform.stream.StreamSource;
+
+import junit.framework.TestCase;
+
+import org.eclipse.persistence.jaxb.JAXBContextFactory;
+import org.eclipse.persistence.jaxb.JAXBContextProperties;
+import org.eclipse.persistence.jaxb.UnmarshallerProperties;
+
+/**
+ * With the streaming reader, the attributes of an object are read by looking ahead over its leading members,
+ * the look ahead must not buffer the nested content of a large object.
+ */
+public class JSONAttributeLookAheadTestCases extends TestCase {
+
+    private static final int ITEMS = 100000;
+    private static final int MAX_LOOK_AHEAD = 64 * 1024;
+
+    private JAXBContext jaxbContext;
+
+    public JSONAttributeLookAheadTestCases(String name) throws Exception {
+        super(name);
+    }
+
+    @Override
+    public void setUp() throws Exception {
+        Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put(JAXBContextProperties.MEDIA_TYPE, "application/json");
+        jaxbContext = JAXBContextFactory.createContext(new Class[] {AttributeHolder.class}, properties);
+    }
+
+    private String getLargeObject() {
+        StringBuilder json = new StringBuilder("{\"id\":\"1\",\"items\":[");
+        for (int index = 0; index < ITEMS; index++) {
+            if (index > 0) {
+                json.append(',');
+            }
+            json.append("{\"attr\":\"").append(index).append("\",\"elem1\":\"item").append(index).append("\"}");
+        }
+        return json.append("],\"name\":\"late\"}").toString();
+    }
+
+    private AttributeHolder unmarshal(String json, boolean includeRoot) throws Exception {
+        final byte[] bytes = json.getBytes(Charset.forName("UTF-8"));
+        final long[] read = new long[1];
+        final long[] readAtRoot = {-1};
+        InputStream inputStream = new FilterInputStream(new ByteArrayInputStream(bytes)) {
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int count = super.read(buffer, offset, length);
+                if (count > 0) {
+                    read[0] += count;
+                }
+                return count;
+            }
+        };
+        Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
+        unmarshaller.setProperty(UnmarshallerProperties.JSON_INCLUDE_ROOT, includeRoot);
+        unmarshaller.setProperty(UnmarshallerProperties.JSON_STREAMING_READER, true);
+        unmarshaller.setListener(new Unmarshaller.Listener() {
+            @Override
+            public void beforeUnmarshal(Object target, Object parent) {
+                if (target instanceof AttributeHolder) {
+                    readAtRoot[0] = read[0];
+                }
+            }
+        });
+        AttributeHolder holder;
+        if (includeRoot) {
+            holder = (AttributeHolder) unmarshaller.unmarshal(inputStream);
+        } else {
+            holder = unmarshaller.unmarshal(new StreamSource(inputStream), AttributeHolder.class).getValue();
+        }
+        if (bytes.length > MAX_LOOK_AHEAD) {
+            assertTrue("Input read before the object started: " + readAtRoot[0], readAtRoot[0] >= 0 && readAtRoot[0] <= MAX_LOOK_AHEAD);
+        }
+        return holder;
+    }
+
+    private void assertLargeObject(AttributeHolder holder) {
+        assertEquals("1", holder.id);
+        assertEquals("late", holder.name);
+        assertEquals(ITEMS, holder.items.size());
+        assertEquals(String.valueOf(ITEMS - 1), holder.items.get(ITEMS - 1).getAttr());
+        assertEquals("item" + (ITEMS - 1), holder.items.get(ITEMS - 1).elem1);
+    }
+
+    public void testUnmarshalLargeRootObject() throws Exception {
+        assertLargeObject(unmarshal(getLargeObject(), false));
+    }
+
+    public void testUnmarshalLargeIncludeRootObject() throws Exception {
+        assertLargeObject(unmarshal("{\"attributeHolder\":" + getLargeObject() + "}", true));
+    }
+
+    public void testUnmarshalAttributesAfterNestedObject() throws Exception {
+        AttributeHolder holder = unmarshal("{\"items\":[{\"elem1\":\"a\",\"attr\":\"1\"}],\"id\":\"2\",\"name\":\"after\"}", false);
+        assertEquals("2", holder.id);
+        assertEquals("after", holder.name);
+        assertEquals(1, holder.items.size());
+        assertEquals("1", holder.items.get(0).getAttr());
+        assertEquals("a", holder.items.get(0).elem1);
+    }
+
+}
@@ -0,0 +1,241 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.testing.jaxb.json.characters;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Marshaller;
+
+import junit.framework.TestCase;
+
+import org.eclipse.persistence.internal.oxm.XPathFragment;
+import org.eclipse.persistence.jaxb.JAXBContextFactory;
+import org.eclipse.persistence.jaxb.JAXBContextProperties;
+
+/**
+ * Test the exact bytes written when marshalling JSON to an OutputStream: the escaped characters,
+ * non-ASCII characters, values around the output buffer size, and the reuse of the buffers,
+ * compared to the text written to a Writer.
+ * Also test that the UTF-8 encoding is matched case-insensitively for JSON, and that XML is unchanged.
+ */
+public class OutputStreamTestCases extends TestCase {
+
+    private final static Charset UTF_8 = Charset.forName("UTF-8");
+    private final static String PREFIX = "{\"escapeCharacterHolder\":{\"stringValue\":\"";
+    private final static String SUFFIX = "\",\"characters\":[]}}";
+    private final static int BUFFER_SIZE = 8192;
+
+    private JAXBContext jaxbContext;
+
+    public OutputStreamTestCases(String name) throws Exception {
+        super(name);
+    }
+
+    @Override
+    public void setUp() throws Exception {
+        Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put(JAXBContextProperties.MEDIA_TYPE, "application/json");
+        jaxbContext = JAXBContextFactory.createContext(new Class[] {EscapeCharacterHolder.class}, properties);
+    }
+
+    private static EscapeCharacterHolder holder(String value) {
+        EscapeCharacterHolder holder = new EscapeCharacterHolder();
+        holder.stringValue = value;
+        return holder;
+    }
+
+    /**
+     * Return the value as escaped in a JSON string.
+     */
+    private static String escape(String value) {
+        StringBuilder escaped = new StringBuilder();
+        for (char character : value.toCharArray()) {
+            switch (character) {
+                case '"' : escaped.append("\\\""); break;
+                case '\\': escaped.append("\\\\"); break;
+                case '\b': escaped.append("\\b"); break;
+                case '\f': escaped.append("\\f"); break;
+                case '\n': escaped.append("\\n"); break;
+                case '\r': escaped.append("\\r"); break;
+                case '\t': escaped.append("\\t"); break;
+                default: {
+                    if (Character.isISOControl(character) || Character.isSurrogate(character)) {
+                        escaped.append(String.format("\\u%04X", (int) character));
+                    } else {
+                        escaped.append(character);
+                    }
+                }
+            }
+        }
+        return escaped.toString();
+    }
+
+    private byte[] marshalToOutputStream(Marshaller marshaller, Object object) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        marshaller.marshal(object, outputStream);
+        return outputStream.toByteArray();
+    }
+
+    private String marshalToWriter(Marshaller marshaller, Object object) throws Exception {
+        StringWriter writer = new StringWriter();
+        marshaller.marshal(object, writer);
+        return writer.toString();
+    }
+
+    /**
+     * Assert that the value is written as the escaped text, as UTF-8 bytes to an OutputStream.
+     */
+    private void assertMarshalled(String value, String escaped) throws Exception {
+        Marshaller marshaller = jaxbContext.createMarshaller();
+        String control = PREFIX + escaped + SUFFIX;
+        assertTrue("Wrong bytes for " + escaped, Arrays.equals(control.getBytes(UTF_8), marshalToOutputStream(marshaller, holder(value))));
+        assertEquals(control, marshalToWriter(marshaller, holder(value)));
+    }
+
+    /**
+     * Test each ASCII character, including the control characters and the characters with a short escape.
+     */
+    public void testAsciiCharacters() throws Exception {
+        for (char character = 0; character <= 0x7F; character++) {
+            assertMarshalled("a" + character + "b", "a" + escape(String.valueOf(character)) + "b");
+        }
+        assertMarshalled("\"\\/\b\f\n\r\t", "\\\"\\\\/\\b\\f\\n\\r\\t");
+        assertMarshalled("\u0000\u001F\u007F", "\\u0000\\u001F\\u007F");
+    }
+
+    /**
+     * Test the characters written as two and three UTF-8 bytes, and the non-ASCII control characters.
+     */
+    public void testNonAsciiCharacters() throws Exception {
+        assertMarshalled("\u00E9\u20AC\u4E2D\u00A0\uFFFD", "\u00E9\u20AC\u4E2D\u00A0\uFFFD");
+        assertMarshalled("\u0080\u0085\u009F", "\\u0080\\u0085\\u009F");
+        byte[] control = (PREFIX + "\u00E9\u20AC" + SUFFIX).getBytes(UTF_8);
+        byte[] test = marshalToOutputStream(jaxbContext.createMarshaller(), holder("\u00E9\u20AC"));
+        assertTrue(Arrays.equals(control, test));
+        assertEquals(PREFIX.length() + 5 + SUFFIX.length(), test.length);
+    }
+
+    /**
+     * Test that surrogate pairs and unpaired surrogates are escaped.
+     */
+    public void testSurrogates() throws Exception {
+        assertMarshalled("a\uD83D\uDE00b", "a\\uD83D\\uDE00b");
+        assertMarshalled("\uD83D", "\\uD83D");
+        assertMarshalled("\uDE00a", "\\uDE00a");
+    }
+
+    /**
+     * Test values that end around, and span, the output buffer size, with a multi-byte character
+     * or an escape written across the end of the buffer.
+     */
+    public void testBufferBoundaries() throws Exception {
+        String[] tails = new String[] {"", "\n", "\u00E9", "\u20AC", "\"", "\u0001", "\uD83D\uDE00"};
+        for (int length = BUFFER_SIZE - PREFIX.length() - 8; length <= BUFFER_SIZE - PREFIX.length() + 8; length++) {
+            char[] characters = new char[length];
+            Arrays.fill(characters, 'a');
+            String value = new String(characters);
+            for (String tail : tails) {
+                assertMarshalled(value + tail, value + escape(tail));
+                assertMarshalled(tail + value + tail, escape(tail) + value + escape(tail));
+            }
+        }
+        char[] characters = new char[3 * BUFFER_SIZE];
+        Arrays.fill(characters, '\u00E9');
+        assertMarshalled(new String(characters), new String(characters));
+        Arrays.fill(characters, '\t');
+        assertMarshalled(new String(characters), escape(new String(characters)));
+    }
+
+    /**
+     * Test that the buffer returned to the pool after a marshal does not leak its content into the next one,
+     * and that a failed marshal does not affect the next one.
+     */
+    public void testBufferReuse() throws Exception {
+        Marshaller marshaller = jaxbContext.createMarshaller();
+        char[] characters = new char[BUFFER_SIZE / 2];
+        Arrays.fill(characters, 'x');
+        marshalToOutputStream(marshaller, holder(new String(characters)));
+        assertMarshalled("a", "a");
+
+        OutputStream failingStream = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Write failed");
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                throw new IOException("Write failed");
+            }
+        };
+        try {
+            marshaller.marshal(holder(new String(characters)), failingStream);
+            fail("The failed write was not reported");
+        } catch (Exception expected) {
+            // Expected.
+        }
+        assertMarshalled("b", "b");
+
+        // Marshal to two streams with two marshallers, one after the other on the same thread.
+        Marshaller otherMarshaller = jaxbContext.createMarshaller();
+        assertTrue(Arrays.equals((PREFIX + "first" + SUFFIX).getBytes(UTF_8), marshalToOutputStream(marshaller, holder("first"))));
+        assertTrue(Arrays.equals((PREFIX + "second" + SUFFIX).getBytes(UTF_8), marshalToOutputStream(otherMarshaller, holder("second"))));
+    }
+
+    /**
+     * Test the quoted key bytes of an XPathFragment, and that they follow changes to the local name.
+     */
+    public void testQuotedLocalNameBytes() throws Exception {
+        XPathFragment fragment = new XPathFragment("cl\u00E9");
+        assertTrue(Arrays.equals("\"cl\u00E9\"".getBytes(UTF_8), fragment.getQuotedLocalNameBytes()));
+        assertSame(fragment.getQuotedLocalNameBytes(), fragment.getQuotedLocalNameBytes());
+        fragment.setLocalName("key");
+        assertTrue(Arrays.equals("\"key\"".getBytes(UTF_8), fragment.getQuotedLocalNameBytes()));
+        fragment = new XPathFragment("ns:key");
+        assertEquals("key", fragment.getLocalName());
+        assertTrue(Arrays.equals("\"key\"".getBytes(UTF_8), fragment.getQuotedLocalNameBytes()));
+        assertNull(new XPathFragment().getQuotedLocalNameBytes());
+    }
+
+    /**
+     * Test that the encoding is matched case-insensitively for JSON, so "utf-8" writes the same bytes as "UTF-8",
+     * and that the XML declaration is written with the name of the encoding as given.
+     */
+    public void testEncodingCase() throws Exception {
+        EscapeCharacterHolder holder = holder("MOXy\u2019s \u00E9\n");
+        Marshaller marshaller = jaxbContext.createMarshaller();
+        marshaller.setProperty(Marshaller.JAXB_ENCODING, "UTF-8");
+        byte[] control = marshalToOutputStream(marshaller, holder);
+        assertTrue(Arrays.equals((PREFIX + "MOXy\u2019s \u00E9\\n" + SUFFIX).getBytes(UTF_8), control));
+        marshaller.setProperty(Marshaller.JAXB_ENCODING, "utf-8");
+        assertTrue(Arrays.equals(control, marshalToOutputStream(marshaller, holder)));
+
+        Marshaller xmlMarshaller = JAXBContextFactory.createContext(new Class[] {EscapeCharacterHolder.class}, null).createMarshaller();
+        xmlMarshaller.setProperty(Marshaller.JAXB_ENCODING, "UTF-8");
+        String xmlControl = new String(marshalToOutputStream(xmlMarshaller, holder), UTF_8);
+        assertTrue(xmlControl, xmlControl.contains("<stringValue>MOXy\u2019s \u00E9\n</stringValue>"));
+        xmlMarshaller.setProperty(Marshaller.JAXB_ENCODING, "utf-8");
+        String xmlTest = new String(marshalToOutputStream(xmlMarshaller, holder), UTF_8);
+        // The XML declaration keeps the name of the encoding as it was given.
+        assertEquals(xmlControl.replace("encoding=\"UTF-8\"", "encoding=\"utf-8\""), xmlTest);
+        assertTrue(xmlTest, xmlTest.startsWith("<?xml version=\"1.0\" encoding=\"utf-8\"?>"));
+    }
+}
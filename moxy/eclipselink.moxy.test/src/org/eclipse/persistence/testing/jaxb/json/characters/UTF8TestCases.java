@@ -12,7 +12,9 @@
  ******************************************************************************/
 package org.eclipse.persistence.testing.jaxb.json.characters;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
 import java.io.StringWriter;
 import java.nio.charset.Charset;
 import java.util.HashMap;
@@ -20,6 +22,7 @@
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
 
 import junit.framework.TestCase;
 
@@ -66,4 +69,16 @@ public void testMarshalToWriter() throws Exception {
         assertEquals(CONTROL, test);
     }
 
+    public void testUnmarshalFromInputStream() throws Exception {
+        Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
+        Object test = unmarshaller.unmarshal(new ByteArrayInputStream(CONTROL.getBytes(Charset.forName("UTF-8"))));
+        assertEquals(getControlObject(), test);
+    }
+
+    public void testUnmarshalFromReader() throws Exception {
+        Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
+        Object test = unmarshaller.unmarshal(new StringReader(CONTROL));
+        assertEquals(getControlObject(), test);
+    }
+
 }
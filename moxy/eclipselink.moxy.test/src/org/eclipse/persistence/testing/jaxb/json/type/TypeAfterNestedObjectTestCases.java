@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.testing.jaxb.json.type;
+
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.transform.stream.StreamSource;
+
+import junit.framework.TestCase;
+
+import org.eclipse.persistence.jaxb.JAXBContextFactory;
+import org.eclipse.persistence.jaxb.JAXBContextProperties;
+import org.eclipse.persistence.jaxb.UnmarshallerProperties;
+import org.eclipse.persistence.testing.jaxb.json.type.model.Circle;
+import org.eclipse.persistence.testing.jaxb.json.type.model.Shape;
+
+/**
+ * Tests that the type indicator of an object is found wherever it is in the object's members,
+ * JSON member order is not significant.
+ */
+public class TypeAfterNestedObjectTestCases extends TestCase {
+
+    private JAXBContext jaxbContext;
+
+    public TypeAfterNestedObjectTestCases(String name) throws Exception {
+        super(name);
+    }
+
+    @Override
+    public void setUp() throws Exception {
+        Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put(JAXBContextProperties.MEDIA_TYPE, "application/json");
+        properties.put(JAXBContextProperties.JSON_INCLUDE_ROOT, false);
+        jaxbContext = JAXBContextFactory.createContext(new Class[] {Shape.class}, properties);
+    }
+
+    private Shape unmarshal(String json, boolean streamingReader) throws Exception {
+        Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
+        if (streamingReader) {
+            unmarshaller.setProperty(UnmarshallerProperties.JSON_STREAMING_READER, true);
+            assertEquals(Boolean.TRUE, unmarshaller.getProperty(UnmarshallerProperties.JSON_STREAMING_READER));
+        }
+        return unmarshaller.unmarshal(new StreamSource(new StringReader(json)), Shape.class).getValue();
+    }
+
+    private void assertCircles(Shape shape) {
+        assertTrue("Wrong class: " + shape.getClass(), shape instanceof Circle);
+        assertEquals("2", ((Circle) shape).radius);
+        assertTrue("Wrong class: " + shape.child.getClass(), shape.child instanceof Circle);
+        assertEquals("1", ((Circle) shape.child).radius);
+    }
+
+    public void testTypeAfterNestedObject() throws Exception {
+        Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
+        assertEquals(Boolean.FALSE, unmarshaller.getProperty(UnmarshallerProperties.JSON_STREAMING_READER));
+        assertCircles(unmarshal("{\"child\":{\"radius\":\"1\",\"type\":\"circle\"},\"type\":\"circle\",\"radius\":\"2\"}", false));
+    }
+
+    public void testTypeBeforeNestedObject() throws Exception {
+        assertCircles(unmarshal("{\"type\":\"circle\",\"child\":{\"type\":\"circle\",\"radius\":\"1\"},\"radius\":\"2\"}", false));
+    }
+
+    public void testTypeBeforeNestedObjectStreamingReader() throws Exception {
+        assertCircles(unmarshal("{\"type\":\"circle\",\"child\":{\"type\":\"circle\",\"radius\":\"1\"},\"radius\":\"2\"}", true));
+    }
+
+}
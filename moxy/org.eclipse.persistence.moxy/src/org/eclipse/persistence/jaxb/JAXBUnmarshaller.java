@@ -830,6 +830,11 @@ public void setProperty(String key, Object value) throws PropertyException {
                 throw new PropertyException(key, Constants.EMPTY_STRING);
             }
             xmlUnmarshaller.setAutoDetectMediaType((Boolean)value);
+        } else if (key.equals(UnmarshallerProperties.JSON_STREAMING_READER)){
+            if(value == null){
+                throw new PropertyException(key, Constants.EMPTY_STRING);
+            }
+            xmlUnmarshaller.setStreamingJsonReader((Boolean)value);
         } else if (key.equals(UnmarshallerProperties.JSON_ATTRIBUTE_PREFIX)){
             xmlUnmarshaller.setAttributePrefix((String)value);
         } else if (UnmarshallerProperties.JSON_INCLUDE_ROOT.equals(key)) {
@@ -927,6 +932,8 @@ public Object getProperty(String key) throws PropertyException {
             return xmlUnmarshaller.getMediaType();
         } else if (key.equals(UnmarshallerProperties.AUTO_DETECT_MEDIA_TYPE)) {
             return xmlUnmarshaller.isAutoDetectMediaType();
+        } else if (key.equals(UnmarshallerProperties.JSON_STREAMING_READER)) {
+            return xmlUnmarshaller.isStreamingJsonReader();
         } else if (key.equals(UnmarshallerProperties.UNMARSHALLING_CASE_INSENSITIVE)) {
             return xmlUnmarshaller.isCaseInsensitive();
         } else if (key.equals(UnmarshallerProperties.JSON_ATTRIBUTE_PREFIX)) {
@@ -140,6 +140,16 @@ public class UnmarshallerProperties {
      */
     public static final String AUTO_DETECT_MEDIA_TYPE = "eclipselink.auto-detect-media-type";
 
+    /**
+     * If set to <i>Boolean.TRUE</i>, JSON input is unmarshalled while it is tokenized,
+     * instead of first reading the whole document into a JsonStructure (default is false).
+     * The attributes of an object are only read from its members before its first nested
+     * object, so a type indicator must come before the nested objects of its object.
+     * There is no effect when media type is "application/xml".
+     * @since 2.7
+     */
+    public static final String JSON_STREAMING_READER = "eclipselink.json.streaming-reader";
+
 
     public static final String OBJECT_GRAPH = JAXBContextProperties.OBJECT_GRAPH;
 
@@ -13,11 +13,21 @@
 package org.eclipse.persistence.testing.perf;
 
 import org.eclipse.persistence.testing.perf.beanvalidation.MOXyValidationBenchmark;
+import org.eclipse.persistence.testing.perf.concurrency.ConcurrencyManagerBenchmark;
+import org.eclipse.persistence.testing.perf.coordination.ChangeSetSerializerBenchmark;
+import org.eclipse.persistence.testing.perf.coordination.CommandPropagationBenchmark;
+import org.eclipse.persistence.testing.perf.identitymaps.CacheIndexBenchmark;
+import org.eclipse.persistence.testing.perf.identitymaps.IdentityMapBenchmark;
+import org.eclipse.persistence.testing.perf.identitymaps.QueryResultsCacheBenchmark;
 import org.eclipse.persistence.testing.perf.jpa.persistence_content_handler.PersistenceContentHandlerBenchmark;
 import org.eclipse.persistence.testing.perf.json.marshal.JsonMarshalBenchmark;
 import org.eclipse.persistence.testing.perf.json.unmarshal.JsonUnmarshalBenchmark;
 import org.eclipse.persistence.testing.perf.json.writer.JsonWriterBenchmark;
 import org.eclipse.persistence.testing.perf.largexml.LargeXmlBenchmark;
+import org.eclipse.persistence.testing.perf.profiler.SessionProfilerBenchmark;
+import org.eclipse.persistence.testing.perf.rows.RowBuildingBenchmark;
+import org.eclipse.persistence.testing.perf.sequencing.SequencePreallocationBenchmark;
+import org.eclipse.persistence.testing.perf.server.ConnectionPoolBenchmark;
 import org.eclipse.persistence.testing.perf.smallxml.SmallXmlBenchmark;
 import org.openjdk.jmh.results.format.ResultFormatType;
 import org.openjdk.jmh.runner.Runner;
@@ -54,6 +64,16 @@ public static void main(String[] args) throws RunnerException {
                 .include(getInclude(JsonUnmarshalBenchmark.class))
                 .include(getInclude(JsonWriterBenchmark.class))
                 .include(getInclude(MOXyValidationBenchmark.class))
+                .include(getInclude(IdentityMapBenchmark.class))
+                .include(getInclude(ConcurrencyManagerBenchmark.class))
+                .include(getInclude(ConnectionPoolBenchmark.class))
+                .include(getInclude(CommandPropagationBenchmark.class))
+                .include(getInclude(ChangeSetSerializerBenchmark.class))
+                .include(getInclude(RowBuildingBenchmark.class))
+                .include(getInclude(SequencePreallocationBenchmark.class))
+                .include(getInclude(SessionProfilerBenchmark.class))
+                .include(getInclude(CacheIndexBenchmark.class))
+                .include(getInclude(QueryResultsCacheBenchmark.class))
                  // tests that are not part of regular test-harness
 //                .include(getInclude(JPAValidationBenchmark.class))
 //                .include(getInclude(ReferenceResolverBenchmark.class))
@@ -12,7 +12,11 @@
  ******************************************************************************/
 package org.eclipse.persistence.testing.perf;
 
+import org.eclipse.persistence.testing.perf.jpa.tests.basic.AttributeAccessorTests;
+import org.eclipse.persistence.testing.perf.jpa.tests.basic.CacheMergeTests;
+import org.eclipse.persistence.testing.perf.jpa.tests.basic.CriteriaQueryTests;
 import org.eclipse.persistence.testing.perf.jpa.tests.basic.JPAMetadataProcessingTests;
+import org.eclipse.persistence.testing.perf.jpa.tests.basic.JPAStartupTests;
 import org.eclipse.persistence.testing.perf.jpa.tests.basic.MethodHandleComparisonTests;
 import org.openjdk.jmh.results.format.ResultFormatType;
 import org.openjdk.jmh.runner.Runner;
@@ -39,6 +43,10 @@ public static void main(String[] args) throws RunnerException {
         Options opt = new OptionsBuilder()
                 .include(getInclude(JPAMetadataProcessingTests.class))
                 .include(getInclude(MethodHandleComparisonTests.class))
+                .include(getInclude(CriteriaQueryTests.class))
+                .include(getInclude(JPAStartupTests.class))
+                .include(getInclude(AttributeAccessorTests.class))
+                .include(getInclude(CacheMergeTests.class))
                 .jvmArgsPrepend("-javaagent:" + System.getProperty("eclipselink.agent"))
                 .result(resultFile)
                 .resultFormat(ResultFormatType.valueOf(resultFormat.toUpperCase()))
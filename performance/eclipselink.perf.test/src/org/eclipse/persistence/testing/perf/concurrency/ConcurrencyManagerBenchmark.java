@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.testing.perf.concurrency;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.eclipse.persistence.internal.identitymaps.CacheKey;
+import org.eclipse.persistence.internal.identitymaps.CacheId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Contention benchmarks for the cache key locks, run with monitor based and lock free read locks.
+ * The read workload only acquires read locks, as when objects are read from the shared cache.
+ * The merge workload has writers locking a few cache keys in order and updating their object,
+ * as the merge of a unit of work commit does, while readers keep reading the same keys.
+ */
+@State(Scope.Benchmark)
+public class ConcurrencyManagerBenchmark {
+
+    public static final int THREADS = 16;
+    public static final int KEYS = 64;
+    public static final int KEYS_PER_MERGE = 4;
+
+    @Param({"false", "true"})
+    public boolean lockFreeReadLocks;
+
+    private CacheKey[] cacheKeys;
+
+    @Setup
+    public void prepare() {
+        cacheKeys = new CacheKey[KEYS];
+        for (int index = 0; index < KEYS; index++) {
+            cacheKeys[index] = new CacheKey(new CacheId(new Object[] {index}), "Object" + index, null);
+            cacheKeys[index].setUsesLockFreeReadLocks(lockFreeReadLocks);
+        }
+    }
+
+    @Benchmark
+    @Threads(THREADS)
+    public void testRead(Blackhole bh) {
+        bh.consume(read());
+    }
+
+    @Benchmark
+    @Group("merge")
+    @GroupThreads(THREADS - 2)
+    public void testMergeRead(Blackhole bh) {
+        bh.consume(read());
+    }
+
+    @Benchmark
+    @Group("merge")
+    @GroupThreads(2)
+    public void testMergeWrite() {
+        // Always lock in index order to avoid deadlocks between the writers.
+        int first = ThreadLocalRandom.current().nextInt(KEYS - KEYS_PER_MERGE);
+        for (int index = first; index < first + KEYS_PER_MERGE; index++) {
+            cacheKeys[index].acquire(true);
+        }
+        for (int index = first; index < first + KEYS_PER_MERGE; index++) {
+            CacheKey cacheKey = cacheKeys[index];
+            cacheKey.setObject(cacheKey.getObject());
+            cacheKey.release();
+        }
+    }
+
+    private Object read() {
+        CacheKey cacheKey = cacheKeys[ThreadLocalRandom.current().nextInt(KEYS)];
+        cacheKey.acquireReadLock();
+        try {
+            return cacheKey.getObject();
+        } finally {
+            cacheKey.releaseReadLock();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.testing.perf.coordination;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.persistence.descriptors.RelationalDescriptor;
+import org.eclipse.persistence.internal.sessions.DatabaseSessionImpl;
+import org.eclipse.persistence.internal.sessions.DirectToFieldChangeRecord;
+import org.eclipse.persistence.internal.sessions.ObjectChangeSet;
+import org.eclipse.persistence.internal.sessions.ObjectReferenceChangeRecord;
+import org.eclipse.persistence.internal.sessions.UnitOfWorkChangeSet;
+import org.eclipse.persistence.mappings.OneToOneMapping;
+import org.eclipse.persistence.sessions.DatabaseLogin;
+import org.eclipse.persistence.sessions.Project;
+import org.eclipse.persistence.sessions.coordination.MergeChangeSetCommand;
+import org.eclipse.persistence.sessions.coordination.ServiceId;
+import org.eclipse.persistence.sessions.serializers.ChangeSetSerializer;
+import org.eclipse.persistence.sessions.serializers.JavaSerializer;
+import org.eclipse.persistence.sessions.serializers.Serializer;
+import org.eclipse.persistence.sessions.serializers.kryo.KryoSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Round trip of a cache coordination merge command through each serializer.
+ * The command holds the change sets of a commit updating the name, salary and version of
+ * each employee, and the manager of every tenth one.
+ * The size of the serialized command is printed on setup.
+ * JSONSerializer is not compared, as it only serializes JAXB mapped objects to a String.
+ * Kryo requires kryo-all.jar on the class path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ChangeSetSerializerBenchmark {
+
+    @Param({"Java", "Kryo", "ChangeSet", "ChangeSetCompressed"})
+    public String serializerType;
+
+    @Param({"10", "1000"})
+    public int objects;
+
+    private DatabaseSessionImpl session;
+    private Serializer serializer;
+    private MergeChangeSetCommand command;
+    private byte[] bytes;
+
+    public static class Employee {
+        public long id;
+        public String firstName;
+        public String lastName;
+        public BigDecimal salary;
+        public long version;
+        public Employee manager;
+    }
+
+    @Setup
+    public void prepare() {
+        Project project = new Project(new DatabaseLogin());
+        RelationalDescriptor descriptor = new RelationalDescriptor();
+        descriptor.setJavaClass(Employee.class);
+        descriptor.setTableName("EMPLOYEE");
+        descriptor.addPrimaryKeyFieldName("EMPLOYEE.ID");
+        descriptor.addDirectMapping("id", "EMPLOYEE.ID");
+        descriptor.addDirectMapping("firstName", "EMPLOYEE.F_NAME");
+        descriptor.addDirectMapping("lastName", "EMPLOYEE.L_NAME");
+        descriptor.addDirectMapping("salary", "EMPLOYEE.SALARY");
+        descriptor.addDirectMapping("version", "EMPLOYEE.VERSION");
+        OneToOneMapping managerMapping = new OneToOneMapping();
+        managerMapping.setAttributeName("manager");
+        managerMapping.setReferenceClass(Employee.class);
+        managerMapping.addForeignKeyFieldName("EMPLOYEE.MANAGER_ID", "EMPLOYEE.ID");
+        descriptor.addMapping(managerMapping);
+        project.addDescriptor(descriptor);
+        session = new DatabaseSessionImpl(project);
+
+        if ("Java".equals(serializerType)) {
+            serializer = JavaSerializer.instance;
+        } else if ("Kryo".equals(serializerType)) {
+            serializer = new KryoSerializer();
+        } else if ("ChangeSet".equals(serializerType)) {
+            serializer = new ChangeSetSerializer();
+        } else {
+            serializer = new ChangeSetSerializer(1024);
+        }
+        serializer.initialize(UnitOfWorkChangeSet.class, null, session);
+
+        UnitOfWorkChangeSet changeSet = new UnitOfWorkChangeSet();
+        ObjectChangeSet[] objectChangeSets = new ObjectChangeSet[objects];
+        for (int index = 0; index < objects; index++) {
+            ObjectChangeSet objectChangeSet = new ObjectChangeSet(Long.valueOf(index + 1), descriptor, null, changeSet, false);
+            objectChangeSet.setInitialWriteLockValue(Long.valueOf(1));
+            objectChangeSet.setWriteLockValue(Long.valueOf(2));
+            addDirectChange(objectChangeSet, "firstName", "First" + index);
+            addDirectChange(objectChangeSet, "lastName", "Last" + index);
+            addDirectChange(objectChangeSet, "salary", new BigDecimal(50000 + index));
+            addDirectChange(objectChangeSet, "version", Long.valueOf(2));
+            objectChangeSets[index] = objectChangeSet;
+            changeSet.getAllChangeSets().put(objectChangeSet, objectChangeSet);
+        }
+        for (int index = 1; index < objects; index += 10) {
+            ObjectReferenceChangeRecord record = new ObjectReferenceChangeRecord(objectChangeSets[index]);
+            record.setAttribute("manager");
+            record.setNewValue(objectChangeSets[0]);
+            objectChangeSets[index].addChange(record);
+        }
+        command = new MergeChangeSetCommand();
+        command.setChangeSet(changeSet);
+        command.setServiceId(new ServiceId("EclipseLinkCommandChannel", "node1", "url1"));
+        bytes = (byte[])serializer.serialize(command, session);
+    }
+
+    private static void addDirectChange(ObjectChangeSet objectChangeSet, String attribute, Object value) {
+        DirectToFieldChangeRecord record = new DirectToFieldChangeRecord(objectChangeSet);
+        record.setAttribute(attribute);
+        record.setNewValue(value);
+        objectChangeSet.addChange(record);
+    }
+
+    @Benchmark
+    public Object testSerialize() {
+        return serializer.serialize(command, session);
+    }
+
+    @Benchmark
+    public Object testDeserialize() {
+        return serializer.deserialize(bytes, session);
+    }
+}
@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.testing.perf.coordination;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.eclipse.persistence.config.ThreadPoolType;
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.internal.sessions.DatabaseSessionImpl;
+import org.eclipse.persistence.internal.sessions.coordination.CommandPropagator;
+import org.eclipse.persistence.internal.sessions.coordination.RemoteConnection;
+import org.eclipse.persistence.platform.server.ServerPlatformBase;
+import org.eclipse.persistence.sessions.DatabaseLogin;
+import org.eclipse.persistence.sessions.Project;
+import org.eclipse.persistence.sessions.coordination.Command;
+import org.eclipse.persistence.sessions.coordination.RemoteCommandManager;
+import org.eclipse.persistence.sessions.coordination.ServiceId;
+import org.eclipse.persistence.sessions.coordination.TransportManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Throughput of asynchronous cache coordination fan-out with each of the server platform's thread pool types.
+ * Each invocation queues 10,000 commands, each propagated to every remote connection on its own task,
+ * and waits until all have been sent.
+ * Sending a command parks for a short time to stand in for the network round trip.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CommandPropagationBenchmark {
+
+    public static final int COMMANDS = 10000;
+    public static final int CONNECTIONS = 4;
+    public static final long SEND_NANOS = 50000;
+
+    @Param({ThreadPoolType.Fixed, ThreadPoolType.WorkStealing, ThreadPoolType.Virtual})
+    public String threadPoolType;
+
+    private DatabaseSessionImpl session;
+    private RemoteCommandManager rcm;
+    private volatile CountDownLatch sent;
+
+    @Setup
+    public void prepare() {
+        session = new DatabaseSessionImpl(new Project(new DatabaseLogin()));
+        ((ServerPlatformBase)session.getServerPlatform()).setThreadPoolType(threadPoolType);
+        rcm = new RemoteCommandManager(session);
+        rcm.setTransportManager(new StubTransportManager());
+        rcm.setShouldPropagateAsynchronously(true);
+        for (int index = 0; index < CONNECTIONS; index++) {
+            StubConnection connection = new StubConnection();
+            connection.setServiceId(new ServiceId("channel", "node" + index, "url" + index));
+            rcm.getTransportManager().getConnectionsToExternalServices().put(connection.getServiceId().getId(), connection);
+        }
+    }
+
+    @TearDown
+    public void cleanup() {
+        session.getServerPlatform().shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COMMANDS)
+    public void testAsynchronousPropagation() throws InterruptedException {
+        sent = new CountDownLatch(COMMANDS * CONNECTIONS);
+        for (int index = 0; index < COMMANDS; index++) {
+            new CommandPropagator(rcm, new NoOpCommand(), null).asynchronousPropagateCommand();
+        }
+        sent.await();
+    }
+
+    /**
+     * Command that does nothing when executed.
+     */
+    static class NoOpCommand extends Command {
+        @Override
+        public void executeWithSession(AbstractSession session) {
+        }
+    }
+
+    /**
+     * Connection that waits for the send time instead of sending the command.
+     */
+    class StubConnection extends RemoteConnection {
+        @Override
+        public Object executeCommand(Command command) {
+            LockSupport.parkNanos(SEND_NANOS);
+            sent.countDown();
+            return null;
+        }
+
+        @Override
+        public Object executeCommand(byte[] command) {
+            LockSupport.parkNanos(SEND_NANOS);
+            sent.countDown();
+            return null;
+        }
+    }
+
+    /**
+     * Transport with no local connection or discovery, the remote connections are added directly.
+     */
+    static class StubTransportManager extends TransportManager {
+        StubTransportManager() {
+            initialize();
+        }
+
+        @Override
+        public RemoteConnection createConnection(ServiceId serviceId) {
+            return null;
+        }
+
+        @Override
+        public void createLocalConnection() {
+        }
+
+        @Override
+        public void removeLocalConnection() {
+        }
+    }
+}
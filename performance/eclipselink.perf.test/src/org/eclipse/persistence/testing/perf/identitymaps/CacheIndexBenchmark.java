@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.testing.perf.identitymaps;
+
+import org.eclipse.persistence.descriptors.CacheIndex;
+import org.eclipse.persistence.descriptors.RelationalDescriptor;
+import org.eclipse.persistence.expressions.Expression;
+import org.eclipse.persistence.expressions.ExpressionBuilder;
+import org.eclipse.persistence.internal.sessions.DatabaseSessionImpl;
+import org.eclipse.persistence.queries.InMemoryQueryIndirectionPolicy;
+import org.eclipse.persistence.sessions.DatabaseLogin;
+import org.eclipse.persistence.sessions.Project;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * In-memory queries of a fully cached class, with and without non-unique and sorted cache indexes.
+ * Without indexes every object in the cache is conformed to the query.
+ */
+@State(Scope.Benchmark)
+public class CacheIndexBenchmark {
+
+    public static final int SIZE = 10000;
+    public static final int CODES = 100;
+
+    @Param({"false", "true"})
+    public boolean indexed;
+
+    private DatabaseSessionImpl session;
+    private Expression equalQuery;
+    private Expression rangeQuery;
+
+    @Setup
+    public void prepare() {
+        RelationalDescriptor descriptor = new RelationalDescriptor();
+        descriptor.setJavaClass(Item.class);
+        descriptor.setTableName("ITEM");
+        descriptor.setPrimaryKeyFieldName("ID");
+        descriptor.addDirectMapping("id", "ID");
+        descriptor.addDirectMapping("code", "CODE");
+        descriptor.addDirectMapping("price", "PRICE");
+        descriptor.useFullIdentityMap();
+        if (indexed) {
+            CacheIndex codeIndex = new CacheIndex("CODE");
+            codeIndex.setIsUnique(false);
+            descriptor.getCachePolicy().addCacheIndex(codeIndex);
+            CacheIndex priceIndex = new CacheIndex("PRICE");
+            priceIndex.setIsSorted(true);
+            descriptor.getCachePolicy().addCacheIndex(priceIndex);
+        }
+        Project project = new Project(new DatabaseLogin());
+        project.addDescriptor(descriptor);
+        session = (DatabaseSessionImpl)project.createDatabaseSession();
+        session.initializeDescriptors();
+        for (int index = 0; index < SIZE; index++) {
+            Item item = new Item();
+            item.id = index;
+            item.code = "Code" + (index % CODES);
+            item.price = index;
+            session.getIdentityMapAccessorInstance().internalPutInIdentityMap(item, Long.valueOf(index), null, 0, descriptor);
+        }
+        ExpressionBuilder builder = new ExpressionBuilder();
+        equalQuery = builder.get("code").equal("Code42");
+        builder = new ExpressionBuilder();
+        rangeQuery = builder.get("price").between(5000L, 5100L);
+    }
+
+    @Benchmark
+    public void testEqual(Blackhole bh) {
+        bh.consume(session.getIdentityMapAccessor().getAllFromIdentityMap(equalQuery, Item.class, null, InMemoryQueryIndirectionPolicy.SHOULD_TRIGGER_INDIRECTION, false));
+    }
+
+    @Benchmark
+    public void testRange(Blackhole bh) {
+        bh.consume(session.getIdentityMapAccessor().getAllFromIdentityMap(rangeQuery, Item.class, null, InMemoryQueryIndirectionPolicy.SHOULD_TRIGGER_INDIRECTION, false));
+    }
+
+    public static class Item {
+        public long id;
+        public String code;
+        public long price;
+    }
+}
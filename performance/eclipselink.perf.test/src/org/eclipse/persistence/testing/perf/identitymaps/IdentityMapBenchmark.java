@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.testing.perf.identitymaps;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.eclipse.persistence.internal.identitymaps.CacheIdentityMap;
+import org.eclipse.persistence.internal.identitymaps.CacheKey;
+import org.eclipse.persistence.internal.identitymaps.ClockCacheIdentityMap;
+import org.eclipse.persistence.internal.identitymaps.IdentityMap;
+import org.eclipse.persistence.internal.identitymaps.SoftCacheWeakIdentityMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Multi-threaded comparison of the fixed size identity maps.
+ * Each thread reads random keys from a key range twice the cache size,
+ * and puts the object back on a miss, the same as reading an object from the database.
+ */
+@State(Scope.Benchmark)
+public class IdentityMapBenchmark {
+
+    public static final int THREADS = 16;
+    public static final int SIZE = 1000;
+    public static final int KEYS = SIZE * 2;
+
+    @Param({"Cache", "Clock", "SoftWeak"})
+    public String cacheType;
+
+    private IdentityMap identityMap;
+    private Integer[] keys;
+
+    @Setup
+    public void prepare() {
+        if ("Cache".equals(cacheType)) {
+            identityMap = new CacheIdentityMap(SIZE, null, null, false);
+        } else if ("Clock".equals(cacheType)) {
+            identityMap = new ClockCacheIdentityMap(SIZE, null, null, false);
+        } else {
+            identityMap = new SoftCacheWeakIdentityMap(SIZE, null, null, false);
+        }
+        keys = new Integer[KEYS];
+        for (int index = 0; index < KEYS; index++) {
+            keys[index] = Integer.valueOf(index);
+        }
+        for (int index = 0; index < SIZE; index++) {
+            identityMap.put(keys[index], "Object" + index, null, 0);
+        }
+    }
+
+    /**
+     * Read mostly, puts only occur on a cache miss.
+     */
+    @Benchmark
+    @Threads(THREADS)
+    public void testReadConcurrent(Blackhole bh) {
+        bh.consume(read());
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void testReadSingleThreaded(Blackhole bh) {
+        bh.consume(read());
+    }
+
+    private Object read() {
+        Integer key = keys[ThreadLocalRandom.current().nextInt(KEYS)];
+        CacheKey cacheKey = identityMap.getCacheKey(key, false);
+        if (cacheKey == null) {
+            cacheKey = identityMap.put(key, "Object" + key, null, 0);
+        } else {
+            cacheKey.updateAccess();
+        }
+        return cacheKey.getObject();
+    }
+}
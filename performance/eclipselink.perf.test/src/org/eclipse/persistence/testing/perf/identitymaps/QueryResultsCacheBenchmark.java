@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.testing.perf.identitymaps;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Vector;
+
+import org.eclipse.persistence.descriptors.RelationalDescriptor;
+import org.eclipse.persistence.expressions.ExpressionBuilder;
+import org.eclipse.persistence.internal.identitymaps.IdentityMapManager;
+import org.eclipse.persistence.internal.sessions.DatabaseSessionImpl;
+import org.eclipse.persistence.internal.sessions.DirectToFieldChangeRecord;
+import org.eclipse.persistence.internal.sessions.ObjectChangeSet;
+import org.eclipse.persistence.internal.sessions.UnitOfWorkChangeSet;
+import org.eclipse.persistence.queries.QueryResultsCachePolicy;
+import org.eclipse.persistence.queries.ReadAllQuery;
+import org.eclipse.persistence.sessions.DatabaseLogin;
+import org.eclipse.persistence.sessions.Project;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * A cached query by code, executed after each commit of a change to the price of an item.
+ * Without selective invalidation every commit invalidates the results, and the query must be executed again,
+ * simulated by consuming CPU, with selective invalidation the results are kept as the price is not queried.
+ */
+@State(Scope.Benchmark)
+public class QueryResultsCacheBenchmark {
+
+    public static final int RESULTS = 100;
+    public static final long QUERY_COST = 100000;
+
+    @Param({"false", "true"})
+    public boolean selective;
+
+    private DatabaseSessionImpl session;
+    private IdentityMapManager manager;
+    private ReadAllQuery query;
+    private List<Object> parameters;
+    private List<Item> results;
+    private UnitOfWorkChangeSet changeSet;
+
+    @Setup
+    public void prepare() {
+        RelationalDescriptor descriptor = new RelationalDescriptor();
+        descriptor.setJavaClass(Item.class);
+        descriptor.setTableName("ITEM");
+        descriptor.setPrimaryKeyFieldName("ID");
+        descriptor.addDirectMapping("id", "ID");
+        descriptor.addDirectMapping("code", "CODE");
+        descriptor.addDirectMapping("price", "PRICE");
+        Project project = new Project(new DatabaseLogin());
+        project.addDescriptor(descriptor);
+        session = (DatabaseSessionImpl)project.createDatabaseSession();
+        session.initializeDescriptors();
+        manager = session.getIdentityMapAccessorInstance().getIdentityMapManager();
+
+        ExpressionBuilder builder = new ExpressionBuilder();
+        query = new ReadAllQuery(Item.class, builder.get("code").equal(builder.getParameter("code")));
+        query.setName("findByCode");
+        query.setDescriptor(descriptor);
+        QueryResultsCachePolicy policy = new QueryResultsCachePolicy();
+        policy.setIsInvalidationSelective(selective);
+        policy.setMaximumCachedSize(1000000);
+        policy.getInvalidationClasses().add(Item.class);
+        query.setQueryResultsCachePolicy(policy);
+        parameters = new Vector<Object>();
+        parameters.add("Code42");
+        results = new ArrayList<Item>();
+        for (int index = 0; index < RESULTS; index++) {
+            Item item = new Item();
+            item.id = index;
+            item.code = "Code42";
+            item.price = index;
+            results.add(item);
+        }
+
+        changeSet = new UnitOfWorkChangeSet(session);
+        ObjectChangeSet objectChanges = new ObjectChangeSet(Long.valueOf(0), descriptor, results.get(0), changeSet, false);
+        DirectToFieldChangeRecord change = new DirectToFieldChangeRecord(objectChanges);
+        change.setAttribute("price");
+        change.setNewValue(Long.valueOf(1));
+        objectChanges.addChange(change);
+        changeSet.addObjectChangeSet(objectChanges, session, false);
+    }
+
+    @Benchmark
+    public void testChangeAndQuery(Blackhole bh) {
+        manager.invalidateQueryCache(Item.class, changeSet);
+        Object cached = manager.getQueryResult(query, parameters, true);
+        if (cached == null) {
+            Blackhole.consumeCPU(QUERY_COST);
+            manager.putQueryResult(query, parameters, results, QUERY_COST);
+            cached = results;
+        }
+        bh.consume(cached);
+    }
+
+    public static class Item {
+        public long id;
+        public String code;
+        public long price;
+    }
+}
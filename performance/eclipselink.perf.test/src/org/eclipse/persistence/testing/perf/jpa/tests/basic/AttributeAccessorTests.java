@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.testing.perf.jpa.tests.basic;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.persistence.internal.descriptors.InstanceVariableAttributeAccessor;
+import org.eclipse.persistence.internal.descriptors.MethodAttributeAccessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for the attribute accessors used by mappings of classes that are
+ * not weaved, compared to plain reflection. The accessors switch to generated
+ * access once used often enough, see
+ * {@link org.eclipse.persistence.config.SystemProperties#ATTRIBUTE_ACCESSOR_GENERATION_THRESHOLD}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AttributeAccessorTests {
+
+    public static final class TestClass {
+        private String name;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    private TestClass testClass;
+    private String value;
+
+    private Field field;
+    private Method getter;
+    private Method setter;
+    private InstanceVariableAttributeAccessor fieldAccessor;
+    private MethodAttributeAccessor methodAccessor;
+
+    @Setup
+    public void setup() throws Exception {
+        testClass = new TestClass();
+        value = "value";
+
+        field = TestClass.class.getDeclaredField("name");
+        field.setAccessible(true);
+        getter = TestClass.class.getMethod("getName");
+        setter = TestClass.class.getMethod("setName", String.class);
+
+        fieldAccessor = new InstanceVariableAttributeAccessor();
+        fieldAccessor.setAttributeName("name");
+        fieldAccessor.initializeAttributes(TestClass.class);
+        methodAccessor = new MethodAttributeAccessor();
+        methodAccessor.setAttributeName("name");
+        methodAccessor.setGetMethodName("getName");
+        methodAccessor.setSetMethodName("setName");
+        methodAccessor.initializeAttributes(TestClass.class);
+    }
+
+    @Benchmark
+    public void testGetValueFieldReflection(Blackhole blackhole) throws Exception {
+        blackhole.consume(field.get(testClass));
+    }
+
+    @Benchmark
+    public void testGetValueFieldAccessor(Blackhole blackhole) {
+        blackhole.consume(fieldAccessor.getAttributeValueFromObject(testClass));
+    }
+
+    @Benchmark
+    public void testSetValueFieldReflection() throws Exception {
+        field.set(testClass, value);
+    }
+
+    @Benchmark
+    public void testSetValueFieldAccessor() {
+        fieldAccessor.setAttributeValueInObject(testClass, value);
+    }
+
+    @Benchmark
+    public void testGetValueMethodReflection(Blackhole blackhole) throws Exception {
+        blackhole.consume(getter.invoke(testClass));
+    }
+
+    @Benchmark
+    public void testGetValueMethodAccessor(Blackhole blackhole) {
+        blackhole.consume(methodAccessor.getAttributeValueFromObject(testClass));
+    }
+
+    @Benchmark
+    public void testSetValueMethodReflection() throws Exception {
+        setter.invoke(testClass, value);
+    }
+
+    @Benchmark
+    public void testSetValueMethodAccessor() {
+        methodAccessor.setAttributeValueInObject(testClass, value);
+    }
+}
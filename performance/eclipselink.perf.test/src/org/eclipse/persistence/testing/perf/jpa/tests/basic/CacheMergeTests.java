@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.testing.perf.jpa.tests.basic;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import org.eclipse.persistence.config.PersistenceUnitProperties;
+import org.eclipse.persistence.testing.perf.jpa.model.basic.Employee;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures the latency of reading cached objects while another thread commits
+ * changes to a large number of them, with and without merging the changes into
+ * the shared cache in parallel.
+ * Readers of an object wait while its cache key is locked for the merge, so the
+ * sampled read times show how long the commit blocks them.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CacheMergeTests {
+
+    public static final int OBJECTS = 100000;
+    public static final int READERS = 4;
+    private static final String LAST_NAME = "CacheMerge";
+
+    @Param({"false", "true"})
+    public String parallelCacheMerge;
+
+    private EntityManagerFactory emf;
+    private long[] ids;
+
+    /** The committing thread's entity manager, holding all the objects. */
+    private EntityManager writer;
+    private List<Employee> employees;
+
+    @Setup
+    public void setup() {
+        Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put(PersistenceUnitProperties.PARALLEL_CACHE_MERGE, parallelCacheMerge);
+        properties.put(PersistenceUnitProperties.DDL_GENERATION, PersistenceUnitProperties.CREATE_OR_EXTEND);
+        emf = Persistence.createEntityManagerFactory("jpa-performance", properties);
+        EntityManager em = emf.createEntityManager();
+        try {
+            long count = em.createQuery("SELECT COUNT(e) FROM Employee e WHERE e.lastName = :lastName", Long.class)
+                    .setParameter("lastName", LAST_NAME).getSingleResult();
+            if (count < OBJECTS) {
+                em.getTransaction().begin();
+                for (long index = count; index < OBJECTS; index++) {
+                    Employee employee = new Employee();
+                    employee.setFirstName("Employee" + index);
+                    employee.setLastName(LAST_NAME);
+                    em.persist(employee);
+                }
+                em.getTransaction().commit();
+            }
+        } finally {
+            em.close();
+        }
+        // Loads the objects into the shared cache.
+        writer = emf.createEntityManager();
+        employees = writer.createQuery("SELECT e FROM Employee e WHERE e.lastName = :lastName", Employee.class)
+                .setParameter("lastName", LAST_NAME).getResultList();
+        ids = new long[employees.size()];
+        for (int index = 0; index < ids.length; index++) {
+            ids[index] = employees.get(index).getId();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        writer.close();
+        emf.close();
+    }
+
+    /**
+     * Change the salary of all the objects and commit.
+     */
+    @Benchmark
+    @Group("commit")
+    @GroupThreads(1)
+    public void testCommit() {
+        writer.getTransaction().begin();
+        for (Employee employee : employees) {
+            employee.setSalary(employee.getSalary() + 1);
+        }
+        writer.getTransaction().commit();
+    }
+
+    /**
+     * Read a random object from the shared cache during the commits.
+     */
+    @Benchmark
+    @Group("commit")
+    @GroupThreads(READERS)
+    public Employee testRead() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.find(Employee.class, ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+        } finally {
+            em.close();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.testing.perf.jpa.tests.basic;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.Root;
+
+import org.eclipse.persistence.config.PersistenceUnitProperties;
+import org.eclipse.persistence.testing.perf.jpa.model.basic.Address;
+import org.eclipse.persistence.testing.perf.jpa.model.basic.Employee;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Benchmarks for executing a dynamically built criteria query compared to the
+ * same query defined once as a named JPQL query.
+ * A criteria cache size of 0 translates and prepares the criteria query on
+ * every execution.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CriteriaQueryTests {
+
+    private static final String NAMED_QUERY = "Employee.findByFirstNameAndCity";
+
+    @Param({"0", "200"})
+    public String criteriaCacheSize;
+
+    private EntityManagerFactory emf;
+
+    @Setup
+    public void setup() {
+        Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put(PersistenceUnitProperties.CRITERIA_QUERY_CACHE_SIZE, criteriaCacheSize);
+        properties.put(PersistenceUnitProperties.DDL_GENERATION, PersistenceUnitProperties.CREATE_OR_EXTEND);
+        emf = Persistence.createEntityManagerFactory("jpa-performance", properties);
+        EntityManager em = emf.createEntityManager();
+        try {
+            emf.addNamedQuery(NAMED_QUERY, em.createQuery(
+                    "SELECT e FROM Employee e JOIN e.address a WHERE e.firstName = :firstName AND a.city = :city ORDER BY e.lastName"));
+        } finally {
+            em.close();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        emf.close();
+    }
+
+    /**
+     * Build and execute the criteria query.
+     */
+    @Benchmark
+    public List<Employee> testCriteriaQuery() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            CriteriaBuilder cb = em.getCriteriaBuilder();
+            CriteriaQuery<Employee> query = cb.createQuery(Employee.class);
+            Root<Employee> employee = query.from(Employee.class);
+            Join<Employee, Address> address = employee.join("address");
+            query.where(cb.equal(employee.get("firstName"), cb.parameter(String.class, "firstName")),
+                    cb.equal(address.get("city"), cb.parameter(String.class, "city")));
+            query.orderBy(cb.asc(employee.get("lastName")));
+            return em.createQuery(query).setParameter("firstName", "Bob").setParameter("city", "Ottawa").getResultList();
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Execute the same query as a named JPQL query.
+     */
+    @Benchmark
+    public List<Employee> testNamedQuery() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.createNamedQuery(NAMED_QUERY, Employee.class).setParameter("firstName", "Bob").setParameter("city", "Ottawa").getResultList();
+        } finally {
+            em.close();
+        }
+    }
+}
@@ -0,0 +1,233 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.testing.perf.jpa.tests.basic;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.eclipse.persistence.config.PersistenceUnitProperties;
+import org.eclipse.persistence.internal.jpa.deployment.PersistenceUnitProcessor;
+import org.eclipse.persistence.internal.jpa.deployment.SEPersistenceUnitInfo;
+import org.eclipse.persistence.internal.libraries.asm.AnnotationVisitor;
+import org.eclipse.persistence.internal.libraries.asm.ClassReader;
+import org.eclipse.persistence.internal.libraries.asm.ClassWriter;
+import org.eclipse.persistence.internal.libraries.asm.FieldVisitor;
+import org.eclipse.persistence.internal.libraries.asm.MethodVisitor;
+import org.eclipse.persistence.internal.libraries.asm.Opcodes;
+import org.eclipse.persistence.jpa.Archive;
+import org.eclipse.persistence.jpa.PersistenceProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks for deploying a persistence unit with a large generated model,
+ * with and without parallel deployment.
+ * The model consists of JOINED inheritance families of three entities and a
+ * few shared embeddables, the roots reference each other through ManyToOne
+ * and OneToMany mappings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class JPAStartupTests {
+
+    private static final String PACKAGE = "org/eclipse/persistence/testing/perf/jpa/model/generated/";
+    private static final int EMBEDDABLE_COUNT = 20;
+
+    @Param({"2000"})
+    public int entityCount;
+
+    @Param({"false", "true"})
+    public String parallelDeployment;
+
+    private GeneratedModelClassLoader loader;
+    private List<String> classNames;
+    private Map<String, Object> properties;
+
+    @Setup
+    public void setup() {
+        loader = new GeneratedModelClassLoader(JPAStartupTests.class.getClassLoader());
+        classNames = new ArrayList<String>();
+        for (int i = 0; i < EMBEDDABLE_COUNT; i++) {
+            loader.define(generateEmbeddable(i));
+        }
+        int families = Math.max(1, entityCount / 3);
+        for (int i = 0; i < families; i++) {
+            loader.define(generateRoot(i, families));
+            loader.define(generateChild(i, 'A'));
+            loader.define(generateChild(i, 'B'));
+        }
+
+        // Reuse the connection settings of the jpa-performance unit.
+        properties = new HashMap<String, Object>();
+        ClassLoader classLoader = JPAStartupTests.class.getClassLoader();
+        for (Archive archive : PersistenceUnitProcessor.findPersistenceArchives(classLoader)) {
+            for (SEPersistenceUnitInfo unit : PersistenceUnitProcessor.getPersistenceUnits(archive, classLoader)) {
+                if ("jpa-performance".equals(unit.getPersistenceUnitName())) {
+                    properties.putAll((Map) unit.getProperties());
+                }
+            }
+            archive.close();
+        }
+        properties.put(PersistenceUnitProperties.WEAVING, "false");
+        properties.put(PersistenceUnitProperties.DDL_GENERATION, PersistenceUnitProperties.NONE);
+        properties.put(PersistenceUnitProperties.PARALLEL_DEPLOYMENT, parallelDeployment);
+    }
+
+    /**
+     * Deploy the generated model and login.
+     */
+    @Benchmark
+    public void testDeploy() throws Exception {
+        SEPersistenceUnitInfo info = new SEPersistenceUnitInfo();
+        info.setPersistenceUnitName("jpa-startup-" + entityCount);
+        info.setPersistenceUnitRootUrl(JPAStartupTests.class.getProtectionDomain().getCodeSource().getLocation());
+        info.setManagedClassNames(classNames);
+        info.setExcludeUnlistedClasses(true);
+        info.setClassLoader(loader);
+        info.setNewTempClassLoader(loader);
+        info.setSharedCacheMode("UNSPECIFIED");
+        info.setValidationMode("NONE");
+        EntityManagerFactory emf = new PersistenceProvider().createContainerEntityManagerFactory(info, properties);
+        try {
+            EntityManager em = emf.createEntityManager();
+            em.close();
+        } finally {
+            emf.close();
+        }
+    }
+
+    private static String embeddableName(int i) {
+        return PACKAGE + "Emb" + i;
+    }
+
+    private static String rootName(int i) {
+        return PACKAGE + "Root" + i;
+    }
+
+    private static byte[] generateEmbeddable(int i) {
+        ClassWriter cw = startClass(embeddableName(i), "java/lang/Object");
+        cw.visitAnnotation("Ljavax/persistence/Embeddable;", true).visitEnd();
+        cw.visitField(Opcodes.ACC_PRIVATE, "street", "Ljava/lang/String;", null, null).visitEnd();
+        cw.visitField(Opcodes.ACC_PRIVATE, "city", "Ljava/lang/String;", null, null).visitEnd();
+        cw.visitField(Opcodes.ACC_PRIVATE, "zip", "I", null, null).visitEnd();
+        return endClass(cw);
+    }
+
+    private static byte[] generateRoot(int i, int families) {
+        ClassWriter cw = startClass(rootName(i), "java/lang/Object");
+        cw.visitAnnotation("Ljavax/persistence/Entity;", true).visitEnd();
+        AnnotationVisitor av = cw.visitAnnotation("Ljavax/persistence/Inheritance;", true);
+        av.visitEnum("strategy", "Ljavax/persistence/InheritanceType;", "JOINED");
+        av.visitEnd();
+
+        FieldVisitor fv = cw.visitField(Opcodes.ACC_PRIVATE, "id", "J", null, null);
+        fv.visitAnnotation("Ljavax/persistence/Id;", true).visitEnd();
+        fv.visitEnd();
+        fv = cw.visitField(Opcodes.ACC_PRIVATE, "version", "I", null, null);
+        fv.visitAnnotation("Ljavax/persistence/Version;", true).visitEnd();
+        fv.visitEnd();
+        cw.visitField(Opcodes.ACC_PRIVATE, "name", "Ljava/lang/String;", null, null).visitEnd();
+        cw.visitField(Opcodes.ACC_PRIVATE, "amount", "Ljava/math/BigDecimal;", null, null).visitEnd();
+        cw.visitField(Opcodes.ACC_PRIVATE, "created", "Ljava/util/Date;", null, null).visitEnd();
+        fv = cw.visitField(Opcodes.ACC_PRIVATE, "address", "L" + embeddableName(i % EMBEDDABLE_COUNT) + ";", null, null);
+        fv.visitAnnotation("Ljavax/persistence/Embedded;", true).visitEnd();
+        fv.visitEnd();
+
+        String target = rootName((i + 1) % families);
+        fv = cw.visitField(Opcodes.ACC_PRIVATE, "parent", "L" + target + ";", null, null);
+        fv.visitAnnotation("Ljavax/persistence/ManyToOne;", true).visitEnd();
+        fv.visitEnd();
+        fv = cw.visitField(Opcodes.ACC_PRIVATE, "children", "Ljava/util/List;", "Ljava/util/List<L" + target + ";>;", null);
+        fv.visitAnnotation("Ljavax/persistence/OneToMany;", true).visitEnd();
+        fv.visitEnd();
+        return endClass(cw);
+    }
+
+    private static byte[] generateChild(int i, char suffix) {
+        ClassWriter cw = startClass(rootName(i) + suffix, rootName(i));
+        cw.visitAnnotation("Ljavax/persistence/Entity;", true).visitEnd();
+        cw.visitField(Opcodes.ACC_PRIVATE, "description" + suffix, "Ljava/lang/String;", null, null).visitEnd();
+        cw.visitField(Opcodes.ACC_PRIVATE, "count" + suffix, "I", null, null).visitEnd();
+        return endClass(cw);
+    }
+
+    private static ClassWriter startClass(String name, String superName) {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(Opcodes.V1_6, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, name, null, superName, null);
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, superName, "<init>", "()V", false);
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        return cw;
+    }
+
+    private static byte[] endClass(ClassWriter cw) {
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    /**
+     * Serves the classes of the generated model, both as classes and as class
+     * file resources for the metadata processing.
+     */
+    private class GeneratedModelClassLoader extends ClassLoader {
+
+        private final Map<String, byte[]> classFiles = new HashMap<String, byte[]>();
+
+        GeneratedModelClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        void define(byte[] classFile) {
+            String internalName = new ClassReader(classFile).getClassName();
+            classFiles.put(internalName + ".class", classFile);
+            classNames.add(internalName.replace('/', '.'));
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] classFile = classFiles.get(name.replace('.', '/') + ".class");
+            if (classFile == null) {
+                throw new ClassNotFoundException(name);
+            }
+            return defineClass(name, classFile, 0, classFile.length);
+        }
+
+        @Override
+        public InputStream getResourceAsStream(String name) {
+            byte[] classFile = classFiles.get(name);
+            if (classFile != null) {
+                return new ByteArrayInputStream(classFile);
+            }
+            return super.getResourceAsStream(name);
+        }
+    }
+}
@@ -13,6 +13,7 @@
 package org.eclipse.persistence.testing.perf.json.marshal;
 
 import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -47,12 +48,35 @@ public class JsonMarshalBenchmark {
 
     private JAXBContext jaxbContext;
 
+    private List<Employee> employees;
+
     /*
      * Initial setup.
      */
     @Setup
     public void prepare() throws Exception {
         prepareJAXBContext();
+        prepareEmployees();
+    }
+
+    /*
+     * Marshals straight to an OutputStream, which writes UTF-8 bytes without
+     * going through a Writer.
+     */
+    @Benchmark
+    public void testJsonMarshalToOutputStream(Blackhole bh) throws Exception {
+        Marshaller marshaller = jaxbContext.createMarshaller();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        marshaller.marshal(employees, baos);
+        bh.consume(baos);
+    }
+
+    @Benchmark
+    public void testJsonMarshalToWriter(Blackhole bh) throws Exception {
+        Marshaller marshaller = jaxbContext.createMarshaller();
+        StringWriter writer = new StringWriter();
+        marshaller.marshal(employees, writer);
+        bh.consume(writer);
     }
 
     @Benchmark
@@ -117,6 +141,22 @@ public void testJsonMarshal(Blackhole bh) throws Exception {
         bh.consume(baos);
     }
 
+    private void prepareEmployees() {
+        employees = new ArrayList<Employee>(100);
+        for (int i = 0; i < 100; i++) {
+            Employee employee = new Employee();
+            employee.setId(i);
+            employee.setFirstName("First \"" + i + "\"");
+            employee.setLastName("Last\u00e9" + i);
+
+            PhoneNumber phoneNumber = new PhoneNumber();
+            phoneNumber.setType("cell");
+            phoneNumber.setNumber("555-" + i);
+            employee.getPhoneNumbers().add(phoneNumber);
+            employees.add(employee);
+        }
+    }
+
     private void prepareJAXBContext() throws Exception {
 
         Map<String, Object> jaxbProperties = new HashMap<String, Object>(2);
@@ -12,6 +12,8 @@
  ******************************************************************************/
 package org.eclipse.persistence.testing.perf.json.unmarshal;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.util.HashMap;
 import java.util.List;
@@ -21,6 +23,7 @@
 import javax.json.JsonArray;
 import javax.json.JsonObject;
 import javax.json.JsonReader;
+import javax.json.JsonValue;
 import javax.json.stream.JsonParser;
 import javax.json.stream.JsonParser.Event;
 import javax.xml.bind.JAXBContext;
@@ -29,9 +32,11 @@
 import javax.xml.transform.stream.StreamSource;
 
 import org.eclipse.persistence.jaxb.JAXBContextProperties;
+import org.eclipse.persistence.jaxb.UnmarshallerProperties;
 import org.eclipse.persistence.oxm.json.JsonStructureSource;
 import org.eclipse.persistence.testing.perf.json.model.Employee;
 import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
@@ -39,20 +44,27 @@
 
 /**
  * Tests Json unmarshalling.
+ * The document is a root level array of the employees of the input file, repeated up to the document size.
  */
 @State(Scope.Benchmark)
 public class JsonUnmarshalBenchmark {
 
     private static final String INPUT_JSON = "org/eclipse/persistence/testing/perf/json/unmarshal/input.json";
 
+    @Param({"1KB", "1MB", "100MB"})
+    public String documentSize;
+
     private JAXBContext jaxbContext;
 
+    private byte[] document;
+
     /*
      * Initial setup.
      */
     @Setup
     public void prepare() throws Exception {
         prepareJAXBContext();
+        prepareDocument();
     }
 
     @Benchmark
@@ -61,7 +73,7 @@ public void testJsonReaderUnmarshal(Blackhole bh) throws Exception {
         InputStream is = null;
 
         try {
-            is = Thread.currentThread().getContextClassLoader().getResourceAsStream(INPUT_JSON);
+            is = new ByteArrayInputStream(document);
 
             Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
 
@@ -98,7 +110,7 @@ public void testJsonReader(Blackhole bh) throws Exception {
         InputStream is = null;
 
         try {
-            is = Thread.currentThread().getContextClassLoader().getResourceAsStream(INPUT_JSON);
+            is = new ByteArrayInputStream(document);
 
             // Parse the JSON
             JsonReader jsonReader = Json.createReader(is);
@@ -121,7 +133,7 @@ public void testJsonReader(Blackhole bh) throws Exception {
     public void testJsonMOXyUnmarshal(Blackhole bh) throws Exception {
         InputStream inputStream = null;
         try {
-            inputStream = Thread.currentThread().getContextClassLoader().getResourceAsStream(INPUT_JSON);
+            inputStream = new ByteArrayInputStream(document);
             Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
             Object testObject = unmarshaller.unmarshal(new StreamSource(inputStream), Employee.class);
             @SuppressWarnings({ "unchecked", "rawtypes" })
@@ -138,11 +150,32 @@ public void testJsonMOXyUnmarshal(Blackhole bh) throws Exception {
 
     }
 
+    @Benchmark
+    public void testJsonMOXyStreamingUnmarshal(Blackhole bh) throws Exception {
+        InputStream inputStream = null;
+        try {
+            inputStream = new ByteArrayInputStream(document);
+            Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
+            unmarshaller.setProperty(UnmarshallerProperties.JSON_STREAMING_READER, true);
+            Object testObject = unmarshaller.unmarshal(new StreamSource(inputStream), Employee.class);
+            @SuppressWarnings({ "unchecked", "rawtypes" })
+            List<Employee> employees = (List<Employee>)(((JAXBElement)testObject).getValue());
+            bh.consume(employees);
+        } catch (Exception e) {
+            e.printStackTrace();
+            throw e;
+        } finally {
+            if (null != inputStream) {
+                inputStream.close();
+            }
+        }
+    }
+
     @Benchmark
     public void testJsonParser(Blackhole bh) throws Exception {
         InputStream inputStream = null;
         try {
-            inputStream = Thread.currentThread().getContextClassLoader().getResourceAsStream(INPUT_JSON);
+            inputStream = new ByteArrayInputStream(document);
             JsonParser jr = Json.createParser(inputStream);
             Event event = null;
 
@@ -160,6 +193,36 @@ public void testJsonParser(Blackhole bh) throws Exception {
         }
     }
 
+    private void prepareDocument() throws Exception {
+        int size;
+        if (documentSize.endsWith("MB")) {
+            size = Integer.parseInt(documentSize.substring(0, documentSize.length() - 2)) * 1024 * 1024;
+        } else {
+            size = Integer.parseInt(documentSize.substring(0, documentSize.length() - 2)) * 1024;
+        }
+        JsonArray employees;
+        InputStream is = Thread.currentThread().getContextClassLoader().getResourceAsStream(INPUT_JSON);
+        try {
+            employees = Json.createReader(is).readArray();
+        } finally {
+            is.close();
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size + 1024);
+        out.write('[');
+        boolean isFirst = true;
+        while (out.size() < size) {
+            for (JsonValue employee : employees) {
+                if (!isFirst) {
+                    out.write(',');
+                }
+                isFirst = false;
+                out.write(employee.toString().getBytes("UTF-8"));
+            }
+        }
+        out.write(']');
+        document = out.toByteArray();
+    }
+
     private void prepareJAXBContext() throws Exception {
         Map<String, Object> jaxbProperties = new HashMap<String, Object>(2);
         jaxbProperties.put(JAXBContextProperties.MEDIA_TYPE, "application/json");
@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.testing.perf.profiler;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.persistence.queries.ReadAllQuery;
+import org.eclipse.persistence.sessions.SessionProfiler;
+import org.eclipse.persistence.tools.profiler.ConcurrentPerformanceMonitor;
+import org.eclipse.persistence.tools.profiler.PerformanceMonitor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Overhead of profiling the operations of a query execution from concurrent threads,
+ * with the synchronized PerformanceMonitor and the lock free ConcurrentPerformanceMonitor.
+ * Each invocation times the statement execution and row fetch of a query and counts a cache hit,
+ * both session wide and for the query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SessionProfilerBenchmark {
+
+    public static final int THREADS = 8;
+
+    @Param({"PerformanceMonitor", "ConcurrentPerformanceMonitor"})
+    public String profilerType;
+
+    private SessionProfiler profiler;
+    private ReadAllQuery query;
+
+    public static class Employee {
+    }
+
+    @Setup
+    public void prepare() {
+        if ("PerformanceMonitor".equals(profilerType)) {
+            PerformanceMonitor monitor = new PerformanceMonitor();
+            monitor.setDumpTime(Long.MAX_VALUE);
+            profiler = monitor;
+        } else {
+            profiler = new ConcurrentPerformanceMonitor();
+        }
+        query = new ReadAllQuery(Employee.class);
+        query.setName("findAll");
+    }
+
+    @Benchmark
+    @Threads(THREADS)
+    public void testProfileQueryOperations() {
+        profiler.startOperationProfile(SessionProfiler.StatementExecute, query, SessionProfiler.ALL);
+        profiler.endOperationProfile(SessionProfiler.StatementExecute, query, SessionProfiler.ALL);
+        profiler.startOperationProfile(SessionProfiler.RowFetch, query, SessionProfiler.ALL);
+        profiler.endOperationProfile(SessionProfiler.RowFetch, query, SessionProfiler.ALL);
+        profiler.occurred(SessionProfiler.CacheHits, query, null);
+    }
+}
@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.testing.perf.rows;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Vector;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetMetaDataImpl;
+import javax.sql.rowset.RowSetProvider;
+
+import org.eclipse.persistence.descriptors.RelationalDescriptor;
+import org.eclipse.persistence.internal.databaseaccess.DatabaseAccessor;
+import org.eclipse.persistence.internal.databaseaccess.DatabasePlatform;
+import org.eclipse.persistence.internal.descriptors.ObjectBuilder;
+import org.eclipse.persistence.internal.helper.DatabaseField;
+import org.eclipse.persistence.internal.sessions.AbstractRecord;
+import org.eclipse.persistence.internal.sessions.ArrayRecord;
+import org.eclipse.persistence.internal.sessions.DatabaseSessionImpl;
+import org.eclipse.persistence.queries.ReadAllQuery;
+import org.eclipse.persistence.sessions.DatabaseLogin;
+import org.eclipse.persistence.sessions.Project;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Builds rows from a result set and sets their values into objects with long, int and double attributes.
+ * The boxed variant fetches every column as an object, as rows were fetched before primitive row values.
+ * Run with the JMH gc profiler (-prof gc) to report the allocations per row.
+ * Note the CachedRowSet stores its values as objects and converts them in its typed get methods,
+ * so this measures the row building and mapping overhead, not the savings of a driver that returns primitives.
+ */
+@State(Scope.Benchmark)
+public class RowBuildingBenchmark {
+
+    public static final int ROWS = 1000;
+
+    @Param({"false", "true"})
+    public boolean primitive;
+
+    private DatabaseSessionImpl session;
+    private DatabaseAccessor accessor;
+    private ObjectBuilder objectBuilder;
+    private ReadAllQuery query;
+    private CachedRowSet resultSet;
+    private ResultSetMetaData metaData;
+    private Vector fields;
+    private DatabaseField[] fieldsArray;
+
+    @Setup
+    public void prepare() throws SQLException {
+        RelationalDescriptor descriptor = new RelationalDescriptor();
+        descriptor.setJavaClass(Item.class);
+        descriptor.setTableName("ITEM");
+        descriptor.setPrimaryKeyFieldName("ID");
+        descriptor.addDirectMapping("id", "ID");
+        descriptor.addDirectMapping("quantity", "QUANTITY");
+        descriptor.addDirectMapping("price", "PRICE");
+        descriptor.addDirectMapping("name", "NAME");
+        Project project = new Project(new DatabaseLogin());
+        project.addDescriptor(descriptor);
+        session = (DatabaseSessionImpl)project.createDatabaseSession();
+        session.initializeDescriptors();
+        objectBuilder = descriptor.getObjectBuilder();
+        query = new ReadAllQuery(Item.class);
+        query.setSession(session);
+
+        accessor = new DatabaseAccessor();
+        accessor.setDatasourcePlatform((DatabasePlatform)session.getDatasourcePlatform());
+        fields = new Vector(descriptor.getAllSelectionFields());
+        fieldsArray = (DatabaseField[])fields.toArray(new DatabaseField[fields.size()]);
+
+        RowSetMetaDataImpl rowSetMetaData = new RowSetMetaDataImpl();
+        rowSetMetaData.setColumnCount(fieldsArray.length);
+        for (int index = 0; index < fieldsArray.length; index++) {
+            String name = fieldsArray[index].getName();
+            rowSetMetaData.setColumnName(index + 1, name);
+            if (name.equals("NAME")) {
+                rowSetMetaData.setColumnType(index + 1, Types.VARCHAR);
+            } else if (name.equals("PRICE")) {
+                rowSetMetaData.setColumnType(index + 1, Types.DOUBLE);
+            } else if (name.equals("QUANTITY")) {
+                rowSetMetaData.setColumnType(index + 1, Types.INTEGER);
+            } else {
+                rowSetMetaData.setColumnType(index + 1, Types.BIGINT);
+            }
+        }
+        resultSet = RowSetProvider.newFactory().createCachedRowSet();
+        resultSet.setMetaData(rowSetMetaData);
+        for (int row = 0; row < ROWS; row++) {
+            resultSet.moveToInsertRow();
+            for (int index = 0; index < fieldsArray.length; index++) {
+                String name = fieldsArray[index].getName();
+                if (name.equals("NAME")) {
+                    resultSet.updateString(index + 1, "Item" + row);
+                } else if (name.equals("PRICE")) {
+                    resultSet.updateDouble(index + 1, row * 1.5d);
+                } else if (name.equals("QUANTITY")) {
+                    resultSet.updateInt(index + 1, 1000 + row);
+                } else {
+                    resultSet.updateLong(index + 1, 1000000L + row);
+                }
+            }
+            resultSet.insertRow();
+            resultSet.moveToCurrentRow();
+        }
+        metaData = resultSet.getMetaData();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void testBuildRows(Blackhole bh) throws SQLException {
+        resultSet.beforeFirst();
+        while (resultSet.next()) {
+            AbstractRecord row = primitive ? accessor.fetchRow(fields, fieldsArray, resultSet, metaData, session) : fetchBoxedRow();
+            Item item = new Item();
+            objectBuilder.buildAttributesIntoObject(item, null, row, query, null, null, false, session);
+            bh.consume(item);
+        }
+    }
+
+    /**
+     * Fetch every value as an object.
+     */
+    private AbstractRecord fetchBoxedRow() {
+        DatabasePlatform platform = accessor.getPlatform();
+        Object[] values = new Object[fieldsArray.length];
+        for (int index = 0; index < fieldsArray.length; index++) {
+            values[index] = accessor.getObject(resultSet, fieldsArray[index], metaData, index + 1, platform, true, session);
+        }
+        return new ArrayRecord(fields, fieldsArray, values);
+    }
+
+    public static class Item {
+        private long id;
+        private int quantity;
+        private double price;
+        private String name;
+    }
+}
@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.testing.perf.sequencing;
+
+import java.util.Queue;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.eclipse.persistence.internal.sequencing.PreallocatedSequenceQueue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Throughput of sequence id allocation with many inserting threads,
+ * following the preallocation logic of the sequencing manager with a sequencing connection pool.
+ * Ids are polled from the preallocated queue, and when it is empty one thread allocates the next values under the
+ * sequence lock while the others wait.
+ * With a low-water mark the next values are allocated in the background once the remaining values reach it.
+ * Allocating parks for a short time to stand in for the database round trip.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SequencePreallocationBenchmark {
+
+    public static final int INSERT_THREADS = 32;
+    public static final int PREALLOCATION_SIZE = 50;
+    public static final long ALLOCATE_NANOS = 200000;
+
+    /** Linked is the previous ConcurrentLinkedQueue, Block is the PreallocatedSequenceQueue. */
+    @Param({"Linked", "Block"})
+    public String queueType;
+
+    @Param({"0", "25"})
+    public int lowWaterMark;
+
+    private Queue queue;
+    private ReentrantLock lock;
+    private ExecutorService executor;
+    private long next;
+
+    @Setup
+    public void prepare() {
+        if (queueType.equals("Linked")) {
+            queue = new ConcurrentLinkedQueue();
+        } else {
+            queue = new PreallocatedSequenceQueue();
+        }
+        lock = new ReentrantLock();
+        executor = Executors.newSingleThreadExecutor();
+        next = 0;
+    }
+
+    @TearDown
+    public void cleanup() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    @Threads(INSERT_THREADS)
+    public Object testNextValue() {
+        Object value = queue.poll();
+        if (value != null) {
+            checkLowWaterMark();
+            return value;
+        }
+        lock.lock();
+        try {
+            value = queue.poll();
+            if (value != null) {
+                return value;
+            }
+            Vector values = allocate();
+            value = values.remove(0);
+            queue.addAll(values);
+        } finally {
+            lock.unlock();
+        }
+        return value;
+    }
+
+    /**
+     * Allocate the next values in the background if the remaining values have reached the low-water mark.
+     * Only the block queue records an allocation in progress, so the linked queue always allocates on demand.
+     */
+    protected void checkLowWaterMark() {
+        if ((lowWaterMark <= 0) || !(queue instanceof PreallocatedSequenceQueue)) {
+            return;
+        }
+        final PreallocatedSequenceQueue blocks = (PreallocatedSequenceQueue)queue;
+        if (blocks.isRefilling() || (blocks.size() > lowWaterMark) || !blocks.startRefill()) {
+            return;
+        }
+        executor.execute(new Runnable() {
+            public void run() {
+                try {
+                    lock.lock();
+                    try {
+                        if (blocks.size() <= lowWaterMark) {
+                            blocks.addAll(allocate());
+                        }
+                    } finally {
+                        lock.unlock();
+                    }
+                } finally {
+                    blocks.endRefill();
+                }
+            }
+        });
+    }
+
+    /**
+     * Return the next preallocated values, called under the lock.
+     */
+    protected Vector allocate() {
+        LockSupport.parkNanos(ALLOCATE_NANOS);
+        Vector values = new Vector(PREALLOCATION_SIZE);
+        for (int index = 0; index < PREALLOCATION_SIZE; index++) {
+            values.add(Long.valueOf(++next));
+        }
+        return values;
+    }
+}
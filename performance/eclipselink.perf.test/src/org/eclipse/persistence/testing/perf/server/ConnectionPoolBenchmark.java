@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oracle and/or its affiliates. All rights reserved.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0
+ * which accompanies this distribution.
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *     Oracle - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.persistence.testing.perf.server;
+
+import org.eclipse.persistence.internal.databaseaccess.Accessor;
+import org.eclipse.persistence.internal.databaseaccess.DatabaseAccessor;
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.sessions.DatabaseLogin;
+import org.eclipse.persistence.sessions.Login;
+import org.eclipse.persistence.sessions.Project;
+import org.eclipse.persistence.sessions.server.ConcurrentConnectionPool;
+import org.eclipse.persistence.sessions.server.ConnectionPool;
+import org.eclipse.persistence.sessions.server.ServerSession;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Contention benchmark for the synchronized and the concurrent connection pools.
+ * Each thread acts as a client session acquiring a connection, using it for a short time and releasing it,
+ * with many more threads than connections.
+ * The connections do not access a database, so only the cost of the pool itself is measured.
+ */
+@State(Scope.Benchmark)
+public class ConnectionPoolBenchmark {
+
+    public static final int CLIENT_SESSIONS = 500;
+    public static final int MAX_CONNECTIONS = 32;
+    public static final int WORK_TOKENS = 100;
+
+    @Param({"false", "true"})
+    public boolean concurrent;
+
+    private ServerSession session;
+    private ConnectionPool pool;
+
+    @Setup
+    public void prepare() {
+        session = new ServerSession(new Project(new DatabaseLogin()));
+        if (concurrent) {
+            pool = new ConcurrentConnectionPool("benchmark", session.getDatasourceLogin(), MAX_CONNECTIONS, MAX_CONNECTIONS, session) {
+                @Override
+                protected Accessor buildConnection() {
+                    return new StubAccessor(this);
+                }
+            };
+        } else {
+            pool = new ConnectionPool("benchmark", session.getDatasourceLogin(), MAX_CONNECTIONS, MAX_CONNECTIONS, session) {
+                @Override
+                protected Accessor buildConnection() {
+                    return new StubAccessor(this);
+                }
+            };
+        }
+        pool.setWaitTimeout(0);
+        pool.startUp();
+    }
+
+    @TearDown
+    public void cleanup() {
+        pool.shutDown();
+    }
+
+    @Benchmark
+    @Threads(CLIENT_SESSIONS)
+    public void testAcquireRelease(Blackhole bh) {
+        Accessor connection = pool.acquireConnection();
+        try {
+            bh.consume(connection);
+            Blackhole.consumeCPU(WORK_TOKENS);
+        } finally {
+            pool.releaseConnection(connection);
+        }
+    }
+
+    /**
+     * Accessor that does not connect to a database.
+     */
+    static class StubAccessor extends DatabaseAccessor {
+        StubAccessor(ConnectionPool pool) {
+            setPool(pool);
+        }
+
+        @Override
+        public void connect(Login login, AbstractSession session) {
+            this.isConnected = true;
+        }
+
+        @Override
+        public void disconnect(AbstractSession session) {
+            this.isConnected = false;
+        }
+    }
+}